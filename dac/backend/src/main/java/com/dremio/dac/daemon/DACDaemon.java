@@ -36,6 +36,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.EnumSet;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
@@ -92,6 +93,15 @@ public final class DACDaemon implements AutoCloseable {
       DremioServer server)
       throws IOException {
 
+    // keep the persistent code cache with the other local files of the node unless set explicitly
+    String codeCachePath =
+        incomingConfig.getSabotConfig().getString(ExecConstants.CODE_CACHE_PATH_CONFIG);
+    if (Strings.isNullOrEmpty(codeCachePath)) {
+      codeCachePath =
+          Paths.get(incomingConfig.getString(DremioConfig.LOCAL_WRITE_PATH_STRING), "codecache")
+              .toString();
+    }
+
     // ensure that the zookeeper option for sabot is same as dremio config.
     final DremioConfig config =
         incomingConfig
@@ -103,6 +113,7 @@ public final class DACDaemon implements AutoCloseable {
                 incomingConfig.getString(DremioConfig.CLIENT_PORT_INT))
             .withSabotValue(
                 ExecConstants.SPILL_DIRS, incomingConfig.getList(DremioConfig.SPILLING_PATH_STRING))
+            .withSabotValue(ExecConstants.CODE_CACHE_PATH_CONFIG, codeCachePath)
             .withSabotValue(
                 ExecConstants.REGISTRATION_ADDRESS,
                 incomingConfig.getString(DremioConfig.REGISTRATION_ADDRESS))
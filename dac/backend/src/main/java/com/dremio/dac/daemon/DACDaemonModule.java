@@ -276,6 +276,7 @@ import com.dremio.service.namespace.NamespaceService;
 import com.dremio.service.namespace.NamespaceServiceImpl;
 import com.dremio.service.namespace.SplitOrphansCleanerService;
 import com.dremio.service.namespace.catalogpubsub.CatalogEventMessagePublisherProvider;
+import com.dremio.service.namespace.catalogpubsub.NamespaceCacheInvalidationService;
 import com.dremio.service.namespace.catalogstatusevents.CatalogStatusEvents;
 import com.dremio.service.namespace.catalogstatusevents.CatalogStatusEventsImpl;
 import com.dremio.service.namespace.catalogstatusevents.events.DatasetDeletionCatalogStatusEvent;
@@ -1616,6 +1617,12 @@ public class DACDaemonModule implements DACModule {
         CatalogEventMessagePublisherProvider.class, CatalogEventMessagePublisherProvider.NO_OP);
     // end search bindings.
 
+    if (isCoordinator) {
+      registry.bindSelf(
+          new NamespaceCacheInvalidationService(
+              registry.provider(PubSubClient.class), registry.provider(KVStoreProvider.class)));
+    }
+
     if (isCoordinator) {
       registry.bind(
           SampleDataPopulatorService.class,
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.easy.json;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.common.expression.SchemaPath;
+import com.dremio.exec.store.SampleMutator;
+import com.dremio.exec.store.easy.json.JsonProcessor.ReadState;
+import com.dremio.exec.store.easy.json.reader.JsonStructuralIndex;
+import com.dremio.exec.store.easy.json.reader.VectorizedJsonReader;
+import com.dremio.exec.vector.complex.fn.JsonReader;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.complex.impl.VectorContainerWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the two ways {@link JSONRecordReader} turns a file into batches: the Jackson based
+ * {@link JsonReader} writing through complex writers, and the {@link VectorizedJsonReader} working
+ * off a {@link JsonStructuralIndex}. Both read the same in-memory newline delimited document of
+ * flat records into a {@link SampleMutator}, which is what the reader is given under the coercion
+ * reader. Scores are in records per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-XX:MaxDirectMemorySize=2G", "--add-opens=java.base/java.nio=ALL-UNNAMED"})
+public class JsonReaderBenchmark {
+  private static final int RECORDS = 100_000;
+  private static final int BATCH_SIZE = 4096;
+  private static final int MAX_FIELD_SIZE = 32 * 1024;
+  private static final int MAX_LEAF_LIMIT = 800;
+
+  @Param({"4", "16"})
+  private int columns;
+
+  private BufferAllocator allocator;
+  private ArrowBuf managedBuf;
+  private byte[] document;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    allocator = new RootAllocator(Long.MAX_VALUE);
+    managedBuf = allocator.buffer(1024);
+
+    final Random random = new Random(0);
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < RECORDS; i++) {
+      sb.append('{');
+      for (int c = 0; c < columns; c++) {
+        if (c > 0) {
+          sb.append(", ");
+        }
+        sb.append("\"col").append(c).append("\": ");
+        switch (c % 4) {
+          case 0:
+            sb.append(random.nextInt(1_000_000));
+            break;
+          case 1:
+            sb.append(random.nextInt(100_000) / 100.0);
+            break;
+          case 2:
+            sb.append("\"value ").append(random.nextInt(1000)).append('"');
+            break;
+          default:
+            sb.append(random.nextBoolean());
+            break;
+        }
+      }
+      sb.append("}\n");
+    }
+    document = sb.toString().getBytes(UTF_8);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    AutoCloseables.close(managedBuf, allocator);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public int jacksonReader() throws Exception {
+    try (SampleMutator mutator = new SampleMutator(allocator);
+        VectorContainerWriter writer = new VectorContainerWriter(mutator)) {
+      final JsonReader reader =
+          new JsonReader(managedBuf, MAX_FIELD_SIZE, MAX_LEAF_LIMIT, false, true, false, false);
+      reader.setSource(new ByteArrayInputStream(document));
+      int total = 0;
+      ReadState state = ReadState.WRITE_SUCCEED;
+      while (state == ReadState.WRITE_SUCCEED) {
+        writer.allocate();
+        writer.reset();
+        int count = 0;
+        while (count < BATCH_SIZE) {
+          writer.setPosition(count);
+          state = reader.write(writer);
+          if (state != ReadState.WRITE_SUCCEED) {
+            break;
+          }
+          count++;
+        }
+        writer.setValueCount(count);
+        total += count;
+      }
+      return total;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public int vectorizedReader() {
+    try (SampleMutator mutator = new SampleMutator(allocator)) {
+      final VectorizedJsonReader reader =
+          new VectorizedJsonReader(
+              JsonStructuralIndex.build(document, document.length),
+              mutator,
+              ImmutableList.of(SchemaPath.getSimplePath("*")),
+              MAX_FIELD_SIZE,
+              MAX_LEAF_LIMIT,
+              false);
+      int total = 0;
+      int count;
+      while ((count = reader.write(BATCH_SIZE, Long.MAX_VALUE)) > 0) {
+        total += count;
+      }
+      if (reader.isFallbackRequired()) {
+        throw new IllegalStateException("Unexpected fallback after " + total + " records");
+      }
+      return total;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public int structuralIndex() {
+    return JsonStructuralIndex.build(document, document.length).size();
+  }
+}
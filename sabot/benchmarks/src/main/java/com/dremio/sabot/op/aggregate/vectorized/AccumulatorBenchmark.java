@@ -0,0 +1,280 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.aggregate.vectorized;
+
+import static com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator.HTORDINAL_OFFSET;
+import static com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator.KEYINDEX_OFFSET;
+import static com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator.PARTITIONINDEX_HTORDINAL_WIDTH;
+import static com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator.SKETCH_SIZE;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.sabot.op.common.ht2.BenchmarkKeys;
+import com.dremio.sabot.op.common.ht2.BenchmarkKeys.Distribution;
+import com.dremio.sabot.op.common.ht2.BenchmarkKeys.Layout;
+import com.dremio.sabot.op.common.ht2.LBlockHashTable;
+import com.dremio.sabot.op.common.ht2.PivotedKeys;
+import com.dremio.sabot.op.common.ht2.VariableBlockVector;
+import com.koloboke.collect.hash.HashConfig;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the accumulation loops of the vectorized hash aggregation. The keys are inserted in the
+ * hash table once during setup, so that each invocation only replays the (ordinal, record index)
+ * pairs of every incoming batch through the accumulator, the same way {@link
+ * VectorizedHashAggPartition} does. Scores are in records per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {
+      "-Xmx4G",
+      "-XX:MaxDirectMemorySize=8G",
+      "--add-opens=java.base/java.nio=ALL-UNNAMED"
+    })
+public class AccumulatorBenchmark {
+  private static final int BATCH_SIZE = 4096;
+  private static final int ROWS = 256 * BATCH_SIZE;
+  private static final long SEED = 0x5EED;
+  // defaults of exec.operator.aggregate.vectorize.joint_allocation_min/max
+  private static final long JOINT_ALLOCATION_MIN = 4 * 1024;
+  private static final long JOINT_ALLOCATION_MAX = 64 * 1024;
+  // one incoming value out of NULL_INTERVAL is null
+  private static final int NULL_INTERVAL = 16;
+
+  /** Accumulator under test, named after its function and input type. */
+  public enum Kind {
+    SUM_INT,
+    SUM_BIGINT,
+    SUM_DOUBLE,
+    MIN_BIGINT,
+    MIN_DOUBLE,
+    MAX_BIGINT,
+    MAX_DOUBLE,
+    NDV_BIGINT
+  }
+
+  @Param private Kind kind;
+
+  // NDV keeps a sketch of a few KB per group, so the group count is kept to what fits in memory
+  @Param({"1000", "100000"})
+  private int cardinality;
+
+  @Param({"UNIFORM", "ZIPF"})
+  private Distribution distribution;
+
+  private BufferAllocator allocator;
+  private PivotedKeys keys;
+  private LBlockHashTable table;
+  private final List<FieldVector> inputs = new ArrayList<>();
+  private final List<ArrowBuf> offsets = new ArrayList<>();
+  private final List<AutoCloseable> closeables = new ArrayList<>();
+  private Accumulator accumulator;
+  private AccumulatorSet accumulatorSet;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    allocator = new RootAllocator(Long.MAX_VALUE);
+    keys =
+        PivotedKeys.create(
+            allocator,
+            Layout.FIXED,
+            BenchmarkKeys.generate(ROWS, cardinality, distribution, SEED),
+            BATCH_SIZE,
+            0);
+
+    final Random random = new Random(SEED);
+    for (int batch = 0; batch < keys.getBatchCount(); batch++) {
+      inputs.add(newInput(keys.getCount(batch), random));
+    }
+
+    accumulator = newAccumulator(inputs.get(0));
+    accumulatorSet =
+        new AccumulatorSet(JOINT_ALLOCATION_MIN, JOINT_ALLOCATION_MAX, allocator, accumulator);
+    table =
+        new LBlockHashTable(
+            HashConfig.getDefault(), keys.getPivot(), allocator, BATCH_SIZE, 0, true, BATCH_SIZE);
+    table.registerResizeListener(accumulatorSet);
+
+    try (ArrowBuf ordinals = allocator.buffer(BATCH_SIZE * 4)) {
+      for (int batch = 0; batch < keys.getBatchCount(); batch++) {
+        final int count = keys.getCount(batch);
+        final VariableBlockVector var = keys.getVariable(batch);
+        final int inserted =
+            table.add(
+                count,
+                keys.getFixed(batch).getBuf(),
+                var == null ? null : var.getBuf(),
+                keys.getHashes(batch),
+                ordinals);
+        if (inserted != count) {
+          throw new IllegalStateException(
+              String.format("Inserted %d keys out of %d", inserted, count));
+        }
+
+        final ArrowBuf offset = allocator.buffer((long) count * PARTITIONINDEX_HTORDINAL_WIDTH);
+        offsets.add(offset);
+        for (int i = 0; i < count; i++) {
+          final long entry = (long) i * PARTITIONINDEX_HTORDINAL_WIDTH;
+          offset.setInt(entry + HTORDINAL_OFFSET, ordinals.getInt(i * 4L));
+          offset.setInt(entry + KEYINDEX_OFFSET, i);
+        }
+      }
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    AutoCloseables.close(
+        offsets,
+        inputs,
+        AutoCloseables.iter(table, accumulatorSet),
+        closeables,
+        AutoCloseables.iter(keys, allocator));
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public int accumulate() {
+    final int bitsInChunk = table.getBitsInChunk();
+    final int chunkOffsetMask = table.getChunkOffsetMask();
+    for (int batch = 0; batch < offsets.size(); batch++) {
+      accumulator.setInput(inputs.get(batch));
+      accumulator.accumulate(
+          offsets.get(batch).memoryAddress(), keys.getCount(batch), bitsInChunk, chunkOffsetMask);
+    }
+    return accumulator.getValidityBufferSize();
+  }
+
+  private FieldVector newInput(int count, Random random) {
+    final FieldVector input;
+    switch (kind) {
+      case SUM_INT:
+        final IntVector ints = new IntVector("measure", allocator);
+        ints.allocateNew(count);
+        for (int i = 0; i < count; i++) {
+          if (i % NULL_INTERVAL != 0) {
+            ints.set(i, random.nextInt(1_000_000));
+          }
+        }
+        input = ints;
+        break;
+      case SUM_DOUBLE:
+      case MIN_DOUBLE:
+      case MAX_DOUBLE:
+        final Float8Vector doubles = new Float8Vector("measure", allocator);
+        doubles.allocateNew(count);
+        for (int i = 0; i < count; i++) {
+          if (i % NULL_INTERVAL != 0) {
+            doubles.set(i, random.nextGaussian() * 1_000_000);
+          }
+        }
+        input = doubles;
+        break;
+      default:
+        final BigIntVector longs = new BigIntVector("measure", allocator);
+        longs.allocateNew(count);
+        for (int i = 0; i < count; i++) {
+          if (i % NULL_INTERVAL != 0) {
+            longs.set(i, random.nextLong());
+          }
+        }
+        input = longs;
+        break;
+    }
+    input.setValueCount(count);
+    return input;
+  }
+
+  private Accumulator newAccumulator(FieldVector input) {
+    switch (kind) {
+      case SUM_INT:
+        return new SumAccumulators.IntSumAccumulator(
+            input, bigIntOutput(), bigIntOutput(), BATCH_SIZE, allocator);
+      case SUM_BIGINT:
+        return new SumAccumulators.BigIntSumAccumulator(
+            input, bigIntOutput(), bigIntOutput(), BATCH_SIZE, allocator);
+      case SUM_DOUBLE:
+        return new SumAccumulators.DoubleSumAccumulator(
+            input, doubleOutput(), doubleOutput(), BATCH_SIZE, allocator);
+      case MIN_BIGINT:
+        return new MinAccumulators.BigIntMinAccumulator(
+            input, bigIntOutput(), bigIntOutput(), BATCH_SIZE, allocator);
+      case MIN_DOUBLE:
+        return new MinAccumulators.DoubleMinAccumulator(
+            input, doubleOutput(), doubleOutput(), BATCH_SIZE, allocator);
+      case MAX_BIGINT:
+        return new MaxAccumulators.BigIntMaxAccumulator(
+            input, bigIntOutput(), bigIntOutput(), BATCH_SIZE, allocator);
+      case MAX_DOUBLE:
+        return new MaxAccumulators.DoubleMaxAccumulator(
+            input, doubleOutput(), doubleOutput(), BATCH_SIZE, allocator);
+      case NDV_BIGINT:
+        final VarBinaryVector tempAccumulatorHolder =
+            register(new VarBinaryVector("hll tmp-holder", allocator));
+        tempAccumulatorHolder.allocateNew((long) SKETCH_SIZE * BATCH_SIZE, BATCH_SIZE);
+        return new NdvAccumulators.BigIntNdvAccumulator(
+            input,
+            register(new VarBinaryVector("ndv", allocator)),
+            BATCH_SIZE,
+            allocator,
+            tempAccumulatorHolder);
+      default:
+        throw new IllegalArgumentException("Unknown accumulator " + kind);
+    }
+  }
+
+  private BigIntVector bigIntOutput() {
+    return register(new BigIntVector("output", allocator));
+  }
+
+  private Float8Vector doubleOutput() {
+    return register(new Float8Vector("output", allocator));
+  }
+
+  private <T extends AutoCloseable> T register(T closeable) {
+    closeables.add(closeable);
+    return closeable;
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.common.ht2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+
+/**
+ * Generates grouping/join keys with a controlled number of distinct values and skew, and writes
+ * them to Arrow vectors. Generation is deterministic for a given seed so that runs are comparable.
+ */
+public final class BenchmarkKeys {
+
+  /** How often each of the distinct keys appears in the generated stream. */
+  public enum Distribution {
+    /** every distinct key is equally likely */
+    UNIFORM,
+    /** key frequencies follow a Zipf law with exponent {@link #ZIPF_EXPONENT} */
+    ZIPF
+  }
+
+  /** Columns that make up the key. */
+  public enum Layout {
+    /** int and bigint columns, the pivoted keys have no variable part */
+    FIXED,
+    /** int, bigint and varchar columns */
+    MIXED
+  }
+
+  public static final double ZIPF_EXPONENT = 1.1;
+
+  private BenchmarkKeys() {}
+
+  /** Generate {@code count} key ids in [0, cardinality). */
+  public static int[] generate(int count, int cardinality, Distribution distribution, long seed) {
+    final Random random = new Random(seed);
+    final int[] keys = new int[count];
+    switch (distribution) {
+      case UNIFORM:
+        for (int i = 0; i < count; i++) {
+          keys[i] = random.nextInt(cardinality);
+        }
+        break;
+      case ZIPF:
+        final double[] cdf = zipfCdf(cardinality);
+        // spread the hot keys across the key space rather than keeping them at the lowest ids
+        final int[] permutation = permutation(cardinality, random);
+        for (int i = 0; i < count; i++) {
+          final int pos = Arrays.binarySearch(cdf, random.nextDouble());
+          final int rank = pos >= 0 ? pos : Math.min(-pos - 1, cardinality - 1);
+          keys[i] = permutation[rank];
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown distribution " + distribution);
+    }
+    return keys;
+  }
+
+  /**
+   * Write the keys at [offset, offset + count) to the given vectors. The varchar vector may be null
+   * for the {@link Layout#FIXED} layout. Varchar values are {@code varcharLength} bytes long on
+   * average, with lengths varying by key so that the variable block is not uniformly laid out.
+   */
+  public static void populate(
+      int[] keys,
+      int offset,
+      int count,
+      IntVector ints,
+      BigIntVector longs,
+      VarCharVector strings,
+      int varcharLength) {
+    ints.allocateNew(count);
+    longs.allocateNew(count);
+    if (strings != null) {
+      strings.allocateNew((long) count * (varcharLength + 8), count);
+    }
+    for (int i = 0; i < count; i++) {
+      final int key = keys[offset + i];
+      ints.set(i, key);
+      longs.set(i, key * 0x9E3779B97F4A7C15L);
+      if (strings != null) {
+        strings.setSafe(i, varchar(key, varcharLength));
+      }
+    }
+    ints.setValueCount(count);
+    longs.setValueCount(count);
+    if (strings != null) {
+      strings.setValueCount(count);
+    }
+  }
+
+  static byte[] varchar(int key, int averageLength) {
+    final byte[] prefix = ("key-" + key).getBytes(StandardCharsets.UTF_8);
+    final int length = Math.max(prefix.length, averageLength / 2 + key % (averageLength + 1));
+    final byte[] value = Arrays.copyOf(prefix, length);
+    Arrays.fill(value, prefix.length, length, (byte) ('a' + key % 26));
+    return value;
+  }
+
+  private static double[] zipfCdf(int cardinality) {
+    final double[] cdf = new double[cardinality];
+    double sum = 0;
+    for (int rank = 0; rank < cardinality; rank++) {
+      sum += 1.0 / Math.pow(rank + 1, ZIPF_EXPONENT);
+      cdf[rank] = sum;
+    }
+    for (int rank = 0; rank < cardinality; rank++) {
+      cdf[rank] /= sum;
+    }
+    return cdf;
+  }
+
+  private static int[] permutation(int size, Random random) {
+    final int[] permutation = new int[size];
+    for (int i = 0; i < size; i++) {
+      permutation[i] = i;
+    }
+    for (int i = size - 1; i > 0; i--) {
+      final int j = random.nextInt(i + 1);
+      final int tmp = permutation[i];
+      permutation[i] = permutation[j];
+      permutation[j] = tmp;
+    }
+    return permutation;
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.common.ht2;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.sabot.op.common.ht2.BenchmarkKeys.Distribution;
+import com.dremio.sabot.op.common.ht2.BenchmarkKeys.Layout;
+import com.koloboke.collect.hash.HashConfig;
+import java.util.concurrent.TimeUnit;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link LBlockHashTable} insert, lookup and probe throughput, and the cost of hashing
+ * pivoted keys. Scores are in keys per second.
+ *
+ * <ul>
+ *   <li>insert: build a table from scratch, including its growth
+ *   <li>find: look up keys that are all present in the table
+ *   <li>probe: look up keys of which about half are absent, as a hash join probe side would
+ *   <li>hash: hash the pivoted keys ({@link HashComputation})
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {
+      "-Xmx4G",
+      "-XX:MaxDirectMemorySize=8G",
+      "--add-opens=java.base/java.nio=ALL-UNNAMED"
+    })
+public class HashTableBenchmark {
+  static final int BATCH_SIZE = 4096;
+  static final int ROWS = 256 * BATCH_SIZE;
+  private static final long SEED = 0x5EED;
+
+  @Param({"1000", "100000", "1000000"})
+  private int cardinality;
+
+  @Param({"UNIFORM", "ZIPF"})
+  private Distribution distribution;
+
+  @Param({"FIXED", "MIXED"})
+  private Layout layout;
+
+  @Param({"16"})
+  private int varcharLength;
+
+  private BufferAllocator allocator;
+  private PivotedKeys buildKeys;
+  private PivotedKeys probeKeys;
+  private LBlockHashTable table;
+  private ArrowBuf ordinals;
+  private ArrowBuf hashes;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    allocator = new RootAllocator(Long.MAX_VALUE);
+    final int[] keys = BenchmarkKeys.generate(ROWS, cardinality, distribution, SEED);
+    buildKeys = PivotedKeys.create(allocator, layout, keys, BATCH_SIZE, varcharLength);
+
+    // shift the key space by half so that about half of the probed keys miss
+    final int[] probe = BenchmarkKeys.generate(ROWS, cardinality, distribution, SEED + 1);
+    for (int i = 0; i < probe.length; i++) {
+      probe[i] += cardinality / 2;
+    }
+    probeKeys = PivotedKeys.create(allocator, layout, probe, BATCH_SIZE, varcharLength);
+
+    ordinals = allocator.buffer(BATCH_SIZE * 4);
+    hashes = allocator.buffer(BATCH_SIZE * 8);
+    table = newTable();
+    insertAll(table);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    AutoCloseables.close(table, ordinals, hashes, buildKeys, probeKeys, allocator);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public int insert() throws Exception {
+    try (LBlockHashTable newTable = newTable()) {
+      insertAll(newTable);
+      return newTable.size();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public int find() {
+    return findAll(buildKeys);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public int probe() {
+    return findAll(probeKeys);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public long hash() {
+    long result = 0;
+    for (int batch = 0; batch < buildKeys.getBatchCount(); batch++) {
+      buildKeys.computeHash(
+          buildKeys.getCount(batch),
+          buildKeys.getFixed(batch),
+          buildKeys.getVariable(batch),
+          hashes);
+      result ^= hashes.getLong(0);
+    }
+    return result;
+  }
+
+  private LBlockHashTable newTable() {
+    return new LBlockHashTable(
+        HashConfig.getDefault(),
+        buildKeys.getPivot(),
+        allocator,
+        BATCH_SIZE,
+        varcharLength,
+        true,
+        BATCH_SIZE);
+  }
+
+  private void insertAll(LBlockHashTable target) {
+    for (int batch = 0; batch < buildKeys.getBatchCount(); batch++) {
+      final int count = buildKeys.getCount(batch);
+      final int inserted =
+          target.add(
+              count,
+              buildKeys.getFixed(batch).getBuf(),
+              varBuf(buildKeys, batch),
+              buildKeys.getHashes(batch),
+              ordinals);
+      if (inserted != count) {
+        throw new IllegalStateException(
+            String.format("Inserted %d keys out of %d", inserted, count));
+      }
+    }
+  }
+
+  private int findAll(PivotedKeys keys) {
+    int result = 0;
+    for (int batch = 0; batch < keys.getBatchCount(); batch++) {
+      table.find(
+          keys.getCount(batch),
+          keys.getFixed(batch).getBuf(),
+          varBuf(keys, batch),
+          keys.getHashes(batch),
+          ordinals);
+      result += ordinals.getInt(0);
+    }
+    return result;
+  }
+
+  static ArrowBuf varBuf(PivotedKeys keys, int batch) {
+    final VariableBlockVector var = keys.getVariable(batch);
+    return var == null ? null : var.getBuf();
+  }
+}
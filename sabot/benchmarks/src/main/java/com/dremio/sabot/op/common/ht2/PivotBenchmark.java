@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.common.ht2;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.sabot.op.common.ht2.BenchmarkKeys.Distribution;
+import com.dremio.sabot.op.common.ht2.BenchmarkKeys.Layout;
+import java.util.concurrent.TimeUnit;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures pivoting of key columns into fixed/variable blocks ({@link Pivots}, and {@link
+ * BoundedPivots} as used by the hash aggregation) and unpivoting them back into Arrow vectors
+ * ({@link Unpivots}). Scores are in records per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(
+    value = 1,
+    jvmArgsAppend = {"-XX:MaxDirectMemorySize=2G", "--add-opens=java.base/java.nio=ALL-UNNAMED"})
+public class PivotBenchmark {
+  private static final int BATCH_SIZE = 4096;
+
+  @Param({"FIXED", "MIXED"})
+  private Layout layout;
+
+  @Param({"8", "64"})
+  private int varcharLength;
+
+  private BufferAllocator allocator;
+  private IntVector ints;
+  private BigIntVector longs;
+  private VarCharVector strings;
+  private IntVector outInts;
+  private BigIntVector outLongs;
+  private VarCharVector outStrings;
+  private PivotDef pivot;
+  private FixedBlockVector fixed;
+  private VariableBlockVector variable;
+  private FixedBlockVector boundedFixed;
+  private VariableBlockVector boundedVariable;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    allocator = new RootAllocator(Long.MAX_VALUE);
+    ints = new IntVector("int_key", allocator);
+    longs = new BigIntVector("bigint_key", allocator);
+    outInts = new IntVector("int_key", allocator);
+    outLongs = new BigIntVector("bigint_key", allocator);
+    if (layout == Layout.MIXED) {
+      strings = new VarCharVector("varchar_key", allocator);
+      outStrings = new VarCharVector("varchar_key", allocator);
+      pivot =
+          PivotBuilder.getBlockDefinition(
+              new FieldVectorPair(ints, outInts),
+              new FieldVectorPair(longs, outLongs),
+              new FieldVectorPair(strings, outStrings));
+    } else {
+      pivot =
+          PivotBuilder.getBlockDefinition(
+              new FieldVectorPair(ints, outInts), new FieldVectorPair(longs, outLongs));
+    }
+
+    final int[] keys = BenchmarkKeys.generate(BATCH_SIZE, BATCH_SIZE, Distribution.UNIFORM, 0);
+    BenchmarkKeys.populate(keys, 0, BATCH_SIZE, ints, longs, strings, varcharLength);
+
+    fixed = new FixedBlockVector(allocator, pivot.getBlockWidth());
+    variable = new VariableBlockVector(allocator, pivot.getVariableCount());
+    Pivots.pivot(pivot, BATCH_SIZE, fixed, variable);
+
+    // the hash aggregation sizes its blocks once and lets the bounded pivot stop when full
+    boundedFixed = new FixedBlockVector(allocator, pivot.getBlockWidth(), BATCH_SIZE, false);
+    boundedVariable =
+        new VariableBlockVector(
+            allocator,
+            pivot.getVariableCount(),
+            LBlockHashTable.computeVariableBlockMaxLength(
+                BATCH_SIZE, pivot.getVariableCount(), 2 * varcharLength),
+            false);
+
+    outInts.allocateNew(BATCH_SIZE);
+    outLongs.allocateNew(BATCH_SIZE);
+    if (outStrings != null) {
+      outStrings.allocateNew((long) BATCH_SIZE * 2 * varcharLength, BATCH_SIZE);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    AutoCloseables.close(
+        fixed,
+        variable,
+        boundedFixed,
+        boundedVariable,
+        ints,
+        longs,
+        strings,
+        outInts,
+        outLongs,
+        outStrings,
+        allocator);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public long pivot() {
+    Pivots.pivot(pivot, BATCH_SIZE, fixed, variable);
+    return fixed.getBuf().getLong(0);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public int boundedPivot() {
+    return BoundedPivots.pivot(pivot, 0, BATCH_SIZE, boundedFixed, boundedVariable);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public int unpivot() {
+    Unpivots.unpivotToAllocedOutput(pivot, fixed, variable, 0, BATCH_SIZE, 0);
+    return outInts.get(BATCH_SIZE - 1);
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.common.ht2;
+
+import com.dremio.common.AutoCloseables;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+
+/**
+ * A stream of key batches, pivoted and hashed up front so that benchmarks only measure the
+ * operation under test. The incoming key vectors hold the last populated batch and double as the
+ * unpivot targets of the {@link PivotDef}.
+ */
+public final class PivotedKeys implements AutoCloseable {
+  private final PivotDef pivot;
+  private final IntVector ints;
+  private final BigIntVector longs;
+  private final VarCharVector strings;
+  private final List<FixedBlockVector> fixed = new ArrayList<>();
+  private final List<VariableBlockVector> variable = new ArrayList<>();
+  private final List<ArrowBuf> hashes = new ArrayList<>();
+  private final List<Integer> counts = new ArrayList<>();
+
+  private PivotedKeys(BufferAllocator allocator, BenchmarkKeys.Layout layout) {
+    this.ints = new IntVector("int_key", allocator);
+    this.longs = new BigIntVector("bigint_key", allocator);
+    if (layout == BenchmarkKeys.Layout.MIXED) {
+      this.strings = new VarCharVector("varchar_key", allocator);
+      this.pivot =
+          PivotBuilder.getBlockDefinition(
+              new FieldVectorPair(ints, ints),
+              new FieldVectorPair(longs, longs),
+              new FieldVectorPair(strings, strings));
+    } else {
+      this.strings = null;
+      this.pivot =
+          PivotBuilder.getBlockDefinition(
+              new FieldVectorPair(ints, ints), new FieldVectorPair(longs, longs));
+    }
+  }
+
+  /** Pivot and hash the given keys in batches of {@code batchSize} records. */
+  public static PivotedKeys create(
+      BufferAllocator allocator,
+      BenchmarkKeys.Layout layout,
+      int[] keys,
+      int batchSize,
+      int varcharLength) {
+    final PivotedKeys pivotedKeys = new PivotedKeys(allocator, layout);
+    try {
+      for (int offset = 0; offset < keys.length; offset += batchSize) {
+        pivotedKeys.addBatch(
+            allocator, keys, offset, Math.min(batchSize, keys.length - offset), varcharLength);
+      }
+      return pivotedKeys;
+    } catch (RuntimeException e) {
+      AutoCloseables.close(e, pivotedKeys);
+      throw e;
+    }
+  }
+
+  private void addBatch(
+      BufferAllocator allocator, int[] keys, int offset, int count, int varcharLength) {
+    BenchmarkKeys.populate(keys, offset, count, ints, longs, strings, varcharLength);
+
+    final FixedBlockVector fbv = new FixedBlockVector(allocator, pivot.getBlockWidth());
+    fixed.add(fbv);
+    VariableBlockVector var = null;
+    if (pivot.getVariableCount() > 0) {
+      var = new VariableBlockVector(allocator, pivot.getVariableCount());
+      variable.add(var);
+    }
+    Pivots.pivot(pivot, count, fbv, var);
+
+    final ArrowBuf hash = allocator.buffer((long) count * 8);
+    hashes.add(hash);
+    computeHash(count, fbv, var, hash);
+    counts.add(count);
+  }
+
+  /** Hash the keys of a pivoted batch, the same way the hash table expects them. */
+  public void computeHash(int count, FixedBlockVector fbv, VariableBlockVector var, ArrowBuf out) {
+    final BlockChunk blockChunk =
+        new BlockChunk(
+            fbv.getMemoryAddress(),
+            var == null ? 0 : var.getMemoryAddress(),
+            var == null ? 0 : var.getCapacity(),
+            var == null,
+            pivot.getBlockWidth(),
+            count,
+            out.memoryAddress(),
+            0);
+    HashComputation.computeHash(blockChunk);
+  }
+
+  public PivotDef getPivot() {
+    return pivot;
+  }
+
+  public int getBatchCount() {
+    return fixed.size();
+  }
+
+  public int getCount(int batch) {
+    return counts.get(batch);
+  }
+
+  public FixedBlockVector getFixed(int batch) {
+    return fixed.get(batch);
+  }
+
+  /** Variable part of the keys, or null when the layout is fixed only. */
+  public VariableBlockVector getVariable(int batch) {
+    return variable.isEmpty() ? null : variable.get(batch);
+  }
+
+  public ArrowBuf getHashes(int batch) {
+    return hashes.get(batch);
+  }
+
+  @Override
+  public void close() throws Exception {
+    AutoCloseables.close(hashes, variable, fixed, AutoCloseables.iter(ints, longs, strings));
+  }
+}
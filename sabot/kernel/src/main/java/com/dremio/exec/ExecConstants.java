@@ -18,6 +18,7 @@ package com.dremio.exec;
 import com.dremio.common.expression.SupportedEngines;
 import com.dremio.exec.planner.sql.parser.PartitionDistributionStrategy;
 import com.dremio.exec.proto.CoordExecRPC.FragmentCodec;
+import com.dremio.exec.record.compression.ExchangeCompressor;
 import com.dremio.exec.testing.ExecutionControls;
 import com.dremio.optimization.api.OptimizeConstants;
 import com.dremio.options.OptionValidator;
@@ -255,6 +256,11 @@ public interface ExecConstants {
       new BooleanValidator("exec.operator.copier.complex.vectorize", true);
   BooleanValidator ENABLE_VECTORIZED_PARTITIONER =
       new BooleanValidator("exec.operator.partitioner.vectorize", true);
+
+  // Compression of record batch bodies sent over exchanges: none, lz4, zstd or adaptive
+  EnumValidator<ExchangeCompressor.Mode> EXCHANGE_COMPRESSION =
+      new EnumValidator<>(
+          "exec.exchange.compression", ExchangeCompressor.Mode.class, ExchangeCompressor.Mode.NONE);
   BooleanValidator DEBUG_HASHJOIN_INSERTION =
       new BooleanValidator("exec.operator.join.debug-insertion", false);
 
@@ -310,6 +316,16 @@ public interface ExecConstants {
   LongValidator PARQUET_MAX_FOOTER_LEN_VALIDATOR =
       new LongValidator(PARQUET_MAX_FOOTER_LEN, 16 * 1024 * 1024);
 
+  // Executor-wide cache of serialized parquet footers, see ParquetFooterCache. Off-heap footers are
+  // allocated from a child of the root allocator.
+  BooleanValidator PARQUET_FOOTER_CACHE_ENABLED =
+      new BooleanValidator("store.parquet.footer_cache.enabled", true);
+  PositiveLongValidator PARQUET_FOOTER_CACHE_MAX_SIZE_BYTES =
+      new PositiveLongValidator(
+          "store.parquet.footer_cache.max_size_bytes", Long.MAX_VALUE, 128L * 1024 * 1024);
+  BooleanValidator PARQUET_FOOTER_CACHE_OFF_HEAP =
+      new BooleanValidator("store.parquet.footer_cache.off_heap", false);
+
   String PARQUET_MEMORY_THRESHOLD = "store.parquet.memory_threshold";
   LongValidator PARQUET_MEMORY_THRESHOLD_VALIDATOR =
       new LongValidator(PARQUET_MEMORY_THRESHOLD, 512 * 1024 * 1024);
@@ -370,6 +386,13 @@ public interface ExecConstants {
       new BooleanValidator(JSON_ALL_TEXT_MODE, false);
   BooleanValidator JSON_EXTENDED_TYPES = new BooleanValidator("store.json.extended_types", false);
   BooleanValidator JSON_WRITER_UGLIFY = new BooleanValidator("store.json.writer.uglify", false);
+  // Materialize flat JSON records directly into vectors from a structural index of the file
+  BooleanValidator JSON_VECTORIZED_READER =
+      new BooleanValidator("store.json.vectorized_reader.enabled", false);
+  // Files larger than this (uncompressed) are read with the Jackson based reader
+  RangeLongValidator JSON_VECTORIZED_READER_MAX_FILE_SIZE =
+      new RangeLongValidator(
+          "store.json.vectorized_reader.max_file_size", 0, Integer.MAX_VALUE - 8, 64 * 1024 * 1024);
   DoubleValidator TEXT_ESTIMATED_ROW_SIZE =
       new RangeDoubleValidator("store.text.estimated_row_size_bytes", 1, Long.MAX_VALUE, 10.0);
 
@@ -514,6 +537,13 @@ public interface ExecConstants {
   String BOOTSTRAP_STORAGE_PLUGINS_FILE = "bootstrap-storage-plugins.json";
   String MAX_LOADING_CACHE_SIZE_CONFIG = "dremio.exec.compile.cache_max_size";
   String MAX_SPLIT_CACHE_SIZE_CONFIG = "dremio.exec.compile.split_cache_max_size";
+  // persist generated operator classes on local disk so that they survive restarts
+  String CODE_CACHE_ENABLED_CONFIG = "dremio.exec.compile.persistent_cache.enabled";
+  // directory of the cache, must only be writable by the user running the process
+  String CODE_CACHE_PATH_CONFIG = "dremio.exec.compile.persistent_cache.path";
+  String CODE_CACHE_MAX_ENTRIES_CONFIG = "dremio.exec.compile.persistent_cache.max_entries";
+  // number of most frequently used entries read back into memory at startup
+  String CODE_CACHE_PREWARM_ENTRIES_CONFIG = "dremio.exec.compile.persistent_cache.prewarm_entries";
 
   // enable EXTEND on SELECT
   BooleanValidator ENABLE_EXTEND_ON_SELECT =
@@ -567,6 +597,11 @@ public interface ExecConstants {
   BooleanValidator ENABLE_SPILLABLE_OPERATORS_STATIC_MEMLIMIT =
       new BooleanValidator("exec.spillable.operators.static_memory_limit.enabled", true);
 
+  // share of the root allocator limit granted by the queueing memory arbiter, see
+  // QueueingMemoryArbiter
+  RangeLongValidator MEMORY_ARBITER_POOL_PERCENTAGE =
+      new RangeLongValidator("exec.spillable.operators.arbiter.pool_percentage", 1, 100, 90);
+
   BooleanValidator ENABLE_DYNAMIC_LOAD_ROUTING =
       new BooleanValidator("exec.dynamic.load.routing.enabled", false);
   BooleanValidator DYNAMIC_LOAD_ROUTING_ENFORCE_RESERVATIONS =
@@ -603,6 +638,31 @@ public interface ExecConstants {
       new BooleanValidator("store.parquet.set_file_length", true);
   BooleanValidator PARQUET_COLUMN_ORDERING =
       new BooleanValidator("store.parquet.column_ordering", false);
+  // Read the projected column chunks of a row group with coalesced asynchronous ranged reads
+  BooleanValidator PARQUET_VECTORED_READ_ENABLED =
+      new BooleanValidator("store.parquet.vectored_read.enabled", false);
+  // Column chunks separated by at most this many bytes are fetched with a single request
+  RangeLongValidator PARQUET_VECTORED_READ_MAX_GAP_BYTES =
+      new RangeLongValidator(
+          "store.parquet.vectored_read.max_gap_bytes", 0, 64 * 1024 * 1024, 1024 * 1024);
+  // Upper bound of a coalesced range, and size of the requests larger column chunks are split into
+  RangeLongValidator PARQUET_VECTORED_READ_MAX_REQUEST_BYTES =
+      new RangeLongValidator(
+          "store.parquet.vectored_read.max_request_bytes",
+          64 * 1024,
+          1024 * 1024 * 1024,
+          8 * 1024 * 1024);
+  // Bytes of requests a reader keeps in flight
+  RangeLongValidator PARQUET_VECTORED_READ_MAX_IN_FLIGHT_BYTES =
+      new RangeLongValidator(
+          "store.parquet.vectored_read.max_in_flight_bytes",
+          1024 * 1024,
+          Integer.MAX_VALUE,
+          64 * 1024 * 1024);
+  // Bytes of column chunks a reader buffers at once, the remaining columns are streamed
+  RangeLongValidator PARQUET_VECTORED_READ_MAX_BUFFERED_BYTES =
+      new RangeLongValidator(
+          "store.parquet.vectored_read.max_buffered_bytes", 0, Long.MAX_VALUE, 256 * 1024 * 1024);
 
   BooleanValidator HIVE_COMPLEXTYPES_ENABLED =
       new BooleanValidator("store.hive.parquet.support_complex_types", true);
@@ -682,6 +742,9 @@ public interface ExecConstants {
       new BooleanValidator("exec.operator.sort.external.compress_spill_files", true);
   BooleanValidator EXTERNAL_SORT_ENABLE_SPLAY_SORT =
       new BooleanValidator("exec.operator.sort.external.enable_splay_sort", false);
+  // sort on byte-comparable normalized key prefixes, falling back to the comparator on prefix ties
+  BooleanValidator EXTERNAL_SORT_ENABLE_RADIX_SORT =
+      new BooleanValidator("exec.operator.sort.external.enable_radix_sort", false);
   BooleanValidator EXTERNAL_SORT_ENABLE_MICRO_SPILL =
       new BooleanValidator("exec.operator.sort.external.enable_micro_spill", true);
 
@@ -706,6 +769,15 @@ public interface ExecConstants {
       new PositiveLongValidator(
           "exec.operator.sort.external.batchsize_multiplier", Character.MAX_VALUE, 3);
 
+  // Let the top-n operator write its heap to disk as a sorted run when it runs low on memory
+  BooleanValidator TOPN_SPILL_ENABLED =
+      new BooleanValidator("exec.operator.topn.spill.enabled", false);
+  // Memory usage of the top-n operator above which the heap is spilled, capped by half of the
+  // allocator limit of the operator so that there is room left to copy the run out
+  PositiveLongValidator TOPN_SPILL_MAX_MEMORY =
+      new PositiveLongValidator(
+          "exec.operator.topn.spill.max_memory", Long.MAX_VALUE, Long.MAX_VALUE);
+
   LongValidator VOTING_SCHEDULE =
       new PositiveLongValidator("vote.schedule.millis", Long.MAX_VALUE, 0);
   PositiveLongValidator LAST_SEARCH_REINDEX =
@@ -908,6 +980,16 @@ public interface ExecConstants {
       new com.dremio.options.TypeValidators.PositiveLongValidator(
           "dremio.sliced.spindown_multiple", Long.MAX_VALUE, 100);
 
+  // number of slicing threads used by the work-stealing task pool (0 means one per core)
+  RangeLongValidator SLICING_NUM_THREADS =
+      new RangeLongValidator("dremio.sliced.num_threads", 0, 1024, 0);
+  // time a task is allowed to run on a slicing thread before it is switched out
+  PositiveLongValidator SLICING_QUANTUM_MS =
+      new PositiveLongValidator("dremio.sliced.quantum_ms", 1000, 10);
+  // period at which the slicing task pool notifies its monitor observers
+  PositiveLongValidator SLICING_MONITOR_INTERVAL_MS =
+      new PositiveLongValidator("dremio.sliced.monitor_interval_ms", Long.MAX_VALUE, 1000);
+
   // warning threshold for spilling
   PositiveLongValidator SPILL_IO_WARN_MAX_RUNTIME_MS =
       new PositiveLongValidator("dremio.spill.warn_max_runtime", Long.MAX_VALUE, 3000);
@@ -935,6 +1017,13 @@ public interface ExecConstants {
   BooleanValidator ENABLE_BOOST_DELTA_READER =
       new BooleanValidator("exec.storage.enable_arrow_delta_reader", true);
 
+  // Executor-local disk storage of boosted columns, for sources without their own boost support
+  BooleanValidator LOCAL_BOOST_ENABLED =
+      new BooleanValidator("exec.storage.local_boost.enabled", false);
+  PositiveLongValidator LOCAL_BOOST_MAX_SIZE_BYTES =
+      new PositiveLongValidator(
+          "exec.storage.local_boost.max_size_bytes", Long.MAX_VALUE, 50L * 1024 * 1024 * 1024);
+
   // hive parallelism and timeout options for signature validation process
   LongValidator HIVE_SIGNATURE_VALIDATION_PARALLELISM =
       new TypeValidators.RangeLongValidator(
@@ -960,6 +1049,12 @@ public interface ExecConstants {
       new RangeLongValidator("exec.runtime_filter.max_key_size", 32, 1_024, 128);
   BooleanValidator ENABLE_ROW_LEVEL_RUNTIME_FILTERING =
       new BooleanValidator("exec.row_level.runtime_filter.enable", true);
+  // Build the partition column runtime filters as split block bloom filters
+  BooleanValidator RUNTIME_FILTER_SPLIT_BLOCK_BLOOM_FILTER =
+      new BooleanValidator("exec.runtime_filter.split_block_bloom_filter", false);
+  // Publish a [min, max] range instead of dropping a value list filter that overflows
+  BooleanValidator RUNTIME_FILTER_RANGE_ON_OVERFLOW =
+      new BooleanValidator("exec.non_partitioned_parquet.runtime_filter.range_on_overflow", true);
   String ENABLE_PARQUET_VECTORIZED_COMPLEX_READERS_KEY = "exec.parquet.enable_vectorized_complex";
   BooleanValidator ENABLE_PARQUET_VECTORIZED_COMPLEX_READERS =
       new BooleanValidator(ENABLE_PARQUET_VECTORIZED_COMPLEX_READERS_KEY, true);
@@ -1010,6 +1105,16 @@ public interface ExecConstants {
   BooleanValidator HADOOP_BLOCK_CACHE_ENABLED =
       new BooleanValidator("hadoop_block_affinity_cache.enabled", true);
 
+  // Executor-local disk cache of the blocks read by sources that request caching
+  BooleanValidator BLOCK_CACHE_ENABLED = new BooleanValidator("exec.block_cache.enabled", false);
+  PositiveLongValidator BLOCK_CACHE_MAX_SIZE_BYTES =
+      new PositiveLongValidator(
+          "exec.block_cache.max_size_bytes", Long.MAX_VALUE, 10L * 1024 * 1024 * 1024);
+  PositiveLongValidator BLOCK_CACHE_BLOCK_SIZE_BYTES =
+      new PositiveLongValidator("exec.block_cache.block_size_bytes", 64 * 1024 * 1024, 1024 * 1024);
+  PositiveLongValidator BLOCK_CACHE_IO_THREADS =
+      new PositiveLongValidator("exec.block_cache.io_threads", 64, 8);
+
   /** Controls the 'compression' factor for the TDigest algorithm. */
   LongValidator TDIGEST_COMPRESSION =
       new PositiveLongValidator("exec.statistics.tdigest_compression", 10000L, 100);
@@ -1032,6 +1137,11 @@ public interface ExecConstants {
   BooleanValidator STORE_ACCURATE_PARTITION_STATS =
       new BooleanValidator("store.accurate.partition_stats", true);
 
+  // number of parquet footer reads kept in flight by a footer read table function during metadata
+  // refresh, 0 reads footers one at a time
+  RangeLongValidator METADATA_REFRESH_ASYNC_FOOTER_READS =
+      new RangeLongValidator("metadata.refresh.async_footer_reads", 0, 1024, 32);
+
   // Option to enable SysFlight Storage Plugin
   BooleanValidator ENABLE_SYSFLIGHT_SOURCE = new BooleanValidator("sys.flight.enabled", true);
 
@@ -1298,6 +1408,13 @@ public interface ExecConstants {
   PositiveLongValidator WINDOW_FRAME_MAX_BOUND_THRESHOLD =
       new PositiveLongValidator("exec.window.max_bound_threshold", Integer.MAX_VALUE, 1000);
 
+  // Page the batches held by the window operator out to disk when it runs low on memory
+  BooleanValidator WINDOW_SPILL_ENABLED = new BooleanValidator("exec.window.spill.enabled", false);
+  // Memory usage of the window operator above which batches are paged out, capped by the allocator
+  // limit of the operator
+  PositiveLongValidator WINDOW_SPILL_MAX_MEMORY =
+      new PositiveLongValidator("exec.window.spill.max_memory", Long.MAX_VALUE, Long.MAX_VALUE);
+
   PositiveLongValidator NAMED_EXPRESSION_LENGTH_THRESHOLD =
       new PositiveLongValidator(
           "exec.operator.named_expression_length.threshold.", Long.MAX_VALUE, 512);
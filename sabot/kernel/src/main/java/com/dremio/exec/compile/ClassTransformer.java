@@ -176,6 +176,31 @@ public class ClassTransformer {
         classLoader, templateDefinition, entireClass, materializedClassName);
   }
 
+  /**
+   * Load an implementation class from bytecode compiled by an earlier call to {@link
+   * #getImplementationClass}, see {@link PersistentCodeCache}. Classes are only defined when the
+   * loader first resolves them.
+   */
+  public Class<?> getCachedImplementationClass(
+      final QueryClassLoader classLoader,
+      final TemplateClassDefinition<?> templateDefinition,
+      final PersistentCodeCache.Entry entry)
+      throws ClassTransformationException {
+    try {
+      for (ClassBytes clazz : entry.getClasses()) {
+        classLoader.injectByteCode(clazz.getName(), clazz.getBytes());
+      }
+      final Class<?> c = classLoader.findClass(entry.getClassName());
+      if (templateDefinition.getExternalInterface().isAssignableFrom(c)) {
+        return c;
+      }
+      throw new ClassTransformationException(
+          "The cached class did not implement the expected interface.");
+    } catch (IOException | ClassNotFoundException | LinkageError e) {
+      throw new ClassTransformationException("Failure loading cached classes.", e);
+    }
+  }
+
   private Class<?> getExtendedImplementationClass(
       final QueryClassLoader classLoader,
       final TemplateClassDefinition<?> templateDefinition,
@@ -15,6 +15,7 @@
  */
 package com.dremio.exec.compile;
 
+import com.dremio.common.AutoCloseables;
 import com.dremio.common.config.SabotConfig;
 import com.dremio.exec.ExecConstants;
 import com.dremio.exec.exception.ClassTransformationException;
@@ -40,12 +41,14 @@ import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
-public class CodeCompiler {
+public class CodeCompiler implements AutoCloseable {
   private static final org.slf4j.Logger logger =
       org.slf4j.LoggerFactory.getLogger(CodeCompiler.class);
 
   private final ClassTransformer transformer;
   private final ClassCompilerSelector selector;
+  // null when the persistent cache is disabled
+  private final PersistentCodeCache codeCache;
   private final LoadingCache<CodeGenerator.CodeDefinition<?>, GeneratedClassEntry>
       generatedCodeToCompiledClazzCache;
   private final LoadingCache<ExpressionsHolder, GeneratedClassEntryWithFunctionErrorContextInfo>
@@ -55,6 +58,7 @@ public class CodeCompiler {
   public CodeCompiler(final SabotConfig config, final OptionManager optionManager) {
     transformer = new ClassTransformer(optionManager);
     selector = new ClassCompilerSelector(config, optionManager);
+    codeCache = PersistentCodeCache.create(config);
     final int cacheMaxSize = config.getInt(ExecConstants.MAX_LOADING_CACHE_SIZE_CONFIG);
     generatedCodeToCompiledClazzCache =
         CacheBuilder.newBuilder()
@@ -136,6 +140,52 @@ public class CodeCompiler {
     return tList;
   }
 
+  @VisibleForTesting
+  PersistentCodeCache getCodeCache() {
+    return codeCache;
+  }
+
+  /** Release the persistent cache, if any, so that another compiler can open it. */
+  @Override
+  public void close() throws Exception {
+    AutoCloseables.close(codeCache);
+  }
+
+  /**
+   * Compile the given code into a new loader, unless the persistent cache holds the classes from an
+   * earlier compilation.
+   */
+  private Class<?> compile(final CodeGenerator.CodeDefinition<?> cgd) {
+    final QueryClassLoader loader = new QueryClassLoader(selector);
+    if (codeCache == null) {
+      return transformer.getImplementationClass(
+          loader, cgd.getDefinition(), cgd.getGeneratedCode(), cgd.getMaterializedClassName());
+    }
+
+    final String key = codeCache.fingerprint(cgd.getDefinition(), cgd.getGenerifiedCode());
+    final PersistentCodeCache.Entry entry = codeCache.get(key);
+    if (entry != null) {
+      try {
+        return transformer.getCachedImplementationClass(loader, cgd.getDefinition(), entry);
+      } catch (ClassTransformationException e) {
+        logger.warn("Unable to load cached class {}, compiling it again", entry.getClassName(), e);
+        codeCache.invalidate(key);
+        return compile(cgd);
+      }
+    }
+
+    final long start = System.nanoTime();
+    final Class<?> c =
+        transformer.getImplementationClass(
+            loader, cgd.getDefinition(), cgd.getGeneratedCode(), cgd.getMaterializedClassName());
+    codeCache.put(
+        key,
+        cgd.getMaterializedClassName(),
+        loader.getInjectedByteCode(),
+        System.nanoTime() - start);
+    return c;
+  }
+
   @VisibleForTesting
   public void invalidateExpToCompiledClazzCache() {
     this.expressionsToCompiledClazzCache.invalidateAll();
@@ -146,7 +196,6 @@ public class CodeCompiler {
     @Override
     public GeneratedClassEntryWithFunctionErrorContextInfo load(
         final ExpressionsHolder expressionsHolder) throws Exception {
-      final QueryClassLoader loader = new QueryClassLoader(selector);
       ClassGenerator<?> rootGenerator = expressionsHolder.cg.getRoot();
       // adjust count as the root generator is per operator while the cache entry is per split. So
       // cached counts
@@ -155,10 +204,7 @@ public class CodeCompiler {
       CodeGenerator<?> cg = expressionsHolder.cg;
       cg.getRoot().evaluateAllLazyExps();
       cg.generate();
-      final CodeGenerator.CodeDefinition<?> cgd = cg.getCodeDefinition();
-      final Class<?> c =
-          transformer.getImplementationClass(
-              loader, cgd.getDefinition(), cgd.getGeneratedCode(), cgd.getMaterializedClassName());
+      final Class<?> c = compile(cg.getCodeDefinition());
       final GeneratedClassEntryWithFunctionErrorContextInfo ce =
           new GeneratedClassEntryWithFunctionErrorContextInfo(
               c, rootGenerator.getFunctionErrorContexts(currentCount));
@@ -172,10 +218,7 @@ public class CodeCompiler {
     @Override
     public GeneratedClassEntry load(final CodeGenerator.CodeDefinition<?> cgd) throws Exception {
       logger.debug("In Cache load; Compile code");
-      final QueryClassLoader loader = new QueryClassLoader(selector);
-      final Class<?> c =
-          transformer.getImplementationClass(
-              loader, cgd.getDefinition(), cgd.getGeneratedCode(), cgd.getMaterializedClassName());
+      final Class<?> c = compile(cgd);
       logger.debug("Exit Cache load");
       return new GeneratedClassEntry(c);
     }
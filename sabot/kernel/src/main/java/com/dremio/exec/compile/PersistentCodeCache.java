@@ -0,0 +1,551 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.compile;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.dremio.common.config.SabotConfig;
+import com.dremio.common.util.DremioVersionInfo;
+import com.dremio.exec.ExecConstants;
+import com.dremio.telemetry.api.metrics.Metrics;
+import com.dremio.telemetry.api.metrics.SimpleCounter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A local disk cache of the bytecode of generated classes, so that operator code compiled by a
+ * previous run of the process does not need to be compiled again. Entries are keyed by a
+ * fingerprint of the generated source and of the build, see {@link #fingerprint}, and hold the
+ * classes produced by the compiler for that source.
+ *
+ * <p>Every entry is kept in its own file. Use counts are kept in an index file that is rewritten
+ * when entries are added and every few hits; when the cache is created, the most used entries are
+ * read back into memory so that the first queries after a restart do not wait on the disk either.
+ * The directory is wiped when the index was written by another build.
+ *
+ * <p>Since the cached bytecode is loaded as is, the directory must be owned by the user running the
+ * process and must not be writable by anyone else. It is also locked for as long as the cache is
+ * open, so that two processes never share it.
+ *
+ * <p>Thread-safe. Failures to read or write an entry are logged and reported as a miss, the caller
+ * is then expected to compile the code as usual.
+ */
+public class PersistentCodeCache implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(PersistentCodeCache.class);
+
+  private static final String INDEX_FILE = "index";
+  private static final String LOCK_FILE = "lock";
+  private static final String ENTRY_SUFFIX = ".classes";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final int ENTRY_MAGIC = 0xDC0DEC01;
+  // number of hits after which use counts are written back to the index
+  private static final int INDEX_FLUSH_HITS = 64;
+
+  private final Path root;
+  private final String buildVersion;
+  private final int maxEntries;
+  // holds the lock on the directory until the cache is closed
+  private final FileChannel lockChannel;
+
+  // use count of every entry on disk, guarded by this
+  private final Map<String, Long> useCounts = new HashMap<>();
+  private final ConcurrentMap<String, Entry> warmEntries = new ConcurrentHashMap<>();
+  private int hitsSinceFlush;
+  private boolean closed;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong compileNanosSaved = new AtomicLong();
+  private final SimpleCounter hitCounter =
+      SimpleCounter.of(
+          Metrics.join("code_cache", "hits"),
+          "Number of generated classes loaded from the persistent code cache");
+  private final SimpleCounter missCounter =
+      SimpleCounter.of(
+          Metrics.join("code_cache", "misses"),
+          "Number of generated classes compiled because they were not in the persistent code"
+              + " cache");
+  private final SimpleCounter compileTimeSavedCounter =
+      SimpleCounter.of(
+          Metrics.join("code_cache", "compile_time_saved_ms"),
+          "Compilation time avoided by loading generated classes from the persistent code cache");
+
+  public PersistentCodeCache(Path root, String buildVersion, int maxEntries, int prewarmEntries)
+      throws IOException {
+    Preconditions.checkArgument(maxEntries > 0, "max entries must be positive");
+    this.root = root;
+    this.buildVersion = Preconditions.checkNotNull(buildVersion);
+    this.maxEntries = maxEntries;
+
+    createOrCheckDirectory(root);
+    lockChannel =
+        FileChannel.open(
+            root.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    try {
+      if (!tryLock(lockChannel)) {
+        throw new IOException(String.format("Persistent code cache %s is already in use", root));
+      }
+      if (!readIndex()) {
+        useCounts.clear();
+      }
+      deleteUnindexedFiles();
+      prewarm(prewarmEntries);
+    } catch (IOException | RuntimeException e) {
+      // also releases the lock if it was taken
+      lockChannel.close();
+      throw e;
+    }
+    logger.info(
+        "Opened persistent code cache at {} with {} entries, {} of them loaded in memory",
+        root,
+        useCounts.size(),
+        warmEntries.size());
+  }
+
+  /**
+   * Create the cache described by the given configuration, see {@link
+   * ExecConstants#CODE_CACHE_ENABLED_CONFIG}.
+   *
+   * @return the cache, or {@code null} if it is disabled or could not be opened
+   */
+  public static PersistentCodeCache create(SabotConfig config) {
+    if (!config.getBoolean(ExecConstants.CODE_CACHE_ENABLED_CONFIG)) {
+      return null;
+    }
+    final String path = config.getString(ExecConstants.CODE_CACHE_PATH_CONFIG);
+    if (path.isEmpty()) {
+      logger.warn("No path configured for the persistent code cache, continuing without it");
+      return null;
+    }
+    final Path root = Paths.get(path);
+    // bytecode is only reusable by the same build running on the same java version
+    final String buildVersion =
+        DremioVersionInfo.getVersion() + "/" + System.getProperty("java.specification.version");
+    try {
+      return new PersistentCodeCache(
+          root,
+          buildVersion,
+          config.getInt(ExecConstants.CODE_CACHE_MAX_ENTRIES_CONFIG),
+          config.getInt(ExecConstants.CODE_CACHE_PREWARM_ENTRIES_CONFIG));
+    } catch (IOException | RuntimeException e) {
+      logger.warn("Unable to open persistent code cache at {}, continuing without it", root, e);
+      return null;
+    }
+  }
+
+  private static boolean tryLock(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock() != null;
+    } catch (OverlappingFileLockException e) {
+      // already locked by another cache of this process
+      return false;
+    }
+  }
+
+  /**
+   * Create the cache directory readable and writable by the owner only, or make sure an existing
+   * one is owned by the user running this process and cannot be written by anyone else.
+   */
+  private static void createOrCheckDirectory(Path root) throws IOException {
+    final boolean posix = root.getFileSystem().supportedFileAttributeViews().contains("posix");
+    if (!Files.exists(root)) {
+      if (posix) {
+        Files.createDirectories(
+            root,
+            PosixFilePermissions.asFileAttribute(
+                EnumSet.of(
+                    PosixFilePermission.OWNER_READ,
+                    PosixFilePermission.OWNER_WRITE,
+                    PosixFilePermission.OWNER_EXECUTE)));
+      } else {
+        Files.createDirectories(root);
+      }
+    }
+
+    final UserPrincipal user =
+        root.getFileSystem()
+            .getUserPrincipalLookupService()
+            .lookupPrincipalByName(System.getProperty("user.name"));
+    if (!user.equals(Files.getOwner(root))) {
+      throw new AccessDeniedException(
+          root.toString(),
+          null,
+          "not owned by " + user.getName() + ", refusing to load code from it");
+    }
+    if (posix) {
+      final Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(root);
+      if (permissions.contains(PosixFilePermission.GROUP_WRITE)
+          || permissions.contains(PosixFilePermission.OTHERS_WRITE)) {
+        throw new AccessDeniedException(
+            root.toString(), null, "writable by other users, refusing to load code from it");
+      }
+    }
+  }
+
+  /**
+   * Key of the classes compiled from the given code. The code must not depend on the name the
+   * generated class is given in this process, see {@link
+   * com.dremio.exec.expr.CodeGenerator.CodeDefinition#getGenerifiedCode()}.
+   */
+  public String fingerprint(TemplateClassDefinition<?> definition, String generifiedCode) {
+    final Hasher hasher = Hashing.sha256().newHasher();
+    putString(hasher, buildVersion);
+    putString(hasher, definition.getTemplateClassName());
+    putString(hasher, definition.getExternalInterface().getName());
+    putString(hasher, generifiedCode);
+    return hasher.hash().toString();
+  }
+
+  private static void putString(Hasher hasher, String value) {
+    hasher.putInt(value.length()).putString(value, UTF_8);
+  }
+
+  /**
+   * Look up the classes stored under the given key.
+   *
+   * @return the entry, or {@code null} if it is not cached
+   */
+  public Entry get(String key) {
+    synchronized (this) {
+      if (closed || !useCounts.containsKey(key)) {
+        recordMiss();
+        return null;
+      }
+    }
+
+    Entry entry = warmEntries.get(key);
+    if (entry == null) {
+      try {
+        entry = readEntry(entryPath(key));
+      } catch (NoSuchFileException e) {
+        invalidate(key);
+        recordMiss();
+        return null;
+      } catch (IOException | RuntimeException e) {
+        logger.warn("Unable to read code cache entry {}, dropping it", key, e);
+        invalidate(key);
+        recordMiss();
+        return null;
+      }
+    }
+
+    hits.incrementAndGet();
+    hitCounter.increment();
+    compileNanosSaved.addAndGet(entry.compileNanos);
+    compileTimeSavedCounter.increment(entry.compileNanos / 1_000_000d);
+    synchronized (this) {
+      if (useCounts.computeIfPresent(key, (k, count) -> count + 1) != null
+          && ++hitsSinceFlush >= INDEX_FLUSH_HITS) {
+        writeIndex();
+      }
+    }
+    return entry;
+  }
+
+  private void recordMiss() {
+    misses.incrementAndGet();
+    missCounter.increment();
+  }
+
+  /**
+   * Store the classes compiled from the code identified by the given key.
+   *
+   * @param className name of the class implementing the template, among the given classes
+   * @param compileNanos time it took to compile the classes
+   */
+  public void put(String key, String className, Collection<ClassBytes> classes, long compileNanos) {
+    final Entry entry = new Entry(className, ImmutableList.copyOf(classes), compileNanos);
+    final Path file = entryPath(key);
+    Path tmp = null;
+    try {
+      tmp = Files.createTempFile(root, key, TMP_SUFFIX);
+      writeEntry(tmp, entry);
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Unable to write code cache entry {}", key, e);
+      deleteQuietly(tmp);
+      return;
+    }
+
+    final List<String> evicted = new ArrayList<>();
+    synchronized (this) {
+      if (closed) {
+        deleteQuietly(file);
+        return;
+      }
+      useCounts.putIfAbsent(key, 0L);
+      while (useCounts.size() > maxEntries) {
+        final String victim = leastUsed(key);
+        useCounts.remove(victim);
+        warmEntries.remove(victim);
+        evicted.add(victim);
+      }
+      writeIndex();
+    }
+    for (String victim : evicted) {
+      deleteQuietly(entryPath(victim));
+    }
+  }
+
+  /** Drop the entry stored under the given key, for instance because its classes do not load. */
+  public void invalidate(String key) {
+    synchronized (this) {
+      if (closed || useCounts.remove(key) == null) {
+        return;
+      }
+      warmEntries.remove(key);
+      writeIndex();
+    }
+    deleteQuietly(entryPath(key));
+  }
+
+  private String leastUsed(String keep) {
+    String victim = null;
+    long victimCount = Long.MAX_VALUE;
+    for (Map.Entry<String, Long> e : useCounts.entrySet()) {
+      if (e.getValue() < victimCount && !e.getKey().equals(keep)) {
+        victim = e.getKey();
+        victimCount = e.getValue();
+      }
+    }
+    return victim;
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /** Compilation time avoided so far, as measured when the entries were first compiled. */
+  public long getCompileNanosSaved() {
+    return compileNanosSaved.get();
+  }
+
+  public synchronized int size() {
+    return useCounts.size();
+  }
+
+  @VisibleForTesting
+  int getWarmEntriesCount() {
+    return warmEntries.size();
+  }
+
+  private Path entryPath(String key) {
+    return root.resolve(key + ENTRY_SUFFIX);
+  }
+
+  /** Load the use counts written by a previous run, if it used the same build. */
+  private boolean readIndex() throws IOException {
+    final Path index = root.resolve(INDEX_FILE);
+    if (!Files.exists(index)) {
+      return false;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(index, UTF_8)) {
+      if (!buildVersion.equals(reader.readLine())) {
+        logger.info("Persistent code cache at {} was written by another build, clearing it", root);
+        return false;
+      }
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final int separator = line.indexOf(' ');
+        if (separator > 0) {
+          useCounts.put(
+              line.substring(0, separator), Long.parseLong(line.substring(separator + 1)));
+        }
+      }
+      return true;
+    } catch (NumberFormatException e) {
+      logger.warn("Corrupted persistent code cache index at {}, clearing it", index);
+      return false;
+    }
+  }
+
+  private synchronized void writeIndex() {
+    if (closed) {
+      return;
+    }
+    hitsSinceFlush = 0;
+    Path tmp = null;
+    try {
+      tmp = Files.createTempFile(root, INDEX_FILE, TMP_SUFFIX);
+      try (BufferedWriter writer = Files.newBufferedWriter(tmp, UTF_8)) {
+        writer.write(buildVersion);
+        writer.newLine();
+        for (Map.Entry<String, Long> e : useCounts.entrySet()) {
+          writer.write(e.getKey());
+          writer.write(' ');
+          writer.write(Long.toString(e.getValue()));
+          writer.newLine();
+        }
+      }
+      Files.move(
+          tmp,
+          root.resolve(INDEX_FILE),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Unable to write persistent code cache index", e);
+      deleteQuietly(tmp);
+    }
+  }
+
+  /** Remove leftovers of interrupted writes and entries that are no longer indexed. */
+  private void deleteUnindexedFiles() throws IOException {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+      for (Path path : stream) {
+        final String name = path.getFileName().toString();
+        if (name.equals(INDEX_FILE) || name.equals(LOCK_FILE)) {
+          continue;
+        }
+        if (!name.endsWith(ENTRY_SUFFIX)
+            || !useCounts.containsKey(name.substring(0, name.length() - ENTRY_SUFFIX.length()))) {
+          deleteQuietly(path);
+        }
+      }
+    }
+    useCounts.keySet().removeIf(key -> !Files.exists(entryPath(key)));
+  }
+
+  private void prewarm(int count) {
+    final List<Map.Entry<String, Long>> mostUsed = new ArrayList<>(useCounts.entrySet());
+    mostUsed.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+    for (Map.Entry<String, Long> e : mostUsed.subList(0, Math.min(count, mostUsed.size()))) {
+      try {
+        warmEntries.put(e.getKey(), readEntry(entryPath(e.getKey())));
+      } catch (IOException | RuntimeException ex) {
+        logger.warn("Unable to read code cache entry {}, dropping it", e.getKey(), ex);
+        useCounts.remove(e.getKey());
+        deleteQuietly(entryPath(e.getKey()));
+      }
+    }
+  }
+
+  private static void writeEntry(Path file, Entry entry) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(ENTRY_MAGIC);
+      out.writeUTF(entry.className);
+      out.writeLong(entry.compileNanos);
+      out.writeInt(entry.classes.size());
+      for (ClassBytes clazz : entry.classes) {
+        out.writeUTF(clazz.getName());
+        out.writeInt(clazz.getBytes().length);
+        out.write(clazz.getBytes());
+      }
+    }
+  }
+
+  private static Entry readEntry(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != ENTRY_MAGIC) {
+        throw new IOException("Not a code cache entry: " + file);
+      }
+      final String className = in.readUTF();
+      final long compileNanos = in.readLong();
+      final int count = in.readInt();
+      final List<ClassBytes> classes = new ArrayList<>(count);
+      for (int i = 0; i < count; i++) {
+        final String name = in.readUTF();
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        classes.add(new ClassBytes(name, bytes));
+      }
+      return new Entry(className, classes, compileNanos);
+    }
+  }
+
+  /** Release the directory, entries can no longer be read or written once closed. */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      closed = true;
+      warmEntries.clear();
+    }
+    lockChannel.close();
+  }
+
+  private static void deleteQuietly(Path path) {
+    if (path == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      logger.debug("Unable to delete {}", path, e);
+    }
+  }
+
+  /** Classes compiled from a single generated source. */
+  public static final class Entry {
+    private final String className;
+    private final List<ClassBytes> classes;
+    private final long compileNanos;
+
+    private Entry(String className, List<ClassBytes> classes, long compileNanos) {
+      this.className = className;
+      this.classes = classes;
+      this.compileNanos = compileNanos;
+    }
+
+    /** Name of the class implementing the template. */
+    public String getClassName() {
+      return className;
+    }
+
+    public List<ClassBytes> getClasses() {
+      return classes;
+    }
+  }
+}
@@ -21,6 +21,9 @@ import com.google.common.collect.MapMaker;
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import org.codehaus.commons.compiler.CompileException;
@@ -50,6 +53,15 @@ public class QueryClassLoader extends URLClassLoader {
     customClasses.put(className, classBytes);
   }
 
+  /** Bytecode of the classes injected in this loader so far. */
+  public List<ClassBytes> getInjectedByteCode() {
+    final List<ClassBytes> classes = new ArrayList<>(customClasses.size());
+    for (Map.Entry<String, byte[]> e : customClasses.entrySet()) {
+      classes.add(new ClassBytes(e.getKey(), e.getValue()));
+    }
+    return classes;
+  }
+
   @Override
   protected Class<?> findClass(String className) throws ClassNotFoundException {
     byte[] ba = customClasses.get(className);
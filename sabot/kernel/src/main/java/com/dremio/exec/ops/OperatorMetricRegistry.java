@@ -40,7 +40,9 @@ import com.dremio.sabot.op.sender.partition.PartitionSenderOperator;
 import com.dremio.sabot.op.sender.roundrobin.RoundRobinOperator;
 import com.dremio.sabot.op.sender.single.SingleSenderOperator;
 import com.dremio.sabot.op.sort.external.ExternalSortStats;
+import com.dremio.sabot.op.sort.topn.TopNStats;
 import com.dremio.sabot.op.tablefunction.TableFunctionOperator;
+import com.dremio.sabot.op.windowframe.WindowFrameStats;
 import com.dremio.sabot.op.writer.WriterCommitterOperator;
 import com.dremio.sabot.op.writer.WriterOperator;
 import java.util.ArrayList;
@@ -124,6 +126,8 @@ public class OperatorMetricRegistry {
     register(builder, CoreOperatorType.JDBC_SUB_SCAN_VALUE, ScanOperator.Metric.class);
     register(builder, CoreOperatorType.JSON_WRITER_VALUE, WriterOperator.Metric.class);
     register(builder, CoreOperatorType.TEXT_WRITER_VALUE, WriterOperator.Metric.class);
+    register(builder, CoreOperatorType.WINDOW_VALUE, WindowFrameStats.Metric.class);
+    register(builder, CoreOperatorType.TOP_N_SORT_VALUE, TopNStats.Metric.class);
     CORE_OPERATOR_TYPE_METRICS_MAP = builder.build();
   }
 
@@ -17,6 +17,7 @@ package com.dremio.exec.record;
 
 import com.dremio.exec.proto.ExecRPC.FragmentRecordBatch;
 import com.dremio.exec.proto.UserBitShared.QueryId;
+import com.dremio.exec.record.compression.ExchangeCompressor;
 import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
 import com.google.flatbuffers.FlatBufferBuilder;
@@ -61,6 +62,42 @@ public class FragmentWritableBatch {
         receiveMinorFragmentId);
   }
 
+  /**
+   * Same as {@link #create(QueryId, int, int, int, VectorAccessible, int)}, with the body
+   * compressed by the given compressor.
+   */
+  public static FragmentWritableBatch create(
+      final QueryId queryId,
+      final int sendMajorFragmentId,
+      final int sendMinorFragmentId,
+      final int receiveMajorFragmentId,
+      final VectorAccessible batch,
+      final ExchangeCompressor compressor,
+      final int receiveMinorFragmentId) {
+
+    ArrowRecordBatch recordBatch = getArrowRecordBatch(batch);
+    if (compressor.isEnabled()) {
+      final ExchangeCompressor.CompressedBody body = compressor.compress(recordBatch.getBuffers());
+      recordBatch =
+          new ArrowRecordBatch(
+              recordBatch.getLength(),
+              recordBatch.getNodes(),
+              body.getBuffers(),
+              body.getBodyCompression(),
+              recordBatch.getVariadicBufferCounts(),
+              false,
+              false);
+    }
+
+    return new FragmentWritableBatch(
+        queryId,
+        sendMajorFragmentId,
+        sendMinorFragmentId,
+        receiveMajorFragmentId,
+        recordBatch,
+        receiveMinorFragmentId);
+  }
+
   public static ArrowRecordBatch getArrowRecordBatch(final VectorAccessible batch) {
     VectorSchemaRoot root = getVectorSchemaRoot(batch);
     VectorUnloader unloader = new VectorUnloader(root, false, false);
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.record.compression;
+
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.compression.CompressionUtil.CodecType;
+
+/**
+ * A block codec that compresses a region of one {@link ArrowBuf} into another. Implementations are
+ * stateless and thread-safe, and produce output that matches the Arrow IPC codec of the same {@link
+ * CodecType} so that compressed bodies remain readable by any Arrow implementation.
+ */
+public interface BufferCodec {
+
+  /** Arrow codec identifier written to the record batch body compression field. */
+  CodecType getCodecType();
+
+  /** Upper bound of the compressed size of a region of the given length. */
+  long maxCompressedLength(long uncompressedLength);
+
+  /**
+   * Compress {@code length} bytes of {@code src} starting at {@code srcIndex} into {@code dst}
+   * starting at {@code dstIndex}. The destination must have at least {@link
+   * #maxCompressedLength(long)} bytes of capacity past {@code dstIndex}.
+   *
+   * @return number of bytes written to dst
+   */
+  long compress(ArrowBuf src, long srcIndex, long length, ArrowBuf dst, long dstIndex);
+
+  /**
+   * Decompress {@code compressedLength} bytes of {@code src} into exactly {@code
+   * uncompressedLength} bytes of {@code dst}.
+   */
+  void decompress(
+      ArrowBuf src,
+      long srcIndex,
+      long compressedLength,
+      ArrowBuf dst,
+      long dstIndex,
+      long uncompressedLength);
+
+  static BufferCodec forType(CodecType type) {
+    switch (type) {
+      case LZ4_FRAME:
+        return Lz4FrameBufferCodec.INSTANCE;
+      case ZSTD:
+        return ZstdBufferCodec.DEFAULT;
+      default:
+        throw new IllegalArgumentException("Unsupported buffer codec " + type);
+    }
+  }
+}
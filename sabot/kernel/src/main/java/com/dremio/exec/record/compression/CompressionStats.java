@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.record.compression;
+
+/** Running totals of the work done by a compressor or decompressor. Not thread-safe. */
+public final class CompressionStats {
+  private long batches;
+  private long uncompressedBytes;
+  private long compressedBytes;
+  private long codecNanos;
+
+  void add(long uncompressedBytes, long compressedBytes, long codecNanos) {
+    this.batches++;
+    this.uncompressedBytes += uncompressedBytes;
+    this.compressedBytes += compressedBytes;
+    this.codecNanos += codecNanos;
+  }
+
+  public void merge(CompressionStats other) {
+    this.batches += other.batches;
+    this.uncompressedBytes += other.uncompressedBytes;
+    this.compressedBytes += other.compressedBytes;
+    this.codecNanos += other.codecNanos;
+  }
+
+  /** Number of batches that went through the codec. */
+  public long getBatches() {
+    return batches;
+  }
+
+  public long getUncompressedBytes() {
+    return uncompressedBytes;
+  }
+
+  public long getCompressedBytes() {
+    return compressedBytes;
+  }
+
+  public long getCodecNanos() {
+    return codecNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "CompressionStats [batches="
+        + batches
+        + ", uncompressedBytes="
+        + uncompressedBytes
+        + ", compressedBytes="
+        + compressedBytes
+        + ", codecNanos="
+        + codecNanos
+        + "]";
+  }
+}
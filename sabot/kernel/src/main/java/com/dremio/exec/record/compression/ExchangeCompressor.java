@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.record.compression;
+
+import com.dremio.exec.ExecConstants;
+import com.dremio.options.OptionManager;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.util.MemoryUtil;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.compression.NoCompressionCodec;
+import org.apache.arrow.vector.ipc.message.ArrowBodyCompression;
+
+/**
+ * Compresses the buffers of an outgoing record batch using the Arrow IPC buffer compression layout:
+ * every non-empty buffer is prefixed with its uncompressed length as a little endian int64, or -1
+ * when the buffer is stored uncompressed because the codec did not shrink it. Receivers decode the
+ * body with {@link ExchangeDecompressor}.
+ *
+ * <p>In {@link Mode#ADAPTIVE} mode the compressor keeps a moving estimate of the compression ratio
+ * of the stream. Streams that do not compress are sent raw for a while before being probed again,
+ * and streams that compress very well are switched to ZSTD.
+ *
+ * <p>An instance is owned by a single sender and is not thread-safe.
+ */
+public class ExchangeCompressor implements AutoCloseable {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(ExchangeCompressor.class);
+
+  /** Compression applied to exchange batches, see {@link ExecConstants#EXCHANGE_COMPRESSION}. */
+  public enum Mode {
+    NONE,
+    LZ4,
+    ZSTD,
+    ADAPTIVE
+  }
+
+  // batches smaller than this are not worth the codec overhead
+  static final long MIN_COMPRESSIBLE_BYTES = 4096;
+  // below this ratio, the cpu spent compressing is not paid back on the wire
+  static final double MIN_USEFUL_RATIO = 1.1;
+  // above this ratio, the stronger codec is worth its extra cost
+  static final double ZSTD_RATIO_THRESHOLD = 3.0;
+  // number of batches sent uncompressed before probing an incompressible stream again
+  static final int BACKOFF_BATCHES = 32;
+  private static final double RATIO_SMOOTHING = 0.25;
+
+  private static final long SIZE_OF_UNCOMPRESSED_LENGTH =
+      CompressionUtil.SIZE_OF_UNCOMPRESSED_LENGTH;
+  private static final long NO_COMPRESSION_LENGTH = CompressionUtil.NO_COMPRESSION_LENGTH;
+
+  private final BufferAllocator allocator;
+  private final Mode mode;
+  private final CompressionStats stats = new CompressionStats();
+
+  private ArrowBuf scratch;
+  private double ratioEstimate = -1;
+  private int batchesToSkip;
+
+  public ExchangeCompressor(BufferAllocator allocator, Mode mode) {
+    this.allocator = Preconditions.checkNotNull(allocator);
+    this.mode = Preconditions.checkNotNull(mode);
+  }
+
+  public static ExchangeCompressor create(BufferAllocator allocator, OptionManager options) {
+    return new ExchangeCompressor(allocator, getMode(options));
+  }
+
+  public static Mode getMode(OptionManager options) {
+    return Mode.valueOf(
+        options.getOption(ExecConstants.EXCHANGE_COMPRESSION).toUpperCase(Locale.ROOT));
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public boolean isEnabled() {
+    return mode != Mode.NONE;
+  }
+
+  public CompressionStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Compress the given buffers. The compressor takes ownership of one reference of every input
+   * buffer, and the caller owns one reference of every returned buffer. When the batch is not
+   * compressed the input buffers are returned as is.
+   */
+  public CompressedBody compress(List<ArrowBuf> buffers) {
+    if (mode == Mode.NONE) {
+      return new CompressedBody(buffers, NoCompressionCodec.DEFAULT_BODY_COMPRESSION);
+    }
+
+    long uncompressedBytes = 0;
+    for (ArrowBuf buf : buffers) {
+      uncompressedBytes += buf.readableBytes();
+    }
+
+    final BufferCodec codec = chooseCodec(uncompressedBytes);
+    if (codec == null) {
+      return new CompressedBody(buffers, NoCompressionCodec.DEFAULT_BODY_COMPRESSION);
+    }
+
+    final long start = System.nanoTime();
+    final List<ArrowBuf> compressed = new ArrayList<>(buffers.size());
+    long compressedBytes = 0;
+    try {
+      for (ArrowBuf buf : buffers) {
+        final ArrowBuf out = compressBuffer(codec, buf);
+        compressed.add(out);
+        compressedBytes += out.readableBytes();
+      }
+    } catch (RuntimeException e) {
+      compressed.forEach(ArrowBuf::close);
+      throw e;
+    } finally {
+      buffers.forEach(ArrowBuf::close);
+    }
+    stats.add(uncompressedBytes, compressedBytes, System.nanoTime() - start);
+    updateEstimate(uncompressedBytes, compressedBytes);
+
+    return new CompressedBody(
+        compressed,
+        new ArrowBodyCompression(
+            codec.getCodecType().getType(), CompressionUtil.BodyCompressionMethod.BUFFER));
+  }
+
+  private BufferCodec chooseCodec(long uncompressedBytes) {
+    if (uncompressedBytes < MIN_COMPRESSIBLE_BYTES) {
+      return null;
+    }
+    switch (mode) {
+      case LZ4:
+        return Lz4FrameBufferCodec.INSTANCE;
+      case ZSTD:
+        return ZstdBufferCodec.DEFAULT;
+      case ADAPTIVE:
+        if (batchesToSkip > 0) {
+          batchesToSkip--;
+          return null;
+        }
+        return ratioEstimate >= ZSTD_RATIO_THRESHOLD
+            ? ZstdBufferCodec.DEFAULT
+            : Lz4FrameBufferCodec.INSTANCE;
+      default:
+        return null;
+    }
+  }
+
+  private void updateEstimate(long uncompressedBytes, long compressedBytes) {
+    if (mode != Mode.ADAPTIVE) {
+      return;
+    }
+    final double ratio = (double) uncompressedBytes / Math.max(1, compressedBytes);
+    ratioEstimate =
+        ratioEstimate < 0 ? ratio : RATIO_SMOOTHING * ratio + (1 - RATIO_SMOOTHING) * ratioEstimate;
+    if (ratioEstimate < MIN_USEFUL_RATIO) {
+      logger.debug(
+          "Compression ratio {} too low, skipping the next {} batches",
+          ratioEstimate,
+          BACKOFF_BATCHES);
+      batchesToSkip = BACKOFF_BATCHES;
+      // start from a clean estimate when probing again
+      ratioEstimate = -1;
+    }
+  }
+
+  private ArrowBuf compressBuffer(BufferCodec codec, ArrowBuf buf) {
+    final long length = buf.readableBytes();
+    if (length == 0) {
+      return allocator.getEmpty();
+    }
+
+    final long maxLength = SIZE_OF_UNCOMPRESSED_LENGTH + codec.maxCompressedLength(length);
+    ensureScratch(maxLength);
+    final long compressedLength =
+        codec.compress(buf, buf.readerIndex(), length, scratch, SIZE_OF_UNCOMPRESSED_LENGTH);
+
+    final ArrowBuf out;
+    if (compressedLength >= length) {
+      out = allocator.buffer(SIZE_OF_UNCOMPRESSED_LENGTH + length);
+      putLongLE(out, 0, NO_COMPRESSION_LENGTH);
+      out.setBytes(SIZE_OF_UNCOMPRESSED_LENGTH, buf, buf.readerIndex(), length);
+      out.writerIndex(SIZE_OF_UNCOMPRESSED_LENGTH + length);
+    } else {
+      out = allocator.buffer(SIZE_OF_UNCOMPRESSED_LENGTH + compressedLength);
+      putLongLE(out, 0, length);
+      out.setBytes(
+          SIZE_OF_UNCOMPRESSED_LENGTH, scratch, SIZE_OF_UNCOMPRESSED_LENGTH, compressedLength);
+      out.writerIndex(SIZE_OF_UNCOMPRESSED_LENGTH + compressedLength);
+    }
+    return out;
+  }
+
+  private void ensureScratch(long size) {
+    if (scratch != null && scratch.capacity() >= size) {
+      return;
+    }
+    if (scratch != null) {
+      scratch.close();
+      scratch = null;
+    }
+    scratch = allocator.buffer(size);
+  }
+
+  static void putLongLE(ArrowBuf buf, long index, long value) {
+    buf.setLong(index, MemoryUtil.LITTLE_ENDIAN ? value : Long.reverseBytes(value));
+  }
+
+  static long getLongLE(ArrowBuf buf, long index) {
+    final long value = buf.getLong(index);
+    return MemoryUtil.LITTLE_ENDIAN ? value : Long.reverseBytes(value);
+  }
+
+  @Override
+  public void close() {
+    if (scratch != null) {
+      scratch.close();
+      scratch = null;
+    }
+  }
+
+  /** Buffers of a batch body along with the compression that was applied to them. */
+  public static final class CompressedBody {
+    private final List<ArrowBuf> buffers;
+    private final ArrowBodyCompression bodyCompression;
+
+    CompressedBody(List<ArrowBuf> buffers, ArrowBodyCompression bodyCompression) {
+      this.buffers = buffers;
+      this.bodyCompression = bodyCompression;
+    }
+
+    public List<ArrowBuf> getBuffers() {
+      return buffers;
+    }
+
+    public ArrowBodyCompression getBodyCompression() {
+      return bodyCompression;
+    }
+  }
+}
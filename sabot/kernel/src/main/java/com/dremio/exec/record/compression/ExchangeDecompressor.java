@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.record.compression;
+
+import com.dremio.exec.proto.ExecRPC.FragmentRecordBatch;
+import com.dremio.sabot.op.receiver.RawFragmentBatch;
+import com.google.flatbuffers.FlatBufferBuilder;
+import com.google.protobuf.ByteString;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.arrow.flatbuf.BodyCompression;
+import org.apache.arrow.flatbuf.Buffer;
+import org.apache.arrow.flatbuf.FieldNode;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.util.LargeMemoryUtil;
+import org.apache.arrow.vector.compression.CompressionUtil;
+import org.apache.arrow.vector.compression.CompressionUtil.CodecType;
+import org.apache.arrow.vector.compression.NoCompressionCodec;
+import org.apache.arrow.vector.ipc.message.ArrowFieldNode;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+import org.apache.arrow.vector.util.DataSizeRoundingUtil;
+
+/**
+ * Decodes record batches whose body was compressed by {@link ExchangeCompressor} (or by any Arrow
+ * IPC writer using buffer compression). Uncompressed batches are passed through untouched.
+ *
+ * <p>Not thread-safe, an instance is meant to be used by a single batch provider.
+ */
+public class ExchangeDecompressor {
+
+  private final BufferAllocator allocator;
+  private final CompressionStats stats = new CompressionStats();
+
+  public ExchangeDecompressor(BufferAllocator allocator) {
+    this.allocator = allocator;
+  }
+
+  public CompressionStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Decompress the body of the given batch. If the batch is compressed, the returned batch is a new
+   * batch and the given batch is closed; otherwise the given batch is returned.
+   */
+  public RawFragmentBatch decompress(RawFragmentBatch batch) {
+    if (batch == null || batch.getBody() == null) {
+      return batch;
+    }
+    final FragmentRecordBatch header = batch.getHeader();
+    final RecordBatch recordBatch =
+        RecordBatch.getRootAsRecordBatch(header.getArrowRecordBatch().asReadOnlyByteBuffer());
+    final BodyCompression compression = recordBatch.compression();
+    if (compression == null || compression.codec() == CodecType.NO_COMPRESSION.getType()) {
+      return batch;
+    }
+
+    try {
+      final long start = System.nanoTime();
+      final BufferCodec codec =
+          BufferCodec.forType(CodecType.fromCompressionType(compression.codec()));
+      final ArrowBuf body = batch.getBody();
+      final int bufferCount = recordBatch.buffersLength();
+
+      // first pass: compute the decompressed layout, aligned the same way ArrowRecordBatch does
+      final long[] lengths = new long[bufferCount];
+      final long[] offsets = new long[bufferCount];
+      long bodyLength = 0;
+      for (int i = 0; i < bufferCount; i++) {
+        final Buffer buffer = recordBatch.buffers(i);
+        if (buffer.length() == 0) {
+          lengths[i] = 0;
+        } else {
+          final long uncompressedLength = ExchangeCompressor.getLongLE(body, buffer.offset());
+          lengths[i] =
+              uncompressedLength == CompressionUtil.NO_COMPRESSION_LENGTH
+                  ? buffer.length() - CompressionUtil.SIZE_OF_UNCOMPRESSED_LENGTH
+                  : uncompressedLength;
+        }
+        offsets[i] = bodyLength;
+        bodyLength = DataSizeRoundingUtil.roundUpTo8Multiple(bodyLength + lengths[i]);
+      }
+
+      final ArrowBuf newBody = allocator.buffer(bodyLength);
+      try {
+        final List<ArrowBuf> slices = new ArrayList<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+          final Buffer buffer = recordBatch.buffers(i);
+          if (lengths[i] > 0) {
+            final long dataIndex = buffer.offset() + CompressionUtil.SIZE_OF_UNCOMPRESSED_LENGTH;
+            final long dataLength = buffer.length() - CompressionUtil.SIZE_OF_UNCOMPRESSED_LENGTH;
+            if (ExchangeCompressor.getLongLE(body, buffer.offset())
+                == CompressionUtil.NO_COMPRESSION_LENGTH) {
+              newBody.setBytes(offsets[i], body, dataIndex, dataLength);
+            } else {
+              codec.decompress(body, dataIndex, dataLength, newBody, offsets[i], lengths[i]);
+            }
+          }
+          slices.add(newBody.slice(offsets[i], lengths[i]));
+        }
+        newBody.writerIndex(bodyLength);
+
+        final FragmentRecordBatch newHeader =
+            header.toBuilder().setArrowRecordBatch(rewriteHeader(recordBatch, slices)).build();
+        stats.add(bodyLength, body.readableBytes(), System.nanoTime() - start);
+        return new RawFragmentBatch(newHeader, newBody, null);
+      } finally {
+        // the new batch holds its own reference
+        newBody.close();
+      }
+    } finally {
+      batch.close();
+    }
+  }
+
+  private static ByteString rewriteHeader(RecordBatch recordBatch, List<ArrowBuf> buffers) {
+    final List<ArrowFieldNode> nodes = new ArrayList<>(recordBatch.nodesLength());
+    for (int i = 0; i < recordBatch.nodesLength(); i++) {
+      final FieldNode node = recordBatch.nodes(i);
+      nodes.add(
+          new ArrowFieldNode(
+              LargeMemoryUtil.checkedCastToInt(node.length()),
+              LargeMemoryUtil.checkedCastToInt(node.nullCount())));
+    }
+    final List<Long> variadicBufferCounts =
+        new ArrayList<>(recordBatch.variadicBufferCountsLength());
+    for (int i = 0; i < recordBatch.variadicBufferCountsLength(); i++) {
+      variadicBufferCounts.add(recordBatch.variadicBufferCounts(i));
+    }
+
+    // slices share the body's reference count, so the batch must neither retain nor release them
+    final ArrowRecordBatch uncompressed =
+        new ArrowRecordBatch(
+            LargeMemoryUtil.checkedCastToInt(recordBatch.length()),
+            nodes,
+            buffers,
+            NoCompressionCodec.DEFAULT_BODY_COMPRESSION,
+            variadicBufferCounts,
+            true,
+            false);
+    final FlatBufferBuilder builder = new FlatBufferBuilder();
+    builder.finish(uncompressed.writeTo(builder));
+    return ByteString.copyFrom(builder.dataBuffer());
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.record.compression;
+
+import java.nio.ByteBuffer;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import net.jpountz.xxhash.XXHashFactory;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.util.LargeMemoryUtil;
+import org.apache.arrow.memory.util.MemoryUtil;
+import org.apache.arrow.vector.compression.CompressionUtil.CodecType;
+
+/**
+ * LZ4 codec producing the LZ4 frame format that Arrow IPC mandates for {@link CodecType#LZ4_FRAME}.
+ * Frames are written with independent 4MB blocks and no checksums (the transport and spill files
+ * are already checked), and the reader accepts any frame descriptor flags so that bodies produced
+ * by other Arrow implementations can be decoded as well.
+ */
+public final class Lz4FrameBufferCodec implements BufferCodec {
+
+  public static final Lz4FrameBufferCodec INSTANCE = new Lz4FrameBufferCodec();
+
+  private static final int MAGIC = 0x184D2204;
+  // version 01, independent blocks, no block/content checksum, no content size, no dictionary
+  private static final byte FLG = 0x60;
+  // 4MB maximum block size
+  private static final byte BD = 0x70;
+  private static final int BLOCK_SIZE = 4 * 1024 * 1024;
+  private static final byte HEADER_CHECKSUM =
+      (byte)
+          ((XXHashFactory.fastestInstance().hash32().hash(new byte[] {FLG, BD}, 0, 2, 0) >> 8)
+              & 0xFF);
+
+  private static final int FRAME_HEADER_LENGTH = 7;
+  private static final int BLOCK_HEADER_LENGTH = 4;
+  private static final int END_MARK_LENGTH = 4;
+  private static final int UNCOMPRESSED_BLOCK_FLAG = 0x80000000;
+
+  private static final int FLG_DICT_ID = 0x01;
+  private static final int FLG_CONTENT_SIZE = 0x08;
+  private static final int FLG_BLOCK_CHECKSUM = 0x10;
+
+  private final LZ4Compressor compressor;
+  private final LZ4SafeDecompressor decompressor;
+
+  private Lz4FrameBufferCodec() {
+    final LZ4Factory factory = LZ4Factory.fastestInstance();
+    this.compressor = factory.fastCompressor();
+    this.decompressor = factory.safeDecompressor();
+  }
+
+  @Override
+  public CodecType getCodecType() {
+    return CodecType.LZ4_FRAME;
+  }
+
+  @Override
+  public long maxCompressedLength(long uncompressedLength) {
+    final long blocks = Math.max(1, (uncompressedLength + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    final long perBlock =
+        compressor.maxCompressedLength((int) Math.min(uncompressedLength, BLOCK_SIZE));
+    return FRAME_HEADER_LENGTH + blocks * (BLOCK_HEADER_LENGTH + perBlock) + END_MARK_LENGTH;
+  }
+
+  @Override
+  public long compress(ArrowBuf src, long srcIndex, long length, ArrowBuf dst, long dstIndex) {
+    long out = dstIndex;
+    putIntLE(dst, out, MAGIC);
+    dst.setByte(out + 4, FLG);
+    dst.setByte(out + 5, BD);
+    dst.setByte(out + 6, HEADER_CHECKSUM);
+    out += FRAME_HEADER_LENGTH;
+
+    long remaining = length;
+    long in = srcIndex;
+    while (remaining > 0) {
+      final int blockLength = (int) Math.min(remaining, BLOCK_SIZE);
+      final int maxLength = compressor.maxCompressedLength(blockLength);
+      final ByteBuffer source = src.nioBuffer(in, blockLength);
+      final ByteBuffer target = dst.nioBuffer(out + BLOCK_HEADER_LENGTH, maxLength);
+      final int compressedLength =
+          compressor.compress(source, 0, blockLength, target, 0, maxLength);
+      if (compressedLength >= blockLength) {
+        // incompressible block, store it as is
+        putIntLE(dst, out, blockLength | UNCOMPRESSED_BLOCK_FLAG);
+        dst.setBytes(out + BLOCK_HEADER_LENGTH, src, in, blockLength);
+        out += BLOCK_HEADER_LENGTH + blockLength;
+      } else {
+        putIntLE(dst, out, compressedLength);
+        out += BLOCK_HEADER_LENGTH + compressedLength;
+      }
+      in += blockLength;
+      remaining -= blockLength;
+    }
+    putIntLE(dst, out, 0);
+    out += END_MARK_LENGTH;
+    return out - dstIndex;
+  }
+
+  @Override
+  public void decompress(
+      ArrowBuf src,
+      long srcIndex,
+      long compressedLength,
+      ArrowBuf dst,
+      long dstIndex,
+      long uncompressedLength) {
+    final long end = srcIndex + compressedLength;
+    long in = srcIndex;
+    if (compressedLength < FRAME_HEADER_LENGTH || getIntLE(src, in) != MAGIC) {
+      throw new IllegalStateException("Invalid LZ4 frame header");
+    }
+    final int flags = src.getByte(in + 4) & 0xFF;
+    if ((flags >>> 6) != 0x01) {
+      throw new IllegalStateException("Unsupported LZ4 frame version " + (flags >>> 6));
+    }
+    in += 6; // magic, FLG and BD
+    if ((flags & FLG_CONTENT_SIZE) != 0) {
+      in += 8;
+    }
+    if ((flags & FLG_DICT_ID) != 0) {
+      in += 4;
+    }
+    in += 1; // header checksum
+    final int blockChecksumLength = (flags & FLG_BLOCK_CHECKSUM) != 0 ? 4 : 0;
+
+    long out = dstIndex;
+    final long outEnd = dstIndex + uncompressedLength;
+    while (in + BLOCK_HEADER_LENGTH <= end) {
+      final int blockHeader = getIntLE(src, in);
+      in += BLOCK_HEADER_LENGTH;
+      if (blockHeader == 0) {
+        break;
+      }
+      final int blockLength = blockHeader & ~UNCOMPRESSED_BLOCK_FLAG;
+      if ((blockHeader & UNCOMPRESSED_BLOCK_FLAG) != 0) {
+        if (out + blockLength > outEnd) {
+          throw new IllegalStateException("LZ4 frame larger than expected length");
+        }
+        dst.setBytes(out, src, in, blockLength);
+        out += blockLength;
+      } else {
+        final int available = LargeMemoryUtil.checkedCastToInt(outEnd - out);
+        out +=
+            decompressor.decompress(
+                src.nioBuffer(in, blockLength),
+                0,
+                blockLength,
+                dst.nioBuffer(out, available),
+                0,
+                available);
+      }
+      in += blockLength + blockChecksumLength;
+    }
+    // an optional content checksum may follow the end mark, it is not verified.
+    if (out != outEnd) {
+      throw new IllegalStateException(
+          String.format(
+              "LZ4 frame decompressed to %d bytes, expected %d bytes",
+              out - dstIndex, uncompressedLength));
+    }
+  }
+
+  private static void putIntLE(ArrowBuf buf, long index, int value) {
+    buf.setInt(index, MemoryUtil.LITTLE_ENDIAN ? value : Integer.reverseBytes(value));
+  }
+
+  private static int getIntLE(ArrowBuf buf, long index) {
+    final int value = buf.getInt(index);
+    return MemoryUtil.LITTLE_ENDIAN ? value : Integer.reverseBytes(value);
+  }
+}
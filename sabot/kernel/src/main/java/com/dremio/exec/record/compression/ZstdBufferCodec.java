@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.record.compression;
+
+import com.github.luben.zstd.Zstd;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.util.LargeMemoryUtil;
+import org.apache.arrow.vector.compression.CompressionUtil.CodecType;
+
+/** ZSTD codec operating directly on off-heap memory through zstd-jni. */
+public final class ZstdBufferCodec implements BufferCodec {
+
+  /** Level 1 favours throughput; exchange and spill data is short lived. */
+  public static final ZstdBufferCodec DEFAULT = new ZstdBufferCodec(1);
+
+  private final int level;
+
+  public ZstdBufferCodec(int level) {
+    this.level = level;
+  }
+
+  @Override
+  public CodecType getCodecType() {
+    return CodecType.ZSTD;
+  }
+
+  @Override
+  public long maxCompressedLength(long uncompressedLength) {
+    return Zstd.compressBound(uncompressedLength);
+  }
+
+  @Override
+  public long compress(ArrowBuf src, long srcIndex, long length, ArrowBuf dst, long dstIndex) {
+    final int srcLength = LargeMemoryUtil.checkedCastToInt(length);
+    final int dstLength = LargeMemoryUtil.checkedCastToInt(dst.capacity() - dstIndex);
+    final long result =
+        Zstd.compressDirectByteBuffer(
+            dst.nioBuffer(dstIndex, dstLength),
+            0,
+            dstLength,
+            src.nioBuffer(srcIndex, srcLength),
+            0,
+            srcLength,
+            level);
+    if (Zstd.isError(result)) {
+      throw new IllegalStateException("ZSTD compression failed: " + Zstd.getErrorName(result));
+    }
+    return result;
+  }
+
+  @Override
+  public void decompress(
+      ArrowBuf src,
+      long srcIndex,
+      long compressedLength,
+      ArrowBuf dst,
+      long dstIndex,
+      long uncompressedLength) {
+    final int srcLength = LargeMemoryUtil.checkedCastToInt(compressedLength);
+    final int dstLength = LargeMemoryUtil.checkedCastToInt(uncompressedLength);
+    final long result =
+        Zstd.decompressDirectByteBuffer(
+            dst.nioBuffer(dstIndex, dstLength),
+            0,
+            dstLength,
+            src.nioBuffer(srcIndex, srcLength),
+            0,
+            srcLength);
+    if (Zstd.isError(result)) {
+      throw new IllegalStateException("ZSTD decompression failed: " + Zstd.getErrorName(result));
+    }
+    if (result != uncompressedLength) {
+      throw new IllegalStateException(
+          String.format(
+              "ZSTD decompressed %d bytes, expected %d bytes", result, uncompressedLength));
+    }
+  }
+}
@@ -38,9 +38,12 @@ import com.dremio.exec.planner.cost.RelMetadataQuerySupplier;
 import com.dremio.exec.planner.observer.QueryObserverFactory;
 import com.dremio.exec.proto.CoordinationProtos.NodeEndpoint;
 import com.dremio.exec.store.CatalogService;
+import com.dremio.exec.store.cache.BlockCacheFileSystemWrapper;
+import com.dremio.exec.store.cache.BoostFileSystemWrapper;
 import com.dremio.exec.store.dfs.FileSystemWrapper;
 import com.dremio.exec.store.dfs.LoggedFileSystemWrapper;
 import com.dremio.exec.store.dfs.MetadataIOPool;
+import com.dremio.exec.store.parquet.ParquetFooterCache;
 import com.dremio.exec.store.sys.accel.AccelerationListManager;
 import com.dremio.exec.store.sys.accel.AccelerationManager;
 import com.dremio.exec.store.sys.statistics.StatisticsAdministrationService;
@@ -122,6 +125,7 @@ public class ContextService implements Service, Provider<SabotContext> {
   private final Provider<UserDefinedFunctionService> userDefinedFunctionListManagerProvider;
   private final Provider<RelMetadataQuerySupplier> relMetadataQuerySupplier;
   protected BufferAllocator queryPlannerAllocator;
+  private CodeCompiler compiler;
   private final Provider<SimpleJobRunner> jobsRunnerProvider;
   private final Provider<DatasetCatalogServiceBlockingStub> datasetCatalogStub;
   private final Provider<GlobalKeysService> globalCredentailsServiceProvider;
@@ -235,6 +239,7 @@ public class ContextService implements Service, Provider<SabotContext> {
         bootstrapContext
             .getAllocator()
             .newChildAllocator("query-planning", 0, bootstrapContext.getAllocator().getLimit());
+    ParquetFooterCache.start(bootstrapContext.getAllocator());
   }
 
   protected SabotContext newSabotContext() throws Exception {
@@ -307,18 +312,25 @@ public class ContextService implements Service, Provider<SabotContext> {
         FunctionImplementationRegistry.create(sConfig, classpathScan, optionManager, false);
     FunctionImplementationRegistry decimalFunctionImplementationRegistry =
         FunctionImplementationRegistry.create(sConfig, classpathScan, optionManager, true);
-    CodeCompiler compiler = new CodeCompiler(sConfig, optionManager);
+    compiler = new CodeCompiler(sConfig, optionManager);
     FileSystemWrapper fileSystemWrapper =
         new LoggedFileSystemWrapper(
-            sConfig.getInstance(
-                FileSystemWrapper.FILE_SYSTEM_WRAPPER_CLASS,
-                FileSystemWrapper.class,
-                (fs, storageId, conf, operatorContext, enableAsync, isMetadataEnabled) -> fs,
+            new BoostFileSystemWrapper(
+                new BlockCacheFileSystemWrapper(
+                    sConfig.getInstance(
+                        FileSystemWrapper.FILE_SYSTEM_WRAPPER_CLASS,
+                        FileSystemWrapper.class,
+                        (fs, storageId, conf, operatorContext, enableAsync, isMetadataEnabled) ->
+                            fs,
+                        dremioConfig,
+                        optionManager,
+                        allocator,
+                        new ServiceSetDecorator(coordinator.getServiceSet(Role.EXECUTOR)),
+                        identity),
+                    dremioConfig,
+                    optionManager),
                 dremioConfig,
-                optionManager,
-                allocator,
-                new ServiceSetDecorator(coordinator.getServiceSet(Role.EXECUTOR)),
-                identity),
+                optionManager),
             optionManager);
 
     return new SabotContext(
@@ -376,7 +388,7 @@ public class ContextService implements Service, Provider<SabotContext> {
 
   @Override
   public void close() throws Exception {
-    AutoCloseables.close(context, queryPlannerAllocator);
+    AutoCloseables.close(context, compiler, ParquetFooterCache::stop, queryPlannerAllocator);
   }
 
   @Override
@@ -20,7 +20,9 @@ import com.dremio.exec.proto.ExecProtos;
 import com.dremio.exec.util.BloomFilter;
 import com.dremio.exec.util.ValueListFilter;
 import com.google.common.base.Preconditions;
+import java.util.Collections;
 import java.util.List;
+import org.apache.arrow.vector.types.pojo.Field;
 
 /**
  * A POJO helper class for the protbuf struct CompositeColumnFilter. It holds the deserialzied bloom
@@ -31,11 +33,18 @@ public class CompositeColumnFilter implements AutoCloseable {
   public enum RuntimeFilterType {
     BLOOM_FILTER,
     VALUE_LIST,
-    VALUE_LIST_WITH_BLOOM_FILTER
+    VALUE_LIST_WITH_BLOOM_FILTER,
+    SPLIT_BLOCK_BLOOM_FILTER,
+    RANGE;
+
+    public boolean isBloomFilter() {
+      return this == BLOOM_FILTER || this == SPLIT_BLOCK_BLOOM_FILTER;
+    }
   }
 
   private RuntimeFilterType filterType;
   private List<String> columnsList;
+  private List<String> keyTypesList = Collections.emptyList();
   private BloomFilter bloomFilter;
   private ValueListFilter valueList;
 
@@ -57,6 +66,22 @@ public class CompositeColumnFilter implements AutoCloseable {
     return columnsList;
   }
 
+  /**
+   * The type of the build side key of each column, in the order of {@link #getColumnsList()}, see
+   * {@link #keyTypeOf(Field)}. Empty if the sender did not provide them.
+   */
+  public List<String> getKeyTypesList() {
+    return keyTypesList;
+  }
+
+  /**
+   * Identifies the type of a key column. Bloom filter keys only match when both sides pivot the
+   * column to the same type, width, precision and scale.
+   */
+  public static String keyTypeOf(Field field) {
+    return field.getType().toString();
+  }
+
   @Override
   public void close() throws Exception {
     AutoCloseables.close(bloomFilter, valueList);
@@ -96,9 +121,15 @@ public class CompositeColumnFilter implements AutoCloseable {
       return this;
     }
 
+    public Builder setKeyTypesList(List<String> keyTypesList) {
+      compositeColumnFilter.keyTypesList = keyTypesList;
+      return this;
+    }
+
     public Builder setProtoFields(ExecProtos.CompositeColumnFilter proto) {
       compositeColumnFilter.filterType = RuntimeFilterType.valueOf(proto.getFilterType().name());
       compositeColumnFilter.columnsList = proto.getColumnsList();
+      compositeColumnFilter.keyTypesList = proto.getKeyTypesList();
       return this;
     }
 
@@ -109,9 +140,10 @@ public class CompositeColumnFilter implements AutoCloseable {
       Preconditions.checkArgument(
           compositeColumnFilter.filterType != null, "The filterType is empty");
       Preconditions.checkArgument(
-          (compositeColumnFilter.filterType == RuntimeFilterType.BLOOM_FILTER
+          (compositeColumnFilter.filterType.isBloomFilter()
                   && compositeColumnFilter.bloomFilter != null)
-              || (compositeColumnFilter.filterType == RuntimeFilterType.VALUE_LIST
+              || ((compositeColumnFilter.filterType == RuntimeFilterType.VALUE_LIST
+                      || compositeColumnFilter.filterType == RuntimeFilterType.RANGE)
                   && compositeColumnFilter.valueList != null),
           "The filter is empty");
       return compositeColumnFilter;
@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store;
+
+import static com.dremio.sabot.op.common.ht2.LBlockHashTable.VAR_OFFSET_SIZE;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.exec.record.selection.SelectionVector2;
+import com.dremio.exec.util.BloomFilter;
+import com.dremio.sabot.exec.context.OperatorStats;
+import com.dremio.sabot.op.common.ht2.FieldVectorPair;
+import com.dremio.sabot.op.common.ht2.FixedBlockVector;
+import com.dremio.sabot.op.common.ht2.HashTableKeyReader;
+import com.dremio.sabot.op.common.ht2.PivotBuilder;
+import com.dremio.sabot.op.common.ht2.PivotDef;
+import com.dremio.sabot.op.common.ht2.Pivots;
+import com.dremio.sabot.op.common.ht2.VariableBlockVector;
+import com.dremio.sabot.op.scan.OutputMutator;
+import com.dremio.sabot.op.scan.ScanOperator;
+import com.google.common.base.Preconditions;
+import io.netty.util.internal.PlatformDependent;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BitVectorHelper;
+import org.apache.arrow.vector.FieldVector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies the bloom filter of a partition column runtime filter to the rows of a batch, for readers
+ * that read the filter columns from the data file instead of getting them from the split.
+ *
+ * <p>Keys are built with the same {@link HashTableKeyReader} layout the join used to populate the
+ * filter, and are probed as a batch through {@link BloomFilter#mightContain(ArrowBuf, int,
+ * ArrowBuf, int)}. Rows that are not in the filter are marked invalid in the reader's validity
+ * buffer.
+ *
+ * <p>The keys only match the build side ones if both sides pivot every column to the same type, so
+ * the filter is not applied to rows when the scan side types differ from the key types of the
+ * filter, for instance an INT column joined to a BIGINT one, or decimals of different scales.
+ */
+@NotThreadSafe
+public class PartitionColumnRowFilter implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(PartitionColumnRowFilter.class);
+
+  // Rows probed before deciding whether the filter is worth evaluating for the rest of the reader.
+  static final int MIN_PROBED_ROWS = 4096;
+  // Below this share of rejected rows, split pruning already did the work and probing is overhead.
+  static final double MIN_REJECTED_RATIO = 1.0 / 32;
+
+  private final BufferAllocator allocator;
+  private final OperatorStats stats;
+  private final BloomFilter bloomFilter;
+  private final PivotDef pivotDef;
+  private final HashTableKeyReader keyReader;
+
+  private long probedRows;
+  private long rejectedRows;
+  private boolean active = true;
+
+  private PartitionColumnRowFilter(
+      BufferAllocator allocator,
+      OperatorStats stats,
+      BloomFilter bloomFilter,
+      PivotDef pivotDef,
+      HashTableKeyReader keyReader) {
+    this.allocator = allocator;
+    this.stats = stats;
+    this.bloomFilter = bloomFilter;
+    this.pivotDef = pivotDef;
+    this.keyReader = keyReader;
+  }
+
+  /**
+   * Creates a row filter for the partition column filter of the given runtime filter.
+   *
+   * @return null if the runtime filter has no bloom filter, or if its columns can't be keyed from
+   *     the vectors of the mutator the same way as on the build side
+   */
+  public static PartitionColumnRowFilter create(
+      BufferAllocator allocator,
+      OperatorStats stats,
+      int maxKeySize,
+      RuntimeFilter runtimeFilter,
+      OutputMutator mutator) {
+    final CompositeColumnFilter filter = runtimeFilter.getPartitionColumnFilter();
+    if (filter == null
+        || !filter.getFilterType().isBloomFilter()
+        || filter.getBloomFilter() == null) {
+      return null;
+    }
+
+    final List<String> keyTypes = filter.getKeyTypesList();
+    if (keyTypes.size() != filter.getColumnsList().size()) {
+      logger.debug(
+          "No key types for runtime filter on {}, not applying it to rows",
+          filter.getColumnsList());
+      return null;
+    }
+
+    final List<FieldVectorPair> fieldVectorPairs = new ArrayList<>();
+    for (int i = 0; i < keyTypes.size(); i++) {
+      final String column = filter.getColumnsList().get(i);
+      final FieldVector vector = (FieldVector) mutator.getVector(column);
+      if (vector == null) {
+        return null;
+      }
+      final String scanType = CompositeColumnFilter.keyTypeOf(vector.getField());
+      if (!scanType.equals(keyTypes.get(i))) {
+        logger.debug(
+            "Column {} is {} in the scan but {} in the runtime filter, not applying it to rows",
+            column,
+            scanType,
+            keyTypes.get(i));
+        return null;
+      }
+      fieldVectorPairs.add(new FieldVectorPair(vector, vector));
+    }
+
+    try {
+      final PivotDef pivotDef = PivotBuilder.getBlockDefinition(fieldVectorPairs);
+      final HashTableKeyReader keyReader =
+          new HashTableKeyReader.Builder()
+              .setBufferAllocator(allocator)
+              .setFieldsToRead(filter.getColumnsList())
+              .setPivot(pivotDef)
+              .setMaxKeySize(maxKeySize)
+              .build();
+      return new PartitionColumnRowFilter(
+          allocator, stats, filter.getBloomFilter(), pivotDef, keyReader);
+    } catch (Exception e) {
+      logger.debug(
+          "Unable to apply runtime filter on {} to rows, {}",
+          filter.getColumnsList(),
+          e.getMessage());
+      return null;
+    }
+  }
+
+  /** False once the filter stopped rejecting enough rows to be worth evaluating. */
+  public boolean isActive() {
+    return active;
+  }
+
+  /**
+   * Marks the rows of the batch that are not in the filter as invalid. Rows already invalid are not
+   * probed.
+   *
+   * @param records number of records in the batch
+   * @param validityBuf validity bit of each record in the batch
+   */
+  public void filter(int records, ArrowBuf validityBuf) {
+    Preconditions.checkArgument(records <= Character.MAX_VALUE + 1);
+    if (!active || records == 0) {
+      return;
+    }
+
+    final int keySize = keyReader.getKeyBufSize();
+    try (FixedBlockVector fbv = new FixedBlockVector(allocator, pivotDef.getBlockWidth());
+        VariableBlockVector vbv = new VariableBlockVector(allocator, pivotDef.getVariableCount());
+        ArrowBuf keys = allocator.buffer((long) records * keySize);
+        ArrowBuf selection = allocator.buffer((long) records * SelectionVector2.RECORD_SIZE)) {
+      Pivots.pivot(pivotDef, records, fbv, vbv);
+
+      // build the keys of the valid rows back to back, and select them for the probe
+      final int blockWidth = pivotDef.getBlockWidth();
+      final long fixedAddr = fbv.getBuf().memoryAddress();
+      final long varAddr = pivotDef.getVariableCount() > 0 ? vbv.getBuf().memoryAddress() : -1;
+      final long keyHolderAddr = keyReader.getKeyHolder().memoryAddress();
+      int count = 0;
+      for (int i = 0; i < records; i++) {
+        if (BitVectorHelper.get(validityBuf, i) == 0) {
+          continue;
+        }
+        final long rowFixedAddr = fixedAddr + (long) blockWidth * i;
+        final long rowVarAddr =
+            varAddr == -1
+                ? -1
+                : varAddr + PlatformDependent.getInt(rowFixedAddr + blockWidth - VAR_OFFSET_SIZE);
+        keyReader.loadNextKey(rowFixedAddr, rowVarAddr);
+        PlatformDependent.copyMemory(
+            keyHolderAddr, keys.memoryAddress() + (long) i * keySize, keySize);
+        selection.setShort((long) count++ * SelectionVector2.RECORD_SIZE, i);
+      }
+
+      final int selected = bloomFilter.mightContain(keys, keySize, selection, count);
+
+      // the selection keeps the row order, so the rejected rows are the gaps between its entries
+      int next = 0;
+      for (int i = 0; i < records; i++) {
+        if (BitVectorHelper.get(validityBuf, i) == 0) {
+          continue;
+        }
+        if (next < selected
+            && Short.toUnsignedInt(selection.getShort((long) next * SelectionVector2.RECORD_SIZE))
+                == i) {
+          next++;
+        } else {
+          BitVectorHelper.unsetBit(validityBuf, i);
+        }
+      }
+      updateStats(count, count - selected);
+    }
+  }
+
+  private void updateStats(int probed, int rejected) {
+    probedRows += probed;
+    rejectedRows += rejected;
+    if (stats != null) {
+      stats.addLongStat(ScanOperator.Metric.NUM_RUNTIME_FILTERED_ROWS, rejected);
+    }
+    if (probedRows >= MIN_PROBED_ROWS && rejectedRows < probedRows * MIN_REJECTED_RATIO) {
+      logger.debug(
+          "Runtime filter rejected {} of {} rows, no longer applying it to rows",
+          rejectedRows,
+          probedRows);
+      active = false;
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    AutoCloseables.close(keyReader);
+  }
+}
@@ -42,12 +42,14 @@ import org.slf4j.LoggerFactory;
 
 /**
  * A POJO helper class for the protobuf struct RuntimeFilter The CompositeColumnFilter fields hold
- * the deserialized bloom filter.
+ * the deserialized bloom filter. Non partition column filters of type RANGE are kept apart from the
+ * value lists, as they hold only the bounds of the join key values.
  */
 public class RuntimeFilter implements AutoCloseable {
   private static final Logger logger = LoggerFactory.getLogger(RuntimeFilter.class);
   private CompositeColumnFilter partitionColumnFilter;
   private List<CompositeColumnFilter> nonPartitionColumnFilters;
+  private List<CompositeColumnFilter> rangeColumnFilters;
   private String senderInfo;
   private List<UserBitShared.RunTimeFilterDetailsInfoInScan> filterDetails;
 
@@ -63,8 +65,23 @@ public class RuntimeFilter implements AutoCloseable {
       List<CompositeColumnFilter> nonPartitionColumnFilters,
       String senderInfo,
       List<UserBitShared.RunTimeFilterDetailsInfoInScan> filterDetails) {
+    this(
+        partitionColumnFilter,
+        nonPartitionColumnFilters,
+        Collections.emptyList(),
+        senderInfo,
+        filterDetails);
+  }
+
+  public RuntimeFilter(
+      CompositeColumnFilter partitionColumnFilter,
+      List<CompositeColumnFilter> nonPartitionColumnFilters,
+      List<CompositeColumnFilter> rangeColumnFilters,
+      String senderInfo,
+      List<UserBitShared.RunTimeFilterDetailsInfoInScan> filterDetails) {
     this.partitionColumnFilter = partitionColumnFilter;
     this.nonPartitionColumnFilters = nonPartitionColumnFilters;
+    this.rangeColumnFilters = rangeColumnFilters;
     this.senderInfo = senderInfo;
     this.filterDetails = filterDetails;
   }
@@ -77,6 +94,11 @@ public class RuntimeFilter implements AutoCloseable {
     return nonPartitionColumnFilters;
   }
 
+  /** Filters holding the [min, max] range of the join key values of a non partition column. */
+  public List<CompositeColumnFilter> getRangeColumnFilters() {
+    return rangeColumnFilters;
+  }
+
   public String getSenderInfo() {
     return senderInfo;
   }
@@ -124,7 +146,11 @@ public class RuntimeFilter implements AutoCloseable {
       UserBitShared.RunTimeFilterDetailsInfoInScan.Builder runTimeFilterDetails =
           UserBitShared.RunTimeFilterDetailsInfoInScan.newBuilder();
       try {
-        final BloomFilter bloomFilter = BloomFilter.prepareFrom(pcBuffer);
+        final BloomFilter bloomFilter =
+            BloomFilter.prepareFrom(
+                pcBuffer,
+                partitionColFilterProto.getFilterType()
+                    == ExecProtos.RuntimeFilterType.SPLIT_BLOCK_BLOOM_FILTER);
         checkState(
             bloomFilter.getNumBitsSet() == partitionColFilterProto.getValueCount(),
             "BloomFilter value count mismatched. Expected %s, Actual %s",
@@ -158,6 +184,7 @@ public class RuntimeFilter implements AutoCloseable {
     }
 
     final List<CompositeColumnFilter> nonPartitionColFilters = new ArrayList<>(npcFilterCount);
+    final List<CompositeColumnFilter> rangeColFilters = new ArrayList<>();
     for (int i = 0; i < npcFilterCount; i++) {
       final ExecProtos.CompositeColumnFilter nonPartitionColFilterProto =
           protoFilter.getNonPartitionColumnFilter(i);
@@ -179,6 +206,31 @@ public class RuntimeFilter implements AutoCloseable {
             valueListFilter.getValueCount());
         valueListFilter.setFieldName(fieldName);
 
+        if (nonPartitionColFilterProto.getFilterType() == ExecProtos.RuntimeFilterType.RANGE) {
+          checkState(
+              valueListFilter.isRange() && valueListFilter.supportsRange(),
+              "Invalid range filter %s",
+              valueListFilter);
+          final CompositeColumnFilter rangeColFilter =
+              new CompositeColumnFilter.Builder()
+                  .setProtoFields(nonPartitionColFilterProto)
+                  .setValueList(valueListFilter)
+                  .build();
+          valueListFilter.buf().getReferenceManager().retain();
+          rangeColFilters.add(rangeColFilter);
+
+          runTimeFilterDetails
+              .setMinorFragmentId(fragmentHandle.getMinorFragmentId())
+              .setJoinSource(sourceJoinId)
+              .addAllProbeFieldNames(rangeColFilter.getColumnsList())
+              .setIsPartitionedColumn(false)
+              .setNumberOfValues(valueListFilter.getValueCount())
+              .setNumberOfHashFunctions(0)
+              .setOutputRecordsBeforePruning(stats.getRecordsProcessed());
+          filterDetails.add(runTimeFilterDetails.build());
+          continue;
+        }
+
         final CompositeColumnFilter.Builder nonPartitionColFilterBuilder =
             new CompositeColumnFilter.Builder()
                 .setProtoFields(nonPartitionColFilterProto)
@@ -224,16 +276,21 @@ public class RuntimeFilter implements AutoCloseable {
       filterDetails.add(runTimeFilterDetails.build());
     }
     checkState(
-        partitionColFilter != null || !nonPartitionColFilters.isEmpty(),
+        partitionColFilter != null
+            || !nonPartitionColFilters.isEmpty()
+            || !rangeColFilters.isEmpty(),
         "All filters are dropped.");
-    return new RuntimeFilter(partitionColFilter, nonPartitionColFilters, senderInfo, filterDetails);
+    return new RuntimeFilter(
+        partitionColFilter, nonPartitionColFilters, rangeColFilters, senderInfo, filterDetails);
   }
 
   public static RuntimeFilter getInstanceWithNewNonPartitionColFiltersList(RuntimeFilter filter) {
     return new RuntimeFilter(
         filter.getPartitionColumnFilter(),
         new ArrayList<>(filter.getNonPartitionColumnFilters()),
-        filter.getSenderInfo());
+        filter.getRangeColumnFilters(),
+        filter.getSenderInfo(),
+        Collections.emptyList());
   }
 
   /**
@@ -245,7 +302,8 @@ public class RuntimeFilter implements AutoCloseable {
   public boolean isOnSameColumns(final RuntimeFilter that) {
     if (((this.getPartitionColumnFilter() == null) != (that.getPartitionColumnFilter() == null))
         || (this.getNonPartitionColumnFilters().size()
-            != that.getNonPartitionColumnFilters().size())) {
+            != that.getNonPartitionColumnFilters().size())
+        || (this.getRangeColumnFilters().size() != that.getRangeColumnFilters().size())) {
       return false;
     }
 
@@ -260,7 +318,13 @@ public class RuntimeFilter implements AutoCloseable {
                 .anyMatch(t -> f.getColumnsList().equals(t.getColumnsList()));
     final boolean sameNonPartitionColumns =
         this.getNonPartitionColumnFilters().stream().allMatch(nonPartitionColFilterHasMatch);
-    return samePartitionColumns && sameNonPartitionColumns;
+    final Predicate<CompositeColumnFilter> rangeColFilterHasMatch =
+        f ->
+            that.rangeColumnFilters.stream()
+                .anyMatch(t -> f.getColumnsList().equals(t.getColumnsList()));
+    final boolean sameRangeColumns =
+        this.getRangeColumnFilters().stream().allMatch(rangeColFilterHasMatch);
+    return samePartitionColumns && sameNonPartitionColumns && sameRangeColumns;
   }
 
   @Override
@@ -270,6 +334,8 @@ public class RuntimeFilter implements AutoCloseable {
         + partitionColumnFilter
         + ", nonPartitionColumnFilters="
         + nonPartitionColumnFilters
+        + ", rangeColumnFilters="
+        + rangeColumnFilters
         + ", senderInfo='"
         + senderInfo
         + '\''
@@ -278,8 +344,10 @@ public class RuntimeFilter implements AutoCloseable {
 
   @Override
   public void close() throws Exception {
-    final List<AutoCloseable> closeables = new ArrayList<>(nonPartitionColumnFilters.size() + 1);
+    final List<AutoCloseable> closeables =
+        new ArrayList<>(nonPartitionColumnFilters.size() + rangeColumnFilters.size() + 1);
     closeables.addAll(nonPartitionColumnFilters);
+    closeables.addAll(rangeColumnFilters);
     closeables.add(partitionColumnFilter);
     AutoCloseables.close(closeables);
   }
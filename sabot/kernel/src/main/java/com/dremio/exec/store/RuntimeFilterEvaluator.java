@@ -68,8 +68,7 @@ public class RuntimeFilterEvaluator {
     final CompositeColumnFilter partitionColumnFilter = runtimeFilter.getPartitionColumnFilter();
     if (partitionColumnFilter == null
         || CollectionUtils.isEmpty(partitionValues)
-        || partitionColumnFilter.getFilterType()
-            != CompositeColumnFilter.RuntimeFilterType.BLOOM_FILTER) {
+        || !partitionColumnFilter.getFilterType().isBloomFilter()) {
       return true;
     }
 
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.cache;
+
+import com.dremio.common.concurrent.NamedThreadFactory;
+import com.dremio.config.DremioConfig;
+import com.dremio.exec.ExecConstants;
+import com.dremio.exec.store.dfs.AsyncStreamConf;
+import com.dremio.exec.store.dfs.CacheProperties;
+import com.dremio.exec.store.dfs.FileSystemWrapper;
+import com.dremio.io.file.FileSystem;
+import com.dremio.options.OptionManager;
+import com.dremio.sabot.exec.context.OperatorContext;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link FileSystemWrapper} implementation which adds a {@link LocalBlockCache} to the
+ * asynchronous reads of sources requesting caching through their {@link CacheProperties}. The cache
+ * is shared by all sources of the executor and created on first use, under the {@code
+ * services.executor.cache.path.db} directory, along with the pool of threads doing its local disk
+ * I/O.
+ */
+public class BlockCacheFileSystemWrapper implements FileSystemWrapper {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(BlockCacheFileSystemWrapper.class);
+
+  private static final String CACHE_DIR_NAME = "blocks";
+
+  private final FileSystemWrapper defaultWrapper;
+  private final DremioConfig dremioConfig;
+  private final OptionManager globalOptions;
+
+  private volatile LocalBlockCache cache;
+  private ExecutorService ioExecutor;
+
+  public BlockCacheFileSystemWrapper(
+      FileSystemWrapper defaultWrapper, DremioConfig dremioConfig, OptionManager globalOptions) {
+    this.defaultWrapper = defaultWrapper;
+    this.dremioConfig = dremioConfig;
+    this.globalOptions = globalOptions;
+  }
+
+  @Override
+  public FileSystem wrap(
+      FileSystem fs,
+      String storageId,
+      AsyncStreamConf conf,
+      OperatorContext context,
+      boolean enableAsync,
+      boolean isMetadataRefresh)
+      throws IOException {
+    final FileSystem wrappedFs =
+        defaultWrapper.wrap(fs, storageId, conf, context, enableAsync, isMetadataRefresh);
+    // the staging buffers of remote reads are charged to the operator's allocator
+    if (!enableAsync || conf == null || storageId == null || context == null) {
+      return wrappedFs;
+    }
+
+    // use options from the OperatorContext if available, otherwise fall back to global options
+    final OptionManager options =
+        context != null && context.getOptions() != null ? context.getOptions() : globalOptions;
+    final CacheProperties cacheProperties = conf.getCacheProperties();
+    if (!options.getOption(ExecConstants.BLOCK_CACHE_ENABLED)
+        || !cacheProperties.isCachingEnabled(options)) {
+      return wrappedFs;
+    }
+
+    final LocalBlockCache blockCache = getCache(options);
+    return new BlockCachingFileSystem(
+        wrappedFs,
+        blockCache,
+        ioExecutor,
+        context.getAllocator(),
+        storageId,
+        cacheProperties.cacheMaxSpaceLimitPct());
+  }
+
+  private LocalBlockCache getCache(OptionManager options) throws IOException {
+    if (cache == null) {
+      synchronized (this) {
+        if (cache == null) {
+          final Path directory =
+              Paths.get(dremioConfig.getString(DremioConfig.CACHE_DB_PATH)).resolve(CACHE_DIR_NAME);
+          final int threads = (int) options.getOption(ExecConstants.BLOCK_CACHE_IO_THREADS);
+          final ThreadPoolExecutor executor =
+              new ThreadPoolExecutor(
+                  threads,
+                  threads,
+                  1,
+                  TimeUnit.MINUTES,
+                  new LinkedBlockingQueue<>(),
+                  new NamedThreadFactory("block-cache-io"));
+          executor.allowCoreThreadTimeOut(true);
+          // published before the volatile write of the cache
+          ioExecutor = executor;
+          cache =
+              new LocalBlockCache(
+                  directory,
+                  (int) options.getOption(ExecConstants.BLOCK_CACHE_BLOCK_SIZE_BYTES),
+                  options.getOption(ExecConstants.BLOCK_CACHE_MAX_SIZE_BYTES));
+        }
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Note this does not unwrap to a FileSystem instance, it supports unwrapping on the contained
+   * FileSystemWrapper.
+   */
+  @Override
+  public <T> T unwrap(Class<T> clazz) {
+    if (clazz.isInstance(this)) {
+      return clazz.cast(this);
+    }
+
+    return defaultWrapper.unwrap(clazz);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> clazz) {
+    return clazz.isInstance(this) || defaultWrapper.isWrapperFor(clazz);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (ioExecutor != null) {
+        ioExecutor.shutdown();
+      }
+      if (cache != null) {
+        cache.close();
+      }
+    } catch (IOException e) {
+      logger.warn("Failure while cleaning up the local block cache", e);
+    } finally {
+      defaultWrapper.close();
+    }
+  }
+}
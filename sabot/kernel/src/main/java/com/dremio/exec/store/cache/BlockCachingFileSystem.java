@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.cache;
+
+import com.dremio.io.AsyncByteReader;
+import com.dremio.io.file.FileSystem;
+import com.dremio.io.file.FilterFileSystem;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import org.apache.arrow.memory.BufferAllocator;
+
+/**
+ * A {@link FileSystem} whose asynchronous readers go through a {@link LocalBlockCache}. Other calls
+ * are passed to the wrapped FileSystem. Remote reads are staged in buffers of the allocator of the
+ * operator the FileSystem was created for.
+ */
+class BlockCachingFileSystem extends FilterFileSystem {
+
+  private final LocalBlockCache cache;
+  private final Executor ioExecutor;
+  private final BufferAllocator allocator;
+  private final String sourceId;
+  private final int maxSpacePct;
+
+  BlockCachingFileSystem(
+      FileSystem fs,
+      LocalBlockCache cache,
+      Executor ioExecutor,
+      BufferAllocator allocator,
+      String sourceId,
+      int maxSpacePct) {
+    super(fs);
+    this.cache = cache;
+    this.ioExecutor = ioExecutor;
+    this.allocator = allocator;
+    this.sourceId = sourceId;
+    this.maxSpacePct = maxSpacePct;
+  }
+
+  @Override
+  public AsyncByteReader getAsyncByteReader(
+      AsyncByteReader.FileKey fileKey, Map<String, String> options) throws IOException {
+    return new CachingAsyncByteReader(
+        super.getAsyncByteReader(fileKey, options),
+        cache,
+        allocator,
+        ioExecutor,
+        fileKey.getPluginUID().orElse(sourceId),
+        fileKey,
+        maxSpacePct,
+        () -> getFileAttributes(fileKey.getPath()).size());
+  }
+}
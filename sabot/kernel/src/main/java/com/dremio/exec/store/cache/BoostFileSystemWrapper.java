@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.cache;
+
+import com.dremio.config.DremioConfig;
+import com.dremio.exec.ExecConstants;
+import com.dremio.exec.store.dfs.AsyncStreamConf;
+import com.dremio.exec.store.dfs.FileSystemWrapper;
+import com.dremio.io.file.FileSystem;
+import com.dremio.options.OptionManager;
+import com.dremio.sabot.exec.context.OperatorContext;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A {@link FileSystemWrapper} implementation which makes the file systems of all sources support
+ * boosting, by storing boost files in a {@link LocalBoostedFileSystem} shared by the executor. The
+ * boosted file system is created on first use, under the {@code services.executor.cache.path.db}
+ * directory.
+ */
+public class BoostFileSystemWrapper implements FileSystemWrapper {
+
+  private static final String BOOST_DIR_NAME = "boost";
+
+  private final FileSystemWrapper defaultWrapper;
+  private final DremioConfig dremioConfig;
+  private final OptionManager globalOptions;
+
+  private volatile LocalBoostedFileSystem boostedFileSystem;
+
+  public BoostFileSystemWrapper(
+      FileSystemWrapper defaultWrapper, DremioConfig dremioConfig, OptionManager globalOptions) {
+    this.defaultWrapper = defaultWrapper;
+    this.dremioConfig = dremioConfig;
+    this.globalOptions = globalOptions;
+  }
+
+  @Override
+  public FileSystem wrap(
+      FileSystem fs,
+      String storageId,
+      AsyncStreamConf conf,
+      OperatorContext context,
+      boolean enableAsync,
+      boolean isMetadataRefresh)
+      throws IOException {
+    final FileSystem wrappedFs =
+        defaultWrapper.wrap(fs, storageId, conf, context, enableAsync, isMetadataRefresh);
+    if (isMetadataRefresh || storageId == null || wrappedFs.supportsBoosting()) {
+      return wrappedFs;
+    }
+
+    // use options from the OperatorContext if available, otherwise fall back to global options
+    final OptionManager options =
+        context != null && context.getOptions() != null ? context.getOptions() : globalOptions;
+    if (!options.getOption(ExecConstants.ENABLE_BOOSTING)
+        || !options.getOption(ExecConstants.LOCAL_BOOST_ENABLED)) {
+      return wrappedFs;
+    }
+
+    return new BoostingFileSystem(wrappedFs, getBoostedFileSystem(options));
+  }
+
+  private LocalBoostedFileSystem getBoostedFileSystem(OptionManager options) throws IOException {
+    if (boostedFileSystem == null) {
+      synchronized (this) {
+        if (boostedFileSystem == null) {
+          final Path directory =
+              Paths.get(dremioConfig.getString(DremioConfig.CACHE_DB_PATH)).resolve(BOOST_DIR_NAME);
+          boostedFileSystem =
+              new LocalBoostedFileSystem(
+                  directory, options.getOption(ExecConstants.LOCAL_BOOST_MAX_SIZE_BYTES));
+        }
+      }
+    }
+    return boostedFileSystem;
+  }
+
+  /**
+   * Note this does not unwrap to a FileSystem instance, it supports unwrapping on the contained
+   * FileSystemWrapper.
+   */
+  @Override
+  public <T> T unwrap(Class<T> clazz) {
+    if (clazz.isInstance(this)) {
+      return clazz.cast(this);
+    }
+
+    return defaultWrapper.unwrap(clazz);
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> clazz) {
+    return clazz.isInstance(this) || defaultWrapper.isWrapperFor(clazz);
+  }
+
+  @Override
+  public void close() throws IOException {
+    defaultWrapper.close();
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.cache;
+
+import com.dremio.io.file.BoostedFileSystem;
+import com.dremio.io.file.FileSystem;
+import com.dremio.io.file.FilterFileSystem;
+
+/**
+ * A {@link FileSystem} which supports boosting through a {@link LocalBoostedFileSystem}. Other
+ * calls are passed to the wrapped FileSystem.
+ */
+class BoostingFileSystem extends FilterFileSystem {
+
+  private final LocalBoostedFileSystem boostedFileSystem;
+
+  BoostingFileSystem(FileSystem fs, LocalBoostedFileSystem boostedFileSystem) {
+    super(fs);
+    this.boostedFileSystem = boostedFileSystem;
+  }
+
+  @Override
+  public boolean supportsBoosting() {
+    return true;
+  }
+
+  @Override
+  public BoostedFileSystem getBoostedFilesystem() {
+    return boostedFileSystem;
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.cache;
+
+import com.dremio.exec.store.cache.LocalBlockCache.BlockKey;
+import com.dremio.io.AsyncByteReader;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.NettyArrowBuf;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.apache.arrow.memory.BufferAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link AsyncByteReader} serving reads from a {@link LocalBlockCache} when possible.
+ *
+ * <p>A read is split into cache blocks. Cached blocks are copied from local disk, and every run of
+ * consecutive missing blocks is fetched from the wrapped reader with a single block aligned read,
+ * added to the cache, and copied to the destination. The length of the file is only looked up on
+ * the first miss, to avoid reading past its end.
+ *
+ * <p>Local disk reads and writes never run on the caller's thread nor on the thread completing the
+ * remote read: they are handed to the cache's I/O executor. Remote reads are staged in buffers of
+ * the operator's allocator, which are kept until the blocks are written, and {@link #close()} waits
+ * for the pending writes so that they are all released before the allocator is closed.
+ */
+class CachingAsyncByteReader implements AsyncByteReader {
+  private static final Logger logger = LoggerFactory.getLogger(CachingAsyncByteReader.class);
+
+  // bounds the size of the staging buffer of a single remote read
+  static final int MAX_BLOCKS_PER_READ = 16;
+
+  private final AsyncByteReader reader;
+  private final LocalBlockCache cache;
+  private final BufferAllocator allocator;
+  private final Executor ioExecutor;
+  private final String sourceId;
+  private final String path;
+  private final String version;
+  private final int maxSpacePct;
+  private final Callable<Long> fileLengthProvider;
+  private final Set<CompletableFuture<Void>> pendingWrites = ConcurrentHashMap.newKeySet();
+  private volatile long fileLength = -1;
+
+  CachingAsyncByteReader(
+      AsyncByteReader reader,
+      LocalBlockCache cache,
+      BufferAllocator allocator,
+      Executor ioExecutor,
+      String sourceId,
+      FileKey fileKey,
+      int maxSpacePct,
+      Callable<Long> fileLengthProvider) {
+    this.reader = reader;
+    this.cache = cache;
+    this.allocator = allocator;
+    this.ioExecutor = ioExecutor;
+    this.sourceId = sourceId;
+    this.path = fileKey.getPath().toString();
+    this.version = fileKey.getVersion();
+    this.maxSpacePct = maxSpacePct;
+    this.fileLengthProvider = fileLengthProvider;
+  }
+
+  @Override
+  public CompletableFuture<Void> readFully(long offset, ByteBuf dst, int dstOffset, int len) {
+    if (len == 0) {
+      return reader.readFully(offset, dst, dstOffset, len);
+    }
+
+    return CompletableFuture.supplyAsync(
+            () -> readFromCache(offset, dst, dstOffset, len), ioExecutor)
+        .thenCompose(read -> read);
+  }
+
+  /**
+   * Copy the cached blocks of the range into dst and start the remote reads of the missing ones.
+   * Runs on the I/O executor, as cache hits are read from local disk.
+   */
+  private CompletableFuture<Void> readFromCache(long offset, ByteBuf dst, int dstOffset, int len) {
+    final int blockSize = cache.getBlockSize();
+    final long end = offset + len;
+    final List<CompletableFuture<Void>> reads = new ArrayList<>();
+    long block = offset - offset % blockSize;
+    while (block < end) {
+      final long start = Math.max(offset, block);
+      final long stop = Math.min(end, block + blockSize);
+      if (cache.read(
+          key(block),
+          (int) (start - block),
+          dst,
+          dstOffset + (int) (start - offset),
+          (int) (stop - start))) {
+        block += blockSize;
+        continue;
+      }
+
+      long missEnd = block + blockSize;
+      int missing = 1;
+      while (missEnd < end && missing < MAX_BLOCKS_PER_READ && !cache.contains(key(missEnd))) {
+        missEnd += blockSize;
+        missing++;
+      }
+      cache.addMisses(missing);
+      reads.add(readAndCache(block, missEnd, offset, end, dst, dstOffset));
+      block = missEnd;
+    }
+
+    if (reads.isEmpty()) {
+      return completedFuture;
+    }
+    if (reads.size() == 1) {
+      return reads.get(0);
+    }
+    return CompletableFuture.allOf(reads.toArray(new CompletableFuture[0]));
+  }
+
+  /**
+   * Read blocks [blockStart, blockEnd) from the source, copy the part overlapping the request into
+   * dst and cache them.
+   */
+  private CompletableFuture<Void> readAndCache(
+      long blockStart, long blockEnd, long offset, long end, ByteBuf dst, int dstOffset) {
+    final long copyStart = Math.max(offset, blockStart);
+    final long copyEnd = Math.min(end, blockEnd);
+
+    final long length;
+    try {
+      length = getFileLength();
+    } catch (Exception e) {
+      logger.debug("Unable to get the length of {}, bypassing the cache", path, e);
+      return passThrough(copyStart, copyEnd, offset, dst, dstOffset);
+    }
+    final long readEnd = Math.min(blockEnd, length);
+    if (readEnd < copyEnd) {
+      // reading past the end of the file, let the source report it
+      return passThrough(copyStart, copyEnd, offset, dst, dstOffset);
+    }
+
+    final int readLength = (int) (readEnd - blockStart);
+    final ByteBuf buf = NettyArrowBuf.unwrapBuffer(allocator.buffer(readLength));
+    final CompletableFuture<Void> copied;
+    try {
+      copied =
+          reader
+              .readFully(blockStart, buf, 0, readLength)
+              .thenRun(
+                  () ->
+                      dst.setBytes(
+                          dstOffset + (int) (copyStart - offset),
+                          buf,
+                          (int) (copyStart - blockStart),
+                          (int) (copyEnd - copyStart)));
+    } catch (RuntimeException e) {
+      buf.release();
+      throw e;
+    }
+
+    // cache on the I/O executor, the returned future completes once the write is queued so that
+    // close() waits for it
+    return copied.whenComplete(
+        (v, e) -> {
+          if (e != null) {
+            buf.release();
+            return;
+          }
+          final CompletableFuture<Void> write = new CompletableFuture<>();
+          pendingWrites.add(write);
+          try {
+            ioExecutor.execute(
+                () -> {
+                  try {
+                    cacheBlocks(blockStart, readEnd, buf);
+                  } finally {
+                    buf.release();
+                    pendingWrites.remove(write);
+                    write.complete(null);
+                  }
+                });
+          } catch (RejectedExecutionException rejected) {
+            logger.debug("Block cache is shutting down, not caching {}", path, rejected);
+            buf.release();
+            pendingWrites.remove(write);
+            write.complete(null);
+          }
+        });
+  }
+
+  private void cacheBlocks(long blockStart, long readEnd, ByteBuf buf) {
+    final int blockSize = cache.getBlockSize();
+    for (long block = blockStart; block < readEnd; block += blockSize) {
+      final int blockLength = (int) Math.min(blockSize, readEnd - block);
+      cache.put(key(block), buf, (int) (block - blockStart), blockLength, maxSpacePct);
+    }
+  }
+
+  private CompletableFuture<Void> passThrough(
+      long start, long stop, long offset, ByteBuf dst, int dstOffset) {
+    return reader.readFully(start, dst, dstOffset + (int) (start - offset), (int) (stop - start));
+  }
+
+  private long getFileLength() throws Exception {
+    if (fileLength < 0) {
+      fileLength = fileLengthProvider.call();
+    }
+    return fileLength;
+  }
+
+  private BlockKey key(long blockOffset) {
+    return new BlockKey(sourceId, path, version, blockOffset);
+  }
+
+  @Override
+  public CompletableFuture<Void> checkVersion(String version) {
+    return reader.checkVersion(version);
+  }
+
+  @Override
+  public List<ReaderStat> getStats() {
+    return reader.getStats();
+  }
+
+  @Override
+  public void close() throws Exception {
+    try {
+      CompletableFuture.allOf(pendingWrites.toArray(new CompletableFuture[0])).join();
+    } finally {
+      reader.close();
+    }
+  }
+}
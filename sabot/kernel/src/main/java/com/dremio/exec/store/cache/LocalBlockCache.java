@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.cache;
+
+import com.dremio.telemetry.api.metrics.Metrics;
+import com.dremio.telemetry.api.metrics.SimpleCounter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An executor-local cache of fixed size blocks of remote files, kept as individual files in a local
+ * directory. The index lives in memory only, so the directory is wiped when the cache is created
+ * and closed.
+ *
+ * <p>Eviction follows access order, with a second chance for frequently read blocks: a block that
+ * was hit since it was last considered for eviction has its hit count halved and is kept, so that
+ * blocks read by every run of a dashboard survive a one-off large scan. Space is bounded both
+ * globally and per source, see {@link #put}.
+ *
+ * <p>Thread-safe. File IO happens outside of the index lock; a block evicted while it is being read
+ * is simply reported as a miss.
+ */
+public class LocalBlockCache implements AutoCloseable {
+  private static final Logger logger = LoggerFactory.getLogger(LocalBlockCache.class);
+
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final int SUB_DIRECTORIES = 256;
+
+  private final Path root;
+  private final int blockSize;
+  private final long maxBytes;
+
+  // access ordered, eldest first
+  private final LinkedHashMap<BlockKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Long> sourceBytes = new HashMap<>();
+  private long usedBytes;
+  private long nextFileId;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong bytesSaved = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final SimpleCounter hitCounter =
+      SimpleCounter.of(
+          Metrics.join("block_cache", "hits"), "Number of blocks read from the local block cache");
+  private final SimpleCounter missCounter =
+      SimpleCounter.of(
+          Metrics.join("block_cache", "misses"),
+          "Number of blocks read from the source and added to the local block cache");
+  private final SimpleCounter bytesSavedCounter =
+      SimpleCounter.of(
+          Metrics.join("block_cache", "bytes_saved"),
+          "Number of bytes read from the local block cache instead of the source");
+  private final SimpleCounter evictionCounter =
+      SimpleCounter.of(
+          Metrics.join("block_cache", "evictions"),
+          "Number of blocks evicted from the local block cache");
+
+  public LocalBlockCache(Path root, int blockSize, long maxBytes) throws IOException {
+    Preconditions.checkArgument(blockSize > 0, "block size must be positive");
+    Preconditions.checkArgument(maxBytes > 0, "cache size must be positive");
+    this.root = root;
+    this.blockSize = blockSize;
+    this.maxBytes = maxBytes;
+
+    Files.createDirectories(root);
+    deleteContents(root);
+    logger.info(
+        "Created local block cache at {} with block size {} and capacity {}",
+        root,
+        blockSize,
+        maxBytes);
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Read {@code length} bytes of the given block, starting at {@code offsetInBlock}, into {@code
+   * dst}.
+   *
+   * @return {@code true} if the bytes were read from the cache, {@code false} if the block is not
+   *     (or no longer) cached, in which case the content of dst is undefined
+   */
+  public boolean read(BlockKey key, int offsetInBlock, ByteBuf dst, int dstIndex, int length) {
+    final Entry entry;
+    synchronized (this) {
+      entry = entries.get(key);
+      if (entry == null || entry.length < offsetInBlock + length) {
+        return false;
+      }
+      entry.hits++;
+    }
+
+    try (FileChannel channel = FileChannel.open(entry.file, StandardOpenOption.READ)) {
+      int read = 0;
+      while (read < length) {
+        final int n = dst.setBytes(dstIndex + read, channel, offsetInBlock + read, length - read);
+        if (n < 0) {
+          throw new IOException("Unexpected end of cached block " + entry.file);
+        }
+        read += n;
+      }
+    } catch (NoSuchFileException e) {
+      // evicted in the meantime
+      return false;
+    } catch (IOException e) {
+      logger.warn("Failure while reading cached block {}, dropping it", entry.file, e);
+      invalidate(key, entry);
+      return false;
+    }
+
+    hits.incrementAndGet();
+    hitCounter.increment();
+    bytesSaved.addAndGet(length);
+    bytesSavedCounter.increment(length);
+    return true;
+  }
+
+  public synchronized boolean contains(BlockKey key) {
+    // does not count as an access
+    return entries.containsKey(key);
+  }
+
+  /** Record blocks that had to be read from the source. */
+  public void addMisses(int blocks) {
+    misses.addAndGet(blocks);
+    missCounter.increment(blocks);
+  }
+
+  /**
+   * Add a block to the cache, evicting blocks as needed so that the cache stays within its capacity
+   * and the blocks of the source stay within {@code maxSpacePct} percent of it. Blocks larger than
+   * the space allowed for the source are not cached.
+   */
+  public void put(BlockKey key, ByteBuf src, int srcIndex, int length, int maxSpacePct) {
+    final long sourceLimit = maxBytes * Math.max(0, Math.min(100, maxSpacePct)) / 100;
+    if (length > sourceLimit || contains(key)) {
+      return;
+    }
+
+    final Path file;
+    synchronized (this) {
+      final long id = nextFileId++;
+      file = root.resolve(Long.toString(id % SUB_DIRECTORIES)).resolve(Long.toString(id));
+    }
+    final Path tmpFile = file.resolveSibling(file.getFileName() + TMP_SUFFIX);
+    try {
+      Files.createDirectories(file.getParent());
+      try (FileChannel channel =
+          FileChannel.open(tmpFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+        int written = 0;
+        while (written < length) {
+          written += src.getBytes(srcIndex + written, channel, written, length - written);
+        }
+      }
+      Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.warn("Failure while adding block to the cache at {}", file, e);
+      deleteQuietly(tmpFile);
+      return;
+    }
+
+    final List<Path> evicted = new ArrayList<>();
+    boolean added = false;
+    synchronized (this) {
+      if (!entries.containsKey(key)) {
+        evict(
+            e -> e.sourceId.equals(key.sourceId),
+            () -> getSourceBytes(key.sourceId) + length > sourceLimit,
+            evicted);
+        evict(e -> true, () -> usedBytes + length > maxBytes, evicted);
+        entries.put(key, new Entry(file, length, key.sourceId));
+        usedBytes += length;
+        sourceBytes.merge(key.sourceId, (long) length, Long::sum);
+        added = true;
+      }
+    }
+
+    if (!added) {
+      // another reader cached the same block in the meantime
+      evicted.add(file);
+    }
+    evicted.forEach(LocalBlockCache::deleteQuietly);
+  }
+
+  private void evict(Predicate<Entry> candidate, BooleanSupplier needsRoom, List<Path> evicted) {
+    // first pass favours blocks that are read often, second pass is plain LRU
+    for (int pass = 0; pass < 2 && needsRoom.getAsBoolean(); pass++) {
+      final List<BlockKey> secondChance = new ArrayList<>();
+      final Iterator<Map.Entry<BlockKey, Entry>> it = entries.entrySet().iterator();
+      while (it.hasNext() && needsRoom.getAsBoolean()) {
+        final Map.Entry<BlockKey, Entry> mapEntry = it.next();
+        final Entry entry = mapEntry.getValue();
+        if (!candidate.test(entry)) {
+          continue;
+        }
+        if (pass == 0 && entry.hits > 0) {
+          entry.hits /= 2;
+          secondChance.add(mapEntry.getKey());
+          continue;
+        }
+        it.remove();
+        release(entry);
+        evicted.add(entry.file);
+        evictions.incrementAndGet();
+        evictionCounter.increment();
+      }
+      // move the blocks given a second chance to the most recently used end
+      secondChance.forEach(entries::get);
+    }
+  }
+
+  private void invalidate(BlockKey key, Entry entry) {
+    synchronized (this) {
+      if (!entries.remove(key, entry)) {
+        return;
+      }
+      release(entry);
+    }
+    deleteQuietly(entry.file);
+  }
+
+  private void release(Entry entry) {
+    usedBytes -= entry.length;
+    sourceBytes.computeIfPresent(
+        entry.sourceId, (k, v) -> v == entry.length ? null : v - entry.length);
+  }
+
+  private long getSourceBytes(String sourceId) {
+    return sourceBytes.getOrDefault(sourceId, 0L);
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public long getBytesSaved() {
+    return bytesSaved.get();
+  }
+
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  @VisibleForTesting
+  synchronized long getUsedBytes(String sourceId) {
+    return getSourceBytes(sourceId);
+  }
+
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      entries.clear();
+      sourceBytes.clear();
+      usedBytes = 0;
+    }
+    deleteContents(root);
+  }
+
+  private static void deleteContents(Path directory) throws IOException {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path path : stream) {
+        if (Files.isDirectory(path)) {
+          deleteContents(path);
+        }
+        Files.deleteIfExists(path);
+      }
+    }
+  }
+
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      logger.debug("Unable to delete cached block {}", file, e);
+    }
+  }
+
+  private static final class Entry {
+    private final Path file;
+    private final int length;
+    private final String sourceId;
+    private int hits;
+
+    private Entry(Path file, int length, String sourceId) {
+      this.file = file;
+      this.length = length;
+      this.sourceId = sourceId;
+    }
+  }
+
+  /** Identifies a block by the source and version of the file it belongs to and its offset. */
+  public static final class BlockKey {
+    private final String sourceId;
+    private final String path;
+    private final String version;
+    private final long offset;
+
+    public BlockKey(String sourceId, String path, String version, long offset) {
+      this.sourceId = Preconditions.checkNotNull(sourceId);
+      this.path = Preconditions.checkNotNull(path);
+      this.version = Preconditions.checkNotNull(version);
+      this.offset = offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final BlockKey that = (BlockKey) o;
+      return offset == that.offset
+          && sourceId.equals(that.sourceId)
+          && path.equals(that.path)
+          && version.equals(that.version);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sourceId, path, version, offset);
+    }
+
+    @Override
+    public String toString() {
+      return sourceId + ":" + path + "@" + version + "[" + offset + "]";
+    }
+  }
+}
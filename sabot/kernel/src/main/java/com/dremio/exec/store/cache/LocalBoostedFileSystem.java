@@ -0,0 +1,436 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.cache;
+
+import com.dremio.common.collections.Tuple;
+import com.dremio.io.AsyncByteReader;
+import com.dremio.io.AsyncByteReader.ReaderStat;
+import com.dremio.io.FSInputStream;
+import com.dremio.io.FSOutputStream;
+import com.dremio.io.file.BoostedFileSystem;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.arrow.memory.BufferAllocator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link BoostedFileSystem} keeping boost files on a local disk. Each (file, version, row group,
+ * column) is stored as one file named after a hash of its key, so committed files survive restarts:
+ * the index is rebuilt from the directory when the file system is created.
+ *
+ * <p>Boost files are written to a temporary file which is moved in place on commit, and deleted on
+ * abort. Committed files are evicted in least recently read order once their total size goes over
+ * the capacity. Reads are served from a memory mapping of the file, so the decoded column is copied
+ * once from the page cache into the reader's buffers, without going through Parquet decoding.
+ *
+ * <p>Thread-safe. A file evicted while it is mapped remains readable until the mapping is released.
+ */
+public class LocalBoostedFileSystem implements BoostedFileSystem {
+  private static final Logger logger = LoggerFactory.getLogger(LocalBoostedFileSystem.class);
+
+  public static final String BOOST_HIT = "boostHit";
+  public static final String BOOST_MISS = "boostMiss";
+
+  private static final String FILE_SUFFIX = ".arrow";
+  private static final String IN_PROGRESS_SUFFIX = ".inprogress";
+
+  private final Path root;
+  private final long maxBytes;
+
+  // access ordered, eldest first
+  private final LinkedHashMap<String, Long> committed = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<String, Path> inFlight = new ConcurrentHashMap<>();
+  private long usedBytes;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  public LocalBoostedFileSystem(Path root, long maxBytes) throws IOException {
+    Preconditions.checkArgument(maxBytes > 0, "boost capacity must be positive");
+    this.root = root;
+    this.maxBytes = maxBytes;
+
+    Files.createDirectories(root);
+    load();
+    logger.info(
+        "Opened local boost file system at {} with {} files, {} bytes used out of {}",
+        root,
+        committed.size(),
+        usedBytes,
+        maxBytes);
+  }
+
+  @Override
+  public FSOutputStream createBoostFile(
+      AsyncByteReader.FileKey fileKey, long offset, String columnName) throws IOException {
+    final String name = name(fileKey, offset, columnName);
+    synchronized (this) {
+      if (committed.containsKey(name)) {
+        throw new FileAlreadyExistsException(
+            String.format(
+                "Column %s of %s at offset %d is already boosted",
+                columnName, fileKey.getPath(), offset));
+      }
+    }
+
+    final Path file = file(name);
+    final Path tmp = file.resolveSibling(name + IN_PROGRESS_SUFFIX);
+    if (inFlight.putIfAbsent(name, tmp) != null) {
+      throw new FileAlreadyExistsException(
+          String.format(
+              "Column %s of %s at offset %d is already being boosted",
+              columnName, fileKey.getPath(), offset));
+    }
+    try {
+      Files.createDirectories(file.getParent());
+      return new BoostFileOutputStream(
+          Files.newOutputStream(
+              tmp,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE));
+    } catch (IOException | RuntimeException e) {
+      inFlight.remove(name);
+      throw e;
+    }
+  }
+
+  @Override
+  public Tuple<FSInputStream, Long> getBoostFile(
+      AsyncByteReader.FileKey fileKey,
+      long offset,
+      String columnName,
+      List<ReaderStat> stats,
+      BufferAllocator allocator)
+      throws IOException {
+    final String name = name(fileKey, offset, columnName);
+    final boolean found;
+    synchronized (this) {
+      found = committed.get(name) != null;
+    }
+    if (found) {
+      try (FileChannel channel = FileChannel.open(file(name), StandardOpenOption.READ)) {
+        final long size = channel.size();
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        hits.incrementAndGet();
+        addStat(stats, BOOST_HIT);
+        return Tuple.of(new MappedFSInputStream(buffer), size);
+      } catch (NoSuchFileException e) {
+        // evicted in the meantime
+        synchronized (this) {
+          forget(name);
+        }
+      }
+    }
+    misses.incrementAndGet();
+    addStat(stats, BOOST_MISS);
+    return null;
+  }
+
+  @Override
+  public void commitBoostFile(AsyncByteReader.FileKey fileKey, long offset, String columnName)
+      throws IOException {
+    final String name = name(fileKey, offset, columnName);
+    final Path tmp = inFlight.remove(name);
+    if (tmp == null) {
+      throw new IOException(
+          String.format(
+              "No boost file in progress for column %s of %s at offset %d",
+              columnName, fileKey.getPath(), offset));
+    }
+
+    final long size = Files.size(tmp);
+    if (size > Integer.MAX_VALUE || size > maxBytes) {
+      // too large to be mapped at once, or to fit in the file system
+      Files.deleteIfExists(tmp);
+      throw new IOException(
+          String.format(
+              "Boost file of column %s of %s at offset %d is too large (%d bytes)",
+              columnName, fileKey.getPath(), offset, size));
+    }
+
+    final List<String> evicted;
+    synchronized (this) {
+      Files.move(tmp, file(name), StandardCopyOption.ATOMIC_MOVE);
+      forget(name);
+      committed.put(name, size);
+      usedBytes += size;
+      evicted = evict();
+    }
+    delete(evicted);
+  }
+
+  @Override
+  public void abortBoostFile(AsyncByteReader.FileKey fileKey, long offset, String columnName)
+      throws IOException {
+    final Path tmp = inFlight.remove(name(fileKey, offset, columnName));
+    if (tmp != null) {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  @VisibleForTesting
+  synchronized int getFileCount() {
+    return committed.size();
+  }
+
+  private void forget(String name) {
+    final Long size = committed.remove(name);
+    if (size != null) {
+      usedBytes -= size;
+    }
+  }
+
+  private List<String> evict() {
+    final List<String> evicted = new ArrayList<>();
+    final Iterator<Map.Entry<String, Long>> iterator = committed.entrySet().iterator();
+    while (usedBytes > maxBytes && iterator.hasNext()) {
+      final Map.Entry<String, Long> eldest = iterator.next();
+      iterator.remove();
+      usedBytes -= eldest.getValue();
+      evicted.add(eldest.getKey());
+      evictions.incrementAndGet();
+    }
+    return evicted;
+  }
+
+  private void delete(List<String> names) {
+    for (String name : names) {
+      try {
+        Files.deleteIfExists(file(name));
+      } catch (IOException e) {
+        logger.warn("Failure while deleting evicted boost file {}", name, e);
+      }
+    }
+  }
+
+  /** Rebuilds the index from the committed files, oldest first, and drops leftover writes. */
+  private void load() throws IOException {
+    final List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> directories = Files.newDirectoryStream(root)) {
+      for (Path directory : directories) {
+        if (!Files.isDirectory(directory)) {
+          continue;
+        }
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+          for (Path child : children) {
+            if (child.getFileName().toString().endsWith(FILE_SUFFIX)) {
+              files.add(child);
+            } else {
+              Files.deleteIfExists(child);
+            }
+          }
+        }
+      }
+    }
+
+    final Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<>();
+    for (Path file : files) {
+      attributes.put(file, Files.readAttributes(file, BasicFileAttributes.class));
+    }
+    files.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+    for (Path file : files) {
+      final String fileName = file.getFileName().toString();
+      final long size = attributes.get(file).size();
+      committed.put(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()), size);
+      usedBytes += size;
+    }
+    delete(evict());
+  }
+
+  private Path file(String name) {
+    return root.resolve(name.substring(0, 2)).resolve(name + FILE_SUFFIX);
+  }
+
+  private static String name(AsyncByteReader.FileKey fileKey, long offset, String columnName) {
+    // the dataset is not part of the key, as readers only know the file they are reading
+    return Hashing.sha256()
+        .newHasher()
+        .putString(fileKey.getPath().toString(), StandardCharsets.UTF_8)
+        .putByte((byte) 0)
+        .putString(fileKey.getVersion(), StandardCharsets.UTF_8)
+        .putByte((byte) 0)
+        .putLong(offset)
+        .putString(columnName.toLowerCase(Locale.ROOT), StandardCharsets.UTF_8)
+        .hash()
+        .toString();
+  }
+
+  private static void addStat(List<ReaderStat> stats, String name) {
+    if (stats == null) {
+      return;
+    }
+    for (ReaderStat stat : stats) {
+      if (stat.getName().equals(name)) {
+        stat.setValue(stat.getValue() + 1);
+        return;
+      }
+    }
+    stats.add(new ReaderStat(name, 1));
+  }
+
+  /** Output stream of a boost file being written. */
+  private static final class BoostFileOutputStream extends FSOutputStream {
+    private final OutputStream out;
+    private long position;
+
+    private BoostFileOutputStream(OutputStream out) {
+      this.out = new BufferedOutputStream(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      position++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      position += len;
+    }
+
+    @Override
+    public long getPosition() {
+      return position;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /** Input stream over a memory mapped boost file. */
+  private static final class MappedFSInputStream extends FSInputStream {
+    private final ByteBuffer buffer;
+
+    private MappedFSInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      final int toRead = Math.min(len, buffer.remaining());
+      buffer.get(b, off, toRead);
+      return toRead;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      final int toRead = Math.min(dst.remaining(), buffer.remaining());
+      final ByteBuffer slice = buffer.slice();
+      slice.limit(toRead);
+      dst.put(slice);
+      buffer.position(buffer.position() + toRead);
+      return toRead;
+    }
+
+    @Override
+    public int read(long position, ByteBuffer dst) throws IOException {
+      setPosition(position);
+      return read(dst);
+    }
+
+    @Override
+    public long getPosition() {
+      return buffer.position();
+    }
+
+    @Override
+    public void setPosition(long position) throws IOException {
+      if (position < 0 || position > buffer.limit()) {
+        throw new EOFException("Cannot seek to " + position + " in a file of " + buffer.limit());
+      }
+      buffer.position((int) position);
+    }
+
+    @Override
+    public long skip(long n) {
+      final int toSkip = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + toSkip);
+      return toSkip;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+}
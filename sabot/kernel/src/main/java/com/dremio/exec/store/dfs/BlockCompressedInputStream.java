@@ -0,0 +1,477 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.dfs;
+
+import com.dremio.io.FSInputStream;
+import com.dremio.io.file.FileAttributes;
+import com.dremio.io.file.FileSystem;
+import com.dremio.io.file.Path;
+import com.github.luben.zstd.Zstd;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses the blocks of a block compressed file which start within a split of the compressed
+ * file. Two formats made of independently compressed blocks are supported:
+ *
+ * <ul>
+ *   <li>BGZF: gzip members carrying their own size in a {@code BC} extra subfield, as written by
+ *       bgzip.
+ *   <li>zstd seekable format: zstd frames followed by a seek table in a skippable frame, as written
+ *       by the zstd seekable format library.
+ * </ul>
+ *
+ * <p>The stream starts with the first block starting at or after the split start, and goes on past
+ * the split end so that readers can complete the record crossing it. {@link #getSplitEnd()} gives
+ * the position in the decompressed data where the blocks of the next split start, once the stream
+ * reached it. Reads never cross that position, so that callers learn about it before consuming data
+ * of the next split.
+ */
+public final class BlockCompressedInputStream extends FSInputStream {
+  private final FSInputStream in;
+  private final BlockIndex index;
+  private final long blockStart;
+  private final long splitEnd;
+
+  private long nextBlock;
+  private final BlockBuffer block = new BlockBuffer();
+  private int blockPos;
+  private long position;
+  private long decompressedSplitEnd = Long.MAX_VALUE;
+
+  private BlockCompressedInputStream(FSInputStream in, BlockIndex index, long start, long end)
+      throws IOException {
+    this.in = in;
+    this.index = index;
+    this.blockStart = index.nextBlockStart(start);
+    this.splitEnd = Math.min(end, index.dataEnd());
+    this.nextBlock = blockStart;
+    if (blockStart >= splitEnd) {
+      // no block starts within the split, everything belongs to the previous split
+      decompressedSplitEnd = 0;
+    }
+  }
+
+  /**
+   * Opens the part of a block compressed file starting at the first block within the given range of
+   * the compressed file.
+   *
+   * @return the stream, or null if the file is not block compressed
+   */
+  public static BlockCompressedInputStream open(FileSystem fs, Path path, long start, long end)
+      throws IOException {
+    final long fileSize = fs.getFileAttributes(path).size();
+    final FSInputStream in = fs.open(path);
+    try {
+      final BlockIndex index = BlockIndex.of(in, fileSize);
+      if (index == null) {
+        in.close();
+        return null;
+      }
+      return new BlockCompressedInputStream(in, index, start, end);
+    } catch (IOException | RuntimeException e) {
+      in.close();
+      throw e;
+    }
+  }
+
+  /** Whether the file can be split at the boundaries of its compressed blocks. */
+  public static boolean isBlockCompressed(FileSystem fs, FileAttributes attributes)
+      throws IOException {
+    try (FSInputStream in = fs.open(attributes.getPath())) {
+      final BlockIndex index = BlockIndex.of(in, attributes.size());
+      if (index == null) {
+        return false;
+      }
+      index.close();
+      return true;
+    }
+  }
+
+  /** Offset in the compressed file of the first block read by this stream. */
+  public long getBlockStart() {
+    return blockStart;
+  }
+
+  /**
+   * Position in the decompressed data of the first block belonging to the next split, or {@link
+   * Long#MAX_VALUE} while the stream has not reached it yet.
+   */
+  public long getSplitEnd() {
+    return decompressedSplitEnd;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!ensureData(false)) {
+      return -1;
+    }
+    position++;
+    return block.data[blockPos++] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int read = 0;
+    while (read < len && ensureData(read > 0)) {
+      final int n = Math.min(len - read, block.length - blockPos);
+      System.arraycopy(block.data, blockPos, b, off + read, n);
+      blockPos += n;
+      read += n;
+    }
+    position += read;
+    return read == 0 && len > 0 ? -1 : read;
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+    int read = 0;
+    while (dst.hasRemaining() && ensureData(read > 0)) {
+      final int n = Math.min(dst.remaining(), block.length - blockPos);
+      dst.put(block.data, blockPos, n);
+      blockPos += n;
+      read += n;
+    }
+    position += read;
+    return read == 0 && dst.hasRemaining() ? -1 : read;
+  }
+
+  /**
+   * Makes sure the current block has data left, moving to the next block if needed.
+   *
+   * @param stopAtSplitEnd whether to stop rather than moving to the first block of the next split
+   * @return false when no data is available
+   */
+  private boolean ensureData(boolean stopAtSplitEnd) throws IOException {
+    while (blockPos == block.length) {
+      if (nextBlock >= index.dataEnd()) {
+        return false;
+      }
+      if (decompressedSplitEnd == Long.MAX_VALUE && nextBlock >= splitEnd) {
+        if (stopAtSplitEnd) {
+          return false;
+        }
+        decompressedSplitEnd = position;
+      }
+      nextBlock = index.readBlock(nextBlock, block);
+      blockPos = 0;
+    }
+    return true;
+  }
+
+  @Override
+  public int read(long position, ByteBuffer dst) throws IOException {
+    throw new UnsupportedOperationException(
+        "Positional reads are not supported on compressed data");
+  }
+
+  @Override
+  public long getPosition() {
+    return position;
+  }
+
+  @Override
+  public void setPosition(long position) {
+    throw new UnsupportedOperationException("Seeks are not supported on compressed data");
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      index.close();
+    } finally {
+      in.close();
+    }
+  }
+
+  private static void readFully(FSInputStream in, long position, byte[] b, int off, int len)
+      throws IOException {
+    final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+    while (buffer.hasRemaining()) {
+      if (in.read(position + buffer.position() - off, buffer) < 0) {
+        throw new EOFException("Unexpected end of block compressed file");
+      }
+    }
+  }
+
+  private static int getShortLE(byte[] b, int off) {
+    return (b[off] & 0xff) | (b[off + 1] & 0xff) << 8;
+  }
+
+  private static long getIntLE(byte[] b, int off) {
+    return (getShortLE(b, off) | getShortLE(b, off + 2) << 16) & 0xffffffffL;
+  }
+
+  /**
+   * Decompressed data of the current block, along with a scratch buffer for its compressed bytes.
+   */
+  private static final class BlockBuffer {
+    private byte[] compressed = new byte[0];
+    private byte[] data = new byte[0];
+    private int length;
+
+    byte[] compressed(int size) {
+      if (compressed.length < size) {
+        compressed = new byte[size];
+      }
+      return compressed;
+    }
+
+    byte[] data(int size) {
+      if (data.length < size) {
+        data = new byte[size];
+      }
+      length = size;
+      return data;
+    }
+  }
+
+  /** Block layout of a block compressed file. */
+  private abstract static class BlockIndex {
+    protected final FSInputStream in;
+    protected final long fileSize;
+
+    BlockIndex(FSInputStream in, long fileSize) {
+      this.in = in;
+      this.fileSize = fileSize;
+    }
+
+    static BlockIndex of(FSInputStream in, long fileSize) throws IOException {
+      if (BgzfIndex.matches(in, fileSize)) {
+        return new BgzfIndex(in, fileSize);
+      }
+      return ZstdSeekableIndex.of(in, fileSize);
+    }
+
+    /** Offset of the end of the compressed blocks. */
+    long dataEnd() {
+      return fileSize;
+    }
+
+    /** Offset of the first block starting at or after the given offset, or {@link #dataEnd()}. */
+    abstract long nextBlockStart(long offset) throws IOException;
+
+    /** Decompresses the block at the given offset and returns the offset of the next block. */
+    abstract long readBlock(long offset, BlockBuffer buffer) throws IOException;
+
+    void close() {}
+  }
+
+  /** BGZF blocks, each one a gzip member no bigger than 64KiB. */
+  private static final class BgzfIndex extends BlockIndex {
+    private static final int HEADER_LENGTH = 18;
+    private static final int TRAILER_LENGTH = 8;
+    private static final int MAX_BLOCK_SIZE = 64 * 1024;
+
+    private final Inflater inflater = new Inflater(true);
+    private final CRC32 crc = new CRC32();
+
+    BgzfIndex(FSInputStream in, long fileSize) {
+      super(in, fileSize);
+    }
+
+    static boolean matches(FSInputStream in, long fileSize) throws IOException {
+      if (fileSize < HEADER_LENGTH) {
+        return false;
+      }
+      final byte[] header = new byte[HEADER_LENGTH];
+      readFully(in, 0, header, 0, HEADER_LENGTH);
+      return blockSize(header, 0) > 0;
+    }
+
+    /** Size of the block whose header is at the given offset, or -1 if it isn't a BGZF header. */
+    private static int blockSize(byte[] b, int off) {
+      if ((b[off] & 0xff) != 0x1f
+          || (b[off + 1] & 0xff) != 0x8b
+          || b[off + 2] != 8
+          || b[off + 3] != 4
+          || getShortLE(b, off + 10) != 6
+          || b[off + 12] != 'B'
+          || b[off + 13] != 'C'
+          || getShortLE(b, off + 14) != 2) {
+        return -1;
+      }
+      return getShortLE(b, off + 16) + 1;
+    }
+
+    @Override
+    long nextBlockStart(long offset) throws IOException {
+      if (offset <= 0) {
+        return 0;
+      }
+      // a block starts within any window of the maximum block size, confirm candidates by
+      // checking that they are followed by another block or by the end of the file
+      final int window =
+          (int) Math.min(2L * MAX_BLOCK_SIZE + HEADER_LENGTH, Math.max(0, fileSize - offset));
+      final byte[] b = new byte[window];
+      readFully(in, offset, b, 0, window);
+      for (int i = 0; i + HEADER_LENGTH <= window; i++) {
+        final int size = blockSize(b, i);
+        if (size <= 0) {
+          continue;
+        }
+        final long next = offset + i + size;
+        if (next == fileSize) {
+          return offset + i;
+        }
+        final int nextIndex = i + size;
+        if (nextIndex + HEADER_LENGTH <= window && blockSize(b, nextIndex) > 0) {
+          return offset + i;
+        }
+      }
+      return fileSize;
+    }
+
+    @Override
+    long readBlock(long offset, BlockBuffer buffer) throws IOException {
+      final byte[] header = buffer.compressed(HEADER_LENGTH);
+      readFully(in, offset, header, 0, HEADER_LENGTH);
+      final int size = blockSize(header, 0);
+      if (size < HEADER_LENGTH + TRAILER_LENGTH) {
+        throw new IOException("Invalid BGZF block at offset " + offset);
+      }
+      final byte[] compressed = buffer.compressed(size);
+      readFully(in, offset, compressed, 0, size);
+      final long expectedCrc = getIntLE(compressed, size - TRAILER_LENGTH);
+      final int uncompressedSize = (int) getIntLE(compressed, size - 4);
+      final byte[] data = buffer.data(uncompressedSize);
+      inflater.reset();
+      inflater.setInput(compressed, HEADER_LENGTH, size - HEADER_LENGTH - TRAILER_LENGTH);
+      try {
+        int inflated = 0;
+        while (inflated < uncompressedSize && !inflater.finished()) {
+          final int n = inflater.inflate(data, inflated, uncompressedSize - inflated);
+          if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+            break;
+          }
+          inflated += n;
+        }
+        if (inflated != uncompressedSize) {
+          throw new IOException("Truncated BGZF block at offset " + offset);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Corrupt BGZF block at offset " + offset, e);
+      }
+      crc.reset();
+      crc.update(data, 0, uncompressedSize);
+      if (crc.getValue() != expectedCrc) {
+        throw new IOException("CRC mismatch in BGZF block at offset " + offset);
+      }
+      return offset + size;
+    }
+
+    @Override
+    void close() {
+      inflater.end();
+    }
+  }
+
+  /** zstd frames listed in the seek table stored at the end of the file. */
+  private static final class ZstdSeekableIndex extends BlockIndex {
+    private static final long SEEKABLE_MAGIC = 0x8F92EAB1L;
+    private static final long SKIPPABLE_MAGIC = 0x184D2A5EL;
+    private static final int FOOTER_LENGTH = 9;
+    private static final int SKIPPABLE_HEADER_LENGTH = 8;
+
+    // offsets of the frames, followed by the end of the last frame
+    private final long[] offsets;
+    private final int[] decompressedSizes;
+
+    private ZstdSeekableIndex(
+        FSInputStream in, long fileSize, long[] offsets, int[] decompressedSizes) {
+      super(in, fileSize);
+      this.offsets = offsets;
+      this.decompressedSizes = decompressedSizes;
+    }
+
+    static ZstdSeekableIndex of(FSInputStream in, long fileSize) throws IOException {
+      if (fileSize < SKIPPABLE_HEADER_LENGTH + FOOTER_LENGTH) {
+        return null;
+      }
+      final byte[] footer = new byte[FOOTER_LENGTH];
+      readFully(in, fileSize - FOOTER_LENGTH, footer, 0, FOOTER_LENGTH);
+      if (getIntLE(footer, 5) != SEEKABLE_MAGIC || (footer[4] & 0x7c) != 0) {
+        return null;
+      }
+      final int frames = (int) getIntLE(footer, 0);
+      final int entryLength = (footer[4] & 0x80) != 0 ? 12 : 8;
+      final long tableLength =
+          SKIPPABLE_HEADER_LENGTH + (long) frames * entryLength + FOOTER_LENGTH;
+      if (frames < 0 || tableLength > fileSize) {
+        return null;
+      }
+
+      final byte[] table = new byte[(int) tableLength - FOOTER_LENGTH];
+      readFully(in, fileSize - tableLength, table, 0, table.length);
+      if (getIntLE(table, 0) != SKIPPABLE_MAGIC
+          || getIntLE(table, 4) != tableLength - SKIPPABLE_HEADER_LENGTH) {
+        return null;
+      }
+      final long[] offsets = new long[frames + 1];
+      final int[] decompressedSizes = new int[frames];
+      for (int i = 0; i < frames; i++) {
+        final int entry = SKIPPABLE_HEADER_LENGTH + i * entryLength;
+        offsets[i + 1] = offsets[i] + getIntLE(table, entry);
+        decompressedSizes[i] = (int) getIntLE(table, entry + 4);
+      }
+      if (offsets[frames] != fileSize - tableLength) {
+        return null;
+      }
+      return new ZstdSeekableIndex(in, fileSize, offsets, decompressedSizes);
+    }
+
+    @Override
+    long dataEnd() {
+      return offsets[offsets.length - 1];
+    }
+
+    @Override
+    long nextBlockStart(long offset) {
+      int i = Arrays.binarySearch(offsets, offset);
+      if (i < 0) {
+        i = -i - 1;
+      }
+      return i < offsets.length ? offsets[i] : dataEnd();
+    }
+
+    @Override
+    long readBlock(long offset, BlockBuffer buffer) throws IOException {
+      final int frame = Arrays.binarySearch(offsets, offset);
+      if (frame < 0 || frame >= decompressedSizes.length) {
+        throw new IOException("No zstd frame at offset " + offset);
+      }
+      final int compressedSize = (int) (offsets[frame + 1] - offset);
+      final byte[] compressed = buffer.compressed(compressedSize);
+      readFully(in, offset, compressed, 0, compressedSize);
+      final int size = decompressedSizes[frame];
+      final long result =
+          Zstd.decompressByteArray(buffer.data(size), 0, size, compressed, 0, compressedSize);
+      if (Zstd.isError(result)) {
+        throw new IOException(
+            "Corrupt zstd frame at offset " + offset + ": " + Zstd.getErrorName(result));
+      }
+      if (result != size) {
+        throw new IOException("Truncated zstd frame at offset " + offset);
+      }
+      return offsets[frame + 1];
+    }
+  }
+}
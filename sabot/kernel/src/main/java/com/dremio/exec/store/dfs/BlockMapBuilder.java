@@ -70,6 +70,19 @@ public class BlockMapBuilder {
     return codecFactory.getCodec(fileAttributes.getPath()) != null;
   }
 
+  /** Compressed files can only be split when made of independently compressed blocks. */
+  private boolean splittable(FileAttributes fileAttributes) {
+    if (!compressed(fileAttributes)) {
+      return true;
+    }
+    try {
+      return BlockCompressedInputStream.isBlockCompressed(fs, fileAttributes);
+    } catch (IOException e) {
+      logger.warn("failure while checking compression of {}.", fileAttributes.getPath(), e);
+      return false;
+    }
+  }
+
   public List<CompleteFileWork> generateFileWork(List<FileAttributes> files, boolean blockify)
       throws IOException {
 
@@ -107,7 +120,8 @@ public class BlockMapBuilder {
     protected List<CompleteFileWork> runInner() throws Exception {
       final List<CompleteFileWork> work = Lists.newArrayList();
       boolean error = false;
-      if (blockify && !compressed(attributes)) {
+      final boolean splittable = blockify && splittable(attributes);
+      if (splittable) {
         try {
           ImmutableRangeMap<Long, FileBlockLocation> rangeMap = getBlockMap(attributes);
           for (Entry<Range<Long>, FileBlockLocation> l : rangeMap.asMapOfRanges().entrySet()) {
@@ -126,7 +140,7 @@ public class BlockMapBuilder {
         }
       }
 
-      if (!blockify || error || compressed(attributes)) {
+      if (!splittable || error) {
         work.add(
             new CompleteFileWork(
                 getEndpointByteMap(new FileAttributesWork(attributes)),
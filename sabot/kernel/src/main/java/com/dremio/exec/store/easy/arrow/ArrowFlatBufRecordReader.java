@@ -30,6 +30,7 @@ import com.dremio.sabot.op.join.vhash.spill.slicer.CombinedSizer;
 import com.dremio.sabot.op.scan.OutputMutator;
 import com.google.common.base.Preconditions;
 import io.netty.util.internal.PlatformDependent;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -64,6 +65,7 @@ public class ArrowFlatBufRecordReader implements RecordReader {
   private BufferAllocator allocator;
   private List<Long> batchOffsets = new ArrayList<>();
   private List<Integer> batchSizes = new ArrayList<>();
+  private Schema schema;
 
   private int nextBatchIndex;
 
@@ -92,75 +94,7 @@ public class ArrowFlatBufRecordReader implements RecordReader {
   public void setup(OutputMutator output) {
     try {
       allocator = context.getAllocator();
-
-      if (size < 2 * MAGIC_STRING_LENGTH + FOOTER_OFFSET_SIZE) {
-        throw UserException.dataReadError()
-            .message("File is too small to be an Arrow format file")
-            .build(logger);
-      }
-
-      final long tailSizeGuess = MAGIC_STRING_LENGTH + FOOTER_OFFSET_SIZE;
-      final int tailSize = (int) Math.min(size, tailSizeGuess);
-      final byte[] tailBytes = new byte[tailSize];
-
-      try (OperatorStats.WaitRecorder waitRecorder =
-          OperatorStats.getWaitRecorder(context.getStats())) {
-        inputStream.setPosition(size - tailSize);
-        IOUtils.readFully(inputStream, tailBytes);
-      }
-
-      // read magic word
-      byte[] magic = Arrays.copyOfRange(tailBytes, tailSize - MAGIC_STRING_LENGTH, tailSize);
-      // Make sure magic word matches
-      if (!Arrays.equals(magic, MAGIC_STRING.getBytes())) {
-        throw UserException.dataReadError()
-            .message("Invalid magic word. File is not an Arrow format file")
-            .build(logger);
-      }
-
-      // read footer offset
-      final byte[] footerOffsetBytes =
-          Arrays.copyOfRange(
-              tailBytes,
-              tailSize - MAGIC_STRING_LENGTH - FOOTER_OFFSET_SIZE,
-              tailSize - MAGIC_STRING_LENGTH);
-      final long footerOffset = PlatformDependent.getLong(footerOffsetBytes, 0);
-      // Make sure the footer offset is valid
-      if (footerOffset < MAGIC_STRING_LENGTH
-          || footerOffset >= (size - (MAGIC_STRING_LENGTH + FOOTER_OFFSET_SIZE))) {
-        throw UserException.dataReadError()
-            .message("Invalid footer offset")
-            .addContext("invalid footer offset", String.valueOf(footerOffset))
-            .build(logger);
-      }
-
-      // read footer
-      int footerSize = (int) (size - MAGIC_STRING_LENGTH - FOOTER_OFFSET_SIZE - footerOffset);
-      byte[] footer;
-      if (footerSize > tailSize - MAGIC_STRING_LENGTH - FOOTER_OFFSET_SIZE) {
-        footer = new byte[footerSize];
-        try (OperatorStats.WaitRecorder waitRecorder =
-            OperatorStats.getWaitRecorder(context.getStats())) {
-          inputStream.setPosition(footerOffset);
-          IOUtils.readFully(inputStream, footer);
-        }
-      } else {
-        footer =
-            Arrays.copyOfRange(
-                tailBytes,
-                tailSize - footerSize - MAGIC_STRING_LENGTH - FOOTER_OFFSET_SIZE,
-                tailSize - MAGIC_STRING_LENGTH - FOOTER_OFFSET_SIZE);
-      }
-
-      // read schema
-      int index = 0;
-      int schemaLen = PlatformDependent.getInt(footer, index);
-      index += Integer.BYTES;
-
-      org.apache.arrow.flatbuf.Schema schemafb =
-          org.apache.arrow.flatbuf.Schema.getRootAsSchema(
-              ByteBuffer.wrap(footer, index, schemaLen));
-      Schema schema = Schema.convertSchema(schemafb);
+      final Schema schema = readFooter();
 
       // create vectors
       for (Field field : schema.getFields()) {
@@ -168,20 +102,6 @@ public class ArrowFlatBufRecordReader implements RecordReader {
             output.addField(
                 field, (Class<? extends ValueVector>) TypeHelper.getValueVectorClass(field)));
       }
-      index += schemaLen;
-
-      // read offsets
-      int numBatches = PlatformDependent.getInt(footer, index);
-      index += Integer.BYTES;
-
-      for (int i = 0; i < numBatches; ++i, index += Long.BYTES) {
-        batchOffsets.add(PlatformDependent.getLong(footer, index));
-      }
-
-      // read batch size information
-      for (int i = 0; i < numBatches; ++i, index += Integer.BYTES) {
-        batchSizes.add(PlatformDependent.getInt(footer, index));
-      }
 
       // Reset to beginning of the file
       inputStream.setPosition(0);
@@ -209,6 +129,98 @@ public class ArrowFlatBufRecordReader implements RecordReader {
     }
   }
 
+  /**
+   * Reads the footer of the file, if not done already, and returns the schema of the file. Can be
+   * called before {@link #setup(OutputMutator)} to inspect the batch layout of the file.
+   */
+  public Schema readFooter() throws IOException {
+    if (schema != null) {
+      return schema;
+    }
+    if (size < 2 * MAGIC_STRING_LENGTH + FOOTER_OFFSET_SIZE) {
+      throw UserException.dataReadError()
+          .message("File is too small to be an Arrow format file")
+          .build(logger);
+    }
+
+    final long tailSizeGuess = MAGIC_STRING_LENGTH + FOOTER_OFFSET_SIZE;
+    final int tailSize = (int) Math.min(size, tailSizeGuess);
+    final byte[] tailBytes = new byte[tailSize];
+
+    try (OperatorStats.WaitRecorder waitRecorder =
+        OperatorStats.getWaitRecorder(context.getStats())) {
+      inputStream.setPosition(size - tailSize);
+      IOUtils.readFully(inputStream, tailBytes);
+    }
+
+    // read magic word
+    byte[] magic = Arrays.copyOfRange(tailBytes, tailSize - MAGIC_STRING_LENGTH, tailSize);
+    // Make sure magic word matches
+    if (!Arrays.equals(magic, MAGIC_STRING.getBytes())) {
+      throw UserException.dataReadError()
+          .message("Invalid magic word. File is not an Arrow format file")
+          .build(logger);
+    }
+
+    // read footer offset
+    final byte[] footerOffsetBytes =
+        Arrays.copyOfRange(
+            tailBytes,
+            tailSize - MAGIC_STRING_LENGTH - FOOTER_OFFSET_SIZE,
+            tailSize - MAGIC_STRING_LENGTH);
+    final long footerOffset = PlatformDependent.getLong(footerOffsetBytes, 0);
+    // Make sure the footer offset is valid
+    if (footerOffset < MAGIC_STRING_LENGTH
+        || footerOffset >= (size - (MAGIC_STRING_LENGTH + FOOTER_OFFSET_SIZE))) {
+      throw UserException.dataReadError()
+          .message("Invalid footer offset")
+          .addContext("invalid footer offset", String.valueOf(footerOffset))
+          .build(logger);
+    }
+
+    // read footer
+    int footerSize = (int) (size - MAGIC_STRING_LENGTH - FOOTER_OFFSET_SIZE - footerOffset);
+    byte[] footer;
+    if (footerSize > tailSize - MAGIC_STRING_LENGTH - FOOTER_OFFSET_SIZE) {
+      footer = new byte[footerSize];
+      try (OperatorStats.WaitRecorder waitRecorder =
+          OperatorStats.getWaitRecorder(context.getStats())) {
+        inputStream.setPosition(footerOffset);
+        IOUtils.readFully(inputStream, footer);
+      }
+    } else {
+      footer =
+          Arrays.copyOfRange(
+              tailBytes,
+              tailSize - footerSize - MAGIC_STRING_LENGTH - FOOTER_OFFSET_SIZE,
+              tailSize - MAGIC_STRING_LENGTH - FOOTER_OFFSET_SIZE);
+    }
+
+    // read schema
+    int index = 0;
+    int schemaLen = PlatformDependent.getInt(footer, index);
+    index += Integer.BYTES;
+
+    org.apache.arrow.flatbuf.Schema schemafb =
+        org.apache.arrow.flatbuf.Schema.getRootAsSchema(ByteBuffer.wrap(footer, index, schemaLen));
+    index += schemaLen;
+
+    // read offsets
+    int numBatches = PlatformDependent.getInt(footer, index);
+    index += Integer.BYTES;
+
+    for (int i = 0; i < numBatches; ++i, index += Long.BYTES) {
+      batchOffsets.add(PlatformDependent.getLong(footer, index));
+    }
+
+    // read batch size information
+    for (int i = 0; i < numBatches; ++i, index += Integer.BYTES) {
+      batchSizes.add(PlatformDependent.getInt(footer, index));
+    }
+    schema = Schema.convertSchema(schemafb);
+    return schema;
+  }
+
   @Override
   public void allocate(Map<String, ValueVector> vectorMap) throws OutOfMemoryException {
     // no-op as this allocates buffers based on the size of the buffers in file.
@@ -41,6 +41,8 @@ import com.dremio.exec.store.dfs.copyinto.CopyIntoExceptionUtils;
 import com.dremio.exec.store.dfs.easy.ExtendedEasyReaderProperties;
 import com.dremio.exec.store.easy.json.JsonProcessor.ReadState;
 import com.dremio.exec.store.easy.json.reader.CountingJsonReader;
+import com.dremio.exec.store.easy.json.reader.JsonStructuralIndex;
+import com.dremio.exec.store.easy.json.reader.VectorizedJsonReader;
 import com.dremio.exec.tablefunctions.copyerrors.ValidationErrorRowWriter;
 import com.dremio.exec.util.ColumnUtils;
 import com.dremio.exec.vector.complex.fn.JsonReader;
@@ -63,7 +65,9 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import io.protostuff.ByteString;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.SequenceInputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -104,6 +108,7 @@ public class JSONRecordReader extends AbstractRecordReader {
   private VectorContainerWriter writer;
   private JsonProcessor jsonReader;
   private JsonProcessor preValidatorJsonReader;
+  private VectorizedJsonReader vectorizedReader;
   private int recordCount;
   private long runningRecordCount = 0;
 
@@ -407,7 +412,11 @@ public class JSONRecordReader extends AbstractRecordReader {
                   fieldDecimalMap,
                   rowSizeLimitEnabledForReader,
                   fixedDataLenPerRow);
-          setupParser(jsonReader);
+          if (useVectorizedReader(fieldDecimalMap)) {
+            setupVectorizedReader(output, sizeLimit, maxLeafLimit);
+          } else {
+            setupParser(jsonReader);
+          }
         }
       }
 
@@ -437,6 +446,43 @@ public class JSONRecordReader extends AbstractRecordReader {
     }
   }
 
+  private boolean useVectorizedReader(Map<String, Field> fieldDecimalMap) {
+    return context.getOptions().getOption(ExecConstants.JSON_VECTORIZED_READER)
+        && fsPath != null
+        && !enableAllTextMode
+        && !schemaImposedMode
+        && copyIntoQueryProperties == null
+        && !isValidationMode
+        && !rowSizeLimitEnabledForReader
+        && fieldDecimalMap.isEmpty()
+        && fileSize
+            <= context.getOptions().getOption(ExecConstants.JSON_VECTORIZED_READER_MAX_FILE_SIZE);
+  }
+
+  /**
+   * Buffers and indexes the whole file for {@link VectorizedJsonReader}. A compressed file that
+   * turns out to be too large is read by the Jackson based reader instead.
+   */
+  private void setupVectorizedReader(OutputMutator output, int sizeLimit, int maxLeafLimit)
+      throws IOException {
+    final int maxFileSize =
+        Math.toIntExact(
+            context.getOptions().getOption(ExecConstants.JSON_VECTORIZED_READER_MAX_FILE_SIZE));
+    final byte[] content = stream.readNBytes(maxFileSize + 1);
+    if (content.length > maxFileSize) {
+      jsonReader.setSource(new SequenceInputStream(new ByteArrayInputStream(content), stream));
+      return;
+    }
+    this.vectorizedReader =
+        new VectorizedJsonReader(
+            JsonStructuralIndex.build(content, content.length),
+            output,
+            ImmutableList.copyOf(getColumns()),
+            sizeLimit,
+            maxLeafLimit,
+            readNumbersAsDouble);
+  }
+
   private void setupForValidationMode(OutputMutator outputMutator) {
     if (isValidationMode) {
       BatchSchema validationResultSchema = outputMutator.getContainer().getSchema();
@@ -632,6 +678,9 @@ public class JSONRecordReader extends AbstractRecordReader {
       if (recordBatchReadingStatus == RecordBatchReadingStatus.SKIPPING_FILE) {
         return recordCount;
       }
+      if (vectorizedReader != null && readVectorized()) {
+        return recordCount;
+      }
       readWrite(jsonReader, !isValidationMode);
     } catch (Exception e) {
       handleAndRaise("Error parsing JSON", e);
@@ -639,6 +688,24 @@ public class JSONRecordReader extends AbstractRecordReader {
     return recordCount;
   }
 
+  /**
+   * Reads the next batch with the vectorized reader. Returns false if the batch has to be read by
+   * the Jackson based reader, which takes over the rest of the file once the vectorized reader hits
+   * a record it cannot materialize.
+   */
+  private boolean readVectorized() throws IOException {
+    recordCount = vectorizedReader.write(numRowsPerBatch, numBytesPerBatch);
+    if (vectorizedReader.isFallbackRequired()) {
+      jsonReader.setSource(vectorizedReader.getRemainingInput());
+      vectorizedReader = null;
+      if (recordCount == 0) {
+        return false;
+      }
+    }
+    updateRunningCount();
+    return true;
+  }
+
   private void updateRunningCount() {
     runningRecordCount += recordCount;
   }
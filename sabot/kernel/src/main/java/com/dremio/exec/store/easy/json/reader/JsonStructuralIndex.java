@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.easy.json.reader;
+
+import java.util.Arrays;
+
+/**
+ * Structural index of a JSON document, built in a single pass over the whole buffer in the style of
+ * the first stage of simdjson. The buffer is processed 64 bytes at a time: each block is turned
+ * into bitmasks of backslashes, quotes, operators and whitespace, string interiors are resolved
+ * with carry-propagating bit arithmetic, and the remaining bits are flattened into a list of
+ * positions.
+ *
+ * <p>The index holds, in document order, the position of every operator ({@code { } [ ] : ,})
+ * outside of a string, of every opening quote and of the first byte of every other token (numbers
+ * and literals). Closing quotes are not indexed; a string ends at the last quote before the next
+ * indexed position.
+ */
+public final class JsonStructuralIndex {
+
+  private static final int BLOCK_SIZE = 64;
+
+  private static final byte BACKSLASH = 1;
+  private static final byte QUOTE = 2;
+  private static final byte OPERATOR = 4;
+  private static final byte WHITESPACE = 8;
+
+  private static final long EVEN_BITS = 0x5555555555555555L;
+  private static final long ODD_BITS = ~EVEN_BITS;
+
+  private static final byte[] CLASSES = new byte[256];
+
+  static {
+    CLASSES['\\'] = BACKSLASH;
+    CLASSES['"'] = QUOTE;
+    for (char c : new char[] {'{', '}', '[', ']', ':', ','}) {
+      CLASSES[c] = OPERATOR;
+    }
+    for (char c : new char[] {' ', '\t', '\n', '\r'}) {
+      CLASSES[c] = WHITESPACE;
+    }
+  }
+
+  private final byte[] data;
+  private final int length;
+  private int[] positions;
+  private int size;
+  private boolean unterminatedString;
+
+  private JsonStructuralIndex(byte[] data, int length) {
+    this.data = data;
+    this.length = length;
+    this.positions = new int[Math.max(BLOCK_SIZE, length / 4)];
+  }
+
+  /** Index the first {@code length} bytes of the given buffer. */
+  public static JsonStructuralIndex build(byte[] data, int length) {
+    final JsonStructuralIndex index = new JsonStructuralIndex(data, length);
+    index.scan();
+    return index;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  /** Number of indexed positions. */
+  public int size() {
+    return size;
+  }
+
+  /** Position of the i-th indexed byte. */
+  public int get(int i) {
+    return positions[i];
+  }
+
+  /** Whether the document ends inside a string, in which case the index is not usable. */
+  public boolean hasUnterminatedString() {
+    return unterminatedString;
+  }
+
+  private void scan() {
+    long prevEndsOddBackslash = 0;
+    long prevInString = 0;
+    long prevScalar = 0;
+    for (int base = 0; base < length; base += BLOCK_SIZE) {
+      final int n = Math.min(BLOCK_SIZE, length - base);
+      long backslash = 0;
+      long quote = 0;
+      long operator = 0;
+      // bytes past the end of the buffer behave as whitespace
+      long whitespace = n == BLOCK_SIZE ? 0 : -1L << n;
+      for (int i = 0; i < n; i++) {
+        final long c = CLASSES[data[base + i] & 0xFF];
+        backslash |= (c & 1) << i;
+        quote |= ((c >>> 1) & 1) << i;
+        operator |= ((c >>> 2) & 1) << i;
+        whitespace |= ((c >>> 3) & 1) << i;
+      }
+
+      // characters escaped by an odd run of backslashes, see simdjson's
+      // find_odd_backslash_sequences
+      final long startEdges = backslash & ~(backslash << 1);
+      final long evenStartMask = EVEN_BITS ^ prevEndsOddBackslash;
+      final long evenStarts = startEdges & evenStartMask;
+      final long oddStarts = startEdges & ~evenStartMask;
+      final long evenCarries = backslash + evenStarts;
+      long oddCarries = backslash + oddStarts;
+      final boolean endsOddBackslash = Long.compareUnsigned(oddCarries, backslash) < 0;
+      oddCarries |= prevEndsOddBackslash;
+      prevEndsOddBackslash = endsOddBackslash ? 1L : 0L;
+      final long evenCarryEnds = evenCarries & ~backslash;
+      final long oddCarryEnds = oddCarries & ~backslash;
+      final long escaped = (evenCarryEnds & ODD_BITS) | (oddCarryEnds & EVEN_BITS);
+
+      // string interiors, including the opening quote but not the closing one
+      quote &= ~escaped;
+      final long inString = prefixXor(quote) ^ prevInString;
+      prevInString = inString >> 63;
+
+      final long scalar = ~(operator | whitespace | quote | inString);
+      final long scalarStarts = scalar & ~((scalar << 1) | prevScalar);
+      prevScalar = scalar >>> 63;
+
+      flatten((operator & ~inString) | (quote & inString) | scalarStarts, base);
+    }
+    unterminatedString = prevInString != 0;
+  }
+
+  private void flatten(long bits, int base) {
+    if (size + BLOCK_SIZE > positions.length) {
+      positions = Arrays.copyOf(positions, Math.max(positions.length * 2, size + BLOCK_SIZE));
+    }
+    while (bits != 0) {
+      positions[size++] = base + Long.numberOfTrailingZeros(bits);
+      bits &= bits - 1;
+    }
+  }
+
+  /** Bit i of the result is the xor of bits 0 to i of the input. */
+  private static long prefixXor(long bits) {
+    bits ^= bits << 1;
+    bits ^= bits << 2;
+    bits ^= bits << 4;
+    bits ^= bits << 8;
+    bits ^= bits << 16;
+    bits ^= bits << 32;
+    return bits;
+  }
+}
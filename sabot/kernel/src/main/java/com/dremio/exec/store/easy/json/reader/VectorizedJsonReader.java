@@ -0,0 +1,727 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.easy.json.reader;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.dremio.common.expression.CompleteType;
+import com.dremio.common.expression.SchemaPath;
+import com.dremio.exec.vector.complex.fn.FieldSelection;
+import com.dremio.sabot.op.scan.OutputMutator;
+import com.google.common.base.Utf8;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VarCharVector;
+
+/**
+ * Reads flat JSON records from a fully buffered document straight into Arrow vectors, walking a
+ * {@link JsonStructuralIndex} instead of pulling parser tokens and going through complex writers.
+ *
+ * <p>Only top level scalar fields are materialized: numbers, strings, booleans and nulls, written
+ * as BIGINT (or FLOAT8 when reading numbers as double), FLOAT8, VARCHAR and BIT like {@link
+ * com.dremio.exec.vector.complex.fn.JsonReader} does. As soon as a record cannot be read that way
+ * (a nested projected value, a value whose type differs from the vector already created for its
+ * field, a limit being hit, or anything that is not plain JSON) the reader stops at the start of
+ * that record and reports {@link #isFallbackRequired()}. The caller is then expected to read the
+ * rest of the document from {@link #getRemainingInput()} with the Jackson based reader, which also
+ * takes care of raising the proper error for malformed input.
+ *
+ * <p>Values of fields that are not projected are skipped without being validated beyond bracket
+ * matching and token syntax.
+ */
+public class VectorizedJsonReader {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(VectorizedJsonReader.class);
+
+  private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+  private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+  private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+  private static final byte[] OUTER_LIST_START = {'['};
+
+  // longs with at most that many digits cannot overflow
+  private static final int MAX_SAFE_LONG_DIGITS = 18;
+
+  /** Type of a scalar value, and of the vector a field is materialized into. */
+  private enum Kind {
+    BIGINT,
+    FLOAT8,
+    VARCHAR,
+    BIT,
+    NULL,
+    UNSUPPORTED
+  }
+
+  private final byte[] data;
+  private final int length;
+  private final JsonStructuralIndex index;
+  private final OutputMutator output;
+  private final FieldSelection selection;
+  private final int maxFieldSize;
+  private final int maxLeafLimit;
+  private final boolean readNumbersAsDouble;
+
+  // fields seen so far, by lower case name like the output mutator
+  private final Map<String, Column> columns = new HashMap<>();
+  // fields in the order of the keys of the last record, records usually share their layout
+  private final List<Column> keyOrder = new ArrayList<>();
+  private final List<Column> written = new ArrayList<>();
+
+  private byte[] scratch = new byte[256];
+  private int token;
+  private boolean started;
+  private boolean inOuterList;
+  private boolean finished;
+  private int batchCapacity;
+  private long recordSequence;
+  private int fallbackOffset = -1;
+
+  // value of the last scalar parsed
+  private long longValue;
+  private double doubleValue;
+  private int stringStart;
+  private int stringLength;
+  private byte[] stringBuffer;
+
+  public VectorizedJsonReader(
+      JsonStructuralIndex index,
+      OutputMutator output,
+      List<SchemaPath> columns,
+      int maxFieldSize,
+      int maxLeafLimit,
+      boolean readNumbersAsDouble) {
+    this.index = index;
+    this.data = index.getData();
+    this.length = index.getLength();
+    this.output = output;
+    this.selection = FieldSelection.getFieldSelection(columns);
+    this.maxFieldSize = maxFieldSize;
+    this.maxLeafLimit = maxLeafLimit;
+    this.readNumbersAsDouble = readNumbersAsDouble;
+    if (index.hasUnterminatedString()) {
+      fallbackOffset = 0;
+    }
+  }
+
+  /** Whether the rest of the document has to be read by the Jackson based reader. */
+  public boolean isFallbackRequired() {
+    return fallbackOffset >= 0;
+  }
+
+  /**
+   * The part of the document that has not been materialized, starting at the record that could not
+   * be read. A document wrapped in a top level list is returned wrapped as well.
+   */
+  public InputStream getRemainingInput() {
+    final InputStream remaining =
+        new ByteArrayInputStream(data, fallbackOffset, length - fallbackOffset);
+    if (inOuterList) {
+      return new SequenceInputStream(new ByteArrayInputStream(OUTER_LIST_START), remaining);
+    }
+    return remaining;
+  }
+
+  /**
+   * Materialize the next batch into the vectors of the output mutator.
+   *
+   * @param maxRecords maximum number of records in the batch
+   * @param maxBytes size of the input after which the batch is ended
+   * @return number of records written, 0 once the document is exhausted or a fallback is required
+   */
+  public int write(int maxRecords, long maxBytes) {
+    if (isFallbackRequired()) {
+      return 0;
+    }
+    batchCapacity = maxRecords;
+    for (ValueVector vector : output.getVectors()) {
+      allocate(vector);
+    }
+
+    int count = 0;
+    long bytes = 0;
+    while (count < maxRecords && bytes <= maxBytes && hasNextRecord()) {
+      final int start = index.get(token);
+      final int startToken = token;
+      if (!writeRecord(count)) {
+        for (Column column : written) {
+          column.setNull(count);
+        }
+        logger.debug("Falling back to the Jackson based reader at offset {}", start);
+        token = startToken;
+        fallbackOffset = start;
+        break;
+      }
+      count++;
+      bytes += (token < index.size() ? index.get(token) : length) - start;
+    }
+
+    for (ValueVector vector : output.getVectors()) {
+      vector.setValueCount(count);
+    }
+    return count;
+  }
+
+  private void allocate(ValueVector vector) {
+    vector.setInitialCapacity(batchCapacity);
+    vector.allocateNew();
+  }
+
+  /** Position the reader on the start of the next record, or return false if there is none. */
+  private boolean hasNextRecord() {
+    if (finished) {
+      return false;
+    } else if (!started) {
+      started = true;
+      if (tokenAt(token) == '[') {
+        inOuterList = true;
+        token++;
+        if (tokenAt(token) == ']') {
+          return endOuterList();
+        }
+        return tokenAt(token) == '{' || fallBack();
+      }
+    } else if (inOuterList) {
+      if (tokenAt(token) == ']') {
+        return endOuterList();
+      }
+      if (tokenAt(token) != ',') {
+        return fallBack();
+      }
+      token++;
+    }
+    if (token >= index.size()) {
+      return false;
+    }
+    return tokenAt(token) == '{' || fallBack();
+  }
+
+  private boolean endOuterList() {
+    if (token + 1 == index.size()) {
+      token++;
+      finished = true;
+      return false;
+    }
+    // trailing content, let the Jackson based reader report it
+    return fallBack();
+  }
+
+  private boolean fallBack() {
+    fallbackOffset = token < index.size() ? index.get(token) : length;
+    return false;
+  }
+
+  private boolean writeRecord(int record) {
+    recordSequence++;
+    written.clear();
+    token++;
+    if (tokenAt(token) == '}') {
+      token++;
+      return true;
+    }
+
+    int leafCount = 0;
+    int ordinal = 0;
+    while (true) {
+      if (tokenAt(token) != '"' || !parseString(token)) {
+        return false;
+      }
+      final Column column = lookup(ordinal++);
+      if (column == null || tokenAt(++token) != ':') {
+        return false;
+      }
+
+      final byte first = tokenAt(++token);
+      if (first == 0) {
+        return false;
+      } else if (first == '{' || first == '[') {
+        if (!column.skip || !skipNested()) {
+          return false;
+        }
+      } else {
+        final Kind kind = first == '"' ? (parseString(token) ? Kind.VARCHAR : null) : parseScalar();
+        if (kind == null) {
+          return false;
+        }
+        token++;
+        if (!column.skip && kind != Kind.NULL) {
+          if (++leafCount > maxLeafLimit || !column.write(record, kind)) {
+            return false;
+          }
+          written.add(column);
+        }
+      }
+
+      final byte next = tokenAt(token++);
+      if (next == '}') {
+        return true;
+      }
+      if (next != ',') {
+        return false;
+      }
+    }
+  }
+
+  /** Skip a nested value, only checking that brackets match and scalars are well formed. */
+  private boolean skipNested() {
+    byte[] stack = new byte[8];
+    int depth = 0;
+    do {
+      final byte b = tokenAt(token);
+      switch (b) {
+        case '{':
+        case '[':
+          if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+          }
+          stack[depth++] = b == '{' ? (byte) '}' : (byte) ']';
+          break;
+        case '}':
+        case ']':
+          if (depth == 0 || stack[--depth] != b) {
+            return false;
+          }
+          break;
+        case ':':
+        case ',':
+          break;
+        case '"':
+          if (!parseString(token)) {
+            return false;
+          }
+          break;
+        case 0:
+          return false;
+        default:
+          if (parseScalar() == null) {
+            return false;
+          }
+          break;
+      }
+      token++;
+    } while (depth > 0);
+    return true;
+  }
+
+  private byte tokenAt(int i) {
+    return i < index.size() ? data[index.get(i)] : 0;
+  }
+
+  /** Find the field of the last parsed string, trying the field at the same position first. */
+  private Column lookup(int ordinal) {
+    if (ordinal < keyOrder.size()) {
+      final Column expected = keyOrder.get(ordinal);
+      if (expected.matches(stringBuffer, stringStart, stringLength)) {
+        return expected;
+      }
+    }
+
+    final String name = new String(stringBuffer, stringStart, stringLength, UTF_8);
+    final String key = name.toLowerCase(Locale.ROOT);
+    Column column = columns.get(key);
+    if (column == null) {
+      column = new Column(name, selection.getChild(name).isNeverValid());
+      columns.put(key, column);
+    }
+    if (ordinal < keyOrder.size()) {
+      keyOrder.set(ordinal, column);
+    } else {
+      keyOrder.add(column);
+    }
+    return column;
+  }
+
+  /**
+   * Parse the string whose opening quote is at the given token. On success the decoded bytes are
+   * available from {@link #stringBuffer}, {@link #stringStart} and {@link #stringLength}.
+   */
+  private boolean parseString(int stringToken) {
+    final int start = index.get(stringToken) + 1;
+    int end = stringToken + 1 < index.size() ? index.get(stringToken + 1) : length;
+    do {
+      end--;
+    } while (end >= start && isWhitespace(data[end]));
+    if (end < start || data[end] != '"') {
+      return false;
+    }
+
+    boolean escaped = false;
+    boolean ascii = true;
+    for (int i = start; i < end; i++) {
+      final byte b = data[i];
+      if (b == '\\') {
+        escaped = true;
+        i++;
+      } else if (b >= 0 && b < 0x20) {
+        return false;
+      } else if (b < 0) {
+        ascii = false;
+      }
+    }
+    if (!ascii && !Utf8.isWellFormed(data, start, end - start)) {
+      return false;
+    }
+    if (!escaped) {
+      stringBuffer = data;
+      stringStart = start;
+      stringLength = end - start;
+      return true;
+    }
+    return unescape(start, end);
+  }
+
+  private boolean unescape(int start, int end) {
+    if (scratch.length < end - start) {
+      scratch = new byte[Math.max(scratch.length * 2, end - start)];
+    }
+    int out = 0;
+    for (int i = start; i < end; i++) {
+      final byte b = data[i];
+      if (b != '\\') {
+        scratch[out++] = b;
+        continue;
+      }
+      if (++i == end) {
+        return false;
+      }
+      switch (data[i]) {
+        case '"':
+        case '\\':
+        case '/':
+          scratch[out++] = data[i];
+          break;
+        case 'b':
+          scratch[out++] = '\b';
+          break;
+        case 'f':
+          scratch[out++] = '\f';
+          break;
+        case 'n':
+          scratch[out++] = '\n';
+          break;
+        case 'r':
+          scratch[out++] = '\r';
+          break;
+        case 't':
+          scratch[out++] = '\t';
+          break;
+        case 'u':
+          int codePoint = parseHex(i + 1, end);
+          i += 4;
+          if (Character.isHighSurrogate((char) codePoint)) {
+            final int low =
+                i + 2 < end && data[i + 1] == '\\' && data[i + 2] == 'u'
+                    ? parseHex(i + 3, end)
+                    : -1;
+            if (!Character.isLowSurrogate((char) low) || low < 0) {
+              return false;
+            }
+            codePoint = Character.toCodePoint((char) codePoint, (char) low);
+            i += 6;
+          } else if (codePoint < 0 || Character.isLowSurrogate((char) codePoint)) {
+            return false;
+          }
+          out = encodeUtf8(codePoint, out);
+          break;
+        default:
+          return false;
+      }
+    }
+    stringBuffer = scratch;
+    stringStart = 0;
+    stringLength = out;
+    return true;
+  }
+
+  private int parseHex(int start, int end) {
+    if (start + 4 > end) {
+      return -1;
+    }
+    int value = 0;
+    for (int i = start; i < start + 4; i++) {
+      final int digit = Character.digit(data[i], 16);
+      if (digit < 0) {
+        return -1;
+      }
+      value = (value << 4) | digit;
+    }
+    return value;
+  }
+
+  // an escape sequence is at least as long as the UTF-8 encoding of the character it stands for
+  private int encodeUtf8(int codePoint, int out) {
+    if (codePoint < 0x80) {
+      scratch[out++] = (byte) codePoint;
+    } else if (codePoint < 0x800) {
+      scratch[out++] = (byte) (0xC0 | (codePoint >> 6));
+      scratch[out++] = (byte) (0x80 | (codePoint & 0x3F));
+    } else if (codePoint < 0x10000) {
+      scratch[out++] = (byte) (0xE0 | (codePoint >> 12));
+      scratch[out++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+      scratch[out++] = (byte) (0x80 | (codePoint & 0x3F));
+    } else {
+      scratch[out++] = (byte) (0xF0 | (codePoint >> 18));
+      scratch[out++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+      scratch[out++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+      scratch[out++] = (byte) (0x80 | (codePoint & 0x3F));
+    }
+    return out;
+  }
+
+  /**
+   * Parse the number or literal at the current token into {@link #longValue} or {@link
+   * #doubleValue}.
+   *
+   * @return the kind of the value, or null if the token is not a valid JSON scalar
+   */
+  private Kind parseScalar() {
+    final int start = index.get(token);
+    int end = start + 1;
+    while (end < length && !isDelimiter(data[end])) {
+      end++;
+    }
+
+    switch (data[start]) {
+      case 'n':
+        return matches(NULL, start, end) ? Kind.NULL : null;
+      case 't':
+        longValue = 1;
+        return matches(TRUE, start, end) ? Kind.BIT : null;
+      case 'f':
+        longValue = 0;
+        return matches(FALSE, start, end) ? Kind.BIT : null;
+      default:
+        return parseNumber(start, end);
+    }
+  }
+
+  private Kind parseNumber(int start, int end) {
+    int i = start;
+    final boolean negative = data[i] == '-';
+    if (negative) {
+      i++;
+    }
+    final int digitsStart = i;
+    long value = 0;
+    while (i < end && isDigit(data[i])) {
+      value = value * 10 + (data[i] - '0');
+      i++;
+    }
+    final int digits = i - digitsStart;
+    if (digits == 0 || (digits > 1 && data[digitsStart] == '0')) {
+      return null;
+    }
+
+    if (i == end) {
+      if (digits <= MAX_SAFE_LONG_DIGITS) {
+        longValue = negative ? -value : value;
+      } else {
+        try {
+          longValue = Long.parseLong(new String(data, start, end - start, US_ASCII));
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      }
+      if (readNumbersAsDouble) {
+        doubleValue = longValue;
+        return Kind.FLOAT8;
+      }
+      return Kind.BIGINT;
+    }
+
+    if (data[i] == '.') {
+      i = skipDigits(i + 1, end);
+      if (i < 0) {
+        return null;
+      }
+    }
+    if (i < end && (data[i] == 'e' || data[i] == 'E')) {
+      i++;
+      if (i < end && (data[i] == '+' || data[i] == '-')) {
+        i++;
+      }
+      i = skipDigits(i, end);
+      if (i < 0) {
+        return null;
+      }
+    }
+    if (i != end) {
+      return null;
+    }
+    doubleValue = Double.parseDouble(new String(data, start, end - start, US_ASCII));
+    return Kind.FLOAT8;
+  }
+
+  /** Skip at least one digit, returns the position after the digits or -1. */
+  private int skipDigits(int i, int end) {
+    final int start = i;
+    while (i < end && isDigit(data[i])) {
+      i++;
+    }
+    return i > start ? i : -1;
+  }
+
+  private boolean matches(byte[] literal, int start, int end) {
+    return end - start == literal.length
+        && Arrays.equals(data, start, end, literal, 0, literal.length);
+  }
+
+  private static boolean isDigit(byte b) {
+    return b >= '0' && b <= '9';
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+  }
+
+  private static boolean isDelimiter(byte b) {
+    switch (b) {
+      case '{':
+      case '}':
+      case '[':
+      case ']':
+      case ':':
+      case ',':
+      case '"':
+        return true;
+      default:
+        return isWhitespace(b);
+    }
+  }
+
+  /** A top level field and the vector it is materialized into, created on its first value. */
+  private final class Column {
+    private final String name;
+    private final byte[] nameBytes;
+    private final boolean skip;
+    private Kind kind;
+    private ValueVector vector;
+    private long lastRecord;
+
+    private Column(String name, boolean skip) {
+      this.name = name;
+      this.nameBytes = name.getBytes(UTF_8);
+      this.skip = skip;
+      if (!skip) {
+        attach(output.getVector(name));
+      }
+    }
+
+    private void attach(ValueVector existing) {
+      vector = existing;
+      if (existing == null) {
+        kind = null;
+      } else if (existing instanceof BigIntVector) {
+        kind = Kind.BIGINT;
+      } else if (existing instanceof Float8Vector) {
+        kind = Kind.FLOAT8;
+      } else if (existing instanceof VarCharVector) {
+        kind = Kind.VARCHAR;
+      } else if (existing instanceof BitVector) {
+        kind = Kind.BIT;
+      } else {
+        kind = Kind.UNSUPPORTED;
+      }
+    }
+
+    private boolean matches(byte[] bytes, int start, int length) {
+      return length == nameBytes.length
+          && Arrays.equals(nameBytes, 0, length, bytes, start, start + length);
+    }
+
+    /** Write the last parsed value, returns false if it does not fit the vector of the field. */
+    private boolean write(int record, Kind valueKind) {
+      if (vector == null) {
+        create(valueKind);
+      }
+      // a different type means a schema change, and a repeated field in the same record would be
+      // overwritten in place by the Jackson based reader
+      if (valueKind != kind || lastRecord == recordSequence) {
+        return false;
+      }
+      lastRecord = recordSequence;
+      switch (kind) {
+        case BIGINT:
+          ((BigIntVector) vector).setSafe(record, longValue);
+          return true;
+        case FLOAT8:
+          ((Float8Vector) vector).setSafe(record, doubleValue);
+          return true;
+        case BIT:
+          ((BitVector) vector).setSafe(record, (int) longValue);
+          return true;
+        case VARCHAR:
+          if (stringLength > maxFieldSize) {
+            return false;
+          }
+          ((VarCharVector) vector).setSafe(record, stringBuffer, stringStart, stringLength);
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    private void create(Kind valueKind) {
+      switch (valueKind) {
+        case BIGINT:
+          vector = output.addField(CompleteType.BIGINT.toField(name), BigIntVector.class);
+          break;
+        case FLOAT8:
+          vector = output.addField(CompleteType.DOUBLE.toField(name), Float8Vector.class);
+          break;
+        case VARCHAR:
+          vector = output.addField(CompleteType.VARCHAR.toField(name), VarCharVector.class);
+          break;
+        case BIT:
+          vector = output.addField(CompleteType.BIT.toField(name), BitVector.class);
+          break;
+        default:
+          throw new IllegalStateException("Unexpected value kind " + valueKind);
+      }
+      kind = valueKind;
+      allocate(vector);
+    }
+
+    private void setNull(int record) {
+      switch (kind) {
+        case BIGINT:
+          ((BigIntVector) vector).setNull(record);
+          break;
+        case FLOAT8:
+          ((Float8Vector) vector).setNull(record);
+          break;
+        case BIT:
+          ((BitVector) vector).setNull(record);
+          break;
+        case VARCHAR:
+          ((VarCharVector) vector).setNull(record);
+          break;
+        default:
+          break;
+      }
+    }
+  }
+}
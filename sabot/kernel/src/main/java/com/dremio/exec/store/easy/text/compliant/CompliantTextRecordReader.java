@@ -26,6 +26,7 @@ import com.dremio.exec.exception.SchemaChangeException;
 import com.dremio.exec.expr.TypeHelper;
 import com.dremio.exec.record.BatchSchema;
 import com.dremio.exec.store.AbstractRecordReader;
+import com.dremio.exec.store.dfs.BlockCompressedInputStream;
 import com.dremio.io.CompressionCodecFactory;
 import com.dremio.io.FSInputStream;
 import com.dremio.io.file.FileSystem;
@@ -219,13 +220,26 @@ public class CompliantTextRecordReader extends AbstractRecordReader {
 
   private TextInput createInput() throws IOException {
     ArrowBuf readBuffer = closeLater(this.context.getAllocator().buffer(READ_BUFFER));
-    FSInputStream stream =
-        FileSystemUtils.openPossiblyCompressedStream(
-            codecFactory, dfs, Path.of(split.getPath().toUri()));
+    FSInputStream stream = openStream(split.getStart(), split.getStart() + split.getLength());
     return new TextInput(
         settings, stream, readBuffer, split.getStart(), split.getStart() + split.getLength());
   }
 
+  /**
+   * Opens the file, reading only the blocks within the given range when the file is block
+   * compressed, so that such files can be split like uncompressed ones.
+   */
+  private FSInputStream openStream(long start, long end) throws IOException {
+    final Path path = Path.of(split.getPath().toUri());
+    if (codecFactory.getCodec(path) != null) {
+      final FSInputStream blockStream = BlockCompressedInputStream.open(dfs, path, start, end);
+      if (blockStream != null) {
+        return blockStream;
+      }
+    }
+    return FileSystemUtils.openPossiblyCompressedStream(codecFactory, dfs, path);
+  }
+
   private TextReader createReader(TextInput input, TextOutput output) {
     ArrowBuf whitespaceBuffer = closeLater(this.context.getAllocator().buffer(WHITE_SPACE_BUFFER));
     return closeLater(
@@ -250,9 +264,7 @@ public class CompliantTextRecordReader extends AbstractRecordReader {
 
       // setup Input using InputStream
       // we should read file header irrespective of split given to this reader
-      FSInputStream hStream =
-          FileSystemUtils.openPossiblyCompressedStream(
-              codecFactory, dfs, Path.of(split.getPath().toUri()));
+      FSInputStream hStream = openStream(0, Long.MAX_VALUE);
       TextInput hInput =
           new TextInput(
               settings, hStream, readBufferInReader, 0, Math.min(READ_BUFFER, split.getLength()));
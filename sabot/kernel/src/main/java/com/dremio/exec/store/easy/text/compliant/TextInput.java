@@ -32,6 +32,7 @@ package com.dremio.exec.store.easy.text.compliant;
  ******************************************************************************/
 
 import com.dremio.common.exceptions.UserException;
+import com.dremio.exec.store.dfs.BlockCompressedInputStream;
 import com.dremio.io.CompressedFSInputStream;
 import com.dremio.io.FSInputStream;
 import com.google.common.base.Preconditions;
@@ -62,12 +63,15 @@ final class TextInput {
   /** The starting position in the file. */
   private final long startPos;
 
-  private final long endPos;
+  private long endPos;
 
   private long streamPos;
 
   private final FSInputStream input;
 
+  /** Set when reading the blocks of a block compressed file, which define the split bounds. */
+  private final BlockCompressedInputStream blockInput;
+
   private final ArrowBuf buffer;
   private final ByteBuffer underlyingBuffer;
   private final long bStart;
@@ -108,6 +112,15 @@ final class TextInput {
       long endPos) {
     this.lineSeparator = settings.getNewLineDelimiter();
     byte normalizedLineSeparator = settings.getNormalizedNewLine();
+    this.blockInput =
+        input instanceof BlockCompressedInputStream ? (BlockCompressedInputStream) input : null;
+    if (blockInput != null) {
+      // the stream is already positioned on the first block of the split, and finds out where the
+      // split ends in the decompressed data when reaching the first block of the next split
+      startPos = blockInput.getBlockStart();
+      endPos = blockInput.getSplitEnd();
+    }
+
     boolean isCompressed = input instanceof CompressedFSInputStream;
     Preconditions.checkArgument(
         !isCompressed || startPos == 0, "Cannot use split on compressed stream.");
@@ -141,7 +154,7 @@ final class TextInput {
    */
   final boolean start() throws IOException {
     lineCount = 0;
-    if (startPos > 0) {
+    if (startPos > 0 && blockInput == null) {
       input.setPosition(startPos);
     }
 
@@ -203,6 +216,9 @@ final class TextInput {
     }
 
     read();
+    if (blockInput != null) {
+      endPos = blockInput.getSplitEnd();
+    }
 
     // check our data read allowance.
     if (streamPos + length >= this.endPos) {
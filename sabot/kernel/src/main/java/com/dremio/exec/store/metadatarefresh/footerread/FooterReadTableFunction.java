@@ -15,6 +15,7 @@
  */
 package com.dremio.exec.store.metadatarefresh.footerread;
 
+import com.dremio.common.AutoCloseables;
 import com.dremio.common.exceptions.ExecutionSetupException;
 import com.dremio.common.exceptions.UserException;
 import com.dremio.common.utils.PathUtils;
@@ -36,6 +37,7 @@ import com.dremio.exec.store.iceberg.SchemaConverter;
 import com.dremio.exec.store.iceberg.SupportsFsCreation;
 import com.dremio.exec.store.iceberg.SupportsInternalIcebergTable;
 import com.dremio.exec.store.metadatarefresh.MetadataRefreshExecConstants;
+import com.dremio.exec.store.parquet.MutableParquetMetadata;
 import com.dremio.exec.util.VectorUtil;
 import com.dremio.io.file.FileSystem;
 import com.dremio.sabot.exec.context.OperatorContext;
@@ -94,6 +96,10 @@ public class FooterReadTableFunction extends AbstractTableFunction {
   private int maxSchemaWidth = 0;
   private int numberOfRowGroupsRead = 0;
 
+  // reads parquet footers ahead of the current row, null when footers are read inline
+  private ParquetFooterPrefetcher footerPrefetcher;
+  private int nextRowToPrefetch;
+
   public FooterReadTableFunction(
       FragmentExecutionContext fec,
       OperatorContext context,
@@ -179,6 +185,19 @@ public class FooterReadTableFunction extends AbstractTableFunction {
                 outgoing, MetadataRefreshExecConstants.FooterRead.OUTPUT_SCHEMA.OPERATION_TYPE);
     setFileSchemaVector();
 
+    final int asyncFooterReads =
+        (int) context.getOptions().getOption(ExecConstants.METADATA_REFRESH_ASYNC_FOOTER_READS);
+    if (fileType == FileType.PARQUET && asyncFooterReads > 0) {
+      final FooterReaderTableFunctionContext functionContext =
+          (FooterReaderTableFunctionContext) functionConfig.getFunctionContext();
+      footerPrefetcher =
+          new ParquetFooterPrefetcher(
+              this::getFS,
+              functionContext.getTablePath().get(0),
+              asyncFooterReads,
+              context.getOptions().getOption(ExecConstants.PARQUET_MAX_FOOTER_LEN_VALIDATOR));
+    }
+
     return outgoing;
   }
 
@@ -193,6 +212,48 @@ public class FooterReadTableFunction extends AbstractTableFunction {
   public void startRow(int row) throws Exception {
     this.rowProcessed = false;
     this.currentRow = row;
+    if (footerPrefetcher != null) {
+      prefetchFooters(row);
+    }
+  }
+
+  /** Keeps footer reads in flight for the rows following the given one in the incoming batch. */
+  private void prefetchFooters(int row) {
+    if (row == 0) {
+      // new incoming batch
+      footerPrefetcher.reset();
+      nextRowToPrefetch = 0;
+    }
+    nextRowToPrefetch = Math.max(nextRowToPrefetch, row);
+    final int records = incoming.getRecordCount();
+    while (nextRowToPrefetch < records && footerPrefetcher.canSubmit()) {
+      final int prefetchRow = nextRowToPrefetch++;
+      final long fileSize = fileSizeVector.get(prefetchRow);
+      if (isDeletedFile.getObject(prefetchRow) || fileSize == 0) {
+        continue;
+      }
+      final String path = new String(pathVector.get(prefetchRow), StandardCharsets.UTF_8);
+      footerPrefetcher.submit(prefetchRow, path, fileSize, mtimeVector.get(prefetchRow));
+    }
+  }
+
+  private Footer readFooter(String path, long fileSize) throws IOException {
+    final FooterReader reader = footerReader(getFS(path));
+    final String filePath = PathUtils.withoutQueryParams(path);
+    if (footerPrefetcher != null) {
+      if (!(reader instanceof ParquetFooterReader)
+          || !((ParquetFooterReader) reader).isReadFooter()) {
+        // row counts are estimated without reading the footer
+        footerPrefetcher.close();
+        footerPrefetcher = null;
+      } else {
+        final MutableParquetMetadata metadata = footerPrefetcher.take(currentRow, filePath);
+        if (metadata != null) {
+          return ((ParquetFooterReader) reader).getFooter(filePath, fileSize, metadata);
+        }
+      }
+    }
+    return reader.getFooter(filePath, fileSize);
   }
 
   @Override
@@ -218,8 +279,7 @@ public class FooterReadTableFunction extends AbstractTableFunction {
         }
         Footer footer = null;
         try {
-          footer =
-              footerReader(getFS(path)).getFooter(PathUtils.withoutQueryParams(path), fileSize);
+          footer = readFooter(path, fileSize);
         } catch (Exception e) {
           String msg =
               String.format(
@@ -359,6 +419,30 @@ public class FooterReadTableFunction extends AbstractTableFunction {
       operatorStats.setLongStat(ScanOperator.Metric.NUM_ROW_GROUPS, numberOfRowGroupsRead);
     }
     operatorStats.setLongStat(TableFunctionOperator.Metric.MAX_SCHEMA_WIDTH, maxSchemaWidth);
+    if (footerPrefetcher != null && footerPrefetcher.getNumReads() > 0) {
+      final ParquetFooterPrefetcher.Histogram bytes = footerPrefetcher.getFooterBytes();
+      final ParquetFooterPrefetcher.Histogram latency = footerPrefetcher.getLatencyMillis();
+      operatorStats.setLongStat(
+          TableFunctionOperator.Metric.NUM_ASYNC_FOOTER_READS, footerPrefetcher.getNumReads());
+      operatorStats.setLongStat(
+          TableFunctionOperator.Metric.NUM_ASYNC_FOOTER_EXTRA_READS,
+          footerPrefetcher.getNumExtraReads());
+      operatorStats.setLongStat(
+          TableFunctionOperator.Metric.ASYNC_FOOTER_BYTES_P50, bytes.getPercentile(50));
+      operatorStats.setLongStat(
+          TableFunctionOperator.Metric.ASYNC_FOOTER_BYTES_MAX, bytes.getMax());
+      operatorStats.setLongStat(
+          TableFunctionOperator.Metric.ASYNC_FOOTER_READ_LATENCY_P50_MS, latency.getPercentile(50));
+      operatorStats.setLongStat(
+          TableFunctionOperator.Metric.ASYNC_FOOTER_READ_LATENCY_P99_MS, latency.getPercentile(99));
+      operatorStats.setLongStat(
+          TableFunctionOperator.Metric.ASYNC_FOOTER_READ_LATENCY_MAX_MS, latency.getMax());
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    AutoCloseables.close(footerPrefetcher, super::close);
   }
 
   /**
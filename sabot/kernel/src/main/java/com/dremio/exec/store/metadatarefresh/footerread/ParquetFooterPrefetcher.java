@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.metadatarefresh.footerread;
+
+import com.dremio.common.utils.PathUtils;
+import com.dremio.exec.store.parquet.MutableParquetMetadata;
+import com.dremio.exec.store.parquet.ParquetFormatPlugin;
+import com.dremio.exec.store.parquet.SingletonParquetFooterCache;
+import com.dremio.io.AsyncByteReader;
+import com.dremio.io.file.FileSystem;
+import com.dremio.io.file.Path;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import org.apache.parquet.format.converter.ParquetMetadataConverter;
+
+/**
+ * Reads the footers of the parquet files of an incoming batch ahead of the footer read table
+ * function, keeping up to a fixed number of reads in flight through {@link AsyncByteReader}.
+ *
+ * <p>Each footer is fetched with a single ranged read of the tail of the file, whose length is
+ * guessed from the file size and the ratio of footer to file size observed so far. A second read is
+ * only issued when the guess was too short.
+ *
+ * <p>Reads are submitted and consumed in row order by the fragment thread, the instance is not
+ * thread-safe.
+ */
+public class ParquetFooterPrefetcher implements AutoCloseable {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(ParquetFooterPrefetcher.class);
+
+  // extra room added to the guessed tail length, so that files slightly larger than the average
+  // footer ratio still need a single read
+  private static final double TAIL_LENGTH_MARGIN = 1.25;
+  private static final double RATIO_SMOOTHING = 0.1;
+
+  private final Function<String, FileSystem> fsProvider;
+  private final List<String> datasetKey;
+  private final int maxInFlight;
+  private final long maxFooterLen;
+
+  private final ArrayDeque<PendingRead> pending = new ArrayDeque<>();
+  private final Histogram footerBytes = new Histogram();
+  private final Histogram latencyMillis = new Histogram();
+  private double footerRatio = -1;
+  private long extraReads;
+  private boolean disabled;
+
+  public ParquetFooterPrefetcher(
+      Function<String, FileSystem> fsProvider,
+      List<String> datasetKey,
+      int maxInFlight,
+      long maxFooterLen) {
+    Preconditions.checkArgument(maxInFlight > 0, "at least one footer read must be in flight");
+    this.fsProvider = fsProvider;
+    this.datasetKey = datasetKey;
+    this.maxInFlight = maxInFlight;
+    this.maxFooterLen = maxFooterLen;
+  }
+
+  /** Whether another read can be submitted without exceeding the number of reads in flight. */
+  public boolean canSubmit() {
+    return !disabled && pending.size() < maxInFlight;
+  }
+
+  /**
+   * Starts reading the footer of the file of the given row. Files that cannot be read
+   * asynchronously are skipped, {@link #take} then returns null for them.
+   *
+   * @param path path of the file, as listed by the directory listing
+   */
+  public void submit(int row, String path, long fileSize, long mtime) {
+    Preconditions.checkState(canSubmit(), "too many footer reads in flight");
+    final FileSystem fs = fsProvider.apply(path);
+    if (!fs.supportsAsync()) {
+      logger.debug("File system of {} does not support async reads, reading footers inline", path);
+      disabled = true;
+      return;
+    }
+    if (fileSize < SingletonParquetFooterCache.MIN_FILE_SIZE) {
+      // let the synchronous reader report the error
+      return;
+    }
+
+    final String filePath = PathUtils.withoutQueryParams(path);
+    final AsyncByteReader reader;
+    try {
+      reader =
+          fs.getAsyncByteReader(
+              AsyncByteReader.FileKey.of(
+                  Path.of(filePath),
+                  Long.toString(mtime),
+                  AsyncByteReader.FileKey.FileType.PARQUET,
+                  datasetKey),
+              Collections.emptyMap());
+    } catch (IOException | UnsupportedOperationException e) {
+      logger.debug("Failed to open async reader for {}, reading footer inline", path, e);
+      return;
+    }
+
+    final PendingRead read = new PendingRead(row, fileSize);
+    read.future =
+        readFooter(read, reader, filePath, fileSize, guessTailLength(fileSize))
+            .whenComplete(
+                (bytes, e) -> {
+                  read.completedNanos = System.nanoTime();
+                  try {
+                    reader.close();
+                  } catch (Exception ex) {
+                    logger.debug("Failed to close async reader for {}", filePath, ex);
+                  }
+                });
+    pending.add(read);
+  }
+
+  /**
+   * Returns the footer of the file of the given row, waiting for its read to complete, or null if
+   * it was not read ahead. Reads submitted for earlier rows that were not taken are dropped.
+   */
+  public MutableParquetMetadata take(int row, String path) throws IOException {
+    final byte[] bytes = takeFooterBytes(row, path);
+    if (bytes == null) {
+      return null;
+    }
+    return new MutableParquetMetadata(
+        ParquetFormatPlugin.parquetMetadataConverter.readParquetMetadata(
+            new ByteArrayInputStream(bytes), ParquetMetadataConverter.NO_FILTER),
+        Path.of(path).getName());
+  }
+
+  @VisibleForTesting
+  byte[] takeFooterBytes(int row, String path) throws IOException {
+    while (!pending.isEmpty() && pending.peek().row < row) {
+      pending.poll();
+    }
+    if (pending.isEmpty() || pending.peek().row != row) {
+      return null;
+    }
+
+    final PendingRead read = pending.poll();
+    final byte[] bytes;
+    try {
+      bytes = read.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading footer of " + path, e);
+    } catch (ExecutionException e) {
+      Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+      throw new IOException("Failed to read footer of " + path, e.getCause());
+    }
+
+    if (read.extraRead) {
+      extraReads++;
+    }
+    footerBytes.add(bytes.length);
+    latencyMillis.add((read.completedNanos - read.submittedNanos) / 1_000_000);
+    final double ratio =
+        (double) (bytes.length + SingletonParquetFooterCache.FOOTER_METADATA_SIZE) / read.fileSize;
+    footerRatio =
+        footerRatio < 0 ? ratio : RATIO_SMOOTHING * ratio + (1 - RATIO_SMOOTHING) * footerRatio;
+    return bytes;
+  }
+
+  /** Drops the reads of the current batch. */
+  public void reset() {
+    pending.clear();
+  }
+
+  @VisibleForTesting
+  int guessTailLength(long fileSize) {
+    long length = SingletonParquetFooterCache.DEFAULT_READ_SIZE;
+    if (footerRatio > 0) {
+      length = Math.max(length, (long) (footerRatio * fileSize * TAIL_LENGTH_MARGIN));
+    }
+    length = Math.min(length, maxFooterLen + SingletonParquetFooterCache.FOOTER_METADATA_SIZE);
+    return (int) Math.min(length, fileSize);
+  }
+
+  private CompletableFuture<byte[]> readFooter(
+      PendingRead read, AsyncByteReader reader, String path, long fileSize, int tailLength) {
+    return reader
+        .readFully(fileSize - tailLength, tailLength)
+        .thenCompose(
+            tail -> {
+              final int size;
+              try {
+                size = SingletonParquetFooterCache.readFooterLength(path, tail, maxFooterLen);
+              } catch (IOException e) {
+                return failedFuture(e);
+              }
+
+              final int available = tail.length - SingletonParquetFooterCache.FOOTER_METADATA_SIZE;
+              if (size <= available) {
+                final byte[] footer = new byte[size];
+                System.arraycopy(tail, available - size, footer, 0, size);
+                return CompletableFuture.completedFuture(footer);
+              }
+
+              // the guess was too short, read the beginning of the footer
+              read.extraRead = true;
+              final int missing = size - available;
+              return reader
+                  .readFully(fileSize - tailLength - missing, missing)
+                  .thenApply(
+                      head -> {
+                        final byte[] footer = new byte[size];
+                        System.arraycopy(head, 0, footer, 0, missing);
+                        System.arraycopy(tail, 0, footer, missing, available);
+                        return footer;
+                      });
+            });
+  }
+
+  private static <T> CompletableFuture<T> failedFuture(Throwable t) {
+    final CompletableFuture<T> future = new CompletableFuture<>();
+    future.completeExceptionally(t);
+    return future;
+  }
+
+  public long getNumReads() {
+    return footerBytes.count;
+  }
+
+  public long getNumExtraReads() {
+    return extraReads;
+  }
+
+  public Histogram getFooterBytes() {
+    return footerBytes;
+  }
+
+  public Histogram getLatencyMillis() {
+    return latencyMillis;
+  }
+
+  @Override
+  public void close() {
+    // outstanding reads close their reader on completion
+    pending.clear();
+  }
+
+  private static final class PendingRead {
+    private final int row;
+    private final long fileSize;
+    private final long submittedNanos = System.nanoTime();
+    private CompletableFuture<byte[]> future;
+    private volatile boolean extraRead;
+    private volatile long completedNanos;
+
+    PendingRead(int row, long fileSize) {
+      this.row = row;
+      this.fileSize = fileSize;
+    }
+  }
+
+  /**
+   * Histogram with power of two buckets, precise enough to report the percentiles of footer sizes
+   * and read latencies in operator metrics.
+   */
+  public static final class Histogram {
+    private final long[] buckets = new long[Long.SIZE];
+    private long count;
+    private long max;
+
+    void add(long value) {
+      final long v = Math.max(0, value);
+      buckets[Long.SIZE - Long.numberOfLeadingZeros(v)]++;
+      count++;
+      max = Math.max(max, v);
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    /** Upper bound of the bucket holding the given percentile, capped by the maximum value. */
+    public long getPercentile(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      final long rank = (long) Math.ceil(percentile / 100 * count);
+      long seen = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        seen += buckets[i];
+        if (seen >= rank) {
+          return i == 0 ? 0 : Math.min(max, (1L << i) - 1);
+        }
+      }
+      return max;
+    }
+  }
+}
@@ -96,8 +96,15 @@ public class ParquetFooterReader implements FooterReader, SupportsTypeCoercionsA
 
   @Override
   public Footer getFooter(String path, long fileSize) throws IOException {
-    MutableParquetMetadata parquetMetadata =
-        this.readFooter ? readParquetMetadata(path, fileSize) : null;
+    return getFooter(path, fileSize, this.readFooter ? readParquetMetadata(path, fileSize) : null);
+  }
+
+  /**
+   * Builds the footer of a file from parquet metadata that was already read, only used when {@link
+   * #isReadFooter()} is set.
+   */
+  public Footer getFooter(String path, long fileSize, MutableParquetMetadata parquetMetadata)
+      throws IOException {
     if (readFooter) {
       return new ParquetFooter(
           createBatchSchemaIfNeeded(parquetMetadata, path, fileSize),
@@ -111,6 +118,11 @@ public class ParquetFooterReader implements FooterReader, SupportsTypeCoercionsA
     }
   }
 
+  /** Whether the footer of the files is read, or the row count estimated from the file size. */
+  public boolean isReadFooter() {
+    return readFooter;
+  }
+
   private long getRowCount(MutableParquetMetadata parquetMetadata, long fileSize) {
     Preconditions.checkState(!readFooter || parquetMetadata != null, "Unexpected state");
     if (parquetMetadata != null) {
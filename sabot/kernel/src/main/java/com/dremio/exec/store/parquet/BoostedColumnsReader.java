@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.common.exceptions.ExecutionSetupException;
+import com.dremio.common.exceptions.UserException;
+import com.dremio.exec.store.RecordReader;
+import com.dremio.exec.store.easy.arrow.ArrowFlatBufRecordReader;
+import com.dremio.io.FSInputStream;
+import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.op.scan.OutputMutator;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.arrow.memory.OutOfMemoryException;
+import org.apache.arrow.vector.ValueVector;
+
+/**
+ * Reads the columns of a row group from their boost files, one {@link ArrowFlatBufRecordReader} per
+ * column. The boost files of a row group are written in lockstep by the boost operator, so the
+ * readers are advanced together; columns are only added if their batch layout matches.
+ */
+class BoostedColumnsReader implements RecordReader {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(BoostedColumnsReader.class);
+
+  private final OperatorContext context;
+  private final List<ArrowFlatBufRecordReader> readers = new ArrayList<>();
+  private final List<FSInputStream> streams = new ArrayList<>();
+  private List<Integer> batchSizes;
+  private long bytes;
+
+  BoostedColumnsReader(OperatorContext context) {
+    this.context = context;
+  }
+
+  /**
+   * Adds the boost file of a column. The reader takes ownership of the stream.
+   *
+   * @return false if the file does not hold {@code rowCount} rows split in the same batches as the
+   *     files already added, in which case the column can't be read in lockstep with them
+   */
+  boolean addColumn(FSInputStream stream, long size, long rowCount) throws IOException {
+    streams.add(stream);
+    final ArrowFlatBufRecordReader reader = new ArrowFlatBufRecordReader(context, stream, size);
+    readers.add(reader);
+    reader.readFooter();
+
+    final List<Integer> sizes = new ArrayList<>(reader.getBatchCount());
+    long total = 0;
+    for (int i = 0; i < reader.getBatchCount(); i++) {
+      sizes.add(reader.getRecordBatchSize(i));
+      total += reader.getRecordBatchSize(i);
+    }
+    if (total != rowCount || (batchSizes != null && !batchSizes.equals(sizes))) {
+      return false;
+    }
+    batchSizes = sizes;
+    bytes += size;
+    return true;
+  }
+
+  int getColumnCount() {
+    return readers.size();
+  }
+
+  long getBytes() {
+    return bytes;
+  }
+
+  @Override
+  public void setup(OutputMutator output) throws ExecutionSetupException {
+    for (ArrowFlatBufRecordReader reader : readers) {
+      reader.setup(output);
+    }
+  }
+
+  @Override
+  public void allocate(Map<String, ValueVector> vectorMap) throws OutOfMemoryException {
+    // no-op, vectors are loaded from the boost files
+  }
+
+  @Override
+  public int next() {
+    int recordCount = -1;
+    for (ArrowFlatBufRecordReader reader : readers) {
+      final int count = reader.next();
+      if (recordCount >= 0 && count != recordCount) {
+        throw UserException.dataReadError()
+            .message("Boost files of a row group are not aligned")
+            .addContext("expected records", recordCount)
+            .addContext("actual records", count)
+            .build(logger);
+      }
+      recordCount = count;
+    }
+    return Math.max(recordCount, 0);
+  }
+
+  @Override
+  public void close() throws Exception {
+    AutoCloseables.close(readers, streams);
+  }
+}
@@ -38,6 +38,12 @@ public interface InputStreamProvider extends AutoCloseable {
    */
   Path getStreamPath();
 
+  /**
+   * Announces the column chunks that are about to be read with {@link #getStream}, so that the
+   * provider may fetch them ahead. Does nothing by default.
+   */
+  default void prefetchColumnChunks(List<ColumnChunkMetaData> columns) throws IOException {}
+
   /** Reads the footer -- or returns the cached one */
   MutableParquetMetadata getFooter() throws IOException;
 
@@ -93,28 +93,35 @@ public interface InputStreamProviderFactory {
 
           final long maxFooterLen =
               context.getOptions().getOption(ExecConstants.PARQUET_MAX_FOOTER_LEN_VALIDATOR);
-          return useSingleStream
-              ? new SingleStreamProvider(
-                  fs,
-                  path,
-                  fileLength,
-                  maxFooterLen,
-                  readFullFile,
-                  footerIfKnown,
-                  context,
-                  readColumnIndices,
-                  parquetFilters,
-                  parquetFilterCreator)
-              : new StreamPerColumnProvider(
-                  fs,
-                  path,
-                  fileLength,
-                  maxFooterLen,
-                  footerIfKnown,
-                  context,
-                  readColumnIndices,
-                  parquetFilters,
-                  parquetFilterCreator);
+          final InputStreamProvider provider =
+              useSingleStream
+                  ? new SingleStreamProvider(
+                      fs,
+                      path,
+                      fileLength,
+                      mTime,
+                      maxFooterLen,
+                      readFullFile,
+                      footerIfKnown,
+                      context,
+                      readColumnIndices,
+                      parquetFilters,
+                      parquetFilterCreator)
+                  : new StreamPerColumnProvider(
+                      fs,
+                      path,
+                      fileLength,
+                      mTime,
+                      maxFooterLen,
+                      footerIfKnown,
+                      context,
+                      readColumnIndices,
+                      parquetFilters,
+                      parquetFilterCreator);
+          return VectoredReadStreamProvider.isEnabled(options, fs, mTime, readFullFile)
+              ? new VectoredReadStreamProvider(
+                  provider, fs, path, fileLength, mTime, dataset, context)
+              : provider;
         }
       };
 }
@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import com.dremio.exec.ExecConstants;
+import com.dremio.io.file.FileSystem;
+import com.dremio.io.file.Path;
+import com.dremio.options.OptionManager;
+import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.op.scan.ScanOperator.Metric;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.OutOfMemoryException;
+import org.apache.parquet.bytes.ByteBufferInputStream;
+import org.apache.parquet.format.converter.ParquetMetadataConverter;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+
+/**
+ * Executor-wide cache of Parquet footers, shared by all the readers of the executor so that the
+ * splits of a file, and repeated scans of it, read its footer from the storage once.
+ *
+ * <p>Footers are kept serialized, and parsed again on every hit: readers trim the footer they are
+ * given (see {@link MutableParquetMetadata}), so parsed footers can't be shared. The cache is
+ * bounded by the total serialized size of the footers. They are optionally kept off-heap, in
+ * buffers of a child of the executor's root allocator (see {@link #start}), so that they count
+ * against the memory of the executor. Cached footers are reference counted: a footer evicted while
+ * a reader parses it is released once the reader is done.
+ *
+ * <p>Entries are keyed by path, modification time and length, a file rewritten in place is
+ * therefore read again. Thread-safe.
+ */
+public final class ParquetFooterCache {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(ParquetFooterCache.class);
+
+  // approximate heap used by an entry besides the footer and the path
+  private static final int ENTRY_OVERHEAD = 128;
+
+  private static volatile ParquetFooterCache instance;
+  // allocator of the off-heap footers, null when no executor is started
+  private static volatile BufferAllocator offHeapAllocator;
+  // number of executors of the process sharing the allocator, guarded by the class
+  private static int started;
+
+  private final long maxBytes;
+  // null when footers are kept on-heap
+  private final BufferAllocator allocator;
+  private final Cache<Key, Footer> cache;
+
+  @VisibleForTesting
+  ParquetFooterCache(long maxBytes, BufferAllocator allocator) {
+    this.maxBytes = maxBytes;
+    this.allocator = allocator;
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher(
+                (Key key, Footer footer) ->
+                    (int)
+                        Math.min(
+                            Integer.MAX_VALUE,
+                            (long) footer.length + key.path.length() * 2L + ENTRY_OVERHEAD))
+            .removalListener((RemovalNotification<Key, Footer> n) -> n.getValue().release())
+            .recordStats()
+            .build();
+  }
+
+  /**
+   * Allocate the off-heap footers from a child of the given allocator from now on. Called when the
+   * executor starts, footers are kept on-heap until then.
+   */
+  public static synchronized void start(BufferAllocator rootAllocator) {
+    if (started++ == 0) {
+      offHeapAllocator = rootAllocator.newChildAllocator("parquet-footer-cache", 0, Long.MAX_VALUE);
+    }
+  }
+
+  /**
+   * Called when the executor stops. Once every executor of the process stopped, the cached footers
+   * are dropped and the allocator created by {@link #start} is closed.
+   */
+  public static synchronized void stop() {
+    if (started == 0 || --started > 0) {
+      return;
+    }
+    final ParquetFooterCache current = instance;
+    instance = null;
+    if (current != null) {
+      current.cache.invalidateAll();
+    }
+    offHeapAllocator.close();
+    offHeapAllocator = null;
+  }
+
+  /**
+   * Returns the cache configured by the given options, or null if the cache is disabled. The cache
+   * is dropped and created again if its configuration changed.
+   */
+  public static ParquetFooterCache getInstance(OptionManager options) {
+    if (!options.getOption(ExecConstants.PARQUET_FOOTER_CACHE_ENABLED)) {
+      return null;
+    }
+    final long maxBytes = options.getOption(ExecConstants.PARQUET_FOOTER_CACHE_MAX_SIZE_BYTES);
+    final BufferAllocator allocator =
+        options.getOption(ExecConstants.PARQUET_FOOTER_CACHE_OFF_HEAP) ? offHeapAllocator : null;
+    ParquetFooterCache current = instance;
+    if (current == null || current.maxBytes != maxBytes || current.allocator != allocator) {
+      synchronized (ParquetFooterCache.class) {
+        current = instance;
+        if (current == null || current.maxBytes != maxBytes || current.allocator != allocator) {
+          logger.info(
+              "Creating parquet footer cache of {} bytes {}",
+              maxBytes,
+              allocator != null ? "off-heap" : "on-heap");
+          if (current != null) {
+            // footers still being parsed are released by their readers
+            current.cache.invalidateAll();
+          }
+          current = new ParquetFooterCache(maxBytes, allocator);
+          instance = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * Reads the footer of a file for a reader. The cache is used when it is enabled and the
+   * modification time of the file is known, hits and misses are then added to the operator stats.
+   */
+  static ParquetMetadata readFooter(
+      OperatorContext context,
+      BulkInputStream is,
+      FileSystem fs,
+      Path path,
+      long fileLength,
+      long mTime,
+      long maxFooterLen) {
+    final ParquetFooterCache footerCache =
+        context != null && mTime >= 0 && fileLength >= 0 ? getInstance(context.getOptions()) : null;
+    if (footerCache == null) {
+      return new SingletonParquetFooterCache()
+          .getFooter(is, path.toString(), fileLength, fs, maxFooterLen);
+    }
+
+    final ParquetReaderStats stats = new ParquetReaderStats();
+    try {
+      return footerCache.getFooter(is, fs, path, fileLength, mTime, maxFooterLen, stats);
+    } catch (IOException e) {
+      throw SingletonParquetFooterCache.toReadException(e, path.toString());
+    } finally {
+      if (context.getStats() != null) {
+        context.getStats().addLongStat(Metric.NUM_FOOTER_CACHE_HITS, stats.numFooterCacheHits);
+        context.getStats().addLongStat(Metric.NUM_FOOTER_CACHE_MISSES, stats.numFooterCacheMisses);
+      }
+    }
+  }
+
+  /**
+   * Returns the footer of the given file, reading it from the stream if it is not cached. Hits and
+   * misses are counted in the given stats.
+   */
+  public ParquetMetadata getFooter(
+      BulkInputStream is,
+      FileSystem fs,
+      Path path,
+      long fileLength,
+      long mTime,
+      long maxFooterLen,
+      ParquetReaderStats stats)
+      throws IOException {
+    final Footer footer =
+        getFooterBytes(
+            new Key(path.toString(), mTime, fileLength),
+            () ->
+                SingletonParquetFooterCache.readFooterBytes(
+                    is, path.toString(), fileLength, fs, maxFooterLen),
+            stats);
+    try {
+      return ParquetFormatPlugin.parquetMetadataConverter.readParquetMetadata(
+          footer.newInputStream(), ParquetMetadataConverter.NO_FILTER);
+    } finally {
+      footer.release();
+    }
+  }
+
+  /**
+   * Returns the serialized footer of the given key, read with the given reader if it is not cached.
+   * The caller must release the returned footer.
+   */
+  @VisibleForTesting
+  Footer getFooterBytes(Key key, Callable<byte[]> reader, ParquetReaderStats stats)
+      throws IOException {
+    final boolean[] loaded = new boolean[1];
+    final long start = System.nanoTime();
+    Footer footer;
+    try {
+      footer =
+          cache.get(
+              key,
+              () -> {
+                loaded[0] = true;
+                return store(read(key, reader));
+              });
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to read parquet footer for file " + key.path, e.getCause());
+    }
+
+    if (!footer.retain()) {
+      // evicted before it could be retained, for instance because it alone exceeds the cache size
+      footer = new Footer(read(key, reader));
+    }
+
+    if (stats != null) {
+      if (loaded[0]) {
+        stats.numFooterCacheMisses++;
+        stats.timeFooterReads += System.nanoTime() - start;
+      } else {
+        stats.numFooterCacheHits++;
+      }
+    }
+    return footer;
+  }
+
+  private static byte[] read(Key key, Callable<byte[]> reader) throws IOException {
+    try {
+      return reader.call();
+    } catch (IOException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("Failed to read parquet footer for file " + key.path, e);
+    }
+  }
+
+  private Footer store(byte[] footer) {
+    if (allocator == null) {
+      return new Footer(footer);
+    }
+    final ArrowBuf buffer;
+    try {
+      buffer = allocator.buffer(footer.length);
+    } catch (OutOfMemoryException e) {
+      logger.debug(
+          "Unable to keep a footer of {} bytes off-heap, keeping it on-heap", footer.length);
+      return new Footer(footer);
+    }
+    buffer.setBytes(0, footer);
+    return new Footer(buffer, footer.length);
+  }
+
+  /** Executor-wide hits and misses of the cache. */
+  public CacheStats getCacheStats() {
+    return cache.stats();
+  }
+
+  @VisibleForTesting
+  long getSize() {
+    return cache.size();
+  }
+
+  @VisibleForTesting
+  void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * A serialized footer, on-heap or off-heap. Holds one reference for the cache and one for every
+   * reader, the off-heap buffer is released with the last one.
+   */
+  @VisibleForTesting
+  static final class Footer {
+    private final byte[] bytes;
+    private final ArrowBuf buffer;
+    private final int length;
+    // guarded by this
+    private int references = 1;
+
+    private Footer(byte[] bytes) {
+      this.bytes = bytes;
+      this.buffer = null;
+      this.length = bytes.length;
+    }
+
+    private Footer(ArrowBuf buffer, int length) {
+      this.bytes = null;
+      this.buffer = buffer;
+      this.length = length;
+    }
+
+    private synchronized boolean retain() {
+      if (references == 0) {
+        return false;
+      }
+      references++;
+      return true;
+    }
+
+    void release() {
+      final boolean free;
+      synchronized (this) {
+        free = --references == 0;
+      }
+      if (free && buffer != null) {
+        buffer.close();
+      }
+    }
+
+    InputStream newInputStream() {
+      return bytes != null
+          ? new ByteArrayInputStream(bytes)
+          : ByteBufferInputStream.wrap(buffer.nioBuffer(0, length));
+    }
+
+    boolean isOffHeap() {
+      return buffer != null;
+    }
+
+    int getLength() {
+      return length;
+    }
+  }
+
+  @VisibleForTesting
+  static final class Key {
+    private final String path;
+    private final long mTime;
+    private final long length;
+
+    Key(String path, long mTime, long length) {
+      this.path = path;
+      this.mTime = mTime;
+      this.length = length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return mTime == key.mTime && length == key.length && path.equals(key.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, mTime, length);
+    }
+  }
+}
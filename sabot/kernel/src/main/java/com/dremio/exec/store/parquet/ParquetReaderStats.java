@@ -38,5 +38,23 @@ public class ParquetReaderStats {
   public long timeDictPagesDecompressed;
   public long timePagesDecompressed;
 
+  public long numFooterCacheHits;
+  public long numFooterCacheMisses;
+  public long timeFooterReads;
+
+  // coalesced column chunk reads, see VectoredReadStreamProvider
+  public long numVectoredReadRegions;
+  public long numVectoredReadRequests;
+  public long totalVectoredReadBytes;
+  public long totalVectoredUsefulBytes;
+  public long timeVectoredReadWaits;
+
   public ParquetReaderStats() {}
+
+  /** Bytes read by coalesced reads per byte of column chunk they served, 0 if there was none. */
+  public double getVectoredReadAmplification() {
+    return totalVectoredUsefulBytes == 0
+        ? 0
+        : (double) totalVectoredReadBytes / totalVectoredUsefulBytes;
+  }
 }
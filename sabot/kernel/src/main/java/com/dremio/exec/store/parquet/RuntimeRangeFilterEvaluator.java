@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import com.dremio.exec.store.CompositeColumnFilter;
+import com.dremio.exec.store.RuntimeFilter;
+import com.dremio.exec.util.ValueListFilter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.internal.column.columnindex.ColumnIndex;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.PrimitiveType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Helper class for evaluating the range runtime filters against a row group. A row group can be
+ * skipped if, for any of the range filters, none of its values fall in the range. The column chunk
+ * statistics are checked first, and the page index is looked up only if the statistics do not rule
+ * out the row group.
+ */
+class RuntimeRangeFilterEvaluator {
+  private static final Logger logger = LoggerFactory.getLogger(RuntimeRangeFilterEvaluator.class);
+
+  private final BlockMetaData rowGroup;
+  private final ParquetColumnResolver columnResolver;
+  private final InputStreamProvider inputStreamProvider;
+
+  RuntimeRangeFilterEvaluator(
+      BlockMetaData rowGroup,
+      ParquetColumnResolver columnResolver,
+      InputStreamProvider inputStreamProvider) {
+    this.rowGroup = rowGroup;
+    this.columnResolver = columnResolver;
+    this.inputStreamProvider = inputStreamProvider;
+  }
+
+  /** Returns true if no row of the row group can pass the range filters. */
+  boolean canBeSkipped(List<RuntimeFilter> runtimeFilters) {
+    final List<ColumnChunkMetaData> chunks = new ArrayList<>();
+    final List<ValueListFilter> ranges = new ArrayList<>();
+    for (RuntimeFilter runtimeFilter : runtimeFilters) {
+      for (CompositeColumnFilter rangeFilter : runtimeFilter.getRangeColumnFilters()) {
+        final ValueListFilter range = rangeFilter.getValueList();
+        final ColumnChunkMetaData chunk = findColumnChunk(rangeFilter.getColumnsList().get(0));
+        if (range.getValueCount() != 2 || chunk == null || !isComparable(range, chunk)) {
+          continue;
+        }
+        if (isOutOfRange(range, chunk)) {
+          return true;
+        }
+        chunks.add(chunk);
+        ranges.add(range);
+      }
+    }
+    return !chunks.isEmpty() && isOutOfRangeInAllPages(ranges, chunks);
+  }
+
+  private ColumnChunkMetaData findColumnChunk(String column) {
+    final String parquetColumn = columnResolver.getParquetColumnName(column);
+    if (parquetColumn == null) {
+      return null;
+    }
+    for (ColumnChunkMetaData chunk : rowGroup.getColumns()) {
+      if (chunk.getPath().size() == 1
+          && chunk.getPath().toDotString().equalsIgnoreCase(parquetColumn)) {
+        return chunk;
+      }
+    }
+    return null;
+  }
+
+  /** Only the integral columns whose statistics order like the range values are considered. */
+  private static boolean isComparable(ValueListFilter range, ColumnChunkMetaData chunk) {
+    final PrimitiveType type = chunk.getPrimitiveType();
+    final LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+    switch (range.getFieldType()) {
+      case INT:
+      case BIGINT:
+        return (type.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.INT32
+                || type.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.INT64)
+            && (annotation == null
+                || (annotation instanceof LogicalTypeAnnotation.IntLogicalTypeAnnotation
+                    && ((LogicalTypeAnnotation.IntLogicalTypeAnnotation) annotation).isSigned()));
+      case TIMESTAMPMILLI:
+        return type.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.INT64
+            && annotation instanceof LogicalTypeAnnotation.TimestampLogicalTypeAnnotation
+            && ((LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) annotation).getUnit()
+                == LogicalTypeAnnotation.TimeUnit.MILLIS;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isOutOfRange(ValueListFilter range, ColumnChunkMetaData chunk) {
+    final Statistics<?> stats = chunk.getStatistics();
+    if (stats == null || stats.isEmpty() || !stats.isNumNullsSet()) {
+      return false;
+    }
+    if (stats.getNumNulls() > 0 && range.isContainsNull()) {
+      return false;
+    }
+    if (!stats.hasNonNullValue()) {
+      // only nulls
+      return stats.getNumNulls() == chunk.getValueCount();
+    }
+    return isOutOfRange(
+        range,
+        ((Number) stats.genericGetMin()).longValue(),
+        ((Number) stats.genericGetMax()).longValue());
+  }
+
+  private static boolean isOutOfRange(ValueListFilter range, long min, long max) {
+    return max < getMin(range) || min > getMax(range);
+  }
+
+  private boolean isOutOfRangeInAllPages(
+      List<ValueListFilter> ranges, List<ColumnChunkMetaData> chunks) {
+    try (ColumnIndexProvider columnIndexProvider =
+        inputStreamProvider.getColumnIndexProvider(chunks)) {
+      if (columnIndexProvider == null) {
+        return false;
+      }
+      for (int i = 0; i < chunks.size(); i++) {
+        final ColumnIndex columnIndex = columnIndexProvider.getColumnIndex(chunks.get(i));
+        if (columnIndex != null && isOutOfRange(ranges.get(i), chunks.get(i), columnIndex)) {
+          return true;
+        }
+      }
+      return false;
+    } catch (RuntimeException e) {
+      logger.debug("Unable to read the column indexes of the range filter columns", e);
+      return false;
+    }
+  }
+
+  private static boolean isOutOfRange(
+      ValueListFilter range, ColumnChunkMetaData chunk, ColumnIndex columnIndex) {
+    final List<Boolean> nullPages = columnIndex.getNullPages();
+    final List<ByteBuffer> minValues = columnIndex.getMinValues();
+    final List<ByteBuffer> maxValues = columnIndex.getMaxValues();
+    final List<Long> nullCounts = columnIndex.getNullCounts();
+    final boolean isInt32 =
+        chunk.getPrimitiveType().getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.INT32;
+    for (int page = 0; page < nullPages.size(); page++) {
+      if (range.isContainsNull() && (nullCounts == null || nullCounts.get(page) > 0)) {
+        return false;
+      }
+      if (nullPages.get(page)) {
+        continue;
+      }
+      final long min = decode(minValues.get(page), isInt32);
+      final long max = decode(maxValues.get(page), isInt32);
+      if (!isOutOfRange(range, min, max)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static long decode(ByteBuffer value, boolean isInt32) {
+    final ByteBuffer buffer = value.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    return isInt32 ? buffer.getInt(buffer.position()) : buffer.getLong(buffer.position());
+  }
+
+  private static long getMin(ValueListFilter range) {
+    return getValue(range, 0);
+  }
+
+  private static long getMax(ValueListFilter range) {
+    return getValue(range, 1);
+  }
+
+  private static long getValue(ValueListFilter range, int idx) {
+    return range.getBlockSize() == 4
+        ? range.valOnlyBuf().getInt(idx * 4L)
+        : range.valOnlyBuf().getLong(idx * 8L);
+  }
+}
@@ -38,6 +38,7 @@ public class SingleStreamProvider implements InputStreamProvider {
   private final Path path;
   private final BufferAllocator allocator;
   private final long fileLength;
+  private final long mTime;
   private final long maxFooterLen;
   private final boolean readFullFile;
   private BulkInputStream stream;
@@ -60,9 +61,39 @@ public class SingleStreamProvider implements InputStreamProvider {
       boolean readColumnOffsetIndices,
       ParquetFilters parquetFilters,
       ParquetFilterCreator parquetFilterCreator) {
+    this(
+        fs,
+        path,
+        fileLength,
+        -1,
+        maxFooterLen,
+        readFullFile,
+        footer,
+        context,
+        readColumnOffsetIndices,
+        parquetFilters,
+        parquetFilterCreator);
+  }
+
+  /**
+   * @param mTime modification time of the file, used to cache its footer, or -1 if unknown
+   */
+  public SingleStreamProvider(
+      FileSystem fs,
+      Path path,
+      long fileLength,
+      long mTime,
+      long maxFooterLen,
+      boolean readFullFile,
+      MutableParquetMetadata footer,
+      OperatorContext context,
+      boolean readColumnOffsetIndices,
+      ParquetFilters parquetFilters,
+      ParquetFilterCreator parquetFilterCreator) {
     this.fs = fs;
     this.path = path;
     this.fileLength = fileLength;
+    this.mTime = mTime;
     this.maxFooterLen = maxFooterLen;
     this.readFullFile = readFullFile;
     this.footer = footer;
@@ -165,10 +196,10 @@ public class SingleStreamProvider implements InputStreamProvider {
   @Override
   public MutableParquetMetadata getFooter() throws IOException {
     if (footer == null) {
-      SingletonParquetFooterCache footerCache = new SingletonParquetFooterCache();
       footer =
           new MutableParquetMetadata(
-              footerCache.getFooter(getStream(null), path.toString(), fileLength, fs, maxFooterLen),
+              ParquetFooterCache.readFooter(
+                  context, getStream(null), fs, path, fileLength, mTime, maxFooterLen),
               path.getName());
     }
     return footer;
@@ -37,12 +37,13 @@ public class SingletonParquetFooterCache {
   private static final org.slf4j.Logger logger =
       org.slf4j.LoggerFactory.getLogger(SingletonParquetFooterCache.class);
 
-  private static final int DEFAULT_READ_SIZE = 64 * 1024;
+  public static final int DEFAULT_READ_SIZE = 64 * 1024;
   private static final int FOOTER_LENGTH_SIZE = 4;
-  private static final int FOOTER_METADATA_SIZE =
+  // footer length and trailing magic
+  public static final int FOOTER_METADATA_SIZE =
       FOOTER_LENGTH_SIZE + ParquetFileWriter.MAGIC.length;
   private static final int MAGIC_LENGTH = ParquetFileWriter.MAGIC.length;
-  private static final int MIN_FILE_SIZE = ParquetFileWriter.MAGIC.length + FOOTER_METADATA_SIZE;
+  public static final int MIN_FILE_SIZE = ParquetFileWriter.MAGIC.length + FOOTER_METADATA_SIZE;
 
   private ParquetMetadata footer;
   private String lastFile;
@@ -50,25 +51,29 @@ public class SingletonParquetFooterCache {
   public ParquetMetadata getFooter(
       BulkInputStream is, String path, long fileLength, FileSystem fs, long maxFooterLen) {
     if (footer == null || !lastFile.equals(path)) {
-      String non_Parquet_Error_Message = "not a parquet file";
       try {
         footer = readFooter(is, path, fileLength, fs, maxFooterLen);
       } catch (IOException ioe) {
-        if (ioe.getMessage() != null
-            && ioe.getMessage().toLowerCase().contains(non_Parquet_Error_Message)) {
-          throw UserException.dataReadError(ioe)
-              .message(
-                  "The file %s is not in Parquet format. Please check the size and format of the files you are promoting and select the format from the dropdown box accordingly.",
-                  path)
-              .build(logger);
-        }
-        throw new RuntimeException("Failed to read parquet footer for file " + path, ioe);
+        throw toReadException(ioe, path);
       }
       lastFile = path;
     }
     return footer;
   }
 
+  static RuntimeException toReadException(IOException ioe, String path) {
+    String non_Parquet_Error_Message = "not a parquet file";
+    if (ioe.getMessage() != null
+        && ioe.getMessage().toLowerCase().contains(non_Parquet_Error_Message)) {
+      return UserException.dataReadError(ioe)
+          .message(
+              "The file %s is not in Parquet format. Please check the size and format of the files you are promoting and select the format from the dropdown box accordingly.",
+              path)
+          .build(logger);
+    }
+    return new RuntimeException("Failed to read parquet footer for file " + path, ioe);
+  }
+
   private static void checkMagicBytes(String path, byte[] data, int offset) throws IOException {
     for (int i = 0, v = offset; i < MAGIC_LENGTH; i++, v++) {
       if (ParquetFileWriter.MAGIC[i] != data[v]) {
@@ -127,6 +132,37 @@ public class SingletonParquetFooterCache {
       FileSystem fs,
       long maxFooterLen)
       throws IOException {
+    final byte[] footerBytes = readFooterBytes(file, path, fileLength, fs, maxFooterLen);
+    return ParquetFormatPlugin.parquetMetadataConverter.readParquetMetadata(
+        new ByteArrayInputStream(footerBytes), filter);
+  }
+
+  /**
+   * Validates the trailing magic of a parquet file and returns the length of its footer.
+   *
+   * @param tail the last bytes of the file, at least {@link #FOOTER_METADATA_SIZE} of them
+   */
+  public static int readFooterLength(String path, byte[] tail, long maxFooterLen)
+      throws IOException {
+    checkMagicBytes(path, tail, tail.length - ParquetFileWriter.MAGIC.length);
+    final int size = BytesUtils.readIntLittleEndian(tail, tail.length - FOOTER_METADATA_SIZE);
+
+    if (size > maxFooterLen) {
+      throw new IOException(
+          "Footer size of "
+              + path
+              + " is "
+              + size
+              + ". Max supported footer size is "
+              + maxFooterLen);
+    }
+    return size;
+  }
+
+  /** Reads the serialized footer of the given file, without the trailing length and magic. */
+  static byte[] readFooterBytes(
+      BulkInputStream file, String path, long fileLength, FileSystem fs, long maxFooterLen)
+      throws IOException {
     Preconditions.checkArgument(
         fileLength >= MIN_FILE_SIZE || fileLength == -1,
         "%s is not a Parquet file (too small)",
@@ -141,19 +177,7 @@ public class SingletonParquetFooterCache {
     file.seek(fileLength - len);
     file.readFully(footerBytes, 0, len);
 
-    checkMagicBytes(path, footerBytes, footerBytes.length - ParquetFileWriter.MAGIC.length);
-    final int size =
-        BytesUtils.readIntLittleEndian(footerBytes, footerBytes.length - FOOTER_METADATA_SIZE);
-
-    if (size > maxFooterLen) {
-      throw new IOException(
-          "Footer size of "
-              + path
-              + " is "
-              + size
-              + ". Max supported footer size is "
-              + maxFooterLen);
-    }
+    final int size = readFooterLength(path, footerBytes, maxFooterLen);
 
     if (size > footerBytes.length - FOOTER_METADATA_SIZE) {
       // if the footer is larger than our initial read, we need to read the rest.
@@ -171,7 +195,6 @@ public class SingletonParquetFooterCache {
     }
     logger.debug(
         "Read footer of {} of length {} in {} ms ", path, size, w.elapsed(TimeUnit.MILLISECONDS));
-    return ParquetFormatPlugin.parquetMetadataConverter.readParquetMetadata(
-        new ByteArrayInputStream(footerBytes), filter);
+    return footerBytes;
   }
 }
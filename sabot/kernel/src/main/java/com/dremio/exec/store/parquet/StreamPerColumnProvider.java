@@ -32,6 +32,7 @@ public class StreamPerColumnProvider implements InputStreamProvider {
   private final FileSystem fs;
   private final Path path;
   private final long length;
+  private final long mTime;
   private MutableParquetMetadata footer;
   private final long maxFooterLen;
   private boolean readColumnOffsetIndexes;
@@ -53,9 +54,37 @@ public class StreamPerColumnProvider implements InputStreamProvider {
       boolean readColumnOffsetIndexes,
       ParquetFilters parquetFilters,
       ParquetFilterCreator parquetFilterCreator) {
+    this(
+        fs,
+        path,
+        length,
+        -1,
+        maxFooterLen,
+        footer,
+        context,
+        readColumnOffsetIndexes,
+        parquetFilters,
+        parquetFilterCreator);
+  }
+
+  /**
+   * @param mTime modification time of the file, used to cache its footer, or -1 if unknown
+   */
+  public StreamPerColumnProvider(
+      FileSystem fs,
+      Path path,
+      long length,
+      long mTime,
+      long maxFooterLen,
+      MutableParquetMetadata footer,
+      OperatorContext context,
+      boolean readColumnOffsetIndexes,
+      ParquetFilters parquetFilters,
+      ParquetFilterCreator parquetFilterCreator) {
     this.fs = fs;
     this.path = path;
     this.length = length;
+    this.mTime = mTime;
     this.maxFooterLen = maxFooterLen;
     this.footer = footer;
     this.readColumnOffsetIndexes = readColumnOffsetIndexes;
@@ -143,10 +172,10 @@ public class StreamPerColumnProvider implements InputStreamProvider {
   @Override
   public MutableParquetMetadata getFooter() throws IOException {
     if (footer == null) {
-      SingletonParquetFooterCache footerCache = new SingletonParquetFooterCache();
       footer =
           new MutableParquetMetadata(
-              footerCache.getFooter(getStream(null), path.toString(), length, fs, maxFooterLen),
+              ParquetFooterCache.readFooter(
+                  context, getStream(null), fs, path, length, mTime, maxFooterLen),
               path.getName());
     }
     return footer;
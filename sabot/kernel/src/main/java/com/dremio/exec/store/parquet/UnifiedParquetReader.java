@@ -19,6 +19,7 @@ import static com.dremio.exec.store.SystemSchemas.FILE_GROUP_INDEX;
 
 import com.dremio.common.AutoCloseables;
 import com.dremio.common.arrow.DremioArrowSchema;
+import com.dremio.common.collections.Tuple;
 import com.dremio.common.config.SabotConfig;
 import com.dremio.common.exceptions.ExecutionSetupException;
 import com.dremio.common.exceptions.RowSizeLimitExceptionHelper;
@@ -32,6 +33,7 @@ import com.dremio.exec.record.BatchSchema;
 import com.dremio.exec.record.selection.SelectionVector2;
 import com.dremio.exec.store.AbstractRecordReader;
 import com.dremio.exec.store.CompositeColumnFilter;
+import com.dremio.exec.store.PartitionColumnRowFilter;
 import com.dremio.exec.store.RecordReader;
 import com.dremio.exec.store.RuntimeFilter;
 import com.dremio.exec.store.dfs.implicit.AdditionalColumnsRecordReader;
@@ -43,6 +45,9 @@ import com.dremio.exec.store.parquet2.ParquetRowiseReader;
 import com.dremio.exec.util.BitSetHelper;
 import com.dremio.exec.util.ColumnUtils;
 import com.dremio.exec.util.ValueListFilter;
+import com.dremio.io.AsyncByteReader;
+import com.dremio.io.FSInputStream;
+import com.dremio.io.file.BoostedFileSystem;
 import com.dremio.io.file.FileBlockLocation;
 import com.dremio.io.file.FileSystem;
 import com.dremio.io.file.Path;
@@ -56,6 +61,7 @@ import com.dremio.sabot.op.scan.OutputMutator;
 import com.dremio.sabot.op.scan.ScanOperator.Metric;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
 import com.google.common.collect.Sets;
@@ -128,10 +134,13 @@ public class UnifiedParquetReader implements RecordReader {
   private InputStreamProvider inputStreamProvider;
   private boolean ignoreSchemaLearning;
   private List<RuntimeFilter> runtimeFilters;
+  private BoostedColumnsReader boostedReader;
 
   private OutputMutator outputMutator;
   private ArrowBuf validityBuf;
   private final int maxValidityBufSize;
+  private final List<PartitionColumnRowFilter> rowFilters = new ArrayList<>();
+  private boolean skippedByRangeFilters;
   private List<FieldBufferCopier> copiers;
   private ArrowBuf sv2;
   private ArrowBuf rowSizeAccumulator;
@@ -290,7 +299,11 @@ public class UnifiedParquetReader implements RecordReader {
       this.validityBuf = context.getAllocator().buffer(maxValidityBufSize);
     }
 
-    final ExecutionPath execPath = getExecutionPath();
+    skippedByRangeFilters = canSkipRowGroup();
+    final ExecutionPath execPath =
+        skippedByRangeFilters
+            ? ExecutionPath.SKIP_ALL
+            : openBoostFiles() ? ExecutionPath.BOOSTED : getExecutionPath();
     delegates = execPath.getReaders(this);
 
     Preconditions.checkArgument(
@@ -320,6 +333,8 @@ public class UnifiedParquetReader implements RecordReader {
       filters.getEqualityDeleteFilter().setup(outputMutator, validityBuf);
     }
 
+    runtimeFilters.forEach(this::addRowFilter);
+
     setMetricValue(Metric.PARQUET_EXEC_PATH, Long.valueOf(execPath.ordinal()));
     setMetricValue(Metric.NUM_VECTORIZED_COLUMNS, Long.valueOf(vectorizableReaderColumns.size()));
     setMetricValue(
@@ -488,6 +503,10 @@ public class UnifiedParquetReader implements RecordReader {
 
   @Override
   public int next() {
+    if (skippedByRangeFilters) {
+      return 0;
+    }
+
     // at most one filter
     if (validityBuf == null) {
       int recordCount = readEnsuringReadersReturnSameNumberOfRecords();
@@ -503,6 +522,7 @@ public class UnifiedParquetReader implements RecordReader {
             && totalRecords == BitVectorHelper.getNullCount(validityBuf, totalRecords))) {
       validityBuf.setOne(0, maxValidityBufSize);
       totalRecords = readEnsuringReadersReturnSameNumberOfRecords();
+      applyRowFilters(totalRecords);
     }
 
     // if there is an equality delete filter, call it to filter out records that match its delete
@@ -514,7 +534,7 @@ public class UnifiedParquetReader implements RecordReader {
     // remove invalid rows if present
     if (totalRecords > 0 && BitVectorHelper.getNullCount(validityBuf, totalRecords) != 0) {
       totalRecords =
-          useCopiersToRemoveInvalidRows
+          useCopiersToRemoveInvalidRows && copiers != null
               ? removeInvalidRowsWithCopiers(totalRecords)
               : removeInvalidRows(totalRecords);
     }
@@ -522,6 +542,76 @@ public class UnifiedParquetReader implements RecordReader {
     return totalRecords;
   }
 
+  private void applyRowFilters(int records) {
+    if (records <= 0) {
+      return;
+    }
+    for (PartitionColumnRowFilter rowFilter : rowFilters) {
+      rowFilter.filter(records, validityBuf);
+    }
+  }
+
+  /**
+   * Partition column filters are normally applied to whole splits. When the filter columns are read
+   * from the file, the values may differ from row to row, so the filter is applied to rows as well.
+   */
+  private void addRowFilter(RuntimeFilter runtimeFilter) {
+    if (runtimeFilter.getPartitionColumnFilter() == null
+        || !context.getOptions().getOption(ExecConstants.ENABLE_ROW_LEVEL_RUNTIME_FILTERING)) {
+      return;
+    }
+    final Set<SchemaPath> columnsReadFromFile = new HashSet<>();
+    vectorizableReaderColumns.stream()
+        .map(columnResolver::getBatchSchemaColumnPath)
+        .forEach(columnsReadFromFile::add);
+    nonVectorizableReaderColumns.stream()
+        .map(columnResolver::getBatchSchemaColumnPath)
+        .forEach(columnsReadFromFile::add);
+    if (!runtimeFilter.getPartitionColumnFilter().getColumnsList().stream()
+        .map(SchemaPath::getSimplePath)
+        .allMatch(columnsReadFromFile::contains)) {
+      return;
+    }
+
+    final PartitionColumnRowFilter rowFilter =
+        PartitionColumnRowFilter.create(
+            context.getAllocator(),
+            context.getStats(),
+            (int) context.getOptions().getOption(ExecConstants.RUNTIME_FILTER_KEY_MAX_SIZE),
+            runtimeFilter,
+            outputMutator);
+    if (rowFilter == null) {
+      return;
+    }
+    rowFilters.add(rowFilter);
+    if (validityBuf == null) {
+      validityBuf = context.getAllocator().buffer(maxValidityBufSize);
+    }
+  }
+
+  /**
+   * Range filters carry the bounds of the join keys. The row group is not read, or not read any
+   * further, when its column statistics or page index show that no value falls in these bounds.
+   * Pages cannot be skipped individually by the delegate readers, so the page index is used to rule
+   * out the row group as a whole.
+   */
+  private boolean canSkipRowGroup() {
+    if (filters.hasPositionalDeleteFilter()
+        || runtimeFilters.stream().allMatch(rf -> rf.getRangeColumnFilters().isEmpty())) {
+      return false;
+    }
+    final boolean canBeSkipped =
+        new RuntimeRangeFilterEvaluator(
+                footer.getBlocks().get(readEntry.getRowGroupIndex()),
+                columnResolver,
+                inputStreamProvider)
+            .canBeSkipped(runtimeFilters);
+    if (canBeSkipped) {
+      addMetricValue(Metric.NUM_ROW_GROUPS_PRUNED_BY_RUNTIME_FILTER, 1L);
+    }
+    return canBeSkipped;
+  }
+
   /**
    * Read from each reader and make sure number of rows in batch is the same for all the readers
    *
@@ -659,10 +749,89 @@ public class UnifiedParquetReader implements RecordReader {
         columnsToBoost.addAll(tmp);
       }
     }
+    if (boostedReader == null && fs != null && fs.supportsBoosting()) {
+      columnsToBoost.addAll(getBoostableColumns());
+    }
 
     return columnsToBoost;
   }
 
+  /** Projected columns of this row group which can be stored in boost files. */
+  private List<SchemaPath> getBoostableColumns() {
+    final List<SchemaPath> columns = new ArrayList<>();
+    for (SchemaPath column :
+        Iterables.concat(vectorizableReaderColumns, nonVectorizableReaderColumns)) {
+      final SchemaPath batchSchemaColumn = columnResolver.getBatchSchemaColumnPath(column);
+      if (batchSchemaColumn != null && batchSchemaColumn.isSimplePath()) {
+        columns.add(batchSchemaColumn);
+      }
+    }
+    return columns;
+  }
+
+  /**
+   * Opens the boost files of the projected columns, if all of them were boosted for this row group
+   * and no filter has to be applied while reading.
+   *
+   * @return true if the row group is to be read from its boost files
+   */
+  private boolean openBoostFiles() {
+    if (fs == null
+        || !fs.supportsBoosting()
+        || filters.hasPushdownFilters()
+        || filters.hasPositionalDeleteFilter()
+        || filters.hasEqualityDeleteFilter()
+        || runtimeFilters.stream().anyMatch(rf -> !rf.getNonPartitionColumnFilters().isEmpty())
+        || tableSchema.findFieldIgnoreCase(ColumnUtils.ROW_INDEX_COLUMN_NAME).isPresent()) {
+      return false;
+    }
+    final List<SchemaPath> columns = getBoostableColumns();
+    if (columns.isEmpty()
+        || columns.size()
+            != vectorizableReaderColumns.size() + nonVectorizableReaderColumns.size()) {
+      return false;
+    }
+
+    final int rowGroupIndex = readEntry.getRowGroupIndex();
+    final long rowCount = footer.getBlocks().get(rowGroupIndex).getRowCount();
+    final AsyncByteReader.FileKey fileKey =
+        AsyncByteReader.FileKey.of(
+            Path.of(readEntry.getPath()),
+            Long.toString(readEntry.getLastModificationTime()),
+            AsyncByteReader.FileKey.FileType.OTHER);
+    final BoostedColumnsReader reader = new BoostedColumnsReader(context);
+    try {
+      final BoostedFileSystem boostedFS = fs.getBoostedFilesystem();
+      for (SchemaPath column : columns) {
+        final Tuple<FSInputStream, Long> boostFile =
+            boostedFS.getBoostFile(
+                fileKey,
+                rowGroupIndex,
+                column.getRootSegment().getPath(),
+                new ArrayList<>(),
+                context.getAllocator());
+        if (boostFile == null || !reader.addColumn(boostFile.first, boostFile.second, rowCount)) {
+          reader.close();
+          return false;
+        }
+      }
+    } catch (Exception e) {
+      logger.debug(
+          "Failure while opening boost files of row group {} of {}, reading from parquet",
+          rowGroupIndex,
+          readEntry.getPath(),
+          e);
+      AutoCloseables.close(e, reader);
+      return false;
+    }
+
+    boostedReader = reader;
+    addMetricValue(Metric.NUM_COLUMNS_BOOSTED, (long) reader.getColumnCount());
+    addMetricValue(Metric.NUM_BOOSTED_FILE_READS, (long) reader.getColumnCount());
+    addMetricValue(Metric.TOTAL_BOOSTED_BYTES_READ, reader.getBytes());
+    return true;
+  }
+
   @Override
   public void close() throws Exception {
     if (context.getOptions().getOption(ExecConstants.TRIM_ROWGROUPS_FROM_FOOTER)) {
@@ -676,6 +845,7 @@ public class UnifiedParquetReader implements RecordReader {
       closeables.add(inputStreamProvider);
       closeables.add(validityBuf);
       closeables.add(sv2);
+      closeables.addAll(rowFilters);
       closeables.add(filters);
       closeables.add(codecFactory::release);
       closeables.add(rowSizeAccumulator);
@@ -1096,6 +1266,13 @@ public class UnifiedParquetReader implements RecordReader {
             };
         return Collections.singletonList(getWrappedReader(reader, unifiedReader));
       }
+    },
+    BOOSTED {
+      @Override
+      public List<RecordReader> getReaders(UnifiedParquetReader unifiedReader) {
+        return Collections.singletonList(
+            getWrappedReader(unifiedReader.boostedReader, unifiedReader));
+      }
     };
 
     private static RecordReader getWrappedReader(
@@ -1191,6 +1368,10 @@ public class UnifiedParquetReader implements RecordReader {
           RuntimeFilter.getInstanceWithNewNonPartitionColFiltersList(runtimeFilter);
       this.runtimeFilters.add(filterWithNewNonPartColFilterList);
       this.delegates.forEach(d -> d.addRuntimeFilter(filterWithNewNonPartColFilterList));
+      if (outputMutator != null) {
+        addRowFilter(filterWithNewNonPartColFilterList);
+        skippedByRangeFilters = skippedByRangeFilters || canSkipRowGroup();
+      }
     }
   }
 
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Plans the ranged reads of a set of byte ranges of a file. Ranges closer than a gap threshold are
+ * coalesced into a single region, trading a few unneeded bytes for fewer requests, which is what
+ * object stores reward. Regions are then cut into requests of bounded size so that a large region
+ * is still fetched with several concurrent requests.
+ */
+public final class VectoredReadPlanner {
+
+  private VectoredReadPlanner() {}
+
+  /**
+   * Coalesces the given ranges. Two ranges end up in the same region when the gap between them is
+   * at most {@code maxGap} bytes and the region does not grow past {@code maxRegionLength}; a
+   * single range longer than {@code maxRegionLength} makes up its own region. Overlapping ranges
+   * are merged.
+   *
+   * @return regions sorted by offset
+   */
+  public static List<Region> coalesce(List<Range> ranges, long maxGap, long maxRegionLength) {
+    Preconditions.checkArgument(maxGap >= 0, "maxGap must be positive");
+    Preconditions.checkArgument(maxRegionLength > 0, "maxRegionLength must be positive");
+    if (ranges.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    final List<Range> sorted = new ArrayList<>(ranges);
+    sorted.sort(Comparator.comparingLong(Range::getOffset));
+
+    final List<Region> regions = new ArrayList<>();
+    Region current = null;
+    for (Range range : sorted) {
+      if (current != null) {
+        final long gap = range.getOffset() - current.getEnd();
+        final long end = Math.max(current.getEnd(), range.getEnd());
+        if (gap <= 0 || (gap <= maxGap && end - current.getOffset() <= maxRegionLength)) {
+          current.add(range);
+          continue;
+        }
+      }
+      current = new Region(range);
+      regions.add(current);
+    }
+    return regions;
+  }
+
+  /**
+   * Cuts a region into requests of at most {@code maxRequestLength} bytes.
+   *
+   * @return the requests, as ranges of the file
+   */
+  public static List<Range> split(Region region, long maxRequestLength) {
+    Preconditions.checkArgument(maxRequestLength > 0, "maxRequestLength must be positive");
+    final List<Range> requests = new ArrayList<>();
+    for (long offset = region.getOffset(); offset < region.getEnd(); offset += maxRequestLength) {
+      requests.add(new Range(offset, Math.min(maxRequestLength, region.getEnd() - offset)));
+    }
+    return requests;
+  }
+
+  /** A range of bytes of a file. */
+  public static final class Range {
+    private final long offset;
+    private final long length;
+
+    public Range(long offset, long length) {
+      Preconditions.checkArgument(offset >= 0, "offset must be positive");
+      Preconditions.checkArgument(length > 0, "length must be positive");
+      this.offset = offset;
+      this.length = length;
+    }
+
+    public long getOffset() {
+      return offset;
+    }
+
+    public long getLength() {
+      return length;
+    }
+
+    public long getEnd() {
+      return offset + length;
+    }
+
+    @Override
+    public String toString() {
+      return "[" + offset + ", " + getEnd() + ")";
+    }
+  }
+
+  /** A contiguous range of a file covering one or more requested ranges. */
+  public static final class Region {
+    private final long offset;
+    private long end;
+    private long usefulBytes;
+    private final List<Range> ranges = new ArrayList<>();
+
+    private Region(Range first) {
+      this.offset = first.getOffset();
+      this.end = first.getEnd();
+      this.usefulBytes = first.getLength();
+      ranges.add(first);
+    }
+
+    private void add(Range range) {
+      // only count the part of the range that is not already covered
+      usefulBytes += Math.max(0, range.getEnd() - Math.max(end, range.getOffset()));
+      end = Math.max(end, range.getEnd());
+      ranges.add(range);
+    }
+
+    public long getOffset() {
+      return offset;
+    }
+
+    public long getEnd() {
+      return end;
+    }
+
+    public long getLength() {
+      return end - offset;
+    }
+
+    /** Number of bytes of the region that belong to a requested range. */
+    public long getUsefulBytes() {
+      return usefulBytes;
+    }
+
+    /** The requested ranges this region covers, sorted by offset. */
+    public List<Range> getRanges() {
+      return ranges;
+    }
+
+    @Override
+    public String toString() {
+      return "[" + offset + ", " + end + ") " + ranges;
+    }
+  }
+}
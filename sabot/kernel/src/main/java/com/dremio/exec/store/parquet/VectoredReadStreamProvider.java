@@ -0,0 +1,636 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.common.collections.Tuple;
+import com.dremio.exec.ExecConstants;
+import com.dremio.exec.store.parquet.VectoredReadPlanner.Range;
+import com.dremio.exec.store.parquet.VectoredReadPlanner.Region;
+import com.dremio.io.AsyncByteReader;
+import com.dremio.io.FSInputStream;
+import com.dremio.io.file.FileSystem;
+import com.dremio.io.file.Path;
+import com.dremio.options.OptionManager;
+import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.op.scan.ScanOperator.Metric;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.NettyArrowBuf;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.OutOfMemoryException;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.io.SeekableInputStream;
+
+/**
+ * An InputStreamProvider that reads the column chunks announced through {@link
+ * #prefetchColumnChunks(List)} with coalesced ranged reads of an {@link AsyncByteReader}, and
+ * serves them from memory. Chunks separated by small gaps are fetched with a single request (see
+ * {@link VectoredReadPlanner}), requests are issued concurrently up to a bound of bytes in flight,
+ * and each column gets its own stream over the buffered region. The buffer of a region is released
+ * as soon as the streams of all its column chunks have been read to the end or closed.
+ *
+ * <p>The footer, page indexes and any column that was not announced or did not fit in the memory
+ * budget are read through the wrapped provider.
+ */
+public class VectoredReadStreamProvider implements InputStreamProvider {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(VectoredReadStreamProvider.class);
+
+  private final InputStreamProvider delegate;
+  private final FileSystem fs;
+  private final AsyncByteReader.FileKey fileKey;
+  private final long fileLength;
+  private final BufferAllocator allocator;
+  private final OperatorContext context;
+  private final long maxGapBytes;
+  private final long maxRequestBytes;
+  private final long maxInFlightBytes;
+  private final long maxBufferedBytes;
+  private final ParquetReaderStats stats = new ParquetReaderStats();
+
+  // buffered regions, and the region of each column chunk not yet handed out by starting position
+  private final List<BufferedRegion> regions = new ArrayList<>();
+  private final Map<Long, BufferedRegion> chunks = new HashMap<>();
+  private long bufferedBytes;
+
+  // guarded by this
+  private final Queue<Request> pendingRequests = new ArrayDeque<>();
+  private long inFlightBytes;
+  private boolean closed;
+
+  private AsyncByteReader reader;
+
+  public VectoredReadStreamProvider(
+      InputStreamProvider delegate,
+      FileSystem fs,
+      Path path,
+      long fileLength,
+      long mTime,
+      List<String> dataset,
+      OperatorContext context) {
+    this(
+        delegate,
+        fs,
+        AsyncByteReader.FileKey.of(
+            path, Long.toString(mTime), AsyncByteReader.FileKey.FileType.PARQUET, dataset),
+        null,
+        fileLength,
+        context.getAllocator(),
+        context,
+        context.getOptions().getOption(ExecConstants.PARQUET_VECTORED_READ_MAX_GAP_BYTES),
+        context.getOptions().getOption(ExecConstants.PARQUET_VECTORED_READ_MAX_REQUEST_BYTES),
+        context.getOptions().getOption(ExecConstants.PARQUET_VECTORED_READ_MAX_IN_FLIGHT_BYTES),
+        context.getOptions().getOption(ExecConstants.PARQUET_VECTORED_READ_MAX_BUFFERED_BYTES));
+  }
+
+  @VisibleForTesting
+  VectoredReadStreamProvider(
+      InputStreamProvider delegate,
+      AsyncByteReader reader,
+      long fileLength,
+      BufferAllocator allocator,
+      long maxGapBytes,
+      long maxRequestBytes,
+      long maxInFlightBytes,
+      long maxBufferedBytes) {
+    this(
+        delegate,
+        null,
+        null,
+        reader,
+        fileLength,
+        allocator,
+        null,
+        maxGapBytes,
+        maxRequestBytes,
+        maxInFlightBytes,
+        maxBufferedBytes);
+  }
+
+  private VectoredReadStreamProvider(
+      InputStreamProvider delegate,
+      FileSystem fs,
+      AsyncByteReader.FileKey fileKey,
+      AsyncByteReader reader,
+      long fileLength,
+      BufferAllocator allocator,
+      OperatorContext context,
+      long maxGapBytes,
+      long maxRequestBytes,
+      long maxInFlightBytes,
+      long maxBufferedBytes) {
+    this.delegate = Preconditions.checkNotNull(delegate);
+    this.fs = fs;
+    this.fileKey = fileKey;
+    this.reader = reader;
+    this.fileLength = fileLength;
+    this.allocator = Preconditions.checkNotNull(allocator);
+    this.context = context;
+    this.maxGapBytes = maxGapBytes;
+    this.maxRequestBytes = maxRequestBytes;
+    this.maxInFlightBytes = maxInFlightBytes;
+    this.maxBufferedBytes = maxBufferedBytes;
+  }
+
+  /**
+   * Returns whether coalesced reads should be used for the given file: the option must be enabled,
+   * the file system must support asynchronous reads, and the modification time of the file must be
+   * known since it versions the reads.
+   */
+  public static boolean isEnabled(
+      OptionManager options, FileSystem fs, long mTime, boolean readFullFile) {
+    return options.getOption(ExecConstants.PARQUET_VECTORED_READ_ENABLED)
+        && !readFullFile
+        && mTime >= 0
+        && fs.supportsAsync();
+  }
+
+  @Override
+  public void prefetchColumnChunks(List<ColumnChunkMetaData> columns) throws IOException {
+    final List<Range> ranges = new ArrayList<>(columns.size());
+    for (ColumnChunkMetaData column : columns) {
+      if (column == null || chunks.containsKey(column.getStartingPos())) {
+        continue;
+      }
+      final long offset = column.getStartingPos();
+      final long length = column.getTotalSize();
+      if (offset < 0 || length <= 0 || length > Integer.MAX_VALUE || offset + length > fileLength) {
+        // let the stream based read report inconsistent metadata
+        continue;
+      }
+      ranges.add(new Range(offset, length));
+    }
+    if (ranges.isEmpty()) {
+      return;
+    }
+
+    final List<Request> requests = new ArrayList<>();
+    for (Region region : VectoredReadPlanner.coalesce(ranges, maxGapBytes, maxRequestBytes)) {
+      if (region.getLength() > Integer.MAX_VALUE
+          || bufferedBytes + region.getLength() > maxBufferedBytes) {
+        continue;
+      }
+      final ArrowBuf buf;
+      try {
+        buf = allocator.buffer(region.getLength());
+      } catch (OutOfMemoryException e) {
+        logger.debug(
+            "Unable to buffer {} bytes of {}, streaming the remaining columns",
+            region.getLength(),
+            delegate.getStreamPath(),
+            e);
+        break;
+      }
+
+      final List<Range> regionRequests = VectoredReadPlanner.split(region, maxRequestBytes);
+      final BufferedRegion buffered =
+          new BufferedRegion(region, buf, regionRequests.size(), region.getRanges().size());
+      regions.add(buffered);
+      bufferedBytes += region.getLength();
+      for (Range range : region.getRanges()) {
+        chunks.put(range.getOffset(), buffered);
+      }
+      for (Range request : regionRequests) {
+        requests.add(new Request(buffered, request));
+      }
+      synchronized (this) {
+        stats.numVectoredReadRegions++;
+        stats.totalVectoredReadBytes += region.getLength();
+        stats.totalVectoredUsefulBytes += region.getUsefulBytes();
+      }
+    }
+    if (requests.isEmpty()) {
+      return;
+    }
+
+    if (reader == null) {
+      reader = fs.getAsyncByteReader(fileKey, Collections.emptyMap());
+    }
+    synchronized (this) {
+      pendingRequests.addAll(requests);
+    }
+    issueRequests();
+  }
+
+  private void issueRequests() {
+    while (true) {
+      final Request request;
+      synchronized (this) {
+        request = pendingRequests.peek();
+        if (request == null
+            || closed
+            || (inFlightBytes > 0
+                && inFlightBytes + request.range.getLength() > maxInFlightBytes)) {
+          return;
+        }
+        pendingRequests.remove();
+        inFlightBytes += request.range.getLength();
+        stats.numVectoredReadRequests++;
+      }
+
+      CompletableFuture<Void> future;
+      try {
+        future =
+            reader.readFully(
+                request.range.getOffset(),
+                request.region.nettyBuf,
+                (int) (request.range.getOffset() - request.region.region.getOffset()),
+                (int) request.range.getLength());
+      } catch (RuntimeException e) {
+        future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+      }
+      future.whenComplete((v, e) -> onRequestCompleted(request, e));
+    }
+  }
+
+  private void onRequestCompleted(Request request, Throwable error) {
+    synchronized (this) {
+      inFlightBytes -= request.range.getLength();
+      notifyAll();
+    }
+    request.region.onRequestCompleted(error);
+    issueRequests();
+  }
+
+  @Override
+  public BulkInputStream getStream(ColumnChunkMetaData column) throws IOException {
+    // each buffered chunk is served once, a column read again goes through the wrapped provider
+    final BufferedRegion region = column != null ? chunks.remove(column.getStartingPos()) : null;
+    if (region == null) {
+      return delegate.getStream(column);
+    }
+    // a failed region may still have requests in flight, its buffer is released on close
+    await(region);
+    return new RegionInputStream(region, column.getStartingPos(), column.getTotalSize());
+  }
+
+  /**
+   * Called once the stream of a column chunk of the region is done with. Releases the buffer of the
+   * region when that was the last chunk of the region.
+   */
+  private void onChunkConsumed(BufferedRegion region) {
+    if (--region.remainingChunks == 0) {
+      release(region);
+    }
+  }
+
+  private void release(BufferedRegion region) {
+    if (!regions.remove(region)) {
+      // already released, or the provider was closed
+      return;
+    }
+    for (Range range : region.region.getRanges()) {
+      chunks.remove(range.getOffset(), region);
+    }
+    bufferedBytes -= region.region.getLength();
+    region.buf.close();
+  }
+
+  private void await(BufferedRegion region) throws IOException {
+    final long start = System.nanoTime();
+    try {
+      region.future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading " + delegate.getStreamPath());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof CompletionException && cause.getCause() != null) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("Failed to read " + delegate.getStreamPath(), cause);
+    } finally {
+      stats.timeVectoredReadWaits += System.nanoTime() - start;
+    }
+  }
+
+  @VisibleForTesting
+  ParquetReaderStats getStats() {
+    return stats;
+  }
+
+  @Override
+  public Path getStreamPath() {
+    return delegate.getStreamPath();
+  }
+
+  @Override
+  public MutableParquetMetadata getFooter() throws IOException {
+    return delegate.getFooter();
+  }
+
+  @Override
+  public boolean isSingleStream() {
+    // columns that are not buffered share the stream of the delegate
+    return delegate.isSingleStream();
+  }
+
+  @Override
+  public Tuple<FSInputStream, Long> getBoostedStream(ColumnChunkMetaData column)
+      throws IOException {
+    return delegate.getBoostedStream(column);
+  }
+
+  @Override
+  public OffsetIndexProvider getOffsetIndexProvider(List<ColumnChunkMetaData> columns) {
+    return delegate.getOffsetIndexProvider(columns);
+  }
+
+  @Override
+  public ColumnIndexProvider getColumnIndexProvider(List<ColumnChunkMetaData> columns) {
+    return delegate.getColumnIndexProvider(columns);
+  }
+
+  @Override
+  public void enableColumnIndices(List<ColumnChunkMetaData> selectedColumns) throws IOException {
+    delegate.enableColumnIndices(selectedColumns);
+  }
+
+  @Override
+  public boolean isRowGroupFilteredForReading() {
+    return delegate.isRowGroupFilteredForReading();
+  }
+
+  @Override
+  public void close() throws IOException {
+    // requests in flight write into the buffers, wait for them before releasing the memory
+    boolean interrupted = false;
+    synchronized (this) {
+      closed = true;
+      pendingRequests.clear();
+      while (inFlightBytes > 0) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    if (context != null && context.getStats() != null && stats.numVectoredReadRegions > 0) {
+      context
+          .getStats()
+          .addLongStat(Metric.NUM_VECTORED_READ_REQUESTS, stats.numVectoredReadRequests);
+      context.getStats().addLongStat(Metric.VECTORED_READ_BYTES, stats.totalVectoredReadBytes);
+      context
+          .getStats()
+          .addLongStat(Metric.VECTORED_READ_USEFUL_BYTES, stats.totalVectoredUsefulBytes);
+      context
+          .getStats()
+          .addLongStat(Metric.VECTORED_READ_WAIT_TIME_NS, stats.timeVectoredReadWaits);
+    }
+
+    final List<AutoCloseable> closeables = new ArrayList<>();
+    for (BufferedRegion region : regions) {
+      closeables.add(region.buf);
+    }
+    closeables.add(reader);
+    closeables.add(delegate);
+    regions.clear();
+    chunks.clear();
+    try {
+      AutoCloseables.close(closeables);
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  /** A coalesced region of the file, and the buffer it is read into. */
+  private static final class BufferedRegion {
+    private final Region region;
+    private final ArrowBuf buf;
+    private final ByteBuf nettyBuf;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private int remainingRequests;
+    // accessed by the reading thread only
+    private int remainingChunks;
+
+    private BufferedRegion(Region region, ArrowBuf buf, int numRequests, int numChunks) {
+      this.region = region;
+      this.buf = buf;
+      this.nettyBuf = NettyArrowBuf.unwrapBuffer(buf);
+      this.remainingRequests = numRequests;
+      this.remainingChunks = numChunks;
+    }
+
+    private synchronized void onRequestCompleted(Throwable error) {
+      if (error != null) {
+        future.completeExceptionally(error);
+      } else if (--remainingRequests == 0) {
+        future.complete(null);
+      }
+    }
+  }
+
+  /** A ranged read of a region. */
+  private static final class Request {
+    private final BufferedRegion region;
+    private final Range range;
+
+    private Request(BufferedRegion region, Range range) {
+      this.region = region;
+      this.range = range;
+    }
+  }
+
+  /**
+   * A stream over a column chunk of a buffered region. Positions are positions in the file, so that
+   * readers can seek to column chunk offsets as they would with a file stream. The stream gives up
+   * the chunk once it has been read to the end, or when it is closed.
+   */
+  private final class RegionInputStream extends SeekableInputStream implements BulkInputStream {
+    private final BufferedRegion region;
+    private final ByteBuf buf;
+    private final long regionStart;
+    private final long start;
+    private final long end;
+    private long pos;
+    private boolean consumed;
+
+    private RegionInputStream(BufferedRegion region, long offset, long length) {
+      this.region = region;
+      this.buf = region.nettyBuf;
+      this.regionStart = region.region.getOffset();
+      this.start = offset;
+      this.end = offset + length;
+      this.pos = start;
+    }
+
+    private int index() {
+      return (int) (pos - regionStart);
+    }
+
+    private void advance(long length) {
+      pos += length;
+      if (pos == end) {
+        consume();
+      }
+    }
+
+    private void consume() {
+      if (!consumed) {
+        consumed = true;
+        onChunkConsumed(region);
+      }
+    }
+
+    private void checkAvailable(long length) throws EOFException {
+      if (pos + length > end) {
+        throw new EOFException(
+            String.format(
+                "Reading %d bytes at position %d past the end of the buffered range [%d, %d)",
+                length, pos, start, end));
+      }
+    }
+
+    @Override
+    public long getPos() {
+      return pos;
+    }
+
+    @Override
+    public void seek(long newPos) throws IOException {
+      if (newPos < start || newPos > end) {
+        throw new IOException(
+            String.format(
+                "Seeking to position %d outside of the buffered range [%d, %d)",
+                newPos, start, end));
+      }
+      if (consumed && newPos != end) {
+        throw new IOException(
+            String.format(
+                "Seeking to position %d of the buffered range [%d, %d) after it was released",
+                newPos, start, end));
+      }
+      pos = newPos;
+      if (pos == end) {
+        consume();
+      }
+    }
+
+    @Override
+    public long skip(long len) throws IOException {
+      final long skipped = Math.max(0, Math.min(len, end - pos));
+      if (skipped > 0) {
+        advance(skipped);
+      }
+      return skipped;
+    }
+
+    @Override
+    public void readFully(ByteBuf dst, int length) throws IOException {
+      checkAvailable(length);
+      dst.writeBytes(buf, index(), length);
+      advance(length);
+    }
+
+    @Override
+    public int read() {
+      if (pos >= end) {
+        return -1;
+      }
+      final int value = buf.getByte(index()) & 0xff;
+      advance(1);
+      return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (pos >= end) {
+        return -1;
+      }
+      final int toRead = (int) Math.min(len, end - pos);
+      buf.getBytes(index(), b, off, toRead);
+      advance(toRead);
+      return toRead;
+    }
+
+    @Override
+    public void readFully(byte[] bytes) throws IOException {
+      readFully(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public void readFully(byte[] bytes, int start, int len) throws IOException {
+      checkAvailable(len);
+      buf.getBytes(index(), bytes, start, len);
+      advance(len);
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+      if (!dst.hasRemaining()) {
+        return 0;
+      }
+      if (pos >= end) {
+        return -1;
+      }
+      final int toRead = (int) Math.min(dst.remaining(), end - pos);
+      final int limit = dst.limit();
+      dst.limit(dst.position() + toRead);
+      buf.getBytes(index(), dst);
+      dst.limit(limit);
+      advance(toRead);
+      return toRead;
+    }
+
+    @Override
+    public void readFully(ByteBuffer dst) throws IOException {
+      checkAvailable(dst.remaining());
+      read(dst);
+    }
+
+    @Override
+    public SeekableInputStream asSeekableInputStream() {
+      return this;
+    }
+
+    @Override
+    public void close() {
+      pos = end;
+      consume();
+    }
+  }
+}
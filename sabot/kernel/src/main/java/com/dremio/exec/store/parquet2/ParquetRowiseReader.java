@@ -408,13 +408,20 @@ public class ParquetRowiseReader extends AbstractParquetReader {
         for (ColumnChunkMetaData md : footer.getBlocks().get(rowGroupIndex).getColumns()) {
           paths.put(md.getPath(), md);
         }
+        List<String[]> primitivePaths = new ArrayList<>();
+        List<ColumnChunkMetaData> columnChunks = new ArrayList<>();
         for (String[] path : projection.getPaths()) {
           Type type = schema.getType(path);
           if (type.isPrimitive()) {
-            ColumnChunkMetaData md = paths.get(ColumnPath.get(path));
-            pageReadStore.addColumn(schema.getColumnDescription(path), md);
+            primitivePaths.add(path);
+            columnChunks.add(paths.get(ColumnPath.get(path)));
           }
         }
+        inputStreamProvider.prefetchColumnChunks(columnChunks);
+        for (int i = 0; i < primitivePaths.size(); i++) {
+          pageReadStore.addColumn(
+              schema.getColumnDescription(primitivePaths.get(i)), columnChunks.get(i));
+        }
 
         ColumnIOFactory factory = new ColumnIOFactory(false);
         MessageColumnIO columnIO = factory.getColumnIO(projection, schema);
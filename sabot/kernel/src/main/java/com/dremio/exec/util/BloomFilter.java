@@ -44,15 +44,15 @@ import org.slf4j.LoggerFactory;
 public class BloomFilter implements AutoCloseable {
   private static final Logger logger = LoggerFactory.getLogger(BloomFilter.class);
   private static final double FPP = 0.01;
-  private static final int META_BYTES_CNT = 32; // should always be a multiple of 8
-  private static final int SEED = 0;
+  protected static final int META_BYTES_CNT = 32; // should always be a multiple of 8
+  protected static final int SEED = 0;
 
   private BufferAllocator allocator;
-  private long sizeInBits;
-  private long sizeInBytes;
+  protected long sizeInBits;
+  protected long sizeInBytes;
   private int numHashFunctions;
   private String name;
-  private ArrowBuf dataBuffer;
+  protected ArrowBuf dataBuffer;
   private long numBitsSetLoc = 0;
 
   /**
@@ -76,7 +76,7 @@ public class BloomFilter implements AutoCloseable {
     this.name = name;
   }
 
-  private BloomFilter(ArrowBuf dataBuffer) {
+  protected BloomFilter(ArrowBuf dataBuffer) {
     setup(dataBuffer);
 
     byte[] nameBytes = new byte[24];
@@ -149,6 +149,35 @@ public class BloomFilter implements AutoCloseable {
     return new BloomFilter(dataBuffer);
   }
 
+  /**
+   * Same as {@link #prepareFrom(ArrowBuf)}, for a filter of the given layout.
+   *
+   * @param dataBuffer ArrowBuf containing bloomfilter set bits
+   * @param splitBlock true if the filter was built as a {@link SplitBlockBloomFilter}
+   * @return
+   */
+  public static BloomFilter prepareFrom(ArrowBuf dataBuffer, boolean splitBlock) {
+    return splitBlock ? new SplitBlockBloomFilter(dataBuffer) : new BloomFilter(dataBuffer);
+  }
+
+  /**
+   * Creates a filter of the requested layout. {@link BloomFilter#setup()} should be called before
+   * using it.
+   *
+   * @param splitBlock true to create a {@link SplitBlockBloomFilter}
+   */
+  public static BloomFilter create(
+      BufferAllocator bufferAllocator, String name, long minSizeBytes, boolean splitBlock) {
+    return splitBlock
+        ? new SplitBlockBloomFilter(bufferAllocator, name, minSizeBytes)
+        : new BloomFilter(bufferAllocator, name, minSizeBytes);
+  }
+
+  /** Whether the bits are laid out as a {@link SplitBlockBloomFilter}. */
+  public boolean isSplitBlock() {
+    return false;
+  }
+
   /**
    * Returns the data buffer, which has the bloomfilter bits set. The buffer is released when
    * BloomFilter::close is invoked.
@@ -182,6 +211,36 @@ public class BloomFilter implements AutoCloseable {
     return true;
   }
 
+  /**
+   * Checks the membership of a batch of keys. The keys are laid out back to back in the buffer,
+   * {@code keyLength} bytes each, and the selection vector holds the 2 byte indices of the keys to
+   * check. The selection is compacted in place to the keys that might be present.
+   *
+   * @param keys Arrowbuf containing the keys, key i starting at index i * keyLength
+   * @param keyLength length of each key
+   * @param selection Arrowbuf containing the indices of the keys to check
+   * @param count number of indices in the selection
+   * @return number of indices left in the selection
+   */
+  public int mightContain(ArrowBuf keys, int keyLength, ArrowBuf selection, int count) {
+    int selected = 0;
+    for (int i = 0; i < count; i++) {
+      final int index = Short.toUnsignedInt(selection.getShort((long) i * 2));
+      final long keyStart = (long) index * keyLength;
+      HashValPair hashValPair = MurmurHash3.murmur3_128(keyStart, keyStart + keyLength, keys, SEED);
+      long combinedHash = hashValPair.getHash1();
+      boolean present = true;
+      for (int j = 0; j < numHashFunctions && present; j++) {
+        present = getBit((combinedHash & Long.MAX_VALUE) % sizeInBits);
+        combinedHash += hashValPair.getHash2();
+      }
+      if (present) {
+        selection.setShort((long) selected++ * 2, index);
+      }
+    }
+    return selected;
+  }
+
   /**
    * Adds the key to the bloomfilter.
    *
@@ -266,6 +325,8 @@ public class BloomFilter implements AutoCloseable {
    */
   public void merge(BloomFilter that) {
     checkArgument(this != that, "Can't merge with the same BloomFilter object.");
+    checkArgument(
+        this.isSplitBlock() == that.isSplitBlock(), "Incompatible BloomFilter, different layouts.");
     checkArgument(
         this.numHashFunctions == that.numHashFunctions,
         "Incompatible BloomFilter, different hashing technique.");
@@ -295,7 +356,7 @@ public class BloomFilter implements AutoCloseable {
     return numBitsSetLoc == 0 ? 0 : PlatformDependent.getLong(numBitsSetLoc);
   }
 
-  private void setNumBitsSet(final long newVal) {
+  protected void setNumBitsSet(final long newVal) {
     PlatformDependent.putLong(numBitsSetLoc, newVal);
   }
 
@@ -340,7 +401,7 @@ public class BloomFilter implements AutoCloseable {
    *
    * @return
    */
-  private int getOptimalNumOfHashFunctions() {
+  protected int getOptimalNumOfHashFunctions() {
     long expectedInsertions = getOptimalInsertions();
     return Math.max(1, (int) Math.round((double) sizeInBits / expectedInsertions * Math.log(2)));
   }
@@ -372,7 +433,7 @@ public class BloomFilter implements AutoCloseable {
           pColFilterData.memoryAddress(),
           pColFilterDataCopy.memoryAddress(),
           pColFilterData.capacity());
-      BloomFilter copyBloomFilter = BloomFilter.prepareFrom(pColFilterDataCopy);
+      BloomFilter copyBloomFilter = BloomFilter.prepareFrom(pColFilterDataCopy, isSplitBlock());
       rollbackCloseable.commit();
       return copyBloomFilter;
     } catch (Exception e) {
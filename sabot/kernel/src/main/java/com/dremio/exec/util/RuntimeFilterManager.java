@@ -48,14 +48,24 @@ public class RuntimeFilterManager implements AutoCloseable {
   private long subFilterDropCount = 0L;
   private final BufferAllocator allocator;
   private final int valFilterMaxSize;
+  private final boolean rangeOnOverflow;
 
   public RuntimeFilterManager(
       final BufferAllocator allocator,
       final int valFilterMaxSize,
       final Set<Integer> allMinorFragments) {
+    this(allocator, valFilterMaxSize, allMinorFragments, false);
+  }
+
+  public RuntimeFilterManager(
+      final BufferAllocator allocator,
+      final int valFilterMaxSize,
+      final Set<Integer> allMinorFragments,
+      final boolean rangeOnOverflow) {
     this.allMinorFragments = allMinorFragments;
     this.allocator = allocator.newChildAllocator("runtimefilter-manager", 0, allocator.getLimit());
     this.valFilterMaxSize = valFilterMaxSize;
+    this.rangeOnOverflow = rangeOnOverflow;
   }
 
   /**
@@ -313,7 +323,8 @@ public class RuntimeFilterManager implements AutoCloseable {
             nonPartitionColFilterProto.getColumnsCount() == 1,
             "Non partition column filter should have single column");
         checkArgument(
-            nonPartitionColFilterProto.getFilterType().equals(RuntimeFilterType.VALUE_LIST),
+            nonPartitionColFilterProto.getFilterType().equals(RuntimeFilterType.VALUE_LIST)
+                || nonPartitionColFilterProto.getFilterType().equals(RuntimeFilterType.RANGE),
             "All non partition column filters should be of same value");
         final String colName = nonPartitionColFilterProto.getColumns(0);
         Optional<ValueListFilter> incomingFilter =
@@ -347,7 +358,7 @@ public class RuntimeFilterManager implements AutoCloseable {
                 allocator, thatFilter.getBlockSize(), valFilterMaxSize, thisFilter.isBoolField());
         closeables.add(mergedFilter);
 
-        ValueListFilter.merge(thisFilter, thatFilter, mergedFilter);
+        ValueListFilter.merge(thisFilter, thatFilter, mergedFilter, rangeOnOverflow);
         checkState(
             mergedFilter.getValueCount() <= valFilterMaxSize,
             "Merged valuelistfilter overflown for %s.",
@@ -443,6 +454,8 @@ public class RuntimeFilterManager implements AutoCloseable {
             this.getNonPartitionColFilter(current.getColumns(0));
         final CompositeColumnFilter nonPartitionColFilter =
             CompositeColumnFilter.newBuilder(current)
+                .setFilterType(
+                    valueListFilter.isRange() ? RuntimeFilterType.RANGE : current.getFilterType())
                 .setValueCount(valueListFilter.getValueCount())
                 .setSizeBytes(valueListFilter.getSizeInBytes())
                 .build();
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dremio.exec.util;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.dremio.common.expression.fn.impl.MurmurHash3;
+import io.netty.util.internal.PlatformDependent;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+
+/**
+ * Split block variant of the {@link BloomFilter}. The bits are divided in blocks of 32 bytes, and
+ * all the bits of a key are set within a single block, one bit in each of its eight 32 bit words. A
+ * membership check therefore touches a single cache line, whatever the number of hash functions.
+ *
+ * <p>The layout follows the split block bloom filters of Parquet: the upper half of the key hash
+ * selects the block, and the lower half multiplied by a different odd constant per word selects the
+ * bit within each word. The meta bytes at the end of the buffer are the same as the {@link
+ * BloomFilter}, so both variants are serialized and merged the same way.
+ */
+@NotThreadSafe
+public class SplitBlockBloomFilter extends BloomFilter {
+  private static final int BYTES_PER_BLOCK = 32;
+  private static final int WORDS_PER_BLOCK = 8;
+  private static final int[] SALT = {
+    0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d, 0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31
+  };
+
+  private long numBlocks;
+  private long[] hashes = new long[0];
+
+  /**
+   * Initialise. See {@link BloomFilter#BloomFilter(BufferAllocator, String, long)}, the size is
+   * rounded up to a whole number of blocks.
+   */
+  public SplitBlockBloomFilter(BufferAllocator bufferAllocator, String name, long minSizeBytes) {
+    super(bufferAllocator, name, roundUpToBlocks(minSizeBytes));
+  }
+
+  SplitBlockBloomFilter(ArrowBuf dataBuffer) {
+    super(dataBuffer);
+  }
+
+  private static long roundUpToBlocks(long sizeBytes) {
+    return (sizeBytes + BYTES_PER_BLOCK - 1) / BYTES_PER_BLOCK * BYTES_PER_BLOCK;
+  }
+
+  @Override
+  public boolean isSplitBlock() {
+    return true;
+  }
+
+  /**
+   * Every key sets one bit in each word of its block. Called whenever the data buffer is set up,
+   * which is also when the number of blocks is known.
+   */
+  @Override
+  protected int getOptimalNumOfHashFunctions() {
+    checkArgument(
+        sizeInBytes % BYTES_PER_BLOCK == 0,
+        "Data size should be multiple of %s bytes",
+        BYTES_PER_BLOCK);
+    numBlocks = sizeInBytes / BYTES_PER_BLOCK;
+    return WORDS_PER_BLOCK;
+  }
+
+  @Override
+  public boolean mightContain(ArrowBuf bloomFilterKey, int length) {
+    return blockContains(MurmurHash3.murmur3_64(0, length, bloomFilterKey, SEED));
+  }
+
+  /**
+   * Hashes all the selected keys before probing any block, so that the block lookups of the second
+   * loop do not wait on the hashing and can be overlapped by the processor.
+   */
+  @Override
+  public int mightContain(ArrowBuf keys, int keyLength, ArrowBuf selection, int count) {
+    if (hashes.length < count) {
+      hashes = new long[count];
+    }
+    for (int i = 0; i < count; i++) {
+      final long keyStart =
+          (long) Short.toUnsignedInt(selection.getShort((long) i * 2)) * keyLength;
+      hashes[i] = MurmurHash3.murmur3_64(keyStart, keyStart + keyLength, keys, SEED);
+    }
+
+    int selected = 0;
+    for (int i = 0; i < count; i++) {
+      if (blockContains(hashes[i])) {
+        selection.setShort((long) selected++ * 2, selection.getShort((long) i * 2));
+      }
+    }
+    return selected;
+  }
+
+  @Override
+  public boolean put(ArrowBuf bloomFilterKey, int length) {
+    final long hash = MurmurHash3.murmur3_64(0, length, bloomFilterKey, SEED);
+    final long blockAddress = blockAddress(hash);
+    int newBits = 0;
+    for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+      final long wordAddress = blockAddress + i * 4L;
+      final int word = PlatformDependent.getInt(wordAddress);
+      final int mask = bitMask((int) hash, i);
+      if ((word & mask) == 0) {
+        PlatformDependent.putInt(wordAddress, word | mask);
+        newBits++;
+      }
+    }
+    if (newBits == 0) {
+      return false;
+    }
+    setNumBitsSet(getNumBitsSet() + newBits);
+    return true;
+  }
+
+  private boolean blockContains(long hash) {
+    final long blockAddress = blockAddress(hash);
+    for (int i = 0; i < WORDS_PER_BLOCK; i++) {
+      final int mask = bitMask((int) hash, i);
+      if ((PlatformDependent.getInt(blockAddress + i * 4L) & mask) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private long blockAddress(long hash) {
+    // maps the upper 32 bits of the hash to [0, numBlocks) without a division
+    final long block = ((hash >>> 32) * numBlocks) >>> 32;
+    return dataBuffer.memoryAddress() + block * BYTES_PER_BLOCK;
+  }
+
+  private static int bitMask(int hash, int word) {
+    return 1 << ((hash * SALT[word]) >>> 27);
+  }
+}
@@ -27,10 +27,15 @@ import java.nio.charset.StandardCharsets;
 import org.apache.arrow.memory.ArrowBuf;
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.util.BasicTypeHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Used for runtime filtering at joins. Contains list of unique and sorted join key values */
+/**
+ * Used for runtime filtering at joins. Contains list of unique and sorted join key values. A filter
+ * flagged as range holds only the minimum and maximum join key values, which is what remains of a
+ * value list that had too many distinct values.
+ */
 public class ValueListFilter implements AutoCloseable {
   private static final Logger logger = LoggerFactory.getLogger(ValueListFilter.class);
   public static final int META_SIZE = 33;
@@ -44,6 +49,7 @@ public class ValueListFilter implements AutoCloseable {
   private boolean isFixedWidth = true;
   private boolean isBoolField;
   private boolean containsNull;
+  private boolean isRange;
   private Types.MinorType fieldType;
   private byte precision;
   private byte scale;
@@ -78,7 +84,7 @@ public class ValueListFilter implements AutoCloseable {
     this.scale = fullBuffer.getByte(31);
 
     // Control bits are organized as - 0:isFixedWidth, 1:containsNull, 2:isBoolField,
-    // 3:containsTrue, 4:containsFalse
+    // 3:containsTrue, 4:containsFalse, 5:isRange
     // 3 & 4 are applicable only if vector is representing a boolean value set. Set to zero
     // otherwise.
     final byte controlByte = fullBuffer.getByte(32);
@@ -87,6 +93,7 @@ public class ValueListFilter implements AutoCloseable {
     this.isBoolField = getBit(controlByte, 2);
     this.containsTrue = getBit(controlByte, 3);
     this.containsFalse = getBit(controlByte, 4);
+    this.isRange = getBit(controlByte, 5);
 
     fullBuffer.readerIndex(0);
     fullBuffer.writerIndex(META_SIZE + (blockSize * valueCount));
@@ -120,6 +127,7 @@ public class ValueListFilter implements AutoCloseable {
     controlByte = copySetBit(controlByte, 2, isBoolField);
     controlByte = copySetBit(controlByte, 3, containsTrue);
     controlByte = copySetBit(controlByte, 4, containsFalse);
+    controlByte = copySetBit(controlByte, 5, isRange);
     this.fullBuffer.setByte(32, controlByte);
 
     fullBuffer.readerIndex(0);
@@ -182,6 +190,33 @@ public class ValueListFilter implements AutoCloseable {
     this.containsNull = containsNull;
   }
 
+  /** Whether the filter holds the [min, max] range of the values rather than the values. */
+  public boolean isRange() {
+    return isRange;
+  }
+
+  public void setRange(boolean range) {
+    isRange = range;
+  }
+
+  /**
+   * Ranges are kept only for the integral types whose block is the plain little endian value, so
+   * that the typed comparator orders them and scans can compare them against column statistics.
+   */
+  public boolean supportsRange() {
+    if (!isFixedWidth || isBoolField || fieldType == null) {
+      return false;
+    }
+    switch (fieldType) {
+      case INT:
+      case BIGINT:
+      case TIMESTAMPMILLI:
+        return blockSize == BasicTypeHelper.getSize(fieldType);
+      default:
+        return false;
+    }
+  }
+
   public Types.MinorType getFieldType() {
     return fieldType;
   }
@@ -242,6 +277,24 @@ public class ValueListFilter implements AutoCloseable {
       final ValueListFilter valList1,
       final ValueListFilter valList2,
       final ValueListFilter mergedValList) {
+    merge(valList1, valList2, mergedValList, false);
+  }
+
+  /**
+   * Performs a merge of two value lists and puts in the supplied mergedVal list. If either list is
+   * a range, or if the merged values do not fit and {@code rangeOnOverflow} is set, the merged list
+   * is the range covering both lists.
+   *
+   * @param valList1
+   * @param valList2
+   * @param mergedValList
+   * @param rangeOnOverflow
+   */
+  public static void merge(
+      final ValueListFilter valList1,
+      final ValueListFilter valList2,
+      final ValueListFilter mergedValList,
+      final boolean rangeOnOverflow) {
     checkArgument(
         valList1.isCompatible(valList2),
         "Incompatible value list filters %s %s",
@@ -262,10 +315,21 @@ public class ValueListFilter implements AutoCloseable {
       return;
     }
 
+    final boolean canMergeAsRange = valList1.supportsRange() && mergeIdxCapOf(mergedValList) >= 2;
+    if (valList1.isRange() || valList2.isRange()) {
+      checkState(canMergeAsRange, "Cannot merge %s and %s as a range.", valList1, valList2);
+      mergeAsRange(valList1, valList2, mergedValList);
+      return;
+    }
+
     final ArrowCrossBufComparator comparator = valList1.getComparator();
-    long mergeIdxCap = mergedValList.valOnlyBuf().capacity() / mergedValList.getBlockSize();
+    long mergeIdxCap = mergeIdxCapOf(mergedValList);
     int idx1 = 0, idx2 = 0, mergedIdx = 0;
     while (idx1 < valList1.getValueCount() || idx2 < valList2.getValueCount()) {
+      if (mergedIdx >= mergeIdxCap && rangeOnOverflow && canMergeAsRange) {
+        mergeAsRange(valList1, valList2, mergedValList);
+        return;
+      }
       checkState(mergedIdx < mergeIdxCap, "Merged buffer overflown.");
       if (idx1 < valList1.getValueCount()
           &&
@@ -296,6 +360,51 @@ public class ValueListFilter implements AutoCloseable {
     mergedValList.writeMetaToBuffer();
   }
 
+  private static long mergeIdxCapOf(ValueListFilter valList) {
+    return valList.valOnlyBuf().capacity() / valList.getBlockSize();
+  }
+
+  /** Sorted lists and ranges both have their minimum first and their maximum last. */
+  private static void mergeAsRange(
+      final ValueListFilter valList1,
+      final ValueListFilter valList2,
+      final ValueListFilter mergedValList) {
+    final ArrowCrossBufComparator comparator = valList1.getComparator();
+    final ValueListFilter minSrc = pickBound(valList1, 0, valList2, 0, comparator, true);
+    final ValueListFilter maxSrc =
+        pickBound(
+            valList1,
+            valList1.getValueCount() - 1,
+            valList2,
+            valList2.getValueCount() - 1,
+            comparator,
+            false);
+    int mergedIdx = 0;
+    if (minSrc != null) {
+      copyValue(minSrc, 0, mergedValList, mergedIdx++);
+      copyValue(maxSrc, maxSrc.getValueCount() - 1, mergedValList, mergedIdx++);
+    }
+    mergedValList.setValueCount(mergedIdx);
+    mergedValList.setRange(true);
+    mergedValList.writeMetaToBuffer();
+  }
+
+  private static ValueListFilter pickBound(
+      ValueListFilter valList1,
+      int idx1,
+      ValueListFilter valList2,
+      int idx2,
+      ArrowCrossBufComparator comparator,
+      boolean lower) {
+    if (valList1.getValueCount() == 0) {
+      return valList2.getValueCount() == 0 ? null : valList2;
+    } else if (valList2.getValueCount() == 0) {
+      return valList1;
+    }
+    final int cmp = comparator.compare(valList1.valOnlyBuf(), idx1, valList2.valOnlyBuf(), idx2);
+    return (lower ? cmp <= 0 : cmp >= 0) ? valList1 : valList2;
+  }
+
   public boolean isContainsTrue() {
     return containsTrue;
   }
@@ -365,6 +474,8 @@ public class ValueListFilter implements AutoCloseable {
         + fieldType
         + ", fixedWidth="
         + isFixedWidth()
+        + ", range="
+        + isRange
         + '}';
   }
 
@@ -50,6 +50,7 @@ public class ValueListFilterBuilder implements AutoCloseable {
   private int maxHashBuckets;
   protected boolean isBoolean;
   private boolean buildWithBloomFilter;
+  private boolean rangeOnOverflow;
 
   protected List<AutoCloseable> closeables = new ArrayList<>();
 
@@ -108,6 +109,16 @@ public class ValueListFilterBuilder implements AutoCloseable {
     this.valuesList = valueListFilter.valOnlyBuf();
   }
 
+  /**
+   * Once the store is full, keep only the minimum and maximum of the inserted values instead of
+   * failing the insertion. Applies only to the types that support ranges, see {@link
+   * ValueListFilter#supportsRange()}.
+   */
+  public ValueListFilterBuilder setRangeOnOverflow(boolean rangeOnOverflow) {
+    this.rangeOnOverflow = rangeOnOverflow && !buildWithBloomFilter && capacity >= 2;
+    return this;
+  }
+
   public boolean insert(final ArrowBuf keyBuf) {
     checkArgument(
         !isBoolean, "Insertion for boolean should be done via insertTrue() / insertFalse()");
@@ -116,6 +127,12 @@ public class ValueListFilterBuilder implements AutoCloseable {
         "Invalid key size %s. Compatible key size is %s",
         keyBuf.capacity(),
         blockSize); // KeyBuf can round up and have extra bytes than the capacity it asked for.
+    if (!isNotFull() && rangeOnOverflow && !valueListFilter.isRange()) {
+      convertToRange();
+    }
+    if (valueListFilter.isRange()) {
+      return insertIntoRange(keyBuf);
+    }
     final long hashIndex = hash(keyBuf);
     int keyIndex = hashBuckets.getInt(hashIndex * 4);
 
@@ -158,6 +175,52 @@ public class ValueListFilterBuilder implements AutoCloseable {
     return insertionIndex;
   }
 
+  private void convertToRange() {
+    valueListFilter.setBlockSize(blockSize);
+    if (!valueListFilter.supportsRange()) {
+      return;
+    }
+    final ArrowCrossBufComparator comparator = valueListFilter.getComparator();
+    int minIdx = 0;
+    int maxIdx = 0;
+    for (int i = 1; i < nextEmptyIndex; i++) {
+      if (comparator.compare(valuesList, i, valuesList, minIdx) < 0) {
+        minIdx = i;
+      } else if (comparator.compare(valuesList, i, valuesList, maxIdx) > 0) {
+        maxIdx = i;
+      }
+    }
+    // The max is read before the min slot is overwritten
+    final byte[] max = new byte[blockSize];
+    valuesList.getBytes(maxIdx * blockSize, max);
+    copyWithinValues(minIdx, 0);
+    valuesList.setBytes(blockSize, max);
+    nextEmptyIndex = 2;
+    valueListFilter.setRange(true);
+  }
+
+  private boolean insertIntoRange(final ArrowBuf keyBuf) {
+    final ArrowCrossBufComparator comparator = valueListFilter.getComparator();
+    if (comparator.compare(keyBuf, 0, valuesList, 0) < 0) {
+      Copier.copy(keyBuf.memoryAddress(), valuesList.memoryAddress(), blockSize);
+      return true;
+    }
+    if (comparator.compare(keyBuf, 0, valuesList, 1) > 0) {
+      Copier.copy(keyBuf.memoryAddress(), valuesList.memoryAddress() + blockSize, blockSize);
+      return true;
+    }
+    return false;
+  }
+
+  private void copyWithinValues(int srcIdx, int dstIdx) {
+    if (srcIdx != dstIdx) {
+      Copier.copy(
+          valuesList.memoryAddress() + (srcIdx * blockSize),
+          valuesList.memoryAddress() + (dstIdx * blockSize),
+          blockSize);
+    }
+  }
+
   public void insertNull() {
     this.valueListFilter.setContainsNull(true);
     checkBooleanCombinationsLeft();
@@ -64,6 +64,8 @@ public class FragmentStats {
   private long blockedOnDownstreamDuration;
   private long blockedOnMemoryDuration;
   private long blockedOnSharedResourceDuration;
+  private long reclaimedMemory;
+  private long numReclaims;
 
   private long numRuns;
   private long numSlices;
@@ -121,6 +123,8 @@ public class FragmentStats {
     prfB.setBlockedOnDownstreamDuration(blockedOnDownstreamDuration);
     prfB.setBlockedOnSharedResourceDuration(blockedOnSharedResourceDuration);
     prfB.setBlockedOnMemoryDuration(blockedOnMemoryDuration);
+    prfB.setReclaimedMemory(reclaimedMemory);
+    prfB.setNumReclaims(numReclaims);
     for (Map.Entry<SharedResourceType, Long> entry : perResourceBlockedDurations.entrySet()) {
       BlockedResourceDuration duration =
           BlockedResourceDuration.newBuilder()
@@ -299,6 +303,11 @@ public class FragmentStats {
     this.blockedOnMemoryDuration = blockedDuration;
   }
 
+  public void addReclaimedMemory(long reclaimedBytes) {
+    this.reclaimedMemory += reclaimedBytes;
+    this.numReclaims++;
+  }
+
   public void addBlockedOnSharedResourceDuration(
       SharedResourceType resource, long blockedDuration) {
     this.blockedOnSharedResourceDuration += blockedDuration;
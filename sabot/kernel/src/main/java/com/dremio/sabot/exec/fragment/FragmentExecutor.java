@@ -81,7 +81,6 @@ import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.SettableFuture;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
 import java.util.HashMap;
@@ -90,6 +89,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.apache.arrow.memory.ArrowBuf;
@@ -205,7 +205,9 @@ public class FragmentExecutor implements MemoryArbiterTask {
   private final long maxMemoryUsedPerPump;
   private final boolean dynamicallyTrackAllocations;
   private final Deque<Long> lastNAllocations = new ArrayDeque<>();
-  private final List<MemoryTaskAndShrinkableOperator> shrinkableOperators = new ArrayList<>();
+  // read by the memory arbiter from other fragments' threads
+  private final List<MemoryTaskAndShrinkableOperator> shrinkableOperators =
+      new CopyOnWriteArrayList<>();
   private final Map<Integer, MemoryTaskAndShrinkableOperator> memoryTaskAndShrinkableOperatorMap =
       new HashMap<>();
   // This is the list of operators that have been asked to spill
@@ -378,6 +380,11 @@ public class FragmentExecutor implements MemoryArbiterTask {
     this.memoryResource.markAvailable();
   }
 
+  @Override
+  public void addReclaimedMemory(long reclaimedBytes) {
+    stats.addReclaimedMemory(reclaimedBytes);
+  }
+
   @Override
   public long getMemoryGrant() {
     return this.memoryGrantInBytes;
@@ -85,6 +85,13 @@ public interface MemoryArbiterTask {
   /** Memory may be available and this task is now unblocked */
   default void unblockOnMemory() {}
 
+  /**
+   * An operator of this task is done spilling at the request of the MemoryArbiter
+   *
+   * @param reclaimedBytes The shrinkable memory released by the operator
+   */
+  default void addReclaimedMemory(long reclaimedBytes) {}
+
   default long getBlockedOnMemoryStartTime() {
     return 0;
   }
@@ -31,6 +31,10 @@ public class MemoryTaskAndShrinkableOperator {
     this.shrinkableOperator = shrinkableOperator;
   }
 
+  public MemoryArbiterTask getMemoryArbiterTask() {
+    return memoryArbiterTask;
+  }
+
   public Operator.ShrinkableOperator getShrinkableOperator() {
     return shrinkableOperator;
   }
@@ -0,0 +1,548 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.memory;
+
+import com.dremio.common.config.SabotConfig;
+import com.dremio.common.utils.protos.QueryIdHelper;
+import com.dremio.exec.ExecConstants;
+import com.dremio.exec.proto.UserBitShared.QueryId;
+import com.dremio.options.OptionManager;
+import com.dremio.sabot.exec.FragmentExecutors;
+import com.dremio.sabot.exec.QueriesClerk;
+import com.dremio.telemetry.api.metrics.Metrics;
+import com.dremio.telemetry.api.metrics.SimpleCounter;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.apache.arrow.memory.RootAllocator;
+
+/**
+ * A MemoryArbiter that grants memory out of a shared pool, a configurable share of the root
+ * allocator limit. A grant is accepted when the pool has room for it on top of the memory requested
+ * by the tasks queued ahead, so that small requests never starve large ones; otherwise the task
+ * joins the FIFO queue and is blocked through {@link MemoryArbiterTask#blockOnMemory()}, which
+ * parks it in the task scheduler until {@link MemoryArbiterTask#unblockOnMemory()} is called.
+ *
+ * <p>When a grant cannot be satisfied, the arbiter asks the shrinkable operators holding the most
+ * shrinkable memory, across all tasks, to spill until the memory they hold covers the deficit of
+ * the queue. Queued tasks are woken up as grants are released, tasks finish and operators are done
+ * spilling. To guarantee progress, the head of the queue is granted its memory regardless of the
+ * pool when no grant is outstanding and no operator is spilling, since nothing else could free
+ * memory for it; the allocator limits then remain the last line of defense.
+ *
+ * <p>Operators are chosen to spill while holding the arbiter lock, but they are only asked to
+ * spill, and tasks are only blocked and unblocked, once it is released, since these calls go to
+ * other fragments and to the task scheduler.
+ *
+ * <p>The time a fragment waits for grants is reported in its profile as blocked on memory time, and
+ * the memory reclaimed from its operators as reclaimed memory. Both are also published as metrics,
+ * and accounted per query.
+ */
+public class QueueingMemoryArbiter implements MemoryArbiter {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(QueueingMemoryArbiter.class);
+
+  private static final SimpleCounter GRANT_WAIT_MS =
+      SimpleCounter.of(
+          Metrics.join("memory_arbiter", "grant_wait_ms"),
+          "Time tasks spent queued for a memory grant");
+  private static final SimpleCounter BLOCKED_GRANTS =
+      SimpleCounter.of(
+          Metrics.join("memory_arbiter", "blocked_grants"),
+          "Number of memory grants that were queued");
+  private static final SimpleCounter SPILL_REQUESTS =
+      SimpleCounter.of(
+          Metrics.join("memory_arbiter", "spill_requests"),
+          "Number of operators asked to spill to reclaim memory");
+  private static final SimpleCounter RECLAIMED_BYTES =
+      SimpleCounter.of(
+          Metrics.join("memory_arbiter", "reclaimed_bytes"),
+          "Memory released by operators asked to spill");
+
+  private final long poolSize;
+  private final LongSupplier allocatedMemory;
+
+  // all the state below is guarded by this
+  private final Set<MemoryArbiterTask> tasks = new HashSet<>();
+  // tasks waiting for a grant, in arrival order
+  private final LinkedHashMap<MemoryArbiterTask, Waiter> queue = new LinkedHashMap<>();
+  // waiting tasks that are parked in the scheduler, or about to be
+  private final Set<MemoryArbiterTask> blocked = new HashSet<>();
+  // waiting tasks that have not called blockOnMemory() yet: a task removed from this set before it
+  // did is unblocked by itself, so that the unblock cannot overtake the block
+  private final Set<MemoryArbiterTask> blocking = new HashSet<>();
+  private final Map<MemoryArbiterTask, Long> grants = new HashMap<>();
+  private final Map<MemoryTaskAndShrinkableOperator, Long> spilling = new IdentityHashMap<>();
+  private final Map<QueryId, QueryMemoryStats> queryStats = new HashMap<>();
+  private long outstandingGrants;
+  private long spillingBytes;
+
+  public QueueingMemoryArbiter(RootAllocator rootAllocator, OptionManager options) {
+    this(
+        rootAllocator.getLimit()
+            / 100
+            * options.getOption(ExecConstants.MEMORY_ARBITER_POOL_PERCENTAGE),
+        rootAllocator::getAllocatedMemory);
+  }
+
+  @VisibleForTesting
+  QueueingMemoryArbiter(long poolSize, LongSupplier allocatedMemory) {
+    Preconditions.checkArgument(poolSize > 0, "The memory pool size must be positive");
+    this.poolSize = poolSize;
+    this.allocatedMemory = allocatedMemory;
+  }
+
+  @Override
+  public synchronized void startTask(MemoryArbiterTask memoryArbiterTask) {
+    if (tasks.add(memoryArbiterTask)) {
+      final QueryId queryId = memoryArbiterTask.getQueryId();
+      if (queryId != null) {
+        queryStats.computeIfAbsent(queryId, k -> new QueryMemoryStats()).numTasks++;
+      }
+    }
+  }
+
+  @Override
+  public void taskDone(MemoryArbiterTask memoryArbiterTask) {
+    final List<MemoryArbiterTask> toUnblock;
+    synchronized (this) {
+      if (!tasks.remove(memoryArbiterTask)) {
+        return;
+      }
+      releaseGrant(memoryArbiterTask);
+      final Waiter waiter = queue.remove(memoryArbiterTask);
+      blocked.remove(memoryArbiterTask);
+      blocking.remove(memoryArbiterTask);
+      final QueryMemoryStats stats = getQueryStats(memoryArbiterTask);
+      if (waiter != null) {
+        addGrantWait(stats, waiter);
+      }
+      final Iterator<Map.Entry<MemoryTaskAndShrinkableOperator, Long>> iterator =
+          spilling.entrySet().iterator();
+      while (iterator.hasNext()) {
+        final Map.Entry<MemoryTaskAndShrinkableOperator, Long> entry = iterator.next();
+        if (entry.getKey().getMemoryArbiterTask() == memoryArbiterTask) {
+          spillingBytes -= entry.getValue();
+          iterator.remove();
+        }
+      }
+      if (stats != null && --stats.numTasks == 0) {
+        queryStats.remove(memoryArbiterTask.getQueryId());
+        logQueryStats(memoryArbiterTask.getQueryId(), stats);
+      }
+      toUnblock = pollGrantable();
+    }
+    unblock(toUnblock);
+  }
+
+  /**
+   * Grants the memory when the pool has room for it on top of what the tasks queued ahead are
+   * waiting for, otherwise queues and blocks the task, and reclaims memory from shrinkable
+   * operators if needed.
+   */
+  @Override
+  public boolean acquireMemoryGrant(MemoryArbiterTask memoryArbiterTask, long memoryGrantInBytes) {
+    synchronized (this) {
+      startTask(memoryArbiterTask);
+      long requestedAhead = 0;
+      boolean isHead = true;
+      for (Map.Entry<MemoryArbiterTask, Waiter> entry : queue.entrySet()) {
+        if (entry.getKey() == memoryArbiterTask) {
+          break;
+        }
+        requestedAhead += entry.getValue().requestedBytes;
+        isHead = false;
+      }
+
+      if (requestedAhead + memoryGrantInBytes <= availableMemory()
+          || (isHead && nothingToWaitFor())) {
+        final Waiter waiter = queue.remove(memoryArbiterTask);
+        if (waiter != null) {
+          addGrantWait(getQueryStats(memoryArbiterTask), waiter);
+        }
+        releaseGrant(memoryArbiterTask);
+        grants.put(memoryArbiterTask, memoryGrantInBytes);
+        outstandingGrants += memoryGrantInBytes;
+        memoryArbiterTask.setMemoryGrant(memoryGrantInBytes);
+        return true;
+      }
+
+      final Waiter waiter = queue.get(memoryArbiterTask);
+      if (waiter == null) {
+        queue.put(memoryArbiterTask, new Waiter(memoryGrantInBytes));
+        final QueryMemoryStats stats = getQueryStats(memoryArbiterTask);
+        if (stats != null) {
+          stats.numBlockedGrants++;
+        }
+        BLOCKED_GRANTS.increment();
+      } else {
+        waiter.requestedBytes = memoryGrantInBytes;
+      }
+      blocked.add(memoryArbiterTask);
+      blocking.add(memoryArbiterTask);
+    }
+
+    memoryArbiterTask.blockOnMemory();
+    final boolean unblocked;
+    synchronized (this) {
+      unblocked = !blocking.remove(memoryArbiterTask);
+    }
+    if (unblocked) {
+      // the grant became available before the task was blocked
+      memoryArbiterTask.unblockOnMemory();
+    }
+    reclaimMemory();
+    return false;
+  }
+
+  @Override
+  public void releaseMemoryGrant(MemoryArbiterTask memoryArbiterTask) {
+    final List<MemoryArbiterTask> toUnblock;
+    synchronized (this) {
+      releaseGrant(memoryArbiterTask);
+      toUnblock = pollGrantable();
+    }
+    unblock(toUnblock);
+  }
+
+  @Override
+  public synchronized boolean removeFromBlocked(MemoryArbiterTask memoryArbiterTask) {
+    return blocked.remove(memoryArbiterTask);
+  }
+
+  /** Called by a task once one of its operators is done spilling. */
+  @Override
+  public void removeFromSpilling(MemoryTaskAndShrinkableOperator memoryTaskAndShrinkableOperator) {
+    if (memoryTaskAndShrinkableOperator == null) {
+      return;
+    }
+    final long shrinkableAfter =
+        memoryTaskAndShrinkableOperator.getShrinkableOperator().shrinkableMemory();
+    final long reclaimed;
+    final List<MemoryArbiterTask> toUnblock;
+    synchronized (this) {
+      final Long shrinkableBefore = spilling.remove(memoryTaskAndShrinkableOperator);
+      if (shrinkableBefore == null) {
+        return;
+      }
+      spillingBytes -= shrinkableBefore;
+      reclaimed = Math.max(0, shrinkableBefore - shrinkableAfter);
+      final QueryMemoryStats stats =
+          getQueryStats(memoryTaskAndShrinkableOperator.getMemoryArbiterTask());
+      if (stats != null) {
+        stats.reclaimedBytes += reclaimed;
+      }
+      toUnblock = pollGrantable();
+    }
+    logger.debug(
+        "{} done spilling, reclaimed {} bytes", memoryTaskAndShrinkableOperator, reclaimed);
+    RECLAIMED_BYTES.increment(reclaimed);
+    memoryTaskAndShrinkableOperator.getMemoryArbiterTask().addReclaimedMemory(reclaimed);
+    unblock(toUnblock);
+  }
+
+  /**
+   * Called by a task once it is done spilling. The memory that was released may satisfy queued
+   * grants.
+   */
+  @Override
+  public void addTaskToQueue(MemoryArbiterTask memoryArbiterTask) {
+    final List<MemoryArbiterTask> toUnblock;
+    synchronized (this) {
+      toUnblock = pollGrantable();
+    }
+    unblock(toUnblock);
+  }
+
+  private long availableMemory() {
+    return poolSize - allocatedMemory.getAsLong() - outstandingGrants;
+  }
+
+  /** Whether no grant is outstanding and no operator is spilling, so no memory will be freed. */
+  private boolean nothingToWaitFor() {
+    return grants.isEmpty() && spilling.isEmpty();
+  }
+
+  private void releaseGrant(MemoryArbiterTask memoryArbiterTask) {
+    final Long grant = grants.remove(memoryArbiterTask);
+    if (grant != null) {
+      outstandingGrants -= grant;
+    }
+    memoryArbiterTask.setMemoryGrant(0);
+  }
+
+  /**
+   * Returns the blocked tasks, from the head of the queue, that can be granted their memory. Tasks
+   * stay queued until they acquire their grant, so that later requests do not overtake them.
+   */
+  private List<MemoryArbiterTask> pollGrantable() {
+    final List<MemoryArbiterTask> toUnblock = new ArrayList<>();
+    long available = availableMemory();
+    boolean first = true;
+    for (Map.Entry<MemoryArbiterTask, Waiter> entry : queue.entrySet()) {
+      final long requested = entry.getValue().requestedBytes;
+      if (requested > available && !(first && nothingToWaitFor())) {
+        break;
+      }
+      available -= requested;
+      first = false;
+      if (blocked.remove(entry.getKey()) && !blocking.remove(entry.getKey())) {
+        toUnblock.add(entry.getKey());
+      }
+    }
+    return toUnblock;
+  }
+
+  private static void unblock(List<MemoryArbiterTask> toUnblock) {
+    // outside of the arbiter lock, the scheduler takes its own locks
+    for (MemoryArbiterTask task : toUnblock) {
+      task.unblockOnMemory();
+    }
+  }
+
+  /** Memory the queue is waiting for that the spilling operators will not free. */
+  private long deficit() {
+    long deficit = -availableMemory() - spillingBytes;
+    for (Waiter waiter : queue.values()) {
+      deficit += waiter.requestedBytes;
+    }
+    return deficit;
+  }
+
+  /**
+   * Asks the operators holding the most shrinkable memory to spill, until the memory held by the
+   * spilling operators covers what the queue is waiting for. The operators are chosen under the
+   * lock, and asked to spill after it is released.
+   */
+  private void reclaimMemory() {
+    final List<MemoryTaskAndShrinkableOperator> operators = new ArrayList<>();
+    synchronized (this) {
+      if (deficit() <= 0) {
+        return;
+      }
+      for (MemoryArbiterTask task : tasks) {
+        for (MemoryTaskAndShrinkableOperator operator : task.getShrinkableOperators()) {
+          if (!spilling.containsKey(operator)) {
+            operators.add(operator);
+          }
+        }
+      }
+    }
+
+    // the shrinkable memory is reported by operators of other fragments
+    final List<Victim> candidates = new ArrayList<>();
+    for (MemoryTaskAndShrinkableOperator operator : operators) {
+      if (operator.isOperatorShrinkingMemory()) {
+        continue;
+      }
+      final long shrinkable = operator.getShrinkableOperator().shrinkableMemory();
+      if (shrinkable > 0) {
+        candidates.add(new Victim(operator, shrinkable));
+      }
+    }
+    candidates.sort(Comparator.comparingLong((Victim victim) -> victim.shrinkable).reversed());
+
+    final List<Victim> victims = new ArrayList<>();
+    synchronized (this) {
+      long deficit = deficit();
+      for (Victim victim : candidates) {
+        if (deficit <= 0) {
+          break;
+        }
+        if (!tasks.contains(victim.operator.getMemoryArbiterTask())
+            || spilling.containsKey(victim.operator)) {
+          // the task is done, or another thread chose the operator in the meantime
+          continue;
+        }
+        spilling.put(victim.operator, victim.shrinkable);
+        spillingBytes += victim.shrinkable;
+        deficit -= victim.shrinkable;
+        final QueryMemoryStats stats = getQueryStats(victim.operator.getMemoryArbiterTask());
+        if (stats != null) {
+          stats.numSpillRequests++;
+        }
+        victims.add(victim);
+      }
+    }
+
+    boolean failed = false;
+    for (Victim victim : victims) {
+      try {
+        logger.debug("Asking {} to spill {} bytes", victim.operator, victim.shrinkable);
+        victim.operator.shrinkMemory(victim.shrinkable);
+        SPILL_REQUESTS.increment();
+      } catch (Exception e) {
+        logger.warn("Failed to ask {} to spill", victim.operator, e);
+        synchronized (this) {
+          final Long shrinkable = spilling.remove(victim.operator);
+          if (shrinkable != null) {
+            spillingBytes -= shrinkable;
+            final QueryMemoryStats stats = getQueryStats(victim.operator.getMemoryArbiterTask());
+            if (stats != null) {
+              stats.numSpillRequests--;
+            }
+          }
+        }
+        failed = true;
+      }
+    }
+    if (failed) {
+      // the queue may have been waiting for the operators that could not be asked to spill
+      final List<MemoryArbiterTask> toUnblock;
+      synchronized (this) {
+        toUnblock = pollGrantable();
+      }
+      unblock(toUnblock);
+    }
+  }
+
+  private void addGrantWait(QueryMemoryStats stats, Waiter waiter) {
+    final long waitNanos = System.nanoTime() - waiter.queuedNanos;
+    if (stats != null) {
+      stats.grantWaitNanos += waitNanos;
+    }
+    GRANT_WAIT_MS.increment(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+  }
+
+  private QueryMemoryStats getQueryStats(MemoryArbiterTask task) {
+    final QueryId queryId = task.getQueryId();
+    return queryId != null ? queryStats.get(queryId) : null;
+  }
+
+  private static void logQueryStats(QueryId queryId, QueryMemoryStats stats) {
+    if (stats.numBlockedGrants == 0 && stats.numSpillRequests == 0) {
+      return;
+    }
+    logger.debug(
+        "Query {} waited {} ms for {} memory grants, {} bytes reclaimed from {} spill requests",
+        QueryIdHelper.getQueryId(queryId),
+        TimeUnit.NANOSECONDS.toMillis(stats.grantWaitNanos),
+        stats.numBlockedGrants,
+        stats.reclaimedBytes,
+        stats.numSpillRequests);
+  }
+
+  /** Returns the grant wait time and reclaimed memory of a query that is still running. */
+  @VisibleForTesting
+  synchronized QueryMemoryStats getQueryStats(QueryId queryId) {
+    return queryStats.get(queryId);
+  }
+
+  @Override
+  public void close() throws Exception {
+    final List<MemoryArbiterTask> toUnblock;
+    synchronized (this) {
+      toUnblock = new ArrayList<>();
+      for (MemoryArbiterTask task : blocked) {
+        if (!blocking.contains(task)) {
+          toUnblock.add(task);
+        }
+      }
+      blocked.clear();
+      blocking.clear();
+      queue.clear();
+      grants.clear();
+      spilling.clear();
+      tasks.clear();
+      queryStats.clear();
+      outstandingGrants = 0;
+      spillingBytes = 0;
+    }
+    unblock(toUnblock);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format(
+        "pool: %d, allocated: %d, granted: %d, queued tasks: %d, blocked tasks: %d, spilling: %s",
+        poolSize,
+        allocatedMemory.getAsLong(),
+        outstandingGrants,
+        queue.size(),
+        blocked.size(),
+        spilling.keySet());
+  }
+
+  /** Memory requested by a queued task. */
+  private static final class Waiter {
+    private final long queuedNanos = System.nanoTime();
+    private long requestedBytes;
+
+    private Waiter(long requestedBytes) {
+      this.requestedBytes = requestedBytes;
+    }
+  }
+
+  /** An operator that may be asked to spill, and the shrinkable memory it reported. */
+  private static final class Victim {
+    private final MemoryTaskAndShrinkableOperator operator;
+    private final long shrinkable;
+
+    private Victim(MemoryTaskAndShrinkableOperator operator, long shrinkable) {
+      this.operator = operator;
+      this.shrinkable = shrinkable;
+    }
+  }
+
+  /** Grant waits and reclaimed memory of a query. */
+  @VisibleForTesting
+  static final class QueryMemoryStats {
+    private int numTasks;
+    private long grantWaitNanos;
+    private long numBlockedGrants;
+    private long reclaimedBytes;
+    private long numSpillRequests;
+
+    long getGrantWaitNanos() {
+      return grantWaitNanos;
+    }
+
+    long getNumBlockedGrants() {
+      return numBlockedGrants;
+    }
+
+    long getReclaimedBytes() {
+      return reclaimedBytes;
+    }
+
+    long getNumSpillRequests() {
+      return numSpillRequests;
+    }
+  }
+
+  public static class Factory implements MemoryArbiterFactory {
+    @Override
+    public MemoryArbiter newInstance(
+        SabotConfig sabotConfig,
+        RootAllocator rootAllocator,
+        FragmentExecutors fragmentExecutors,
+        QueriesClerk clerk,
+        OptionManager options) {
+      return new QueueingMemoryArbiter(rootAllocator, options);
+    }
+  }
+}
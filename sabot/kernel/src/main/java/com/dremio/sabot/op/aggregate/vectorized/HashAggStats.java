@@ -32,6 +32,21 @@ public class HashAggStats {
 
   public static final int SKIP_METRIC_START = 10;
 
+  /** Values of {@link Metric#PREAGG_MODE}. */
+  public enum PreAggregationMode {
+    AGGREGATE, // aggregate the whole input, the only mode of non adaptive aggregations
+    SAMPLING, // still measuring the reduction of the first batches
+    FLUSH // output the hash table every time it fills up and start over with an empty one
+  }
+
+  /** Values of {@link Metric#PREAGG_MODE_REASON}. */
+  public enum PreAggregationModeReason {
+    NONE, // no mode was chosen
+    HIGH_REDUCTION, // the sampled batches were reduced enough by local aggregation
+    LOW_REDUCTION, // the sampled batches were not reduced enough by local aggregation
+    SPILLED // the operator spilled while sampling, flushes need the whole hash table in memory
+  }
+
   public enum Metric implements MetricDef {
     NUM_BUCKETS,
     NUM_ENTRIES,
@@ -111,7 +126,15 @@ public class HashAggStats {
     OOB_DROP_ALREADY_SPILLING, // Number of times operator dropped spilling notification as it was
     // already spilling
     SETUP_MILLIS,
-    CAN_PRODUCE_MILLIS;
+    CAN_PRODUCE_MILLIS,
+
+    // Adaptive pre-aggregation metrics
+    PREAGG_MODE, // PreAggregationMode of the first phase of a two phase aggregation
+    PREAGG_MODE_REASON, // PreAggregationModeReason, why that mode was chosen
+    PREAGG_SAMPLED_RECORDS, // Number of input records sampled to choose the mode
+    PREAGG_SAMPLED_GROUPS, // Number of groups found in the sampled records
+    PREAGG_FLUSHES, // Number of times the hash table was flushed before the end of the input
+    PREAGG_FLUSHED_RECORDS; // Number of records output by these flushes
 
     private final DisplayType displayType;
     private final AggregationType aggregationType;
@@ -56,6 +56,8 @@ import com.dremio.sabot.exec.context.OperatorStats;
 import com.dremio.sabot.exec.fragment.OutOfBandMessage;
 import com.dremio.sabot.exec.fragment.OutOfBandMessage.Payload;
 import com.dremio.sabot.op.aggregate.vectorized.HashAggStats.Metric;
+import com.dremio.sabot.op.aggregate.vectorized.HashAggStats.PreAggregationMode;
+import com.dremio.sabot.op.aggregate.vectorized.HashAggStats.PreAggregationModeReason;
 import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggDebug.HashAggErrorType;
 import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggPartitionSpillHandler.SpilledPartitionIterator;
 import com.dremio.sabot.op.aggregate.vectorized.arrayagg.ArrayAggAccumulator;
@@ -417,6 +419,28 @@ public class VectorizedHashAggOperator implements SingleInputOperator, Shrinkabl
       new PositiveLongValidator(
           "exec.operator.aggregate.arrayagg.vectorsize", 1024 * 1024, 32 * 1024);
 
+  /*
+   * Adaptive pre-aggregation: the first phase of a two phase aggregation measures how much it reduces
+   * the first batches of its input. If it barely does, as when grouping by a nearly unique key, the
+   * hash table is output and emptied every time it reaches a small size instead of growing with the
+   * input; the second phase merges the groups that are output several times.
+   */
+  public static final BooleanValidator VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_ENABLED =
+      new BooleanValidator("exec.operator.aggregate.vectorize.adaptive_preagg.enabled", true);
+  public static final PositiveLongValidator VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_SAMPLE_BATCHES =
+      new PositiveLongValidator(
+          "exec.operator.aggregate.vectorize.adaptive_preagg.sample_batches", 1024, 8);
+  // share of the sampled records local aggregation must eliminate to keep aggregating everything
+  public static final DoubleValidator VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_MIN_REDUCTION =
+      new RangeDoubleValidator(
+          "exec.operator.aggregate.vectorize.adaptive_preagg.min_reduction", 0.0d, 1.0d, 0.1d);
+  // number of hash table entries that triggers a flush once local aggregation is not paying off
+  public static final PositiveLongValidator VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_FLUSH_ENTRIES =
+      new PositiveLongValidator(
+          "exec.operator.aggregate.vectorize.adaptive_preagg.flush_entries",
+          Integer.MAX_VALUE,
+          64 * 1024);
+
   private static final org.slf4j.Logger logger =
       org.slf4j.LoggerFactory.getLogger(VectorizedHashAggOperator.class);
 
@@ -543,6 +567,19 @@ public class VectorizedHashAggOperator implements SingleInputOperator, Shrinkabl
   private boolean rowSizeLimitEnabledForThisOperator;
   private final int rowSizeLimit;
 
+  /* adaptive pre-aggregation */
+  private final int preAggSampleBatches;
+  private final double preAggMinReduction;
+  private final int preAggFlushEntries;
+  private PreAggregationMode preAggMode;
+  private PreAggregationModeReason preAggModeReason = PreAggregationModeReason.NONE;
+  private int preAggSampledBatches;
+  private long preAggSampledRecords;
+  private long preAggSampledGroups;
+  private boolean flushingPartitions;
+  private int preAggFlushes;
+  private long preAggFlushedRecords;
+
   private final Stopwatch setUpWatch = Stopwatch.createUnstarted();
   private final Stopwatch produceDataWatch = Stopwatch.createUnstarted();
 
@@ -633,6 +670,16 @@ public class VectorizedHashAggOperator implements SingleInputOperator, Shrinkabl
     this.rowSizeLimitEnabled =
         this.context.getOptions().getOption(ExecConstants.ENABLE_ROW_SIZE_LIMIT_ENFORCEMENT);
     this.rowSizeLimitEnabledForThisOperator = rowSizeLimitEnabled;
+    final boolean adaptivePreAggregation =
+        popConfig.isPartialAggregation()
+            && options.getOption(VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_ENABLED);
+    this.preAggSampleBatches =
+        (int) options.getOption(VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_SAMPLE_BATCHES);
+    this.preAggMinReduction = options.getOption(VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_MIN_REDUCTION);
+    this.preAggFlushEntries =
+        (int) options.getOption(VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_FLUSH_ENTRIES);
+    this.preAggMode =
+        adaptivePreAggregation ? PreAggregationMode.SAMPLING : PreAggregationMode.AGGREGATE;
   }
 
   @Override
@@ -1330,6 +1377,7 @@ public class VectorizedHashAggOperator implements SingleInputOperator, Shrinkabl
       VariableLengthValidator.validateVariable(v, records);
     }
     consumeDataHelper(records);
+    adaptPreAggregation(records);
 
     long memoryUsed = allocator.getAllocatedMemory() - oldMemoryUsage;
     long timeTaken = (System.nanoTime() - startTime) / 1000000;
@@ -1357,6 +1405,53 @@ public class VectorizedHashAggOperator implements SingleInputOperator, Shrinkabl
     }
   }
 
+  /**
+   * Chooses the pre-aggregation mode once the sampled batches have been consumed, and in {@link
+   * PreAggregationMode#FLUSH} mode starts outputting the partitions when the hash table is full.
+   * Flushes only happen while no partition is spilled, so that every group output by a flush is
+   * complete for the records consumed so far.
+   *
+   * @param records number of records of the batch that was just consumed
+   */
+  private void adaptPreAggregation(int records) {
+    if (preAggMode == PreAggregationMode.SAMPLING) {
+      preAggSampledRecords += records;
+      if (partitionSpillHandler.getNumberOfSpills() > 0) {
+        choosePreAggregationMode(PreAggregationMode.AGGREGATE, PreAggregationModeReason.SPILLED);
+      } else if (++preAggSampledBatches >= preAggSampleBatches) {
+        preAggSampledGroups = getHashTableSize();
+        if (preAggSampledGroups > (1 - preAggMinReduction) * preAggSampledRecords) {
+          choosePreAggregationMode(
+              PreAggregationMode.FLUSH, PreAggregationModeReason.LOW_REDUCTION);
+        } else {
+          choosePreAggregationMode(
+              PreAggregationMode.AGGREGATE, PreAggregationModeReason.HIGH_REDUCTION);
+        }
+      }
+    }
+
+    if (preAggMode == PreAggregationMode.FLUSH
+        && state == State.CAN_CONSUME
+        && getHashTableSize() >= preAggFlushEntries
+        && partitionSpillHandler.getActiveSpilledPartitionCount() == 0
+        && partitionSpillHandler.isSpillQueueEmpty()) {
+      flushingPartitions = true;
+      preAggFlushes++;
+      moveToOutputState();
+    }
+  }
+
+  private void choosePreAggregationMode(PreAggregationMode mode, PreAggregationModeReason reason) {
+    logger.debug(
+        "Pre-aggregation mode {} ({}), {} groups in {} sampled records",
+        mode,
+        reason,
+        getHashTableSize(),
+        preAggSampledRecords);
+    preAggMode = mode;
+    preAggModeReason = reason;
+  }
+
   /**
    * Helper function for consuming incoming data from pipeline. With micro spilling, this function
    * also resumes consuming data from an earlier failure (OOM) point.
@@ -2954,6 +3049,13 @@ public class VectorizedHashAggOperator implements SingleInputOperator, Shrinkabl
     }
     stats.setLongStat(Metric.SETUP_MILLIS, setUpWatch.elapsed(TimeUnit.MILLISECONDS));
     stats.setLongStat(Metric.CAN_PRODUCE_MILLIS, produceDataWatch.elapsed(TimeUnit.MILLISECONDS));
+
+    stats.setLongStat(Metric.PREAGG_MODE, preAggMode.ordinal());
+    stats.setLongStat(Metric.PREAGG_MODE_REASON, preAggModeReason.ordinal());
+    stats.setLongStat(Metric.PREAGG_SAMPLED_RECORDS, preAggSampledRecords);
+    stats.setLongStat(Metric.PREAGG_SAMPLED_GROUPS, preAggSampledGroups);
+    stats.setLongStat(Metric.PREAGG_FLUSHES, preAggFlushes);
+    stats.setLongStat(Metric.PREAGG_FLUSHED_RECORDS, preAggFlushedRecords);
   }
 
   private class HashTableStatsHolder {
@@ -3172,7 +3274,14 @@ public class VectorizedHashAggOperator implements SingleInputOperator, Shrinkabl
   private int outputPartitions() throws Exception {
 
     if (outputPartitionIndex == numPartitions) {
-      postOutputProcessing();
+      if (flushingPartitions) {
+        /* the partitions are empty again, resume consuming the pipeline */
+        flushingPartitions = false;
+        state = State.CAN_CONSUME;
+        internalStateMachine = InternalState.NONE;
+      } else {
+        postOutputProcessing();
+      }
       outputPartitionIndex = 0;
       return 0;
     }
@@ -3198,6 +3307,9 @@ public class VectorizedHashAggOperator implements SingleInputOperator, Shrinkabl
     } else {
       totalRecords = outputPartition(partitionToOutput);
     }
+    if (flushingPartitions) {
+      preAggFlushedRecords += totalRecords;
+    }
     updateStats();
     outgoing.setAllCount(totalRecords);
     checkForRowSizeOverLimit(totalRecords);
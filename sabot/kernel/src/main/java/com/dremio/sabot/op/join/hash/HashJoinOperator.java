@@ -40,6 +40,7 @@ import com.dremio.exec.record.VectorContainer;
 import com.dremio.options.Options;
 import com.dremio.options.TypeValidators;
 import com.dremio.options.TypeValidators.BooleanValidator;
+import com.dremio.options.TypeValidators.EnumValidator;
 import com.dremio.options.TypeValidators.LongValidator;
 import com.dremio.options.TypeValidators.PositiveLongValidator;
 import com.dremio.options.TypeValidators.PowerOfTwoLongValidator;
@@ -56,6 +57,7 @@ import com.dremio.sabot.op.join.JoinUtils;
 import com.dremio.sabot.op.join.vhash.HashJoinStats;
 import com.dremio.sabot.op.join.vhash.VectorizedHashJoinOperator;
 import com.dremio.sabot.op.join.vhash.spill.VectorizedSpillingHashJoinOperator;
+import com.dremio.sabot.op.join.vhash.spill.io.SpillCompression;
 import com.dremio.sabot.op.spi.DualInputOperator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
@@ -90,6 +92,12 @@ public class HashJoinOperator implements DualInputOperator {
       new TypeValidators.PositiveLongValidator(
           "exec.op.join.spill.page_size", Integer.MAX_VALUE, 256 * 1024);
 
+  // Compression of spilled chunks: none, stream (heap LZ4 stream), lz4 or zstd (off-heap blocks).
+  // The off-heap block formats are opt-in.
+  public static final EnumValidator<SpillCompression> SPILL_COMPRESSION =
+      new EnumValidator<>(
+          "exec.op.join.spill.compression", SpillCompression.class, SpillCompression.STREAM);
+
   // For unit tests, always use with DEBUG flag only.
   public static final StringValidator TEST_SPILL_MODE =
       new StringValidator("exec.op.join.spill.test_spill_mode", "none");
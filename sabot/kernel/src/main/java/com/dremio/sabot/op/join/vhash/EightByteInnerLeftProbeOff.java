@@ -408,7 +408,9 @@ public class EightByteInnerLeftProbeOff implements JoinTable {
               fieldNames.get(0),
               build.getName());
         } else {
-          bloomFilter = map.prepareBloomFilter(sizeDynamically);
+          bloomFilter =
+              map.prepareBloomFilter(
+                  sizeDynamically, partitionColFilters.isSplitBlockBloomFilter());
           partitionColFilters.setBloomFilter(i, probeTargets.get(i), bloomFilter);
         }
       } catch (Exception e) {
@@ -109,7 +109,12 @@ public class HashJoinStats {
     OOB_DROP_WRONG_STATE, /* number of oob messages dropped because it was not in build phase */
     OOB_SPILL, /* number of spills performed */
     SPILL_NANOS,
-    SETUP_TIME;
+    SETUP_TIME,
+    SPILL_WR_COMPRESSED_BYTES, /* total bytes written to spill files after compression */
+    SPILL_RD_COMPRESSED_BYTES, /* total bytes read from spill files before decompression */
+    SPILL_COMPRESSION_NANOS, /* time spent compressing spilled chunks */
+    SPILL_DECOMPRESSION_NANOS, /* time spent decompressing replayed chunks */
+    SPILL_COMPRESSION_RATIO_X100; /* ratio of uncompressed to compressed spill bytes, times 100 */
 
     private final UserBitShared.MetricDef.DisplayType displayType;
     private final UserBitShared.MetricDef.AggregationType aggregationType;
@@ -427,6 +427,11 @@ public final class LBlockHashTableEight implements AutoCloseable {
   }
 
   public Optional<BloomFilter> prepareBloomFilter(final boolean sizeDynamically) throws Exception {
+    return prepareBloomFilter(sizeDynamically, false);
+  }
+
+  public Optional<BloomFilter> prepareBloomFilter(
+      final boolean sizeDynamically, final boolean splitBlock) throws Exception {
     final long bloomFilterSize =
         sizeDynamically
             ? Math.min(BloomFilter.getOptimalSize(size()), BLOOMFILTER_MAX_SIZE)
@@ -434,8 +439,11 @@ public final class LBlockHashTableEight implements AutoCloseable {
     try (ArrowBuf keyHolder = allocator.buffer(9);
         RollbackCloseable closeOnErr = new RollbackCloseable()) {
       final BloomFilter bloomFilter =
-          new BloomFilter(
-              allocator, Thread.currentThread().getName(), bloomFilterSize); // fixed to 2MB
+          BloomFilter.create(
+              allocator,
+              Thread.currentThread().getName(),
+              bloomFilterSize,
+              splitBlock); // fixed to 2MB
       closeOnErr.add(bloomFilter);
       bloomFilter.setup();
 
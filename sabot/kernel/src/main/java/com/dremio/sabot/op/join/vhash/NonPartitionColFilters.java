@@ -51,17 +51,28 @@ public class NonPartitionColFilters implements AutoCloseable {
   private final List<RuntimeFilterProbeTarget> probeTargets;
   private final PivotDef pivotDef;
   private final int maxElements;
+  private final boolean rangeOnOverflow;
 
   public NonPartitionColFilters(
       BufferAllocator allocator,
       List<RuntimeFilterProbeTarget> probeTargets,
       PivotDef pivotDef,
       int maxElements) {
+    this(allocator, probeTargets, pivotDef, maxElements, false);
+  }
+
+  public NonPartitionColFilters(
+      BufferAllocator allocator,
+      List<RuntimeFilterProbeTarget> probeTargets,
+      PivotDef pivotDef,
+      int maxElements,
+      boolean rangeOnOverflow) {
     this.allocator =
         allocator.newChildAllocator("nonpartition-col-filters", 0, allocator.getLimit());
     this.probeTargets = probeTargets;
     this.pivotDef = pivotDef;
     this.maxElements = maxElements;
+    this.rangeOnOverflow = rangeOnOverflow;
     this.nonPartitionColFilters = build();
   }
 
@@ -144,6 +155,7 @@ public class NonPartitionColFilters implements AutoCloseable {
                   isBooleanField ? 0 : keyReader.getEffectiveKeySize(),
                   isBooleanField);
           filterBuilder.setup();
+          filterBuilder.setRangeOnOverflow(rangeOnOverflow);
           filterBuilder.setFieldName(probeTarget.getNonPartitionProbeTableKeys().get(colId));
           filterBuilder.setName(Thread.currentThread().getName());
           closeOnError.add(filterBuilder);
@@ -18,6 +18,7 @@ package com.dremio.sabot.op.join.vhash;
 
 import com.dremio.common.AutoCloseables;
 import com.dremio.exec.physical.config.RuntimeFilterProbeTarget;
+import com.dremio.exec.store.CompositeColumnFilter;
 import com.dremio.exec.util.BloomFilter;
 import com.dremio.sabot.op.common.ht2.FixedBlockVector;
 import com.dremio.sabot.op.common.ht2.HashTable;
@@ -28,10 +29,12 @@ import com.dremio.sabot.op.common.ht2.VariableBlockVector;
 import com.dremio.sabot.op.join.vhash.spill.partition.DiskPartitionFilterHelper;
 import com.google.common.base.Preconditions;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import org.apache.arrow.memory.ArrowBuf;
 import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.types.pojo.Field;
 import org.apache.commons.collections4.CollectionUtils;
 
 public class PartitionColFilters implements AutoCloseable {
@@ -46,18 +49,21 @@ public class PartitionColFilters implements AutoCloseable {
   private final PivotDef pivotDef;
   private final long bloomFilterSize;
   private final int maxKeySize;
+  private final boolean splitBlockBloomFilter;
 
   public PartitionColFilters(
       BufferAllocator allocator,
       List<RuntimeFilterProbeTarget> probeTargets,
       PivotDef pivotDef,
       long bloomFilterSize,
-      int maxKeySize) {
+      int maxKeySize,
+      boolean splitBlockBloomFilter) {
     this.allocator = allocator.newChildAllocator("partition-col-filters", 0, allocator.getLimit());
     this.probeTargets = probeTargets;
     this.pivotDef = pivotDef;
     this.bloomFilterSize = bloomFilterSize;
     this.maxKeySize = maxKeySize;
+    this.splitBlockBloomFilter = splitBlockBloomFilter;
     this.partitionColFilters = build();
   }
 
@@ -76,7 +82,8 @@ public class PartitionColFilters implements AutoCloseable {
       }
 
       final BloomFilter bloomFilter =
-          new BloomFilter(allocator, Thread.currentThread().getName(), bloomFilterSize);
+          BloomFilter.create(
+              allocator, Thread.currentThread().getName(), bloomFilterSize, splitBlockBloomFilter);
       HashTableKeyReader.Builder keyReaderBuilder =
           new HashTableKeyReader.Builder()
               .setBufferAllocator(allocator)
@@ -157,6 +164,31 @@ public class PartitionColFilters implements AutoCloseable {
     }
   }
 
+  /** Whether the bloom filters are {@link com.dremio.exec.util.SplitBlockBloomFilter}s. */
+  public boolean isSplitBlockBloomFilter() {
+    return splitBlockBloomFilter;
+  }
+
+  /**
+   * The types of the build side keys of the probe target, see {@link
+   * CompositeColumnFilter#keyTypeOf}. Empty if a key is not in the pivot.
+   */
+  public List<String> getKeyTypes(RuntimeFilterProbeTarget probeTarget) {
+    final List<String> keyTypes = new ArrayList<>();
+    for (String key : probeTarget.getPartitionBuildTableKeys()) {
+      final Optional<Field> field =
+          pivotDef.getVectorPivots().stream()
+              .map(pivot -> pivot.getIncomingVector().getField())
+              .filter(f -> f.getName().equalsIgnoreCase(key))
+              .findFirst();
+      if (!field.isPresent()) {
+        return Collections.emptyList();
+      }
+      keyTypes.add(CompositeColumnFilter.keyTypeOf(field.get()));
+    }
+    return keyTypes;
+  }
+
   public List<RuntimeFilterProbeTarget> getProbeTargets() {
     return probeTargets;
   }
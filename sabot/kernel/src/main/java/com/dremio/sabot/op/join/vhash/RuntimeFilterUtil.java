@@ -69,6 +69,16 @@ public class RuntimeFilterUtil {
     return (int) operatorContext.getOptions().getOption(RUNTIME_FILTER_KEY_MAX_SIZE);
   }
 
+  public static boolean useSplitBlockBloomFilter(OperatorContext operatorContext) {
+    return operatorContext
+        .getOptions()
+        .getOption(ExecConstants.RUNTIME_FILTER_SPLIT_BLOCK_BLOOM_FILTER);
+  }
+
+  public static boolean useRangeOnOverflow(OperatorContext operatorContext) {
+    return operatorContext.getOptions().getOption(ExecConstants.RUNTIME_FILTER_RANGE_ON_OVERFLOW);
+  }
+
   public static boolean shouldFragBuildRuntimeFilters(
       RuntimeFilterInfo runtimeFilterInfo, int minorFragment) {
     /*
@@ -110,6 +120,7 @@ public class RuntimeFilterUtil {
           runtimeFilterManager,
           probeTarget,
           bloomFilter,
+          partitionColFilters.getKeyTypes(probeTarget),
           valueListFilters,
           runtimeFilterInfo.isBroadcastJoin(),
           operatorContext,
@@ -121,6 +132,7 @@ public class RuntimeFilterUtil {
       RuntimeFilterManager runtimeFilterManager,
       RuntimeFilterProbeTarget probeTarget,
       Optional<BloomFilter> partitionColFilter,
+      List<String> partitionKeyTypes,
       List<ValueListFilter> nonPartitionColFilters,
       boolean isBroadcastJoin,
       OperatorContext operatorContext,
@@ -144,8 +156,12 @@ public class RuntimeFilterUtil {
 
       final CompositeColumnFilter partitionFilter =
           CompositeColumnFilter.newBuilder()
-              .setFilterType(ExecProtos.RuntimeFilterType.BLOOM_FILTER)
+              .setFilterType(
+                  partitionColFilter.get().isSplitBlock()
+                      ? ExecProtos.RuntimeFilterType.SPLIT_BLOCK_BLOOM_FILTER
+                      : ExecProtos.RuntimeFilterType.BLOOM_FILTER)
               .addAllColumns(probeTarget.getPartitionProbeTableKeys())
+              .addAllKeyTypes(partitionKeyTypes)
               .setValueCount(partitionColFilter.get().getNumBitsSet())
               .setSizeBytes(partitionColFilter.get().getSizeInBytes())
               .build();
@@ -156,7 +172,9 @@ public class RuntimeFilterUtil {
     /* Add non-partition column filters */
     for (ValueListFilter valueListFilter : nonPartitionColFilters) {
       ExecProtos.RuntimeFilterType type = ExecProtos.RuntimeFilterType.VALUE_LIST;
-      if (valueListFilter instanceof ValueListWithBloomFilter) {
+      if (valueListFilter.isRange()) {
+        type = ExecProtos.RuntimeFilterType.RANGE;
+      } else if (valueListFilter instanceof ValueListWithBloomFilter) {
         type = ExecProtos.RuntimeFilterType.VALUE_LIST_WITH_BLOOM_FILTER;
       }
       final CompositeColumnFilter nonPartitionColFilter =
@@ -462,7 +480,11 @@ public class RuntimeFilterUtil {
             "Invalid filter size. " + "Buffer capacity is %s, expected filter size %s",
             pcBuffer.capacity(),
             partitionColFilterProto.getSizeBytes());
-        bloomFilterPiece = BloomFilter.prepareFrom(pcBuffer);
+        bloomFilterPiece =
+            BloomFilter.prepareFrom(
+                pcBuffer,
+                partitionColFilterProto.getFilterType()
+                    == ExecProtos.RuntimeFilterType.SPLIT_BLOCK_BLOOM_FILTER);
         Preconditions.checkState(
             bloomFilterPiece.getNumBitsSet() == partitionColFilterProto.getValueCount(),
             "Bloomfilter value count mismatched. Expected %s, Actual %s",
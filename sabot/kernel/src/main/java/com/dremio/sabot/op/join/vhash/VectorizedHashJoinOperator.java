@@ -177,7 +177,8 @@ public class VectorizedHashJoinOperator implements DualInputOperator {
         new RuntimeFilterManager(
             context.getAllocator(),
             RuntimeFilterUtil.getRuntimeValFilterCap(context),
-            allMinorFragments);
+            allMinorFragments,
+            RuntimeFilterUtil.useRangeOnOverflow(context));
     this.rowSizeLimit =
         Math.toIntExact(this.context.getOptions().getOption(ExecConstants.LIMIT_ROW_SIZE_BYTES));
     this.rowSizeLimitEnabled =
@@ -768,7 +769,8 @@ public class VectorizedHashJoinOperator implements DualInputOperator {
         config.getRuntimeFilterInfo().getRuntimeFilterProbeTargets(),
         buildPivot,
         bloomFilterSize,
-        maxKeySize);
+        maxKeySize,
+        RuntimeFilterUtil.useSplitBlockBloomFilter(context));
   }
 
   @VisibleForTesting
@@ -779,7 +781,8 @@ public class VectorizedHashJoinOperator implements DualInputOperator {
         context.getAllocator(),
         config.getRuntimeFilterInfo().getRuntimeFilterProbeTargets(),
         buildPivot,
-        maxElements);
+        maxElements,
+        RuntimeFilterUtil.useRangeOnOverflow(context));
   }
 
   protected void tryPushRuntimeFilter() {
@@ -21,12 +21,17 @@ import com.dremio.common.expression.LogicalExpression;
 import com.dremio.exec.ExecConstants;
 import com.dremio.exec.record.BatchSchema;
 import com.dremio.exec.record.VectorAccessible;
+import com.dremio.exec.record.compression.Lz4FrameBufferCodec;
+import com.dremio.exec.record.compression.ZstdBufferCodec;
 import com.dremio.options.OptionManager;
 import com.dremio.sabot.exec.context.OperatorContext;
 import com.dremio.sabot.op.common.ht2.FixedBlockVector;
 import com.dremio.sabot.op.common.ht2.NullComparator;
 import com.dremio.sabot.op.common.ht2.PivotDef;
 import com.dremio.sabot.op.common.ht2.VariableBlockVector;
+import com.dremio.sabot.op.join.hash.HashJoinOperator;
+import com.dremio.sabot.op.join.vhash.spill.io.CompressedSpillSerializable;
+import com.dremio.sabot.op.join.vhash.spill.io.SpillCompression;
 import com.dremio.sabot.op.join.vhash.spill.io.SpillSerializable;
 import com.dremio.sabot.op.join.vhash.spill.io.SpillSerializableImpl;
 import com.dremio.sabot.op.join.vhash.spill.io.SpillSerializableWithStats;
@@ -37,6 +42,7 @@ import com.dremio.sabot.op.sort.external.SpillManager;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.vector.FieldVector;
@@ -101,6 +107,8 @@ public final class JoinSetupParams implements AutoCloseable {
   private final PagePool spillPagePool;
   private final SpillSerializable buildSpillSerializable;
   private final SpillSerializable probeSpillSerializable;
+  // holds off-heap staging memory when spilled chunks are compressed, null otherwise
+  private CompressedSpillSerializable compressedSpillSerializable;
 
   // generation number (bumped on each recycle of the partitions)
   private int generation = 1;
@@ -172,11 +180,32 @@ public final class JoinSetupParams implements AutoCloseable {
     this.operatorId = operatorId;
     this.runtimeFilterEnabled = runtimeFilterEnabled;
 
-    SpillSerializable serializable = new SpillSerializableImpl();
+    SpillSerializable serializable = createSpillSerializable();
     this.buildSpillSerializable = new SpillSerializableWithStats(serializable, spillStats, true);
     this.probeSpillSerializable = new SpillSerializableWithStats(serializable, spillStats, false);
   }
 
+  private SpillSerializable createSpillSerializable() {
+    final SpillCompression compression =
+        SpillCompression.valueOf(
+            options.getOption(HashJoinOperator.SPILL_COMPRESSION).toUpperCase(Locale.ROOT));
+    switch (compression) {
+      case NONE:
+        return new SpillSerializableImpl(false);
+      case LZ4:
+        compressedSpillSerializable =
+            new CompressedSpillSerializable(opAllocator, Lz4FrameBufferCodec.INSTANCE, spillStats);
+        return compressedSpillSerializable;
+      case ZSTD:
+        compressedSpillSerializable =
+            new CompressedSpillSerializable(opAllocator, ZstdBufferCodec.DEFAULT, spillStats);
+        return compressedSpillSerializable;
+      case STREAM:
+      default:
+        return new SpillSerializableImpl(true);
+    }
+  }
+
   public OptionManager getOptions() {
     return options;
   }
@@ -328,6 +357,7 @@ public final class JoinSetupParams implements AutoCloseable {
     autoCloseables.add(multiMemoryReleaser);
     autoCloseables.add(spillManager);
     autoCloseables.add(spillPagePool);
+    autoCloseables.add(compressedSpillSerializable);
     AutoCloseables.close(autoCloseables);
   }
 }
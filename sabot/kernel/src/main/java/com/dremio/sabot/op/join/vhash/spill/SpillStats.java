@@ -41,6 +41,14 @@ public class SpillStats {
   private long readNanos;
   private int oobSends;
 
+  // compression stats, only tracked when the chunks are compressed off-heap
+  private long writeUncompressedBytes;
+  private long writeCompressedBytes;
+  private long compressionNanos;
+  private long readUncompressedBytes;
+  private long readCompressedBytes;
+  private long decompressionNanos;
+
   public long getSpillCount() {
     return spillCount;
   }
@@ -200,4 +208,47 @@ public class SpillStats {
   public void addReadNanos(long readNanos) {
     this.readNanos += readNanos;
   }
+
+  public void addCompression(long uncompressedBytes, long compressedBytes, long nanos) {
+    this.writeUncompressedBytes += uncompressedBytes;
+    this.writeCompressedBytes += compressedBytes;
+    this.compressionNanos += nanos;
+  }
+
+  public void addDecompression(long uncompressedBytes, long compressedBytes, long nanos) {
+    this.readUncompressedBytes += uncompressedBytes;
+    this.readCompressedBytes += compressedBytes;
+    this.decompressionNanos += nanos;
+  }
+
+  public long getWriteUncompressedBytes() {
+    return writeUncompressedBytes;
+  }
+
+  public long getWriteCompressedBytes() {
+    return writeCompressedBytes;
+  }
+
+  public long getCompressionNanos() {
+    return compressionNanos;
+  }
+
+  public long getReadUncompressedBytes() {
+    return readUncompressedBytes;
+  }
+
+  public long getReadCompressedBytes() {
+    return readCompressedBytes;
+  }
+
+  public long getDecompressionNanos() {
+    return decompressionNanos;
+  }
+
+  /**
+   * Ratio of uncompressed to compressed size of the spilled chunks, 0 if nothing was compressed.
+   */
+  public double getCompressionRatio() {
+    return writeCompressedBytes == 0 ? 0 : (double) writeUncompressedBytes / writeCompressedBytes;
+  }
 }
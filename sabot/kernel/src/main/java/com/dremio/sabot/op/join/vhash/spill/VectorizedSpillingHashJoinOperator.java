@@ -200,7 +200,8 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator, Sh
         new RuntimeFilterManager(
             context.getAllocator(),
             RuntimeFilterUtil.getRuntimeValFilterCap(context),
-            allMinorFragments);
+            allMinorFragments,
+            RuntimeFilterUtil.useRangeOnOverflow(context));
     // not sending oob spill notifications to sibling minor fragments when MemoryArbiter is ON
     oobSpillNotificationsEnabled =
         !(context.getOptions().getOption(ENABLE_SPILLABLE_OPERATORS))
@@ -464,7 +465,8 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator, Sh
                 probeTargets,
                 buildKeyPivot,
                 BLOOMFILTER_MAX_SIZE,
-                RuntimeFilterUtil.getRuntimeFilterKeyMaxSize(context));
+                RuntimeFilterUtil.getRuntimeFilterKeyMaxSize(context),
+                RuntimeFilterUtil.useSplitBlockBloomFilter(context));
         rc.add(partitionColFilters);
 
         if (RuntimeFilterUtil.isRuntimeFilterEnabledForNonPartitionedCols(context)) {
@@ -475,7 +477,8 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator, Sh
                   context.getAllocator(),
                   probeTargets,
                   buildKeyPivot,
-                  RuntimeFilterUtil.getRuntimeValFilterCap(context));
+                  RuntimeFilterUtil.getRuntimeValFilterCap(context),
+                  RuntimeFilterUtil.useRangeOnOverflow(context));
           rc.add(nonPartitionColFilters);
         }
         partition.setFilters(nonPartitionColFilters, partitionColFilters);
@@ -1150,6 +1153,12 @@ public class VectorizedSpillingHashJoinOperator implements DualInputOperator, Sh
       stats.setLongStat(Metric.OOB_DROP_LOCAL, oobDropWrongState);
       stats.setLongStat(Metric.OOB_SPILL, oobSpills);
       stats.setLongStat(Metric.SPILL_NANOS, spillWatch.elapsed(ns) + partition.getSpillNanos());
+      stats.setLongStat(Metric.SPILL_WR_COMPRESSED_BYTES, spillStats.getWriteCompressedBytes());
+      stats.setLongStat(Metric.SPILL_RD_COMPRESSED_BYTES, spillStats.getReadCompressedBytes());
+      stats.setLongStat(Metric.SPILL_COMPRESSION_NANOS, spillStats.getCompressionNanos());
+      stats.setLongStat(Metric.SPILL_DECOMPRESSION_NANOS, spillStats.getDecompressionNanos());
+      stats.setLongStat(
+          Metric.SPILL_COMPRESSION_RATIO_X100, Math.round(spillStats.getCompressionRatio() * 100));
     }
   }
 
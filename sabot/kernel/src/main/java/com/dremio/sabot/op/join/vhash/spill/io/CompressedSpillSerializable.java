@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.join.vhash.spill.io;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.exec.record.ArrowRecordBatchLoader;
+import com.dremio.exec.record.BatchSchema;
+import com.dremio.exec.record.VectorAccessible;
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.exec.record.VectorWrapper;
+import com.dremio.exec.record.compression.BufferCodec;
+import com.dremio.exec.util.RoundUtil;
+import com.dremio.sabot.op.join.vhash.spill.SpillStats;
+import com.dremio.sabot.op.join.vhash.spill.pool.Page;
+import com.dremio.sabot.op.join.vhash.spill.pool.PageSupplier;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillInputStream;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillOutputStream;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.flatbuffers.FlatBufferBuilder;
+import io.netty.util.internal.PlatformDependent;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.util.LargeMemoryUtil;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.compression.NoCompressionCodec;
+import org.apache.arrow.vector.ipc.message.ArrowFieldNode;
+import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
+
+/**
+ * Ser/deser of spill records with off-heap block compression. Each chunk has the following format :
+ * 1. 32-byte header with the magic, the codec, the number-of-records in the chunk, the lengths of
+ * the pivoted fixed & variable portions, the rounded size of the unpivoted portion, and the lengths
+ * of the arrow header & body of the unpivoted portion 2. arrow header (flatbuffer) for the
+ * unpivoted columns 3. pivoted fixed data 4. pivoted variable data 5. arrow body for the unpivoted
+ * columns
+ *
+ * <p>Sections (3), (4) & (5) are written as a sequence of blocks of at most {@link #BLOCK_SIZE}
+ * bytes. Each block is prefixed with its uncompressed length and stored length; blocks that the
+ * codec does not shrink are stored raw. On read, the blocks are decompressed straight into the page
+ * slices, so that the chunk never exists in uncompressed form on the heap.
+ *
+ * <p>Since the chunks are already compressed, the spill file must be opened without stream
+ * compression.
+ */
+public class CompressedSpillSerializable implements SpillSerializable, AutoCloseable {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(CompressedSpillSerializable.class);
+  static final int BLOCK_SIZE = 64 * 1024;
+  private static final int BLOCK_HEADER_LEN = 8;
+  private static final int RAW_BLOCK_FLAG = 0x80000000;
+  private static final int CHUNK_HEADER_LEN = 32;
+  private static final int CHUNK_MAGIC_OFFSET = 0;
+  private static final int CODEC_OFFSET = 4;
+  private static final int NUM_RECORDS_LENGTH_OFFSET = 8;
+  private static final int FIXED_BUFFER_LENGTH_OFFSET = 12;
+  private static final int VARIABLE_BUFFER_LENGTH_OFFSET = 16;
+  private static final int UNPIVOTED_LENGTH_OFFSET = 20;
+  private static final int UNPIVOTED_HEADER_LENGTH_OFFSET = 24;
+  private static final int UNPIVOTED_BODY_LENGTH_OFFSET = 28;
+  private static final int CHUNK_MAGIC = 0x6a6f6e7a; // 'jonz' in hex
+
+  private final BufferCodec codec;
+  private final SpillStats stats;
+  // holds the compressed form of one block
+  private final ArrowBuf staging;
+  private final byte[] ioBuffer;
+  private final byte[] blockHeader = new byte[BLOCK_HEADER_LEN];
+  private long codecNanos;
+
+  public CompressedSpillSerializable(
+      BufferAllocator allocator, BufferCodec codec, SpillStats stats) {
+    this.codec = Preconditions.checkNotNull(codec);
+    this.stats = Preconditions.checkNotNull(stats);
+    final int stagingSize = LargeMemoryUtil.checkedCastToInt(codec.maxCompressedLength(BLOCK_SIZE));
+    this.staging = allocator.buffer(stagingSize);
+    this.ioBuffer = new byte[Math.max(stagingSize, CHUNK_HEADER_LEN)];
+  }
+
+  @Override
+  public boolean isStreamCompressed() {
+    return false;
+  }
+
+  @Override
+  public long writeChunkToStream(SpillChunk chunk, SpillOutputStream output) throws IOException {
+    try (ArrowRecordBatch recordBatch = getRecordBatch(chunk.getContainer())) {
+      final FlatBufferBuilder builder = new FlatBufferBuilder();
+      builder.finish(recordBatch.writeTo(builder));
+      final ByteBuffer header = builder.dataBuffer();
+      final byte[] headerBytes = new byte[header.remaining()];
+      header.get(headerBytes);
+
+      final int fixedLength = LargeMemoryUtil.checkedCastToInt(chunk.getFixed().capacity());
+      final int variableLength = LargeMemoryUtil.checkedCastToInt(chunk.getVariable().capacity());
+      long bodyLength = 0;
+      for (ArrowBuf buf : recordBatch.getBuffers()) {
+        bodyLength += buf.readableBytes();
+      }
+
+      PlatformDependent.putInt(ioBuffer, CHUNK_MAGIC_OFFSET, CHUNK_MAGIC);
+      PlatformDependent.putInt(ioBuffer, CODEC_OFFSET, codec.getCodecType().getType());
+      PlatformDependent.putInt(ioBuffer, NUM_RECORDS_LENGTH_OFFSET, chunk.getNumRecords());
+      PlatformDependent.putInt(ioBuffer, FIXED_BUFFER_LENGTH_OFFSET, fixedLength);
+      PlatformDependent.putInt(ioBuffer, VARIABLE_BUFFER_LENGTH_OFFSET, variableLength);
+      PlatformDependent.putInt(ioBuffer, UNPIVOTED_LENGTH_OFFSET, chunk.getUnpivotedSizeRounded());
+      PlatformDependent.putInt(ioBuffer, UNPIVOTED_HEADER_LENGTH_OFFSET, headerBytes.length);
+      PlatformDependent.putInt(
+          ioBuffer, UNPIVOTED_BODY_LENGTH_OFFSET, LargeMemoryUtil.checkedCastToInt(bodyLength));
+      output.write(ioBuffer, 0, CHUNK_HEADER_LEN);
+      output.write(headerBytes);
+      long bytesWritten = CHUNK_HEADER_LEN + headerBytes.length;
+
+      codecNanos = 0;
+      bytesWritten += writeSection(chunk.getFixed(), 0, fixedLength, output);
+      bytesWritten += writeSection(chunk.getVariable(), 0, variableLength, output);
+      for (ArrowBuf buf : recordBatch.getBuffers()) {
+        bytesWritten += writeSection(buf, buf.readerIndex(), buf.readableBytes(), output);
+      }
+      stats.addCompression(
+          CHUNK_HEADER_LEN + headerBytes.length + fixedLength + variableLength + bodyLength,
+          bytesWritten,
+          codecNanos);
+      return bytesWritten;
+    }
+  }
+
+  // write a region of an arrow buf to the output stream, one block at a time.
+  private long writeSection(ArrowBuf buffer, long index, long length, SpillOutputStream output)
+      throws IOException {
+    long bytesWritten = 0;
+    for (long pos = 0; pos < length; pos += BLOCK_SIZE) {
+      final int blockLength = (int) Math.min(BLOCK_SIZE, length - pos);
+      bytesWritten += writeBlock(buffer, index + pos, blockLength, output);
+    }
+    return bytesWritten;
+  }
+
+  private int writeBlock(ArrowBuf buffer, long index, int length, SpillOutputStream output)
+      throws IOException {
+    final long startNanos = System.nanoTime();
+    final long compressedLength = codec.compress(buffer, index, length, staging, 0);
+    codecNanos += System.nanoTime() - startNanos;
+
+    final int storedLength;
+    if (compressedLength < length) {
+      storedLength = (int) compressedLength;
+      PlatformDependent.putInt(blockHeader, 4, storedLength);
+      staging.getBytes(0, ioBuffer, 0, storedLength);
+    } else {
+      storedLength = length;
+      PlatformDependent.putInt(blockHeader, 4, storedLength | RAW_BLOCK_FLAG);
+      buffer.getBytes(index, ioBuffer, 0, storedLength);
+    }
+    PlatformDependent.putInt(blockHeader, 0, length);
+    output.write(blockHeader);
+    output.write(ioBuffer, 0, storedLength);
+    return BLOCK_HEADER_LEN + storedLength;
+  }
+
+  @Override
+  public SpillChunk readChunkFromStream(
+      PageSupplier pageSupplier, BatchSchema unpivotedColumnsSchema, SpillInputStream input)
+      throws IOException {
+    try (AutoCloseables.RollbackCloseable rc = new AutoCloseables.RollbackCloseable(true)) {
+
+      /* read chunk header */
+      if (!readFully(input, ioBuffer, CHUNK_HEADER_LEN)) {
+        /* indicate detection of unexpected end of stream */
+        return null;
+      }
+
+      final int magic = PlatformDependent.getInt(ioBuffer, CHUNK_MAGIC_OFFSET);
+      Preconditions.checkState(magic == CHUNK_MAGIC);
+      final int codecType = PlatformDependent.getInt(ioBuffer, CODEC_OFFSET);
+      Preconditions.checkState(
+          codecType == codec.getCodecType().getType(),
+          "Spill chunk was written with codec %s, expected %s",
+          codecType,
+          codec.getCodecType());
+
+      final int numRecords = PlatformDependent.getInt(ioBuffer, NUM_RECORDS_LENGTH_OFFSET);
+      final int fixedBufferLength = PlatformDependent.getInt(ioBuffer, FIXED_BUFFER_LENGTH_OFFSET);
+      final int variableBufferLength =
+          PlatformDependent.getInt(ioBuffer, VARIABLE_BUFFER_LENGTH_OFFSET);
+      final int unpivotedBufferLength = PlatformDependent.getInt(ioBuffer, UNPIVOTED_LENGTH_OFFSET);
+      final int headerLength = PlatformDependent.getInt(ioBuffer, UNPIVOTED_HEADER_LENGTH_OFFSET);
+      final int bodyLength = PlatformDependent.getInt(ioBuffer, UNPIVOTED_BODY_LENGTH_OFFSET);
+
+      final byte[] headerBytes = new byte[headerLength];
+      if (!readFully(input, headerBytes, headerLength)) {
+        throw new EOFException("ERROR: Unexpected end of stream while reading chunk header");
+      }
+      final RecordBatch recordBatch =
+          RecordBatch.getRootAsRecordBatch(ByteBuffer.wrap(headerBytes));
+
+      Page pivotedPage =
+          rc.add(
+              pageSupplier.getPage(
+                  RoundUtil.round8up(fixedBufferLength)
+                      + RoundUtil.round8up(variableBufferLength)));
+      Page unpivotedPage = rc.add(pageSupplier.getPage(unpivotedBufferLength));
+
+      codecNanos = 0;
+      long bytesRead = CHUNK_HEADER_LEN + headerLength;
+
+      // read the fixed buffer
+      ArrowBuf fixed = rc.add(pivotedPage.sliceAligned(fixedBufferLength));
+      bytesRead += readSection(fixed, fixedBufferLength, input);
+
+      // read the variable buffer
+      ArrowBuf variable = rc.add(pivotedPage.sliceAligned(variableBufferLength));
+      bytesRead += readSection(variable, variableBufferLength, input);
+
+      // read the non-pivoted portion
+      VectorContainer container = rc.add(new VectorContainer(pageSupplier.getAllocator()));
+      container.addSchema(unpivotedColumnsSchema);
+      container.buildSchema();
+      container.zeroVectors();
+      try (ArrowBuf body = unpivotedPage.sliceAligned(bodyLength)) {
+        bytesRead += readSection(body, bodyLength, input);
+        ArrowRecordBatchLoader.load(recordBatch, container, body);
+      }
+      container.setAllCount(LargeMemoryUtil.checkedCastToInt(recordBatch.length()));
+
+      stats.addDecompression(
+          CHUNK_HEADER_LEN + headerLength + fixedBufferLength + variableBufferLength + bodyLength,
+          bytesRead,
+          codecNanos);
+      rc.commit();
+
+      return new SpillChunk(
+          numRecords, fixed, variable, container, ImmutableList.of(pivotedPage, unpivotedPage));
+    } catch (IOException | RuntimeException ex) {
+      logger.error("failed to read chunk", ex);
+      throw ex;
+    } catch (Exception ex) {
+      throw new RuntimeException(ex);
+    }
+  }
+
+  // read a section from the input stream, decompressing each block directly into the buffer.
+  private long readSection(final ArrowBuf buffer, final int length, final SpillInputStream input)
+      throws IOException {
+    long bytesRead = 0;
+    int pos = 0;
+    while (pos < length) {
+      if (!readFully(input, blockHeader, BLOCK_HEADER_LEN)) {
+        throw new EOFException("ERROR: Unexpected end of stream while reading chunk data");
+      }
+      final int blockLength = PlatformDependent.getInt(blockHeader, 0);
+      final int storedField = PlatformDependent.getInt(blockHeader, 4);
+      final boolean raw = (storedField & RAW_BLOCK_FLAG) != 0;
+      final int storedLength = storedField & ~RAW_BLOCK_FLAG;
+      Preconditions.checkState(
+          blockLength <= length - pos && storedLength <= ioBuffer.length,
+          "Corrupt spill block, length %s stored %s",
+          blockLength,
+          storedLength);
+
+      if (!readFully(input, ioBuffer, storedLength)) {
+        throw new EOFException("ERROR: Unexpected end of stream while reading chunk data");
+      }
+      if (raw) {
+        buffer.setBytes(pos, ioBuffer, 0, storedLength);
+      } else {
+        staging.setBytes(0, ioBuffer, 0, storedLength);
+        final long startNanos = System.nanoTime();
+        codec.decompress(staging, 0, storedLength, buffer, pos, blockLength);
+        codecNanos += System.nanoTime() - startNanos;
+      }
+      pos += blockLength;
+      bytesRead += BLOCK_HEADER_LEN + storedLength;
+    }
+    buffer.writerIndex(length);
+    return bytesRead;
+  }
+
+  // returns false if the stream ends before the first byte.
+  private static boolean readFully(SpillInputStream input, byte[] target, int length)
+      throws IOException {
+    int offset = 0;
+    while (offset < length) {
+      final int numBytesRead = input.read(target, offset, length - offset);
+      if (numBytesRead == -1) {
+        if (offset == 0) {
+          return false;
+        }
+        throw new EOFException("ERROR: Unexpected end of stream while reading chunk");
+      }
+      offset += numBytesRead;
+    }
+    return true;
+  }
+
+  private static ArrowRecordBatch getRecordBatch(VectorAccessible va) {
+    final List<ArrowFieldNode> nodes = new ArrayList<>();
+    final List<ArrowBuf> buffers = new ArrayList<>();
+    for (VectorWrapper<?> wrapper : va) {
+      appendNodes((FieldVector) wrapper.getValueVector(), nodes, buffers);
+    }
+    return new ArrowRecordBatch(
+        va.getRecordCount(), nodes, buffers, NoCompressionCodec.DEFAULT_BODY_COMPRESSION, false);
+  }
+
+  private static void appendNodes(
+      FieldVector vector, List<ArrowFieldNode> nodes, List<ArrowBuf> buffers) {
+    nodes.add(new ArrowFieldNode(vector.getValueCount(), -1));
+    buffers.addAll(vector.getFieldBuffers());
+    for (FieldVector child : vector.getChildrenFromFields()) {
+      appendNodes(child, nodes, buffers);
+    }
+  }
+
+  @Override
+  public void close() {
+    staging.close();
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.join.vhash.spill.io;
+
+/**
+ * Compression of hash join spill files, see {@link
+ * com.dremio.sabot.op.join.hash.HashJoinOperator#SPILL_COMPRESSION}.
+ */
+public enum SpillCompression {
+  /** Chunks are written as is. */
+  NONE,
+  /** Chunks are written through an LZ4 block stream on the heap. */
+  STREAM,
+  /** Chunks are compressed off-heap in blocks with LZ4, see {@link CompressedSpillSerializable}. */
+  LZ4,
+  /**
+   * Chunks are compressed off-heap in blocks with ZSTD, see {@link CompressedSpillSerializable}.
+   */
+  ZSTD
+}
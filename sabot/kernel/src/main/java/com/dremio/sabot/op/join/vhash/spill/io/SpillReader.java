@@ -72,7 +72,7 @@ public class SpillReader implements CloseableIterator<SpillChunk> {
   private void prefetch() {
     try {
       if (inputStream == null) {
-        inputStream = spillFile.open(true);
+        inputStream = spillFile.open(serializable.isStreamCompressed());
       }
       prefetchedChunk =
           serializable.readChunkFromStream(pageSupplier, unpivotedColumnsSchema, inputStream);
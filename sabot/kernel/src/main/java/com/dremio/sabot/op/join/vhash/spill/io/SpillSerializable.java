@@ -50,6 +50,14 @@ public interface SpillSerializable {
       PageSupplier pageSupplier, BatchSchema unpivotedColumnsSchema, SpillInputStream input)
       throws IOException;
 
+  /**
+   * Whether the spill file should be wrapped in a compressing stream. Implementations that compress
+   * the chunks themselves return false to avoid compressing the data twice.
+   */
+  default boolean isStreamCompressed() {
+    return true;
+  }
+
   static int computeUnpivotedSizeRounded(VectorAccessible va) {
     int total = 0;
     for (VectorWrapper<?> wrapper : va) {
@@ -57,6 +57,20 @@ public class SpillSerializableImpl implements SpillSerializable {
   private final ByteBuffer intBuffer =
       ByteBuffer.allocate(Integer.SIZE / Byte.SIZE); // byte array of 4 bytes
   private final byte[] ioBuffer = new byte[IO_CHUNK_SIZE];
+  private final boolean streamCompressed;
+
+  public SpillSerializableImpl() {
+    this(true);
+  }
+
+  public SpillSerializableImpl(boolean streamCompressed) {
+    this.streamCompressed = streamCompressed;
+  }
+
+  @Override
+  public boolean isStreamCompressed() {
+    return streamCompressed;
+  }
 
   @Override
   public long writeChunkToStream(SpillChunk chunk, SpillOutputStream output) throws IOException {
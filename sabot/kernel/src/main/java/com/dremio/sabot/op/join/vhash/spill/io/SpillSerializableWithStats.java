@@ -33,6 +33,11 @@ public class SpillSerializableWithStats implements SpillSerializable {
     this.isBuild = isBuild;
   }
 
+  @Override
+  public boolean isStreamCompressed() {
+    return inner.isStreamCompressed();
+  }
+
   @Override
   public long writeChunkToStream(SpillChunk chunk, SpillManager.SpillOutputStream output)
       throws IOException {
@@ -84,7 +84,7 @@ public class SpillWriter implements AutoCloseable {
     if (outputStream == null) {
       spillFile = spillManager.getSpillFile(fileName);
       spillFileDescriptor = new SpillFileDescriptor(spillFile);
-      outputStream = spillFile.create(true);
+      outputStream = spillFile.create(serializable.isStreamCompressed());
     }
 
     int recordsDone = 0;
@@ -106,7 +106,7 @@ public class BuildMemoryReleaser implements MemoryReleaser {
 
   private int writeOneChunk() throws Exception {
     if (outputStream == null) {
-      outputStream = spillFile.getFile().create(true);
+      outputStream = spillFile.getFile().create(serializable.isStreamCompressed());
     }
     if (isFinished()) {
       return 0;
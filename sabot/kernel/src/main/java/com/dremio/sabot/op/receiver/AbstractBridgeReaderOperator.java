@@ -22,6 +22,7 @@ import com.dremio.exec.record.ArrowRecordBatchLoader;
 import com.dremio.exec.record.BatchSchema;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
+import com.dremio.exec.record.compression.CompressionStats;
 import com.dremio.sabot.exec.context.OperatorContext;
 import com.dremio.sabot.exec.context.OperatorStats;
 import com.dremio.sabot.op.spi.BatchStreamProvider;
@@ -121,8 +122,11 @@ abstract class AbstractBridgeReaderOperator implements ProducerOperator {
 
   abstract void updateMetrics(long bytesRead);
 
+  abstract void updateCompressionMetrics(CompressionStats compressionStats);
+
   @Override
   public void close() throws Exception {
+    updateCompressionMetrics(batchProvider.getCompressionStats());
     AutoCloseables.close((AutoCloseable) batchLoader, batchProvider, outgoing);
   }
 }
@@ -18,6 +18,7 @@ package com.dremio.sabot.op.receiver;
 import com.dremio.common.exceptions.ExecutionSetupException;
 import com.dremio.exec.physical.config.BridgeFileReader;
 import com.dremio.exec.record.BatchSchema;
+import com.dremio.exec.record.compression.CompressionStats;
 import com.dremio.sabot.exec.context.MetricDef;
 import com.dremio.sabot.exec.context.OperatorContext;
 import com.dremio.sabot.op.spi.BatchStreamProvider;
@@ -26,7 +27,10 @@ import com.dremio.sabot.op.spi.ProducerOperator;
 /** Impl for sender operator that reads from a file, instead of a socket. */
 public class BridgeFileReaderOperator extends AbstractBridgeReaderOperator {
   public enum Metric implements MetricDef {
-    BYTES_READ;
+    BYTES_READ,
+    COMPRESSED_BYTES_READ,
+    UNCOMPRESSED_BYTES_READ,
+    DECOMPRESSION_NANOS;
 
     @Override
     public int metricId() {
@@ -47,6 +51,12 @@ public class BridgeFileReaderOperator extends AbstractBridgeReaderOperator {
     getStats().addLongStat(Metric.BYTES_READ, bytesRead);
   }
 
+  void updateCompressionMetrics(CompressionStats compressionStats) {
+    getStats().setLongStat(Metric.COMPRESSED_BYTES_READ, compressionStats.getCompressedBytes());
+    getStats().setLongStat(Metric.UNCOMPRESSED_BYTES_READ, compressionStats.getUncompressedBytes());
+    getStats().setLongStat(Metric.DECOMPRESSION_NANOS, compressionStats.getCodecNanos());
+  }
+
   public static class Creator implements ReceiverCreator<BridgeFileReader> {
     @Override
     public ProducerOperator create(
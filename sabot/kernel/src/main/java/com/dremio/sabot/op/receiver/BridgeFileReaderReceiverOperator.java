@@ -18,6 +18,7 @@ package com.dremio.sabot.op.receiver;
 import com.dremio.common.exceptions.ExecutionSetupException;
 import com.dremio.exec.physical.config.BridgeFileReaderReceiver;
 import com.dremio.exec.record.BatchSchema;
+import com.dremio.exec.record.compression.CompressionStats;
 import com.dremio.sabot.exec.context.MetricDef;
 import com.dremio.sabot.exec.context.OperatorContext;
 import com.dremio.sabot.op.spi.BatchStreamProvider;
@@ -26,7 +27,10 @@ import com.dremio.sabot.op.spi.ProducerOperator;
 /** Impl for sender operator that reads from a file, instead of a socket. */
 public class BridgeFileReaderReceiverOperator extends AbstractBridgeReaderOperator {
   public enum Metric implements MetricDef {
-    BYTES_RECEIVED;
+    BYTES_RECEIVED,
+    COMPRESSED_BYTES_READ,
+    UNCOMPRESSED_BYTES_READ,
+    DECOMPRESSION_NANOS;
 
     @Override
     public int metricId() {
@@ -47,6 +51,12 @@ public class BridgeFileReaderReceiverOperator extends AbstractBridgeReaderOperat
     getStats().addLongStat(Metric.BYTES_RECEIVED, bytesRead);
   }
 
+  void updateCompressionMetrics(CompressionStats compressionStats) {
+    getStats().setLongStat(Metric.COMPRESSED_BYTES_READ, compressionStats.getCompressedBytes());
+    getStats().setLongStat(Metric.UNCOMPRESSED_BYTES_READ, compressionStats.getUncompressedBytes());
+    getStats().setLongStat(Metric.DECOMPRESSION_NANOS, compressionStats.getCodecNanos());
+  }
+
   public static class Creator implements ReceiverCreator<BridgeFileReaderReceiver> {
     @Override
     public ProducerOperator create(
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.receiver;
+
+import com.dremio.exec.record.compression.CompressionStats;
+import com.dremio.exec.record.compression.ExchangeDecompressor;
+import org.apache.arrow.memory.BufferAllocator;
+
+/**
+ * Decodes batches whose body was compressed by the sender before handing them to the receiving
+ * operator. Batches that were sent uncompressed are returned as is.
+ */
+class DecompressingBatchProvider implements RawFragmentBatchProvider {
+  private final RawFragmentBatchProvider delegate;
+  private final ExchangeDecompressor decompressor;
+
+  DecompressingBatchProvider(RawFragmentBatchProvider delegate, BufferAllocator allocator) {
+    this.delegate = delegate;
+    this.decompressor = new ExchangeDecompressor(allocator);
+  }
+
+  @Override
+  public RawFragmentBatch getNext() {
+    return decompressor.decompress(delegate.getNext());
+  }
+
+  @Override
+  public boolean isStreamDone() {
+    return delegate.isStreamDone();
+  }
+
+  @Override
+  public CompressionStats getCompressionStats() {
+    return decompressor.getStats();
+  }
+
+  @Override
+  public void close() throws Exception {
+    delegate.close();
+  }
+}
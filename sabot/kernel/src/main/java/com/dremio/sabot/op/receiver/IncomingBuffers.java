@@ -236,13 +236,21 @@ public class IncomingBuffers implements BatchStreamProvider, AutoCloseable {
               "Invalid major fragment id %s. Expected a value in %s",
               senderMajorFragmentId, collectorMap.values().toString()));
     }
-    return collector.getBuffers();
+    // the collector owns the underlying buffers, the wrappers only decode what they hand out
+    final RawBatchBuffer[] buffers = collector.getBuffers();
+    final RawFragmentBatchProvider[] providers = new RawFragmentBatchProvider[buffers.length];
+    for (int i = 0; i < buffers.length; i++) {
+      providers[i] = new DecompressingBatchProvider(buffers[i], allocator);
+    }
+    return providers;
   }
 
   @Override
   public RawFragmentBatchProvider getBuffersFromFiles(String uniqueId, int readerMajorFragId) {
-    return new BatchBufferFromFilesProvider(
-        uniqueId, readerMajorFragId, resourceGroup, allocator, fileCursorManagerFactory);
+    return new DecompressingBatchProvider(
+        new BatchBufferFromFilesProvider(
+            uniqueId, readerMajorFragId, resourceGroup, allocator, fileCursorManagerFactory),
+        allocator);
   }
 
   @Override
@@ -15,9 +15,16 @@
  */
 package com.dremio.sabot.op.receiver;
 
+import com.dremio.exec.record.compression.CompressionStats;
+
 public interface RawFragmentBatchProvider extends AutoCloseable {
 
   public RawFragmentBatch getNext();
 
   public boolean isStreamDone();
+
+  /** Statistics about the compressed batches decoded by this provider. */
+  default CompressionStats getCompressionStats() {
+    return new CompressionStats();
+  }
 }
@@ -34,6 +34,7 @@ import com.dremio.exec.record.ExpandableHyperContainer;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.record.VectorWrapper;
+import com.dremio.exec.record.compression.CompressionStats;
 import com.dremio.exec.util.Utilities;
 import com.dremio.exec.vector.CopyUtil;
 import com.dremio.sabot.exec.context.MetricDef;
@@ -42,6 +43,7 @@ import com.dremio.sabot.exec.context.OperatorStats;
 import com.dremio.sabot.op.receiver.RawFragmentBatch;
 import com.dremio.sabot.op.receiver.RawFragmentBatchProvider;
 import com.dremio.sabot.op.receiver.ReceiverLatencyTracker;
+import com.dremio.sabot.op.sort.external.LoserTree;
 import com.dremio.sabot.op.spi.BatchStreamProvider;
 import com.dremio.sabot.op.spi.ProducerOperator;
 import com.sun.codemodel.JConditional;
@@ -52,7 +54,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
-import java.util.PriorityQueue;
 import org.apache.arrow.memory.OutOfMemoryException;
 import org.apache.arrow.vector.AllocationHelper;
 import org.apache.arrow.vector.FixedWidthVector;
@@ -80,7 +81,9 @@ public class MergingReceiverOperator implements ProducerOperator {
 
   private State state = State.NEEDS_SETUP;
   private OutputState outputState = OutputState.INIT_ON_NEXT;
-  private PriorityQueue<Node> pqueue;
+  private LoserTree tree;
+  // run whose next record has to be fetched before the tree can be updated
+  private int pendingRun = LoserTree.NONE;
   private Merger merger;
 
   private int outgoingPosition = 0;
@@ -93,7 +96,10 @@ public class MergingReceiverOperator implements ProducerOperator {
     SUM_TX_MILLIS,
     MAX_TX_MILLIS,
     SUM_QUEUE_MILLIS,
-    MAX_QUEUE_MILLIS;
+    MAX_QUEUE_MILLIS,
+    COMPRESSED_BYTES_RECEIVED,
+    UNCOMPRESSED_BYTES_RECEIVED,
+    DECOMPRESSION_NANOS;
 
     @Override
     public int metricId() {
@@ -140,15 +146,12 @@ public class MergingReceiverOperator implements ProducerOperator {
   public VectorAccessible setup() throws Exception {
     state.is(State.NEEDS_SETUP);
     this.merger = createMerger();
-
-    // allocate the priority queue with the generated comparator
-    this.pqueue = new PriorityQueue<>(nodes.length);
     state = State.CAN_PRODUCE;
     return outgoingContainer;
   }
 
   private boolean ensureReady() {
-    // populate the priority queue with initial values
+    // fetch the first batch of every stream, or the next batch of a stream we were waiting on
     for (Node node : nodes) {
       if (node.isReady()) {
         continue;
@@ -159,9 +162,30 @@ public class MergingReceiverOperator implements ProducerOperator {
       }
     }
 
+    if (tree == null) {
+      tree = new MergeTree(nodes.length);
+      for (Node node : nodes) {
+        if (node.done) {
+          tree.markExhausted(node.batchId);
+        }
+      }
+      tree.build();
+    } else if (pendingRun != LoserTree.NONE) {
+      advanceTree(nodes[pendingRun]);
+      pendingRun = LoserTree.NONE;
+    }
     return true;
   }
 
+  /** Replace the head of the winning run after its node moved to its next record. */
+  private void advanceTree(Node node) {
+    if (node.done) {
+      tree.remove();
+    } else {
+      tree.update();
+    }
+  }
+
   @Override
   public int outputData() throws Exception {
     // use getState here so we can transition out of blocked.
@@ -185,23 +209,34 @@ public class MergingReceiverOperator implements ProducerOperator {
      * incoming streams is waiting for a downstream message). - when our outgoing batch is full -
      * when there are no more records.
      */
-    while (!pqueue.isEmpty()) {
-      // pop next value from pq and copy to outgoing batch
-      final Node node = pqueue.poll();
+    while (!tree.isEmpty()) {
+      // copy the records of the winning stream that sort before any other stream's head
+      final Node node = nodes[tree.getWinner()];
+      final int lastIndex = node.lastIndexBefore(tree.getChallenger(), maxRecords);
       node.copyRecordToOutgoingBatch();
+      while (node.valueIndex < lastIndex) {
+        node.valueIndex++;
+        node.copyRecordToOutgoingBatch();
+      }
 
       if (outgoingPosition == maxRecords) {
         logger.debug("Outgoing vectors space is full; breaking");
         outputState = OutputState.INIT_ON_NEXT;
 
-        node.nextPosition();
+        if (node.nextPosition()) {
+          advanceTree(node);
+        } else {
+          pendingRun = node.batchId;
+        }
         return outgoingContainer.setAllCount(outgoingPosition);
       }
 
       if (!node.nextPosition()) {
+        pendingRun = node.batchId;
         state = State.BLOCKED;
         return 0;
       }
+      advanceTree(node);
     }
 
     // set the value counts in the outgoing vectors
@@ -210,7 +245,7 @@ public class MergingReceiverOperator implements ProducerOperator {
     }
     outgoingContainer.setRecordCount(outgoingPosition);
 
-    if (pqueue.isEmpty()) {
+    if (tree.isEmpty()) {
       state = State.DONE;
     }
 
@@ -347,11 +382,24 @@ public class MergingReceiverOperator implements ProducerOperator {
     g.getEvalBlock()._return(JExpr.lit(0));
   }
 
+  /** Merges the streams, each stream is a run of the tree. */
+  private class MergeTree extends LoserTree {
+
+    MergeTree(int runCount) {
+      super(runCount);
+    }
+
+    @Override
+    protected int compareRuns(int leftRun, int rightRun) {
+      return merger.doEval(nodes[leftRun].getIndex(), nodes[rightRun].getIndex());
+    }
+  }
+
   /**
-   * A SabotNode contains a reference to a single value in a specific incoming batch. It is used as
-   * a wrapper for the priority queue.
+   * A SabotNode contains a reference to a single value in a specific incoming batch. It is a run of
+   * the merge tree.
    */
-  private class Node implements Comparable<Node>, AutoCloseable {
+  private class Node implements AutoCloseable {
     private final int batchId; // incoming batch
     private final ArrowRecordBatchLoader loader;
     private final RawFragmentBatchProvider provider;
@@ -376,10 +424,10 @@ public class MergingReceiverOperator implements ProducerOperator {
     }
 
     /**
-     * Attempt to get next value and then readd yourself to the priority queue.
+     * Attempt to get next value.
      *
-     * @return True if we were able to move forward (whether added to queue or not). False if we are
-     *     blocked on an incoming message.
+     * @return True if we were able to move forward (whether to a new value or to the end of the
+     *     stream). False if we are blocked on an incoming message.
      */
     private boolean nextPosition() {
       if (currentBatch == null || valueIndex == loader.getRecordCount() - 1) {
@@ -403,17 +451,14 @@ public class MergingReceiverOperator implements ProducerOperator {
           valueIndex = 0;
         }
 
-        // we received actual data, let's set things up and add to priority queue.
+        // we received actual data, let's set things up.
         stats.batchReceived(0, loader.getRecordCount(), size);
         inputCounts += loader.getRecordCount();
         valueIndex = 0;
-
-        pqueue.add(this);
         return true;
 
       } else {
         valueIndex++;
-        pqueue.add(this);
         return true;
       }
     }
@@ -422,11 +467,47 @@ public class MergingReceiverOperator implements ProducerOperator {
       return done || currentBatch != null;
     }
 
-    @Override
-    public int compareTo(final Node node2) {
-      final int leftIndex = (this.batchId << 16) + this.valueIndex;
-      final int rightIndex = (node2.batchId << 16) + node2.valueIndex;
-      return merger.doEval(leftIndex, rightIndex);
+    private int getIndex() {
+      return (batchId << 16) + valueIndex;
+    }
+
+    /**
+     * Last index of the current batch that can be copied in a row, without going past the head of
+     * the challenger stream or the space left in the outgoing batch. Rows are sorted within a
+     * batch, so the range is found by galloping from the current value.
+     *
+     * @param challenger the run that would win if this one was removed, see {@link
+     *     LoserTree#getChallenger()}
+     */
+    private int lastIndexBefore(int challenger, int maxRecords) {
+      final int limit =
+          Math.min(loader.getRecordCount() - 1, valueIndex + maxRecords - outgoingPosition - 1);
+      if (challenger == LoserTree.UNKNOWN || limit <= valueIndex) {
+        return valueIndex;
+      }
+      if (challenger == LoserTree.NONE) {
+        return limit;
+      }
+
+      final int challengerIndex = nodes[challenger].getIndex();
+      // lo is known to sort before the challenger, hi is past the last such value
+      int lo = valueIndex;
+      int step = 1;
+      while (lo + step <= limit
+          && merger.doEval((batchId << 16) + lo + step, challengerIndex) <= 0) {
+        lo += step;
+        step <<= 1;
+      }
+      int hi = Math.min(lo + step, limit + 1);
+      while (hi - lo > 1) {
+        final int mid = (lo + hi) >>> 1;
+        if (merger.doEval((batchId << 16) + mid, challengerIndex) <= 0) {
+          lo = mid;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo;
     }
 
     private void copyRecordToOutgoingBatch() {
@@ -463,6 +544,18 @@ public class MergingReceiverOperator implements ProducerOperator {
 
   @Override
   public void close() throws Exception {
+    if (nodes != null) {
+      final CompressionStats compressionStats = new CompressionStats();
+      for (Node node : nodes) {
+        if (node != null) {
+          compressionStats.merge(node.provider.getCompressionStats());
+        }
+      }
+      stats.setLongStat(Metric.COMPRESSED_BYTES_RECEIVED, compressionStats.getCompressedBytes());
+      stats.setLongStat(
+          Metric.UNCOMPRESSED_BYTES_RECEIVED, compressionStats.getUncompressedBytes());
+      stats.setLongStat(Metric.DECOMPRESSION_NANOS, compressionStats.getCodecNanos());
+    }
     List<AutoCloseable> closeables = new ArrayList<>();
     closeables.add(outgoingContainer);
     closeables.addAll(Arrays.asList(nodes));
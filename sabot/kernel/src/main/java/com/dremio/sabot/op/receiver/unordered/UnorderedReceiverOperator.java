@@ -21,6 +21,7 @@ import com.dremio.exec.physical.config.UnorderedReceiver;
 import com.dremio.exec.record.ArrowRecordBatchLoader;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
+import com.dremio.exec.record.compression.CompressionStats;
 import com.dremio.sabot.exec.context.MetricDef;
 import com.dremio.sabot.exec.context.OperatorContext;
 import com.dremio.sabot.exec.context.OperatorStats;
@@ -52,7 +53,10 @@ public class UnorderedReceiverOperator implements ProducerOperator {
     SUM_TX_MILLIS,
     MAX_TX_MILLIS,
     SUM_QUEUE_MILLIS,
-    MAX_QUEUE_MILLIS;
+    MAX_QUEUE_MILLIS,
+    COMPRESSED_BYTES_RECEIVED,
+    UNCOMPRESSED_BYTES_RECEIVED,
+    DECOMPRESSION_NANOS;
 
     @Override
     public int metricId() {
@@ -143,6 +147,13 @@ public class UnorderedReceiverOperator implements ProducerOperator {
     stats.setLongStat(Metric.MAX_TX_MILLIS, latencyTracker.getMaxTxMillis());
     stats.setLongStat(Metric.SUM_QUEUE_MILLIS, latencyTracker.getSumQueueMillis());
     stats.setLongStat(Metric.MAX_QUEUE_MILLIS, latencyTracker.getMaxQueueMillis());
+    if (fragProvider != null) {
+      final CompressionStats compressionStats = fragProvider.getCompressionStats();
+      stats.setLongStat(Metric.COMPRESSED_BYTES_RECEIVED, compressionStats.getCompressedBytes());
+      stats.setLongStat(
+          Metric.UNCOMPRESSED_BYTES_RECEIVED, compressionStats.getUncompressedBytes());
+      stats.setLongStat(Metric.DECOMPRESSION_NANOS, compressionStats.getCodecNanos());
+    }
     AutoCloseables.close((AutoCloseable) batchLoader, outgoing);
   }
 
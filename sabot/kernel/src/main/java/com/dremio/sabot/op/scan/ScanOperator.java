@@ -223,6 +223,14 @@ public class ScanOperator implements ProducerOperator {
     NUM_ORPHAN_FILES, // Number of orphan files
     NUM_READERS_SKIPPED, // The number of readers skipped due to errors (COPY INTO 'skip_file')
     DRY_RUN_READ_TIME_NS, // The read time of the dry-run phase (COPY INTO 'skip_file')
+    NUM_FOOTER_CACHE_HITS, // Number of parquet footers served by the executor footer cache
+    NUM_FOOTER_CACHE_MISSES, // Number of parquet footers read from the storage
+    NUM_RUNTIME_FILTERED_ROWS, // Number of rows removed by partition column runtime filters
+    NUM_ROW_GROUPS_PRUNED_BY_RUNTIME_FILTER, // Number of row groups skipped by range filters
+    NUM_VECTORED_READ_REQUESTS, // Number of ranged reads issued for coalesced column chunks
+    VECTORED_READ_BYTES, // Bytes fetched by coalesced column chunk reads, gaps included
+    VECTORED_READ_USEFUL_BYTES, // Bytes of column chunks served by coalesced reads
+    VECTORED_READ_WAIT_TIME_NS, // Time spent waiting for coalesced column chunk reads
     ;
 
     private final DisplayType displayType;
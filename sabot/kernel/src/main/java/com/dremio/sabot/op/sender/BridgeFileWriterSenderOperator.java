@@ -23,6 +23,8 @@ import com.dremio.exec.proto.ExecProtos;
 import com.dremio.exec.proto.ExecRPC;
 import com.dremio.exec.record.FragmentWritableBatch;
 import com.dremio.exec.record.VectorAccessible;
+import com.dremio.exec.record.compression.CompressionStats;
+import com.dremio.exec.record.compression.ExchangeCompressor;
 import com.dremio.options.OptionManager;
 import com.dremio.options.Options;
 import com.dremio.options.TypeValidators.PositiveLongValidator;
@@ -38,7 +40,6 @@ import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.arrow.memory.ArrowBuf;
 import org.apache.arrow.memory.BufferAllocator;
-import org.apache.arrow.vector.compression.NoCompressionCodec;
 import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +60,7 @@ public class BridgeFileWriterSenderOperator extends BaseSender {
   private final OptionManager options;
   private final SpillService spillService;
   private final SabotConfig sabotConfig;
+  private final ExchangeCompressor compressor;
 
   private State state = State.NEEDS_SETUP;
   private SpillManager spillManager;
@@ -66,7 +68,10 @@ public class BridgeFileWriterSenderOperator extends BaseSender {
   private VectorAccessible incoming;
 
   public enum Metric implements MetricDef {
-    BYTES_SENT;
+    BYTES_SENT,
+    UNCOMPRESSED_BYTES_SENT,
+    COMPRESSED_BYTES_SENT,
+    COMPRESSION_NANOS;
 
     @Override
     public int metricId() {
@@ -88,6 +93,7 @@ public class BridgeFileWriterSenderOperator extends BaseSender {
     this.options = context.getOptions();
     this.spillService = context.getSpillService();
     this.sabotConfig = context.getConfig();
+    this.compressor = ExchangeCompressor.create(allocator, options);
 
     logger.debug("uniqueId {}", uniqueId);
   }
@@ -137,6 +143,9 @@ public class BridgeFileWriterSenderOperator extends BaseSender {
                 })
             .collect(Collectors.toList());
 
+    final ExchangeCompressor.CompressedBody body = compressor.compress(buffers);
+    buffers = body.getBuffers();
+
     FragmentWritableBatch batch =
         new FragmentWritableBatch(
             handle.getQueryId(),
@@ -147,7 +156,7 @@ public class BridgeFileWriterSenderOperator extends BaseSender {
                 arrowRecordBatch.getLength(),
                 arrowRecordBatch.getNodes(),
                 buffers,
-                NoCompressionCodec.DEFAULT_BODY_COMPRESSION,
+                body.getBodyCompression(),
                 false));
 
     // write batch to the file tunnel.
@@ -200,7 +209,11 @@ public class BridgeFileWriterSenderOperator extends BaseSender {
 
   @Override
   public void close() throws Exception {
-    AutoCloseables.close(tunnel);
+    final CompressionStats compressionStats = compressor.getStats();
+    stats.setLongStat(Metric.UNCOMPRESSED_BYTES_SENT, compressionStats.getUncompressedBytes());
+    stats.setLongStat(Metric.COMPRESSED_BYTES_SENT, compressionStats.getCompressedBytes());
+    stats.setLongStat(Metric.COMPRESSION_NANOS, compressionStats.getCodecNanos());
+    AutoCloseables.close(tunnel, compressor);
   }
 
   public static class Creator implements TerminalOperator.Creator<BridgeFileWriterSender> {
@@ -24,6 +24,8 @@ import com.dremio.exec.proto.ExecProtos.FragmentHandle;
 import com.dremio.exec.proto.ExecRPC.FragmentStreamComplete;
 import com.dremio.exec.record.FragmentWritableBatch;
 import com.dremio.exec.record.VectorAccessible;
+import com.dremio.exec.record.compression.CompressionStats;
+import com.dremio.exec.record.compression.ExchangeCompressor;
 import com.dremio.sabot.exec.context.MetricDef;
 import com.dremio.sabot.exec.context.OperatorContext;
 import com.dremio.sabot.exec.context.OperatorStats;
@@ -40,7 +42,6 @@ import java.util.List;
 import javax.annotation.Nullable;
 import org.apache.arrow.memory.ArrowBuf;
 import org.apache.arrow.memory.OutOfMemoryException;
-import org.apache.arrow.vector.compression.NoCompressionCodec;
 import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
 
 /**
@@ -61,6 +62,7 @@ public class BroadcastOperator extends BaseSender {
   private final OperatorStats stats;
   private final OperatorContext context;
   private final SenderLatencyTracker latencyTracker = new SenderLatencyTracker();
+  private final ExchangeCompressor compressor;
 
   private VectorAccessible incoming;
 
@@ -69,7 +71,10 @@ public class BroadcastOperator extends BaseSender {
     BYTES_SENT,
     BATCHES_SENT,
     SUM_ACK_MILLIS,
-    MAX_ACK_MILLIS;
+    MAX_ACK_MILLIS,
+    UNCOMPRESSED_BYTES_SENT,
+    COMPRESSED_BYTES_SENT,
+    COMPRESSION_NANOS;
 
     @Override
     public int metricId() {
@@ -85,6 +90,7 @@ public class BroadcastOperator extends BaseSender {
     this.context = context;
     this.handle = context.getFragmentHandle();
     this.stats = context.getStats();
+    this.compressor = ExchangeCompressor.create(context.getAllocator(), context.getOptions());
 
     final List<MinorFragmentEndpoint> destinations =
         config.getDestinations(context.getEndpointsIndex());
@@ -130,6 +136,11 @@ public class BroadcastOperator extends BaseSender {
   public void close() throws Exception {
     stats.setLongStat(Metric.SUM_ACK_MILLIS, latencyTracker.getSumAckMillis());
     stats.setLongStat(Metric.MAX_ACK_MILLIS, latencyTracker.getMaxAckMillis());
+    final CompressionStats compressionStats = compressor.getStats();
+    stats.setLongStat(Metric.UNCOMPRESSED_BYTES_SENT, compressionStats.getUncompressedBytes());
+    stats.setLongStat(Metric.COMPRESSED_BYTES_SENT, compressionStats.getCompressedBytes());
+    stats.setLongStat(Metric.COMPRESSION_NANOS, compressionStats.getCodecNanos());
+    compressor.close();
   }
 
   @Override
@@ -188,6 +199,9 @@ public class BroadcastOperator extends BaseSender {
                 })
             .toList();
 
+    final ExchangeCompressor.CompressedBody body = compressor.compress(buffers);
+    buffers = body.getBuffers();
+
     if (tunnels.length > 1) {
       for (ArrowBuf buf : buffers) {
         buf.getReferenceManager().retain(tunnels.length - 1);
@@ -205,7 +219,7 @@ public class BroadcastOperator extends BaseSender {
                   arrowRecordBatch.getLength(),
                   arrowRecordBatch.getNodes(),
                   buffers,
-                  NoCompressionCodec.DEFAULT_BODY_COMPRESSION,
+                  body.getBodyCompression(),
                   false),
               receivingMinorFragments[i]);
       updateStats(batch);
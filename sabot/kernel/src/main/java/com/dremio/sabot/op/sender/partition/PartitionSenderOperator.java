@@ -106,7 +106,12 @@ public class PartitionSenderOperator extends BaseSender {
     OOB_PARTITION_COUNTERS_RECEIVES, // Number of times operator received a notification of
     // partition counters from peers.
 
-    OOB_DOP; // Adjusted DOP based on oob messages
+    OOB_DOP, // Adjusted DOP based on oob messages
+
+    // exchange compression related metrics
+    UNCOMPRESSED_BYTES_SENT,
+    COMPRESSED_BYTES_SENT,
+    COMPRESSION_NANOS;
 
     @Override
     public int metricId() {
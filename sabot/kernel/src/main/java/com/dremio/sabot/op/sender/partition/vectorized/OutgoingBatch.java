@@ -22,6 +22,7 @@ import com.dremio.exec.record.FragmentWritableBatch;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.record.VectorWrapper;
+import com.dremio.exec.record.compression.ExchangeCompressor;
 import com.dremio.sabot.exec.context.OperatorContext;
 import com.dremio.sabot.exec.context.OperatorStats;
 import com.dremio.sabot.exec.rpc.AccountingExecTunnel;
@@ -65,6 +66,7 @@ public class OutgoingBatch extends VectorContainer {
   private volatile boolean dropAll;
 
   private final SenderLatencyTracker senderLatencyTracker;
+  private final ExchangeCompressor compressor;
 
   OutgoingBatch(
       int batchIdx,
@@ -77,7 +79,8 @@ public class OutgoingBatch extends VectorContainer {
       OperatorContext context,
       int oppositeMinorFragmentId,
       OperatorStats stats,
-      SenderLatencyTracker senderLatencyTracker) {
+      SenderLatencyTracker senderLatencyTracker,
+      ExchangeCompressor compressor) {
     Preconditions.checkArgument(
         maxRecords <= Character.MAX_VALUE, "maxRecords cannot exceed " + Character.MAX_VALUE);
     this.batchIdx = batchIdx;
@@ -91,6 +94,7 @@ public class OutgoingBatch extends VectorContainer {
 
     this.stats = stats;
     this.senderLatencyTracker = senderLatencyTracker;
+    this.compressor = compressor;
 
     for (VectorWrapper<?> v : incoming) {
       ValueVector outgoingVector = TypeHelper.getNewVector(v.getField(), allocator);
@@ -192,6 +196,7 @@ public class OutgoingBatch extends VectorContainer {
             handle.getMinorFragmentId(),
             config.getReceiverMajorFragmentId(),
             this,
+            compressor,
             oppositeMinorFragmentId);
 
     updateStats(writableBatch);
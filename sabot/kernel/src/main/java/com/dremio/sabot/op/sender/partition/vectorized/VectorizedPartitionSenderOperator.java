@@ -30,6 +30,8 @@ import com.dremio.exec.record.BatchSchema;
 import com.dremio.exec.record.TypedFieldId;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
+import com.dremio.exec.record.compression.CompressionStats;
+import com.dremio.exec.record.compression.ExchangeCompressor;
 import com.dremio.options.Options;
 import com.dremio.options.TypeValidators;
 import com.dremio.sabot.exec.context.OperatorContext;
@@ -89,6 +91,7 @@ public class VectorizedPartitionSenderOperator extends BaseSender {
   private final Stopwatch preCopyWatch = Stopwatch.createUnstarted();
   private final Stopwatch flushWatch = Stopwatch.createUnstarted();
   private final SenderLatencyTracker latencyTracker = new SenderLatencyTracker();
+  private final ExchangeCompressor compressor;
 
   /**
    * number of records before we flush any outgoing batch.<br>
@@ -143,6 +146,7 @@ public class VectorizedPartitionSenderOperator extends BaseSender {
     this.tunnelProvider = tunnelProvider;
     this.stats = context.getStats();
     this.numReceivers = config.getDestinations().size();
+    this.compressor = ExchangeCompressor.create(context.getAllocator(), context.getOptions());
 
     remainingReceivers = new AtomicIntegerArray(numReceivers);
     remaingReceiverCount = new AtomicInteger(numReceivers);
@@ -239,7 +243,8 @@ public class VectorizedPartitionSenderOperator extends BaseSender {
               context,
               destination.getMinorFragmentId(),
               stats,
-              latencyTracker);
+              latencyTracker,
+              compressor);
       batches[batchB] =
           new OutgoingBatch(
               batchB,
@@ -252,7 +257,8 @@ public class VectorizedPartitionSenderOperator extends BaseSender {
               context,
               destination.getMinorFragmentId(),
               stats,
-              latencyTracker);
+              latencyTracker,
+              compressor);
 
       if (!delayAllocSendBatches) {
         // Only allocate the primary batch. Backup batch is allocated when it is needed.
@@ -437,7 +443,12 @@ public class VectorizedPartitionSenderOperator extends BaseSender {
   public void close() throws Exception {
     stats.setLongStat(Metric.SUM_ACK_MILLIS, latencyTracker.getSumAckMillis());
     stats.setLongStat(Metric.MAX_ACK_MILLIS, latencyTracker.getMaxAckMillis());
-    AutoCloseables.close(Arrays.asList(batches), Arrays.asList(copyIndices, partitionIndices));
+    final CompressionStats compressionStats = compressor.getStats();
+    stats.setLongStat(Metric.UNCOMPRESSED_BYTES_SENT, compressionStats.getUncompressedBytes());
+    stats.setLongStat(Metric.COMPRESSED_BYTES_SENT, compressionStats.getCompressedBytes());
+    stats.setLongStat(Metric.COMPRESSION_NANOS, compressionStats.getCodecNanos());
+    AutoCloseables.close(
+        Arrays.asList(batches), Arrays.asList(copyIndices, partitionIndices, compressor));
   }
 
   @Override
@@ -24,6 +24,8 @@ import com.dremio.exec.proto.ExecProtos.FragmentHandle;
 import com.dremio.exec.proto.ExecRPC.FragmentStreamComplete;
 import com.dremio.exec.record.FragmentWritableBatch;
 import com.dremio.exec.record.VectorAccessible;
+import com.dremio.exec.record.compression.CompressionStats;
+import com.dremio.exec.record.compression.ExchangeCompressor;
 import com.dremio.sabot.exec.context.MetricDef;
 import com.dremio.sabot.exec.context.OperatorContext;
 import com.dremio.sabot.exec.context.OperatorStats;
@@ -42,7 +44,6 @@ import javax.annotation.Nullable;
 import org.apache.arrow.memory.ArrowBuf;
 import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.memory.OutOfMemoryException;
-import org.apache.arrow.vector.compression.NoCompressionCodec;
 import org.apache.arrow.vector.ipc.message.ArrowRecordBatch;
 
 /** Round Robin Sender broadcasts incoming batches to receivers in a round robin fashion. */
@@ -62,6 +63,7 @@ public class RoundRobinOperator extends BaseSender {
   private int currentTunnelsIndex;
   private int currentMinorFragmentsIndex;
   private final SenderLatencyTracker latencyTracker = new SenderLatencyTracker();
+  private final ExchangeCompressor compressor;
 
   private VectorAccessible incoming;
 
@@ -70,7 +72,10 @@ public class RoundRobinOperator extends BaseSender {
     BYTES_SENT,
     BATCHES_SENT,
     SUM_ACK_MILLIS,
-    MAX_ACK_MILLIS;
+    MAX_ACK_MILLIS,
+    UNCOMPRESSED_BYTES_SENT,
+    COMPRESSED_BYTES_SENT,
+    COMPRESSION_NANOS;
 
     @Override
     public int metricId() {
@@ -86,6 +91,7 @@ public class RoundRobinOperator extends BaseSender {
     this.allocator = context.getAllocator();
     this.handle = context.getFragmentHandle();
     this.stats = context.getStats();
+    this.compressor = ExchangeCompressor.create(context.getAllocator(), context.getOptions());
 
     List<MinorFragmentEndpoint> destinations = config.getDestinations(context.getEndpointsIndex());
     final ArrayListMultimap<NodeEndpoint, Integer> dests = ArrayListMultimap.create();
@@ -125,6 +131,11 @@ public class RoundRobinOperator extends BaseSender {
   public void close() throws Exception {
     stats.setLongStat(Metric.SUM_ACK_MILLIS, latencyTracker.getSumAckMillis());
     stats.setLongStat(Metric.MAX_ACK_MILLIS, latencyTracker.getMaxAckMillis());
+    final CompressionStats compressionStats = compressor.getStats();
+    stats.setLongStat(Metric.UNCOMPRESSED_BYTES_SENT, compressionStats.getUncompressedBytes());
+    stats.setLongStat(Metric.COMPRESSED_BYTES_SENT, compressionStats.getCompressedBytes());
+    stats.setLongStat(Metric.COMPRESSION_NANOS, compressionStats.getCodecNanos());
+    compressor.close();
   }
 
   @Override
@@ -182,6 +193,9 @@ public class RoundRobinOperator extends BaseSender {
                 })
             .toList();
 
+    final ExchangeCompressor.CompressedBody body = compressor.compress(buffers);
+    buffers = body.getBuffers();
+
     FragmentWritableBatch batch =
         new FragmentWritableBatch(
             handle.getQueryId(),
@@ -192,7 +206,7 @@ public class RoundRobinOperator extends BaseSender {
                 arrowRecordBatch.getLength(),
                 arrowRecordBatch.getNodes(),
                 buffers,
-                NoCompressionCodec.DEFAULT_BODY_COMPRESSION,
+                body.getBodyCompression(),
                 false),
             minorFragments.get(currentTunnelsIndex).get(currentMinorFragmentsIndex));
     updateStats(batch);
@@ -22,6 +22,8 @@ import com.dremio.exec.proto.ExecProtos.FragmentHandle;
 import com.dremio.exec.proto.ExecRPC.FragmentStreamComplete;
 import com.dremio.exec.record.FragmentWritableBatch;
 import com.dremio.exec.record.VectorAccessible;
+import com.dremio.exec.record.compression.CompressionStats;
+import com.dremio.exec.record.compression.ExchangeCompressor;
 import com.dremio.exec.testing.ControlsInjector;
 import com.dremio.exec.testing.ControlsInjectorFactory;
 import com.dremio.sabot.exec.context.MetricDef;
@@ -46,6 +48,7 @@ public class SingleSenderOperator extends BaseSender {
   private final FragmentHandle handle;
   private final int recMajor;
   private final SenderLatencyTracker latencyTracker;
+  private final ExchangeCompressor compressor;
 
   private State state = State.NEEDS_SETUP;
   private VectorAccessible incoming;
@@ -54,7 +57,10 @@ public class SingleSenderOperator extends BaseSender {
     BYTES_SENT,
     BATCHES_SENT,
     SUM_ACK_MILLIS,
-    MAX_ACK_MILLIS;
+    MAX_ACK_MILLIS,
+    UNCOMPRESSED_BYTES_SENT,
+    COMPRESSED_BYTES_SENT,
+    COMPRESSION_NANOS;
 
     @Override
     public int metricId() {
@@ -78,6 +84,7 @@ public class SingleSenderOperator extends BaseSender {
     NodeEndpoint ep = config.getDestinations(context.getEndpointsIndex()).get(0).getEndpoint();
     this.tunnel = tunnelProvider.getExecTunnel(ep);
     this.latencyTracker = new SenderLatencyTracker();
+    this.compressor = ExchangeCompressor.create(context.getAllocator(), context.getOptions());
   }
 
   @Override
@@ -90,6 +97,7 @@ public class SingleSenderOperator extends BaseSender {
             handle.getMinorFragmentId(),
             recMajor,
             incoming,
+            compressor,
             oppositeHandle.getMinorFragmentId());
     updateStats(batch);
     context.getStats().startWait();
@@ -137,6 +145,15 @@ public class SingleSenderOperator extends BaseSender {
   public void close() throws Exception {
     context.getStats().setLongStat(Metric.SUM_ACK_MILLIS, latencyTracker.getSumAckMillis());
     context.getStats().setLongStat(Metric.MAX_ACK_MILLIS, latencyTracker.getMaxAckMillis());
+    final CompressionStats compressionStats = compressor.getStats();
+    context
+        .getStats()
+        .setLongStat(Metric.UNCOMPRESSED_BYTES_SENT, compressionStats.getUncompressedBytes());
+    context
+        .getStats()
+        .setLongStat(Metric.COMPRESSED_BYTES_SENT, compressionStats.getCompressedBytes());
+    context.getStats().setLongStat(Metric.COMPRESSION_NANOS, compressionStats.getCodecNanos());
+    compressor.close();
   }
 
   private void updateStats(FragmentWritableBatch writableBatch) {
@@ -124,6 +124,7 @@ public class DiskRunManager implements AutoCloseable {
   private MicroSpillState microSpillState;
   private final int spillWriteMax;
   private final boolean useVectorCopier;
+  private final boolean useRadixSort;
   private long oomAllocate;
   private long oomCopy;
   private final double allocationDensity;
@@ -178,6 +179,7 @@ public class DiskRunManager implements AutoCloseable {
       this.spillWriteMax = (int) optionManager.getOption(ExecConstants.SORT_MAX_WRITE_BATCH);
       this.useArrowEncoding = optionManager.getOption(ExecConstants.EXTERNAL_SORT_ARROW_ENCODING);
       this.useVectorCopier = optionManager.getOption(ExecConstants.EXTERNAL_SORT_VECTOR_COPIER);
+      this.useRadixSort = optionManager.getOption(ExecConstants.EXTERNAL_SORT_ENABLE_RADIX_SORT);
       this.allocationDensity =
           optionManager.getOption(ExecConstants.EXTERNAL_SORT_SPILL_ALLOCATION_DENSITY);
       this.copierFactory = new FieldBufferCopierFactory(optionManager);
@@ -907,8 +909,15 @@ public class DiskRunManager implements AutoCloseable {
 
       final PriorityQueueCopier copier = cg.getImplementationClass();
 
+      final NormalizedKeyEncoder keyEncoder =
+          useRadixSort ? NormalizedKeyEncoder.create(orderings, producer, incoming) : null;
       copier.setup(
-          producer.getFunctionContext(), copierAllocator, iterators, incoming, targetContainer);
+          producer.getFunctionContext(),
+          copierAllocator,
+          iterators,
+          incoming,
+          targetContainer,
+          keyEncoder);
       this.copier = copier;
 
       rollback.commit();
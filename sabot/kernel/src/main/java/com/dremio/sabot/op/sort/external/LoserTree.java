@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.sort.external;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Tournament tree of losers used to merge k sorted runs. Each internal node holds the run that lost
+ * the match played at that node, and the overall winner is kept apart, so replacing the head of the
+ * winning run only replays the matches on its path to the root: log(k) comparisons and no
+ * allocation.
+ *
+ * <p>While the same run keeps winning, the tree also remembers the best of the runs it beat (the
+ * challenger). As long as the winner's next head does not sort after the challenger, the tree is
+ * left untouched and advancing costs a single comparison. Callers can also use the {@link
+ * #getChallenger() challenger} to find how many consecutive records of the winning run can be
+ * emitted at once.
+ *
+ * <p>Runs are identified by their index in [0, runCount). Implementations compare the current head
+ * records of two runs.
+ */
+public abstract class LoserTree {
+
+  /** Returned by {@link #getWinner()} once all runs are exhausted. */
+  public static final int NONE = -1;
+
+  /** Returned by {@link #getChallenger()} when the challenger is not known. */
+  public static final int UNKNOWN = -2;
+
+  private final int runCount;
+  // node 0 holds the winner, nodes 1 to runCount - 1 the losers, leaves are virtual
+  private final int[] tree;
+  private final boolean[] exhausted;
+  private int challenger = UNKNOWN;
+  private int previousWinner = NONE;
+
+  public LoserTree(int runCount) {
+    Preconditions.checkArgument(runCount > 0, "A loser tree needs at least one run");
+    this.runCount = runCount;
+    this.tree = new int[runCount];
+    this.exhausted = new boolean[runCount];
+  }
+
+  /**
+   * Compare the head records of two runs that are not exhausted.
+   *
+   * @return a negative value, zero or a positive value if the head of the left run sorts before,
+   *     with or after the head of the right run
+   */
+  protected abstract int compareRuns(int leftRun, int rightRun);
+
+  /** Play all the matches. Runs without any record must be marked exhausted first. */
+  public void build() {
+    final int[] winners = new int[2 * runCount];
+    for (int run = 0; run < runCount; run++) {
+      winners[runCount + run] = run;
+    }
+    for (int node = runCount - 1; node > 0; node--) {
+      final int left = winners[2 * node];
+      final int right = winners[2 * node + 1];
+      if (beats(left, right)) {
+        winners[node] = left;
+        tree[node] = right;
+      } else {
+        winners[node] = right;
+        tree[node] = left;
+      }
+    }
+    tree[0] = winners[1];
+    challenger = UNKNOWN;
+    previousWinner = tree[0];
+  }
+
+  /** Mark a run that has no record left, before {@link #build()} is called. */
+  public void markExhausted(int run) {
+    exhausted[run] = true;
+  }
+
+  /** Run whose head sorts first, or {@link #NONE} if all runs are exhausted. */
+  public int getWinner() {
+    return exhausted[tree[0]] ? NONE : tree[0];
+  }
+
+  public boolean isEmpty() {
+    return exhausted[tree[0]];
+  }
+
+  /** The head of the winning run was replaced by its next record. */
+  public void update() {
+    final int winner = tree[0];
+    if (challenger != UNKNOWN && (challenger == NONE || compareRuns(winner, challenger) <= 0)) {
+      // the winner still beats every run on its path, nothing to replay
+      return;
+    }
+    replay(winner);
+  }
+
+  /** The winning run has no record left. */
+  public void remove() {
+    final int winner = tree[0];
+    exhausted[winner] = true;
+    replay(winner);
+  }
+
+  /**
+   * Run that would win if the current winner was removed, or {@link #NONE} if there is none. Only
+   * known once the same run has won twice in a row, {@link #UNKNOWN} otherwise so that runs that
+   * alternate don't pay for it.
+   */
+  public int getChallenger() {
+    return challenger;
+  }
+
+  private void replay(int run) {
+    int candidate = run;
+    for (int node = (runCount + run) >>> 1; node > 0; node >>>= 1) {
+      final int loser = tree[node];
+      if (beats(loser, candidate)) {
+        tree[node] = candidate;
+        candidate = loser;
+      }
+    }
+    tree[0] = candidate;
+
+    challenger = UNKNOWN;
+    if (candidate == previousWinner && !exhausted[candidate]) {
+      challenger = findChallenger(candidate);
+    }
+    previousWinner = candidate;
+  }
+
+  /** Best of the runs the winner beat on its way to the root. */
+  private int findChallenger(int winner) {
+    int best = NONE;
+    for (int node = (runCount + winner) >>> 1; node > 0; node >>>= 1) {
+      final int loser = tree[node];
+      if (!exhausted[loser] && (best == NONE || compareRuns(loser, best) < 0)) {
+        best = loser;
+      }
+    }
+    return best;
+  }
+
+  private boolean beats(int left, int right) {
+    if (exhausted[left]) {
+      return false;
+    }
+    return exhausted[right] || compareRuns(left, right) <= 0;
+  }
+}
@@ -43,7 +43,7 @@ import org.apache.arrow.vector.types.pojo.Schema;
 
 /**
  * Describes a set of ordered batches of data in memory. Sort each batch as it is inserted using the
- * Sorter. Sorter can be configured to use QuickSort (by default) or SplaySort.
+ * Sorter. Sorter can be configured to use QuickSort (by default), SplaySort or RadixSort.
  *
  * <p>Memory Guarantees Targeted: - Ensure that spilling can be done before accepting a new batch of
  * records. We do this by pre-reserving BATCH_SIZE_MULTIPLIER times the size of the largest batch
@@ -90,6 +90,7 @@ class MemoryRun implements AutoCloseable {
       VectorSortTracer tracer,
       int batchsizeMultiplier,
       boolean useSplaySort,
+      boolean useRadixSort,
       int targetBatchSize,
       ExecutionControls executionControls) {
     this.schema = schema;
@@ -100,7 +101,9 @@ class MemoryRun implements AutoCloseable {
     this.targetBatchSize = targetBatchSize;
     this.executionControls = executionControls;
     try {
-      if (useSplaySort) {
+      if (useRadixSort) {
+        this.sorter = new RadixSorter(sortOrderings, classProducer, schema, allocator);
+      } else if (useSplaySort) {
         this.sorter = new SplaySorter(sortOrderings, classProducer, schema, allocator);
       } else {
         this.sorter = new QuickSorter(sortOrderings, classProducer, schema, allocator);
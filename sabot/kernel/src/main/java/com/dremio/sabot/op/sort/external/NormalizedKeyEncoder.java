@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.sort.external;
+
+import com.dremio.common.expression.LogicalExpression;
+import com.dremio.common.logical.data.Order.Ordering;
+import com.dremio.exec.expr.ClassProducer;
+import com.dremio.exec.expr.ValueVectorReadExpression;
+import com.dremio.exec.record.VectorAccessible;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.calcite.rel.RelFieldCollation.Direction;
+
+/**
+ * Encodes the sort keys of a row into a fixed-width, byte-comparable prefix: comparing two prefixes
+ * as unsigned bytes orders the rows the same way the generated comparator of {@link
+ * VectorSorter#generateComparisons} does, except that rows with equal prefixes may still differ.
+ *
+ * <p>Each key is written as a null marker byte followed by the big-endian value with its sign bit
+ * flipped, floating point values use their IEEE bits with negative values inverted, and variable
+ * width values are truncated or zero padded. Descending keys have all their bytes inverted.
+ * Encoding stops at the first key that is not a plain column read of a supported type, at the first
+ * variable width key, or when the maximum width is reached. When all the keys fit, the prefix is
+ * {@link #isComplete() complete} and equal prefixes mean equal rows.
+ */
+public final class NormalizedKeyEncoder {
+
+  /** Maximum width of a prefix, wider keys are truncated and ties resolved by the comparator. */
+  static final int MAX_WIDTH = 32;
+
+  // bytes of a variable width value that are kept in the prefix
+  private static final int VARIABLE_WIDTH_BYTES = 16;
+
+  private static final int SIGNED_INT = 0;
+  private static final int FLOAT = 1;
+  private static final int BOOLEAN = 2;
+  private static final int DECIMAL = 3;
+  private static final int VARIABLE_WIDTH = 4;
+
+  private final int[][] fieldIds;
+  private final int[] kinds;
+  private final int[] sizes;
+  private final boolean[] descending;
+  private final boolean[] nullsHigh;
+  private final int width;
+  private final boolean complete;
+
+  private NormalizedKeyEncoder(
+      List<int[]> fieldIds,
+      List<Integer> kinds,
+      List<Integer> sizes,
+      List<Ordering> orderings,
+      int width,
+      boolean complete) {
+    final int keyCount = fieldIds.size();
+    this.fieldIds = fieldIds.toArray(new int[keyCount][]);
+    this.kinds = new int[keyCount];
+    this.sizes = new int[keyCount];
+    this.descending = new boolean[keyCount];
+    this.nullsHigh = new boolean[keyCount];
+    for (int i = 0; i < keyCount; i++) {
+      this.kinds[i] = kinds.get(i);
+      this.sizes[i] = sizes.get(i);
+      this.descending[i] = orderings.get(i).getDirection() == Direction.DESCENDING;
+      this.nullsHigh[i] = orderings.get(i).nullsSortHigh();
+    }
+    this.width = width;
+    this.complete = complete;
+  }
+
+  /**
+   * Create an encoder for the given orderings. Keys that cannot be encoded only shorten the prefix,
+   * an encoder with a zero {@link #getWidth() width} is returned when the first key cannot be.
+   *
+   * @param batch container the sort keys are materialized against, usually a hyper container
+   */
+  public static NormalizedKeyEncoder create(
+      List<Ordering> orderings, ClassProducer producer, VectorAccessible batch) {
+    final List<int[]> fieldIds = new ArrayList<>();
+    final List<Integer> kinds = new ArrayList<>();
+    final List<Integer> sizes = new ArrayList<>();
+    boolean allEncoded = true;
+    int desiredWidth = 0;
+    for (Ordering ordering : orderings) {
+      final LogicalExpression expr = producer.materialize(ordering.getExpr(), batch);
+      if (!(expr instanceof ValueVectorReadExpression)
+          || ((ValueVectorReadExpression) expr).hasReadPath()) {
+        allEncoded = false;
+        break;
+      }
+      final ArrowType type = expr.getCompleteType().getType();
+      final int kind = kindOf(type);
+      if (kind < 0) {
+        allEncoded = false;
+        break;
+      }
+      fieldIds.add(((ValueVectorReadExpression) expr).getFieldId().getFieldIds());
+      kinds.add(kind);
+      if (kind == VARIABLE_WIDTH) {
+        sizes.add(VARIABLE_WIDTH_BYTES);
+        desiredWidth += 1 + VARIABLE_WIDTH_BYTES;
+        // truncated values cannot order the keys that follow
+        allEncoded = false;
+        break;
+      }
+      final int size = sizeOf(type);
+      sizes.add(size);
+      desiredWidth += 1 + size;
+    }
+
+    final int width = Math.min(MAX_WIDTH, (desiredWidth + 7) & ~7);
+    return new NormalizedKeyEncoder(
+        fieldIds, kinds, sizes, orderings, width, allEncoded && desiredWidth <= width);
+  }
+
+  private static int kindOf(ArrowType type) {
+    switch (type.getTypeID()) {
+      case Int:
+        return ((ArrowType.Int) type).getIsSigned() ? SIGNED_INT : -1;
+      case Date:
+      case Time:
+      case Timestamp:
+        return SIGNED_INT;
+      case FloatingPoint:
+        return ((ArrowType.FloatingPoint) type).getPrecision() == FloatingPointPrecision.HALF
+            ? -1
+            : FLOAT;
+      case Bool:
+        return BOOLEAN;
+      case Decimal:
+        return ((ArrowType.Decimal) type).getBitWidth() == 128 ? DECIMAL : -1;
+      case Utf8:
+      case Binary:
+        return VARIABLE_WIDTH;
+      default:
+        return -1;
+    }
+  }
+
+  private static int sizeOf(ArrowType type) {
+    switch (type.getTypeID()) {
+      case Int:
+        return ((ArrowType.Int) type).getBitWidth() / 8;
+      case Date:
+        return ((ArrowType.Date) type).getUnit() == DateUnit.DAY ? 4 : 8;
+      case Time:
+        return ((ArrowType.Time) type).getBitWidth() / 8;
+      case Timestamp:
+        return 8;
+      case FloatingPoint:
+        return ((ArrowType.FloatingPoint) type).getPrecision() == FloatingPointPrecision.SINGLE
+            ? 4
+            : 8;
+      case Bool:
+        return 1;
+      case Decimal:
+        return 16;
+      default:
+        throw new IllegalArgumentException("Not a fixed width type " + type);
+    }
+  }
+
+  /** Width in bytes of the encoded prefixes, a multiple of 8. */
+  public int getWidth() {
+    return width;
+  }
+
+  /** Whether the prefixes encode all the sort keys, so that equal prefixes mean equal rows. */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /** Key vectors of the given batch of a hyper container, to be passed to {@link #encode}. */
+  public ValueVector[] getKeyVectors(VectorAccessible hyperBatch, int batchIndex) {
+    final ValueVector[] vectors = new ValueVector[fieldIds.length];
+    for (int i = 0; i < fieldIds.length; i++) {
+      vectors[i] =
+          hyperBatch.getValueAccessorById(ValueVector.class, fieldIds[i])
+              .getValueVectors()[batchIndex];
+    }
+    return vectors;
+  }
+
+  /** Write the prefix of the given row to {@link #getWidth()} bytes of dst at offset. */
+  public void encode(ValueVector[] keyVectors, int index, ArrowBuf dst, long offset) {
+    final long end = offset + width;
+    long position = offset;
+    for (int i = 0; i < kinds.length && position < end; i++) {
+      final long keyStart = position;
+      final ValueVector vector = keyVectors[i];
+      final boolean isNull = vector.isNull(index);
+      dst.setByte(position++, isNull ? (nullsHigh[i] ? 2 : 0) : 1);
+      final int available = (int) (end - position);
+      final int size = kinds[i] == VARIABLE_WIDTH ? available : Math.min(sizes[i], available);
+      if (isNull) {
+        dst.setZero(position, size);
+      } else {
+        writeValue(i, vector, index, dst, position, available);
+      }
+      position += size;
+      if (descending[i]) {
+        for (long p = keyStart; p < position; p++) {
+          dst.setByte(p, ~dst.getByte(p));
+        }
+      }
+    }
+    if (position < end) {
+      dst.setZero(position, end - position);
+    }
+  }
+
+  private void writeValue(
+      int key, ValueVector vector, int index, ArrowBuf dst, long position, int available) {
+    final int size = sizes[key];
+    switch (kinds[key]) {
+      case SIGNED_INT:
+        {
+          final ArrowBuf data = vector.getDataBuffer();
+          final long value;
+          switch (size) {
+            case 8:
+              value = data.getLong((long) index * 8);
+              break;
+            case 4:
+              value = data.getInt((long) index * 4);
+              break;
+            case 2:
+              value = data.getShort((long) index * 2);
+              break;
+            default:
+              value = data.getByte(index);
+              break;
+          }
+          writeBigEndian(dst, position, value ^ (1L << (size * 8 - 1)), size, available);
+          break;
+        }
+      case FLOAT:
+        {
+          final ArrowBuf data = vector.getDataBuffer();
+          if (size == 4) {
+            final int bits = Float.floatToIntBits(data.getFloat((long) index * 4));
+            final int ordered = bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE;
+            writeBigEndian(dst, position, ordered, 4, available);
+          } else {
+            final long bits = Double.doubleToLongBits(data.getDouble((long) index * 8));
+            final long ordered = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+            writeBigEndian(dst, position, ordered, 8, available);
+          }
+          break;
+        }
+      case BOOLEAN:
+        dst.setByte(position, ((BitVector) vector).get(index));
+        break;
+      case DECIMAL:
+        {
+          // little endian two's complement 128 bit integers, all with the scale of the column
+          final ArrowBuf data = vector.getDataBuffer();
+          final long low = data.getLong((long) index * 16);
+          final long high = data.getLong((long) index * 16 + 8);
+          writeBigEndian(dst, position, high ^ Long.MIN_VALUE, 8, available);
+          if (available > 8) {
+            writeBigEndian(dst, position + 8, low, 8, available - 8);
+          }
+          break;
+        }
+      case VARIABLE_WIDTH:
+        {
+          final BaseVariableWidthVector varWidthVector = (BaseVariableWidthVector) vector;
+          final int start = varWidthVector.getStartOffset(index);
+          final int length = Math.min(available, varWidthVector.getEndOffset(index) - start);
+          dst.setBytes(position, varWidthVector.getDataBuffer(), start, length);
+          if (length < available) {
+            dst.setZero(position + length, available - length);
+          }
+          break;
+        }
+      default:
+        throw new IllegalStateException("Unknown key kind " + kinds[key]);
+    }
+  }
+
+  /** Write the size low-order bytes of value, most significant first, keeping at most limit. */
+  private static void writeBigEndian(ArrowBuf dst, long position, long value, int size, int limit) {
+    final int count = Math.min(size, limit);
+    for (int i = 0; i < count; i++) {
+      dst.setByte(position + i, (int) (value >>> ((size - 1 - i) * 8)));
+    }
+  }
+}
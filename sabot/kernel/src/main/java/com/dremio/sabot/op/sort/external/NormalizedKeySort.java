@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.sort.external;
+
+import java.util.Arrays;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.util.MemoryUtil;
+import org.apache.hadoop.util.IndexedSortable;
+import org.apache.hadoop.util.QuickSort;
+
+/**
+ * Most significant digit radix sort of entries made of a normalized key prefix (see {@link
+ * NormalizedKeyEncoder}) followed by an int SV4 index. Entries are bucketed on one prefix byte at a
+ * time, small buckets are insertion sorted, and entries whose prefixes are equal are ordered by the
+ * {@link TieBreaker} unless the prefixes are complete.
+ */
+class NormalizedKeySort {
+
+  /** Compares two rows given their SV4 indexes, used when their prefixes are equal. */
+  public interface TieBreaker {
+    int compare(int leftIndex, int rightIndex);
+  }
+
+  // buckets smaller than this are insertion sorted
+  private static final int INSERTION_SORT_THRESHOLD = 16;
+
+  private final ArrowBuf entries;
+  private final ArrowBuf aux;
+  private final int width;
+  private final int stride;
+  private final boolean complete;
+  private final TieBreaker tieBreaker;
+  // bucket boundaries of each level, reused across the buckets of a level
+  private final int[][] bucketStarts;
+  private final int[] counts = new int[256];
+
+  /**
+   * @param entries entries to sort in place, each made of width prefix bytes and an int index
+   * @param aux scratch buffer of the same capacity as entries
+   */
+  NormalizedKeySort(
+      ArrowBuf entries, ArrowBuf aux, int width, boolean complete, TieBreaker tieBreaker) {
+    this.entries = entries;
+    this.aux = aux;
+    this.width = width;
+    this.stride = width + 4;
+    this.complete = complete;
+    this.tieBreaker = tieBreaker;
+    this.bucketStarts = new int[width][257];
+  }
+
+  static int getStride(int width) {
+    return width + 4;
+  }
+
+  /** SV4 index of the entry at the given position. */
+  int getIndex(int position) {
+    return entries.getInt((long) position * stride + width);
+  }
+
+  void sort(int count) {
+    sort(0, count, 0);
+  }
+
+  private void sort(int from, int to, int depth) {
+    while (to - from > 1) {
+      if (depth == width) {
+        if (!complete) {
+          breakTies(from, to);
+        }
+        return;
+      }
+      if (to - from <= INSERTION_SORT_THRESHOLD) {
+        insertionSort(from, to, depth);
+        return;
+      }
+
+      Arrays.fill(counts, 0);
+      for (int i = from; i < to; i++) {
+        counts[entries.getByte((long) i * stride + depth) & 0xFF]++;
+      }
+
+      final int[] starts = bucketStarts[depth];
+      int start = from;
+      int nonEmpty = 0;
+      for (int b = 0; b < 256; b++) {
+        starts[b] = start;
+        start += counts[b];
+        if (counts[b] > 0) {
+          nonEmpty++;
+        }
+      }
+      starts[256] = to;
+
+      if (nonEmpty == 1) {
+        // all the entries share this byte, move on to the next one without moving data
+        depth++;
+        continue;
+      }
+
+      // scatter into the scratch buffer, using counts as the next free slot of each bucket
+      for (int b = 0; b < 256; b++) {
+        counts[b] = starts[b];
+      }
+      for (int i = from; i < to; i++) {
+        final long offset = (long) i * stride;
+        final int bucket = entries.getByte(offset + depth) & 0xFF;
+        aux.setBytes((long) counts[bucket]++ * stride, entries, offset, stride);
+      }
+      entries.setBytes(
+          (long) from * stride, aux, (long) from * stride, (long) (to - from) * stride);
+
+      for (int b = 0; b < 256; b++) {
+        if (starts[b + 1] - starts[b] > 1) {
+          sort(starts[b], starts[b + 1], depth + 1);
+        }
+      }
+      return;
+    }
+  }
+
+  private void insertionSort(int from, int to, int depth) {
+    // the scratch slot of the first entry is free while this range is sorted
+    final long tmp = (long) from * stride;
+    for (int i = from + 1; i < to; i++) {
+      aux.setBytes(tmp, entries, (long) i * stride, stride);
+      int j = i;
+      while (j > from && compare(entries, (long) (j - 1) * stride, aux, tmp, depth) > 0) {
+        entries.setBytes((long) j * stride, entries, (long) (j - 1) * stride, stride);
+        j--;
+      }
+      if (j < i) {
+        entries.setBytes((long) j * stride, aux, tmp, stride);
+      }
+    }
+  }
+
+  private int compare(ArrowBuf left, long leftOffset, ArrowBuf right, long rightOffset, int depth) {
+    // bytes before depth are shared by the whole bucket
+    final int aligned = depth & ~7;
+    final int c =
+        comparePrefixes(left, leftOffset + aligned, right, rightOffset + aligned, width - aligned);
+    if (c != 0 || complete) {
+      return c;
+    }
+    return tieBreaker.compare(left.getInt(leftOffset + width), right.getInt(rightOffset + width));
+  }
+
+  private void breakTies(int from, int to) {
+    new QuickSort()
+        .sort(
+            new IndexedSortable() {
+              @Override
+              public int compare(int i, int j) {
+                return tieBreaker.compare(getIndex(i), getIndex(j));
+              }
+
+              @Override
+              public void swap(int i, int j) {
+                // prefixes are equal, only the indexes need to move
+                final long left = (long) i * stride + width;
+                final long right = (long) j * stride + width;
+                final int tmp = entries.getInt(left);
+                entries.setInt(left, entries.getInt(right));
+                entries.setInt(right, tmp);
+              }
+            },
+            from,
+            to);
+  }
+
+  /** Compare length bytes of two prefixes as unsigned bytes, length must be a multiple of 8. */
+  static int comparePrefixes(
+      ArrowBuf left, long leftOffset, ArrowBuf right, long rightOffset, int length) {
+    for (int i = 0; i < length; i += 8) {
+      final long l = left.getLong(leftOffset + i);
+      final long r = right.getLong(rightOffset + i);
+      if (l != r) {
+        return MemoryUtil.LITTLE_ENDIAN
+            ? Long.compareUnsigned(Long.reverseBytes(l), Long.reverseBytes(r))
+            : Long.compareUnsigned(l, r);
+      }
+    }
+    return 0;
+  }
+}
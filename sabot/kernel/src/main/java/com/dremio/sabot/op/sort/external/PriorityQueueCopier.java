@@ -31,12 +31,17 @@ public interface PriorityQueueCopier extends AutoCloseable, MovingCopier {
   static final TemplateClassDefinition<PriorityQueueCopier> TEMPLATE_DEFINITION =
       new TemplateClassDefinition<>(PriorityQueueCopier.class, PriorityQueueCopierTemplate.class);
 
+  /**
+   * @param keyEncoder when not null, the head records of the runs are compared on their normalized
+   *     key prefixes first
+   */
   void setup(
       FunctionContext context,
       BufferAllocator allocator,
       DiskRunIterator[] iterators,
       VectorAccessible incoming,
-      VectorContainer outgoing)
+      VectorContainer outgoing,
+      NormalizedKeyEncoder keyEncoder)
       throws SchemaChangeException, IOException;
 
   @Override
@@ -21,7 +21,6 @@ import com.dremio.exec.exception.SchemaChangeException;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.record.VectorWrapper;
-import com.dremio.exec.record.selection.SelectionVector4;
 import com.dremio.sabot.exec.context.FunctionContext;
 import com.dremio.sabot.op.sort.external.DiskRunManager.DiskRunIterator;
 import com.google.common.collect.Iterables;
@@ -37,12 +36,20 @@ public abstract class PriorityQueueCopierTemplate implements PriorityQueueCopier
   private static final org.slf4j.Logger logger =
       org.slf4j.LoggerFactory.getLogger(PriorityQueueCopierTemplate.class);
 
-  private SelectionVector4 vector4;
   private DiskRunIterator[] iterators;
   private Sv4HyperContainer incoming;
   private VectorContainer outgoing;
   private int size;
-  private int queueSize = 0;
+  // index of the head record of each run in its current batch, the batch index is the run index
+  private int[] heads;
+  private LoserTreeImpl tree;
+
+  // normalized key prefix of the head record of each run, indexed by run
+  private NormalizedKeyEncoder keyEncoder;
+  private ValueVector[][] keyVectors;
+  private ArrowBuf prefixes;
+  private int prefixWidth;
+  private boolean prefixComplete;
 
   /**
    * Last density parameter used to successfully allocate memory for outgoing vectors. We keep track
@@ -56,23 +63,40 @@ public abstract class PriorityQueueCopierTemplate implements PriorityQueueCopier
       BufferAllocator allocator,
       DiskRunIterator[] iterators,
       VectorAccessible incoming,
-      VectorContainer outgoing)
+      VectorContainer outgoing,
+      NormalizedKeyEncoder keyEncoder)
       throws SchemaChangeException, IOException {
     this.incoming = new Sv4HyperContainer(allocator, incoming.getSchema());
     this.size = iterators.length;
-    final ArrowBuf arrowBuf = allocator.buffer(4 * size);
-    this.vector4 = new SelectionVector4(arrowBuf, size, Character.MAX_VALUE);
+    this.heads = new int[size];
+    this.tree = new LoserTreeImpl(size);
     this.iterators = iterators;
     this.outgoing = outgoing;
 
     doSetup(context, incoming, outgoing);
 
-    queueSize = 0;
+    if (keyEncoder != null && keyEncoder.getWidth() > 0) {
+      this.keyEncoder = keyEncoder;
+      this.prefixWidth = keyEncoder.getWidth();
+      this.prefixComplete = keyEncoder.isComplete();
+      this.prefixes = allocator.buffer((long) size * prefixWidth);
+      // iterators load their batches into the same vectors, so these stay valid
+      this.keyVectors = new ValueVector[size][];
+      for (int i = 0; i < size; i++) {
+        keyVectors[i] = keyEncoder.getKeyVectors(incoming, i);
+      }
+    }
+
     for (int i = 0; i < size; i++) {
-      vector4.set(i, i, iterators[i].getNextId());
-      siftUp();
-      queueSize++;
+      final int recordIndex = iterators[i].getNextId();
+      if (recordIndex < 0) {
+        tree.markExhausted(i);
+      } else {
+        heads[i] = recordIndex;
+        encodePrefix(i, recordIndex);
+      }
     }
+    tree.build();
   }
 
   @Override
@@ -82,27 +106,24 @@ public abstract class PriorityQueueCopierTemplate implements PriorityQueueCopier
     try {
       for (; outgoingIndex < targetRecordCount; outgoingIndex++) {
 
-        if (queueSize == 0) {
+        final int batch = tree.getWinner();
+        if (batch == LoserTree.NONE) {
           return 0;
         }
+        doCopy((batch << 16) | heads[batch], outgoingIndex);
 
-        final int compoundIndex = vector4.get(0);
-        final int batch = compoundIndex >>> 16;
-        assert batch < iterators.length
-            : String.format("batch: %d batchGroups: %d", batch, iterators.length);
-        doCopy(compoundIndex, outgoingIndex);
-
-        int nextIndex = iterators[batch].getNextId();
+        final int nextIndex = iterators[batch].getNextId();
         if (nextIndex < 0) {
-          vector4.set(0, vector4.get(--queueSize));
+          tree.remove();
         } else {
-          vector4.set(0, batch, nextIndex);
+          heads[batch] = nextIndex;
+          encodePrefix(batch, nextIndex);
+          tree.update();
         }
-        if (queueSize == 0) {
+        if (tree.isEmpty()) {
           setValueCount(++outgoingIndex);
           return outgoingIndex;
         }
-        siftDown();
       }
       setValueCount(targetRecordCount);
       return targetRecordCount;
@@ -134,24 +155,12 @@ public abstract class PriorityQueueCopierTemplate implements PriorityQueueCopier
   public void close() throws Exception {
     AutoCloseables.close(
         Iterables.concat(
-            AutoCloseables.iter(vector4),
+            AutoCloseables.iter(prefixes),
             AutoCloseables.iter(outgoing),
             incoming,
             AutoCloseables.iter(iterators)));
   }
 
-  private void siftUp() {
-    int p = queueSize;
-    while (p > 0) {
-      if (compare(p, (p - 1) / 2) < 0) {
-        swap(p, (p - 1) / 2);
-        p = (p - 1) / 2;
-      } else {
-        break;
-      }
-    }
-  }
-
   private void allocateVectors(int targetRecordCount) {
     boolean memoryAllocated = false;
     double density = lastSuccessfulDensity;
@@ -186,41 +195,34 @@ public abstract class PriorityQueueCopierTemplate implements PriorityQueueCopier
     }
   }
 
-  private void siftDown() {
-    int p = 0;
-    int next;
-    while (p * 2 + 1 < queueSize) { // While the current node has at least one child
-      if (p * 2 + 2 >= queueSize) { // if current node has only one child, then we only look at it
-        next = p * 2 + 1;
-      } else {
-        if (compare(p * 2 + 1, p * 2 + 2)
-            <= 0) { // if current node has two children, we must first determine which one has
-          // higher priority
-          next = p * 2 + 1;
-        } else {
-          next = p * 2 + 2;
+  private class LoserTreeImpl extends LoserTree {
+
+    LoserTreeImpl(int runCount) {
+      super(runCount);
+    }
+
+    @Override
+    protected int compareRuns(int leftRun, int rightRun) {
+      if (prefixes != null) {
+        final int c =
+            NormalizedKeySort.comparePrefixes(
+                prefixes,
+                (long) leftRun * prefixWidth,
+                prefixes,
+                (long) rightRun * prefixWidth,
+                prefixWidth);
+        if (c != 0 || prefixComplete) {
+          return c;
         }
       }
-      if (compare(p, next)
-          > 0) { // compare current node to highest priority child and swap if necessary
-        swap(p, next);
-        p = next;
-      } else {
-        break;
-      }
+      return doEval((leftRun << 16) | heads[leftRun], (rightRun << 16) | heads[rightRun]);
     }
   }
 
-  public void swap(int sv0, int sv1) {
-    int tmp = vector4.get(sv0);
-    vector4.set(sv0, vector4.get(sv1));
-    vector4.set(sv1, tmp);
-  }
-
-  public int compare(int leftIndex, int rightIndex) {
-    int sv1 = vector4.get(leftIndex);
-    int sv2 = vector4.get(rightIndex);
-    return doEval(sv1, sv2);
+  private void encodePrefix(int batch, int recordIndex) {
+    if (prefixes != null) {
+      keyEncoder.encode(keyVectors[batch], recordIndex, prefixes, (long) batch * prefixWidth);
+    }
   }
 
   public abstract void doSetup(
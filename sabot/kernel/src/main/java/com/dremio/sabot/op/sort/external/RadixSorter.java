@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.sort.external;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.common.logical.data.Order.Ordering;
+import com.dremio.exec.exception.ClassTransformationException;
+import com.dremio.exec.exception.SchemaChangeException;
+import com.dremio.exec.expr.ClassGenerator;
+import com.dremio.exec.expr.ClassProducer;
+import com.dremio.exec.expr.CodeGenerator;
+import com.dremio.exec.record.ExpandableHyperContainer;
+import com.dremio.exec.record.RecordBatchData;
+import com.dremio.exec.record.VectorAccessible;
+import com.dremio.exec.record.selection.SelectionVector2;
+import com.dremio.exec.record.selection.SelectionVector4;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.OutOfMemoryException;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+/**
+ * Insert the normalized key prefix and SV4 index of each record as batches arrive, and radix sort
+ * them at the end. The generated comparator is only used for records with equal prefixes.
+ */
+public class RadixSorter implements Sorter {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(RadixSorter.class);
+
+  private final List<Ordering> sortOrderings;
+  private final ClassProducer classProducer;
+  private final BufferAllocator allocator;
+  private final Sv4HyperContainer container;
+  private final NormalizedKeyEncoder encoder;
+  private final int stride;
+
+  private RadixSorterInterface radixSorter;
+  private ArrowBuf entries;
+  private ArrowBuf aux;
+  private int capacity;
+  private int totalCount;
+
+  public RadixSorter(
+      List<Ordering> sortConfig,
+      ClassProducer classProducer,
+      Schema schema,
+      BufferAllocator allocator) {
+    this.sortOrderings = sortConfig;
+    this.classProducer = classProducer;
+    this.allocator = allocator;
+    this.container = new Sv4HyperContainer(allocator, schema);
+    this.encoder = NormalizedKeyEncoder.create(sortConfig, classProducer, container);
+    this.stride = NormalizedKeySort.getStride(encoder.getWidth());
+  }
+
+  @Override
+  public boolean expandMemoryIfNecessary(int newRequiredSize) {
+    if (newRequiredSize <= capacity) {
+      return true;
+    }
+
+    // entries and their scratch space grow together, doubling each time
+    final int newCapacity = MemoryRun.nextPowerOfTwo(newRequiredSize);
+    ArrowBuf newEntries = null;
+    try {
+      newEntries = allocator.buffer((long) newCapacity * stride);
+      final ArrowBuf newAux = allocator.buffer((long) newCapacity * stride);
+      if (entries != null) {
+        newEntries.setBytes(0, entries, 0, (long) totalCount * stride);
+        entries.close();
+        aux.close();
+      }
+      entries = newEntries;
+      aux = newAux;
+      capacity = newCapacity;
+    } catch (OutOfMemoryException ex) {
+      if (newEntries != null) {
+        newEntries.close();
+      }
+      return false;
+    }
+
+    return true;
+  }
+
+  @Override
+  public void setup(VectorAccessible batch)
+      throws ClassTransformationException, SchemaChangeException, IOException {
+    // Compile the comparator used to break prefix ties.
+    CodeGenerator<RadixSorterInterface> cg =
+        classProducer.createGenerator(RadixSorterInterface.TEMPLATE_DEFINITION);
+    ClassGenerator<RadixSorterInterface> g = cg.getRoot();
+    VectorSorter.generateComparisons(g, container, sortOrderings, classProducer);
+    this.radixSorter = cg.getImplementationClass();
+    radixSorter.init(classProducer.getFunctionContext(), container);
+  }
+
+  @Override
+  public void addBatch(RecordBatchData data, BufferAllocator copyTargetAllocator)
+      throws SchemaChangeException {
+    final Stopwatch watch = Stopwatch.createStarted();
+
+    final int batchIndex = radixSorter.add(data);
+    final ValueVector[] keyVectors = encoder.getKeyVectors(container, batchIndex);
+    final int width = encoder.getWidth();
+
+    final SelectionVector2 incomingSv2 = data.getSv2();
+    final int recordCount = data.getRecordCount();
+    for (int count = 0; count < recordCount; count++) {
+      final int recordIndex = incomingSv2 != null ? incomingSv2.getIndex(count) : count;
+      final long offset = (long) totalCount * stride;
+      encoder.encode(keyVectors, recordIndex, entries, offset);
+      entries.setInt(offset + width, (batchIndex << 16) | (recordIndex & 65535));
+      totalCount++;
+    }
+    assert totalCount <= capacity;
+
+    logger.debug(
+        "Took {} us to encode {} records for batch number {}",
+        watch.elapsed(TimeUnit.MICROSECONDS),
+        recordCount,
+        batchIndex);
+  }
+
+  /** Compares two records given their SV4 indexes with the generated comparator. */
+  @VisibleForTesting
+  int compare(int leftIndex, int rightIndex) {
+    return radixSorter.compare(leftIndex, rightIndex);
+  }
+
+  @Override
+  public ExpandableHyperContainer getHyperBatch() {
+    if (radixSorter != null) {
+      return radixSorter.getHyperBatch();
+    } else {
+      return null;
+    }
+  }
+
+  @Override
+  public int getHyperBatchSize() {
+    if (radixSorter != null) {
+      return radixSorter.getHyperBatch().size();
+    } else {
+      return 0;
+    }
+  }
+
+  @Override
+  public SelectionVector4 getFinalSort(BufferAllocator copyTargetAllocator, int targetBatchSize) {
+    final Stopwatch watch = Stopwatch.createStarted();
+
+    final SelectionVector4 finalSortedSV4 =
+        new SelectionVector4(
+            copyTargetAllocator.buffer(totalCount * 4), totalCount, targetBatchSize);
+    if (totalCount > 0) {
+      final NormalizedKeySort sort =
+          new NormalizedKeySort(
+              entries, aux, encoder.getWidth(), encoder.isComplete(), radixSorter);
+      sort.sort(totalCount);
+      for (int i = 0; i < totalCount; i++) {
+        finalSortedSV4.set(i, sort.getIndex(i));
+      }
+    }
+
+    logger.debug(
+        "Took {} us to radix sort {} records on {} byte prefixes",
+        watch.elapsed(TimeUnit.MICROSECONDS),
+        totalCount,
+        encoder.getWidth());
+
+    return finalSortedSV4;
+  }
+
+  @Override
+  public void close() throws Exception {
+    AutoCloseables.close(entries, aux);
+    entries = null;
+    aux = null;
+  }
+}
@@ -104,6 +104,7 @@ public class VectorSorter implements AutoCloseable {
   private int maxBatchesInMemory = 0;
   private int batchsizeMultiplier;
   private boolean enableSplaySort;
+  private boolean enableRadixSort;
   private boolean enableMicroSpill;
   private State prevState;
   private SortState prevSortState;
@@ -181,6 +182,7 @@ public class VectorSorter implements AutoCloseable {
       final boolean compressSpilledBatch =
           options.getOption(ExecConstants.EXTERNAL_SORT_COMPRESS_SPILL_FILES);
       this.enableSplaySort = options.getOption(ExecConstants.EXTERNAL_SORT_ENABLE_SPLAY_SORT);
+      this.enableRadixSort = options.getOption(ExecConstants.EXTERNAL_SORT_ENABLE_RADIX_SORT);
       this.unconsumedRef = null;
       this.enableMicroSpill = options.getOption(ExecConstants.EXTERNAL_SORT_ENABLE_MICRO_SPILL);
       this.consumePendingIncomingBatch = false;
@@ -196,6 +198,7 @@ public class VectorSorter implements AutoCloseable {
               tracer,
               batchsizeMultiplier,
               enableSplaySort,
+              enableRadixSort,
               targetBatchSize,
               context.getExecutionControls());
       rollback.add(this.memoryRun);
@@ -672,6 +675,7 @@ public class VectorSorter implements AutoCloseable {
               tracer,
               batchsizeMultiplier,
               enableSplaySort,
+              enableRadixSort,
               targetBatchSize,
               context.getExecutionControls());
     } catch (Exception e) {
@@ -731,6 +735,7 @@ public class VectorSorter implements AutoCloseable {
             tracer,
             batchsizeMultiplier,
             enableSplaySort,
+            enableRadixSort,
             targetBatchSize,
             context.getExecutionControls());
 
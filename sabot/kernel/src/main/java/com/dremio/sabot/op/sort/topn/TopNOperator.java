@@ -39,11 +39,16 @@ import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.record.VectorWrapper;
 import com.dremio.exec.record.selection.SelectionVector4;
+import com.dremio.options.OptionManager;
 import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.exec.context.OperatorStats;
 import com.dremio.sabot.op.copier.Copier;
 import com.dremio.sabot.op.copier.CopierOperator;
 import com.dremio.sabot.op.sort.SortRecordBatchBuilder;
+import com.dremio.sabot.op.sort.external.DiskRunManager;
+import com.dremio.sabot.op.sort.external.PriorityQueueCopier;
 import com.dremio.sabot.op.sort.external.Sv4HyperContainer;
+import com.dremio.sabot.op.sort.external.VectorSortTracer;
 import com.dremio.sabot.op.spi.Operator.ShrinkableOperator;
 import com.dremio.sabot.op.spi.SingleInputOperator;
 import com.google.common.base.Stopwatch;
@@ -52,16 +57,29 @@ import com.sun.codemodel.JExpr;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import org.apache.arrow.memory.BufferAllocator;
 import org.apache.arrow.vector.ValueVector;
 import org.apache.calcite.rel.RelFieldCollation.Direction;
 
+/**
+ * Keeps the first {@code limit} records of its input according to the given orderings in a heap.
+ *
+ * <p>When {@link ExecConstants#TOPN_SPILL_ENABLED} is set and the operator runs low on memory, the
+ * heap is written to disk as a sorted run through a {@link DiskRunManager} and a new heap is
+ * started. The runs are then merged the same way the external sort does, and output stops as soon
+ * as {@code limit} records have been produced.
+ */
 public class TopNOperator implements SingleInputOperator, ShrinkableOperator {
   private static final org.slf4j.Logger logger =
       org.slf4j.LoggerFactory.getLogger(TopNOperator.class);
 
+  // same as the reservation the external sort keeps to copy spilled batches.
+  private static final long SPILL_COPY_RESERVATION = 1 << 16;
+
   private final int batchPurgeThreshold;
   private final TopN config;
   private final OperatorContext context;
+  private final boolean spillEnabled;
 
   private State state = State.NEEDS_SETUP;
   private int batchesOutput = 0;
@@ -79,10 +97,21 @@ public class TopNOperator implements SingleInputOperator, ShrinkableOperator {
   private PriorityQueue priorityQueue;
   private Copier copier;
 
+  // used to determine whether we should spill.
+  private long spillThreshold;
+  private int recordsInQueue;
+
+  // used once the operator has spilled, null otherwise.
+  private long recordsOutput;
+  private BufferAllocator spillCopyAllocator;
+  private DiskRunManager diskRuns;
+  private PriorityQueueCopier mergeCopier;
+
   public TopNOperator(OperatorContext context, TopN popConfig) {
     this.config = popConfig;
     this.context = context;
     this.batchPurgeThreshold = context.getConfig().getInt(ExecConstants.BATCH_PURGE_THRESHOLD);
+    this.spillEnabled = context.getOptions().getOption(ExecConstants.TOPN_SPILL_ENABLED);
   }
 
   @Override
@@ -104,6 +133,10 @@ public class TopNOperator implements SingleInputOperator, ShrinkableOperator {
     copier =
         CopierOperator.getGenerated4Copier(
             context.getClassProducer(), priorityQueue.getHyperBatch(), outgoing);
+    spillThreshold =
+        Math.min(
+            context.getAllocator().getLimit() / 2,
+            context.getOptions().getOption(ExecConstants.TOPN_SPILL_MAX_MEMORY));
     state = State.CAN_CONSUME;
     return outgoing;
   }
@@ -112,11 +145,15 @@ public class TopNOperator implements SingleInputOperator, ShrinkableOperator {
   public void consumeData(int records) throws Exception {
 
     countSincePurge += incoming.getRecordCount();
+    recordsInQueue += incoming.getRecordCount();
     batchCount++;
 
     priorityQueue.add(new RecordBatchData(incoming, context.getAllocator()));
 
-    if (countSincePurge > config.getLimit() && batchCount > batchPurgeThreshold) {
+    if (spillEnabled && context.getAllocator().getAllocatedMemory() > spillThreshold) {
+      // the spill only copies out the records in the heap, no need to purge first.
+      spill();
+    } else if (countSincePurge > config.getLimit() && batchCount > batchPurgeThreshold) {
       purge();
       countSincePurge = 0;
       batchCount = 0;
@@ -127,6 +164,16 @@ public class TopNOperator implements SingleInputOperator, ShrinkableOperator {
   public void noMoreToConsume() throws Exception {
     state.is(State.CAN_CONSUME);
 
+    if (diskRuns != null) {
+      // only deal with disk runs from now on, they are merged in outputData().
+      if (recordsInQueue > 0) {
+        spill();
+      }
+      updateStats();
+      state = State.CAN_PRODUCE;
+      return;
+    }
+
     // get final order.
     priorityQueue.generate();
     finalOrder = priorityQueue.getFinalSv4();
@@ -143,6 +190,10 @@ public class TopNOperator implements SingleInputOperator, ShrinkableOperator {
   public int outputData() throws Exception {
     state.is(State.CAN_PRODUCE);
 
+    if (diskRuns != null) {
+      return outputFromDisk();
+    }
+
     if (batchesOutput > 0) {
       // only increment sv4 after first return
       final boolean hasMore = finalOrder.next();
@@ -168,6 +219,114 @@ public class TopNOperator implements SingleInputOperator, ShrinkableOperator {
     return outgoing.setAllCount(copied);
   }
 
+  private int outputFromDisk() {
+    if (mergeCopier == null) {
+      try {
+        if (!diskRuns.consolidateAsNecessary()) {
+          // merged some of the runs, try again on next call.
+          return 0;
+        }
+        mergeCopier = diskRuns.createCopier();
+      } catch (UserException ex) {
+        throw ex;
+      } catch (Exception ex) {
+        throw UserException.dataReadError(ex)
+            .message("Failure while attempting to read spilled top-n data from disk.")
+            .build(logger);
+      }
+    }
+
+    // every run holds the first records of its part of the input, so the first limit records of
+    // the merge are the result and the rest of the runs does not need to be read.
+    final int toCopy =
+        (int) Math.min(config.getLimit() - recordsOutput, context.getTargetBatchSize());
+    final int copied = toCopy > 0 ? mergeCopier.copy(toCopy) : 0;
+    if (copied == 0) {
+      state = State.DONE;
+      return 0;
+    }
+
+    diskRuns.transferOut(outgoing, copied);
+    recordsOutput += copied;
+    batchesOutput++;
+    return outgoing.setAllCount(copied);
+  }
+
+  /** Write the records of the heap to disk as a sorted run and start over with an empty heap. */
+  private void spill() throws Exception {
+    if (diskRuns == null) {
+      createDiskRuns();
+    }
+
+    if (recordsInQueue > 0) {
+      priorityQueue.generate();
+      final Sv4HyperContainer run = priorityQueue.getHyperBatch();
+      run.setSelectionVector4(priorityQueue.getFinalSv4());
+      try {
+        // closes the hyper batch along with its selection vector.
+        diskRuns.spill(run, spillCopyAllocator);
+      } catch (UserException ex) {
+        throw ex;
+      } catch (Exception ex) {
+        throw UserException.dataWriteError(ex)
+            .message("Failure while attempting to spill top-n data to disk.")
+            .build(logger);
+      }
+    }
+
+    priorityQueue.close();
+    priorityQueue = createNewPriorityQueue(context.getClassProducer(), config.getOrderings());
+    recordsInQueue = 0;
+    countSincePurge = 0;
+    batchCount = 0;
+  }
+
+  private void createDiskRuns() throws Exception {
+    final OptionManager options = context.getOptions();
+    final BatchSchema schema = outgoing.getSchema();
+    final int targetBatchSize = context.getTargetBatchSize();
+    final int estimatedRecordSize =
+        schema.estimateRecordSize(
+            (int) options.getOption(ExecConstants.BATCH_LIST_SIZE_ESTIMATE),
+            (int) options.getOption(ExecConstants.BATCH_VARIABLE_FIELD_SIZE_ESTIMATE));
+
+    spillCopyAllocator =
+        context
+            .getAllocator()
+            .newChildAllocator("topn-spill-copy", SPILL_COPY_RESERVATION, Long.MAX_VALUE);
+    diskRuns =
+        new DiskRunManager(
+            context.getConfig(),
+            options,
+            targetBatchSize,
+            targetBatchSize * estimatedRecordSize,
+            context.getFragmentHandle(),
+            getOperatorId(),
+            context.getClassProducer(),
+            context.getAllocator(),
+            config.getOrderings(),
+            schema,
+            options.getOption(ExecConstants.EXTERNAL_SORT_COMPRESS_SPILL_FILES),
+            new VectorSortTracer(),
+            context.getSpillService(),
+            context.getStats(),
+            context.getExecutionControls());
+    logger.debug("Top-n operator {} is spilling its heap to disk", getOperatorId());
+  }
+
+  private void updateStats() {
+    if (diskRuns == null) {
+      return;
+    }
+    final OperatorStats stats = context.getStats();
+    stats.setLongStat(TopNStats.Metric.SPILLED, 1);
+    stats.setLongStat(TopNStats.Metric.SPILL_COUNT, diskRuns.spillCount());
+    stats.setLongStat(TopNStats.Metric.SPILL_TIME_NANOS, diskRuns.spillTimeNanos());
+    stats.setLongStat(TopNStats.Metric.MERGE_COUNT, diskRuns.mergeCount());
+    stats.setLongStat(TopNStats.Metric.MERGE_TIME_NANOS, diskRuns.mergeTimeNanos());
+    stats.setLongStat(TopNStats.Metric.TOTAL_SPILLED_DATA_SIZE, diskRuns.getIOWriteBytes());
+  }
+
   private void purge() throws SchemaChangeException {
     final Stopwatch watch = Stopwatch.createStarted();
 
@@ -290,6 +449,11 @@ public class TopNOperator implements SingleInputOperator, ShrinkableOperator {
     if (state != State.CAN_CONSUME) {
       return 0;
     }
+    if (spillEnabled && recordsInQueue > 0) {
+      // the whole heap can go to disk.
+      return context.getAllocator().getAllocatedMemory();
+    }
+
     long shrinkableMemory = 0;
 
     if (countSincePurge > config.getLimit()) {
@@ -306,6 +470,10 @@ public class TopNOperator implements SingleInputOperator, ShrinkableOperator {
     if (state != State.CAN_CONSUME) {
       return true;
     }
+    if (spillEnabled && recordsInQueue > 0) {
+      spill();
+      return true;
+    }
     if (countSincePurge > config.getLimit()) {
       purge();
       countSincePurge = 0;
@@ -322,7 +490,9 @@ public class TopNOperator implements SingleInputOperator, ShrinkableOperator {
 
   @Override
   public void close() throws Exception {
-    AutoCloseables.close(outgoing, finalOrder, priorityQueue, copier);
+    updateStats();
+    AutoCloseables.close(
+        outgoing, finalOrder, priorityQueue, copier, mergeCopier, diskRuns, spillCopyAllocator);
   }
 
   public static class TopNCreator implements SingleInputOperator.Creator<TopN> {
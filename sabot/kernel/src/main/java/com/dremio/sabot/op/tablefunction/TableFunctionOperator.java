@@ -61,7 +61,14 @@ public class TableFunctionOperator implements SingleInputOperator {
     START_CLUSTERING_DEPTH, // Clustering depth before optimization
     ESTIMATED_END_CLUSTERING_DEPTH, // Estimated clustering depth after optimization
     NUM_OVERLAPS, // Number of detected overlaps
-    CLUSTERING_STATUS_SENT // clusteringStatus OOB message is sent
+    CLUSTERING_STATUS_SENT, // clusteringStatus OOB message is sent
+    NUM_ASYNC_FOOTER_READS, // Number of footers read ahead of the footer read table function
+    NUM_ASYNC_FOOTER_EXTRA_READS, // Number of footers larger than the guessed tail read
+    ASYNC_FOOTER_BYTES_P50, // Median footer size
+    ASYNC_FOOTER_BYTES_MAX, // Largest footer size
+    ASYNC_FOOTER_READ_LATENCY_P50_MS, // Median latency of a footer read
+    ASYNC_FOOTER_READ_LATENCY_P99_MS, // 99th percentile latency of a footer read
+    ASYNC_FOOTER_READ_LATENCY_MAX_MS // Largest latency of a footer read
   ;
 
     @Override
@@ -24,7 +24,6 @@ import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.record.VectorWrapper;
 import com.dremio.sabot.exec.context.FunctionContext;
 import com.dremio.sabot.exec.context.OperatorContext;
-import java.util.List;
 import javax.inject.Named;
 import org.apache.arrow.memory.ArrowBuf;
 import org.apache.arrow.vector.BaseValueVector;
@@ -43,10 +42,12 @@ public abstract class FrameSupportTemplate implements WindowFramer {
   protected FunctionContext context;
   private VectorAccessible container;
   private VectorContainer internal;
-  private List<VectorContainer> batches;
+  private SpillableBatchList batches;
   private int outputCount; // number of rows in currently/last processed batch
 
   private VectorContainer current;
+  // batch the last value of the frame is read from, pinned as the value may be read in later calls
+  private VectorContainer lastValueBatch;
 
   private int frameLastRow;
 
@@ -68,7 +69,7 @@ public abstract class FrameSupportTemplate implements WindowFramer {
 
   @Override
   public void setup(
-      final List<VectorContainer> batches,
+      final SpillableBatchList batches,
       final VectorAccessible container,
       final OperatorContext oContext,
       final boolean requireFullPartition,
@@ -176,7 +177,7 @@ public abstract class FrameSupportTemplate implements WindowFramer {
   }
 
   private int processROWS(int row) {
-    setupReadLastValue(current, container);
+    readLastValueFrom(currentBatchIndex);
     setupEvaluatePeer(current, container);
     Bound lowerBound = popConfig.getLowerBound();
     Bound upperBound = popConfig.getUpperBound();
@@ -270,20 +271,24 @@ public abstract class FrameSupportTemplate implements WindowFramer {
   private int getEndOffsetForNextBatch(int endOffset, int outputCount, int currentBatchIndex) {
     if (endOffset > outputCount) {
       endOffset = endOffset - outputCount;
-      VectorContainer next = getNextBatch(currentBatchIndex);
-      int currentEndOffset = endOffset;
-      if (next.getRecordCount() < endOffset) {
-        endOffset =
-            getEndOffsetForNextBatch(endOffset, next.getRecordCount(), currentBatchIndex + 1);
-        currentEndOffset = outputCount - 1;
-      } else {
-        // if endOffset is less than outputCount - last value will be here
-        setupReadLastValue(next, container);
-      }
-      setupEvaluatePeer(next, container);
-      while (currentEndOffset >= 0) {
-        evaluatePeer(currentEndOffset);
-        currentEndOffset--;
+      VectorContainer next = batches.pin(currentBatchIndex + 1);
+      try {
+        int currentEndOffset = endOffset;
+        if (next.getRecordCount() < endOffset) {
+          endOffset =
+              getEndOffsetForNextBatch(endOffset, next.getRecordCount(), currentBatchIndex + 1);
+          currentEndOffset = outputCount - 1;
+        } else {
+          // if endOffset is less than outputCount - last value will be here
+          readLastValueFrom(currentBatchIndex + 1);
+        }
+        setupEvaluatePeer(next, container);
+        while (currentEndOffset >= 0) {
+          evaluatePeer(currentEndOffset);
+          currentEndOffset--;
+        }
+      } finally {
+        batches.unpin(next);
       }
     }
     return endOffset;
@@ -292,7 +297,7 @@ public abstract class FrameSupportTemplate implements WindowFramer {
   private void processROWFromCurrentBatch(
       int row, int startOffset, int firstRow, int lastRow, int endOffset) {
     setupEvaluatePeer(current, container);
-    setupReadLastValue(current, container);
+    readLastValueFrom(currentBatchIndex);
     setupSaveFirstValue(current, internal);
     int currentOffset = Math.max(startOffset, firstRow);
     int endOffsetForCurrentBatch =
@@ -353,7 +358,17 @@ public abstract class FrameSupportTemplate implements WindowFramer {
 
   private void processROWFromPrevBatch(
       int row, int startOffset, int endOffset, int currentBatchIndex) {
-    VectorContainer previous = getPrevBatch(currentBatchIndex);
+    // older batches are accessed while processing this one
+    final VectorContainer previous = batches.pin(currentBatchIndex - 1);
+    try {
+      processROWFromPrevBatch(row, startOffset, endOffset, currentBatchIndex, previous);
+    } finally {
+      batches.unpin(previous);
+    }
+  }
+
+  private void processROWFromPrevBatch(
+      int row, int startOffset, int endOffset, int currentBatchIndex, VectorContainer previous) {
     // don't do anything if previous batch is closed
     if (previous.isNewSchema()) {
       return;
@@ -386,7 +401,7 @@ public abstract class FrameSupportTemplate implements WindowFramer {
     // last value can't be in this partition
     Bound end = popConfig.getUpperBound();
     if (end.getType().equals(BoundType.PRECEDING) && endOffset < 0 && !end.isUnbounded()) {
-      setupReadLastValue(previous, container);
+      readLastValueFrom(currentBatchIndex - 1);
       writeLastValue(targetEndOffset, row);
     }
     // process rows that are in the same partition
@@ -407,7 +422,17 @@ public abstract class FrameSupportTemplate implements WindowFramer {
 
   private void processROWFromNextBatch(
       int row, int startOffset, int endOffset, int currentBatchIndex) {
-    VectorContainer next = getNextBatch(currentBatchIndex);
+    // following batches are accessed while processing this one
+    final VectorContainer next = batches.pin(currentBatchIndex + 1);
+    try {
+      processROWFromNextBatch(row, startOffset, endOffset, currentBatchIndex, next);
+    } finally {
+      batches.unpin(next);
+    }
+  }
+
+  private void processROWFromNextBatch(
+      int row, int startOffset, int endOffset, int currentBatchIndex, VectorContainer next) {
     int nextRecordCount = next.getRecordCount();
     int lastRow = getLastRowIndex(nextRecordCount);
     int targetStartOffset = startOffset;
@@ -451,7 +476,7 @@ public abstract class FrameSupportTemplate implements WindowFramer {
     }
     // process last value if it's in this partition
     if (targetStartOffset <= endOffset && endOffset <= lastRow) {
-      setupReadLastValue(next, container);
+      readLastValueFrom(currentBatchIndex + 1);
       writeLastValue(targetStartOffset, row);
     }
   }
@@ -550,7 +575,7 @@ public abstract class FrameSupportTemplate implements WindowFramer {
     logger.trace("aggregating rows starting from {}", start);
 
     final boolean unboundedFollowing = popConfig.getUpperBound().isUnbounded();
-    VectorAccessible last = current;
+    int lastIndex = batchIndex;
     long length = 0;
     long lengthWithSamePeer = 0;
 
@@ -579,12 +604,12 @@ public abstract class FrameSupportTemplate implements WindowFramer {
         }
 
         evaluatePeer(row);
-        last = batch;
+        lastIndex = i;
         frameLastRow = row;
       }
     }
 
-    setupReadLastValue(last, container);
+    readLastValueFrom(lastIndex);
     return Pair.of(length, lengthWithSamePeer);
   }
 
@@ -596,12 +621,17 @@ public abstract class FrameSupportTemplate implements WindowFramer {
     return currentBatchIndex >= n;
   }
 
-  private VectorContainer getNextBatch(int currentBatchIndex) {
-    return batches.get(currentBatchIndex + 1);
-  }
-
-  private VectorContainer getPrevBatch(int currentBatchIndex) {
-    return batches.get(currentBatchIndex - 1);
+  /**
+   * Binds the last value to the given batch. The batch is kept in memory until the last value is
+   * bound to another batch, since rows may keep reading it across calls to {@link #doWork}.
+   */
+  private void readLastValueFrom(int batchIndex) {
+    final VectorContainer batch = batches.pin(batchIndex);
+    if (lastValueBatch != null) {
+      batches.unpin(lastValueBatch);
+    }
+    lastValueBatch = batch;
+    setupReadLastValue(batch, container);
   }
 
   private int getLastRowIndex(int count) {
@@ -617,6 +647,10 @@ public abstract class FrameSupportTemplate implements WindowFramer {
   @Override
   public void close() {
     logger.trace("clearing internal");
+    if (lastValueBatch != null) {
+      batches.unpin(lastValueBatch);
+      lastValueBatch = null;
+    }
     internal.clear();
   }
 
@@ -22,7 +22,6 @@ import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.record.VectorWrapper;
 import com.dremio.sabot.exec.context.FunctionContext;
 import com.dremio.sabot.exec.context.OperatorContext;
-import java.util.List;
 import javax.inject.Named;
 import org.apache.arrow.memory.ArrowBuf;
 import org.apache.arrow.vector.BaseValueVector;
@@ -41,7 +40,7 @@ public abstract class NoFrameSupportTemplate implements WindowFramer {
   private FunctionContext context;
   private VectorAccessible container;
   private VectorContainer internal;
-  private List<VectorContainer> batches;
+  private SpillableBatchList batches;
   private int outputCount; // number of rows in currently/last processed batch
 
   private VectorAccessible current;
@@ -55,7 +54,7 @@ public abstract class NoFrameSupportTemplate implements WindowFramer {
 
   @Override
   public void setup(
-      final List<VectorContainer> batches,
+      final SpillableBatchList batches,
       final VectorAccessible container,
       final OperatorContext oContext,
       final boolean requireFullPartition,
@@ -174,18 +173,22 @@ public abstract class NoFrameSupportTemplate implements WindowFramer {
   private void copyFromPastBatch(int row, int batchIndex) {
     // Check if there is a previous batch to process
     if (batchIndex > 0) {
-      // Get the previous batch
-      final VectorAccessible previousBatch = batches.get(batchIndex - 1);
-      // Update the count of rows skipped in the partition
-      partition.rowsInSkipedBatch = partition.rowsInSkipedBatch + previousBatch.getRecordCount();
-      // Recursively process the previous batch
-      copyFromPastBatch(row, batchIndex - 1);
-      // Revert the count of rows skipped in the partition after processing
-      partition.rowsInSkipedBatch = partition.rowsInSkipedBatch - previousBatch.getRecordCount();
-      // Set up the copy operation for the previous batch
-      setupCopyFromPastBatch(context, previousBatch, container);
-      // Perform the copy operation from the previous batch to the current batch
-      copyFromPastBatch(row, row, partition, previousBatch, current);
+      // Get the previous batch, it must stay in memory while the older batches are processed
+      final VectorContainer previousBatch = batches.pin(batchIndex - 1);
+      try {
+        // Update the count of rows skipped in the partition
+        partition.rowsInSkipedBatch = partition.rowsInSkipedBatch + previousBatch.getRecordCount();
+        // Recursively process the previous batch
+        copyFromPastBatch(row, batchIndex - 1);
+        // Revert the count of rows skipped in the partition after processing
+        partition.rowsInSkipedBatch = partition.rowsInSkipedBatch - previousBatch.getRecordCount();
+        // Set up the copy operation for the previous batch
+        setupCopyFromPastBatch(context, previousBatch, container);
+        // Perform the copy operation from the previous batch to the current batch
+        copyFromPastBatch(row, row, partition, previousBatch, current);
+      } finally {
+        batches.unpin(previousBatch);
+      }
     }
   }
 
@@ -200,18 +203,22 @@ public abstract class NoFrameSupportTemplate implements WindowFramer {
   private void copyFromNextBatch(int row, int batchIndex) {
     // Check if there is a next batch to process
     if (batchIndex + 1 < batches.size()) {
-      // Get the next batch
-      final VectorAccessible nextBatch = batches.get(batchIndex + 1);
-      // Update the count of rows skipped in the partition
-      partition.rowsInSkipedBatch = partition.rowsInSkipedBatch + nextBatch.getRecordCount();
-      // Recursively process the next batch
-      copyFromNextBatch(row, batchIndex + 1);
-      // Revert the count of rows skipped in the partition after processing
-      partition.rowsInSkipedBatch = partition.rowsInSkipedBatch - nextBatch.getRecordCount();
-      // Set up the copy operation for the next batch
-      setupCopyFromNextBatch(context, nextBatch, container);
-      // Perform the copy operation from the next batch to the current batch
-      copyFromNextBatch(row, row, partition, nextBatch, current);
+      // Get the next batch, it must stay in memory while the following batches are processed
+      final VectorContainer nextBatch = batches.pin(batchIndex + 1);
+      try {
+        // Update the count of rows skipped in the partition
+        partition.rowsInSkipedBatch = partition.rowsInSkipedBatch + nextBatch.getRecordCount();
+        // Recursively process the next batch
+        copyFromNextBatch(row, batchIndex + 1);
+        // Revert the count of rows skipped in the partition after processing
+        partition.rowsInSkipedBatch = partition.rowsInSkipedBatch - nextBatch.getRecordCount();
+        // Set up the copy operation for the next batch
+        setupCopyFromNextBatch(context, nextBatch, container);
+        // Perform the copy operation from the next batch to the current batch
+        copyFromNextBatch(row, row, partition, nextBatch, current);
+      } finally {
+        batches.unpin(nextBatch);
+      }
     }
   }
 
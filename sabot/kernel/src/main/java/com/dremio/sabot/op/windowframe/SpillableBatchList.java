@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.windowframe;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.common.exceptions.UserException;
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.exec.record.VectorWrapper;
+import com.dremio.sabot.op.sort.external.SpillManager;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillFile;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillInputStream;
+import com.dremio.sabot.op.sort.external.SpillManager.SpillOutputStream;
+import com.google.common.base.Preconditions;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.arrow.memory.BufferAllocator;
+
+/**
+ * Batches held by the window operator for the partitions being framed. When the operator runs low
+ * on memory, the least recently used batches are written to a spill file and their vectors are
+ * released; a spilled batch is read back into the same vectors the next time it is accessed, so the
+ * framers (and the code generated for them) keep working on the same containers.
+ *
+ * <p>A caller that keeps using a batch while it accesses other batches must {@link #pin} it for
+ * that long, and {@link #unpin} it once done. Batches around the current batch of the operator, the
+ * last batch and the most recently accessed batches are never spilled either.
+ */
+public class SpillableBatchList extends AbstractList<VectorContainer> implements AutoCloseable {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(SpillableBatchList.class);
+
+  // the framers look at most 2 batches back and one batch ahead of the current batch
+  private static final int PINNED_BEFORE_CURRENT = 2;
+  private static final int PINNED_AFTER_CURRENT = 1;
+  // batches accessed that recently may still be referenced by the caller, e.g. while it compares
+  // rows of a batch it just fetched with the current batch
+  private static final int PINNED_RECENT_ACCESSES = 2;
+
+  private final BufferAllocator allocator;
+  private final SpillManager spillManager;
+  private final long memoryLimit;
+  private final List<Entry> entries = new ArrayList<>();
+  private final IdentityHashMap<VectorContainer, Entry> entriesByContainer =
+      new IdentityHashMap<>();
+  // resident batches, least recently used first
+  private final LinkedHashSet<Entry> resident = new LinkedHashSet<>();
+  private final Set<Entry> pinned = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  private long accessCounter;
+  private long maxBatchSize;
+  private int nextFileId;
+
+  private long spillCount;
+  private long reloadCount;
+  private long spillNanos;
+  private long reloadNanos;
+  private int peakResidentBatches;
+
+  /**
+   * @param allocator allocator of the batch vectors
+   * @param spillManager spill manager used to page out batches, null to keep all batches in memory
+   * @param memoryLimit memory usage of the allocator above which batches are paged out
+   */
+  public SpillableBatchList(
+      BufferAllocator allocator, SpillManager spillManager, long memoryLimit) {
+    this.allocator = Preconditions.checkNotNull(allocator);
+    this.spillManager = spillManager;
+    this.memoryLimit = memoryLimit;
+  }
+
+  @Override
+  public boolean add(VectorContainer container) {
+    final Entry entry = new Entry(container, getBufferSize(container));
+    maxBatchSize = Math.max(maxBatchSize, entry.size);
+    entries.add(entry);
+    entriesByContainer.put(container, entry);
+    touch(entry);
+    peakResidentBatches = Math.max(peakResidentBatches, resident.size());
+    spillIfNecessary();
+    return true;
+  }
+
+  @Override
+  public VectorContainer get(int index) {
+    final Entry entry = entries.get(index);
+    if (!entry.isResident) {
+      reload(entry);
+    }
+    touch(entry);
+    spillIfNecessary();
+    return entry.container;
+  }
+
+  /**
+   * Returns the batch at the given index, and keeps it in memory until it is unpinned as many times
+   * as it was pinned.
+   */
+  public VectorContainer pin(int index) {
+    final Entry entry = entries.get(index);
+    if (!entry.isResident) {
+      reload(entry);
+    }
+    touch(entry);
+    entry.pinCount++;
+    spillIfNecessary();
+    return entry.container;
+  }
+
+  /** Releases a batch returned by {@link #pin}. Batches removed in the meantime are ignored. */
+  public void unpin(VectorContainer container) {
+    final Entry entry = entriesByContainer.get(container);
+    if (entry != null) {
+      Preconditions.checkState(entry.pinCount > 0, "Batch is not pinned");
+      entry.pinCount--;
+    }
+  }
+
+  public VectorContainer getLast() {
+    return get(entries.size() - 1);
+  }
+
+  /**
+   * Removes the batch from the list, along with its spill file. The caller is responsible for
+   * closing the container.
+   */
+  @Override
+  public VectorContainer remove(int index) {
+    final Entry entry = entries.remove(index);
+    entriesByContainer.remove(entry.container);
+    resident.remove(entry);
+    pinned.remove(entry);
+    deleteSpillFile(entry);
+    return entry.container;
+  }
+
+  @Override
+  public int size() {
+    return entries.size();
+  }
+
+  /** Protect the batches the operator is about to work on from being paged out. */
+  public void setCurrentIndex(int currentIndex) {
+    pinned.clear();
+    final int from = Math.max(0, currentIndex - PINNED_BEFORE_CURRENT);
+    final int to = Math.min(entries.size() - 1, currentIndex + PINNED_AFTER_CURRENT);
+    for (int i = from; i <= to; i++) {
+      pinned.add(entries.get(i));
+    }
+  }
+
+  public long getSpillCount() {
+    return spillCount;
+  }
+
+  public long getReloadCount() {
+    return reloadCount;
+  }
+
+  public long getSpillNanos() {
+    return spillNanos;
+  }
+
+  public long getReloadNanos() {
+    return reloadNanos;
+  }
+
+  public int getPeakResidentBatches() {
+    return peakResidentBatches;
+  }
+
+  private void touch(Entry entry) {
+    entry.lastAccess = ++accessCounter;
+    // move to the most recently used end
+    resident.remove(entry);
+    resident.add(entry);
+  }
+
+  private void spillIfNecessary() {
+    if (spillManager == null) {
+      return;
+    }
+    while (allocator.getAllocatedMemory() + maxBatchSize > memoryLimit) {
+      final Entry victim = findVictim();
+      if (victim == null) {
+        // everything left in memory is needed by the framers
+        return;
+      }
+      spill(victim);
+    }
+  }
+
+  private Entry findVictim() {
+    final Entry last = entries.isEmpty() ? null : entries.get(entries.size() - 1);
+    final Iterator<Entry> iterator = resident.iterator();
+    while (iterator.hasNext()) {
+      final Entry entry = iterator.next();
+      if (entry.lastAccess > accessCounter - PINNED_RECENT_ACCESSES) {
+        // entries are ordered by access, none of the remaining ones can be spilled
+        return null;
+      }
+      if (entry != last && entry.pinCount == 0 && !pinned.contains(entry)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private void spill(Entry entry) {
+    final long startNanos = System.nanoTime();
+    // batches are never modified once added, so a batch is written at most once
+    if (entry.spillFile == null) {
+      final SpillFile spillFile = spillManager.getSpillFile("window-" + nextFileId++);
+      try (SpillOutputStream output = spillFile.create(true)) {
+        output.writeBatch(entry.container);
+      } catch (Exception ex) {
+        AutoCloseables.close(ex, spillFile);
+        throw UserException.dataWriteError(ex)
+            .message("Failure while attempting to spill window data to disk.")
+            .build(logger);
+      }
+      entry.spillFile = spillFile;
+      spillCount++;
+    }
+    entry.container.zeroVectors();
+    entry.isResident = false;
+    resident.remove(entry);
+    spillNanos += System.nanoTime() - startNanos;
+    logger.debug("Spilled window batch of {} bytes to {}", entry.size, entry.spillFile.getPath());
+  }
+
+  private void reload(Entry entry) {
+    final long startNanos = System.nanoTime();
+    try (SpillInputStream input = entry.spillFile.open(true)) {
+      input.load(entry.container, allocator);
+    } catch (Exception ex) {
+      throw UserException.dataReadError(ex)
+          .message("Failure while attempting to read window spill data from disk.")
+          .build(logger);
+    }
+    entry.isResident = true;
+    reloadCount++;
+    reloadNanos += System.nanoTime() - startNanos;
+    peakResidentBatches = Math.max(peakResidentBatches, resident.size() + 1);
+  }
+
+  private void deleteSpillFile(Entry entry) {
+    if (entry.spillFile == null) {
+      return;
+    }
+    try {
+      entry.spillFile.close();
+    } catch (Exception ex) {
+      logger.warn("Failed to delete window spill file {}", entry.spillFile.getPath(), ex);
+    }
+    entry.spillFile = null;
+  }
+
+  private static long getBufferSize(VectorContainer container) {
+    long size = 0;
+    for (VectorWrapper<?> wrapper : container) {
+      size += wrapper.getValueVector().getBufferSize();
+    }
+    return size;
+  }
+
+  /** Closes all the batches and deletes their spill files. */
+  @Override
+  public void close() throws Exception {
+    final List<AutoCloseable> closeables = new ArrayList<>();
+    for (Entry entry : entries) {
+      closeables.add(entry.container);
+      closeables.add(entry.spillFile);
+    }
+    entries.clear();
+    entriesByContainer.clear();
+    resident.clear();
+    pinned.clear();
+    AutoCloseables.close(closeables);
+  }
+
+  private static final class Entry {
+    private final VectorContainer container;
+    private final long size;
+    private SpillFile spillFile;
+    private boolean isResident = true;
+    private long lastAccess;
+    private int pinCount;
+
+    private Entry(VectorContainer container, long size) {
+      this.container = container;
+      this.size = size;
+    }
+  }
+}
@@ -23,6 +23,7 @@ import com.dremio.common.expression.FunctionCall;
 import com.dremio.common.expression.LogicalExpression;
 import com.dremio.common.logical.data.NamedExpression;
 import com.dremio.common.logical.data.Order;
+import com.dremio.common.utils.protos.QueryIdHelper;
 import com.dremio.exec.ExecConstants;
 import com.dremio.exec.compile.TemplateClassDefinition;
 import com.dremio.exec.compile.sig.GeneratorMapping;
@@ -35,12 +36,15 @@ import com.dremio.exec.expr.fn.FunctionGenerationHelper;
 import com.dremio.exec.physical.config.WindowPOP;
 import com.dremio.exec.physical.config.WindowPOP.Bound;
 import com.dremio.exec.physical.config.WindowPOP.BoundType;
+import com.dremio.exec.proto.ExecProtos;
 import com.dremio.exec.record.TypedFieldId;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.record.VectorWrapper;
 import com.dremio.sabot.exec.context.OperatorContext;
+import com.dremio.sabot.exec.context.OperatorStats;
 import com.dremio.sabot.op.join.vhash.spill.slicer.CombinedSizer;
+import com.dremio.sabot.op.sort.external.SpillManager;
 import com.dremio.sabot.op.spi.SingleInputOperator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
@@ -49,8 +53,6 @@ import com.sun.codemodel.JExpr;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.function.Consumer;
 import org.apache.arrow.memory.ArrowBuf;
@@ -70,13 +72,14 @@ public class WindowFrameOperator implements SingleInputOperator {
   private final OperatorContext context;
   private final List<WindowFunction> functions = Lists.newArrayList();
   private final WindowPOP config;
-  private final LinkedList<VectorContainer> batches = new LinkedList<>();
+  private SpillableBatchList batches;
 
   private VectorAccessible incoming;
   private VectorContainer outgoing;
   private ImmutableList<TransferPair> transfers;
 
   private State state = State.NEEDS_SETUP;
+  private SpillManager spillManager;
   private WindowFramer[] framers;
   private boolean noMoreToConsume;
 
@@ -106,6 +109,7 @@ public class WindowFrameOperator implements SingleInputOperator {
 
     incoming = accessible;
     outgoing = context.createOutputVectorContainer();
+    batches = createBatchList();
     createFramers(incoming);
     outgoing.buildSchema();
     outgoing.setInitialCapacity(context.getTargetBatchSize());
@@ -131,6 +135,34 @@ public class WindowFrameOperator implements SingleInputOperator {
     return outgoing;
   }
 
+  private SpillableBatchList createBatchList() {
+    if (!context.getOptions().getOption(ExecConstants.WINDOW_SPILL_ENABLED)) {
+      return new SpillableBatchList(context.getAllocator(), null, Long.MAX_VALUE);
+    }
+    final ExecProtos.FragmentHandle handle = context.getFragmentHandle();
+    final String id =
+        String.format(
+            "window-%s.%s.%s.%s",
+            QueryIdHelper.getQueryId(handle.getQueryId()),
+            handle.getMajorFragmentId(),
+            handle.getMinorFragmentId(),
+            config.getProps().getOperatorId());
+    spillManager =
+        new SpillManager(
+            context.getConfig(),
+            context.getOptions(),
+            id,
+            null,
+            context.getSpillService(),
+            "window spilling",
+            context.getStats());
+    final long memoryLimit =
+        Math.min(
+            context.getAllocator().getLimit(),
+            context.getOptions().getOption(ExecConstants.WINDOW_SPILL_MAX_MEMORY));
+    return new SpillableBatchList(context.getAllocator(), spillManager, memoryLimit);
+  }
+
   private boolean isVarLenAggregatePresent() {
     for (final NamedExpression ne : config.getAggregations()) {
       final TypedFieldId outputId = outgoing.getValueVectorId(ne.getRef());
@@ -211,6 +243,7 @@ public class WindowFrameOperator implements SingleInputOperator {
   }
 
   private int doWork() throws Exception {
+    batches.setCurrentIndex(currentBatchIndex);
     final VectorContainer current = batches.get(currentBatchIndex);
     final int recordCount = current.getRecordCount();
 
@@ -266,6 +299,7 @@ public class WindowFrameOperator implements SingleInputOperator {
       currentBatchIndex = 0;
     }
 
+    batches.setCurrentIndex(currentBatchIndex);
     logger.trace("doWork() END");
     return recordCount;
   }
@@ -296,13 +330,12 @@ public class WindowFrameOperator implements SingleInputOperator {
     // current
     // if current batch is the last one - close all batches, otherwise close all batches before
     // current
-    Iterator<VectorContainer> iterator = batches.iterator();
+    // remove from the head of the list directly, so that spilled batches are not read back
     int limit = isLastBatch ? currentBatchIndex : currentBatchIndex - 1;
     int index = 0;
-    while (iterator.hasNext() && index <= limit) {
-      VectorContainer current = iterator.next();
+    while (!batches.isEmpty() && index <= limit) {
+      VectorContainer current = batches.remove(0);
       current.close();
-      iterator.remove();
       currentBatchIndex--;
       index++;
     }
@@ -550,12 +583,16 @@ public class WindowFrameOperator implements SingleInputOperator {
 
   @Override
   public void close() throws Exception {
+    if (batches != null) {
+      updateStats();
+    }
     List<AutoCloseable> closeables = new ArrayList<>();
     closeables.add(outgoing);
     if (framers != null) {
       closeables.addAll(Arrays.asList(framers));
     }
-    closeables.addAll(batches);
+    closeables.add(batches);
+    closeables.add(spillManager);
     AutoCloseables.close(closeables);
     if (rowSizeAccumulator != null) {
       rowSizeAccumulator.close();
@@ -563,6 +600,16 @@ public class WindowFrameOperator implements SingleInputOperator {
     }
   }
 
+  private void updateStats() {
+    final OperatorStats stats = context.getStats();
+    stats.setLongStat(WindowFrameStats.Metric.SPILL_COUNT, batches.getSpillCount());
+    stats.setLongStat(WindowFrameStats.Metric.RELOAD_COUNT, batches.getReloadCount());
+    stats.setLongStat(WindowFrameStats.Metric.SPILL_NANOS, batches.getSpillNanos());
+    stats.setLongStat(WindowFrameStats.Metric.RELOAD_NANOS, batches.getReloadNanos());
+    stats.setLongStat(
+        WindowFrameStats.Metric.PEAK_BATCHES_IN_MEMORY, batches.getPeakResidentBatches());
+  }
+
   public static class Creator implements SingleInputOperator.Creator<WindowPOP> {
 
     @Override
@@ -19,10 +19,8 @@ import com.dremio.exec.compile.TemplateClassDefinition;
 import com.dremio.exec.exception.SchemaChangeException;
 import com.dremio.exec.physical.config.WindowPOP;
 import com.dremio.exec.record.VectorAccessible;
-import com.dremio.exec.record.VectorContainer;
 import com.dremio.sabot.exec.context.FunctionContext;
 import com.dremio.sabot.exec.context.OperatorContext;
-import java.util.List;
 import javax.inject.Named;
 
 public interface WindowFramer extends AutoCloseable {
@@ -32,7 +30,7 @@ public interface WindowFramer extends AutoCloseable {
       new TemplateClassDefinition<>(WindowFramer.class, FrameSupportTemplate.class);
 
   void setup(
-      final List<VectorContainer> batches,
+      final SpillableBatchList batches,
       final VectorAccessible container,
       final OperatorContext operatorContext,
       final boolean requireFullPartition,
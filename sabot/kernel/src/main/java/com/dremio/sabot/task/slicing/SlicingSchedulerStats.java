@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import com.dremio.sabot.task.SchedulerStats;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link SchedulerStats} of the {@link SlicingTaskPool}. Reports, per slicing thread, the current
+ * and maximum run queue depth, the number of quanta and task slices run and the number of work
+ * steals since the last time the stats were cleared.
+ */
+public class SlicingSchedulerStats implements SchedulerStats {
+
+  private final SlicingThread[] threads;
+
+  SlicingSchedulerStats(SlicingThread[] threads) {
+    this.threads = threads;
+  }
+
+  @Override
+  public boolean currentlyIdleAndHasStats() {
+    boolean hasStats = false;
+    for (SlicingThread thread : threads) {
+      if (thread.getLoad() > 0) {
+        return false;
+      }
+      final ThreadStats stats = thread.snapshotStats();
+      hasStats |= stats.quantaRun > 0;
+    }
+    return hasStats;
+  }
+
+  @Override
+  public String getStats(boolean force) {
+    final List<ThreadStats> allStats = new ArrayList<>(threads.length);
+    long totalQuanta = 0;
+    for (SlicingThread thread : threads) {
+      final ThreadStats stats = thread.snapshotStats();
+      totalQuanta += stats.quantaRun;
+      allStats.add(stats);
+    }
+    if (!force && totalQuanta == 0) {
+      return "";
+    }
+
+    final StringBuilder sb = new StringBuilder("Slicing scheduler stats:");
+    for (ThreadStats stats : allStats) {
+      sb.append(System.lineSeparator()).append(stats);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  public void clearStats() {
+    getAndClearThreadStats();
+  }
+
+  /**
+   * @return a snapshot of the per thread stats, clearing them
+   */
+  List<ThreadStats> getAndClearThreadStats() {
+    final List<ThreadStats> allStats = new ArrayList<>(threads.length);
+    for (SlicingThread thread : threads) {
+      allStats.add(thread.snapshotAndClearStats());
+    }
+    return allStats;
+  }
+
+  /**
+   * @return a snapshot of the per thread stats, without clearing them
+   */
+  public List<ThreadStats> getThreadStats() {
+    final List<ThreadStats> allStats = new ArrayList<>(threads.length);
+    for (SlicingThread thread : threads) {
+      allStats.add(thread.snapshotStats());
+    }
+    return allStats;
+  }
+
+  /** Stats of a single slicing thread */
+  public static final class ThreadStats {
+    public final int slicingThreadId;
+    public final int runQueueDepth;
+    public final int maxRunQueueDepth;
+    public final long quantaRun;
+    public final long tasksRun;
+    public final long steals;
+    public final long stolenFrom;
+    public final long failedStealAttempts;
+
+    ThreadStats(
+        int slicingThreadId,
+        int runQueueDepth,
+        int maxRunQueueDepth,
+        long quantaRun,
+        long tasksRun,
+        long steals,
+        long stolenFrom,
+        long failedStealAttempts) {
+      this.slicingThreadId = slicingThreadId;
+      this.runQueueDepth = runQueueDepth;
+      this.maxRunQueueDepth = maxRunQueueDepth;
+      this.quantaRun = quantaRun;
+      this.tasksRun = tasksRun;
+      this.steals = steals;
+      this.stolenFrom = stolenFrom;
+      this.failedStealAttempts = failedStealAttempts;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "e%d: queue=%d maxQueue=%d quanta=%d slices=%d steals=%d stolenFrom=%d failedSteals=%d",
+          slicingThreadId,
+          runQueueDepth,
+          maxRunQueueDepth,
+          quantaRun,
+          tasksRun,
+          steals,
+          stolenFrom,
+          failedStealAttempts);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import com.dremio.sabot.task.AsyncTaskWrapper;
+import com.dremio.sabot.task.SchedulingGroup;
+import com.dremio.sabot.task.TaskManager;
+import com.dremio.sabot.task.TaskManager.TaskHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hierarchical scheduling group used by the {@link SlicingTaskPool}.<br>
+ * Each group only keeps track of the total weight of its active children (tasks and sub-groups that
+ * still have unfinished tasks), so the CPU share of a task can be computed as the product of its
+ * relative weight at each level of the hierarchy.
+ */
+class SlicingSchedulingGroup implements SchedulingGroup<AsyncTaskWrapper> {
+
+  private final SlicingTaskPool pool;
+  private final SlicingSchedulingGroup parent;
+  private final long weight;
+  private final boolean weightBasedScheduler;
+
+  private final AtomicLong activeChildWeight = new AtomicLong();
+  private final AtomicInteger activeChildren = new AtomicInteger();
+
+  SlicingSchedulingGroup(
+      SlicingTaskPool pool,
+      SlicingSchedulingGroup parent,
+      long weight,
+      boolean weightBasedScheduler) {
+    this.pool = pool;
+    this.parent = parent;
+    this.weight = clampWeight(weight);
+    this.weightBasedScheduler = weightBasedScheduler;
+  }
+
+  @Override
+  public SchedulingGroup<AsyncTaskWrapper> addGroup(long weight, boolean weightBasedScheduler) {
+    return new SlicingSchedulingGroup(pool, this, weight, weightBasedScheduler);
+  }
+
+  @Override
+  public TaskHandle<AsyncTaskWrapper> addTask(AsyncTaskWrapper task, long weight) {
+    return pool.addTask(this, task, weightBasedScheduler ? clampWeight(weight) : 1);
+  }
+
+  long getWeight() {
+    return weight;
+  }
+
+  /**
+   * Computes the fraction of the CPU a task with the given weight is entitled to within this group
+   * hierarchy.
+   *
+   * @param taskWeight weight of the task, as registered with {@link #activate(long)}
+   * @return a value in (0, 1]
+   */
+  double share(long taskWeight) {
+    double share = (double) taskWeight / Math.max(activeChildWeight.get(), taskWeight);
+    for (SlicingSchedulingGroup g = this; g.parent != null; g = g.parent) {
+      share *= (double) g.weight / Math.max(g.parent.activeChildWeight.get(), g.weight);
+    }
+    return share;
+  }
+
+  /** Registers an active child (task or sub-group) with the given weight */
+  void activate(long childWeight) {
+    if (activeChildren.getAndIncrement() == 0 && parent != null) {
+      parent.activate(weight);
+    }
+    activeChildWeight.addAndGet(childWeight);
+  }
+
+  /** Unregisters an active child previously registered with {@link #activate(long)} */
+  void deactivate(long childWeight) {
+    activeChildWeight.addAndGet(-childWeight);
+    if (activeChildren.decrementAndGet() == 0 && parent != null) {
+      parent.deactivate(weight);
+    }
+  }
+
+  private static long clampWeight(long weight) {
+    return Math.max(1, Math.min(weight, TaskManager.MAX_WEIGHT));
+  }
+}
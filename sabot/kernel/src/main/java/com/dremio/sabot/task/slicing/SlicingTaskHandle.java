@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import com.dremio.sabot.task.AsyncTaskWrapper;
+import com.dremio.sabot.task.TaskManager.TaskHandle;
+
+/**
+ * {@link TaskHandle} of a task scheduled by the {@link SlicingTaskPool}. Keeps the task's virtual
+ * runtime, which is used to order the run queues.
+ */
+final class SlicingTaskHandle implements TaskHandle<AsyncTaskWrapper> {
+
+  private final SlicingTaskPool pool;
+  private final SlicingSchedulingGroup group;
+  private final AsyncTaskWrapper task;
+  private final long weight;
+
+  // only updated by the slicing thread owning the task, or under the run queue lock
+  private double vruntime;
+  private volatile int thread = -1;
+
+  SlicingTaskHandle(
+      SlicingTaskPool pool, SlicingSchedulingGroup group, AsyncTaskWrapper task, long weight) {
+    this.pool = pool;
+    this.group = group;
+    this.task = task;
+    this.weight = weight;
+  }
+
+  @Override
+  public AsyncTaskWrapper getTask() {
+    return task;
+  }
+
+  @Override
+  public void reEnqueue() {
+    pool.enqueue(this, thread);
+  }
+
+  @Override
+  public int getThread() {
+    return thread;
+  }
+
+  @Override
+  public int getCurrentTaskLoad() {
+    final int current = thread;
+    return current < 0 ? 0 : pool.getThreadLoad(current);
+  }
+
+  SlicingSchedulingGroup getGroup() {
+    return group;
+  }
+
+  long getWeight() {
+    return weight;
+  }
+
+  double getVruntime() {
+    return vruntime;
+  }
+
+  void setVruntime(double vruntime) {
+    this.vruntime = vruntime;
+  }
+
+  void setThread(int thread) {
+    this.thread = thread;
+  }
+
+  /**
+   * Charges the task for the time it just spent running. The charge is inversely proportional to
+   * the task's current share of the CPU, so tasks belonging to lighter or more crowded groups age
+   * faster.
+   *
+   * @param runtimeNanos time spent running
+   */
+  void charge(long runtimeNanos) {
+    vruntime += runtimeNanos / group.share(weight);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s (thread %d)", task.getState(), thread);
+  }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import com.dremio.common.VM;
+import com.dremio.config.DremioConfig;
+import com.dremio.exec.ExecConstants;
+import com.dremio.options.OptionManager;
+import com.dremio.sabot.task.AsyncTaskWrapper;
+import com.dremio.sabot.task.GroupManager;
+import com.dremio.sabot.task.SchedulingGroup;
+import com.dremio.sabot.task.TaskManager;
+import com.dremio.sabot.task.TaskMonitor;
+import com.dremio.sabot.task.TaskMonitorObserver;
+import com.dremio.sabot.task.TaskPool;
+import com.dremio.sabot.task.TaskPoolFactory;
+import com.dremio.telemetry.api.metrics.MeterProviders;
+import com.dremio.telemetry.api.metrics.SimpleCounter;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A task pool that multiplexes all tasks on a fixed number of slicing threads (one per core by
+ * default).<br>
+ * <br>
+ * Each slicing thread owns a run queue ordered by virtual runtime. Tasks run for at most one
+ * quantum before being switched out, and are charged for the time they ran in inverse proportion to
+ * their share of the CPU, computed from the weights of the {@link SchedulingGroup} hierarchy they
+ * belong to. Idle threads steal work from the most loaded run queue.
+ *
+ * <p>Select it by setting {@link com.dremio.sabot.task.TaskPools#DREMIO_TASK_POOL_FACTORY_CLASS} to
+ * {@code com.dremio.sabot.task.slicing.SlicingTaskPool$Factory}.
+ */
+public class SlicingTaskPool implements TaskPool {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(SlicingTaskPool.class);
+
+  private static final String METRIC_PREFIX = "exec.slicing";
+
+  /** Factory for {@code SlicingTaskPool} */
+  public static final class Factory implements TaskPoolFactory {
+    @Override
+    public TaskPool newInstance(OptionManager options, DremioConfig config) {
+      int numThreads = (int) options.getOption(ExecConstants.SLICING_NUM_THREADS);
+      if (numThreads == 0) {
+        numThreads = VM.availableProcessors();
+      }
+      final SlicingTaskPool pool =
+          new SlicingTaskPool(
+              numThreads,
+              TimeUnit.MILLISECONDS.toNanos(options.getOption(ExecConstants.SLICING_QUANTUM_MS)),
+              options.getOption(ExecConstants.SLICING_MONITOR_INTERVAL_MS));
+      pool.registerMetrics();
+      return pool;
+    }
+  }
+
+  private final SlicingThread[] threads;
+  private final SlicingSchedulingGroup rootGroup;
+  private final SlicingSchedulerStats schedulerStats;
+  private final SlicingTaskMonitor taskMonitor;
+  private final GroupManager<AsyncTaskWrapper> groupManager;
+  private volatile boolean closed;
+
+  private SimpleCounter quantaCounter;
+  private SimpleCounter stealsCounter;
+
+  public SlicingTaskPool(int numThreads, long quantumNanos, long monitorIntervalMs) {
+    Preconditions.checkArgument(numThreads > 0, "At least one slicing thread is required");
+    this.rootGroup = new SlicingSchedulingGroup(this, null, TaskManager.MAX_WEIGHT, true);
+    this.groupManager = weight -> rootGroup.addGroup(weight);
+    this.threads = new SlicingThread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      threads[i] = new SlicingThread(this, i, quantumNanos);
+    }
+    this.schedulerStats = new SlicingSchedulerStats(threads);
+    this.taskMonitor = new SlicingTaskMonitor(monitorIntervalMs);
+    for (SlicingThread thread : threads) {
+      thread.start();
+    }
+    logger.info("Started slicing task pool with {} threads", numThreads);
+  }
+
+  private void registerMetrics() {
+    MeterProviders.newGauge(
+        Joiner.on(".").join(METRIC_PREFIX, "run_queue_depth"),
+        "Number of runnable tasks waiting in the slicing threads' run queues",
+        this::getNumQueuedTasks);
+    quantaCounter =
+        SimpleCounter.of(
+            Joiner.on(".").join(METRIC_PREFIX, "quanta"),
+            "Number of scheduling quanta run by the slicing threads");
+    stealsCounter =
+        SimpleCounter.of(
+            Joiner.on(".").join(METRIC_PREFIX, "steals"),
+            "Number of tasks stolen by idle slicing threads");
+  }
+
+  @Override
+  public void execute(AsyncTaskWrapper task) {
+    final SchedulingGroup<AsyncTaskWrapper> group = task.getSchedulingGroup();
+    if (group instanceof SlicingSchedulingGroup) {
+      group.addTask(task, task.getTaskWeight());
+    } else {
+      // group created by another task pool, attach the task to the root
+      rootGroup.addTask(task, task.getTaskWeight());
+    }
+  }
+
+  TaskManager.TaskHandle<AsyncTaskWrapper> addTask(
+      SlicingSchedulingGroup group, AsyncTaskWrapper task, long weight) {
+    Preconditions.checkState(!closed, "Task pool is closed");
+    final SlicingTaskHandle handle = new SlicingTaskHandle(this, group, task, weight);
+    group.activate(weight);
+    task.setTaskHandle(handle);
+    enqueue(handle, -1);
+    return handle;
+  }
+
+  /**
+   * Adds a runnable task to a run queue. A task that was previously running keeps its thread, for
+   * cache locality, idle threads will steal it if that thread is busy.
+   *
+   * @param handle runnable task
+   * @param preferredThread thread the task last ran on, or -1
+   */
+  void enqueue(SlicingTaskHandle handle, int preferredThread) {
+    // don't let tasks that were blocked, or new tasks, accumulate credit over running tasks
+    handle.setVruntime(Math.max(handle.getVruntime(), minVruntime()));
+
+    final SlicingThread target =
+        preferredThread >= 0 ? threads[preferredThread] : leastLoadedThread();
+    target.offer(handle);
+    if (target.getLoad() > 1) {
+      wakeUpIdleThread();
+    }
+  }
+
+  /** Called by an idle thread to steal work from the most loaded thread */
+  SlicingTaskHandle steal(int thiefId) {
+    SlicingThread victim = null;
+    int victimQueueSize = 0;
+    for (SlicingThread thread : threads) {
+      final int queueSize = thread.getQueueSize();
+      if (thread.getSlicingThreadId() != thiefId && queueSize > victimQueueSize) {
+        victim = thread;
+        victimQueueSize = queueSize;
+      }
+    }
+    return victim == null ? null : victim.steal();
+  }
+
+  void taskDone(SlicingTaskHandle handle) {
+    handle.getGroup().deactivate(handle.getWeight());
+    try {
+      handle.getTask().getCleaner().close();
+    } catch (Exception e) {
+      logger.warn("Failure while cleaning up task {}", handle.getTask(), e);
+    }
+  }
+
+  int getThreadLoad(int thread) {
+    return threads[thread].getLoad();
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * @return the smallest virtual runtime currently being run by a busy thread
+   */
+  private double minVruntime() {
+    double min = Double.MAX_VALUE;
+    double max = 0;
+    for (SlicingThread thread : threads) {
+      final double vruntime = thread.getLastVruntime();
+      if (thread.getLoad() > 0) {
+        min = Math.min(min, vruntime);
+      }
+      max = Math.max(max, vruntime);
+    }
+    return min == Double.MAX_VALUE ? max : min;
+  }
+
+  private SlicingThread leastLoadedThread() {
+    // power of two choices: cheap and avoids herding on a single thread
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final SlicingThread first = threads[random.nextInt(threads.length)];
+    final SlicingThread second = threads[random.nextInt(threads.length)];
+    return first.getLoad() <= second.getLoad() ? first : second;
+  }
+
+  private void wakeUpIdleThread() {
+    for (SlicingThread thread : threads) {
+      if (thread.isIdle()) {
+        thread.wakeUpIfIdle();
+        return;
+      }
+    }
+  }
+
+  private int getNumQueuedTasks() {
+    int total = 0;
+    for (SlicingThread thread : threads) {
+      total += thread.getQueueSize();
+    }
+    return total;
+  }
+
+  public SlicingSchedulerStats getSchedulerStats() {
+    return schedulerStats;
+  }
+
+  @Override
+  public GroupManager<AsyncTaskWrapper> getGroupManager() {
+    return groupManager;
+  }
+
+  @Override
+  public TaskMonitor getTaskMonitor() {
+    return taskMonitor;
+  }
+
+  @Override
+  public Iterable<ThreadInfo> getSlicingThreads() {
+    final List<ThreadInfo> infos = new ArrayList<>(threads.length);
+    for (SlicingThread thread : threads) {
+      infos.add(
+          new ThreadInfo(
+              thread.getName(),
+              thread.getSlicingThreadId(),
+              -1,
+              -1,
+              thread.getLoad(),
+              0,
+              0,
+              thread.getId()));
+    }
+    return infos;
+  }
+
+  @Override
+  public boolean areAllThreadsAlive() {
+    for (SlicingThread thread : threads) {
+      if (!thread.isAlive()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void close() throws Exception {
+    closed = true;
+    taskMonitor.close();
+    for (SlicingThread thread : threads) {
+      thread.interrupt();
+    }
+    for (SlicingThread thread : threads) {
+      thread.join(TimeUnit.SECONDS.toMillis(1));
+    }
+  }
+
+  /** Periodically collects the scheduler stats and notifies the monitor observers */
+  private final class SlicingTaskMonitor implements TaskMonitor, AutoCloseable {
+    private final List<TaskMonitorObserver> observers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              final Thread t = new Thread(r, "slicing-task-monitor");
+              t.setDaemon(true);
+              return t;
+            });
+
+    SlicingTaskMonitor(long intervalMs) {
+      executor.scheduleWithFixedDelay(this::tick, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void tick() {
+      try {
+        if (logger.isDebugEnabled()) {
+          final String stats = schedulerStats.getStats(false);
+          if (!stats.isEmpty()) {
+            logger.debug(stats);
+          }
+        }
+        final List<SlicingSchedulerStats.ThreadStats> allStats =
+            schedulerStats.getAndClearThreadStats();
+        if (quantaCounter != null) {
+          for (SlicingSchedulerStats.ThreadStats stats : allStats) {
+            quantaCounter.increment(stats.quantaRun);
+            stealsCounter.increment(stats.steals);
+          }
+        }
+
+        for (TaskMonitorObserver observer : observers) {
+          observer.observeTaskMonitorEvent(true);
+        }
+      } catch (Throwable t) {
+        logger.warn("Failure while monitoring the slicing task pool", t);
+      }
+    }
+
+    @Override
+    public void addObserver(TaskMonitorObserver observer) {
+      observers.add(observer);
+    }
+
+    @Override
+    public void removeObserver(TaskMonitorObserver observer) {
+      observers.remove(observer);
+    }
+
+    @Override
+    public void close() {
+      executor.shutdownNow();
+    }
+  }
+}
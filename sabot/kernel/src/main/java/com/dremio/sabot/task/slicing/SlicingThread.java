@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import com.dremio.common.perf.StatsCollectionEligibilityRegistrar;
+import com.dremio.sabot.task.AsyncTaskWrapper;
+import com.dremio.sabot.task.BlockRun;
+import com.dremio.sabot.task.Task;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Executing thread of the {@link SlicingTaskPool}.<br>
+ * Each thread owns a run queue ordered by virtual runtime. The thread always picks the task with
+ * the smallest virtual runtime from its own queue, and steals from the other threads' queues when
+ * its own queue is empty.
+ */
+final class SlicingThread extends Thread {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(SlicingThread.class);
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final SlicingTaskPool pool;
+  private final int slicingThreadId;
+  private final long quantumNanos;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final PriorityQueue<SlicingTaskHandle> runQueue =
+      new PriorityQueue<>(Comparator.comparingDouble(SlicingTaskHandle::getVruntime));
+
+  // fast, lock-free view of the run queue, used for load balancing decisions
+  private volatile int queueSize;
+  private volatile boolean idle;
+  private volatile SlicingTaskHandle current;
+  // virtual runtime of the last task picked by this thread
+  private volatile double lastVruntime;
+
+  // stats
+  private final AtomicLong quantaRun = new AtomicLong();
+  private final AtomicLong tasksRun = new AtomicLong();
+  private final AtomicLong steals = new AtomicLong();
+  private final AtomicLong stolenFrom = new AtomicLong();
+  private final AtomicLong failedStealAttempts = new AtomicLong();
+  private volatile int maxQueueSize;
+
+  SlicingThread(SlicingTaskPool pool, int slicingThreadId, long quantumNanos) {
+    super("e" + slicingThreadId);
+    this.pool = pool;
+    this.slicingThreadId = slicingThreadId;
+    this.quantumNanos = quantumNanos;
+    setDaemon(true);
+  }
+
+  int getSlicingThreadId() {
+    return slicingThreadId;
+  }
+
+  /**
+   * @return number of tasks assigned to this thread, including the running one
+   */
+  int getLoad() {
+    return queueSize + (current != null ? 1 : 0);
+  }
+
+  int getQueueSize() {
+    return queueSize;
+  }
+
+  boolean isIdle() {
+    return idle;
+  }
+
+  double getLastVruntime() {
+    return lastVruntime;
+  }
+
+  /** Adds a runnable task to this thread's run queue, waking up the thread if it is idle */
+  void offer(SlicingTaskHandle handle) {
+    lock.lock();
+    try {
+      runQueue.add(handle);
+      queueSize = runQueue.size();
+      if (queueSize > maxQueueSize) {
+        maxQueueSize = queueSize;
+      }
+    } finally {
+      lock.unlock();
+    }
+    wakeUpIfIdle();
+  }
+
+  void wakeUpIfIdle() {
+    if (idle) {
+      LockSupport.unpark(this);
+    }
+  }
+
+  private SlicingTaskHandle poll() {
+    if (queueSize == 0) {
+      return null;
+    }
+    lock.lock();
+    try {
+      final SlicingTaskHandle handle = runQueue.poll();
+      queueSize = runQueue.size();
+      return handle;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Called by another, idle, thread to take over the most eligible task of this thread. Only
+   * succeeds if this thread is busy or has more than one queued task, so an idle thread woken up
+   * for a single task keeps it.
+   *
+   * @return stolen task, or null if nothing could be stolen
+   */
+  SlicingTaskHandle steal() {
+    final int size = queueSize;
+    if (size == 0 || (size == 1 && current == null) || !lock.tryLock()) {
+      return null;
+    }
+    try {
+      final SlicingTaskHandle handle = runQueue.poll();
+      queueSize = runQueue.size();
+      if (handle != null) {
+        stolenFrom.incrementAndGet();
+      }
+      return handle;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void run() {
+    StatsCollectionEligibilityRegistrar.addSelf();
+    while (!pool.isClosed()) {
+      // put try inside the run loop so we don't lose threads with uncaught exceptions.
+      try {
+        SlicingTaskHandle handle = poll();
+        if (handle == null) {
+          handle = pool.steal(slicingThreadId);
+          if (handle != null) {
+            steals.incrementAndGet();
+          } else {
+            failedStealAttempts.incrementAndGet();
+          }
+        }
+
+        if (handle == null) {
+          idle = true;
+          // recheck after publishing the idle flag, offer() checks it after publishing the size
+          if (queueSize == 0) {
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+          }
+          idle = false;
+          continue;
+        }
+
+        runQuantum(handle);
+      } catch (Throwable t) {
+        logger.error("Unhandled Exception in slicing thread {}.", getName(), t);
+      }
+    }
+  }
+
+  private void runQuantum(SlicingTaskHandle handle) {
+    final AsyncTaskWrapper task = handle.getTask();
+    handle.setThread(slicingThreadId);
+    current = handle;
+    lastVruntime = handle.getVruntime();
+
+    final long quantumStart = System.nanoTime();
+    long now = quantumStart;
+    try {
+      do {
+        final String preRunName = task.getAsyncTask().preRunUpdate(getLoad());
+        final long startTime = System.nanoTime();
+        try {
+          task.run();
+          tasksRun.incrementAndGet();
+        } finally {
+          now = System.nanoTime();
+          task.getAsyncTask().postRunUpdate(now - startTime, preRunName);
+        }
+      } while (task.getState() == Task.State.RUNNABLE
+          && now - quantumStart < quantumNanos
+          && !pool.isClosed());
+    } catch (Throwable t) {
+      logger.error("Unhandled Exception in fragment task {}, dropping it.", task, t);
+      current = null;
+      pool.taskDone(handle);
+      return;
+    }
+
+    quantaRun.incrementAndGet();
+    handle.charge(now - quantumStart);
+    current = null;
+
+    switch (task.getState()) {
+      case BLOCKED_ON_DOWNSTREAM:
+      case BLOCKED_ON_UPSTREAM:
+      case BLOCKED_ON_SHARED_RESOURCE:
+      case BLOCKED_ON_MEMORY:
+        // the callback may fire right away, the handle must not be touched after this point
+        task.setAvailabilityCallback(new BlockRun(handle));
+        break;
+      case DONE:
+        pool.taskDone(handle);
+        break;
+      case RUNNABLE:
+      default:
+        offer(handle);
+        break;
+    }
+  }
+
+  SlicingSchedulerStats.ThreadStats snapshotAndClearStats() {
+    final SlicingSchedulerStats.ThreadStats stats =
+        new SlicingSchedulerStats.ThreadStats(
+            slicingThreadId,
+            queueSize,
+            maxQueueSize,
+            quantaRun.getAndSet(0),
+            tasksRun.getAndSet(0),
+            steals.getAndSet(0),
+            stolenFrom.getAndSet(0),
+            failedStealAttempts.getAndSet(0));
+    maxQueueSize = queueSize;
+    return stats;
+  }
+
+  SlicingSchedulerStats.ThreadStats snapshotStats() {
+    return new SlicingSchedulerStats.ThreadStats(
+        slicingThreadId,
+        queueSize,
+        maxQueueSize,
+        quantaRun.get(),
+        tasksRun.get(),
+        steals.get(),
+        stolenFrom.get(),
+        failedStealAttempts.get());
+  }
+}
@@ -17,10 +17,13 @@ package com.dremio.exec.compile;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import com.dremio.BaseTestQuery;
+import com.dremio.common.config.SabotConfig;
+import com.dremio.exec.ExecConstants;
 import com.dremio.exec.compile.sig.GeneratorMapping;
 import com.dremio.exec.compile.sig.MappingSet;
 import com.dremio.exec.expr.ClassGenerator;
@@ -30,14 +33,19 @@ import com.dremio.options.OptionManager;
 import com.dremio.sabot.exec.context.CompilationOptions;
 import com.dremio.sabot.exec.context.FunctionContext;
 import com.dremio.sabot.rpc.user.UserSession;
+import com.typesafe.config.ConfigValueFactory;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class TestCodeCompiler extends BaseTestQuery {
 
   private static CodeCompiler codeCompiler;
   private static OptionManager sessionOptions;
 
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   @BeforeClass
   public static void beforeTestClassTransformation() {
     final UserSession userSession =
@@ -76,6 +84,35 @@ public class TestCodeCompiler extends BaseTestQuery {
     assertNotEquals(clazz1.getClass(), clazz2.getClass());
   }
 
+  // Check that a class compiled before a restart is loaded from the persistent cache
+  @Test
+  public void checkClassWasLoadedFromPersistentCache() throws Exception {
+    final SabotConfig config =
+        DEFAULT_SABOT_CONFIG
+            .withValue(ExecConstants.CODE_CACHE_ENABLED_CONFIG, ConfigValueFactory.fromAnyRef(true))
+            .withValue(
+                ExecConstants.CODE_CACHE_PATH_CONFIG,
+                ConfigValueFactory.fromAnyRef(temporaryFolder.newFolder().getAbsolutePath()));
+    final TemplateClassDefinition<ExampleInner> template =
+        new TemplateClassDefinition<>(ExampleInner.class, ExampleTemplateWithInner.class);
+
+    final CodeCompiler before = new CodeCompiler(config, sessionOptions);
+    ExampleTemplateWithInner clazz1 =
+        before.getImplementationClass(newCodeGenerator(template, true));
+    assertEquals(1, before.getCodeCache().size());
+    // releases the cache directory for the next compiler
+    before.close();
+
+    try (CodeCompiler after = new CodeCompiler(config, sessionOptions)) {
+      ExampleTemplateWithInner clazz2 =
+          after.getImplementationClass(newCodeGenerator(template, true));
+      assertEquals(1, after.getCodeCache().getHits());
+      assertNotSame(clazz1.getClass(), clazz2.getClass());
+      // the cached class keeps the name it was compiled with
+      assertEquals(clazz1.getClass().getName(), clazz2.getClass().getName());
+    }
+  }
+
   private <T, X extends T> CodeGenerator<T> newCodeGenerator(
       TemplateClassDefinition<T> template, boolean withInner) {
     CompilationOptions compilationOptions = mock(CompilationOptions.class);
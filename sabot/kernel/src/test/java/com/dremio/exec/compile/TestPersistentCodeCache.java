@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.compile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestPersistentCodeCache {
+  private static final String VERSION = "1.0.0/11";
+  private static final List<ClassBytes> CLASSES =
+      ImmutableList.of(
+          new ClassBytes("com.dremio.s.ProjectorGen3", new byte[] {1, 2, 3}),
+          new ClassBytes("com.dremio.s.ProjectorGen3$Inner", new byte[] {4, 5}));
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private Path root;
+
+  @Before
+  public void setup() throws IOException {
+    root = temporaryFolder.newFolder().toPath();
+  }
+
+  @Test
+  public void entriesSurviveRestart() throws IOException {
+    PersistentCodeCache cache = new PersistentCodeCache(root, VERSION, 10, 0);
+    assertNull(cache.get("a"));
+    cache.put("a", "com.dremio.s.ProjectorGen3", CLASSES, 5_000_000);
+    cache.close();
+
+    cache = new PersistentCodeCache(root, VERSION, 10, 0);
+    final PersistentCodeCache.Entry entry = cache.get("a");
+    assertNotNull(entry);
+    assertEquals("com.dremio.s.ProjectorGen3", entry.getClassName());
+    assertEquals(2, entry.getClasses().size());
+    for (int i = 0; i < CLASSES.size(); i++) {
+      assertEquals(CLASSES.get(i).getName(), entry.getClasses().get(i).getName());
+      assertArrayEquals(CLASSES.get(i).getBytes(), entry.getClasses().get(i).getBytes());
+    }
+    assertEquals(1, cache.getHits());
+    assertEquals(5_000_000, cache.getCompileNanosSaved());
+  }
+
+  @Test
+  public void prewarmMostUsedEntries() throws IOException {
+    PersistentCodeCache cache = new PersistentCodeCache(root, VERSION, 10, 0);
+    cache.put("a", "A", CLASSES, 1);
+    cache.put("b", "B", CLASSES, 1);
+    cache.get("b");
+    cache.get("b");
+    cache.get("a");
+    // use counts are written along with the new entry
+    cache.put("c", "C", CLASSES, 1);
+    cache.close();
+
+    cache = new PersistentCodeCache(root, VERSION, 10, 1);
+    assertEquals(3, cache.size());
+    assertEquals(1, cache.getWarmEntriesCount());
+    // the most used entry is served from memory
+    Files.delete(root.resolve("b.classes"));
+    assertEquals("B", cache.get("b").getClassName());
+  }
+
+  @Test
+  public void otherBuildClearsCache() throws IOException {
+    PersistentCodeCache cache = new PersistentCodeCache(root, VERSION, 10, 0);
+    cache.put("a", "A", CLASSES, 1);
+    cache.close();
+
+    cache = new PersistentCodeCache(root, "1.0.1/11", 10, 0);
+    assertEquals(0, cache.size());
+    assertNull(cache.get("a"));
+    assertFalse(Files.exists(root.resolve("a.classes")));
+  }
+
+  @Test
+  public void evictLeastUsedEntry() throws IOException {
+    final PersistentCodeCache cache = new PersistentCodeCache(root, VERSION, 2, 0);
+    cache.put("a", "A", CLASSES, 1);
+    cache.put("b", "B", CLASSES, 1);
+    cache.get("a");
+    cache.put("c", "C", CLASSES, 1);
+
+    assertEquals(2, cache.size());
+    assertNotNull(cache.get("a"));
+    assertNull(cache.get("b"));
+    assertNotNull(cache.get("c"));
+    assertFalse(Files.exists(root.resolve("b.classes")));
+  }
+
+  @Test
+  public void corruptedEntryIsMiss() throws IOException {
+    PersistentCodeCache cache = new PersistentCodeCache(root, VERSION, 10, 0);
+    cache.put("a", "A", CLASSES, 1);
+    Files.write(root.resolve("a.classes"), new byte[] {0, 1, 2, 3, 4});
+
+    assertNull(cache.get("a"));
+    assertEquals(0, cache.size());
+    assertEquals(1, cache.getMisses());
+
+    // leftovers of interrupted writes are cleaned up on startup
+    Files.write(root.resolve("b123.tmp"), new byte[] {0});
+    cache.close();
+    cache = new PersistentCodeCache(root, VERSION, 10, 0);
+    assertFalse(Files.exists(root.resolve("b123.tmp")));
+  }
+
+  @Test
+  public void directoryIsCreatedForOwnerOnly() throws IOException {
+    final Path dir = root.resolve("codecache");
+    new PersistentCodeCache(dir, VERSION, 10, 0).close();
+    assertEquals(PosixFilePermissions.fromString("rwx------"), Files.getPosixFilePermissions(dir));
+  }
+
+  @Test
+  public void directoryWritableByOthersIsRejected() throws IOException {
+    Files.setPosixFilePermissions(root, PosixFilePermissions.fromString("rwxrwxr-x"));
+    assertThrows(AccessDeniedException.class, () -> new PersistentCodeCache(root, VERSION, 10, 0));
+
+    Files.setPosixFilePermissions(root, PosixFilePermissions.fromString("rwxr-xrwx"));
+    assertThrows(AccessDeniedException.class, () -> new PersistentCodeCache(root, VERSION, 10, 0));
+  }
+
+  @Test
+  public void directoryIsLockedWhileOpen() throws IOException {
+    final PersistentCodeCache cache = new PersistentCodeCache(root, VERSION, 10, 0);
+    cache.put("a", "A", CLASSES, 1);
+    assertThrows(IOException.class, () -> new PersistentCodeCache(root, VERSION, 10, 0));
+    // the failed attempt does not touch the entries of the cache in use
+    assertNotNull(cache.get("a"));
+
+    cache.close();
+    assertNull(cache.get("a"));
+    try (PersistentCodeCache reopened = new PersistentCodeCache(root, VERSION, 10, 0)) {
+      assertNotNull(reopened.get("a"));
+    }
+  }
+
+  @Test
+  public void fingerprintDependsOnCodeAndBuild() throws IOException {
+    final TemplateClassDefinition<ExampleInner> template =
+        new TemplateClassDefinition<>(ExampleInner.class, ExampleTemplateWithInner.class);
+    final PersistentCodeCache cache = new PersistentCodeCache(root, VERSION, 10, 0);
+    final String fingerprint = cache.fingerprint(template, "class GenericGenerated {}");
+
+    assertEquals(fingerprint, cache.fingerprint(template, "class GenericGenerated {}"));
+    assertNotEquals(fingerprint, cache.fingerprint(template, "class GenericGenerated { }"));
+    assertNotEquals(
+        fingerprint,
+        new PersistentCodeCache(temporaryFolder.newFolder().toPath(), "1.0.1/11", 10, 0)
+            .fingerprint(template, "class GenericGenerated {}"));
+  }
+}
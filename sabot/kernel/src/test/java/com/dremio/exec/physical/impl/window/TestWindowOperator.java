@@ -23,10 +23,15 @@ import static com.dremio.exec.physical.impl.window.DataPar.dataB3P2;
 import static com.dremio.exec.physical.impl.window.DataPar.dataB4P4;
 import static com.dremio.exec.physical.impl.window.WindowGenerator.generateInput;
 import static com.dremio.exec.physical.impl.window.WindowGenerator.generateOutput;
+import static com.dremio.sabot.Fixtures.NULL_BIGINT;
 import static com.dremio.sabot.Fixtures.t;
+import static com.dremio.sabot.Fixtures.th;
+import static com.dremio.sabot.Fixtures.tr;
 import static java.util.Collections.singletonList;
+import static org.apache.calcite.rel.RelFieldCollation.Direction.ASCENDING;
 import static org.apache.calcite.rel.RelFieldCollation.Direction.DESCENDING;
 import static org.apache.calcite.rel.RelFieldCollation.NullDirection.FIRST;
+import static org.apache.calcite.rel.RelFieldCollation.NullDirection.LAST;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -39,8 +44,12 @@ import com.dremio.exec.physical.config.WindowPOP.BoundType;
 import com.dremio.sabot.BaseTestOperator;
 import com.dremio.sabot.CustomHashAggDataGenerator;
 import com.dremio.sabot.Fixtures;
+import com.dremio.sabot.Fixtures.DataRow;
 import com.dremio.sabot.Fixtures.Table;
+import com.dremio.sabot.exec.context.OperatorStats;
 import com.dremio.sabot.op.windowframe.WindowFrameOperator;
+import com.dremio.sabot.op.windowframe.WindowFrameStats;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -125,6 +134,116 @@ public class TestWindowOperator extends BaseTestOperator {
     runTests(dataB4P4(true), dataB4P4(false));
   }
 
+  @Test
+  public void testSpill() throws Exception {
+    // a tiny memory budget forces every batch the framers are not working on to disk
+    try (AutoCloseable ac = with(ExecConstants.WINDOW_SPILL_ENABLED, true);
+        AutoCloseable ac1 = with(ExecConstants.WINDOW_SPILL_MAX_MEMORY, 1)) {
+      runTests(dataB3P2(true), dataB3P2(false));
+      runTests(dataB4P4(true), dataB4P4(false));
+
+      final DataPar[] partitions = dataB4P4(true);
+      final OperatorStats stats =
+          validateSingle(
+              createWindowPOP(true, true),
+              WindowFrameOperator.class,
+              t(WindowGenerator.header, generateInput(partitions)),
+              generateOutput(partitions, true),
+              20);
+      assertSpilledAndReloaded(stats);
+    }
+  }
+
+  @Test
+  public void testSpillLagLead() throws Exception {
+    // offsets larger than a batch make the framer read several batches back and ahead
+    final WindowPOP window =
+        new WindowPOP(
+            PROPS,
+            null,
+            singletonList(n("p")),
+            Arrays.asList(
+                n("lag(id)", "lag"), n("lag(id, 25)", "lag25"), n("lead(id, 25)", "lead25")),
+            singletonList(ordering("id", ASCENDING, LAST)),
+            false,
+            new Bound(true, Integer.MAX_VALUE, BoundType.FOLLOWING),
+            new Bound(false, 0, BoundType.FOLLOWING));
+
+    final int partitionSize = 70;
+    final List<DataRow> input = new ArrayList<>();
+    final List<DataRow> output = new ArrayList<>();
+    for (int p = 1; p <= 3; p++) {
+      for (long id = 0; id < partitionSize; id++) {
+        input.add(tr(p, id));
+        output.add(
+            tr(
+                p,
+                id,
+                id >= 1 ? (Object) (id - 1) : NULL_BIGINT,
+                id >= 25 ? (Object) (id - 25) : NULL_BIGINT,
+                id + 25 < partitionSize ? (Object) (id + 25) : NULL_BIGINT));
+      }
+    }
+
+    try (AutoCloseable ac = with(ExecConstants.WINDOW_SPILL_ENABLED, true);
+        AutoCloseable ac1 = with(ExecConstants.WINDOW_SPILL_MAX_MEMORY, 1)) {
+      final OperatorStats stats =
+          validateSingle(
+              window,
+              WindowFrameOperator.class,
+              t(th("p", "id"), input.toArray(new DataRow[0])),
+              t(th("p", "id", "lag", "lag25", "lead25"), output.toArray(new DataRow[0])),
+              20);
+      assertSpilledAndReloaded(stats);
+    }
+  }
+
+  @Test
+  public void testSpillFrameAcrossBatches() throws Exception {
+    // peer groups of 50 rows put the frame of every row across 3 to 4 batches of 20 rows, and the
+    // last value of a frame is read from a batch the framer is no longer working on
+    final WindowPOP window =
+        new WindowPOP(
+            PROPS,
+            null,
+            singletonList(n("p")),
+            Arrays.asList(n("sum(id)", "sum"), n("last_value(id)", "last")),
+            singletonList(ordering("k", ASCENDING, LAST)),
+            false,
+            new Bound(true, Integer.MAX_VALUE, BoundType.FOLLOWING),
+            new Bound(false, 0, BoundType.FOLLOWING));
+
+    final int partitionSize = 150;
+    final int peers = 50;
+    final List<DataRow> input = new ArrayList<>();
+    final List<DataRow> output = new ArrayList<>();
+    for (int p = 1; p <= 2; p++) {
+      for (long id = 0; id < partitionSize; id++) {
+        final int k = (int) (id / peers);
+        final long frameEnd = Math.min(partitionSize, (long) (k + 1) * peers);
+        input.add(tr(p, k, id));
+        output.add(tr(p, k, id, frameEnd * (frameEnd - 1) / 2, frameEnd - 1));
+      }
+    }
+
+    try (AutoCloseable ac = with(ExecConstants.WINDOW_SPILL_ENABLED, true);
+        AutoCloseable ac1 = with(ExecConstants.WINDOW_SPILL_MAX_MEMORY, 1)) {
+      final OperatorStats stats =
+          validateSingle(
+              window,
+              WindowFrameOperator.class,
+              t(th("p", "k", "id"), input.toArray(new DataRow[0])),
+              t(th("p", "k", "id", "sum", "last"), output.toArray(new DataRow[0])),
+              20);
+      assertSpilledAndReloaded(stats);
+    }
+  }
+
+  private static void assertSpilledAndReloaded(OperatorStats stats) {
+    assertTrue(stats.getLongStat(WindowFrameStats.Metric.SPILL_COUNT) > 0);
+    assertTrue(stats.getLongStat(WindowFrameStats.Metric.RELOAD_COUNT) > 0);
+  }
+
   @Test // DRILL-4657
   public void test4657() throws Exception {
     // SELECT row_number() OVER(ORDER BY position_id) rn, rank() OVER(ORDER BY position_id) rnk FROM
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.record.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.dremio.exec.proto.UserBitShared.QueryId;
+import com.dremio.exec.record.ArrowRecordBatchLoader;
+import com.dremio.exec.record.FragmentWritableBatch;
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.sabot.op.receiver.RawFragmentBatch;
+import com.dremio.test.AllocatorRule;
+import io.netty.buffer.ByteBuf;
+import java.util.Random;
+import org.apache.arrow.flatbuf.RecordBatch;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.compression.CompressionUtil.CodecType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Tests for {@link ExchangeCompressor} and {@link ExchangeDecompressor} */
+public class TestExchangeCompression {
+  private static final QueryId QUERY_ID = QueryId.newBuilder().setPart1(1).setPart2(2).build();
+
+  @Rule public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  private BufferAllocator allocator;
+
+  @Before
+  public void setup() {
+    allocator = allocatorRule.newAllocator("test-exchange-compression", 0, Long.MAX_VALUE);
+  }
+
+  @After
+  public void cleanup() {
+    allocator.close();
+  }
+
+  @Test
+  public void testLz4RoundTrip() {
+    // larger than a single lz4 frame block
+    roundTrip(Lz4FrameBufferCodec.INSTANCE, compressibleBytes(5 * 1024 * 1024));
+    roundTrip(Lz4FrameBufferCodec.INSTANCE, randomBytes(64 * 1024));
+    roundTrip(Lz4FrameBufferCodec.INSTANCE, new byte[] {42});
+  }
+
+  @Test
+  public void testZstdRoundTrip() {
+    roundTrip(ZstdBufferCodec.DEFAULT, compressibleBytes(1024 * 1024));
+    roundTrip(ZstdBufferCodec.DEFAULT, randomBytes(64 * 1024));
+  }
+
+  @Test
+  public void testCompressedBatchIsDecoded() {
+    for (ExchangeCompressor.Mode mode : ExchangeCompressor.Mode.values()) {
+      try (ExchangeCompressor compressor = new ExchangeCompressor(allocator, mode)) {
+        final int[] values = sendAndReceive(compressor, 8192, false);
+        for (int i = 0; i < values.length; i++) {
+          assertEquals(i % 16, values[i]);
+        }
+        if (mode == ExchangeCompressor.Mode.NONE) {
+          assertEquals(0, compressor.getStats().getBatches());
+        } else {
+          assertEquals(1, compressor.getStats().getBatches());
+          assertTrue(
+              compressor.getStats().getCompressedBytes()
+                  < compressor.getStats().getUncompressedBytes());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testSmallBatchIsNotCompressed() {
+    try (ExchangeCompressor compressor =
+        new ExchangeCompressor(allocator, ExchangeCompressor.Mode.LZ4)) {
+      sendAndReceive(compressor, 16, false);
+      assertEquals(0, compressor.getStats().getBatches());
+    }
+  }
+
+  @Test
+  public void testAdaptiveBacksOffOnIncompressibleData() {
+    try (ExchangeCompressor compressor =
+        new ExchangeCompressor(allocator, ExchangeCompressor.Mode.ADAPTIVE)) {
+      for (int i = 0; i <= ExchangeCompressor.BACKOFF_BATCHES; i++) {
+        sendAndReceive(compressor, 8192, true);
+      }
+      // first batch probed the stream, the following ones were sent raw
+      assertEquals(1, compressor.getStats().getBatches());
+      sendAndReceive(compressor, 8192, true);
+      assertEquals(2, compressor.getStats().getBatches());
+    }
+  }
+
+  @Test
+  public void testAdaptiveSwitchesToZstd() {
+    try (ExchangeCompressor compressor =
+        new ExchangeCompressor(allocator, ExchangeCompressor.Mode.ADAPTIVE)) {
+      assertEquals(CodecType.LZ4_FRAME, sendAndGetCodec(compressor));
+      assertEquals(CodecType.ZSTD, sendAndGetCodec(compressor));
+    }
+  }
+
+  private CodecType sendAndGetCodec(ExchangeCompressor compressor) {
+    final FragmentWritableBatch writableBatch = send(compressor, 8192, false);
+    try {
+      final RecordBatch recordBatch =
+          RecordBatch.getRootAsRecordBatch(
+              writableBatch.getHeader().getArrowRecordBatch().asReadOnlyByteBuffer());
+      return CodecType.fromCompressionType(recordBatch.compression().codec());
+    } finally {
+      for (ByteBuf buf : writableBatch.getBuffers()) {
+        buf.release();
+      }
+    }
+  }
+
+  private FragmentWritableBatch send(ExchangeCompressor compressor, int count, boolean random) {
+    final Random rand = new Random(count);
+    try (VectorContainer container = new VectorContainer(allocator)) {
+      final IntVector vector = new IntVector("ints", allocator);
+      vector.allocateNew(count);
+      for (int i = 0; i < count; i++) {
+        vector.set(i, random ? rand.nextInt() : i % 16);
+      }
+      container.add(vector);
+      container.buildSchema();
+      container.setAllCount(count);
+      return FragmentWritableBatch.create(QUERY_ID, 1, 0, 2, container, compressor, 0);
+    }
+  }
+
+  private int[] sendAndReceive(ExchangeCompressor compressor, int count, boolean random) {
+    final FragmentWritableBatch writableBatch = send(compressor, count, random);
+    final ArrowBuf body = allocator.buffer(writableBatch.getByteCount());
+    long offset = 0;
+    for (ByteBuf buf : writableBatch.getBuffers()) {
+      body.setBytes(offset, buf.nioBuffer());
+      offset += buf.readableBytes();
+      buf.release();
+    }
+    body.writerIndex(offset);
+
+    final RawFragmentBatch received = new RawFragmentBatch(writableBatch.getHeader(), body, null);
+    body.close();
+
+    final ExchangeDecompressor decompressor = new ExchangeDecompressor(allocator);
+    try (RawFragmentBatch batch = decompressor.decompress(received);
+        VectorContainer container = new VectorContainer(allocator)) {
+      container.add(new IntVector("ints", allocator));
+      container.buildSchema();
+      try (ArrowRecordBatchLoader loader =
+          new ArrowRecordBatchLoader(allocator, container.getSchema())) {
+        loader.load(batch);
+        final IntVector vector = loader.getValueAccessorById(IntVector.class, 0).getValueVector();
+        final int[] values = new int[loader.getRecordCount()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = vector.get(i);
+        }
+        assertEquals(count, values.length);
+        return values;
+      }
+    }
+  }
+
+  private void roundTrip(BufferCodec codec, byte[] data) {
+    try (ArrowBuf src = allocator.buffer(data.length);
+        ArrowBuf compressed = allocator.buffer(codec.maxCompressedLength(data.length));
+        ArrowBuf dst = allocator.buffer(data.length)) {
+      src.setBytes(0, data);
+      final long compressedLength = codec.compress(src, 0, data.length, compressed, 0);
+      codec.decompress(compressed, 0, compressedLength, dst, 0, data.length);
+      final byte[] result = new byte[data.length];
+      dst.getBytes(0, result);
+      assertArrayEquals(data, result);
+      assertNotEquals(0, compressedLength);
+    }
+  }
+
+  private static byte[] compressibleBytes(int length) {
+    final byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (i % 7);
+    }
+    return bytes;
+  }
+
+  private static byte[] randomBytes(int length) {
+    final byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.dremio.common.expression.CompleteType;
+import com.dremio.exec.util.BloomFilter;
+import com.dremio.sabot.exec.context.OpProfileDef;
+import com.dremio.sabot.exec.context.OperatorStats;
+import com.dremio.sabot.op.scan.ScanOperator;
+import com.dremio.test.AllocatorRule;
+import java.util.Collections;
+import java.util.List;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BitVectorHelper;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Tests for {@link PartitionColumnRowFilter} */
+public class TestPartitionColumnRowFilter {
+  private static final String TEST_NAME = "20ed4177-87c7-91cc-c869-82b1d90cd300:frag:1:3";
+  private static final int MAX_KEY_SIZE = 32;
+
+  private BufferAllocator testAllocator;
+  private OperatorStats stats;
+
+  @Rule public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  @Before
+  public void setupBeforeTest() {
+    testAllocator =
+        allocatorRule.newAllocator("test-partition_column_row_filter", 0, Long.MAX_VALUE);
+    stats = new OperatorStats(new OpProfileDef(1, 1, 1), testAllocator);
+  }
+
+  @After
+  public void cleanupAfterTest() {
+    testAllocator.close();
+  }
+
+  @Test
+  public void testRejectsRowsNotInFilter() throws Exception {
+    try (BloomFilter bloomFilter = newIntBloomFilter(1, 3, 5);
+        SampleMutator mutator = new SampleMutator(testAllocator);
+        ArrowBuf validity = allValid(10)) {
+      addIntColumn(mutator, "key", 0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+      // row 3 is already invalid, and is neither probed nor made valid
+      BitVectorHelper.unsetBit(validity, 3);
+
+      try (PartitionColumnRowFilter rowFilter =
+          PartitionColumnRowFilter.create(
+              testAllocator,
+              stats,
+              MAX_KEY_SIZE,
+              newRuntimeFilter(bloomFilter, "key", CompleteType.INT.toField("build_key")),
+              mutator)) {
+        assertNotNull(rowFilter);
+        rowFilter.filter(10, validity);
+      }
+
+      for (int i = 0; i < 10; i++) {
+        assertEquals("row " + i, i == 1 || i == 5 ? 1 : 0, BitVectorHelper.get(validity, i));
+      }
+      assertEquals(7L, stats.getLongStat(ScanOperator.Metric.NUM_RUNTIME_FILTERED_ROWS));
+    }
+  }
+
+  @Test
+  public void testSkippedOnIntegerWidthMismatch() throws Exception {
+    try (BloomFilter bloomFilter = newIntBloomFilter(1);
+        SampleMutator mutator = new SampleMutator(testAllocator)) {
+      addIntColumn(mutator, "key", 1);
+
+      // the build side pivots BIGINT keys to 8 bytes, the scan side INT keys to 4 bytes
+      assertNull(
+          PartitionColumnRowFilter.create(
+              testAllocator,
+              stats,
+              MAX_KEY_SIZE,
+              newRuntimeFilter(bloomFilter, "key", CompleteType.BIGINT.toField("build_key")),
+              mutator));
+    }
+  }
+
+  @Test
+  public void testSkippedOnDecimalScaleMismatch() throws Exception {
+    try (BloomFilter bloomFilter = newIntBloomFilter(1);
+        SampleMutator mutator = new SampleMutator(testAllocator)) {
+      mutator.addField(decimalField("key", 3), DecimalVector.class);
+
+      assertNull(
+          PartitionColumnRowFilter.create(
+              testAllocator,
+              stats,
+              MAX_KEY_SIZE,
+              newRuntimeFilter(bloomFilter, "key", decimalField("build_key", 2)),
+              mutator));
+      try (PartitionColumnRowFilter rowFilter =
+          PartitionColumnRowFilter.create(
+              testAllocator,
+              stats,
+              MAX_KEY_SIZE,
+              newRuntimeFilter(bloomFilter, "key", decimalField("build_key", 3)),
+              mutator)) {
+        assertNotNull(rowFilter);
+      }
+    }
+  }
+
+  @Test
+  public void testSkippedWithoutKeyTypes() throws Exception {
+    try (BloomFilter bloomFilter = newIntBloomFilter(1);
+        SampleMutator mutator = new SampleMutator(testAllocator)) {
+      addIntColumn(mutator, "key", 1);
+
+      final CompositeColumnFilter partitionColumnFilter =
+          new CompositeColumnFilter.Builder()
+              .setColumnsList(Collections.singletonList("key"))
+              .setBloomFilter(bloomFilter)
+              .setFilterType(CompositeColumnFilter.RuntimeFilterType.BLOOM_FILTER)
+              .build();
+      assertNull(
+          PartitionColumnRowFilter.create(
+              testAllocator,
+              stats,
+              MAX_KEY_SIZE,
+              new RuntimeFilter(partitionColumnFilter, null, ""),
+              mutator));
+    }
+  }
+
+  @Test
+  public void testStopsWhenFewRowsRejected() throws Exception {
+    final int records = PartitionColumnRowFilter.MIN_PROBED_ROWS;
+    final int[] values = new int[records];
+    try (BloomFilter bloomFilter = newIntBloomFilter(0);
+        SampleMutator mutator = new SampleMutator(testAllocator);
+        ArrowBuf validity = allValid(records)) {
+      // every row holds the key of the filter
+      addIntColumn(mutator, "key", values);
+
+      try (PartitionColumnRowFilter rowFilter =
+          PartitionColumnRowFilter.create(
+              testAllocator,
+              stats,
+              MAX_KEY_SIZE,
+              newRuntimeFilter(bloomFilter, "key", CompleteType.INT.toField("build_key")),
+              mutator)) {
+        assertTrue(rowFilter.isActive());
+        rowFilter.filter(records, validity);
+        assertFalse(rowFilter.isActive());
+      }
+      assertEquals(0L, stats.getLongStat(ScanOperator.Metric.NUM_RUNTIME_FILTERED_ROWS));
+    }
+  }
+
+  /** Builds a bloom filter holding the given INT keys, laid out as the join build side does. */
+  private BloomFilter newIntBloomFilter(int... keys) {
+    final BloomFilter bloomFilter = new BloomFilter(testAllocator, TEST_NAME, 512);
+    bloomFilter.setup();
+    try (ArrowBuf keyBuf = testAllocator.buffer(5)) {
+      for (int key : keys) {
+        keyBuf.setByte(0, 1);
+        keyBuf.setInt(1, key);
+        bloomFilter.put(keyBuf, 5);
+      }
+    }
+    return bloomFilter;
+  }
+
+  private static RuntimeFilter newRuntimeFilter(
+      BloomFilter bloomFilter, String column, Field buildKey) {
+    final List<String> keyTypes =
+        Collections.singletonList(CompositeColumnFilter.keyTypeOf(buildKey));
+    final CompositeColumnFilter partitionColumnFilter =
+        new CompositeColumnFilter.Builder()
+            .setColumnsList(Collections.singletonList(column))
+            .setKeyTypesList(keyTypes)
+            .setBloomFilter(bloomFilter)
+            .setFilterType(CompositeColumnFilter.RuntimeFilterType.BLOOM_FILTER)
+            .build();
+    return new RuntimeFilter(partitionColumnFilter, null, "");
+  }
+
+  private static void addIntColumn(SampleMutator mutator, String name, int... values)
+      throws Exception {
+    final IntVector vector = mutator.addField(CompleteType.INT.toField(name), IntVector.class);
+    vector.allocateNew(values.length);
+    for (int i = 0; i < values.length; i++) {
+      vector.set(i, values[i]);
+    }
+    vector.setValueCount(values.length);
+  }
+
+  private static Field decimalField(String name, int scale) {
+    return new Field(name, FieldType.nullable(new ArrowType.Decimal(38, scale, 128)), null);
+  }
+
+  private ArrowBuf allValid(int records) {
+    final ArrowBuf validity = testAllocator.buffer(BitVectorHelper.getValidityBufferSize(records));
+    validity.setZero(0, validity.capacity());
+    for (int i = 0; i < records; i++) {
+      BitVectorHelper.setBit(validity, i);
+    }
+    return validity;
+  }
+}
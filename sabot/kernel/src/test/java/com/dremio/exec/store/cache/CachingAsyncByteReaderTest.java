@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.dremio.io.AsyncByteReader;
+import com.dremio.io.AsyncByteReader.FileKey;
+import com.dremio.io.file.Path;
+import com.dremio.test.AllocatorRule;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.arrow.memory.BufferAllocator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link CachingAsyncByteReader} and {@link LocalBlockCache} */
+public class CachingAsyncByteReaderTest {
+  private static final int BLOCK_SIZE = 1024;
+  private static final int FILE_SIZE = 10 * BLOCK_SIZE + 100;
+
+  @Rule public final TemporaryFolder tempDir = new TemporaryFolder();
+  @Rule public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  private final byte[] data = new byte[FILE_SIZE];
+  private LocalBlockCache cache;
+  private BufferAllocator allocator;
+  // runs the cache I/O inline, so that the counters are up to date when a read completes
+  private Executor ioExecutor = Runnable::run;
+
+  @Before
+  public void setUp() throws Exception {
+    new Random(42).nextBytes(data);
+    cache = new LocalBlockCache(tempDir.newFolder().toPath(), BLOCK_SIZE, 100L * BLOCK_SIZE);
+    allocator = allocatorRule.newAllocator("test-caching-async-byte-reader", 0, Long.MAX_VALUE);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    try {
+      cache.close();
+    } finally {
+      allocator.close();
+    }
+  }
+
+  @Test
+  public void testMissThenHit() throws Exception {
+    final CountingReader source = new CountingReader(data);
+    try (AsyncByteReader reader = newReader(source, "v1", "source", 100)) {
+      assertRead(reader, 100, 3 * BLOCK_SIZE);
+      assertEquals(1, source.reads);
+      assertEquals(0, cache.getHitCount());
+      assertEquals(4, cache.getMissCount());
+
+      // same range, and a sub range, are served from the cache
+      assertRead(reader, 100, 3 * BLOCK_SIZE);
+      assertRead(reader, BLOCK_SIZE + 10, 20);
+      assertEquals(1, source.reads);
+      assertEquals(5, cache.getHitCount());
+      assertEquals(3 * BLOCK_SIZE + 20, cache.getBytesSaved());
+    }
+  }
+
+  @Test
+  public void testPartialHit() throws Exception {
+    final CountingReader source = new CountingReader(data);
+    try (AsyncByteReader reader = newReader(source, "v1", "source", 100)) {
+      assertRead(reader, 2 * BLOCK_SIZE, BLOCK_SIZE);
+      // blocks 0-1 and 3-4 are missing, block 2 is cached
+      assertRead(reader, 0, 5 * BLOCK_SIZE);
+      assertEquals(3, source.reads);
+      assertEquals(1, cache.getHitCount());
+    }
+  }
+
+  @Test
+  public void testEndOfFile() throws Exception {
+    final CountingReader source = new CountingReader(data);
+    try (AsyncByteReader reader = newReader(source, "v1", "source", 100)) {
+      assertRead(reader, FILE_SIZE - 50, 50);
+      assertRead(reader, FILE_SIZE - 100, 100);
+      assertEquals(1, source.reads);
+      assertEquals(100, cache.getUsedBytes());
+    }
+  }
+
+  @Test
+  public void testVersionChange() throws Exception {
+    final CountingReader source = new CountingReader(data);
+    try (AsyncByteReader reader = newReader(source, "v1", "source", 100)) {
+      assertRead(reader, 0, BLOCK_SIZE);
+    }
+    try (AsyncByteReader reader = newReader(source, "v2", "source", 100)) {
+      assertRead(reader, 0, BLOCK_SIZE);
+    }
+    assertEquals(2, source.reads);
+    assertEquals(0, cache.getHitCount());
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    cache.close();
+    cache = new LocalBlockCache(tempDir.newFolder().toPath(), BLOCK_SIZE, 4L * BLOCK_SIZE);
+
+    final CountingReader source = new CountingReader(data);
+    try (AsyncByteReader reader = newReader(source, "v1", "source", 100)) {
+      assertRead(reader, 0, BLOCK_SIZE);
+      // block 0 is read again, so it survives the next scan
+      assertRead(reader, 0, BLOCK_SIZE);
+      assertRead(reader, BLOCK_SIZE, 6 * BLOCK_SIZE);
+      assertEquals(4L * BLOCK_SIZE, cache.getUsedBytes());
+      assertEquals(3, cache.getEvictionCount());
+
+      final int reads = source.reads;
+      assertRead(reader, 0, BLOCK_SIZE);
+      assertEquals(reads, source.reads);
+    }
+  }
+
+  @Test
+  public void testSourceSpaceLimit() throws Exception {
+    final CountingReader source = new CountingReader(data);
+    try (AsyncByteReader limited = newReader(source, "v1", "limited", 5);
+        AsyncByteReader unlimited = newReader(source, "v1", "unlimited", 100)) {
+      assertRead(limited, 0, 10 * BLOCK_SIZE);
+      assertRead(unlimited, 0, 10 * BLOCK_SIZE);
+      assertEquals(5L * BLOCK_SIZE, cache.getUsedBytes("limited"));
+      assertEquals(10L * BLOCK_SIZE, cache.getUsedBytes("unlimited"));
+    }
+  }
+
+  @Test
+  public void testCacheIoOnExecutor() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    final CountDownLatch blocked = new CountDownLatch(1);
+    try {
+      ioExecutor = executor;
+      final CountingReader source = new CountingReader(data);
+      final AsyncByteReader reader = newReader(source, "v1", "source", 100);
+      try {
+        assertRead(reader, 0, 2 * BLOCK_SIZE);
+
+        // nothing is read from or written to the cache until the executor runs
+        executor.execute(
+            () -> {
+              try {
+                blocked.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+        final ByteBuf dst = Unpooled.directBuffer(BLOCK_SIZE);
+        try {
+          final CompletableFuture<Void> read = reader.readFully(0, dst, 0, BLOCK_SIZE);
+          assertFalse(read.isDone());
+          blocked.countDown();
+          read.get();
+        } finally {
+          dst.release();
+        }
+        assertEquals(1, source.reads);
+      } finally {
+        // waits for the pending writes, which release their staging buffers
+        reader.close();
+      }
+      assertEquals(2L * BLOCK_SIZE, cache.getUsedBytes());
+      assertEquals(0, allocator.getAllocatedMemory());
+    } finally {
+      blocked.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testStagingBufferFromAllocator() throws Exception {
+    final CountingReader source = new CountingReader(data);
+    final CompletableFuture<Void> remote = new CompletableFuture<>();
+    final AsyncByteReader delayed =
+        new AsyncByteReader() {
+          @Override
+          public CompletableFuture<Void> readFully(
+              long offset, ByteBuf dst, int dstOffset, int len) {
+            return source.readFully(offset, dst, dstOffset, len).thenCombine(remote, (a, b) -> a);
+          }
+        };
+    try (AsyncByteReader reader = newReader(delayed, "v1", "source", 100)) {
+      final ByteBuf dst = Unpooled.directBuffer(BLOCK_SIZE);
+      try {
+        final CompletableFuture<Void> read = reader.readFully(0, dst, 0, BLOCK_SIZE);
+        assertEquals(BLOCK_SIZE, allocator.getAllocatedMemory());
+        remote.complete(null);
+        read.get();
+      } finally {
+        dst.release();
+      }
+      assertEquals(0, allocator.getAllocatedMemory());
+    }
+  }
+
+  private AsyncByteReader newReader(
+      AsyncByteReader source, String version, String sourceId, int maxSpacePct) {
+    return new CachingAsyncByteReader(
+        source,
+        cache,
+        allocator,
+        ioExecutor,
+        sourceId,
+        FileKey.of(Path.of("/data/file.parquet"), version, FileKey.FileType.PARQUET),
+        maxSpacePct,
+        () -> (long) FILE_SIZE);
+  }
+
+  private void assertRead(AsyncByteReader reader, int offset, int len) throws Exception {
+    final ByteBuf dst = Unpooled.directBuffer(len + 10);
+    try {
+      reader.readFully(offset, dst, 10, len).get();
+      final byte[] actual = new byte[len];
+      dst.getBytes(10, actual);
+      assertArrayEquals(Arrays.copyOfRange(data, offset, offset + len), actual);
+    } finally {
+      assertTrue(dst.release());
+    }
+  }
+
+  private static final class CountingReader implements AsyncByteReader {
+    private final byte[] data;
+    private int reads;
+
+    private CountingReader(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public CompletableFuture<Void> readFully(long offset, ByteBuf dst, int dstOffset, int len) {
+      reads++;
+      if (offset + len > data.length) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(new IllegalArgumentException("read past end of file"));
+        return future;
+      }
+      dst.setBytes(dstOffset, data, (int) offset, len);
+      return completedFuture;
+    }
+  }
+}
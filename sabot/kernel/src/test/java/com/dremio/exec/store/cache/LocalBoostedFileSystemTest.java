@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.cache;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.dremio.common.collections.Tuple;
+import com.dremio.io.AsyncByteReader.FileKey;
+import com.dremio.io.AsyncByteReader.ReaderStat;
+import com.dremio.io.FSInputStream;
+import com.dremio.io.FSOutputStream;
+import com.dremio.io.file.Path;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Test for {@link LocalBoostedFileSystem} */
+public class LocalBoostedFileSystemTest {
+  private static final FileKey FILE =
+      FileKey.of(Path.of("/data/file.parquet"), "1", FileKey.FileType.OTHER);
+
+  @Rule public final TemporaryFolder tempDir = new TemporaryFolder();
+
+  private java.nio.file.Path root;
+
+  @Before
+  public void setUp() throws Exception {
+    root = tempDir.newFolder().toPath();
+  }
+
+  @Test
+  public void testCommitThenRead() throws Exception {
+    final LocalBoostedFileSystem fs = new LocalBoostedFileSystem(root, 1024);
+    final byte[] data = bytes(100, 1);
+    write(fs, 0, "a", data);
+    fs.commitBoostFile(FILE, 0, "a");
+
+    final List<ReaderStat> stats = new ArrayList<>();
+    final Tuple<FSInputStream, Long> boostFile = fs.getBoostFile(FILE, 0, "A", stats, null);
+    assertNotNull(boostFile);
+    assertEquals(100L, (long) boostFile.second);
+    assertArrayEquals(data, read(boostFile.first, 100));
+
+    // positioned reads
+    final ByteBuffer dst = ByteBuffer.allocate(10);
+    boostFile.first.read(50, dst);
+    assertEquals(data[50], dst.get(0));
+    assertEquals(60, boostFile.first.getPosition());
+    boostFile.first.close();
+
+    assertNull(fs.getBoostFile(FILE, 1, "a", stats, null));
+    assertNull(
+        fs.getBoostFile(
+            FileKey.of(Path.of("/data/file.parquet"), "2", FileKey.FileType.OTHER),
+            0,
+            "a",
+            stats,
+            null));
+    assertEquals(1, fs.getHits());
+    assertEquals(2, fs.getMisses());
+    assertEquals(2, stats.size());
+  }
+
+  @Test
+  public void testAbort() throws Exception {
+    final LocalBoostedFileSystem fs = new LocalBoostedFileSystem(root, 1024);
+    write(fs, 0, "a", bytes(100, 1));
+    fs.abortBoostFile(FILE, 0, "a");
+
+    assertNull(fs.getBoostFile(FILE, 0, "a", null, null));
+    assertEquals(0, fs.getUsedBytes());
+
+    // the column can be boosted again
+    write(fs, 0, "a", bytes(10, 1));
+    fs.commitBoostFile(FILE, 0, "a");
+    assertNotNull(fs.getBoostFile(FILE, 0, "a", null, null));
+  }
+
+  @Test
+  public void testConcurrentAndRepeatedWrites() throws Exception {
+    final LocalBoostedFileSystem fs = new LocalBoostedFileSystem(root, 1024);
+    final FSOutputStream out = fs.createBoostFile(FILE, 0, "a");
+    try {
+      fs.createBoostFile(FILE, 0, "a");
+      fail("expected a failure while the column is being boosted");
+    } catch (FileAlreadyExistsException e) {
+      // expected
+    }
+    out.close();
+    fs.commitBoostFile(FILE, 0, "a");
+
+    try {
+      fs.createBoostFile(FILE, 0, "a");
+      fail("expected a failure as the column is already boosted");
+    } catch (FileAlreadyExistsException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testEvictionFollowsReads() throws Exception {
+    final LocalBoostedFileSystem fs = new LocalBoostedFileSystem(root, 300);
+    for (int i = 0; i < 3; i++) {
+      write(fs, i, "a", bytes(100, i));
+      fs.commitBoostFile(FILE, i, "a");
+    }
+    assertEquals(300, fs.getUsedBytes());
+
+    // row group 0 is read, so row group 1 is the least recently used
+    fs.getBoostFile(FILE, 0, "a", null, null).first.close();
+    write(fs, 3, "a", bytes(100, 3));
+    fs.commitBoostFile(FILE, 3, "a");
+
+    assertEquals(1, fs.getEvictions());
+    assertEquals(300, fs.getUsedBytes());
+    assertNull(fs.getBoostFile(FILE, 1, "a", null, null));
+    assertNotNull(fs.getBoostFile(FILE, 0, "a", null, null));
+    assertNotNull(fs.getBoostFile(FILE, 3, "a", null, null));
+  }
+
+  @Test
+  public void testTooLargeFileIsNotCommitted() throws Exception {
+    final LocalBoostedFileSystem fs = new LocalBoostedFileSystem(root, 50);
+    write(fs, 0, "a", bytes(100, 1));
+    try {
+      fs.commitBoostFile(FILE, 0, "a");
+      fail("expected a failure as the file is larger than the capacity");
+    } catch (IOException e) {
+      // expected
+    }
+    assertNull(fs.getBoostFile(FILE, 0, "a", null, null));
+    assertEquals(0, fs.getUsedBytes());
+  }
+
+  @Test
+  public void testReopen() throws Exception {
+    final LocalBoostedFileSystem fs = new LocalBoostedFileSystem(root, 1024);
+    final byte[] data = bytes(100, 7);
+    write(fs, 0, "a", data);
+    fs.commitBoostFile(FILE, 0, "a");
+    // left in progress, dropped on restart
+    write(fs, 0, "b", bytes(100, 8));
+
+    final LocalBoostedFileSystem reopened = new LocalBoostedFileSystem(root, 1024);
+    assertEquals(1, reopened.getFileCount());
+    assertEquals(100, reopened.getUsedBytes());
+    final Tuple<FSInputStream, Long> boostFile = reopened.getBoostFile(FILE, 0, "a", null, null);
+    assertNotNull(boostFile);
+    assertArrayEquals(data, read(boostFile.first, 100));
+    assertNull(reopened.getBoostFile(FILE, 0, "b", null, null));
+  }
+
+  private static void write(LocalBoostedFileSystem fs, long offset, String column, byte[] data)
+      throws Exception {
+    try (FSOutputStream out = fs.createBoostFile(FILE, offset, column)) {
+      out.write(data);
+      assertEquals(data.length, out.getPosition());
+    }
+  }
+
+  private static byte[] read(FSInputStream in, int length) throws Exception {
+    final byte[] result = new byte[length];
+    int read = 0;
+    while (read < length) {
+      final int n = in.read(result, read, length - read);
+      if (n < 0) {
+        break;
+      }
+      read += n;
+    }
+    assertEquals(length, read);
+    assertEquals(-1, in.read());
+    return result;
+  }
+
+  private static byte[] bytes(int length, int seed) {
+    final byte[] result = new byte[length];
+    for (int i = 0; i < length; i++) {
+      result[i] = (byte) (i * 31 + seed);
+    }
+    return result;
+  }
+}
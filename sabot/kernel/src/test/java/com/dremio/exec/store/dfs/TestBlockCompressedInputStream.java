@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.dfs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.dremio.exec.hadoop.HadoopFileSystem;
+import com.dremio.io.file.FileSystem;
+import com.dremio.io.file.Path;
+import com.github.luben.zstd.Zstd;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestBlockCompressedInputStream {
+  private static final int BLOCK_SIZE = 1000;
+
+  @Rule public TemporaryFolder tempDir = new TemporaryFolder();
+
+  private FileSystem fs;
+  private byte[] content;
+
+  @Before
+  public void setup() throws IOException {
+    fs = HadoopFileSystem.getLocal(new Configuration());
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      sb.append(i).append(",value").append(i * 31).append('\n');
+    }
+    content = sb.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testBgzfSplits() throws IOException {
+    Path path = write("data.csv.gz", bgzf(content));
+    assertTrue(BlockCompressedInputStream.isBlockCompressed(fs, fs.getFileAttributes(path)));
+    checkSplits(path);
+  }
+
+  @Test
+  public void testZstdSeekableSplits() throws IOException {
+    Path path = write("data.csv.zst", zstdSeekable(content));
+    assertTrue(BlockCompressedInputStream.isBlockCompressed(fs, fs.getFileAttributes(path)));
+    checkSplits(path);
+  }
+
+  @Test
+  public void testPlainGzipIsNotBlockCompressed() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(content);
+    }
+    Path path = write("data.csv.gz", bytes.toByteArray());
+
+    assertFalse(BlockCompressedInputStream.isBlockCompressed(fs, fs.getFileAttributes(path)));
+    assertNull(BlockCompressedInputStream.open(fs, path, 0, Long.MAX_VALUE));
+  }
+
+  /**
+   * Splits the file at arbitrary offsets, and checks that the data owned by each split put together
+   * gives back the whole content.
+   */
+  private void checkSplits(Path path) throws IOException {
+    long fileSize = fs.getFileAttributes(path).size();
+    for (long splitSize : new long[] {fileSize, fileSize / 3 + 1, 777, 100}) {
+      ByteArrayOutputStream owned = new ByteArrayOutputStream();
+      for (long start = 0; start < fileSize; start += splitSize) {
+        try (BlockCompressedInputStream in =
+            BlockCompressedInputStream.open(fs, path, start, start + splitSize)) {
+          byte[] data = readAll(in);
+          long splitEnd = in.getSplitEnd();
+          int ownedLength = splitEnd == Long.MAX_VALUE ? data.length : (int) splitEnd;
+          assertEquals(start == 0, in.getBlockStart() == 0);
+          owned.write(data, 0, ownedLength);
+        }
+      }
+      assertArrayEquals("split size " + splitSize, content, owned.toByteArray());
+    }
+  }
+
+  private static byte[] readAll(BlockCompressedInputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteBuffer buffer = ByteBuffer.allocate(4096);
+    while (in.read(buffer) >= 0) {
+      out.write(buffer.array(), 0, buffer.position());
+      buffer.clear();
+    }
+    return out.toByteArray();
+  }
+
+  private Path write(String name, byte[] bytes) throws IOException {
+    File file = tempDir.newFile(name);
+    Files.write(file.toPath(), bytes);
+    return Path.of(file.getAbsolutePath());
+  }
+
+  private static byte[] bgzf(byte[] data) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int off = 0; off < data.length; off += BLOCK_SIZE) {
+      writeBgzfBlock(out, data, off, Math.min(BLOCK_SIZE, data.length - off));
+    }
+    // end of file marker
+    writeBgzfBlock(out, data, 0, 0);
+    return out.toByteArray();
+  }
+
+  private static void writeBgzfBlock(ByteArrayOutputStream out, byte[] data, int off, int len) {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    deflater.setInput(data, off, len);
+    deflater.finish();
+    byte[] compressed = new byte[len + 1024];
+    int compressedLength = deflater.deflate(compressed);
+    deflater.end();
+    CRC32 crc = new CRC32();
+    crc.update(data, off, len);
+
+    ByteBuffer block =
+        ByteBuffer.allocate(18 + compressedLength + 8).order(ByteOrder.LITTLE_ENDIAN);
+    block.put(new byte[] {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff});
+    block.putShort((short) 6).put((byte) 'B').put((byte) 'C').putShort((short) 2);
+    block.putShort((short) (block.capacity() - 1));
+    block.put(compressed, 0, compressedLength);
+    block.putInt((int) crc.getValue()).putInt(len);
+    out.write(block.array(), 0, block.capacity());
+  }
+
+  private static byte[] zstdSeekable(byte[] data) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int frames = (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    ByteBuffer table = ByteBuffer.allocate(8 + frames * 8 + 9).order(ByteOrder.LITTLE_ENDIAN);
+    table.putInt(0x184D2A5E).putInt(table.capacity() - 8);
+    for (int off = 0; off < data.length; off += BLOCK_SIZE) {
+      int len = Math.min(BLOCK_SIZE, data.length - off);
+      byte[] frame = new byte[len];
+      System.arraycopy(data, off, frame, 0, len);
+      byte[] compressed = Zstd.compress(frame, 3);
+      out.write(compressed, 0, compressed.length);
+      table.putInt(compressed.length).putInt(len);
+    }
+    table.putInt(frames).put((byte) 0).putInt(0x8F92EAB1);
+    out.write(table.array(), 0, table.capacity());
+    return out.toByteArray();
+  }
+}
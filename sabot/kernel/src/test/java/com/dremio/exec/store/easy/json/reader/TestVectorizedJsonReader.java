@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.easy.json.reader;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.dremio.common.expression.SchemaPath;
+import com.dremio.exec.store.SampleMutator;
+import com.dremio.test.AllocatorRule;
+import com.dremio.test.DremioTest;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VarCharVector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Tests for {@link JsonStructuralIndex} and {@link VectorizedJsonReader}. */
+public class TestVectorizedJsonReader extends DremioTest {
+
+  private static final List<SchemaPath> ALL_COLUMNS =
+      ImmutableList.of(SchemaPath.getSimplePath("*"));
+
+  @Rule public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  private BufferAllocator allocator;
+  private SampleMutator mutator;
+
+  @Before
+  public void setup() {
+    allocator = allocatorRule.newAllocator("test-vectorized-json-reader", 0, Long.MAX_VALUE);
+    mutator = new SampleMutator(allocator);
+  }
+
+  @After
+  public void cleanup() throws Exception {
+    mutator.close();
+    allocator.close();
+  }
+
+  @Test
+  public void testIndexMatchesScalarScan() {
+    final Random random = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      final byte[] doc = randomTokens(random, 1 + random.nextInt(200)).getBytes(UTF_8);
+      final JsonStructuralIndex index = JsonStructuralIndex.build(doc, doc.length);
+      final List<Integer> expected = scalarScan(doc);
+      final int[] actual = new int[index.size()];
+      for (int j = 0; j < actual.length; j++) {
+        actual[j] = index.get(j);
+      }
+      assertArrayEquals(
+          new String(doc, UTF_8), expected.stream().mapToInt(Integer::intValue).toArray(), actual);
+      assertFalse(index.hasUnterminatedString());
+    }
+  }
+
+  @Test
+  public void testUnterminatedString() {
+    final byte[] doc = "{\"a\": \"abc\\\"}".getBytes(UTF_8);
+    assertTrue(JsonStructuralIndex.build(doc, doc.length).hasUnterminatedString());
+  }
+
+  @Test
+  public void testFlatRecords() {
+    final VectorizedJsonReader reader =
+        newReader(
+            "{\"id\": 1, \"price\": 2.5e1, \"name\": \"caf\\u00e9 \\\"x\\\"\", \"ok\": true}\n"
+                + "{\"ID\": -7, \"name\": \"\\ud83d\\ude00\", \"ok\": false, \"price\": null}\n"
+                + "{}",
+            ALL_COLUMNS);
+
+    assertEquals(3, reader.write(100, Long.MAX_VALUE));
+    assertFalse(reader.isFallbackRequired());
+    final BigIntVector id = (BigIntVector) mutator.getVector("id");
+    final Float8Vector price = (Float8Vector) mutator.getVector("price");
+    final VarCharVector name = (VarCharVector) mutator.getVector("name");
+    final BitVector ok = (BitVector) mutator.getVector("ok");
+    assertEquals(1L, id.getObject(0).longValue());
+    assertEquals(-7L, id.getObject(1).longValue());
+    assertNull(id.getObject(2));
+    assertEquals(25.0, price.getObject(0), 0);
+    assertNull(price.getObject(1));
+    assertEquals("caf\u00e9 \"x\"", name.getObject(0).toString());
+    assertEquals("\ud83d\ude00", name.getObject(1).toString());
+    assertEquals(Boolean.TRUE, ok.getObject(0));
+    assertEquals(Boolean.FALSE, ok.getObject(1));
+    assertNull(ok.getObject(2));
+
+    assertEquals(0, reader.write(100, Long.MAX_VALUE));
+    assertFalse(reader.isFallbackRequired());
+  }
+
+  @Test
+  public void testBatchLimit() {
+    final VectorizedJsonReader reader =
+        newReader("[{\"a\": 1}, {\"a\": 2}, {\"a\": 3}, {\"a\": 4}, {\"a\": 5}]", ALL_COLUMNS);
+    assertEquals(2, reader.write(2, Long.MAX_VALUE));
+    assertEquals(2, reader.write(2, Long.MAX_VALUE));
+    assertEquals(1, reader.write(2, Long.MAX_VALUE));
+    assertEquals(5L, ((BigIntVector) mutator.getVector("a")).get(0));
+    assertEquals(0, reader.write(2, Long.MAX_VALUE));
+    assertFalse(reader.isFallbackRequired());
+  }
+
+  @Test
+  public void testFallbackOnSchemaChange() throws IOException {
+    final VectorizedJsonReader reader =
+        newReader("{\"a\": 1, \"b\": \"x\"}\n{\"a\": 2, \"b\": 3}\n{\"a\": 4}", ALL_COLUMNS);
+    assertEquals(1, reader.write(100, Long.MAX_VALUE));
+    assertTrue(reader.isFallbackRequired());
+    assertEquals(1, mutator.getVector("a").getValueCount());
+    // the partially written record must not leak into the batch
+    assertTrue(mutator.getVector("a").isNull(1));
+    assertEquals("{\"a\": 2, \"b\": 3}\n{\"a\": 4}", remaining(reader));
+    assertEquals(0, reader.write(100, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testFallbackInOuterList() throws IOException {
+    final VectorizedJsonReader reader = newReader("[{\"a\": 1}, {\"a\": {\"b\": 2}}]", ALL_COLUMNS);
+    assertEquals(1, reader.write(100, Long.MAX_VALUE));
+    assertTrue(reader.isFallbackRequired());
+    assertEquals("[{\"a\": {\"b\": 2}}]", remaining(reader));
+  }
+
+  @Test
+  public void testFallbackOnMalformedInput() throws IOException {
+    for (String doc :
+        new String[] {
+          "{\"a\": 01}",
+          "{\"a\": tru}",
+          "{\"a\" 1}",
+          "{\"a\": 1,}",
+          "{a: 1}",
+          "{\"a\": 1} 5",
+          "{\"a\": \"\\x\"}",
+          "{\"a\": 1 // comment\n}",
+          "{\"a\": 99999999999999999999}"
+        }) {
+      final VectorizedJsonReader reader = newReader(doc, ALL_COLUMNS);
+      reader.write(100, Long.MAX_VALUE);
+      assertTrue(doc, reader.isFallbackRequired());
+    }
+  }
+
+  @Test
+  public void testSkipsUnprojectedFields() {
+    final VectorizedJsonReader reader =
+        newReader(
+            "{\"a\": 1, \"b\": {\"c\": [1, \"]\", {\"d\": null}]}, \"e\": \"x\"}\n"
+                + "{\"b\": [], \"a\": 2}",
+            ImmutableList.of(SchemaPath.getSimplePath("A")));
+    assertEquals(2, reader.write(100, Long.MAX_VALUE));
+    assertFalse(reader.isFallbackRequired());
+    assertEquals(2L, ((BigIntVector) mutator.getVector("a")).get(1));
+    assertNull(mutator.getVector("b"));
+    assertNull(mutator.getVector("e"));
+  }
+
+  private VectorizedJsonReader newReader(String json, List<SchemaPath> columns) {
+    final byte[] data = json.getBytes(UTF_8);
+    return new VectorizedJsonReader(
+        JsonStructuralIndex.build(data, data.length), mutator, columns, 1024, 100, false);
+  }
+
+  private static String remaining(VectorizedJsonReader reader) throws IOException {
+    return new String(reader.getRemainingInput().readAllBytes(), UTF_8);
+  }
+
+  private static String randomTokens(Random random, int count) {
+    final String[] tokens = {"{", "}", "[", "]", ":", ",", "true", "null", "-12.5e3", "42"};
+    final String[] pieces = {
+      "a", "\\\\", "\\\"", "\\n", "\\u00e9", "\u00e9", "{", ",", " ", "\\\\\\\""
+    };
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      if (random.nextInt(3) == 0) {
+        sb.append('"');
+        for (int j = random.nextInt(12); j > 0; j--) {
+          sb.append(pieces[random.nextInt(pieces.length)]);
+        }
+        sb.append('"');
+      } else {
+        sb.append(tokens[random.nextInt(tokens.length)]);
+      }
+      for (int j = random.nextInt(3); j > 0; j--) {
+        sb.append(random.nextBoolean() ? ' ' : '\n');
+      }
+    }
+    return sb.toString();
+  }
+
+  /** Byte by byte reference implementation of the structural index. */
+  private static List<Integer> scalarScan(byte[] doc) {
+    final List<Integer> positions = new ArrayList<>();
+    boolean inString = false;
+    boolean escaped = false;
+    boolean inScalar = false;
+    for (int i = 0; i < doc.length; i++) {
+      final char c = (char) (doc[i] & 0xFF);
+      if (inString) {
+        if (escaped) {
+          escaped = false;
+        } else if (c == '\\') {
+          escaped = true;
+        } else if (c == '"') {
+          inString = false;
+        }
+        continue;
+      }
+      final boolean operator = "{}[]:,".indexOf(c) >= 0;
+      final boolean whitespace = " \t\n\r".indexOf(c) >= 0;
+      if (c == '"') {
+        positions.add(i);
+        inString = true;
+      } else if (operator) {
+        positions.add(i);
+      } else if (!whitespace && !inScalar) {
+        positions.add(i);
+      }
+      inScalar = !operator && !whitespace && c != '"';
+    }
+    return positions;
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.metadatarefresh.footerread;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.dremio.io.AsyncByteReader;
+import com.dremio.io.file.FileSystem;
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for {@link ParquetFooterPrefetcher} */
+public class TestParquetFooterPrefetcher {
+  private static final long MAX_FOOTER_LEN = 16 * 1024 * 1024;
+
+  private final Map<String, byte[]> files = new HashMap<>();
+  private final AtomicInteger reads = new AtomicInteger();
+  private FileSystem fs;
+
+  @Before
+  public void setup() throws IOException {
+    fs = mock(FileSystem.class);
+    when(fs.supportsAsync()).thenReturn(true);
+    when(fs.getAsyncByteReader(any(), any()))
+        .thenAnswer(
+            invocation -> {
+              final AsyncByteReader.FileKey key = invocation.getArgument(0);
+              return new ByteArrayAsyncByteReader(files.get(key.getPath().toString()));
+            });
+  }
+
+  @Test
+  public void testSingleRangedRead() throws Exception {
+    final byte[] footer = addFile("/a.parquet", 1024 * 1024, 1000);
+    try (ParquetFooterPrefetcher prefetcher = newPrefetcher(4)) {
+      prefetcher.submit(0, "/a.parquet", files.get("/a.parquet").length, 1L);
+      assertArrayEquals(footer, prefetcher.takeFooterBytes(0, "/a.parquet"));
+      assertEquals(1, reads.get());
+      assertEquals(1, prefetcher.getNumReads());
+      assertEquals(0, prefetcher.getNumExtraReads());
+      assertEquals(1000, prefetcher.getFooterBytes().getMax());
+    }
+  }
+
+  @Test
+  public void testTailLengthGuessedFromFileSize() throws Exception {
+    // the footer does not fit in the default tail read
+    final byte[] footer1 = addFile("/a.parquet", 200 * 1024, 100 * 1024);
+    final byte[] footer2 = addFile("/b.parquet", 400 * 1024, 200 * 1024);
+    try (ParquetFooterPrefetcher prefetcher = newPrefetcher(4)) {
+      prefetcher.submit(0, "/a.parquet", files.get("/a.parquet").length, 1L);
+      assertArrayEquals(footer1, prefetcher.takeFooterBytes(0, "/a.parquet"));
+      assertEquals(2, reads.get());
+      assertEquals(1, prefetcher.getNumExtraReads());
+
+      // the next file of the same shape is read at once
+      prefetcher.submit(1, "/b.parquet", files.get("/b.parquet").length, 1L);
+      assertArrayEquals(footer2, prefetcher.takeFooterBytes(1, "/b.parquet"));
+      assertEquals(3, reads.get());
+      assertEquals(1, prefetcher.getNumExtraReads());
+    }
+  }
+
+  @Test
+  public void testReadsInFlight() throws Exception {
+    final byte[] footer0 = addFile("/0.parquet", 4096, 100);
+    addFile("/1.parquet", 4096, 200);
+    final byte[] footer2 = addFile("/2.parquet", 4096, 300);
+    try (ParquetFooterPrefetcher prefetcher = newPrefetcher(2)) {
+      prefetcher.submit(0, "/0.parquet", 4096, 1L);
+      prefetcher.submit(1, "/1.parquet", 4096, 1L);
+      assertFalse(prefetcher.canSubmit());
+
+      assertArrayEquals(footer0, prefetcher.takeFooterBytes(0, "/0.parquet"));
+      assertTrue(prefetcher.canSubmit());
+      prefetcher.submit(2, "/2.parquet", 4096, 1L);
+
+      // row 1 was not consumed, its read is dropped
+      assertArrayEquals(footer2, prefetcher.takeFooterBytes(2, "/2.parquet"));
+      assertNull(prefetcher.takeFooterBytes(1, "/1.parquet"));
+      assertNull(prefetcher.takeFooterBytes(3, "/3.parquet"));
+    }
+  }
+
+  @Test
+  public void testNotParquet() throws Exception {
+    files.put("/b.csv", new byte[4096]);
+    try (ParquetFooterPrefetcher prefetcher = newPrefetcher(2)) {
+      prefetcher.submit(0, "/b.csv", 4096, 1L);
+      prefetcher.takeFooterBytes(0, "/b.csv");
+      fail("Expected a read failure");
+    } catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("is not a Parquet file"));
+    }
+  }
+
+  @Test
+  public void testAsyncNotSupported() throws Exception {
+    when(fs.supportsAsync()).thenReturn(false);
+    addFile("/a.parquet", 4096, 100);
+    try (ParquetFooterPrefetcher prefetcher = newPrefetcher(2)) {
+      prefetcher.submit(0, "/a.parquet", 4096, 1L);
+      assertFalse(prefetcher.canSubmit());
+      assertNull(prefetcher.takeFooterBytes(0, "/a.parquet"));
+      assertEquals(0, reads.get());
+    }
+  }
+
+  @Test
+  public void testHistogram() {
+    final ParquetFooterPrefetcher.Histogram histogram = new ParquetFooterPrefetcher.Histogram();
+    assertEquals(0, histogram.getPercentile(50));
+    for (int i = 1; i <= 100; i++) {
+      histogram.add(i);
+    }
+    assertEquals(100, histogram.getCount());
+    assertEquals(100, histogram.getMax());
+    assertEquals(63, histogram.getPercentile(50));
+    assertEquals(100, histogram.getPercentile(99));
+  }
+
+  private ParquetFooterPrefetcher newPrefetcher(int maxInFlight) {
+    return new ParquetFooterPrefetcher(path -> fs, null, maxInFlight, MAX_FOOTER_LEN);
+  }
+
+  /** Adds a file with a parquet like tail, and returns its footer. */
+  private byte[] addFile(String path, int fileSize, int footerSize) {
+    final byte[] data = new byte[fileSize];
+    final byte[] footer = new byte[footerSize];
+    for (int i = 0; i < footerSize; i++) {
+      footer[i] = (byte) (i * 31 + 7);
+    }
+    final int footerStart = fileSize - footerSize - 8;
+    System.arraycopy(footer, 0, data, footerStart, footerSize);
+    data[fileSize - 8] = (byte) footerSize;
+    data[fileSize - 7] = (byte) (footerSize >>> 8);
+    data[fileSize - 6] = (byte) (footerSize >>> 16);
+    data[fileSize - 5] = (byte) (footerSize >>> 24);
+    System.arraycopy("PAR1".getBytes(StandardCharsets.US_ASCII), 0, data, fileSize - 4, 4);
+    files.put(path, data);
+    return footer;
+  }
+
+  private final class ByteArrayAsyncByteReader implements AsyncByteReader {
+    private final byte[] data;
+
+    ByteArrayAsyncByteReader(byte[] data) {
+      this.data = data;
+    }
+
+    @Override
+    public CompletableFuture<Void> readFully(long offset, ByteBuf dst, int dstOffset, int len) {
+      reads.incrementAndGet();
+      dst.setBytes(dstOffset, data, (int) offset, len);
+      return CompletableFuture.completedFuture(null);
+    }
+  }
+}
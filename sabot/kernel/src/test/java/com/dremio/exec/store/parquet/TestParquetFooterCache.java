@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.dremio.test.AllocatorRule;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.arrow.memory.BufferAllocator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Test for {@link ParquetFooterCache} */
+public class TestParquetFooterCache {
+  @Rule public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  private BufferAllocator allocator;
+
+  @Before
+  public void setup() {
+    allocator = allocatorRule.newAllocator("test-parquet-footer-cache", 0, Long.MAX_VALUE);
+  }
+
+  @After
+  public void cleanup() {
+    allocator.close();
+  }
+
+  @Test
+  public void testHitAfterMiss() throws Exception {
+    final ParquetFooterCache cache = new ParquetFooterCache(1024 * 1024, null);
+    final ParquetReaderStats stats = new ParquetReaderStats();
+    final AtomicInteger reads = new AtomicInteger();
+    final ParquetFooterCache.Key key = new ParquetFooterCache.Key("/a.parquet", 1, 100);
+
+    final ParquetFooterCache.Footer first =
+        cache.getFooterBytes(key, () -> footer(reads, 10), stats);
+    final ParquetFooterCache.Footer second =
+        cache.getFooterBytes(key, () -> footer(reads, 10), stats);
+
+    assertEquals(1, reads.get());
+    assertSame(first, second);
+    assertEquals(1, stats.numFooterCacheMisses);
+    assertEquals(1, stats.numFooterCacheHits);
+    assertEquals(1, cache.getCacheStats().hitCount());
+  }
+
+  @Test
+  public void testKeyIncludesVersion() throws Exception {
+    final ParquetFooterCache cache = new ParquetFooterCache(1024 * 1024, null);
+    final AtomicInteger reads = new AtomicInteger();
+
+    cache.getFooterBytes(
+        new ParquetFooterCache.Key("/a.parquet", 1, 100), () -> footer(reads, 10), null);
+    // rewritten in place
+    cache.getFooterBytes(
+        new ParquetFooterCache.Key("/a.parquet", 2, 100), () -> footer(reads, 10), null);
+    cache.getFooterBytes(
+        new ParquetFooterCache.Key("/a.parquet", 2, 200), () -> footer(reads, 10), null);
+
+    assertEquals(3, reads.get());
+  }
+
+  @Test
+  public void testBoundedBySerializedSize() throws Exception {
+    final ParquetFooterCache cache = new ParquetFooterCache(10_000, null);
+    final AtomicInteger reads = new AtomicInteger();
+    for (int i = 0; i < 10; i++) {
+      cache.getFooterBytes(
+          new ParquetFooterCache.Key("/" + i, 1, 100), () -> footer(reads, 4_000), null);
+    }
+    assertTrue(cache.getSize() <= 2);
+  }
+
+  @Test
+  public void testOffHeapFootersAreAccounted() throws Exception {
+    final ParquetFooterCache cache = new ParquetFooterCache(1024 * 1024, allocator);
+    final ParquetFooterCache.Footer footer =
+        cache.getFooterBytes(
+            new ParquetFooterCache.Key("/a.parquet", 1, 100),
+            () -> footer(new AtomicInteger(), 10),
+            null);
+    assertTrue(footer.isOffHeap());
+    assertEquals(10, footer.getLength());
+    assertContent(footer, 10);
+    footer.release();
+    assertTrue(allocator.getAllocatedMemory() >= 10);
+
+    cache.invalidateAll();
+    assertEquals(0, allocator.getAllocatedMemory());
+  }
+
+  @Test
+  public void testEvictedFooterIsReleasedByItsReader() throws Exception {
+    final ParquetFooterCache cache = new ParquetFooterCache(1024 * 1024, allocator);
+    final ParquetFooterCache.Footer footer =
+        cache.getFooterBytes(
+            new ParquetFooterCache.Key("/a.parquet", 1, 100),
+            () -> footer(new AtomicInteger(), 10),
+            null);
+
+    cache.invalidateAll();
+    // still readable until released
+    assertTrue(allocator.getAllocatedMemory() > 0);
+    assertContent(footer, 10);
+    footer.release();
+    assertEquals(0, allocator.getAllocatedMemory());
+  }
+
+  @Test
+  public void testFooterLargerThanTheCache() throws Exception {
+    final ParquetFooterCache cache = new ParquetFooterCache(1_000, allocator);
+    final AtomicInteger reads = new AtomicInteger();
+    final ParquetFooterCache.Footer footer =
+        cache.getFooterBytes(
+            new ParquetFooterCache.Key("/a.parquet", 1, 100), () -> footer(reads, 4_000), null);
+
+    assertEquals(0, cache.getSize());
+    assertContent(footer, 4_000);
+    footer.release();
+    assertEquals(0, allocator.getAllocatedMemory());
+  }
+
+  @Test
+  public void testFailedReadIsNotCached() throws Exception {
+    final ParquetFooterCache cache = new ParquetFooterCache(1024 * 1024, null);
+    final ParquetFooterCache.Key key = new ParquetFooterCache.Key("/a.parquet", 1, 100);
+    try {
+      cache.getFooterBytes(
+          key,
+          () -> {
+            throw new IOException("not a parquet file");
+          },
+          null);
+      fail("expected the read failure to be rethrown");
+    } catch (IOException e) {
+      assertEquals("not a parquet file", e.getMessage());
+    }
+
+    final AtomicInteger reads = new AtomicInteger();
+    cache.getFooterBytes(key, () -> footer(reads, 10), null);
+    assertEquals(1, reads.get());
+  }
+
+  private static void assertContent(ParquetFooterCache.Footer footer, int length)
+      throws IOException {
+    try (InputStream in = footer.newInputStream()) {
+      for (int i = 0; i < length; i++) {
+        assertEquals((byte) i, (byte) in.read());
+      }
+      assertEquals(0, in.available());
+    }
+  }
+
+  private static byte[] footer(AtomicInteger reads, int length) {
+    reads.incrementAndGet();
+    final byte[] footer = new byte[length];
+    for (int i = 0; i < length; i++) {
+      footer[i] = (byte) i;
+    }
+    return footer;
+  }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.store.parquet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.dremio.exec.store.parquet.VectoredReadPlanner.Range;
+import com.dremio.exec.store.parquet.VectoredReadPlanner.Region;
+import com.dremio.io.AsyncByteReader;
+import com.dremio.test.AllocatorRule;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Tests for {@link VectoredReadPlanner} and {@link VectoredReadStreamProvider} */
+public class TestVectoredReadStreamProvider {
+  private static final int FILE_LENGTH = 1024 * 1024;
+  private static final byte[] FILE = new byte[FILE_LENGTH];
+
+  static {
+    for (int i = 0; i < FILE_LENGTH; i++) {
+      FILE[i] = (byte) (i * 31 + (i >> 8));
+    }
+  }
+
+  @Rule public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  private BufferAllocator allocator;
+  private InputStreamProvider delegate;
+  private ByteArrayAsyncByteReader reader;
+
+  @Before
+  public void setup() {
+    allocator = allocatorRule.newAllocator("test-vectored-read", 0, Long.MAX_VALUE);
+    delegate = mock(InputStreamProvider.class);
+    reader = new ByteArrayAsyncByteReader();
+  }
+
+  @After
+  public void cleanup() {
+    allocator.close();
+  }
+
+  @Test
+  public void testCoalesce() {
+    final List<Region> regions =
+        VectoredReadPlanner.coalesce(
+            Arrays.asList(
+                new Range(10_000, 100),
+                new Range(0, 100),
+                new Range(150, 100),
+                new Range(200, 100),
+                new Range(20_000, 50_000)),
+            100,
+            1_000);
+
+    assertEquals(3, regions.size());
+    assertRegion(regions.get(0), 0, 300, 3);
+    assertEquals(250, regions.get(0).getUsefulBytes());
+    assertRegion(regions.get(1), 10_000, 10_100, 1);
+    // a range longer than the maximum region length is kept whole
+    assertRegion(regions.get(2), 20_000, 70_000, 1);
+
+    // the region length bound stops coalescing
+    final List<Region> bounded =
+        VectoredReadPlanner.coalesce(
+            Arrays.asList(new Range(0, 600), new Range(700, 600)), 1_000, 1_000);
+    assertEquals(2, bounded.size());
+
+    final List<Range> requests = VectoredReadPlanner.split(regions.get(2), 20_000);
+    assertEquals(3, requests.size());
+    assertEquals(40_000, requests.get(1).getOffset());
+    assertEquals(60_000, requests.get(2).getOffset());
+    assertEquals(10_000, requests.get(2).getLength());
+  }
+
+  @Test
+  public void testColumnsAreServedFromCoalescedReads() throws Exception {
+    final ColumnChunkMetaData a = column(100, 1_000);
+    final ColumnChunkMetaData b = column(1_200, 500);
+    final ColumnChunkMetaData c = column(400_000, 2_000);
+    final ColumnChunkMetaData notPrefetched = column(600_000, 100);
+    final BulkInputStream delegateStream = mock(BulkInputStream.class);
+    when(delegate.getStream(notPrefetched)).thenReturn(delegateStream);
+
+    try (VectoredReadStreamProvider provider = newProvider(1_024, 64 * 1024, 1 << 20, 1 << 20)) {
+      provider.prefetchColumnChunks(Arrays.asList(c, a, b));
+      assertEquals(2, reader.requests.size());
+
+      // announcing the same columns again does not read them again
+      provider.prefetchColumnChunks(Arrays.asList(a, b));
+      assertEquals(2, reader.requests.size());
+
+      assertColumn(provider, a);
+      assertColumn(provider, b);
+      assertColumn(provider, c);
+      assertSame(delegateStream, provider.getStream(notPrefetched));
+
+      final ParquetReaderStats stats = provider.getStats();
+      assertEquals(2, stats.numVectoredReadRegions);
+      assertEquals(2, stats.numVectoredReadRequests);
+      assertEquals(1_600 + 2_000, stats.totalVectoredReadBytes);
+      assertEquals(1_500 + 2_000, stats.totalVectoredUsefulBytes);
+      assertEquals(3_600d / 3_500d, stats.getVectoredReadAmplification(), 1e-9);
+    }
+    verify(delegate).close();
+  }
+
+  @Test
+  public void testInFlightBytesAreBounded() throws Exception {
+    reader.deferred = new ArrayList<>();
+    final ColumnChunkMetaData a = column(0, 256 * 1024);
+
+    try (VectoredReadStreamProvider provider = newProvider(0, 64 * 1024, 128 * 1024, FILE_LENGTH)) {
+      provider.prefetchColumnChunks(Collections.singletonList(a));
+      assertEquals(2, reader.requests.size());
+
+      reader.completeNext();
+      assertEquals(3, reader.requests.size());
+      reader.completeNext();
+      reader.completeNext();
+      reader.completeNext();
+      assertEquals(4, reader.requests.size());
+      assertTrue(reader.deferred.isEmpty());
+
+      assertColumn(provider, a);
+    }
+  }
+
+  @Test
+  public void testCloseWaitsForReadsInFlight() throws Exception {
+    reader.deferred = new ArrayList<>();
+    final VectoredReadStreamProvider provider = newProvider(0, 64 * 1024, 1 << 20, 1 << 20);
+    provider.prefetchColumnChunks(Collections.singletonList(column(0, 128 * 1024)));
+
+    final Thread completer =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(100);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              reader.completeNext();
+              reader.completeNext();
+            });
+    completer.start();
+    provider.close();
+    completer.join();
+    assertTrue(reader.deferred.isEmpty());
+  }
+
+  @Test
+  public void testReadFailureIsReported() throws Exception {
+    reader.failure = new IOException("read failed");
+    final ColumnChunkMetaData a = column(100, 1_000);
+
+    try (VectoredReadStreamProvider provider = newProvider(1_024, 64 * 1024, 1 << 20, 1 << 20)) {
+      provider.prefetchColumnChunks(Collections.singletonList(a));
+      try {
+        provider.getStream(a);
+        fail("expected the read failure to be reported");
+      } catch (IOException e) {
+        assertEquals("read failed", e.getMessage());
+      }
+    }
+  }
+
+  @Test
+  public void testColumnsOverBudgetAreStreamed() throws Exception {
+    final ColumnChunkMetaData a = column(0, 10_000);
+    final ColumnChunkMetaData b = column(500_000, 10_000);
+    final BulkInputStream delegateStream = mock(BulkInputStream.class);
+    when(delegate.getStream(b)).thenReturn(delegateStream);
+
+    try (VectoredReadStreamProvider provider = newProvider(0, 64 * 1024, 1 << 20, 15_000)) {
+      provider.prefetchColumnChunks(Arrays.asList(a, b));
+      assertEquals(1, reader.requests.size());
+
+      assertColumn(provider, a);
+      assertSame(delegateStream, provider.getStream(b));
+      verify(delegate, never()).getStream(a);
+    }
+  }
+
+  @Test
+  public void testRegionsAreReleasedOnceRead() throws Exception {
+    final ColumnChunkMetaData a = column(100, 1_000);
+    final ColumnChunkMetaData b = column(1_200, 500);
+    final ColumnChunkMetaData c = column(400_000, 2_000);
+    final BulkInputStream delegateStream = mock(BulkInputStream.class);
+    when(delegate.getStream(a)).thenReturn(delegateStream);
+
+    try (VectoredReadStreamProvider provider = newProvider(1_024, 64 * 1024, 1 << 20, 1 << 20)) {
+      provider.prefetchColumnChunks(Arrays.asList(a, b, c));
+      final long buffered = allocator.getAllocatedMemory();
+      assertTrue(buffered >= 1_600 + 2_000);
+
+      // the region of a and b is held until both columns have been read
+      assertColumn(provider, a);
+      assertEquals(buffered, allocator.getAllocatedMemory());
+      assertColumn(provider, b);
+      final long remaining = allocator.getAllocatedMemory();
+      assertTrue(remaining >= 2_000 && remaining < buffered);
+
+      // closing a stream gives up its chunk even if it was not read to the end
+      final BulkInputStream in = provider.getStream(c);
+      in.seek(c.getStartingPos());
+      in.readFully(new byte[100], 0, 100);
+      assertEquals(remaining, allocator.getAllocatedMemory());
+      in.close();
+      assertEquals(0, allocator.getAllocatedMemory());
+      assertEquals(c.getStartingPos() + c.getTotalSize(), in.getPos());
+
+      // a released chunk is read through the wrapped provider
+      assertSame(delegateStream, provider.getStream(a));
+    }
+  }
+
+  @Test
+  public void testReleasedRegionsFreeTheBudget() throws Exception {
+    final ColumnChunkMetaData a = column(0, 10_000);
+    final ColumnChunkMetaData b = column(500_000, 10_000);
+
+    try (VectoredReadStreamProvider provider = newProvider(0, 64 * 1024, 1 << 20, 15_000)) {
+      provider.prefetchColumnChunks(Collections.singletonList(a));
+      assertColumn(provider, a);
+
+      provider.prefetchColumnChunks(Collections.singletonList(b));
+      assertEquals(2, reader.requests.size());
+      assertColumn(provider, b);
+      verify(delegate, never()).getStream(b);
+    }
+  }
+
+  private VectoredReadStreamProvider newProvider(
+      long maxGap, long maxRequest, long maxInFlight, long maxBuffered) {
+    return new VectoredReadStreamProvider(
+        delegate, reader, FILE_LENGTH, allocator, maxGap, maxRequest, maxInFlight, maxBuffered);
+  }
+
+  private static ColumnChunkMetaData column(long offset, long length) {
+    final ColumnChunkMetaData column = mock(ColumnChunkMetaData.class);
+    when(column.getStartingPos()).thenReturn(offset);
+    when(column.getTotalSize()).thenReturn(length);
+    return column;
+  }
+
+  private static void assertRegion(Region region, long offset, long end, int numRanges) {
+    assertEquals(offset, region.getOffset());
+    assertEquals(end, region.getEnd());
+    assertEquals(numRanges, region.getRanges().size());
+  }
+
+  private static void assertColumn(InputStreamProvider provider, ColumnChunkMetaData column)
+      throws IOException {
+    final int offset = (int) column.getStartingPos();
+    final int length = (int) column.getTotalSize();
+    final BulkInputStream in = provider.getStream(column);
+    in.seek(offset);
+
+    // read the chunk in two parts, through both read paths
+    final byte[] bytes = new byte[length];
+    final int half = length / 2;
+    in.readFully(bytes, 0, half);
+    final ByteBuf buf = Unpooled.buffer(length - half);
+    try {
+      in.readFully(buf, length - half);
+      buf.getBytes(0, bytes, half, length - half);
+    } finally {
+      buf.release();
+    }
+    assertEquals(offset + length, in.getPos());
+    assertArrayEquals(Arrays.copyOfRange(FILE, offset, offset + length), bytes);
+  }
+
+  /** Serves reads from {@link #FILE}, optionally deferring their completion. */
+  private static final class ByteArrayAsyncByteReader implements AsyncByteReader {
+    private final List<Range> requests = new ArrayList<>();
+    private List<Runnable> deferred;
+    private IOException failure;
+
+    @Override
+    public synchronized CompletableFuture<Void> readFully(
+        long offset, ByteBuf dst, int dstOffset, int len) {
+      requests.add(new Range(offset, len));
+      final CompletableFuture<Void> future = new CompletableFuture<>();
+      final Runnable completion =
+          () -> {
+            if (failure != null) {
+              future.completeExceptionally(failure);
+              return;
+            }
+            dst.setBytes(dstOffset, FILE, (int) offset, len);
+            future.complete(null);
+          };
+      if (deferred != null) {
+        deferred.add(completion);
+      } else {
+        completion.run();
+      }
+      return future;
+    }
+
+    private void completeNext() {
+      final Runnable completion;
+      synchronized (this) {
+        completion = deferred.remove(0);
+      }
+      completion.run();
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.exec.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.test.AllocatorRule;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.arrow.memory.ArrowBuf;
+import org.apache.arrow.memory.BufferAllocator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/** Tests for {@link SplitBlockBloomFilter} */
+public class SplitBlockBloomFilterTest {
+  private BufferAllocator bfTestAllocator;
+  private static final String TEST_NAME = "20ed4177-87c7-91cc-c869-82b1d90cd300:frag:1:3";
+
+  @Rule public final AllocatorRule allocatorRule = AllocatorRule.defaultAllocator();
+
+  @Before
+  public void setupBeforeTest() {
+    bfTestAllocator = allocatorRule.newAllocator("test-split-block-bloomfilter", 0, Long.MAX_VALUE);
+  }
+
+  @After
+  public void cleanupAfterTest() {
+    bfTestAllocator.close();
+  }
+
+  @Test
+  public void testFilterLong() {
+    try (final ArrowBuf keyBuf = bfTestAllocator.buffer(8);
+        final BloomFilter bloomFilter =
+            BloomFilter.create(bfTestAllocator, TEST_NAME, 64 * 1024, true)) {
+      bloomFilter.setup();
+      assertTrue(bloomFilter.isSplitBlock());
+      Set<Long> keySet1 = randomLongs(5000);
+      keySet1.forEach(k -> bloomFilter.put(writeKey(keyBuf, k), 8));
+
+      Set<Long> keySet2 = randomLongs(5000);
+      keySet2.removeAll(keySet1); // ensure all are non-existing keys
+
+      // Assert FPP < 5%
+      int maxPermissibleErrors = (int) (0.05 * keySet2.size());
+      long errCount =
+          keySet2.stream().filter(k -> bloomFilter.mightContain(writeKey(keyBuf, k), 8)).count();
+      assertTrue(
+          "False positivity is higher than expected. Total errors: " + errCount,
+          errCount <= maxPermissibleErrors);
+
+      // Assert no false negatives
+      keySet1.forEach(k -> assertTrue(bloomFilter.mightContain(writeKey(keyBuf, k), 8)));
+    }
+  }
+
+  @Test
+  public void testBatchMightContain() {
+    for (boolean splitBlock : new boolean[] {false, true}) {
+      final int count = 4000;
+      List<Long> keys = new ArrayList<>(randomLongs(count));
+      try (final ArrowBuf keyBuf = bfTestAllocator.buffer(8);
+          final ArrowBuf keysBuf = bfTestAllocator.buffer(count * 8L);
+          final ArrowBuf selection = bfTestAllocator.buffer(count * 2L);
+          final BloomFilter bloomFilter =
+              BloomFilter.create(bfTestAllocator, TEST_NAME, 16 * 1024, splitBlock)) {
+        bloomFilter.setup();
+        for (int i = 0; i < count; i++) {
+          keysBuf.setLong(i * 8L, keys.get(i));
+          if (i % 2 == 0) {
+            bloomFilter.put(writeKey(keyBuf, keys.get(i)), 8);
+          }
+        }
+
+        // select every third key, the batch probe should keep the same keys as single probes
+        List<Integer> expected = new ArrayList<>();
+        int selected = 0;
+        for (int i = 0; i < count; i += 3) {
+          selection.setShort(selected++ * 2L, i);
+          if (bloomFilter.mightContain(writeKey(keyBuf, keys.get(i)), 8)) {
+            expected.add(i);
+          }
+        }
+        int remaining = bloomFilter.mightContain(keysBuf, 8, selection, selected);
+
+        List<Integer> actual = new ArrayList<>();
+        for (int i = 0; i < remaining; i++) {
+          actual.add(Short.toUnsignedInt(selection.getShort(i * 2L)));
+        }
+        assertEquals(expected, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testMergeFilters() {
+    try (final ArrowBuf keyBuf = bfTestAllocator.buffer(8);
+        final BloomFilter bloomFilter1 =
+            new SplitBlockBloomFilter(bfTestAllocator, TEST_NAME, 4096);
+        final BloomFilter bloomFilter2 =
+            new SplitBlockBloomFilter(bfTestAllocator, TEST_NAME, 4096)) {
+      bloomFilter1.setup();
+      bloomFilter2.setup();
+
+      Set<Long> keySet1 = randomLongs(100);
+      keySet1.forEach(k -> bloomFilter1.put(writeKey(keyBuf, k), 8));
+      long initialNumBitsSet = bloomFilter1.getNumBitsSet();
+      Set<Long> keySet2 = randomLongs(100);
+      keySet2.forEach(k -> bloomFilter2.put(writeKey(keyBuf, k), 8));
+
+      bloomFilter1.merge(bloomFilter2);
+      assertTrue(bloomFilter1.getNumBitsSet() > initialNumBitsSet);
+      keySet1.forEach(k -> assertTrue(bloomFilter1.mightContain(writeKey(keyBuf, k), 8)));
+      keySet2.forEach(k -> assertTrue(bloomFilter1.mightContain(writeKey(keyBuf, k), 8)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergeDifferentLayouts() {
+    try (final BloomFilter bloomFilter1 =
+            new SplitBlockBloomFilter(bfTestAllocator, TEST_NAME, 4096);
+        final BloomFilter bloomFilter2 = new BloomFilter(bfTestAllocator, TEST_NAME, 4096)) {
+      bloomFilter1.setup();
+      bloomFilter2.setup();
+      bloomFilter1.merge(bloomFilter2);
+    }
+  }
+
+  @Test
+  public void testSerDe() throws Exception {
+    try (final ArrowBuf keyBuf = bfTestAllocator.buffer(8);
+        final BloomFilter bloomFilter =
+            new SplitBlockBloomFilter(bfTestAllocator, TEST_NAME, 4096);
+        final AutoCloseables.RollbackCloseable closer = new AutoCloseables.RollbackCloseable()) {
+      bloomFilter.setup();
+      Set<Long> keySet = randomLongs(100);
+      keySet.forEach(k -> bloomFilter.put(writeKey(keyBuf, k), 8));
+
+      BloomFilter deserializedFilter = BloomFilter.prepareFrom(bloomFilter.getDataBuffer(), true);
+      BloomFilter copyFilter = closer.add(bloomFilter.createCopy(bfTestAllocator));
+      for (BloomFilter filter : new BloomFilter[] {deserializedFilter, copyFilter}) {
+        assertTrue(filter.isSplitBlock());
+        assertEquals(bloomFilter.getName(), filter.getName());
+        assertEquals(bloomFilter.getNumBitsSet(), filter.getNumBitsSet());
+        assertEquals(bloomFilter.getSizeInBytes(), filter.getSizeInBytes());
+        keySet.forEach(k -> assertTrue(filter.mightContain(writeKey(keyBuf, k), 8)));
+      }
+    }
+  }
+
+  @Test
+  public void testSizeRoundedToBlocks() {
+    try (final BloomFilter bloomFilter =
+        new SplitBlockBloomFilter(bfTestAllocator, TEST_NAME, 1000)) {
+      bloomFilter.setup();
+      assertEquals(1024, bloomFilter.getSizeInBytes());
+      assertEquals(8, bloomFilter.getNumHashFunctions());
+      assertFalse(bloomFilter.isCrossingMaxFPP());
+    }
+  }
+
+  private Set<Long> randomLongs(int count) {
+    Random random = new Random(System.nanoTime());
+    Set<Long> randomLongSet = new HashSet<>(count);
+    while (randomLongSet.size() < count) {
+      randomLongSet.add(random.nextLong());
+    }
+    return randomLongSet;
+  }
+
+  private static ArrowBuf writeKey(ArrowBuf keyBuf, long val) {
+    keyBuf.setLong(0, val);
+    return keyBuf;
+  }
+}
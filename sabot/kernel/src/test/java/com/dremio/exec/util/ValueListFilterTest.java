@@ -22,6 +22,7 @@ import static org.junit.Assert.assertTrue;
 
 import com.dremio.common.AutoCloseables.RollbackCloseable;
 import com.dremio.test.AllocatorRule;
+import com.google.common.collect.Sets;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Proxy;
 import java.nio.charset.StandardCharsets;
@@ -566,6 +567,84 @@ public class ValueListFilterTest {
     }
   }
 
+  @Test
+  public void testMergeValueOverflowAsRange() throws Exception {
+    final Set<Long> set1 = randomLong(65);
+    final Set<Long> set2 = randomLong(65);
+    try (ValueListFilter valueListFilter1 = toValListFilterLong(set1);
+        ValueListFilter valueListFilter2 = toValListFilterLong(set2);
+        ValueListFilter mergedValList = new ValueListFilter(testAllocator.buffer(1024))) {
+
+      // Max entries possible are 124, inserting 130 distinct elements
+      ValueListFilter.merge(valueListFilter1, valueListFilter2, mergedValList, true);
+
+      final List<Long> allVals =
+          Stream.concat(set1.stream(), set2.stream()).sorted().collect(Collectors.toList());
+      assertTrue(mergedValList.isRange());
+      assertEquals(2, mergedValList.getValueCount());
+      assertEquals(allVals.get(0).longValue(), mergedValList.valOnlyBuf().getLong(0));
+      assertEquals(
+          allVals.get(allVals.size() - 1).longValue(), mergedValList.valOnlyBuf().getLong(8));
+    }
+  }
+
+  @Test
+  public void testMergeWithRange() throws Exception {
+    try (ValueListFilter range = toValListFilterLong(Sets.newHashSet(-5L, 5L));
+        ValueListFilter valueListFilter = toValListFilterLong(Sets.newHashSet(-1L, 2L, 9L));
+        ValueListFilter mergedValList = new ValueListFilter(testAllocator.buffer(1024))) {
+      range.setRange(true);
+      range.setContainsNull(true);
+
+      ValueListFilter.merge(valueListFilter, range, mergedValList);
+
+      assertTrue(mergedValList.isRange());
+      assertTrue(mergedValList.isContainsNull());
+      assertEquals(2, mergedValList.getValueCount());
+      assertEquals(-5L, mergedValList.valOnlyBuf().getLong(0));
+      assertEquals(9L, mergedValList.valOnlyBuf().getLong(8));
+    }
+  }
+
+  @Test
+  public void testRangeOnOverflow() throws Exception {
+    try (ValueListFilterBuilder builder =
+            new ValueListFilterBuilder(testAllocator, 100, (byte) 4, false);
+        RollbackCloseable closer = new RollbackCloseable();
+        ArrowBuf keyBuf = testAllocator.buffer(4)) {
+      builder.setup();
+      builder.setName(TEST_NAME);
+      builder.setFieldType(Types.MinorType.INT);
+      builder.setRangeOnOverflow(true);
+      List<Integer> insertedVals = new ArrayList<>(randomIntegers(500));
+      insertedVals.forEach(val -> builder.insert(writeKey(keyBuf, val)));
+
+      ValueListFilter valueListFilter = builder.build();
+      closer.add(valueListFilter);
+      ValueListFilter copy = valueListFilter.createCopy(testAllocator);
+      closer.add(copy);
+
+      Collections.sort(insertedVals);
+      assertTrue(copy.isRange());
+      assertEquals(2, copy.getValueCount());
+      assertEquals(insertedVals.get(0).intValue(), copy.valOnlyBuf().getInt(0));
+      assertEquals(
+          insertedVals.get(insertedVals.size() - 1).intValue(), copy.valOnlyBuf().getInt(4));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRangeOnOverflowUnsupportedType() throws Exception {
+    try (ValueListFilterBuilder builder =
+            new ValueListFilterBuilder(testAllocator, 100, (byte) 8, false);
+        ArrowBuf keyBuf = testAllocator.buffer(8)) {
+      builder.setup();
+      builder.setFieldType(Types.MinorType.FLOAT8);
+      builder.setRangeOnOverflow(true);
+      randomLong(110).forEach(val -> builder.insert(writeKey(keyBuf, val)));
+    }
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testMergeIncompatibleBlockSize() throws Exception {
     try (ValueListFilter valueListFilter1 = toValListFilterLong(randomLong(10));
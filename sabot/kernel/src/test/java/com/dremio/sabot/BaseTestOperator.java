@@ -558,7 +558,8 @@ public class BaseTestOperator extends ExecTest {
 
     @Override
     public void close() throws Exception {
-      AutoCloseables.close(systemOptionManager, storeProvider, allocator, rootAllocator, executor);
+      AutoCloseables.close(
+          compiler, systemOptionManager, storeProvider, allocator, rootAllocator, executor);
     }
 
     /**
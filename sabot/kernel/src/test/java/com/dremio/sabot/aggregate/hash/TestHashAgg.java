@@ -19,6 +19,7 @@ import static com.dremio.exec.proto.UserBitShared.DremioPBError.ErrorType.FUNCTI
 import static com.dremio.sabot.Fixtures.t;
 import static com.dremio.sabot.Fixtures.th;
 import static com.dremio.sabot.Fixtures.tr;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -35,7 +36,11 @@ import com.dremio.sabot.BaseTestOperator;
 import com.dremio.sabot.Fixtures;
 import com.dremio.sabot.Fixtures.Table;
 import com.dremio.sabot.Generator;
+import com.dremio.sabot.exec.context.OperatorStats;
 import com.dremio.sabot.op.aggregate.hash.HashAggOperator;
+import com.dremio.sabot.op.aggregate.vectorized.HashAggStats;
+import com.dremio.sabot.op.aggregate.vectorized.HashAggStats.PreAggregationMode;
+import com.dremio.sabot.op.aggregate.vectorized.HashAggStats.PreAggregationModeReason;
 import com.dremio.sabot.op.aggregate.vectorized.VectorizedHashAggOperator;
 import com.dremio.test.UserExceptionAssert;
 import io.airlift.tpch.GenerationDefinition.TpchTable;
@@ -1235,4 +1240,69 @@ public class TestHashAgg extends BaseTestOperator {
         .hasErrorType(FUNCTION)
         .hasMessageContaining("low-cardinality aggregations");
   }
+
+  @Test
+  public void partialAggFlushesOnLowReduction() throws Exception {
+    // customer keys are unique, local aggregation does not reduce anything
+    final List<NamedExpression> dim = Arrays.asList(n("c_custkey"));
+    final List<NamedExpression> measure =
+        Arrays.asList(n("sum(c_acctbal)", "sum"), n("count(1)", "cnt"));
+    final HashAggregate conf =
+        new HashAggregate(
+            PROPS, null, dim, measure, true, true, 1f, PROPS.getTargetBatchSize(), true);
+
+    try (AutoCloseable options1 =
+            with(VectorizedHashAggOperator.VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_SAMPLE_BATCHES, 2);
+        AutoCloseable options2 =
+            with(
+                VectorizedHashAggOperator.VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_FLUSH_ENTRIES, 2048)) {
+      final OperatorStats stats =
+          validateSingle(
+              conf,
+              VectorizedHashAggOperator.class,
+              TpchGenerator.singleGenerator(TpchTable.CUSTOMER, 0.1, allocator),
+              null,
+              1000,
+              15000L);
+      assertEquals(
+          PreAggregationMode.FLUSH.ordinal(), stats.getLongStat(HashAggStats.Metric.PREAGG_MODE));
+      assertEquals(
+          PreAggregationModeReason.LOW_REDUCTION.ordinal(),
+          stats.getLongStat(HashAggStats.Metric.PREAGG_MODE_REASON));
+      assertEquals(2000, stats.getLongStat(HashAggStats.Metric.PREAGG_SAMPLED_RECORDS));
+      assertTrue(stats.getLongStat(HashAggStats.Metric.PREAGG_FLUSHES) > 0);
+      assertTrue(stats.getLongStat(HashAggStats.Metric.PREAGG_FLUSHED_RECORDS) > 0);
+    }
+  }
+
+  @Test
+  public void partialAggKeepsAggregatingOnHighReduction() throws Exception {
+    final List<NamedExpression> dim = Arrays.asList(n("c_mktsegment"));
+    final List<NamedExpression> measure =
+        Arrays.asList(n("sum(c_acctbal)", "sum"), n("count(1)", "cnt"));
+    final HashAggregate conf =
+        new HashAggregate(
+            PROPS, null, dim, measure, true, true, 1f, PROPS.getTargetBatchSize(), true);
+
+    try (AutoCloseable options1 =
+            with(VectorizedHashAggOperator.VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_SAMPLE_BATCHES, 2);
+        AutoCloseable options2 =
+            with(VectorizedHashAggOperator.VECTORIZED_HASHAGG_ADAPTIVE_PREAGG_FLUSH_ENTRIES, 1)) {
+      final OperatorStats stats =
+          validateSingle(
+              conf,
+              VectorizedHashAggOperator.class,
+              TpchGenerator.singleGenerator(TpchTable.CUSTOMER, 0.1, allocator),
+              null,
+              1000,
+              5L);
+      assertEquals(
+          PreAggregationMode.AGGREGATE.ordinal(),
+          stats.getLongStat(HashAggStats.Metric.PREAGG_MODE));
+      assertEquals(
+          PreAggregationModeReason.HIGH_REDUCTION.ordinal(),
+          stats.getLongStat(HashAggStats.Metric.PREAGG_MODE_REASON));
+      assertEquals(0, stats.getLongStat(HashAggStats.Metric.PREAGG_FLUSHES));
+    }
+  }
 }
@@ -0,0 +1,312 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.memory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.dremio.exec.proto.UserBitShared.QueryId;
+import com.dremio.sabot.op.spi.Operator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+/** Tests for {@link QueueingMemoryArbiter} */
+public class TestQueueingMemoryArbiter {
+  private static final QueryId QUERY_1 = QueryId.newBuilder().setPart1(1).setPart2(1).build();
+  private static final QueryId QUERY_2 = QueryId.newBuilder().setPart1(2).setPart2(2).build();
+
+  private final AtomicLong allocated = new AtomicLong();
+  private final QueueingMemoryArbiter arbiter = new QueueingMemoryArbiter(100, allocated::get);
+
+  @Test
+  public void testGrantsWithinPool() {
+    final TestTask t1 = new TestTask("t1", QUERY_1);
+    final TestTask t2 = new TestTask("t2", QUERY_1);
+    final TestTask t3 = new TestTask("t3", QUERY_1);
+
+    assertTrue(arbiter.acquireMemoryGrant(t1, 40));
+    assertEquals(40, t1.getMemoryGrant());
+    assertTrue(arbiter.acquireMemoryGrant(t2, 50));
+    assertFalse(arbiter.acquireMemoryGrant(t3, 20));
+    assertTrue(t3.blocked);
+
+    arbiter.releaseMemoryGrant(t1);
+    assertEquals(0, t1.getMemoryGrant());
+    assertFalse(t3.blocked);
+    assertTrue(arbiter.acquireMemoryGrant(t3, 20));
+    assertEquals(1, arbiter.getQueryStats(QUERY_1).getNumBlockedGrants());
+  }
+
+  @Test
+  public void testLaterRequestsDoNotOvertakeQueuedOnes() {
+    final TestTask t1 = new TestTask("t1", QUERY_1);
+    final TestTask t2 = new TestTask("t2", QUERY_1);
+    final TestTask t3 = new TestTask("t3", QUERY_2);
+
+    assertTrue(arbiter.acquireMemoryGrant(t1, 90));
+    assertFalse(arbiter.acquireMemoryGrant(t2, 50));
+    // fits in the pool, but not on top of what t2 is waiting for
+    assertFalse(arbiter.acquireMemoryGrant(t3, 5));
+
+    arbiter.releaseMemoryGrant(t1);
+    assertFalse(t2.blocked);
+    assertFalse(t3.blocked);
+    // both fit, the second in line does not have to wait for the first one to run
+    assertTrue(arbiter.acquireMemoryGrant(t3, 5));
+    assertTrue(arbiter.acquireMemoryGrant(t2, 50));
+  }
+
+  @Test
+  public void testReclaimsFromLargestShrinkableOperators() throws Exception {
+    final TestTask t1 = new TestTask("t1", QUERY_1);
+    final TestOperator small = t1.addOperator(1, 30);
+    final TestOperator large = t1.addOperator(2, 60);
+    final TestTask t2 = new TestTask("t2", QUERY_1);
+    t2.addOperator(1, 10);
+    final TestTask t3 = new TestTask("t3", QUERY_2);
+    arbiter.startTask(t1);
+    arbiter.startTask(t2);
+    arbiter.startTask(t3);
+
+    allocated.set(85);
+    assertTrue(arbiter.acquireMemoryGrant(t1, 5));
+    assertFalse(arbiter.acquireMemoryGrant(t3, 40));
+
+    // 30 bytes are missing, the largest operator covers them
+    assertEquals(1, t1.shrinkRequests.size());
+    assertEquals(large, t1.shrinkRequests.get(0));
+    assertTrue(t2.shrinkRequests.isEmpty());
+
+    // another request does not ask the spilling operator again
+    final TestTask t4 = new TestTask("t4", QUERY_2);
+    assertFalse(arbiter.acquireMemoryGrant(t4, 50));
+    assertEquals(2, t1.shrinkRequests.size());
+    assertEquals(small, t1.shrinkRequests.get(1));
+    assertTrue(t2.shrinkRequests.isEmpty());
+
+    large.shrinkable = 0;
+    allocated.set(25);
+    arbiter.removeFromSpilling(t1.getShrinkableOperators().get(1));
+    assertFalse(t3.blocked);
+    assertTrue(t4.blocked);
+    assertEquals(60, arbiter.getQueryStats(QUERY_1).getReclaimedBytes());
+    assertEquals(2, arbiter.getQueryStats(QUERY_1).getNumSpillRequests());
+    // the reclaimed memory is reported to the task that spilled, for its profile
+    assertEquals(60, t1.reclaimed);
+  }
+
+  @Test
+  public void testFailedSpillRequestIsNotAccounted() {
+    final TestTask t1 = new TestTask("t1", QUERY_1);
+    t1.addOperator(1, 60);
+    t1.shrinkFailure = new RuntimeException("tunnel closed");
+    final TestTask t2 = new TestTask("t2", QUERY_2);
+
+    allocated.set(85);
+    assertTrue(arbiter.acquireMemoryGrant(t1, 5));
+    assertFalse(arbiter.acquireMemoryGrant(t2, 40));
+    assertEquals(0, arbiter.getQueryStats(QUERY_1).getNumSpillRequests());
+
+    // the operator is asked again on the next request
+    t1.shrinkFailure = null;
+    final TestTask t3 = new TestTask("t3", QUERY_2);
+    assertFalse(arbiter.acquireMemoryGrant(t3, 10));
+    assertEquals(1, t1.shrinkRequests.size());
+    assertEquals(1, arbiter.getQueryStats(QUERY_1).getNumSpillRequests());
+  }
+
+  @Test
+  public void testGrantReleasedBeforeTaskIsBlocked() {
+    final TestTask t1 = new TestTask("t1", QUERY_1);
+    final TestTask t2 = new TestTask("t2", QUERY_1);
+
+    assertTrue(arbiter.acquireMemoryGrant(t1, 90));
+    // t1 releases its grant while t2 is on its way to block
+    t2.onBlock = () -> arbiter.releaseMemoryGrant(t1);
+    assertFalse(arbiter.acquireMemoryGrant(t2, 50));
+    assertFalse(t2.blocked);
+    assertTrue(arbiter.acquireMemoryGrant(t2, 50));
+  }
+
+  @Test
+  public void testProgressWhenNothingCanFreeMemory() {
+    final TestTask t1 = new TestTask("t1", QUERY_1);
+    final TestTask t2 = new TestTask("t2", QUERY_1);
+
+    allocated.set(200);
+    assertTrue(arbiter.acquireMemoryGrant(t1, 10));
+    assertFalse(arbiter.acquireMemoryGrant(t2, 10));
+
+    arbiter.releaseMemoryGrant(t1);
+    assertFalse(t2.blocked);
+    assertTrue(arbiter.acquireMemoryGrant(t2, 10));
+  }
+
+  @Test
+  public void testTaskDone() throws Exception {
+    final TestTask t1 = new TestTask("t1", QUERY_1);
+    final TestTask t2 = new TestTask("t2", QUERY_2);
+    final TestTask t3 = new TestTask("t3", QUERY_2);
+    arbiter.startTask(t1);
+    arbiter.startTask(t2);
+    arbiter.startTask(t3);
+
+    assertTrue(arbiter.acquireMemoryGrant(t1, 60));
+    assertFalse(arbiter.acquireMemoryGrant(t2, 60));
+    assertFalse(arbiter.acquireMemoryGrant(t3, 30));
+    Thread.sleep(5);
+
+    // a queued task that is done no longer holds the queue
+    arbiter.taskDone(t2);
+    assertFalse(t3.blocked);
+    assertTrue(arbiter.acquireMemoryGrant(t3, 30));
+    assertTrue(arbiter.getQueryStats(QUERY_2).getGrantWaitNanos() > 0);
+
+    arbiter.taskDone(t3);
+    assertNull(arbiter.getQueryStats(QUERY_2));
+    arbiter.taskDone(t1);
+    assertNull(arbiter.getQueryStats(QUERY_1));
+    arbiter.close();
+  }
+
+  /**
+   * Fails if the arbiter calls into tasks or operators of other fragments while holding its lock.
+   */
+  private void assertNotLocked() {
+    assertFalse("called while holding the arbiter lock", Thread.holdsLock(arbiter));
+  }
+
+  private final class TestTask implements MemoryArbiterTask {
+    private final String id;
+    private final QueryId queryId;
+    private final List<MemoryTaskAndShrinkableOperator> operators = new ArrayList<>();
+    private final List<Operator.ShrinkableOperator> shrinkRequests = new ArrayList<>();
+    private long grant;
+    private boolean blocked;
+    private long reclaimed;
+    private RuntimeException shrinkFailure;
+    private Runnable onBlock;
+
+    private TestTask(String id, QueryId queryId) {
+      this.id = id;
+      this.queryId = queryId;
+    }
+
+    private TestOperator addOperator(int operatorId, long shrinkable) {
+      final TestOperator operator = new TestOperator(operatorId, shrinkable);
+      operators.add(new MemoryTaskAndShrinkableOperator(this, operator));
+      return operator;
+    }
+
+    @Override
+    public String getTaskId() {
+      return id;
+    }
+
+    @Override
+    public long getUsedMemory() {
+      return 0;
+    }
+
+    @Override
+    public long getMemoryGrant() {
+      return grant;
+    }
+
+    @Override
+    public void setMemoryGrant(long memoryGrantInBytes) {
+      this.grant = memoryGrantInBytes;
+    }
+
+    @Override
+    public List<MemoryTaskAndShrinkableOperator> getShrinkableOperators() {
+      return operators;
+    }
+
+    @Override
+    public void shrinkMemory(
+        Operator.ShrinkableOperator shrinkableOperator, long currentShrinkableMemory) {
+      assertNotLocked();
+      if (shrinkFailure != null) {
+        throw shrinkFailure;
+      }
+      shrinkRequests.add(shrinkableOperator);
+    }
+
+    @Override
+    public boolean isOperatorShrinkingMemory(Operator.ShrinkableOperator shrinkableOperator) {
+      assertNotLocked();
+      return false;
+    }
+
+    @Override
+    public void blockOnMemory() {
+      assertNotLocked();
+      assertFalse("task is already blocked", blocked);
+      if (onBlock != null) {
+        onBlock.run();
+      }
+      blocked = true;
+    }
+
+    @Override
+    public void unblockOnMemory() {
+      assertNotLocked();
+      blocked = false;
+    }
+
+    @Override
+    public void addReclaimedMemory(long reclaimedBytes) {
+      assertNotLocked();
+      reclaimed += reclaimedBytes;
+    }
+
+    @Override
+    public QueryId getQueryId() {
+      return queryId;
+    }
+  }
+
+  private final class TestOperator implements Operator.ShrinkableOperator {
+    private final int operatorId;
+    private long shrinkable;
+
+    private TestOperator(int operatorId, long shrinkable) {
+      this.operatorId = operatorId;
+      this.shrinkable = shrinkable;
+    }
+
+    @Override
+    public int getOperatorId() {
+      return operatorId;
+    }
+
+    @Override
+    public long shrinkableMemory() {
+      assertNotLocked();
+      return shrinkable;
+    }
+
+    @Override
+    public boolean shrinkMemory(long size) {
+      return true;
+    }
+  }
+}
@@ -15,6 +15,8 @@
  */
 package com.dremio.sabot.op.join.vhash.spill.partition.io;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
@@ -27,6 +29,9 @@ import com.dremio.exec.record.RecordBatchData;
 import com.dremio.exec.record.VectorAccessible;
 import com.dremio.exec.record.VectorContainer;
 import com.dremio.exec.record.VectorWrapper;
+import com.dremio.exec.record.compression.BufferCodec;
+import com.dremio.exec.record.compression.Lz4FrameBufferCodec;
+import com.dremio.exec.record.compression.ZstdBufferCodec;
 import com.dremio.exec.record.selection.SelectionVector2;
 import com.dremio.sabot.Fixtures;
 import com.dremio.sabot.Generator;
@@ -37,8 +42,11 @@ import com.dremio.sabot.op.common.ht2.PivotDef;
 import com.dremio.sabot.op.common.ht2.Pivots;
 import com.dremio.sabot.op.common.ht2.Unpivots;
 import com.dremio.sabot.op.common.ht2.VariableBlockVector;
+import com.dremio.sabot.op.join.vhash.spill.SpillStats;
 import com.dremio.sabot.op.join.vhash.spill.io.BatchCombiningSpillReader;
+import com.dremio.sabot.op.join.vhash.spill.io.CompressedSpillSerializable;
 import com.dremio.sabot.op.join.vhash.spill.io.SpillChunk;
+import com.dremio.sabot.op.join.vhash.spill.io.SpillSerializable;
 import com.dremio.sabot.op.join.vhash.spill.io.SpillSerializableImpl;
 import com.dremio.sabot.op.join.vhash.spill.io.SpillWriter;
 import com.dremio.sabot.op.join.vhash.spill.pool.PagePool;
@@ -138,7 +146,71 @@ public class TestSpillSerDe extends ExecTest {
     check(GenerationDefinition.TpchTable.CUSTOMER, 0.1, 64_000, 4095, 1, "c_custkey");
   }
 
+  @Test
+  public void noCompression() throws Exception {
+    check(
+        new SpillSerializableImpl(false),
+        GenerationDefinition.TpchTable.CUSTOMER,
+        0.1,
+        64_000,
+        4095,
+        1);
+  }
+
+  @Test
+  public void compressedLz4() throws Exception {
+    checkCompressed(Lz4FrameBufferCodec.INSTANCE, 4095, 1);
+  }
+
+  @Test
+  public void compressedZstd() throws Exception {
+    checkCompressed(ZstdBufferCodec.DEFAULT, 4095, 1);
+  }
+
+  @Test
+  public void compressedMultiplePivotColumnsMerge() throws Exception {
+    checkCompressed(Lz4FrameBufferCodec.INSTANCE, 100, 3);
+  }
+
+  @Test
+  public void compressedNoCarryAlong() throws Exception {
+    checkCompressed(Lz4FrameBufferCodec.INSTANCE, 4095, 1, "c_custkey");
+  }
+
+  private void checkCompressed(
+      BufferCodec codec, int batchSize, int numPivotColumns, String... columns) throws Exception {
+    final SpillStats stats = new SpillStats();
+    try (CompressedSpillSerializable serializable =
+        new CompressedSpillSerializable(getTestAllocator(), codec, stats)) {
+      check(
+          serializable,
+          GenerationDefinition.TpchTable.CUSTOMER,
+          0.1,
+          64_000,
+          batchSize,
+          numPivotColumns,
+          columns);
+    }
+    assertTrue(stats.getWriteCompressedBytes() > 0);
+    assertTrue(stats.getWriteCompressedBytes() < stats.getWriteUncompressedBytes());
+    assertEquals(stats.getWriteCompressedBytes(), stats.getReadCompressedBytes());
+    assertEquals(stats.getWriteUncompressedBytes(), stats.getReadUncompressedBytes());
+    assertTrue(stats.getCompressionRatio() > 1);
+  }
+
+  private void check(
+      GenerationDefinition.TpchTable table,
+      double scale,
+      int pageSize,
+      int batchSize,
+      int numPivotColumns,
+      String... columns)
+      throws Exception {
+    check(new SpillSerializableImpl(), table, scale, pageSize, batchSize, numPivotColumns, columns);
+  }
+
   private void check(
+      SpillSerializable serializable,
       GenerationDefinition.TpchTable table,
       double scale,
       int pageSize,
@@ -149,6 +221,7 @@ public class TestSpillSerDe extends ExecTest {
     Fixtures.Table expected =
         TpchGenerator.singleGenerator(table, scale, getTestAllocator(), columns).toTable(batchSize);
     check(
+        serializable,
         expected,
         pageSize,
         batchSize,
@@ -157,6 +230,7 @@ public class TestSpillSerDe extends ExecTest {
   }
 
   private void check(
+      SpillSerializable serializable,
       Fixtures.Table expected,
       int pageSize,
       int batchSize,
@@ -196,11 +270,13 @@ public class TestSpillSerDe extends ExecTest {
 
       // stream data to spill file
       SpillManager.SpillFile spillFile =
-          streamToOutput(fileName, generator, batchSize, pivotDef, unpivotedBitSet, pool);
+          streamToOutput(
+              serializable, fileName, generator, batchSize, pivotDef, unpivotedBitSet, pool);
 
       // read back from the spill file
       List<SpillChunk> chunks =
-          readAllFromInput(spillFile, generator.getOutput(), pivotDef, unpivotedBitSet, pool);
+          readAllFromInput(
+              serializable, spillFile, generator.getOutput(), pivotDef, unpivotedBitSet, pool);
       rc.addAll(chunks);
 
       // The pivoted data is present in the fixed/variable blocks, while the container has the
@@ -246,6 +322,7 @@ public class TestSpillSerDe extends ExecTest {
   }
 
   private SpillManager.SpillFile streamToOutput(
+      SpillSerializable serializable,
       String fileName,
       Generator generator,
       int batchSize,
@@ -262,7 +339,7 @@ public class TestSpillSerDe extends ExecTest {
           try (SpillWriter writer =
               new SpillWriter(
                   spillManager,
-                  new SpillSerializableImpl(),
+                  serializable,
                   fileName,
                   pool,
                   sv2Buf,
@@ -286,6 +363,7 @@ public class TestSpillSerDe extends ExecTest {
   }
 
   private List<SpillChunk> readAllFromInput(
+      SpillSerializable serializable,
       SpillManager.SpillFile spillFile,
       VectorAccessible incoming,
       PivotDef pivotDef,
@@ -303,12 +381,7 @@ public class TestSpillSerDe extends ExecTest {
 
     try (BatchCombiningSpillReader reader =
         new BatchCombiningSpillReader(
-            spillFile,
-            new SpillSerializableImpl(),
-            pool,
-            pivotDef,
-            new BatchSchema(unpivotedFields),
-            4095)) {
+            spillFile, serializable, pool, pivotDef, new BatchSchema(unpivotedFields), 4095)) {
       return Lists.newArrayList(reader);
     }
   }
@@ -82,6 +82,7 @@ public class TestMemoryRun extends BaseTestOperator {
             tracer,
             2,
             false,
+            false,
             8192,
             mock(ExecutionControls.class))) {
       int totalAdded = addBatches(memoryRun);
@@ -101,6 +102,7 @@ public class TestMemoryRun extends BaseTestOperator {
             tracer,
             2,
             false,
+            false,
             8192,
             mock(ExecutionControls.class))) {
       int totalAdded = addBatches(memoryRun);
@@ -120,6 +122,7 @@ public class TestMemoryRun extends BaseTestOperator {
             tracer,
             2,
             true,
+            false,
             8192,
             mock(ExecutionControls.class))) {
       int totalAdded = addBatches(memoryRun);
@@ -139,6 +142,47 @@ public class TestMemoryRun extends BaseTestOperator {
             tracer,
             2,
             true,
+            false,
+            8192,
+            mock(ExecutionControls.class))) {
+      int totalAdded = addBatches(memoryRun);
+      validateCloseToDisk(memoryRun, totalAdded);
+    }
+  }
+
+  @Test
+  public void testRadixSorterCloseToCopier() throws Exception {
+    final VectorSortTracer tracer = new VectorSortTracer();
+    try (MemoryRun memoryRun =
+        new MemoryRun(
+            externalSort.getOrderings(),
+            producer,
+            allocator,
+            generator.getSchema(),
+            tracer,
+            2,
+            false,
+            true,
+            8192,
+            mock(ExecutionControls.class))) {
+      int totalAdded = addBatches(memoryRun);
+      validateCloseToCopier(memoryRun, 100, totalAdded);
+    }
+  }
+
+  @Test
+  public void testRadixSorterCloseToDisk() throws Exception {
+    final VectorSortTracer tracer = new VectorSortTracer();
+    try (MemoryRun memoryRun =
+        new MemoryRun(
+            externalSort.getOrderings(),
+            producer,
+            allocator,
+            generator.getSchema(),
+            tracer,
+            2,
+            false,
+            true,
             8192,
             mock(ExecutionControls.class))) {
       int totalAdded = addBatches(memoryRun);
@@ -167,6 +211,7 @@ public class TestMemoryRun extends BaseTestOperator {
             tracer,
             2,
             useSplaySort,
+            false,
             8192,
             mock(ExecutionControls.class))) {
       final int totalAdded = addBatches(memoryRun);
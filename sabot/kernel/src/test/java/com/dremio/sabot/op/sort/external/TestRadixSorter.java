@@ -0,0 +1,366 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.op.sort.external;
+
+import static org.apache.calcite.rel.RelFieldCollation.Direction.ASCENDING;
+import static org.apache.calcite.rel.RelFieldCollation.Direction.DESCENDING;
+import static org.apache.calcite.rel.RelFieldCollation.NullDirection.FIRST;
+import static org.apache.calcite.rel.RelFieldCollation.NullDirection.LAST;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.common.expression.CompleteType;
+import com.dremio.common.logical.data.Order.Ordering;
+import com.dremio.exec.expr.ClassProducer;
+import com.dremio.exec.record.RecordBatchData;
+import com.dremio.exec.record.VectorContainer;
+import com.dremio.exec.record.selection.SelectionVector4;
+import com.dremio.sabot.BaseTestOperator;
+import com.dremio.sabot.exec.context.BufferManagerImpl;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.BufferManager;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that {@link RadixSorter} orders records the same way as the generated comparator, for the
+ * encodings of {@link NormalizedKeyEncoder} that are easy to get wrong.
+ */
+public class TestRadixSorter extends BaseTestOperator {
+  private static final int BATCH_SIZE = 1500;
+
+  private static final long[] LONGS = {
+    Long.MIN_VALUE, Long.MIN_VALUE + 1, -256, -255, -1, 0, 1, 255, 256, Long.MAX_VALUE
+  };
+  private static final double[] DOUBLES = {
+    Double.NEGATIVE_INFINITY,
+    -Double.MAX_VALUE,
+    -2.5,
+    -Double.MIN_VALUE,
+    -0.0d,
+    0.0d,
+    Double.MIN_VALUE,
+    2.5,
+    Double.MAX_VALUE,
+    Double.POSITIVE_INFINITY,
+    Double.NaN,
+    Double.longBitsToDouble(0xfff8000000000001L)
+  };
+  private static final float[] FLOATS = {
+    Float.NEGATIVE_INFINITY,
+    -Float.MAX_VALUE,
+    -2.5f,
+    -Float.MIN_VALUE,
+    -0.0f,
+    0.0f,
+    Float.MIN_VALUE,
+    2.5f,
+    Float.MAX_VALUE,
+    Float.POSITIVE_INFINITY,
+    Float.NaN,
+    Float.intBitsToFloat(0xffc00001)
+  };
+  private static final String[] STRINGS = {
+    "",
+    "a",
+    "a\0",
+    "abcdefghijklmnop",
+    "abcdefghijklmnop\0",
+    "abcdefghijklmnopq",
+    "abcdefghijklmnopqrstuvwxyz",
+    "abcdefghijklmnopqrstuvwxyz0",
+    "abcdefghijklmnopqrstuvwxzz",
+    "abcdefghijklmnoq",
+    "\u00e9abcdefghijklmnopqrstuvwxyz",
+    "zzzzzzzzzzzzzzzzzzzzzzzzzzzz"
+  };
+
+  private final Random random = new Random(0xC0FFEE);
+
+  private BufferAllocator allocator;
+  private BufferManager bufferManager;
+  private ClassProducer producer;
+
+  @Before
+  public void prepare() {
+    allocator = getTestAllocator().newChildAllocator("test-radix-sorter", 0, Long.MAX_VALUE);
+    bufferManager = new BufferManagerImpl(allocator);
+    producer = testContext.newClassProducer(bufferManager);
+  }
+
+  @After
+  public void cleanup() throws Exception {
+    AutoCloseables.close(bufferManager, allocator);
+  }
+
+  @Test
+  public void testDescending() throws Exception {
+    for (Ordering ordering :
+        Arrays.asList(
+            ordering("a", DESCENDING, FIRST),
+            ordering("a", DESCENDING, LAST),
+            ordering("b", DESCENDING, FIRST),
+            ordering("b", DESCENDING, LAST))) {
+      assertSorted(Arrays.asList(ordering), this::fillInts);
+    }
+  }
+
+  @Test
+  public void testNullsLast() throws Exception {
+    for (Ordering ordering :
+        Arrays.asList(
+            ordering("a", ASCENDING, LAST),
+            ordering("b", ASCENDING, LAST),
+            ordering("a", ASCENDING, FIRST))) {
+      assertSorted(Arrays.asList(ordering), this::fillInts);
+    }
+  }
+
+  @Test
+  public void testFloatingPoint() throws Exception {
+    for (Ordering ordering :
+        Arrays.asList(
+            ordering("d", ASCENDING, FIRST),
+            ordering("d", DESCENDING, LAST),
+            ordering("f", ASCENDING, LAST),
+            ordering("f", DESCENDING, FIRST))) {
+      assertSorted(Arrays.asList(ordering), this::fillFloatingPoint);
+    }
+  }
+
+  @Test
+  public void testDecimals() throws Exception {
+    for (Ordering ordering :
+        Arrays.asList(ordering("dec", ASCENDING, FIRST), ordering("dec", DESCENDING, LAST))) {
+      assertSorted(Arrays.asList(ordering), this::fillDecimals);
+    }
+  }
+
+  @Test
+  public void testLongVarchars() throws Exception {
+    // ties of the truncated prefixes are broken by the comparator, on the value and the next key
+    assertSorted(Arrays.asList(ordering("s", ASCENDING, FIRST)), this::fillStrings);
+    assertSorted(Arrays.asList(ordering("s", DESCENDING, LAST)), this::fillStrings);
+    assertSorted(
+        Arrays.asList(ordering("s", ASCENDING, LAST), ordering("id", DESCENDING, FIRST)),
+        this::fillStrings);
+  }
+
+  @Test
+  public void testKeysLongerThanThePrefix() throws Exception {
+    // 4 * 9 bytes of bigint keys, the last one is truncated
+    assertSorted(
+        Arrays.asList(
+            ordering("a", ASCENDING, FIRST),
+            ordering("b", DESCENDING, FIRST),
+            ordering("c", ASCENDING, LAST),
+            ordering("d", DESCENDING, LAST)),
+        this::fillMultipleKeys);
+    // 2 * 17 bytes of decimal keys
+    assertSorted(
+        Arrays.asList(ordering("dec", DESCENDING, FIRST), ordering("dec2", ASCENDING, LAST)),
+        this::fillMultipleKeys);
+    // a fixed width key followed by a truncated variable width one
+    assertSorted(
+        Arrays.asList(ordering("a", ASCENDING, LAST), ordering("s", ASCENDING, FIRST)),
+        this::fillMultipleKeys);
+  }
+
+  private interface BatchFiller {
+    void fill(VectorContainer container, int count);
+  }
+
+  /**
+   * Sorts two batches filled by the filler, and checks that the SV4 is a permutation of the records
+   * where each record compares lower or equal to the next one with the generated comparator.
+   */
+  private void assertSorted(List<Ordering> orderings, BatchFiller filler) throws Exception {
+    final List<AutoCloseable> closeables = new ArrayList<>();
+    try {
+      final List<RecordBatchData> batches = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        try (VectorContainer container = new VectorContainer(allocator)) {
+          filler.fill(container, BATCH_SIZE);
+          container.setAllCount(BATCH_SIZE);
+          container.buildSchema();
+          final RecordBatchData batch = new RecordBatchData(container, allocator);
+          closeables.add(batch);
+          batches.add(batch);
+        }
+      }
+
+      final RadixSorter sorter =
+          new RadixSorter(
+              orderings, producer, batches.get(0).getVectorAccessible().getSchema(), allocator);
+      closeables.add(sorter);
+      int totalCount = 0;
+      for (RecordBatchData batch : batches) {
+        totalCount += batch.getRecordCount();
+        assertTrue(sorter.expandMemoryIfNecessary(totalCount));
+        if (totalCount == batch.getRecordCount()) {
+          sorter.setup(batch.getVectorAccessible());
+        }
+        sorter.addBatch(batch, allocator);
+      }
+
+      final SelectionVector4 sv4 = sorter.getFinalSort(allocator, totalCount);
+      closeables.add(sv4);
+      assertEquals(totalCount, sv4.getTotalCount());
+      final Set<Integer> indexes = new HashSet<>();
+      for (int i = 0; i < totalCount; i++) {
+        final int index = sv4.get(i);
+        assertTrue("duplicate index " + index, indexes.add(index));
+        if (i > 0) {
+          assertTrue(
+              String.format("%s: records %d and %d are out of order", orderings, i - 1, i),
+              sorter.compare(sv4.get(i - 1), index) <= 0);
+        }
+      }
+    } finally {
+      AutoCloseables.close(closeables);
+    }
+  }
+
+  private boolean isNull() {
+    return random.nextInt(10) == 0;
+  }
+
+  private void fillInts(VectorContainer container, int count) {
+    final BigIntVector a = container.addOrGet(CompleteType.BIGINT.toField("a"));
+    final IntVector b = container.addOrGet(CompleteType.INT.toField("b"));
+    for (int i = 0; i < count; i++) {
+      if (isNull()) {
+        a.setNull(i);
+      } else {
+        a.setSafe(i, LONGS[random.nextInt(LONGS.length)] + random.nextInt(3) - 1);
+      }
+      if (isNull()) {
+        b.setNull(i);
+      } else {
+        b.setSafe(i, random.nextInt(1000) - 500);
+      }
+    }
+  }
+
+  private void fillFloatingPoint(VectorContainer container, int count) {
+    final Float8Vector d = container.addOrGet(CompleteType.DOUBLE.toField("d"));
+    final Float4Vector f = container.addOrGet(CompleteType.FLOAT.toField("f"));
+    for (int i = 0; i < count; i++) {
+      if (isNull()) {
+        d.setNull(i);
+      } else if (random.nextBoolean()) {
+        d.setSafe(i, DOUBLES[random.nextInt(DOUBLES.length)]);
+      } else {
+        d.setSafe(i, random.nextGaussian() * 1000);
+      }
+      if (isNull()) {
+        f.setNull(i);
+      } else if (random.nextBoolean()) {
+        f.setSafe(i, FLOATS[random.nextInt(FLOATS.length)]);
+      } else {
+        f.setSafe(i, (float) random.nextGaussian());
+      }
+    }
+  }
+
+  private BigDecimal randomDecimal(int scale) {
+    // magnitudes from a few units up to 38 digits, both signs
+    final BigInteger unscaled = new BigInteger(1 + random.nextInt(126), random);
+    return new BigDecimal(random.nextBoolean() ? unscaled.negate() : unscaled, scale);
+  }
+
+  private void fillDecimals(VectorContainer container, int count) {
+    final DecimalVector dec =
+        container.addOrGet(CompleteType.fromDecimalPrecisionScale(38, 4).toField("dec"));
+    for (int i = 0; i < count; i++) {
+      if (isNull()) {
+        dec.setNull(i);
+      } else if (random.nextInt(8) == 0) {
+        dec.setSafe(i, BigDecimal.ZERO.setScale(4));
+      } else {
+        dec.setSafe(i, randomDecimal(4));
+      }
+    }
+  }
+
+  private void fillStrings(VectorContainer container, int count) {
+    final VarCharVector s = container.addOrGet(CompleteType.VARCHAR.toField("s"));
+    final IntVector id = container.addOrGet(CompleteType.INT.toField("id"));
+    for (int i = 0; i < count; i++) {
+      if (isNull()) {
+        s.setNull(i);
+      } else {
+        final String value = STRINGS[random.nextInt(STRINGS.length)];
+        // values sharing the 16 byte prefix, and exact ties
+        s.setSafe(
+            i,
+            (random.nextBoolean() ? value : value + (char) ('a' + random.nextInt(3)))
+                .getBytes(StandardCharsets.UTF_8));
+      }
+      id.setSafe(i, random.nextInt(10));
+    }
+  }
+
+  private void fillMultipleKeys(VectorContainer container, int count) {
+    final List<BigIntVector> longs = new ArrayList<>();
+    for (String name : Arrays.asList("a", "b", "c", "d")) {
+      longs.add(container.addOrGet(CompleteType.BIGINT.toField(name)));
+    }
+    final DecimalVector dec =
+        container.addOrGet(CompleteType.fromDecimalPrecisionScale(38, 2).toField("dec"));
+    final DecimalVector dec2 =
+        container.addOrGet(CompleteType.fromDecimalPrecisionScale(38, 2).toField("dec2"));
+    final VarCharVector s = container.addOrGet(CompleteType.VARCHAR.toField("s"));
+    for (int i = 0; i < count; i++) {
+      // few distinct values per key, so that the truncated keys decide the order
+      for (BigIntVector vector : longs) {
+        if (isNull()) {
+          vector.setNull(i);
+        } else {
+          vector.setSafe(i, LONGS[random.nextInt(3)]);
+        }
+      }
+      if (isNull()) {
+        dec.setNull(i);
+      } else {
+        dec.setSafe(i, BigDecimal.valueOf(random.nextInt(3) - 1, 2));
+      }
+      if (isNull()) {
+        dec2.setNull(i);
+      } else {
+        dec2.setSafe(i, randomDecimal(2));
+      }
+      s.setSafe(i, STRINGS[random.nextInt(STRINGS.length)].getBytes(StandardCharsets.UTF_8));
+    }
+  }
+}
@@ -255,6 +255,21 @@ public class TestSortOp extends BaseTestOperator {
     }
   }
 
+  @Test
+  public void testRadixSorterSpillSort() throws Exception {
+    try (AutoCloseable option = with(ExecConstants.EXTERNAL_SORT_ENABLE_RADIX_SORT, true)) {
+      ExternalSort sort =
+          new ExternalSort(
+              PROPS.cloneWithNewReserve(1_000_000),
+              null,
+              singletonList(ordering(ID.getName(), ASCENDING, FIRST)),
+              false);
+      sort.getProps().setMemLimit(2_000_000); // this can't go below sort's initialAllocation (20K)
+      Fixtures.Table table = generator.getExpectedSortedTable();
+      validateSingle(sort, ExternalSortOperator.class, generator, table, 1000);
+    }
+  }
+
   @Test
   public void testMicroSpillBatches() throws Exception {
     try (AutoCloseable option = with(ExecConstants.EXTERNAL_SORT_ENABLE_MICRO_SPILL, true)) {
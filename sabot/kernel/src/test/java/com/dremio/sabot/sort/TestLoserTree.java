@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.sort;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.dremio.sabot.op.sort.external.LoserTree;
+import com.dremio.test.DremioTest;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class TestLoserTree extends DremioTest {
+
+  /** Merges int arrays, counting comparisons. */
+  private static class ArrayMerger extends LoserTree {
+    private final int[][] runs;
+    private final int[] positions;
+    private int comparisons;
+
+    ArrayMerger(int[][] runs) {
+      super(runs.length);
+      this.runs = runs;
+      this.positions = new int[runs.length];
+      for (int run = 0; run < runs.length; run++) {
+        if (runs[run].length == 0) {
+          markExhausted(run);
+        }
+      }
+      build();
+    }
+
+    @Override
+    protected int compareRuns(int leftRun, int rightRun) {
+      comparisons++;
+      return Integer.compare(
+          runs[leftRun][positions[leftRun]], runs[rightRun][positions[rightRun]]);
+    }
+
+    int[] merge() {
+      int total = 0;
+      for (int[] run : runs) {
+        total += run.length;
+      }
+      final int[] output = new int[total];
+      int count = 0;
+      while (!isEmpty()) {
+        final int run = getWinner();
+        output[count++] = runs[run][positions[run]];
+        if (++positions[run] == runs[run].length) {
+          remove();
+        } else {
+          update();
+        }
+      }
+      assertEquals(LoserTree.NONE, getWinner());
+      assertEquals(total, count);
+      return output;
+    }
+  }
+
+  private static int[][] randomRuns(Random random, int runCount, int maxLength, int maxValue) {
+    final int[][] runs = new int[runCount][];
+    for (int run = 0; run < runCount; run++) {
+      runs[run] = new int[random.nextInt(maxLength + 1)];
+      for (int i = 0; i < runs[run].length; i++) {
+        runs[run][i] = random.nextInt(maxValue);
+      }
+      Arrays.sort(runs[run]);
+    }
+    return runs;
+  }
+
+  private static int[] sorted(int[][] runs) {
+    final int[] expected = Arrays.stream(runs).flatMapToInt(Arrays::stream).toArray();
+    Arrays.sort(expected);
+    return expected;
+  }
+
+  @Test
+  public void mergeRandomRuns() {
+    final Random random = new Random(1234);
+    for (int runCount : new int[] {1, 2, 3, 7, 64, 100, 513}) {
+      final int[][] runs = randomRuns(random, runCount, 200, 1000);
+      assertTrue(Arrays.equals(sorted(runs), new ArrayMerger(runs).merge()));
+    }
+  }
+
+  @Test
+  public void mergeEmptyRuns() {
+    final ArrayMerger merger = new ArrayMerger(new int[][] {{}, {}, {}});
+    assertTrue(merger.isEmpty());
+    assertEquals(0, merger.merge().length);
+  }
+
+  @Test
+  public void mergeDuplicates() {
+    final int[][] runs = new int[50][];
+    for (int run = 0; run < runs.length; run++) {
+      runs[run] = new int[100];
+      Arrays.fill(runs[run], 47);
+    }
+    assertTrue(Arrays.equals(sorted(runs), new ArrayMerger(runs).merge()));
+  }
+
+  @Test
+  public void comparisonsOfRandomRuns() {
+    // replaying a path costs log(k) comparisons, a binary heap needs up to twice as many
+    final int runCount = 256;
+    final int[][] runs = randomRuns(new Random(42), runCount, 1000, Integer.MAX_VALUE);
+    final ArrayMerger merger = new ArrayMerger(runs);
+    final int[] merged = merger.merge();
+    assertTrue(Arrays.equals(sorted(runs), merged));
+    assertTrue(
+        "comparisons: " + merger.comparisons,
+        merger.comparisons <= (long) merged.length * (8 + 1) + runCount);
+  }
+
+  @Test
+  public void dominatingRunNeedsOneComparisonPerRecord() {
+    final int runCount = 128;
+    final int[][] runs = new int[runCount][];
+    for (int run = 0; run < runCount; run++) {
+      runs[run] = new int[] {1_000_000 + run};
+    }
+    runs[0] = new int[100_000];
+    for (int i = 0; i < runs[0].length; i++) {
+      runs[0][i] = i;
+    }
+
+    final ArrayMerger merger = new ArrayMerger(runs);
+    final int[] merged = merger.merge();
+    assertTrue(Arrays.equals(sorted(runs), merged));
+    assertTrue("comparisons: " + merger.comparisons, merger.comparisons < 2 * merged.length);
+  }
+
+  @Test
+  public void challenger() {
+    final ArrayMerger merger = new ArrayMerger(new int[][] {{1, 2, 3}, {10}, {5}, {}});
+    assertEquals(0, merger.getWinner());
+    assertEquals(LoserTree.UNKNOWN, merger.getChallenger());
+
+    // the challenger becomes known once the same run wins twice in a row
+    merger.positions[0]++;
+    merger.update();
+    assertEquals(0, merger.getWinner());
+    assertEquals(2, merger.getChallenger());
+
+    merger.positions[0]++;
+    merger.update();
+    assertEquals(0, merger.getWinner());
+    assertEquals(2, merger.getChallenger());
+
+    merger.remove();
+    assertEquals(2, merger.getWinner());
+    assertEquals(LoserTree.UNKNOWN, merger.getChallenger());
+  }
+}
@@ -81,4 +81,30 @@ public class TestTopN extends BaseTestOperator {
             false);
     validateSingle(topn, TopNOperator.class, input, output);
   }
+
+  @Test
+  public void topNDataWithSpill() throws Exception {
+    // a tiny memory budget writes the heap to disk after every batch
+    try (AutoCloseable ac = with(ExecConstants.TOPN_SPILL_ENABLED, true);
+        AutoCloseable ac1 = with(ExecConstants.TOPN_SPILL_MAX_MEMORY, 1)) {
+      Table input =
+          t(
+              th("c0"),
+              tb(tr(35), tr(8)),
+              tb(tr(22), tr(17), tr(15)),
+              tb(tr(12), tr(42), tr(18), tr(11), tr(94), tr(106)));
+
+      Table output = t(th("c0"), tr(106), tr(94), tr(42), tr(35), tr(22));
+
+      TopN topn =
+          new TopN(
+              PROPS,
+              null,
+              5,
+              Collections.singletonList(ordering("c0", Direction.DESCENDING, NullDirection.FIRST)),
+              false);
+      // small output batches so that the merge stops in the middle of a batch
+      validateSingle(topn, TopNOperator.class, input, output, 2);
+    }
+  }
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.sabot.task.slicing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.dremio.sabot.task.AsyncTask;
+import com.dremio.sabot.task.AsyncTaskWrapper;
+import com.dremio.sabot.task.SchedulingGroup;
+import com.dremio.sabot.task.Task;
+import com.dremio.sabot.task.TaskDescriptor;
+import com.dremio.sabot.threads.AvailabilityCallback;
+import com.dremio.sabot.threads.sharedres.SharedResourceType;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Tests for {@link SlicingTaskPool} */
+public class TestSlicingTaskPool {
+
+  private SlicingTaskPool pool;
+  private ScheduledExecutorService unblocker;
+  private final Set<String> runningThreads = ConcurrentHashMap.newKeySet();
+
+  @Before
+  public void setup() {
+    pool = new SlicingTaskPool(4, TimeUnit.MILLISECONDS.toNanos(2), 100);
+    unblocker = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @After
+  public void teardown() throws Exception {
+    unblocker.shutdownNow();
+    pool.close();
+  }
+
+  @Test
+  public void testAllTasksComplete() throws Exception {
+    final int numTasks = 200;
+    final CountDownLatch done = new CountDownLatch(numTasks);
+    final SchedulingGroup<AsyncTaskWrapper> group = pool.getGroupManager().newGroup(100);
+    final TestTask[] tasks = new TestTask[numTasks];
+    for (int i = 0; i < numTasks; i++) {
+      tasks[i] = new TestTask(50, i % 3 == 0 ? 10 : -1);
+      pool.execute(new AsyncTaskWrapper(1, group, tasks[i], done::countDown, 1000));
+    }
+
+    assertTrue("Tasks didn't complete", done.await(60, TimeUnit.SECONDS));
+    for (TestTask task : tasks) {
+      assertEquals(50, task.runs.get());
+    }
+    assertTrue(pool.areAllThreadsAlive());
+  }
+
+  @Test
+  public void testTasksSpreadAcrossThreads() throws Exception {
+    // more tasks than threads, idle threads must pick up or steal the queued ones
+    final int numTasks = 16;
+    final CountDownLatch done = new CountDownLatch(numTasks);
+    final SchedulingGroup<AsyncTaskWrapper> group = pool.getGroupManager().newGroup(100);
+    for (int i = 0; i < numTasks; i++) {
+      pool.execute(new AsyncTaskWrapper(1, group, new TestTask(20, -1, 1), done::countDown, 1000));
+    }
+    assertTrue("Tasks didn't complete", done.await(60, TimeUnit.SECONDS));
+
+    assertTrue("Expected tasks to run on several threads", runningThreads.size() > 1);
+    for (SlicingSchedulerStats.ThreadStats stats : pool.getSchedulerStats().getThreadStats()) {
+      assertEquals(0, stats.runQueueDepth);
+    }
+  }
+
+  @Test
+  public void testWeightedShare() {
+    final SlicingSchedulingGroup root =
+        (SlicingSchedulingGroup) pool.getGroupManager().newGroup(1000);
+    final SlicingSchedulingGroup heavy = (SlicingSchedulingGroup) root.addGroup(300);
+    final SlicingSchedulingGroup light = (SlicingSchedulingGroup) root.addGroup(100);
+
+    heavy.activate(1);
+    light.activate(1);
+    light.activate(1);
+
+    assertEquals(0.75, heavy.share(1), 0.0001);
+    assertEquals(0.125, light.share(1), 0.0001);
+
+    heavy.deactivate(1);
+    assertEquals(0.5, light.share(1), 0.0001);
+  }
+
+  /** Task that runs a fixed number of times, optionally blocking once on upstream */
+  private final class TestTask implements AsyncTask {
+    private final int numRuns;
+    private final int blockAt;
+    private final long sleepMillis;
+    private final AtomicInteger runs = new AtomicInteger();
+    private volatile Task.State state = Task.State.RUNNABLE;
+
+    TestTask(int numRuns, int blockAt) {
+      this(numRuns, blockAt, 0);
+    }
+
+    TestTask(int numRuns, int blockAt, long sleepMillis) {
+      this.numRuns = numRuns;
+      this.blockAt = blockAt;
+      this.sleepMillis = sleepMillis;
+    }
+
+    @Override
+    public void run() {
+      final int run = runs.incrementAndGet();
+      runningThreads.add(Thread.currentThread().getName());
+      if (sleepMillis > 0) {
+        try {
+          Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      if (run == numRuns) {
+        state = Task.State.DONE;
+      } else if (run == blockAt) {
+        state = Task.State.BLOCKED_ON_UPSTREAM;
+      }
+    }
+
+    @Override
+    public void refreshState() {
+      state = Task.State.RUNNABLE;
+    }
+
+    @Override
+    public Task.State getState() {
+      return state;
+    }
+
+    @Override
+    public String getTaskId() {
+      return "test";
+    }
+
+    @Override
+    public SharedResourceType getFirstBlockedResource() {
+      return SharedResourceType.UNKNOWN;
+    }
+
+    @Override
+    public void updateSleepDuration(long duration) {}
+
+    @Override
+    public void updateBlockedOnDownstreamDuration(long duration) {}
+
+    @Override
+    public void updateBlockedOnUpstreamDuration(long duration) {}
+
+    @Override
+    public void updateBlockedOnMemoryDuration(long duration) {}
+
+    @Override
+    public void addBlockedOnSharedResourceDuration(SharedResourceType resource, long duration) {}
+
+    @Override
+    public void setWakeupCallback(AvailabilityCallback callback) {
+      unblocker.schedule(callback::nowAvailable, 5, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void setTaskDescriptor(TaskDescriptor descriptor) {}
+  }
+}
@@ -27,8 +27,8 @@ import com.dremio.datastore.CoreStoreProviderImpl.ForcedMemoryMode;
 import com.dremio.datastore.RocksDBStore.BlobNotFoundException;
 import com.dremio.datastore.RocksDBStore.RocksMetaManager;
 import com.dremio.datastore.api.Document;
+import com.dremio.datastore.api.StoreProfile;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.StandardSystemProperty;
 import com.google.common.base.Throwables;
@@ -36,7 +36,6 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.io.File;
 import java.io.IOException;
@@ -44,7 +43,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
@@ -55,6 +56,7 @@ import java.util.function.Predicate;
 import javax.annotation.Nonnull;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
 import org.rocksdb.DBOptions;
 import org.rocksdb.Logger;
 import org.rocksdb.Options;
@@ -73,6 +75,9 @@ class ByteStoreManager implements AutoCloseable {
 
   private static final boolean COLLECT_METRICS =
       System.getProperty("dremio.kvstore.metrics", null) != null;
+  // cache hit rates reported by the stores stats need RocksDB tickers
+  private static final boolean COLLECT_CACHE_STATS =
+      Boolean.parseBoolean(System.getProperty("dremio.kvstore.cache_stats", "true"));
 
   private static final long WAL_TTL_SECONDS =
       Long.getLong("dremio.catalog.wal_ttl_seconds", 5 * 60L);
@@ -93,6 +98,8 @@ class ByteStoreManager implements AutoCloseable {
 
   private RocksDB db;
   private ColumnFamilyHandle defaultHandle;
+  private Statistics statistics;
+  private ColumnFamilyProfiles columnFamilyProfiles;
   private StoreMetadataManagerImpl metadataManager;
 
   private final RocksDBOpenDelegate rocksDBOpenDelegate;
@@ -103,6 +110,7 @@ class ByteStoreManager implements AutoCloseable {
   // on #start all the existing tables are loaded, and if new stores are requested, #newStore is
   // used
   private final ConcurrentMap<Integer, String> handleIdToNameMap = Maps.newConcurrentMap();
+  private final ConcurrentMap<String, StoreProfile> storeProfiles = Maps.newConcurrentMap();
 
   @SuppressWarnings("NoGuavaCacheUsage") // TODO: fix as part of DX-51884
   private final LoadingCache<String, ByteStore> maps =
@@ -155,7 +163,7 @@ class ByteStoreManager implements AutoCloseable {
       return new MapStore(name);
     } else {
       final ColumnFamilyDescriptor columnFamilyDescriptor =
-          new ColumnFamilyDescriptor(name.getBytes(UTF_8));
+          new ColumnFamilyDescriptor(name.getBytes(UTF_8), columnFamilyOptions(name));
       ColumnFamilyHandle handle = db.createColumnFamily(columnFamilyDescriptor);
       handleIdToNameMap.put(handle.getID(), name);
       metadataManager.createEntry(name, false);
@@ -169,7 +177,23 @@ class ByteStoreManager implements AutoCloseable {
     final RocksMetaManager rocksManager;
     rocksManager = new RocksMetaManager(baseDirectory, name, selectFilterSize(name));
     return new RocksDBStore(
-        name, columnFamilyDescriptor, handle, db, stripeCount, rocksManager, dbReadOnly);
+        name,
+        columnFamilyDescriptor,
+        handle,
+        db,
+        stripeCount,
+        rocksManager,
+        dbReadOnly,
+        getProfile(name),
+        columnFamilyProfiles);
+  }
+
+  private StoreProfile getProfile(String name) {
+    return storeProfiles.getOrDefault(name, StoreProfile.DEFAULT);
+  }
+
+  private ColumnFamilyOptions columnFamilyOptions(String name) {
+    return columnFamilyProfiles.get(getProfile(name));
   }
 
   private static long selectFilterSize(String name) {
@@ -208,9 +232,21 @@ class ByteStoreManager implements AutoCloseable {
   }
 
   public void start() throws Exception {
+    start(Collections.emptyMap());
+  }
+
+  /**
+   * Opens the database.
+   *
+   * @param profiles profiles of the existing stores, as last declared by their builders. Column
+   *     families are opened with the options of their profile, stores missing from the map use
+   *     {@link StoreProfile#DEFAULT}.
+   */
+  public void start(Map<String, StoreProfile> profiles) throws Exception {
     if (inMemory) {
       return;
     }
+    storeProfiles.putAll(profiles);
 
     final String baseDirectory =
         CoreStoreProviderImpl.MODE == ForcedMemoryMode.DISK && this.baseDirectory == null
@@ -252,8 +288,6 @@ class ByteStoreManager implements AutoCloseable {
     if (families.isEmpty()) {
       families.add(RocksDB.DEFAULT_COLUMN_FAMILY);
     }
-    final Function<byte[], ColumnFamilyDescriptor> func = ColumnFamilyDescriptor::new;
-
     List<ColumnFamilyHandle> familyHandles = new ArrayList<>();
     try (final DBOptions dboptions = new DBOptions()) {
       dboptions.setCreateIfMissing(true);
@@ -268,7 +302,14 @@ class ByteStoreManager implements AutoCloseable {
           dboptions.walSizeLimitMB(),
           dboptions.walTtlSeconds());
       registerMetrics(dboptions);
-      db = openDB(dboptions, path, new ArrayList<>(Lists.transform(families, func)), familyHandles);
+      columnFamilyProfiles =
+          new ColumnFamilyProfiles(ColumnFamilyProfiles.BLOCK_CACHE_SIZE_BYTES, statistics);
+      final List<ColumnFamilyDescriptor> descriptors = new ArrayList<>(families.size());
+      for (byte[] family : families) {
+        final String name = new String(family, UTF_8);
+        descriptors.add(new ColumnFamilyDescriptor(family, columnFamilyOptions(name)));
+      }
+      db = openDB(dboptions, path, descriptors, familyHandles);
     }
     // create an output list to be populated when we open the db.
 
@@ -296,14 +337,17 @@ class ByteStoreManager implements AutoCloseable {
   private void registerMetrics(DBOptions dbOptions) {
     // calling DBOptions.statisticsPtr() will create a Statistics object that will collect various
     // stats from RocksDB and
-    // will introduce a 5-10% overhead
-    if (!COLLECT_METRICS) {
+    // will introduce a 5-10% overhead, most of it from timers
+    if (!COLLECT_METRICS && !COLLECT_CACHE_STATS) {
       return;
     }
 
-    final Statistics statistics = new Statistics();
-    statistics.setStatsLevel(StatsLevel.ALL);
+    statistics = new Statistics();
+    statistics.setStatsLevel(COLLECT_METRICS ? StatsLevel.ALL : StatsLevel.EXCEPT_DETAILED_TIMERS);
     dbOptions.setStatistics(statistics);
+    if (!COLLECT_METRICS) {
+      return;
+    }
     // for now, let's add all ticker stats as gauge metrics
     for (TickerType tickerType : TickerType.values()) {
       if (tickerType == TickerType.TICKER_ENUM_MAX) {
@@ -386,6 +430,18 @@ class ByteStoreManager implements AutoCloseable {
     }
   }
 
+  /**
+   * Get the store with the given name, creating it with the options of the given profile if it
+   * doesn't exist yet. A profile change for an existing store takes effect on the next start.
+   */
+  public ByteStore getStore(String name, StoreProfile profile) {
+    Preconditions.checkNotNull(profile);
+    if (!inMemory && maps.getIfPresent(name) == null) {
+      storeProfiles.put(name, profile);
+    }
+    return getStore(name);
+  }
+
   public ByteStore getStore(String name) {
     Preconditions.checkNotNull(name);
     Preconditions.checkArgument(
@@ -512,6 +568,9 @@ class ByteStoreManager implements AutoCloseable {
     getMetadataManager().close();
     closeException.suppressingClose(defaultHandle);
     closeException.suppressingClose(db);
+    // options and statistics must outlive the database
+    closeException.suppressingClose(columnFamilyProfiles);
+    closeException.suppressingClose(statistics);
     closeException.close();
   }
 
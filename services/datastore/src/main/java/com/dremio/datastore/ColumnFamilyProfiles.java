@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.datastore;
+
+import com.dremio.common.AutoCloseables;
+import com.dremio.datastore.api.StoreProfile;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.CompressionType;
+import org.rocksdb.IndexType;
+import org.rocksdb.LRUCache;
+import org.rocksdb.RocksDB;
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
+
+/**
+ * RocksDB column family options of each {@link StoreProfile}. All the column families share a
+ * single LRU block cache, so that the cache follows the working set of the hot stores instead of
+ * being split evenly across stores.
+ *
+ * <p>Options must outlive the column families opened with them, so instances are closed only once
+ * the database is closed.
+ */
+final class ColumnFamilyProfiles implements AutoCloseable {
+  static {
+    // the block cache is created before any RocksDB object that would load the native library
+    RocksDB.loadLibrary();
+  }
+
+  static final long BLOCK_CACHE_SIZE_BYTES =
+      Long.getLong("dremio.kvstore.block_cache_size_mb", 256L) * 1024 * 1024;
+
+  // share of the block cache reserved for index and filter blocks
+  private static final double HIGH_PRIORITY_POOL_RATIO = 0.2;
+  private static final double BLOOM_BITS_PER_KEY = 10;
+  private static final double MEMTABLE_BLOOM_SIZE_RATIO = 0.05;
+  private static final long POINT_LOOKUP_BLOCK_SIZE = 4 * 1024;
+  private static final long SCAN_HEAVY_BLOCK_SIZE = 32 * 1024;
+
+  private final long blockCacheSize;
+  private final LRUCache blockCache;
+  private final Statistics statistics;
+  private final Map<StoreProfile, ColumnFamilyOptions> options = new EnumMap<>(StoreProfile.class);
+  private final List<AutoCloseable> closeables = new ArrayList<>();
+
+  /**
+   * @param blockCacheSize capacity of the shared block cache, in bytes
+   * @param statistics statistics of the database, used to report cache hit rates. Can be {@code
+   *     null}.
+   */
+  ColumnFamilyProfiles(long blockCacheSize, Statistics statistics) {
+    Preconditions.checkArgument(blockCacheSize > 0, "block cache size must be positive");
+    this.blockCacheSize = blockCacheSize;
+    this.blockCache = new LRUCache(blockCacheSize, -1, false, HIGH_PRIORITY_POOL_RATIO);
+    this.statistics = statistics;
+  }
+
+  /** Options of the column families of the given profile. */
+  synchronized ColumnFamilyOptions get(StoreProfile profile) {
+    return options.computeIfAbsent(profile, this::newOptions);
+  }
+
+  private ColumnFamilyOptions newOptions(StoreProfile profile) {
+    final ColumnFamilyOptions cfOptions = new ColumnFamilyOptions();
+    final BlockBasedTableConfig tableConfig = new BlockBasedTableConfig().setBlockCache(blockCache);
+
+    switch (profile) {
+      case POINT_LOOKUP:
+        // keep index and filter blocks resident: they are small and consulted on every lookup
+        tableConfig
+            .setFilterPolicy(newBloomFilter())
+            .setWholeKeyFiltering(true)
+            .setCacheIndexAndFilterBlocks(true)
+            .setCacheIndexAndFilterBlocksWithHighPriority(true)
+            .setPinL0FilterAndIndexBlocksInCache(true)
+            .setPinTopLevelIndexAndFilter(true)
+            .setBlockSize(POINT_LOOKUP_BLOCK_SIZE);
+        cfOptions
+            .setMemtableWholeKeyFiltering(true)
+            .setMemtablePrefixBloomSizeRatio(MEMTABLE_BLOOM_SIZE_RATIO);
+        cfOptions.setCompressionType(CompressionType.LZ4_COMPRESSION);
+        break;
+
+      case SCAN_HEAVY:
+        // partitioned filters and index only load the partitions a read needs, so that the
+        // metadata of a large cold store doesn't crowd hot stores out of the cache
+        tableConfig
+            .setFilterPolicy(newBloomFilter())
+            .setWholeKeyFiltering(true)
+            .setIndexType(IndexType.kTwoLevelIndexSearch)
+            .setPartitionFilters(true)
+            .setCacheIndexAndFilterBlocks(true)
+            .setCacheIndexAndFilterBlocksWithHighPriority(true)
+            .setPinTopLevelIndexAndFilter(true)
+            .setBlockSize(SCAN_HEAVY_BLOCK_SIZE);
+        cfOptions.setCompressionPerLevel(
+            Arrays.asList(
+                CompressionType.LZ4_COMPRESSION,
+                CompressionType.LZ4_COMPRESSION,
+                CompressionType.LZ4_COMPRESSION,
+                CompressionType.LZ4_COMPRESSION,
+                CompressionType.ZSTD_COMPRESSION,
+                CompressionType.ZSTD_COMPRESSION,
+                CompressionType.ZSTD_COMPRESSION));
+        cfOptions.setBottommostCompressionType(CompressionType.ZSTD_COMPRESSION);
+        break;
+
+      case DEFAULT:
+      default:
+        break;
+    }
+
+    cfOptions.setTableFormatConfig(tableConfig);
+    closeables.add(cfOptions);
+    return cfOptions;
+  }
+
+  private BloomFilter newBloomFilter() {
+    final BloomFilter filter = new BloomFilter(BLOOM_BITS_PER_KEY);
+    closeables.add(filter);
+    return filter;
+  }
+
+  /**
+   * Appends the block cache usage and hit rates to the given store stats. RocksDB counts cache hits
+   * per database, so the rates cover all the stores sharing the cache.
+   */
+  void appendStats(StringBuilder sb) {
+    sb.append("* Shared Block Cache Capacity: ").append(blockCacheSize).append('\n');
+    sb.append("* Shared Block Cache Usage: ").append(blockCache.getUsage()).append('\n');
+    sb.append("* Shared Block Cache Pinned Usage: ")
+        .append(blockCache.getPinnedUsage())
+        .append('\n');
+    if (statistics == null) {
+      return;
+    }
+    appendHitRate(
+        sb, "Block Cache Hit Rate", TickerType.BLOCK_CACHE_HIT, TickerType.BLOCK_CACHE_MISS);
+    appendHitRate(
+        sb,
+        "Block Cache Data Hit Rate",
+        TickerType.BLOCK_CACHE_DATA_HIT,
+        TickerType.BLOCK_CACHE_DATA_MISS);
+    appendHitRate(
+        sb,
+        "Block Cache Index Hit Rate",
+        TickerType.BLOCK_CACHE_INDEX_HIT,
+        TickerType.BLOCK_CACHE_INDEX_MISS);
+    appendHitRate(
+        sb,
+        "Block Cache Filter Hit Rate",
+        TickerType.BLOCK_CACHE_FILTER_HIT,
+        TickerType.BLOCK_CACHE_FILTER_MISS);
+    sb.append("* Bloom Filter Useful: ")
+        .append(statistics.getTickerCount(TickerType.BLOOM_FILTER_USEFUL))
+        .append('\n');
+  }
+
+  private void appendHitRate(StringBuilder sb, String name, TickerType hit, TickerType miss) {
+    final long hits = statistics.getTickerCount(hit);
+    final long misses = statistics.getTickerCount(miss);
+    sb.append("* ").append(name).append(": ");
+    if (hits + misses == 0) {
+      sb.append("n/a");
+    } else {
+      sb.append(String.format("%.2f%%", 100.0 * hits / (hits + misses)));
+    }
+    sb.append(" (").append(hits).append(" hits, ").append(misses).append(" misses)\n");
+  }
+
+  @Override
+  public synchronized void close() throws Exception {
+    options.clear();
+    try {
+      AutoCloseables.close(closeables);
+    } finally {
+      closeables.clear();
+      blockCache.close();
+    }
+  }
+}
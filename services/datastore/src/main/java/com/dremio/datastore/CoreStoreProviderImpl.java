@@ -22,6 +22,7 @@ import com.dremio.common.perf.Timer;
 import com.dremio.common.perf.Timer.TimedBlock;
 import com.dremio.common.utils.ProtostuffUtil;
 import com.dremio.datastore.api.DocumentConverter;
+import com.dremio.datastore.api.StoreProfile;
 import com.dremio.datastore.indexed.CommitWrapper;
 import com.dremio.datastore.indexed.CoreIndexedStoreImpl;
 import com.dremio.datastore.indexed.LuceneSearchIndex;
@@ -37,6 +38,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
@@ -184,7 +186,7 @@ public class CoreStoreProviderImpl
   public void start() throws Exception {
     metaDataFilesDir.mkdirs();
 
-    byteManager.start();
+    byteManager.start(inMemory ? Collections.emptyMap() : readStoreProfiles());
     indexManager.start();
   }
 
@@ -194,6 +196,8 @@ public class CoreStoreProviderImpl
       return;
     }
 
+    rebuildDroppedIndexes();
+
     alarmFile = new File(baseDirectory, ALARM);
 
     if (!REINDEX_ON_CRASH_DISABLED && alarmFile.exists()) {
@@ -232,6 +236,30 @@ public class CoreStoreProviderImpl
     }
   }
 
+  /**
+   * Rebuilds the indexes dropped when opened, because they were written with a different number of
+   * shards than configured.
+   */
+  private void rebuildDroppedIndexes() {
+    StreamSupport.stream(spliterator(), false)
+        .filter(storeWithId -> storeWithId.getStore() instanceof CoreIndexedStore)
+        .map(StoreWithId::getId)
+        .filter(id -> indexManager.getIndex(id).isRebuildRequired())
+        .forEach(
+            id -> {
+              logger.info("Rebuilding the index of store {} for its new number of shards.", id);
+              try (TimedBlock ignored = Timer.time("rebuilding index " + id)) {
+                reIndex(id);
+              }
+              try {
+                indexManager.getIndex(id).rebuilt();
+              } catch (IOException e) {
+                throw new DatastoreException(
+                    String.format("Failed to mark the index of store %s as rebuilt.", id), e);
+              }
+            });
+  }
+
   /** For stores with indexes, perform a full reindex. */
   private void reIndexFull() {
     StreamSupport.stream(spliterator(), false)
@@ -395,7 +423,8 @@ public class CoreStoreProviderImpl
           createMetaDataFile(kvStoreInfo);
         }
 
-        final ByteStore rawStore = byteManager.getStore(kvStoreInfo.getTablename());
+        final ByteStore rawStore =
+            byteManager.getStore(kvStoreInfo.getTablename(), helper.getProfile());
 
         CoreKVStore<K, V> coreKVStore =
             new CoreKVStoreImpl<>(rawStore, keySerializer, valueSerializer);
@@ -457,6 +486,22 @@ public class CoreStoreProviderImpl
     }
   }
 
+  /** Read the profiles the stores were last declared with from their metadata files. */
+  private Map<String, StoreProfile> readStoreProfiles() throws IOException {
+    final Map<String, StoreProfile> profiles = Maps.newHashMap();
+    try (DirectoryStream<Path> metaDataFiles =
+        Files.newDirectoryStream(metaDataFilesDir.toPath(), METADATA_FILES_GLOB)) {
+      for (Path metadataFile : metaDataFiles) {
+        final byte[] headerBytes = Files.readAllBytes(metadataFile);
+        final KVStoreInfo metadata = new KVStoreInfo();
+        ProtostuffUtil.fromJSON(headerBytes, metadata, KVStoreInfo.getSchema(), false);
+
+        profiles.put(metadata.getTablename(), StoreProfile.fromName(metadata.getStoreProfile()));
+      }
+    }
+    return profiles;
+  }
+
   /** Scan dbDirectory to read kvstore definitions and load all stores in memory. */
   public void scan() throws Exception {
     try (DirectoryStream<Path> metaDataFiles =
@@ -15,6 +15,7 @@
  */
 package com.dremio.datastore;
 
+import com.dremio.datastore.RemoteDataStoreProtobuf.BulkDeleteRequest;
 import com.dremio.datastore.RemoteDataStoreProtobuf.ContainsRequest;
 import com.dremio.datastore.RemoteDataStoreProtobuf.ContainsResponse;
 import com.dremio.datastore.RemoteDataStoreProtobuf.DeleteRequest;
@@ -259,6 +260,26 @@ public class DatastoreRpcClient {
     }
   }
 
+  /**
+   * Bulk delete method to remove the key-value store entries corresponding to the provided keys
+   * from the store in a single request.
+   *
+   * @param storeId the store ID.
+   * @param keys the keys of the key-value store entries to remove.
+   * @param noMeta whether the entries metadata can be left in place, see {@link
+   *     com.dremio.datastore.api.KVStore.DeleteOption#NO_META}.
+   * @throws RpcException when RPC related errors are encountered.
+   */
+  public void bulkDelete(String storeId, List<ByteString> keys, boolean noMeta)
+      throws RpcException {
+    final BulkDeleteRequest.Builder builder =
+        BulkDeleteRequest.newBuilder().setStoreId(storeId).addAllKeys(keys);
+    if (noMeta) {
+      builder.setNoMeta(true);
+    }
+    rpcService.getBulkDeleteEndpoint().send(builder.build());
+  }
+
   /**
    * Find method to retrieve documents satisfying provided search conditions.
    *
@@ -15,6 +15,8 @@
  */
 package com.dremio.datastore;
 
+import com.dremio.datastore.RemoteDataStoreProtobuf.BulkDeleteRequest;
+import com.dremio.datastore.RemoteDataStoreProtobuf.BulkDeleteResponse;
 import com.dremio.datastore.RemoteDataStoreProtobuf.ContainsRequest;
 import com.dremio.datastore.RemoteDataStoreProtobuf.ContainsResponse;
 import com.dremio.datastore.RemoteDataStoreProtobuf.DeleteRequest;
@@ -53,6 +55,7 @@ public class DatastoreRpcService {
   private static final int TYPE_SEARCH = 5;
   private static final int TYPE_PUT = 6;
   private static final int TYPE_DELETE = 7;
+  private static final int TYPE_BULK_DELETE = 8;
   private static final int TYPE_GET_STORE = 10;
 
   private final Provider<NodeEndpoint> master;
@@ -64,6 +67,7 @@ public class DatastoreRpcService {
   private SendEndpointCreator<SearchRequest, SearchResponse> searchEndpointCreator;
   private SendEndpointCreator<PutRequest, PutResponse> putEndpointCreator;
   private SendEndpointCreator<DeleteRequest, DeleteResponse> deleteEndpointCreator;
+  private SendEndpointCreator<BulkDeleteRequest, BulkDeleteResponse> bulkDeleteEndpointCreator;
   private SendEndpointCreator<GetStoreRequest, GetStoreResponse> getStoreEndpointCreator;
 
   public DatastoreRpcService(
@@ -166,6 +170,18 @@ public class DatastoreRpcService {
               }
             });
 
+    bulkDeleteEndpointCreator =
+        builder.register(
+            TYPE_BULK_DELETE,
+            new AbstractReceiveHandler<BulkDeleteRequest, BulkDeleteResponse>(
+                BulkDeleteRequest.getDefaultInstance(), BulkDeleteResponse.getDefaultInstance()) {
+              @Override
+              public SentResponseMessage<BulkDeleteResponse> handle(
+                  BulkDeleteRequest request, ArrowBuf dBody) throws RpcException {
+                return new SentResponseMessage<>(handler.bulkDelete(request));
+              }
+            });
+
     getStoreEndpointCreator =
         builder.register(
             TYPE_GET_STORE,
@@ -222,6 +238,11 @@ public class DatastoreRpcService {
     return newEndpoint(deleteEndpointCreator);
   }
 
+  public SendEndpoint<BulkDeleteRequest, BulkDeleteResponse> getBulkDeleteEndpoint()
+      throws RpcException {
+    return newEndpoint(bulkDeleteEndpointCreator);
+  }
+
   public SendEndpoint<GetStoreRequest, GetStoreResponse> getGetStoreEndpoint() throws RpcException {
     return newEndpoint(getStoreEndpointCreator);
   }
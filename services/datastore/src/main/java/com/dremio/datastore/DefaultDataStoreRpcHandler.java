@@ -15,6 +15,8 @@
  */
 package com.dremio.datastore;
 
+import com.dremio.datastore.RemoteDataStoreProtobuf.BulkDeleteRequest;
+import com.dremio.datastore.RemoteDataStoreProtobuf.BulkDeleteResponse;
 import com.dremio.datastore.RemoteDataStoreProtobuf.ContainsRequest;
 import com.dremio.datastore.RemoteDataStoreProtobuf.ContainsResponse;
 import com.dremio.datastore.RemoteDataStoreProtobuf.DeleteRequest;
@@ -76,6 +78,11 @@ public class DefaultDataStoreRpcHandler {
         "Remote datastore operations are not supported on this host " + hostName);
   }
 
+  public BulkDeleteResponse bulkDelete(BulkDeleteRequest request) {
+    throw new UnsupportedOperationException(
+        "Remote datastore operations are not supported on this host " + hostName);
+  }
+
   public GetStoreResponse getStore(GetStoreRequest request) {
     throw new UnsupportedOperationException(
         "Remote datastore operations are not supported on this host " + hostName);
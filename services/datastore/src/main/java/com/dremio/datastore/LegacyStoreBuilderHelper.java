@@ -16,6 +16,7 @@
 package com.dremio.datastore;
 
 import com.dremio.datastore.api.DocumentConverter;
+import com.dremio.datastore.api.StoreProfile;
 import com.dremio.datastore.format.Format;
 import com.google.common.base.Preconditions;
 import com.google.protobuf.Message;
@@ -74,6 +75,12 @@ public final class LegacyStoreBuilderHelper<K, V> {
     return this;
   }
 
+  public LegacyStoreBuilderHelper<K, V> profile(StoreProfile profile) {
+    Preconditions.checkNotNull(profile);
+    info.setStoreProfile(profile.name());
+    return this;
+  }
+
   public boolean hasDocumentConverter() {
     return this.documentConverter != null;
   }
@@ -92,6 +99,10 @@ public final class LegacyStoreBuilderHelper<K, V> {
     return (Serializer<V, byte[]>) valueFormat.apply(ByteSerializerFactory.INSTANCE);
   }
 
+  public StoreProfile getProfile() {
+    return StoreProfile.fromName(info.getStoreProfile());
+  }
+
   public Format<K> getKeyFormat() {
     return keyFormat;
   }
@@ -15,6 +15,8 @@
  */
 package com.dremio.datastore;
 
+import com.dremio.datastore.RemoteDataStoreProtobuf.BulkDeleteRequest;
+import com.dremio.datastore.RemoteDataStoreProtobuf.BulkDeleteResponse;
 import com.dremio.datastore.RemoteDataStoreProtobuf.ContainsRequest;
 import com.dremio.datastore.RemoteDataStoreProtobuf.ContainsResponse;
 import com.dremio.datastore.RemoteDataStoreProtobuf.DeleteRequest;
@@ -187,6 +189,21 @@ public class LocalDataStoreRpcHandler extends DefaultDataStoreRpcHandler {
     return DeleteResponse.getDefaultInstance();
   }
 
+  @Override
+  public BulkDeleteResponse bulkDelete(BulkDeleteRequest request) {
+    final CoreKVStore store = coreStoreProvider.getStore(request.getStoreId());
+    final List<KVStoreTuple<?>> keys = new ArrayList<>(request.getKeysCount());
+    for (ByteString key : request.getKeysList()) {
+      keys.add(store.newKey().setSerializedBytes(key.toByteArray()));
+    }
+    if (request.getNoMeta()) {
+      store.bulkDelete(keys, KVStore.DeleteOption.NO_META);
+    } else {
+      store.bulkDelete(keys);
+    }
+    return BulkDeleteResponse.getDefaultInstance();
+  }
+
   @Override
   public GetStoreResponse getStore(GetStoreRequest request) {
     String storeId = coreStoreProvider.getStoreID(request.getName());
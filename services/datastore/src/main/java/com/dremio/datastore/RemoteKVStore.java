@@ -60,7 +60,8 @@ public class RemoteKVStore<K, V> implements KVStore<K, V> {
     CHECK_AND_DELETE,
     DELETE_VERSION,
     FIND_BY_RANGE,
-    FIND_ALL
+    FIND_ALL,
+    BULK_DELETE
   }
 
   private final String storeId;
@@ -279,9 +280,29 @@ public class RemoteKVStore<K, V> implements KVStore<K, V> {
 
   @Override
   public void bulkDelete(List<K> keysToDelete, DeleteOption... deleteOptions) {
-    for (K key : keysToDelete) {
-      delete(key, deleteOptions);
+    // version checks are reported per key, so they still go through individual deletes
+    if (VersionOption.getTagInfo(deleteOptions).hasVersionOption() || keysToDelete.isEmpty()) {
+      for (K key : keysToDelete) {
+        delete(key, deleteOptions);
+      }
+      return;
     }
+
+    loggedTimedOperation(
+        Stats.BULK_DELETE,
+        () -> {
+          try {
+            final List<ByteString> keys = Lists.newArrayListWithCapacity(keysToDelete.size());
+            for (K key : keysToDelete) {
+              keys.add(convertKey(key));
+            }
+            client.bulkDelete(storeId, keys, KVStoreOptionUtility.canSkipMeta(deleteOptions));
+            return (Void) null;
+          } catch (RpcException e) {
+            throw new DatastoreException(
+                format("Failed to bulk delete from store id: %s", getStoreId()), e);
+          }
+        });
   }
 
   @Override
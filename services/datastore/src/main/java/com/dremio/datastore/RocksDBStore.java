@@ -22,6 +22,7 @@ import com.dremio.datastore.api.Document;
 import com.dremio.datastore.api.FindByRange;
 import com.dremio.datastore.api.ImmutableDocument;
 import com.dremio.datastore.api.IncrementCounter;
+import com.dremio.datastore.api.StoreProfile;
 import com.dremio.datastore.api.options.KVStoreOptionUtility;
 import com.dremio.datastore.api.options.MaxResultsOption;
 import com.dremio.datastore.api.options.VersionOption;
@@ -47,11 +48,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -67,6 +70,8 @@ import org.rocksdb.FlushOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
 import org.xerial.snappy.SnappyInputStream;
 import org.xerial.snappy.SnappyOutputStream;
 
@@ -195,6 +200,8 @@ class RocksDBStore implements ByteStore {
 
   private final AtomicBoolean closed = new AtomicBoolean(false);
   private final boolean readOnly;
+  private final StoreProfile profile;
+  private final ColumnFamilyProfiles columnFamilyProfiles;
 
   public RocksDBStore(
       String name,
@@ -224,6 +231,19 @@ class RocksDBStore implements ByteStore {
       int stripes,
       MetaManager metaManager,
       boolean readOnly) {
+    this(name, family, handle, db, stripes, metaManager, readOnly, StoreProfile.DEFAULT, null);
+  }
+
+  public RocksDBStore(
+      String name,
+      ColumnFamilyDescriptor family,
+      ColumnFamilyHandle handle,
+      RocksDB db,
+      int stripes,
+      MetaManager metaManager,
+      boolean readOnly,
+      StoreProfile profile,
+      ColumnFamilyProfiles columnFamilyProfiles) {
     super();
     this.family = family;
     this.name = name;
@@ -234,6 +254,8 @@ class RocksDBStore implements ByteStore {
     this.exclusiveLocks = new AutoCloseableLock[stripes];
     this.metaManager = metaManager;
     this.readOnly = readOnly;
+    this.profile = profile;
+    this.columnFamilyProfiles = columnFamilyProfiles;
 
     for (int i = 0; i < stripes; i++) {
       ReadWriteLock core = new ReentrantReadWriteLock();
@@ -296,6 +318,10 @@ class RocksDBStore implements ByteStore {
       append(sb, "rocksdb.estimate-live-data-size", "Estimated Live Data Size");
       append(sb, "rocksdb.total-sst-files-size", "Total SST files size");
       append(sb, "rocksdb.estimate-pending-compaction-bytes", "Pending Compaction Bytes");
+      sb.append("* Profile: ").append(profile).append('\n');
+      if (columnFamilyProfiles != null) {
+        columnFamilyProfiles.appendStats(sb);
+      }
 
       final BlobStats blobStats = metaManager.getStats();
       if (blobStats != null) {
@@ -349,22 +375,63 @@ class RocksDBStore implements ByteStore {
     }
   }
 
-  private AutoCloseableLock sharedLock(byte[] key) {
+  private int stripe(byte[] key) {
     Preconditions.checkNotNull(key);
     final int hash = Arrays.hashCode(key);
-    AutoCloseableLock lock = sharedLocks[Math.abs(hash % parallel)];
+    return Math.abs(hash % parallel);
+  }
+
+  private AutoCloseableLock sharedLock(byte[] key) {
+    AutoCloseableLock lock = sharedLocks[stripe(key)];
     lock.open();
     return lock;
   }
 
   private AutoCloseableLock exclusiveLock(byte[] key) {
-    Preconditions.checkNotNull(key);
-    final int hash = Arrays.hashCode(key);
-    AutoCloseableLock lock = exclusiveLocks[Math.abs(hash % parallel)];
+    AutoCloseableLock lock = exclusiveLocks[stripe(key)];
     lock.open();
     return lock;
   }
 
+  /**
+   * Acquire the shared locks of all the stripes the given keys fall in. Each stripe is locked once,
+   * in stripe order, whatever the number of keys.
+   */
+  private StripeLocks sharedStripeLocks(List<byte[]> keys) {
+    final boolean[] stripes = new boolean[parallel];
+    for (byte[] key : keys) {
+      stripes[stripe(key)] = true;
+    }
+    final StripeLocks locks = new StripeLocks();
+    try {
+      for (int i = 0; i < parallel; i++) {
+        if (stripes[i]) {
+          locks.add(sharedLocks[i].open());
+        }
+      }
+    } catch (RuntimeException e) {
+      locks.close();
+      throw e;
+    }
+    return locks;
+  }
+
+  /** A set of stripe locks, released in reverse acquisition order. */
+  private static final class StripeLocks implements AutoCloseable {
+    private final List<AutoCloseableLock> locks = new ArrayList<>();
+
+    private void add(AutoCloseableLock lock) {
+      locks.add(lock);
+    }
+
+    @Override
+    public void close() {
+      for (int i = locks.size() - 1; i >= 0; i--) {
+        locks.get(i).close();
+      }
+    }
+  }
+
   /**
    * Delete all values. Deletes only values inside the store, leaving behind any leftover blobs that
    * have been placed directly in the file system.
@@ -398,17 +465,26 @@ class RocksDBStore implements ByteStore {
   public Document<byte[], byte[]> get(byte[] key, GetOption... options) {
     try (AutoCloseableLock ac = sharedLock(key)) {
       throwIfClosed();
-      final RocksEntry result = resolvePtrOrValue(db.get(handle, key));
-      if (result == null) {
-        return null;
-      }
-      final byte[] value = result.getData();
-      return toDocument(key, value, toTag(result.getMeta(), value));
+      return resolveDocument(key, db.get(handle, key));
     } catch (RocksDBException | BlobNotFoundException e) {
       throw new RuntimeException(e);
     }
   }
 
+  private Document<byte[], byte[]> resolveDocument(byte[] key, byte[] valueOrPtr)
+      throws BlobNotFoundException {
+    final RocksEntry result = resolvePtrOrValue(valueOrPtr);
+    if (result == null) {
+      return null;
+    }
+    final byte[] value = result.getData();
+    return toDocument(key, value, toTag(result.getMeta(), value));
+  }
+
+  private List<byte[]> multiGet(List<byte[]> keys) throws RocksDBException {
+    return db.multiGetAsList(Collections.nCopies(keys.size(), handle), keys);
+  }
+
   @VisibleForTesting
   long openedIterators() {
     return openedIterators.get();
@@ -538,11 +614,20 @@ class RocksDBStore implements ByteStore {
 
   @Override
   public Iterable<Document<byte[], byte[]>> get(List<byte[]> keys, GetOption... options) {
-    final List<Document<byte[], byte[]>> results = new ArrayList<>();
-    for (byte[] key : keys) {
-      results.add(get(key, options));
+    if (keys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    try (StripeLocks ac = sharedStripeLocks(keys)) {
+      throwIfClosed();
+      final List<byte[]> valuesOrPtrs = multiGet(keys);
+      final List<Document<byte[], byte[]>> results = new ArrayList<>(keys.size());
+      for (int i = 0; i < keys.size(); i++) {
+        results.add(resolveDocument(keys.get(i), valuesOrPtrs.get(i)));
+      }
+      return results;
+    } catch (RocksDBException | BlobNotFoundException e) {
+      throw new RuntimeException(e);
     }
-    return results;
   }
 
   @Override
@@ -666,8 +751,45 @@ class RocksDBStore implements ByteStore {
 
   @Override
   public void bulkDelete(List<byte[]> keysToDelete, DeleteOption... deleteOptions) {
-    for (byte[] key : keysToDelete) {
-      delete(key, deleteOptions);
+    if (keysToDelete.isEmpty()) {
+      return;
+    }
+    try (StripeLocks ac = sharedStripeLocks(keysToDelete);
+        WriteBatch batch = new WriteBatch();
+        WriteOptions writeOptions = new WriteOptions()) {
+      throwIfClosed();
+      final boolean skipMeta = KVStoreOptionUtility.canSkipMeta(deleteOptions);
+
+      if (skipMeta) {
+        for (byte[] key : keysToDelete) {
+          batch.delete(handle, key);
+        }
+        db.write(writeOptions, batch);
+        return;
+      }
+
+      // only delete existing entries, and release the translation of each of them once
+      final List<byte[]> oldValuesOrPtrs = multiGet(keysToDelete);
+      final Set<byte[]> deleted = new TreeSet<>(UnsignedBytes.lexicographicalComparator());
+      final List<Rocks.Meta> oldMetas = new ArrayList<>();
+      for (int i = 0; i < keysToDelete.size(); i++) {
+        final byte[] key = keysToDelete.get(i);
+        final byte[] oldValueOrPtr = oldValuesOrPtrs.get(i);
+        if (oldValueOrPtr != null && deleted.add(key)) {
+          batch.delete(handle, key);
+          oldMetas.add(meta(oldValueOrPtr));
+        }
+      }
+      if (batch.count() == 0) {
+        return;
+      }
+      db.write(writeOptions, batch);
+
+      for (Rocks.Meta oldMeta : oldMetas) {
+        metaManager.deleteTranslation(oldMeta);
+      }
+    } catch (RocksDBException e) {
+      throw new RuntimeException(e);
     }
   }
 
@@ -16,6 +16,7 @@
 package com.dremio.datastore;
 
 import com.dremio.datastore.api.DocumentConverter;
+import com.dremio.datastore.api.StoreProfile;
 import com.dremio.datastore.format.Format;
 import com.google.common.base.Preconditions;
 import com.google.protobuf.Message;
@@ -63,6 +64,12 @@ public final class StoreBuilderHelper<K, V> {
     return this;
   }
 
+  public StoreBuilderHelper<K, V> profile(StoreProfile profile) {
+    Preconditions.checkNotNull(profile);
+    info.setStoreProfile(profile.name());
+    return this;
+  }
+
   public boolean hasDocumentConverter() {
     return this.documentConverter != null;
   }
@@ -76,6 +83,10 @@ public final class StoreBuilderHelper<K, V> {
     return documentConverter.getVersion();
   }
 
+  public StoreProfile getProfile() {
+    return StoreProfile.fromName(info.getStoreProfile());
+  }
+
   public Format<K> getKeyFormat() {
     return keyFormat;
   }
@@ -21,6 +21,7 @@ import com.dremio.datastore.api.IndexedStore;
 import com.dremio.datastore.api.KVStore;
 import com.dremio.datastore.api.KVStoreProvider;
 import com.dremio.datastore.api.StoreCreationFunction;
+import com.dremio.datastore.api.StoreProfile;
 import com.dremio.datastore.format.Format;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
@@ -85,6 +86,12 @@ public class TimedKVStoreProvider implements KVStoreProvider {
       return this;
     }
 
+    @Override
+    public KVStoreProvider.StoreBuilder<K, V> profile(StoreProfile profile) {
+      delegate.profile(profile);
+      return this;
+    }
+
     @Override
     public KVStoreProvider.StoreBuilder<K, V> permitCompoundKeys(boolean permitCompoundKeys) {
       delegate.permitCompoundKeys(permitCompoundKeys);
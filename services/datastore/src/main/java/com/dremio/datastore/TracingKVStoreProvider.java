@@ -21,6 +21,7 @@ import com.dremio.datastore.api.IndexedStore;
 import com.dremio.datastore.api.KVStore;
 import com.dremio.datastore.api.KVStoreProvider;
 import com.dremio.datastore.api.StoreCreationFunction;
+import com.dremio.datastore.api.StoreProfile;
 import com.dremio.datastore.format.Format;
 import io.opentracing.Tracer;
 import java.util.Set;
@@ -79,6 +80,12 @@ public class TracingKVStoreProvider implements KVStoreProvider {
       return this;
     }
 
+    @Override
+    public StoreBuilder<K, V> profile(StoreProfile profile) {
+      delegate.profile(profile);
+      return this;
+    }
+
     @Override
     public StoreBuilder<K, V> permitCompoundKeys(boolean permitCompoundKeys) {
       delegate.permitCompoundKeys(permitCompoundKeys);
@@ -201,6 +201,7 @@ public class LegacyKVStoreProviderAdapter implements LegacyKVStoreProvider {
           .name(legacyStoreBuilderHelper.getName())
           .keyFormat(legacyStoreBuilderHelper.getKeyFormat())
           .valueFormat(legacyStoreBuilderHelper.getValueFormat())
+          .profile(legacyStoreBuilderHelper.getProfile())
           .permitCompoundKeys(permitCompoundKeys);
     }
   }
@@ -53,6 +53,12 @@ public abstract class AbstractStoreBuilder<K, V> implements KVStoreProvider.Stor
     return this;
   }
 
+  @Override
+  public KVStoreProvider.StoreBuilder<K, V> profile(StoreProfile profile) {
+    helper.profile(profile);
+    return this;
+  }
+
   @Override
   public KVStoreProvider.StoreBuilder<K, V> permitCompoundKeys(boolean permitCompoundKeys) {
     this.permitCompoundKeys = permitCompoundKeys;
@@ -95,6 +95,17 @@ public interface KVStoreProvider extends Service {
      */
     StoreBuilder<K, V> permitCompoundKeys(boolean permitCompoundKeys);
 
+    /**
+     * Sets the access pattern the storage engine should tune the store for. Builders of stores that
+     * are not backed by a local storage engine ignore it.
+     *
+     * @param profile the store profile.
+     * @return a StoreBuilder implementation with the profile configured.
+     */
+    default StoreBuilder<K, V> profile(StoreProfile profile) {
+      return this;
+    }
+
     /**
      * Builds a KVStore implementation.
      *
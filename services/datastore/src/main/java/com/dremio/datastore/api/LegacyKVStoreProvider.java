@@ -53,6 +53,10 @@ public interface LegacyKVStoreProvider extends Service {
 
     LegacyStoreBuilder<K, V> permitCompoundKeys(boolean permitCompoundKeys);
 
+    default LegacyStoreBuilder<K, V> profile(StoreProfile profile) {
+      return this;
+    }
+
     LegacyKVStore<K, V> build();
 
     LegacyIndexedStore<K, V> buildIndexed(DocumentConverter<K, V> documentConverter);
@@ -95,6 +99,12 @@ public interface LegacyKVStoreProvider extends Service {
       return this;
     }
 
+    @Override
+    public LegacyStoreBuilder<K, V> profile(StoreProfile profile) {
+      helper.profile(profile);
+      return this;
+    }
+
     protected LegacyStoreBuilderHelper<K, V> getStoreBuilderHelper() {
       return helper;
     }
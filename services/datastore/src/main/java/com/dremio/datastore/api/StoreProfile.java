@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.datastore.api;
+
+/**
+ * Access pattern of a store, used by the storage engine to tune how the store is laid out on disk
+ * and cached. Profiles only affect performance, never the content of a store, so the profile of a
+ * store can be changed at any time; on disk stores pick up a new profile on the next restart.
+ */
+public enum StoreProfile {
+  /** Storage engine defaults, for stores with no particular access pattern. */
+  DEFAULT,
+
+  /**
+   * Small and hot stores mostly read by key: index and filter blocks stay pinned in the block
+   * cache, and bloom filters skip files that don't contain the key.
+   */
+  POINT_LOOKUP,
+
+  /**
+   * Large, mostly cold stores read through range scans: bigger blocks compressed harder on the
+   * lower levels, and index and filter blocks compete with data blocks for the block cache rather
+   * than being pinned.
+   */
+  SCAN_HEAVY;
+
+  /** Profile stored under the given name, or {@link #DEFAULT} if none is known. */
+  public static StoreProfile fromName(String name) {
+    if (name == null) {
+      return DEFAULT;
+    }
+    for (StoreProfile profile : values()) {
+      if (profile.name().equals(name)) {
+        return profile;
+      }
+    }
+    return DEFAULT;
+  }
+}
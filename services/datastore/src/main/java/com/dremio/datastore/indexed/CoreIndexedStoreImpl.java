@@ -415,6 +415,11 @@ public class CoreIndexedStoreImpl<K, V> implements CoreIndexedStore<K, V> {
   @Override
   public void bulkDelete(List<KVStoreTuple<K>> keysToDelete, DeleteOption... deleteOptions) {
     base.bulkDelete(keysToDelete, deleteOptions);
+    final List<Term> terms = new ArrayList<>(keysToDelete.size());
+    for (KVStoreTuple<K> key : keysToDelete) {
+      terms.add(keyAsTerm(key));
+    }
+    index.deleteDocuments(terms);
   }
 
   @Override
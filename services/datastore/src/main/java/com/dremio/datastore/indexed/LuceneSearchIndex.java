@@ -29,20 +29,29 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.lucene.analysis.core.KeywordAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.ConcurrentMergeScheduler;
-import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.LiveIndexWriterConfig;
+import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
@@ -56,6 +65,7 @@ import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.InfoStream;
+import org.apache.lucene.util.StringHelper;
 
 /** Local search index based on lucene. */
 public class LuceneSearchIndex implements AutoCloseable {
@@ -102,8 +112,30 @@ public class LuceneSearchIndex implements AutoCloseable {
    */
   public static final String OVERRIDE_SPINS_PROPERTY = "dremio.lucene.override_spins";
 
+  /**
+   * Property name for configuring the number of shards an index is hash partitioned into. Each
+   * shard has its own writer and searcher, and updates to a sharded index are applied
+   * asynchronously by one indexer thread per shard. An existing index written with a different
+   * number of shards is dropped on startup and rebuilt from its store.
+   *
+   * <p>Default is 1 (not sharded)
+   */
+  public static final String SHARDS_PROPERTY = "dremio.lucene.shards";
+
+  /**
+   * Property name for configuring how stale (in millis) a search on a sharded index may be. A
+   * search waits for the pending updates older than this bound to be applied.
+   *
+   * <p>Default is 0, a search sees all the updates made before it started
+   */
+  public static final String MAX_STALENESS_MILLIS_PROPERTY =
+      "dremio.lucene.shard.max_staleness_millis";
+
   private static final String METRIC_PREFIX = "kvstore.lucene";
 
+  private static final String REBUILD_MARKER = "rebuild";
+  private static final Pattern SHARD_DIRECTORY_PATTERN = Pattern.compile("core(-\\d+)?");
+
   // delay between end of a commit and next commit
   private static final long COMMIT_FREQUENCY =
       Integer.getInteger(COMMIT_FREQUENCY_MILLIS_PROPERTY, 60_000);
@@ -133,6 +165,17 @@ public class LuceneSearchIndex implements AutoCloseable {
   // The searcher is saved in the cache for at least these many milli seconds after the last access.
   private static final int SEARCHER_CACHE_TTL_MILLIS = 3600 * 1000;
 
+  private static final int NUM_SHARDS = Integer.getInteger(SHARDS_PROPERTY, 1);
+
+  private static final int MAX_STALENESS_MILLIS =
+      Integer.getInteger(MAX_STALENESS_MILLIS_PROPERTY, 0);
+
+  // Maximum number of pending updates applied by an indexer before waking up waiting searches
+  private static final int INDEXER_BATCH_SIZE = 1024;
+
+  // How long an idle indexer sleeps if it is not woken up by a new update
+  private static final long INDEXER_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
   /**
    * Starts a thread that will commit the writer every 60s (by default), if any exception is thrown
    * during commit it will be recorded and calling throwExceptionIfAny() will throw it back
@@ -215,15 +258,170 @@ public class LuceneSearchIndex implements AutoCloseable {
     }
   }
 
+  /** An update to apply to the writer of a shard. */
+  @FunctionalInterface
+  private interface IndexOperation {
+    void apply(IndexWriter writer) throws IOException;
+  }
+
+  /** An update waiting to be applied by the indexer of a shard. */
+  private static final class PendingOperation {
+    private final IndexOperation operation;
+    private final long enqueuedNanos;
+
+    PendingOperation(IndexOperation operation) {
+      this.operation = operation;
+      this.enqueuedNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * A partition of the index, with its own directory, writer and searcher manager.
+   *
+   * <p>When the index is sharded, updates are not applied by the calling thread but appended to a
+   * lock-free queue, which is drained in batches by the indexer thread of the shard. The queue is
+   * FIFO and an operation is only removed once it has been applied, so the head of the queue tells
+   * how far behind the searchers of the shard are.
+   */
+  private final class Shard {
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    private final ConcurrentLinkedQueue<PendingOperation> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private Thread indexerThread;
+    private volatile boolean closed;
+
+    Shard(BaseDirectory directory, IndexWriterConfig writerConfig) throws IOException {
+      this.writer = new IndexWriter(directory, writerConfig);
+      this.searcherManager = new SearcherManager(writer, true, true, null);
+    }
+
+    void startIndexer(int id) {
+      indexerThread = new Thread(this::indexLoop);
+      indexerThread.setName(format("LuceneSearchIndex:indexer %s-%d", name, id));
+      indexerThread.setDaemon(true);
+      indexerThread.start();
+    }
+
+    void apply(IndexOperation operation) {
+      if (indexerThread == null) {
+        try {
+          operation.apply(writer);
+        } catch (IOException ex) {
+          throw Throwables.propagate(ex);
+        }
+        return;
+      }
+
+      pending.offer(new PendingOperation(operation));
+      pendingCount.incrementAndGet();
+      LockSupport.unpark(indexerThread);
+    }
+
+    private void indexLoop() {
+      while (!closed) {
+        if (pending.isEmpty()) {
+          LockSupport.parkNanos(this, INDEXER_IDLE_NANOS);
+          continue;
+        }
+
+        try {
+          applyPending();
+        } catch (Throwable e) {
+          indexException = e;
+          synchronized (this) {
+            this.notifyAll();
+          }
+          return; // stop indexer thread, next call to any other method will throw an exception
+        }
+      }
+    }
+
+    /** Applies a batch of pending operations, and returns the number of operations applied. */
+    private int applyPending() throws IOException {
+      // this is the only consumer, so the operations seen by the iterator stay at the head of the
+      // queue until they are polled
+      int count = 0;
+      for (final PendingOperation op : pending) {
+        op.operation.apply(writer);
+        if (++count == INDEXER_BATCH_SIZE) {
+          break;
+        }
+      }
+      for (int i = 0; i < count; i++) {
+        pending.poll();
+      }
+      pendingCount.addAndGet(-count);
+
+      synchronized (this) {
+        this.notifyAll();
+      }
+      return count;
+    }
+
+    /** Waits until all the operations enqueued before the given time have been applied. */
+    void awaitIndexed(long deadlineNanos) {
+      synchronized (this) {
+        while (true) {
+          throwExceptionIfAny();
+          final PendingOperation head = pending.peek();
+          if (head == null || head.enqueuedNanos - deadlineNanos > 0) {
+            return;
+          }
+          try {
+            this.wait(10);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+          }
+        }
+      }
+    }
+
+    int getQueueDepth() {
+      return pendingCount.get();
+    }
+
+    long getIndexLagNanos(long now) {
+      final PendingOperation head = pending.peek();
+      return head == null ? 0 : Math.max(0, now - head.enqueuedNanos);
+    }
+
+    /** Stops the indexer thread, and applies the operations it left behind. */
+    void closeIndexer() throws IOException {
+      if (indexerThread == null) {
+        return;
+      }
+      closed = true;
+      LockSupport.unpark(indexerThread);
+      while (true) {
+        try {
+          indexerThread.join();
+          break;
+        } catch (InterruptedException e) {
+          // we really don't want to be interrupted here
+        }
+      }
+      if (indexException == null) {
+        while (applyPending() > 0) {
+          // drain
+        }
+      }
+    }
+  }
+
   private final CommitterThread committerThread;
   private final CommitWrapper commitWrapper;
 
-  private final IndexWriter writer;
-  private final BaseDirectory directory;
-  private final SearcherManager searcherManager;
+  private final Shard[] shards;
+  // present while the index needs to be rebuilt from its store, null for in-memory indexes
+  private File rebuildMarker;
+  private final long maxStalenessNanos;
   private final String name;
 
   private volatile boolean reindexing = false;
+  private volatile Throwable indexException;
 
   // the search version number is composed of 32-bit fixed random number and a 32-bit monotonic
   // counter.
@@ -247,7 +445,6 @@ public class LuceneSearchIndex implements AutoCloseable {
         new MergeSchedulerInfoStream(name));
   }
 
-  @SuppressWarnings("NoGuavaCacheUsage") // TODO: fix as part of DX-51884
   @VisibleForTesting
   LuceneSearchIndex(
       final File localStorageDir,
@@ -256,25 +453,39 @@ public class LuceneSearchIndex implements AutoCloseable {
       final CommitWrapper commitWrapper,
       final int searcherCacheTTLMillis,
       final InfoStream infoStream) {
+    this(
+        localStorageDir,
+        name,
+        inMemory,
+        commitWrapper,
+        searcherCacheTTLMillis,
+        infoStream,
+        NUM_SHARDS,
+        MAX_STALENESS_MILLIS);
+  }
+
+  @SuppressWarnings("NoGuavaCacheUsage") // TODO: fix as part of DX-51884
+  @VisibleForTesting
+  LuceneSearchIndex(
+      final File localStorageDir,
+      final String name,
+      final boolean inMemory,
+      final CommitWrapper commitWrapper,
+      final int searcherCacheTTLMillis,
+      final InfoStream infoStream,
+      final int numShards,
+      final long maxStalenessMillis) {
+    Preconditions.checkArgument(
+        numShards > 0, "Number of shards must be positive. Was %s.", numShards);
     this.name = name;
     this.commitWrapper = commitWrapper;
-
-    final ConcurrentMergeScheduler cms = new ConcurrentMergeScheduler();
-    String overrideSpins = System.getProperty(OVERRIDE_SPINS_PROPERTY);
-    if (overrideSpins != null) {
-      cms.setDefaultMaxMergesAndThreads(Boolean.parseBoolean(overrideSpins));
-    }
-    final IndexWriterConfig writerConfig =
-        new IndexWriterConfig(new KeywordAnalyzer())
-            .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
-            .setRAMBufferSizeMB(RAM_BUFFER_SIZE_MB)
-            .setInfoStream(infoStream)
-            .setMergeScheduler(cms);
+    this.shards = new Shard[numShards];
+    this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
 
     try {
-
+      File rootDir = null;
       if (!inMemory) {
-        final File rootDir = new File(localStorageDir, name);
+        rootDir = new File(localStorageDir, name);
         if (rootDir.exists()) {
           if (!rootDir.isDirectory()) {
             throw new RuntimeException(
@@ -289,15 +500,44 @@ public class LuceneSearchIndex implements AutoCloseable {
                     "Failed to create directory %s for local index.", rootDir.getAbsolutePath()));
           }
         }
-        directory = MMapDirectory.open(new File(rootDir, "core").toPath());
-      } else {
-        directory = new RAMDirectory();
+        if (!hasShardLayout(rootDir, numShards)) {
+          if (this instanceof ReadOnlyLuceneSearchIndex) {
+            throw new RuntimeException(
+                String.format(
+                    "Local index %s was created with a different number of shards than the "
+                        + "configured %d.",
+                    rootDir.getAbsolutePath(), numShards));
+          }
+          logger.warn(
+              "Local index {} was created with a different number of shards than the configured "
+                  + "{}, it is dropped and will be rebuilt from its store.",
+              name,
+              numShards);
+          // marks the index as incomplete until it is rebuilt, should the process stop before
+          Files.write(new File(rootDir, REBUILD_MARKER).toPath(), new byte[0]);
+          deleteShardDirectories(rootDir);
+        }
+        rebuildMarker = new File(rootDir, REBUILD_MARKER);
       }
 
-      writer = new IndexWriter(directory, writerConfig);
+      for (int i = 0; i < numShards; i++) {
+        final BaseDirectory directory;
+        if (!inMemory) {
+          // an index that is not sharded keeps its original layout
+          directory =
+              MMapDirectory.open(new File(rootDir, numShards == 1 ? "core" : "core-" + i).toPath());
+        } else {
+          directory = new RAMDirectory();
+        }
+        shards[i] = new Shard(directory, newWriterConfig(infoStream));
+      }
       commit();
-      searcherManager = new SearcherManager(writer, true, true, null);
 
+      if (numShards > 1) {
+        for (int i = 0; i < numShards; i++) {
+          shards[i].startIndexer(i);
+        }
+      }
       committerThread = new CommitterThread();
     } catch (IOException ex) {
       throw Throwables.propagate(ex);
@@ -305,6 +545,8 @@ public class LuceneSearchIndex implements AutoCloseable {
 
     newGauge("kvstore.lucene." + name.toLowerCase() + ".live_records", this::getLiveRecords);
     newGauge("kvstore.lucene." + name.toLowerCase() + ".deleted_records", this::getDeletedRecords);
+    newGauge("kvstore.lucene." + name.toLowerCase() + ".queue_depth", this::getQueueDepth);
+    newGauge("kvstore.lucene." + name.toLowerCase() + ".index_lag_millis", this::getIndexLagMillis);
 
     searcherCache =
         CacheBuilder.newBuilder()
@@ -313,10 +555,116 @@ public class LuceneSearchIndex implements AutoCloseable {
             .build();
   }
 
+  private static IndexWriterConfig newWriterConfig(InfoStream infoStream) {
+    final ConcurrentMergeScheduler cms = new ConcurrentMergeScheduler();
+    String overrideSpins = System.getProperty(OVERRIDE_SPINS_PROPERTY);
+    if (overrideSpins != null) {
+      cms.setDefaultMaxMergesAndThreads(Boolean.parseBoolean(overrideSpins));
+    }
+    return new IndexWriterConfig(new KeywordAnalyzer())
+        .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+        .setRAMBufferSizeMB(RAM_BUFFER_SIZE_MB)
+        .setInfoStream(infoStream)
+        .setMergeScheduler(cms);
+  }
+
+  /**
+   * Documents are routed to shards by the hash of their id, so an index written with a different
+   * number of shards can neither be searched nor updated in place.
+   *
+   * @return true if the directory holds no index, or one written with numShards shards
+   */
+  private static boolean hasShardLayout(File rootDir, int numShards) {
+    final boolean unsharded = new File(rootDir, "core").exists();
+    final boolean sharded = new File(rootDir, "core-0").exists();
+    if (numShards == 1) {
+      return !sharded;
+    }
+    return !unsharded
+        && (!sharded
+            || (new File(rootDir, "core-" + (numShards - 1)).exists()
+                && !new File(rootDir, "core-" + numShards).exists()));
+  }
+
+  private static void deleteShardDirectories(File rootDir) throws IOException {
+    final File[] directories =
+        rootDir.listFiles(
+            file ->
+                file.isDirectory() && SHARD_DIRECTORY_PATTERN.matcher(file.getName()).matches());
+    if (directories == null) {
+      throw new IOException(String.format("Unable to list local index %s", rootDir));
+    }
+    for (File directory : directories) {
+      try (Stream<Path> paths = Files.walk(directory.toPath())) {
+        for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  /**
+   * Whether the index was dropped on startup, because it was written with a different number of
+   * shards, and must be rebuilt from its store.
+   */
+  public boolean isRebuildRequired() {
+    return rebuildMarker != null && rebuildMarker.exists();
+  }
+
+  /** Called once the index was rebuilt from its store. */
+  public void rebuilt() throws IOException {
+    if (rebuildMarker != null) {
+      Files.deleteIfExists(rebuildMarker.toPath());
+    }
+  }
+
+  private int shardIndex(BytesRef id) {
+    if (shards.length == 1) {
+      return 0;
+    }
+    return Math.floorMod(StringHelper.murmurhash3_x86_32(id, 0), shards.length);
+  }
+
+  private Shard shardFor(BytesRef id) {
+    return shards[shardIndex(id)];
+  }
+
+  private Shard shardFor(Document document) {
+    final IndexableField idField = document.getField(CoreIndexedStore.ID_FIELD_NAME);
+    if (idField == null) {
+      return shards[0];
+    }
+    final BytesRef id = idField.binaryValue();
+    return shardFor(id != null ? id : new BytesRef(idField.stringValue()));
+  }
+
+  private void throwExceptionIfAny() {
+    committerThread.throwExceptionIfAny();
+    if (indexException != null) {
+      Throwables.propagate(indexException);
+    }
+  }
+
+  /** Waits for all the updates made before now to be visible to the shard writers. */
+  private void awaitIndexed() {
+    awaitIndexed(System.nanoTime());
+  }
+
+  private void awaitIndexed(long deadlineNanos) {
+    for (Shard shard : shards) {
+      shard.awaitIndexed(deadlineNanos);
+    }
+  }
+
   private void checkIfChanged() {
+    if (shards.length > 1) {
+      awaitIndexed(System.nanoTime() - maxStalenessNanos);
+    }
     try {
-      if (!searcherManager.isSearcherCurrent()) {
-        searcherManager.maybeRefreshBlocking();
+      for (Shard shard : shards) {
+        if (!shard.searcherManager.isSearcherCurrent()) {
+          shard.searcherManager.maybeRefreshBlocking();
+        }
       }
     } catch (IOException ex) {
       throw Throwables.propagate(ex);
@@ -325,7 +673,9 @@ public class LuceneSearchIndex implements AutoCloseable {
 
   protected void commit() throws IOException {
     try (CommitCloser committer = commitWrapper.open(name)) {
-      writer.commit();
+      for (Shard shard : shards) {
+        shard.writer.commit();
+      }
       committer.succeeded();
     } catch (AlreadyClosedException e) {
       logger.error("Failed to commit.", e);
@@ -334,37 +684,25 @@ public class LuceneSearchIndex implements AutoCloseable {
   }
 
   public void add(Document document) {
-    committerThread.throwExceptionIfAny();
+    throwExceptionIfAny();
     Preconditions.checkNotNull(document.getField(CoreIndexedStore.ID_FIELD_NAME));
-    try {
-      writer.addDocument(document);
-    } catch (IOException ex) {
-      throw Throwables.propagate(ex);
-    }
+    shardFor(document).apply(writer -> writer.addDocument(document));
   }
 
   public void addMany(Document... documents) {
-    committerThread.throwExceptionIfAny();
-    try {
-      for (Document d : documents) {
-        writer.addDocument(d);
-      }
-    } catch (IOException ex) {
-      throw Throwables.propagate(ex);
+    throwExceptionIfAny();
+    for (Document d : documents) {
+      shardFor(d).apply(writer -> writer.addDocument(d));
     }
   }
 
   public void update(Term term, Document document) {
-    committerThread.throwExceptionIfAny();
-    try {
-      writer.updateDocument(term, document);
-    } catch (IOException ex) {
-      throw Throwables.propagate(ex);
-    }
+    throwExceptionIfAny();
+    shardFor(term.bytes()).apply(writer -> writer.updateDocument(term, document));
   }
 
   public int count(final Query query) {
-    committerThread.throwExceptionIfAny();
+    throwExceptionIfAny();
     checkIfChanged();
     try (Searcher searcher = acquireSearcher()) {
       return searcher.count(query);
@@ -372,7 +710,7 @@ public class LuceneSearchIndex implements AutoCloseable {
   }
 
   public List<Integer> count(final List<Query> queries) {
-    committerThread.throwExceptionIfAny();
+    throwExceptionIfAny();
     checkIfChanged();
     List<Integer> integers = new ArrayList<>(queries.size());
 
@@ -385,13 +723,30 @@ public class LuceneSearchIndex implements AutoCloseable {
   }
 
   private Searcher acquireSearcher() {
+    final IndexSearcher[] shardSearchers = new IndexSearcher[shards.length];
     try {
-      return new Searcher(searcherManager.acquire());
-    } catch (IOException ex) {
+      for (int i = 0; i < shards.length; i++) {
+        shardSearchers[i] = shards[i].searcherManager.acquire();
+      }
+      return new Searcher(shardSearchers);
+    } catch (IOException | RuntimeException ex) {
+      try {
+        releaseSearchers(shardSearchers);
+      } catch (IOException | RuntimeException e) {
+        ex.addSuppressed(e);
+      }
       throw Throwables.propagate(ex);
     }
   }
 
+  private void releaseSearchers(IndexSearcher[] shardSearchers) throws IOException {
+    for (int i = 0; i < shards.length; i++) {
+      if (shardSearchers[i] != null) {
+        shards[i].searcherManager.release(shardSearchers[i]);
+      }
+    }
+  }
+
   private List<Doc> toDocs(ScoreDoc[] hits, Searcher searcher) throws IOException {
     List<Doc> documentList = new ArrayList<>();
     for (int i = 0; i < hits.length; ++i) {
@@ -414,7 +769,7 @@ public class LuceneSearchIndex implements AutoCloseable {
   @Deprecated
   public List<Document> searchForDocuments(final Query query, int pageSize, Sort sort)
       throws IOException {
-    committerThread.throwExceptionIfAny();
+    throwExceptionIfAny();
     checkIfChanged();
     try (Searcher searcher = acquireSearcher()) {
       final List<Document> documents = new ArrayList<>();
@@ -469,7 +824,7 @@ public class LuceneSearchIndex implements AutoCloseable {
    * @return search handle.
    */
   public SearchHandle createSearchHandle() {
-    committerThread.throwExceptionIfAny();
+    throwExceptionIfAny();
     checkIfChanged();
 
     return new SearchHandle();
@@ -478,7 +833,7 @@ public class LuceneSearchIndex implements AutoCloseable {
   public List<Doc> search(
       final SearchHandle searchHandle, final Query query, int pageSize, Sort sort, int skip)
       throws IOException {
-    committerThread.throwExceptionIfAny();
+    throwExceptionIfAny();
     checkIfChanged();
     Preconditions.checkArgument(skip > -1, "Skip must be zero or greater. Was %s.", skip);
 
@@ -507,7 +862,7 @@ public class LuceneSearchIndex implements AutoCloseable {
   public List<Doc> searchAfter(
       final SearchHandle searchHandle, final Query query, int pageSize, Sort sort, Doc doc)
       throws IOException {
-    committerThread.throwExceptionIfAny();
+    throwExceptionIfAny();
 
     Searcher searcher = searchHandle.getCachedSearcher();
     TopDocs fieldDocs = searcher.searchAfter(doc.doc, query, pageSize, sort);
@@ -525,46 +880,93 @@ public class LuceneSearchIndex implements AutoCloseable {
   @Override
   public void close() throws IOException {
     committerThread.close();
+    for (Shard shard : shards) {
+      shard.closeIndexer();
+    }
     // commit will fail if writer is closed
-    if (writer.isOpen()) {
+    if (shards[0].writer.isOpen()) {
       // flush first
-      writer.flush();
+      for (Shard shard : shards) {
+        shard.writer.flush();
+      }
       commit();
-      writer.close();
+      for (Shard shard : shards) {
+        shard.writer.close();
+      }
     }
     searcherCache.invalidateAll();
-    searcherManager.close();
+    for (Shard shard : shards) {
+      shard.searcherManager.close();
+    }
   }
 
   public int getLiveRecords() {
     checkIfChanged();
     try (Searcher searcher = acquireSearcher()) {
-      DirectoryReader reader = (DirectoryReader) searcher.searcher.getIndexReader();
-      return reader.numDocs();
+      return searcher.searcher.getIndexReader().numDocs();
     }
   }
 
   public int getDeletedRecords() {
     checkIfChanged();
     try (Searcher searcher = acquireSearcher()) {
-      DirectoryReader reader = (DirectoryReader) searcher.searcher.getIndexReader();
-      return reader.numDeletedDocs();
+      return searcher.searcher.getIndexReader().numDeletedDocs();
     }
   }
 
+  /** Number of updates waiting to be applied to the shards of the index. */
+  public int getQueueDepth() {
+    int depth = 0;
+    for (Shard shard : shards) {
+      depth += shard.getQueueDepth();
+    }
+    return depth;
+  }
+
+  /** Age of the oldest update waiting to be applied to the shards of the index. */
+  public long getIndexLagMillis() {
+    final long now = System.nanoTime();
+    long lag = 0;
+    for (Shard shard : shards) {
+      lag = Math.max(lag, shard.getIndexLagNanos(now));
+    }
+    return TimeUnit.NANOSECONDS.toMillis(lag);
+  }
+
   public void deleteDocuments(Term key) {
-    committerThread.throwExceptionIfAny();
-    try {
-      writer.deleteDocuments(key);
-    } catch (IOException ex) {
-      throw Throwables.propagate(ex);
+    throwExceptionIfAny();
+    shardFor(key.bytes()).apply(writer -> writer.deleteDocuments(key));
+  }
+
+  public void deleteDocuments(List<Term> keys) {
+    throwExceptionIfAny();
+    if (shards.length == 1) {
+      shards[0].apply(writer -> writer.deleteDocuments(keys.toArray(new Term[0])));
+      return;
+    }
+
+    final List<List<Term>> keysPerShard = new ArrayList<>(shards.length);
+    for (int i = 0; i < shards.length; i++) {
+      keysPerShard.add(new ArrayList<>());
+    }
+    for (Term key : keys) {
+      keysPerShard.get(shardIndex(key.bytes())).add(key);
+    }
+    for (int i = 0; i < shards.length; i++) {
+      final Term[] shardKeys = keysPerShard.get(i).toArray(new Term[0]);
+      if (shardKeys.length > 0) {
+        shards[i].apply(writer -> writer.deleteDocuments(shardKeys));
+      }
     }
   }
 
   public void delete() {
-    committerThread.throwExceptionIfAny();
+    throwExceptionIfAny();
     try {
-      writer.deleteAll();
+      awaitIndexed();
+      for (Shard shard : shards) {
+        shard.writer.deleteAll();
+      }
       commit();
       // Forcing refresh of index so that open files are freed and deleted from disk
       checkIfChanged();
@@ -574,22 +976,34 @@ public class LuceneSearchIndex implements AutoCloseable {
   }
 
   public void forReindexing(Runnable r) {
-    final LiveIndexWriterConfig config = writer.getConfig();
+    final LiveIndexWriterConfig config = shards[0].writer.getConfig();
     final double maxRAMBufferSizeMB = config.getRAMBufferSizeMB();
     final boolean useCompoundFile = config.getUseCompoundFile();
 
     try {
       reindexing = true;
-      // Adjust index writer settings to be better suited for reindexing
-      config.setRAMBufferSizeMB(REINDEX_RAM_BUFFER_SIZE_MB);
-      config.setUseCompoundFile(false);
+      // Adjust index writer settings to be better suited for reindexing, the buffer is split
+      // between the shards
+      for (Shard shard : shards) {
+        shard
+            .writer
+            .getConfig()
+            .setRAMBufferSizeMB(Math.max(1, REINDEX_RAM_BUFFER_SIZE_MB / shards.length))
+            .setUseCompoundFile(false);
+      }
       r.run();
+      awaitIndexed();
       commit();
     } catch (Exception ex) {
       throw Throwables.propagate(ex);
     } finally {
-      config.setRAMBufferSizeMB(maxRAMBufferSizeMB);
-      config.setUseCompoundFile(useCompoundFile);
+      for (Shard shard : shards) {
+        shard
+            .writer
+            .getConfig()
+            .setRAMBufferSizeMB(maxRAMBufferSizeMB)
+            .setUseCompoundFile(useCompoundFile);
+      }
       reindexing = false;
     }
   }
@@ -668,14 +1082,31 @@ public class LuceneSearchIndex implements AutoCloseable {
   /**
    * Facade on top of IndexSearcher that propagates IOExceptions as RuntimeException and is
    * AutoCloseable for managing opening/closing of IndexSearchers.
+   *
+   * <p>On a sharded index, the searchers of all the shards are merged into a single one, so that
+   * hits are ranked and paginated across shards.
    */
   private class Searcher implements AutoCloseable {
 
+    private final IndexSearcher[] shardSearchers;
+    private final MultiReader multiReader;
     private final IndexSearcher searcher;
 
-    Searcher(IndexSearcher searcher) {
+    Searcher(IndexSearcher[] shardSearchers) throws IOException {
       super();
-      this.searcher = searcher;
+      this.shardSearchers = shardSearchers;
+      if (shardSearchers.length == 1) {
+        this.multiReader = null;
+        this.searcher = shardSearchers[0];
+      } else {
+        final IndexReader[] readers = new IndexReader[shardSearchers.length];
+        for (int i = 0; i < shardSearchers.length; i++) {
+          readers[i] = shardSearchers[i].getIndexReader();
+        }
+        // shard readers are owned by the searcher managers
+        this.multiReader = new MultiReader(readers, false);
+        this.searcher = new IndexSearcher(multiReader);
+      }
     }
 
     public TopDocs searchAfter(final ScoreDoc after, Query query, int numHits, Sort order) {
@@ -716,7 +1147,10 @@ public class LuceneSearchIndex implements AutoCloseable {
     @Override
     public void close() {
       try {
-        searcherManager.release(searcher);
+        if (multiReader != null) {
+          multiReader.close();
+        }
+        releaseSearchers(shardSearchers);
       } catch (IOException ex) {
         throw Throwables.propagate(ex);
       }
@@ -725,8 +1159,11 @@ public class LuceneSearchIndex implements AutoCloseable {
 
   @VisibleForTesting
   public void deleteEverything() throws IOException {
-    committerThread.throwExceptionIfAny();
-    writer.deleteAll();
+    throwExceptionIfAny();
+    awaitIndexed();
+    for (Shard shard : shards) {
+      shard.writer.deleteAll();
+    }
     commit();
   }
 }
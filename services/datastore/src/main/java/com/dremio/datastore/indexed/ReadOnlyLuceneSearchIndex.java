@@ -17,6 +17,7 @@ package com.dremio.datastore.indexed;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.Term;
 
@@ -42,6 +43,9 @@ public class ReadOnlyLuceneSearchIndex extends LuceneSearchIndex {
   @Override
   public void deleteDocuments(Term key) {}
 
+  @Override
+  public void deleteDocuments(List<Term> keys) {}
+
   @Override
   public void delete() {}
 
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.datastore;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+
+import com.dremio.datastore.api.StoreProfile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.DBOptions;
+import org.rocksdb.FlushOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.Statistics;
+
+/** Tests for {@link ColumnFamilyProfiles}. */
+public class TestColumnFamilyProfiles {
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testOptionsAreSharedPerProfile() throws Exception {
+    try (ColumnFamilyProfiles profiles = new ColumnFamilyProfiles(1024 * 1024, null)) {
+      for (StoreProfile profile : StoreProfile.values()) {
+        assertSame(profiles.get(profile), profiles.get(profile));
+      }
+    }
+  }
+
+  @Test
+  public void testProfilesReadWrite() throws Exception {
+    try (Statistics statistics = new Statistics();
+        DBOptions dbOptions =
+            new DBOptions()
+                .setCreateIfMissing(true)
+                .setCreateMissingColumnFamilies(true)
+                .setStatistics(statistics);
+        ColumnFamilyProfiles profiles = new ColumnFamilyProfiles(1024 * 1024, statistics)) {
+      final List<ColumnFamilyDescriptor> descriptors = new ArrayList<>();
+      descriptors.add(
+          new ColumnFamilyDescriptor(
+              RocksDB.DEFAULT_COLUMN_FAMILY, profiles.get(StoreProfile.DEFAULT)));
+      for (StoreProfile profile : StoreProfile.values()) {
+        descriptors.add(
+            new ColumnFamilyDescriptor(profile.name().getBytes(UTF_8), profiles.get(profile)));
+      }
+
+      final List<ColumnFamilyHandle> handles = new ArrayList<>();
+      try (RocksDB db =
+          RocksDB.open(dbOptions, temporaryFolder.newFolder().getPath(), descriptors, handles)) {
+        try (FlushOptions flushOptions = new FlushOptions().setWaitForFlush(true)) {
+          for (ColumnFamilyHandle handle : handles) {
+            for (int i = 0; i < 1000; i++) {
+              db.put(handle, key(i), key(i));
+            }
+            db.flush(flushOptions, handle);
+          }
+        }
+
+        for (ColumnFamilyHandle handle : handles) {
+          for (int i = 0; i < 1000; i++) {
+            assertArrayEquals(key(i), db.get(handle, key(i)));
+          }
+        }
+      } finally {
+        handles.forEach(ColumnFamilyHandle::close);
+      }
+
+      final StringBuilder sb = new StringBuilder();
+      profiles.appendStats(sb);
+      assertThat(sb.toString())
+          .contains("* Shared Block Cache Capacity: 1048576")
+          .contains("* Block Cache Hit Rate: ")
+          .contains("* Bloom Filter Useful: ");
+    }
+  }
+
+  private static byte[] key(int i) {
+    return String.format("key-%08d", i).getBytes(UTF_8);
+  }
+}
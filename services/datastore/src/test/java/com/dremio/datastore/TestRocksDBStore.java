@@ -21,6 +21,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -425,6 +426,54 @@ public class TestRocksDBStore {
     }
   }
 
+  @Test
+  public void testMultiGet() {
+    final byte[] missingKey = "missing".getBytes(UTF_8);
+    final byte[] blobKey = "blob".getBytes(UTF_8);
+    final byte[] blobValue = new byte[(int) BLOB_FILTER_SIZE + 1];
+    new Random(7).nextBytes(blobValue);
+    store.put(blobKey, blobValue);
+
+    final List<Document<byte[], byte[]>> documents = new ArrayList<>();
+    store.get(Arrays.asList(specialKey, missingKey, blobKey, specialKey)).forEach(documents::add);
+
+    assertEquals(4, documents.size());
+    assertArrayEquals(store.get(specialKey).getValue(), documents.get(0).getValue());
+    assertEquals(null, documents.get(1));
+    assertArrayEquals(blobValue, documents.get(2).getValue());
+    assertArrayEquals(documents.get(0).getValue(), documents.get(3).getValue());
+    assertFalse(store.get(Collections.emptyList()).iterator().hasNext());
+  }
+
+  @Test
+  public void testBulkDelete() throws IOException {
+    final List<byte[]> keys = new ArrayList<>();
+    final Random r = new Random(11);
+    for (int i = 0; i < 16; i++) {
+      final byte[] key = ("bulk" + i).getBytes(UTF_8);
+      final byte[] value = new byte[(int) BLOB_FILTER_SIZE + 1];
+      r.nextBytes(value);
+      store.put(key, value);
+      keys.add(key);
+    }
+    // duplicate and missing keys are ignored
+    keys.add(keys.get(0));
+    keys.add("missing".getBytes(UTF_8));
+
+    store.bulkDelete(keys);
+
+    for (byte[] key : keys) {
+      assertEquals(null, store.get(key));
+    }
+    assertNotNull(store.get(specialKey));
+
+    Path blobDir = Paths.get(rocksDBResource.getDbDir(), "blob", "test");
+    try (Stream<Path> stream = Files.list(blobDir)) {
+      List<Path> remainingBlobFiles = stream.collect(Collectors.toList());
+      assertEquals("Expected zero remaining files.", Collections.emptyList(), remainingBlobFiles);
+    }
+  }
+
   private static final byte[] newRandomValue(Random r) {
     int size = r.nextInt(Byte.MAX_VALUE);
     byte[] res = new byte[size];
@@ -16,16 +16,23 @@
 package com.dremio.datastore.indexed;
 
 import static com.dremio.datastore.indexed.LuceneSearchIndex.MergeSchedulerInfoStream.MAX_THRESHOLD;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import com.dremio.datastore.CoreIndexedStore;
 import com.dremio.datastore.SearchQueryUtils;
 import com.dremio.datastore.indexed.LuceneSearchIndex.Doc;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -522,6 +529,172 @@ public class TestLuceneIndexer {
     }
   }
 
+  @Test
+  public void testShardedIndex() throws Exception {
+    try (LuceneSearchIndex index =
+        new LuceneSearchIndex(
+            null,
+            "sharded",
+            true,
+            CommitWrapper.NO_OP,
+            500,
+            new LuceneSearchIndex.MergeSchedulerInfoStream("sharded"),
+            4,
+            0)) {
+      for (int i = 0; i < 100; ++i) {
+        index.add(newShardedDocument(i, "u" + (i % 2)));
+      }
+      assertEquals(50, index.count(new TermQuery(new Term("user", "u0"))));
+      assertEquals(50, index.count(new TermQuery(new Term("user", "u1"))));
+      assertEquals(100, index.getLiveRecords());
+      assertEquals(0, index.getQueueDepth());
+
+      // updates and deletes are routed to the shard holding the document
+      index.update(idTerm(0), newShardedDocument(0, "u1"));
+      index.deleteDocuments(idTerm(1));
+      index.deleteDocuments(Arrays.asList(idTerm(2), idTerm(3), idTerm(4)));
+      assertEquals(47, index.count(new TermQuery(new Term("user", "u0"))));
+      assertEquals(49, index.count(new TermQuery(new Term("user", "u1"))));
+      assertEquals(96, index.getLiveRecords());
+
+      // hits are sorted and paginated across shards
+      final Query query = new TermQuery(new Term("user", "u1"));
+      final Sort sort = new Sort(new SortField("version", SortField.Type.STRING));
+      try (LuceneSearchIndex.SearchHandle searchHandle = index.createSearchHandle()) {
+        final List<Doc> firstPage = index.search(searchHandle, query, 10, sort, 0);
+        final List<Doc> secondPage =
+            index.searchAfter(searchHandle, query, 100, sort, firstPage.get(9));
+        final List<Doc> skipped = index.search(searchHandle, query, 100, sort, 10);
+        assertEquals(10, firstPage.size());
+        assertEquals(39, secondPage.size());
+        assertEquals(39, skipped.size());
+
+        final List<String> ids = new ArrayList<>();
+        for (Doc doc : Iterables.concat(firstPage, secondPage)) {
+          ids.add(new String(doc.getKey(), UTF_8));
+        }
+        final List<String> sortedIds = new ArrayList<>(ids);
+        sortedIds.sort(Comparator.comparingInt(Integer::parseInt));
+        assertEquals(sortedIds, ids);
+        assertEquals("0", ids.get(0));
+        assertEquals(new String(skipped.get(0).getKey(), UTF_8), ids.get(10));
+      }
+
+      index.delete();
+      assertEquals(0, index.getLiveRecords());
+    }
+  }
+
+  @Test
+  public void testShardedIndexClose() throws Exception {
+    for (int i = 0; i < 3; ++i) {
+      try (LuceneSearchIndex index =
+          new LuceneSearchIndex(
+              folder.getRoot(),
+              "sharded-close",
+              false,
+              CommitWrapper.NO_OP,
+              500,
+              new LuceneSearchIndex.MergeSchedulerInfoStream("sharded-close"),
+              3,
+              60_000)) {
+        for (int j = 0; j < 10; ++j) {
+          index.add(newShardedDocument(i * 10 + j, "u" + i));
+        }
+      }
+    }
+
+    try (LuceneSearchIndex index =
+        new LuceneSearchIndex(
+            folder.getRoot(),
+            "sharded-close",
+            false,
+            CommitWrapper.NO_OP,
+            500,
+            new LuceneSearchIndex.MergeSchedulerInfoStream("sharded-close"),
+            3,
+            60_000)) {
+      assertEquals(30, index.getLiveRecords());
+      for (int i = 0; i < 3; ++i) {
+        assertEquals(10, index.count(new TermQuery(new Term("user", "u" + i))));
+      }
+    }
+  }
+
+  @Test
+  public void testShardCountChangeDropsIndex() throws Exception {
+    try (LuceneSearchIndex index = newIndexWithShards("resharded", 1)) {
+      for (int i = 0; i < 10; ++i) {
+        index.add(newShardedDocument(i, "u0"));
+      }
+      assertFalse(index.isRebuildRequired());
+    }
+
+    // the unsharded documents are not searched nor duplicated by the sharded index
+    try (LuceneSearchIndex index = newIndexWithShards("resharded", 3)) {
+      assertTrue(index.isRebuildRequired());
+      assertEquals(0, index.getLiveRecords());
+      assertFalse(new File(folder.getRoot(), "resharded/core").exists());
+      for (int i = 0; i < 10; ++i) {
+        index.add(newShardedDocument(i, "u0"));
+      }
+    }
+
+    // still incomplete until told it was rebuilt
+    try (LuceneSearchIndex index = newIndexWithShards("resharded", 3)) {
+      assertTrue(index.isRebuildRequired());
+      assertEquals(10, index.getLiveRecords());
+      index.rebuilt();
+      assertFalse(index.isRebuildRequired());
+    }
+
+    try (LuceneSearchIndex index = newIndexWithShards("resharded", 2)) {
+      assertTrue(index.isRebuildRequired());
+      assertEquals(0, index.getLiveRecords());
+      assertFalse(new File(folder.getRoot(), "resharded/core-2").exists());
+    }
+  }
+
+  @Test
+  public void testShardCountChangeFailsReadOnlyIndex() throws Exception {
+    try (LuceneSearchIndex index = newIndexWithShards("resharded-read-only", 2)) {
+      index.add(newShardedDocument(0, "u0"));
+    }
+
+    assertThrows(
+        RuntimeException.class,
+        () -> new ReadOnlyLuceneSearchIndex(folder.getRoot(), "resharded-read-only", false));
+    assertTrue(new File(folder.getRoot(), "resharded-read-only/core-1").exists());
+  }
+
+  private LuceneSearchIndex newIndexWithShards(String name, int numShards) {
+    return new LuceneSearchIndex(
+        folder.getRoot(),
+        name,
+        false,
+        CommitWrapper.NO_OP,
+        500,
+        new LuceneSearchIndex.MergeSchedulerInfoStream(name),
+        numShards,
+        0);
+  }
+
+  private static Term idTerm(int id) {
+    return new Term(CoreIndexedStore.ID_FIELD_NAME, new BytesRef(Integer.toString(id)));
+  }
+
+  private static Document newShardedDocument(int id, String user) {
+    final Document doc = new Document();
+    doc.add(
+        new StringField(
+            CoreIndexedStore.ID_FIELD_NAME, new BytesRef(Integer.toString(id)), Store.YES));
+    doc.add(new StringField("user", user, Field.Store.YES));
+    final String version = String.format("v%03d", id);
+    doc.add(new StringField("version", version, Field.Store.NO));
+    doc.add(new SortedDocValuesField("version", new BytesRef(version)));
+    return doc;
+  }
+
   @Test
   public void commitWrapper() throws Exception {
     final AtomicInteger opens = new AtomicInteger(0);
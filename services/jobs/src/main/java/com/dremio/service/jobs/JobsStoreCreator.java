@@ -42,6 +42,7 @@ import com.dremio.datastore.api.DocumentWriter;
 import com.dremio.datastore.api.LegacyIndexedStore;
 import com.dremio.datastore.api.LegacyIndexedStoreCreationFunction;
 import com.dremio.datastore.api.LegacyStoreBuildingFactory;
+import com.dremio.datastore.api.StoreProfile;
 import com.dremio.datastore.format.Format;
 import com.dremio.service.job.proto.JobAttempt;
 import com.dremio.service.job.proto.JobId;
@@ -67,6 +68,7 @@ public class JobsStoreCreator implements LegacyIndexedStoreCreationFunction<JobI
     return factory
         .<JobId, JobResult>newStore()
         .name(JOBS_NAME)
+        .profile(StoreProfile.SCAN_HEAVY)
         .keyFormat(Format.wrapped(JobId.class, JobId::getId, JobId::new, Format.ofString()))
         .valueFormat(Format.ofProtostuff(JobResult.class))
         .buildIndexed(new JobConverter());
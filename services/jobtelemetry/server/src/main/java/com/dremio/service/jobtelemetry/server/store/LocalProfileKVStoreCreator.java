@@ -23,6 +23,7 @@ import com.dremio.datastore.api.LegacyKVStore;
 import com.dremio.datastore.api.LegacyKVStoreCreationFunction;
 import com.dremio.datastore.api.LegacyStoreBuildingFactory;
 import com.dremio.datastore.api.StoreBuildingFactory;
+import com.dremio.datastore.api.StoreProfile;
 import com.dremio.datastore.format.Format;
 import com.dremio.exec.proto.UserBitShared;
 import com.dremio.service.jobtelemetry.IntermediateQueryProfile;
@@ -43,6 +44,7 @@ public class LocalProfileKVStoreCreator {
       return factory
           .<AttemptId, UserBitShared.QueryProfile>newStore()
           .name(PROFILES_NAME)
+          .profile(StoreProfile.SCAN_HEAVY)
           .keyFormat(
               Format.wrapped(
                   AttemptId.class,
@@ -20,31 +20,40 @@ import com.dremio.datastore.SearchTypes;
 import com.dremio.datastore.api.Document;
 import com.dremio.datastore.api.FindByCondition;
 import com.dremio.datastore.api.FindByRange;
-import com.dremio.datastore.api.ImmutableDocument;
 import com.dremio.datastore.api.IncrementCounter;
 import com.dremio.datastore.api.IndexedStore;
 import com.dremio.service.namespace.proto.NameSpaceContainer;
-import io.protostuff.LinkedBuffer;
+import com.google.common.collect.Lists;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Caching namespace KV-store.
  *
- * <p>Caches get(), put(). The cache is not automatically invalidated. To avoid stale cache records,
- * invalidateCache() need be called by the client to remove a record from the cache.
+ * <p>Caches get(), put() in the {@link NamespaceEntityCache} shared by all the instances wrapping
+ * the same store. Writes always keep the shared cache up to date, lookups are only served from it
+ * when {@code cacheLookups} is set. A lookup still reads the stored document, but only compares its
+ * tag with the cached one and leaves its value serialized, so changes made by other processes are
+ * never served from the cache. invalidateCache() can be called by the client to drop a record.
  */
 public class CachingNamespaceStore implements IndexedStore<String, NameSpaceContainer> {
 
   private final IndexedStore<String, NameSpaceContainer> underlyingIndexedStore;
 
-  private final Map<String, Document<String, NameSpaceContainer>> cache;
+  private final NamespaceEntityCache cache;
+
+  private final boolean cacheLookups;
 
   public CachingNamespaceStore(IndexedStore<String, NameSpaceContainer> underlyingIndexedStore) {
+    this(underlyingIndexedStore, true);
+  }
+
+  public CachingNamespaceStore(
+      IndexedStore<String, NameSpaceContainer> underlyingIndexedStore, boolean cacheLookups) {
     this.underlyingIndexedStore = underlyingIndexedStore;
-    this.cache = new HashMap<>();
+    this.cache = NamespaceEntityCache.forStore(underlyingIndexedStore);
+    this.cacheLookups = cacheLookups;
   }
 
   @Override
@@ -65,37 +74,44 @@ public class CachingNamespaceStore implements IndexedStore<String, NameSpaceCont
 
   @Override
   public Document<String, NameSpaceContainer> get(String key, GetOption... options) {
-    Document<String, NameSpaceContainer> cached = cache.get(key);
+    if (!cacheLookups) {
+      return underlyingIndexedStore.get(key, options);
+    }
 
+    long stamp = cache.stamp(key);
+    Document<String, NameSpaceContainer> stored = underlyingIndexedStore.get(key, options);
+    Document<String, NameSpaceContainer> cached = cache.getIfCurrent(key, stored);
     if (cached != null) {
-      return cloneNameSpaceContainer(cached);
-    } else {
-      Document<String, NameSpaceContainer> result = underlyingIndexedStore.get(key, options);
-      putToCacheIfNotNull(result);
-      return cloneNameSpaceContainer(result);
+      return cached;
     }
+    cache.putLoaded(stored, stamp);
+    return stored;
   }
 
   @Override
   public List<Document<String, NameSpaceContainer>> get(List<String> keys, GetOption... options) {
-    List<String> keysToGet = new ArrayList<>();
-
-    // Find not cached keys
-    for (String key : keys) {
-      if (!cache.containsKey(key)) {
-        keysToGet.add(key);
-      }
+    if (!cacheLookups) {
+      return Lists.newArrayList(underlyingIndexedStore.get(keys, options));
     }
 
-    // Get from KV Store if not found in cache
-    if (!keysToGet.isEmpty()) {
-      underlyingIndexedStore.get(keysToGet, options).forEach(this::putToCacheIfNotNull);
+    long[] stamps = new long[keys.size()];
+    for (int i = 0; i < stamps.length; i++) {
+      stamps[i] = cache.stamp(keys.get(i));
     }
 
-    // Assemble result
+    // Serve the documents whose stored tag matches the cached one from the cache
     List<Document<String, NameSpaceContainer>> result = new ArrayList<>(keys.size());
-    for (String key : keys) {
-      result.add(cloneNameSpaceContainer(cache.get(key)));
+    int index = 0;
+    for (Document<String, NameSpaceContainer> stored : underlyingIndexedStore.get(keys, options)) {
+      String key = keys.get(index);
+      Document<String, NameSpaceContainer> cached = cache.getIfCurrent(key, stored);
+      if (cached != null) {
+        result.add(cached);
+      } else {
+        cache.putLoaded(stored, stamps[index]);
+        result.add(stored);
+      }
+      index++;
     }
 
     return result;
@@ -104,24 +120,32 @@ public class CachingNamespaceStore implements IndexedStore<String, NameSpaceCont
   @Override
   public Document<String, NameSpaceContainer> put(
       String key, NameSpaceContainer container, PutOption... options) {
-    Document<String, NameSpaceContainer> document = underlyingIndexedStore.put(key, container);
-    putToCacheIfNotNull(document);
+    long stamp = cache.stamp(key);
+    Document<String, NameSpaceContainer> document;
+    try {
+      document = underlyingIndexedStore.put(key, container, options);
+    } catch (RuntimeException e) {
+      // A conflicting tag means the entry the caller read, possibly from the cache, is stale
+      cache.invalidate(key);
+      throw e;
+    }
+    cache.putWritten(key, document, stamp);
     return document;
   }
 
   @Override
   public boolean contains(String key, ContainsOption... options) {
-    if (cache.containsKey(key)) {
-      return true;
-    }
-
+    // the entity may have been deleted by another process since it was cached
     return underlyingIndexedStore.contains(key, options);
   }
 
   @Override
   public void delete(String key, DeleteOption... options) {
-    underlyingIndexedStore.delete(key, options);
-    cache.remove(key);
+    try {
+      underlyingIndexedStore.delete(key, options);
+    } finally {
+      cache.invalidate(key);
+    }
   }
 
   @Override
@@ -138,8 +162,11 @@ public class CachingNamespaceStore implements IndexedStore<String, NameSpaceCont
 
   @Override
   public void bulkDelete(List<String> keysToDelete, DeleteOption... deleteOptions) {
-    keysToDelete.forEach(cache::remove);
-    underlyingIndexedStore.bulkDelete(keysToDelete, deleteOptions);
+    try {
+      underlyingIndexedStore.bulkDelete(keysToDelete, deleteOptions);
+    } finally {
+      keysToDelete.forEach(cache::invalidate);
+    }
   }
 
   @Override
@@ -157,26 +184,7 @@ public class CachingNamespaceStore implements IndexedStore<String, NameSpaceCont
     return underlyingIndexedStore.getName();
   }
 
-  private Document<String, NameSpaceContainer> cloneNameSpaceContainer(
-      Document<String, NameSpaceContainer> document) {
-    if (document == null) {
-      return null;
-    }
-
-    return new ImmutableDocument.Builder<String, NameSpaceContainer>()
-        .setKey(document.getKey())
-        .setValue(NameSpaceContainer.from(document.getValue().clone(LinkedBuffer.allocate())))
-        .setTag(document.getTag())
-        .build();
-  }
-
-  private void putToCacheIfNotNull(Document<String, NameSpaceContainer> document) {
-    if (document != null) {
-      cache.put(document.getKey(), document);
-    }
-  }
-
   protected void invalidateCache(final String key) {
-    cache.remove(key);
+    cache.invalidate(key);
   }
 }
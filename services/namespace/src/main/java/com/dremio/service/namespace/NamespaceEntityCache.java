@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.service.namespace;
+
+import com.dremio.datastore.api.Document;
+import com.dremio.datastore.api.ImmutableDocument;
+import com.dremio.datastore.api.IndexedStore;
+import com.dremio.service.namespace.proto.NameSpaceContainer;
+import com.dremio.telemetry.api.metrics.SimpleCounter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.protobuf.ByteString;
+import io.protostuff.LinkedBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide cache of namespace entities, shared by all the {@link CachingNamespaceStore}
+ * instances wrapping the same namespace KV store.
+ *
+ * <p>Entries hold the serialized container along with its version tag, and the cache is bounded by
+ * the total serialized size. Every write or invalidation of a key bumps the modification stamp of
+ * the key, and a value read from (or written to) the KV store is only installed if the key was not
+ * modified since the stamp was taken before the KV store access. This keeps a lookup racing with a
+ * write from caching the value it read before the write, without holding back the lookups of other
+ * keys. Stamps are striped by key hash, so a write may only delay the caching of the few keys
+ * sharing its stripe.
+ *
+ * <p>Changes made by other processes are caught on lookup: an entry is only served while its tag is
+ * the one of the stored document, see {@link #getIfCurrent}. Such entries are also dropped when the
+ * catalog events published for them are received, see {@link
+ * com.dremio.service.namespace.catalogpubsub.NamespaceCacheInvalidationService}, and expire after
+ * {@code dremio.namespace.entity_cache_ttl_seconds} in any case.
+ */
+public final class NamespaceEntityCache {
+  private static final long MAX_WEIGHT_BYTES =
+      Long.getLong("dremio.namespace.entity_cache_size_mb", 64L) * 1024 * 1024;
+  private static final long EXPIRE_AFTER_WRITE_SECONDS =
+      Long.getLong("dremio.namespace.entity_cache_ttl_seconds", 60L);
+
+  // rough per entry overhead of the cache node, the entry and the key string
+  private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+  // number of modification stamps, a power of 2
+  private static final int STAMP_STRIPES = 1024;
+
+  private static final SimpleCounter HITS =
+      SimpleCounter.of(
+          "namespace.entity_cache.hits", "Namespace entity lookups served from the cache");
+  private static final SimpleCounter MISSES =
+      SimpleCounter.of(
+          "namespace.entity_cache.misses", "Namespace entity lookups that read the KV store");
+
+  private static final LoadingCache<IndexedStore<String, NameSpaceContainer>, NamespaceEntityCache>
+      CACHES =
+          Caffeine.newBuilder()
+              .weakKeys()
+              .build(
+                  store -> new NamespaceEntityCache(MAX_WEIGHT_BYTES, EXPIRE_AFTER_WRITE_SECONDS));
+
+  private final Cache<String, Entry> entries;
+  private final AtomicLongArray modifications = new AtomicLongArray(STAMP_STRIPES);
+
+  private NamespaceEntityCache(long maxWeightBytes, long expireAfterWriteSeconds) {
+    this.entries =
+        Caffeine.newBuilder()
+            .maximumWeight(maxWeightBytes)
+            .<String, Entry>weigher(
+                (key, entry) -> ENTRY_OVERHEAD_BYTES + 2 * key.length() + entry.bytes.size())
+            .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+            .build();
+  }
+
+  /** Returns the cache shared by all users of the given namespace store. */
+  public static NamespaceEntityCache forStore(IndexedStore<String, NameSpaceContainer> store) {
+    return CACHES.get(store);
+  }
+
+  /**
+   * Returns a private copy of the cached document if it is still the stored one, as told by the tag
+   * of the given document read from the KV store. An entry with another tag, or whose document was
+   * deleted, is dropped.
+   *
+   * @return the cached document, or null if the key is not cached or the entry is stale
+   */
+  Document<String, NameSpaceContainer> getIfCurrent(
+      String key, Document<String, NameSpaceContainer> stored) {
+    final Entry entry = entries.getIfPresent(key);
+    if (entry != null
+        && stored != null
+        && stored.getTag() != null
+        && stored.getTag().equals(entry.tag)) {
+      HITS.increment();
+      return entry.toDocument(key);
+    }
+    if (entry != null) {
+      // modified or deleted by another process, a concurrent write may have replaced it already
+      entries.asMap().remove(key, entry);
+    }
+    MISSES.increment();
+    return null;
+  }
+
+  @VisibleForTesting
+  boolean contains(String key) {
+    return entries.getIfPresent(key) != null;
+  }
+
+  /**
+   * Stamp of the key to take before accessing the KV store, and to hand back when caching the
+   * outcome.
+   */
+  long stamp(String key) {
+    return modifications.get(stripe(key));
+  }
+
+  /** Caches a document read from the KV store, unless the key was modified since the stamp. */
+  void putLoaded(Document<String, NameSpaceContainer> document, long stamp) {
+    if (document == null) {
+      return;
+    }
+    final Entry entry = Entry.of(document);
+    entries
+        .asMap()
+        .compute(
+            document.getKey(),
+            (key, current) -> modifications.get(stripe(key)) == stamp ? entry : current);
+  }
+
+  /**
+   * Caches a document written to the KV store. If anything was modified since the stamp, the order
+   * of the concurrent writes is unknown and the key is dropped instead.
+   */
+  void putWritten(String key, Document<String, NameSpaceContainer> document, long stamp) {
+    final Entry entry = document != null ? Entry.of(document) : null;
+    entries
+        .asMap()
+        .compute(
+            key, (k, current) -> modifications.getAndIncrement(stripe(k)) == stamp ? entry : null);
+  }
+
+  /** Drops the given key, and keeps in-flight lookups from caching it. */
+  void invalidate(String key) {
+    entries
+        .asMap()
+        .compute(
+            key,
+            (k, current) -> {
+              modifications.incrementAndGet(stripe(k));
+              return null;
+            });
+  }
+
+  /** Drops the entity with the given path. */
+  public void invalidate(List<String> path) {
+    invalidate(new NamespaceInternalKey(new NamespaceKey(path)).getKey());
+  }
+
+  public void invalidateAll() {
+    for (int i = 0; i < STAMP_STRIPES; i++) {
+      modifications.incrementAndGet(i);
+    }
+    entries.invalidateAll();
+  }
+
+  @VisibleForTesting
+  static int stripe(String key) {
+    final int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & (STAMP_STRIPES - 1);
+  }
+
+  private static final class Entry {
+    private final ByteString bytes;
+    private final String tag;
+
+    private Entry(ByteString bytes, String tag) {
+      this.bytes = bytes;
+      this.tag = tag;
+    }
+
+    static Entry of(Document<String, NameSpaceContainer> document) {
+      return new Entry(document.getValue().clone(LinkedBuffer.allocate()), document.getTag());
+    }
+
+    Document<String, NameSpaceContainer> toDocument(String key) {
+      return new ImmutableDocument.Builder<String, NameSpaceContainer>()
+          .setKey(key)
+          .setValue(NameSpaceContainer.from(bytes))
+          .setTag(tag)
+          .build();
+    }
+  }
+}
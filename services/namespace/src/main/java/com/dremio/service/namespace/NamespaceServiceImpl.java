@@ -32,6 +32,7 @@ import static com.dremio.service.namespace.proto.NameSpaceContainer.Type.SOURCE;
 import static com.dremio.service.namespace.proto.NameSpaceContainer.Type.SPACE;
 import static java.lang.String.format;
 
+import com.dremio.common.config.SabotConfig;
 import com.dremio.common.exceptions.UserException;
 import com.dremio.common.utils.PathUtils;
 import com.dremio.connector.metadata.DatasetSplit;
@@ -50,6 +51,7 @@ import com.dremio.datastore.api.KVStore;
 import com.dremio.datastore.api.KVStoreCreationFunction;
 import com.dremio.datastore.api.KVStoreProvider;
 import com.dremio.datastore.api.StoreBuildingFactory;
+import com.dremio.datastore.api.StoreProfile;
 import com.dremio.datastore.api.options.ImmutableMaxResultsOption;
 import com.dremio.datastore.api.options.ImmutableVersionOption;
 import com.dremio.datastore.format.Format;
@@ -159,34 +161,43 @@ public class NamespaceServiceImpl implements NamespaceService {
   private final KVStore<PartitionChunkId, MultiSplit> multiSplitStore;
   private final CatalogStatusEvents catalogStatusEvents;
 
-  /** Factory for {@code NamespaceServiceImpl} */
+  /**
+   * Factory for {@code NamespaceServiceImpl}. Unless {@link #CACHE_LOOKUPS} is disabled in the
+   * config, the instances it hands out, notably to the catalog during planning, serve lookups from
+   * the shared {@link NamespaceEntityCache}.
+   */
   public static final class Factory implements NamespaceService.Factory {
+    public static final String CACHE_LOOKUPS = "dremio.namespace.entity_cache.lookups";
+
     private final KVStoreProvider kvStoreProvider;
     private final CatalogStatusEvents catalogStatusEvents;
     private final CatalogEventMessagePublisherProvider catalogEventMessagePublisherProvider;
+    private final boolean cacheLookups;
 
     @Inject
     public Factory(
         KVStoreProvider kvStoreProvider,
         CatalogStatusEvents catalogStatusEvents,
-        CatalogEventMessagePublisherProvider catalogEventMessagePublisherProvider) {
+        CatalogEventMessagePublisherProvider catalogEventMessagePublisherProvider,
+        SabotConfig config) {
       this.kvStoreProvider = kvStoreProvider;
       this.catalogStatusEvents = catalogStatusEvents;
       this.catalogEventMessagePublisherProvider = catalogEventMessagePublisherProvider;
+      this.cacheLookups = config.getBoolean(CACHE_LOOKUPS);
     }
 
     @Override
     public NamespaceService get(String userName) {
       Preconditions.checkNotNull(userName, "requires userName"); // per method contract
       return new NamespaceServiceImpl(
-          kvStoreProvider, catalogStatusEvents, catalogEventMessagePublisherProvider);
+          kvStoreProvider, catalogStatusEvents, catalogEventMessagePublisherProvider, cacheLookups);
     }
 
     @Override
     public NamespaceService get(NamespaceIdentity identity) {
       Preconditions.checkNotNull(identity, "requires identity"); // per method contract
       return new NamespaceServiceImpl(
-          kvStoreProvider, catalogStatusEvents, catalogEventMessagePublisherProvider);
+          kvStoreProvider, catalogStatusEvents, catalogEventMessagePublisherProvider, cacheLookups);
     }
   }
 
@@ -235,6 +246,7 @@ public class NamespaceServiceImpl implements NamespaceService {
       return factory
           .<PartitionChunkId, PartitionChunk>newStore()
           .name(PARTITION_CHUNKS)
+          .profile(StoreProfile.SCAN_HEAVY)
           .keyFormat(PARTITION_CHUNK_ID_FORMAT)
           .valueFormat(Format.ofProtobuf(PartitionChunk.class))
           .buildIndexed(new PartitionChunkConverter());
@@ -254,6 +266,7 @@ public class NamespaceServiceImpl implements NamespaceService {
       return factory
           .<PartitionChunkId, MultiSplit>newStore()
           .name(MULTI_SPLITS)
+          .profile(StoreProfile.SCAN_HEAVY)
           .keyFormat(PARTITION_CHUNK_ID_FORMAT)
           .valueFormat(Format.ofProtobuf(MultiSplit.class))
           .build();
@@ -1269,6 +1282,11 @@ public class NamespaceServiceImpl implements NamespaceService {
     return document != null;
   }
 
+  @Override
+  public void invalidateNamespaceCache(final NamespaceKey key) {
+    namespace.invalidateNamespaceCache(new NamespaceInternalKey(key).getKey());
+  }
+
   /**
    * Helper method which retrieves the entity with given key. No authorization check done.
    *
@@ -27,6 +27,7 @@ import com.dremio.datastore.api.IndexedStoreCreationFunction;
 import com.dremio.datastore.api.KVStore;
 import com.dremio.datastore.api.KVStoreProvider;
 import com.dremio.datastore.api.StoreBuildingFactory;
+import com.dremio.datastore.api.StoreProfile;
 import com.dremio.datastore.api.options.ImmutableVersionOption;
 import com.dremio.datastore.format.Format;
 import com.dremio.service.namespace.proto.NameSpaceContainer;
@@ -83,7 +84,8 @@ public class NamespaceStore {
             () -> {
               IndexedStore<String, NameSpaceContainer> kvStore =
                   provider.get().getStore(NamespaceStoreCreator.class);
-              return useCachingStore ? new CachingNamespaceStore(kvStore) : kvStore;
+              // writes always go through the shared cache to keep it coherent
+              return new CachingNamespaceStore(kvStore, useCachingStore);
             });
     this.callbacks = callbacks;
     this.clock = clock;
@@ -97,6 +99,7 @@ public class NamespaceStore {
       return factory
           .<String, NameSpaceContainer>newStore()
           .name(DAC_NAMESPACE)
+          .profile(StoreProfile.POINT_LOOKUP)
           .keyFormat(Format.ofString())
           .valueFormat(
               Format.wrapped(
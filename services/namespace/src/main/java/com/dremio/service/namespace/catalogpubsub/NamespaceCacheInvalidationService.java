@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017-2019 Dremio Corporation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dremio.service.namespace.catalogpubsub;
+
+import com.dremio.datastore.api.KVStoreProvider;
+import com.dremio.service.Service;
+import com.dremio.service.namespace.CatalogEventProto;
+import com.dremio.service.namespace.NamespaceEntityCache;
+import com.dremio.service.namespace.NamespaceStore;
+import com.dremio.services.pubsub.ImmutableMessageSubscriberOptions;
+import com.dremio.services.pubsub.MessageConsumer;
+import com.dremio.services.pubsub.MessageContainerBase;
+import com.dremio.services.pubsub.MessageSubscriber;
+import com.dremio.services.pubsub.PubSubClient;
+import javax.inject.Provider;
+
+/**
+ * Drops the namespace entities changed by other processes from the local {@link
+ * NamespaceEntityCache}, based on the catalog events published for the changes.
+ *
+ * <p>The subscriber doesn't set a group name, so every process receives all the events.
+ */
+public class NamespaceCacheInvalidationService
+    implements Service, MessageConsumer<CatalogEventProto.CatalogEventMessage> {
+  private static final org.slf4j.Logger logger =
+      org.slf4j.LoggerFactory.getLogger(NamespaceCacheInvalidationService.class);
+
+  private final Provider<PubSubClient> pubSubClientProvider;
+  private final Provider<KVStoreProvider> kvStoreProvider;
+
+  private NamespaceEntityCache cache;
+  private MessageSubscriber<CatalogEventProto.CatalogEventMessage> subscriber;
+
+  public NamespaceCacheInvalidationService(
+      Provider<PubSubClient> pubSubClientProvider, Provider<KVStoreProvider> kvStoreProvider) {
+    this.pubSubClientProvider = pubSubClientProvider;
+    this.kvStoreProvider = kvStoreProvider;
+  }
+
+  @Override
+  public void start() throws Exception {
+    cache =
+        NamespaceEntityCache.forStore(
+            kvStoreProvider.get().getStore(NamespaceStore.NamespaceStoreCreator.class));
+    subscriber =
+        pubSubClientProvider
+            .get()
+            .getSubscriber(
+                CatalogEventsCacheSubscription.class,
+                this,
+                new ImmutableMessageSubscriberOptions.Builder<
+                        CatalogEventProto.CatalogEventMessage>()
+                    .build());
+    subscriber.start();
+  }
+
+  @Override
+  public void process(MessageContainerBase<CatalogEventProto.CatalogEventMessage> message) {
+    try {
+      for (CatalogEventProto.CatalogEventMessage.CatalogEvent event :
+          message.getMessage().getEventsList()) {
+        switch (event.getEventType()) {
+          case CATALOG_EVENT_TYPE_RECONCILIATION:
+            cache.invalidateAll();
+            break;
+          case CATALOG_EVENT_TYPE_VERSIONED_ENTITY_INGESTED:
+            // versioned entities are not stored in the namespace
+            break;
+          default:
+            if (event.getPathCount() > 0) {
+              cache.invalidate(event.getPathList());
+            }
+            break;
+        }
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Failed to process catalog event {}, dropping all cached entities", message, e);
+      cache.invalidateAll();
+    } finally {
+      message.ack();
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    if (subscriber != null) {
+      subscriber.close();
+    }
+  }
+}
@@ -18,11 +18,13 @@ package com.dremio.service.namespace;
 import com.dremio.datastore.LocalKVStoreProvider;
 import com.dremio.datastore.api.Document;
 import com.dremio.datastore.api.IndexedStore;
+import com.dremio.datastore.api.options.ImmutableVersionOption;
 import com.dremio.service.namespace.proto.EntityId;
 import com.dremio.service.namespace.proto.NameSpaceContainer;
 import com.dremio.service.namespace.source.proto.SourceConfig;
 import com.dremio.service.namespace.space.proto.SpaceConfig;
 import com.dremio.test.DremioTest;
+import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.UUID;
 import org.junit.After;
@@ -64,6 +66,12 @@ public class TestCachingNamespaceStore extends DremioTest {
     Assert.assertEquals(container, putResult.getValue());
     Assert.assertNotNull(putResult.getTag());
 
+    // Make sure we get the original container from the cache
+    Document<String, NameSpaceContainer> getResult = cachingNamespaceStore.get(key);
+    Assert.assertEquals(key, getResult.getKey());
+    Assert.assertEquals(container, getResult.getValue());
+    Assert.assertEquals(putResult.getTag(), getResult.getTag());
+
     // Replace the container with a completely different one in the underlying kv store, bypassing
     // the cache
     NameSpaceContainer container2 = new NameSpaceContainer();
@@ -71,24 +79,151 @@ public class TestCachingNamespaceStore extends DremioTest {
         new SourceConfig().setName(name).setId(new EntityId(UUID.randomUUID().toString())));
     container2.setType(NameSpaceContainer.Type.SOURCE);
     container2.setFullPathList(List.of(name));
-    underlyingStore.put(key, container2);
-
-    Document<String, NameSpaceContainer> getResult = cachingNamespaceStore.get(key);
+    Document<String, NameSpaceContainer> putResult2 = underlyingStore.put(key, container2);
 
-    // Make sure we got the original container (cache hit) and don't reach out to the underlying kv
-    // store
-    Assert.assertEquals(key, getResult.getKey());
-    Assert.assertEquals(container, getResult.getValue());
-    Assert.assertEquals(putResult.getTag(), getResult.getTag());
-
-    cachingNamespaceStore.invalidateCache(key);
-
-    // Now we should get the new one
+    // The stored tag no longer matches the cached one, so we should get the new one
     Document<String, NameSpaceContainer> getResult2 = cachingNamespaceStore.get(key);
 
     Assert.assertEquals(key, getResult2.getKey());
     Assert.assertEquals(container2, getResult2.getValue());
-    Assert.assertNotNull(getResult2.getTag());
+    Assert.assertEquals(putResult2.getTag(), getResult2.getTag());
     Assert.assertNotEquals(getResult.getTag(), getResult2.getTag());
+
+    cachingNamespaceStore.invalidateCache(key);
+
+    Document<String, NameSpaceContainer> getResult3 = cachingNamespaceStore.get(key);
+    Assert.assertEquals(container2, getResult3.getValue());
+    Assert.assertEquals(putResult2.getTag(), getResult3.getTag());
+  }
+
+  @Test
+  public void testCacheSharedAcrossInstances() {
+    String key = new NamespaceInternalKey(new NamespaceKey("space2")).getKey();
+    Document<String, NameSpaceContainer> putResult =
+        cachingNamespaceStore.put(key, newSpace("space2"));
+
+    // Another instance over the same store should hit
+    CachingNamespaceStore otherStore = new CachingNamespaceStore(underlyingStore);
+    Assert.assertTrue(NamespaceEntityCache.forStore(underlyingStore).contains(key));
+    Assert.assertEquals(putResult.getTag(), otherStore.get(key).getTag());
+
+    // Bypass the cache, neither instance should serve the stale entry
+    Document<String, NameSpaceContainer> current = underlyingStore.put(key, newSpace("space2"));
+    Assert.assertEquals(current.getTag(), otherStore.get(key).getTag());
+    Assert.assertEquals(current.getTag(), cachingNamespaceStore.get(key).getTag());
+  }
+
+  @Test
+  public void testStaleEntriesAreNotServedByBatchGet() {
+    String key1 = new NamespaceInternalKey(new NamespaceKey("space7")).getKey();
+    String key2 = new NamespaceInternalKey(new NamespaceKey("space8")).getKey();
+    String key3 = new NamespaceInternalKey(new NamespaceKey("space9")).getKey();
+    Document<String, NameSpaceContainer> cached =
+        cachingNamespaceStore.put(key1, newSpace("space7"));
+    cachingNamespaceStore.put(key2, newSpace("space8"));
+
+    // Bypass the cache
+    Document<String, NameSpaceContainer> current = underlyingStore.put(key2, newSpace("space8"));
+
+    List<Document<String, NameSpaceContainer>> result =
+        cachingNamespaceStore.get(List.of(key1, key2, key3));
+    Assert.assertEquals(3, result.size());
+    Assert.assertEquals(cached.getTag(), result.get(0).getTag());
+    Assert.assertEquals(current.getTag(), result.get(1).getTag());
+    Assert.assertNull(result.get(2));
+  }
+
+  @Test
+  public void testEntityDeletedElsewhereIsDropped() {
+    String key = new NamespaceInternalKey(new NamespaceKey("space10")).getKey();
+    cachingNamespaceStore.put(key, newSpace("space10"));
+
+    // Bypass the cache
+    underlyingStore.delete(key);
+
+    Assert.assertFalse(cachingNamespaceStore.contains(key));
+    Assert.assertNull(cachingNamespaceStore.get(key));
+    Assert.assertFalse(NamespaceEntityCache.forStore(underlyingStore).contains(key));
+  }
+
+  @Test
+  public void testWritesWithoutCacheLookupsUpdateCache() {
+    String key = new NamespaceInternalKey(new NamespaceKey("space3")).getKey();
+    cachingNamespaceStore.put(key, newSpace("space3"));
+    Document<String, NameSpaceContainer> cached = cachingNamespaceStore.get(key);
+
+    CachingNamespaceStore writer = new CachingNamespaceStore(underlyingStore, false);
+    Document<String, NameSpaceContainer> updated =
+        writer.put(
+            key,
+            cached.getValue(),
+            new ImmutableVersionOption.Builder().setTag(cached.getTag()).build());
+
+    Assert.assertEquals(updated.getTag(), cachingNamespaceStore.get(key).getTag());
+
+    writer.delete(key);
+    Assert.assertNull(cachingNamespaceStore.get(key));
+  }
+
+  @Test
+  public void testConflictingPutInvalidatesCache() {
+    String key = new NamespaceInternalKey(new NamespaceKey("space4")).getKey();
+    Document<String, NameSpaceContainer> stale = cachingNamespaceStore.put(key, newSpace("space4"));
+    Document<String, NameSpaceContainer> current = underlyingStore.put(key, newSpace("space4"));
+
+    Assert.assertThrows(
+        ConcurrentModificationException.class,
+        () ->
+            cachingNamespaceStore.put(
+                key,
+                stale.getValue(),
+                new ImmutableVersionOption.Builder().setTag(stale.getTag()).build()));
+
+    Assert.assertEquals(current.getTag(), cachingNamespaceStore.get(key).getTag());
+  }
+
+  @Test
+  public void testLoadRacingWithWriteIsNotCached() {
+    NamespaceEntityCache cache = NamespaceEntityCache.forStore(underlyingStore);
+    String key = new NamespaceInternalKey(new NamespaceKey("space5")).getKey();
+    Document<String, NameSpaceContainer> document = underlyingStore.put(key, newSpace("space5"));
+
+    long stamp = cache.stamp(key);
+    cache.invalidate(key);
+    cache.putLoaded(document, stamp);
+    Assert.assertFalse(cache.contains(key));
+
+    cache.putLoaded(document, cache.stamp(key));
+    Assert.assertTrue(cache.contains(key));
+  }
+
+  @Test
+  public void testLoadRacingWithUnrelatedWriteIsCached() {
+    NamespaceEntityCache cache = NamespaceEntityCache.forStore(underlyingStore);
+    String key = new NamespaceInternalKey(new NamespaceKey("space6")).getKey();
+    Document<String, NameSpaceContainer> document = underlyingStore.put(key, newSpace("space6"));
+
+    String other = null;
+    for (int i = 0; other == null; i++) {
+      String candidate = new NamespaceInternalKey(new NamespaceKey("other" + i)).getKey();
+      if (NamespaceEntityCache.stripe(candidate) != NamespaceEntityCache.stripe(key)) {
+        other = candidate;
+      }
+    }
+
+    long stamp = cache.stamp(key);
+    cachingNamespaceStore.put(other, newSpace("other"));
+    cache.invalidate(other);
+    cache.putLoaded(document, stamp);
+    Assert.assertTrue(cache.contains(key));
+  }
+
+  private static NameSpaceContainer newSpace(String name) {
+    NameSpaceContainer container = new NameSpaceContainer();
+    container.setSpace(
+        new SpaceConfig().setName(name).setId(new EntityId(UUID.randomUUID().toString())));
+    container.setType(NameSpaceContainer.Type.SPACE);
+    container.setFullPathList(List.of(name));
+    return container;
   }
 }